@@ -232,6 +232,7 @@ CTX.INPUT['executors'] = """
 
 CTX.INPUT['expressions'] = """
  abstractexpression.cpp
+ compiledexpression.cpp
  expressionutil.cpp
  tupleaddressexpression.cpp
 """
@@ -263,6 +264,7 @@ CTX.INPUT['plannodes'] = """
 """
 
 CTX.INPUT['indexes'] = """
+ AdaptiveRadixTree.cpp
  arrayuniqueindex.cpp
  tableindex.cpp
  tableindexfactory.cpp
@@ -346,6 +348,7 @@ CTX.TESTS['execution'] = """
 
 CTX.TESTS['expressions'] = """
  expression_test
+ compiledexpression_test
 """
 
 CTX.TESTS['indexes'] = """
@@ -354,6 +357,7 @@ CTX.TESTS['indexes'] = """
  index_multikey_test
  index_scripted_test
  index_test
+ radix_tree_test
 """
 
 CTX.TESTS['storage'] = """
@@ -423,7 +427,9 @@ if CTX.ANTICACHE_BUILD:
         AntiCacheDB.cpp
         BerkeleyAntiCacheDB.cpp
         NVMAntiCacheDB.cpp
+        LogStructuredAntiCacheDB.cpp
         AntiCacheEvictionManager.cpp
+        BlockCompressor.cpp
         EvictionIterator.cpp
         EvictedTable.cpp
     """
@@ -431,7 +437,9 @@ if CTX.ANTICACHE_BUILD:
     CTX.TESTS['anticache'] = """
         anticachedb_test
         berkeleydb_test
+        logstructured_anticachedb_test
         anticache_eviction_manager_test
+        block_compressor_test
     """
 
 ###############################################################################
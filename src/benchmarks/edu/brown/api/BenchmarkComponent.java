@@ -51,6 +51,7 @@ package edu.brown.api;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PrintStream;
 import java.lang.reflect.Constructor;
 import java.net.UnknownHostException;
 import java.util.HashMap;
@@ -62,6 +63,7 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -83,8 +85,10 @@ import org.voltdb.client.Client;
 import org.voltdb.client.ClientFactory;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ProcCallException;
+import org.voltdb.client.ProcedureCallback;
 import org.voltdb.client.StatsUploaderSettings;
 import org.voltdb.sysprocs.LoadMultipartitionTable;
+import org.voltdb.sysprocs.LoadPartitionTable;
 import org.voltdb.utils.Pair;
 import org.voltdb.utils.VoltSampler;
 
@@ -92,6 +96,7 @@ import edu.brown.api.results.BenchmarkComponentResults;
 import edu.brown.api.results.ResponseEntries;
 import edu.brown.catalog.CatalogUtil;
 import edu.brown.designer.partitioners.plan.PartitionPlan;
+import edu.brown.hashing.AbstractHasher;
 import edu.brown.hstore.HStoreConstants;
 import edu.brown.hstore.HStoreThreadManager;
 import edu.brown.hstore.Hstoreservice.Status;
@@ -104,7 +109,9 @@ import edu.brown.statistics.ObjectHistogram;
 import edu.brown.statistics.TableStatistics;
 import edu.brown.statistics.WorkloadStatistics;
 import edu.brown.utils.ArgumentsParser;
+import edu.brown.utils.ClassUtil;
 import edu.brown.utils.FileUtil;
+import edu.brown.utils.PartitionEstimator;
 import edu.brown.utils.StringUtil;
 
 /**
@@ -141,7 +148,8 @@ public abstract class BenchmarkComponent {
                                     int messageSize,
                                     boolean heavyWeight,
                                     StatsUploaderSettings statsSettings,
-                                    boolean shareConnection) {
+                                    boolean shareConnection,
+                                    HStoreConf hstore_conf) {
         Client client = globalClient;
         if (shareConnection == false) {
             client = ClientFactory.createClient(
@@ -149,7 +157,8 @@ public abstract class BenchmarkComponent {
                     null,
                     heavyWeight,
                     statsSettings,
-                    catalog
+                    catalog,
+                    hstore_conf
             );
             if (debug.val) LOG.debug("Created new Client handle");
         } else if (client == null) {
@@ -161,7 +170,8 @@ public abstract class BenchmarkComponent {
                             null,
                             heavyWeight,
                             statsSettings,
-                            catalog
+                            catalog,
+                            hstore_conf
                     );
                     if (debug.val) LOG.debug("Created new shared Client handle");
                 }
@@ -220,6 +230,7 @@ public abstract class BenchmarkComponent {
      */
     private ControlPipe m_controlPipe;
     private boolean m_controlPipeAutoStart = false;
+    private PrintStream m_controlOutput = System.out;
 
     /**
      * 
@@ -324,6 +335,14 @@ public abstract class BenchmarkComponent {
     private final ReentrantLock m_loaderBlock = new ReentrantLock();
     private final ClientResponse m_dummyResponse = new ClientResponseImpl(-1, -1, -1, Status.OK, HStoreConstants.EMPTY_RESULT, "");
     
+    /**
+     * Bulk Loading
+     * For each table, the partitions that we loaded tuples into with @LoadPartitionTable 
+     */
+    private final Map<String, VoltTable> m_bulkLoadTables = new TreeMap<String, VoltTable>();
+    private final Map<String, Set<Integer>> m_bulkLoadPartitions = new HashMap<String, Set<Integer>>();
+    private PartitionEstimator m_bulkLoadEstimator;
+    
     /**
      * Keep track of the number of tuples loaded so that we can generate table statistics
      */
@@ -417,18 +436,20 @@ public abstract class BenchmarkComponent {
             }
         } // FOR
 
+        // If somebody else in this JVM already initialized the HStoreConf singleton
+        // (e.g., other BenchmarkComponents or in-process HStoreSites), then we need
+        // our own copy so that our input parameters don't change theirs
         synchronized (BenchmarkComponent.class) {
+            File f = (hstore_conf_path != null ? new File(hstore_conf_path) : null);
             if (HStoreConf.isInitialized() == false) {
-                assert(hstore_conf_path != null) : "Missing HStoreConf file";
-                File f = new File(hstore_conf_path);
+                assert(f != null) : "Missing HStoreConf file";
                 if (debug.val) LOG.debug("Initializing HStoreConf from '" + f.getName() + "' along with input parameters");
-                HStoreConf.init(f, args);
+                m_hstoreConf = HStoreConf.init(f, args);
             } else {
-                if (debug.val) LOG.debug("Initializing HStoreConf only with input parameters");
-                HStoreConf.singleton().loadFromArgs(args); // XXX Why do we need to do this??
+                if (debug.val) LOG.debug("Creating separate HStoreConf from '" + f + "' along with input parameters");
+                m_hstoreConf = HStoreConf.create(f, args);
             }
         } // SYNCH
-        m_hstoreConf = HStoreConf.singleton();
         if (trace.val) LOG.trace("HStore Conf\n" + m_hstoreConf.toString(true));
         
         int transactionRate = m_hstoreConf.client.txnrate;
@@ -793,7 +814,8 @@ public abstract class BenchmarkComponent {
                 getExpectedOutgoingMessageSize(),
                 useHeavyweightClient(),
                 statsSettings,
-                m_hstoreConf.client.shared_connection
+                m_hstoreConf.client.shared_connection,
+                m_hstoreConf
         );
         if (m_blocking) { //  && isLoader == false) {
             int concurrent = m_hstoreConf.client.blocking_concurrent;
@@ -872,7 +894,7 @@ public abstract class BenchmarkComponent {
         if (message != null && message.isEmpty() == false) {
             sb.append(",").append(message);
         }
-        System.out.println(sb);
+        m_controlOutput.println(sb);
     }
     
     protected void answerWithError() {
@@ -1022,25 +1044,35 @@ public abstract class BenchmarkComponent {
             boolean locked = m_hstoreConf.client.blocking_loader;
             if (locked) m_loaderBlock.lock();
             try {
-                int tries = 3;
-                String procName = VoltSystemProcedure.procCallName(LoadMultipartitionTable.class);
-                while (tries-- > 0) {
-                    try {
-                        cr = m_voltClient.callProcedure(procName, tableName, vt);
-                    } catch (ProcCallException ex) {
-                        // If this thing was rejected, then we'll allow us to try again. 
-                        cr = ex.getClientResponse();
-                        if (cr.getStatus() == Status.ABORT_REJECT && tries > 0) {
-                            if (debug.val) 
-                                LOG.warn(String.format("Loading data for %s was rejected. Going to try again\n%s",
-                                         tableName, cr.toString()));
-                            continue;
+                Table catalog_tbl = null;
+                if (m_hstoreConf.client.bulkload) {
+                    catalog_tbl = this.getCatalogContext().getTableByName(tableName);
+                    assert(catalog_tbl != null) : "Invalid table name '" + tableName + "'";
+                }
+                if (catalog_tbl != null && catalog_tbl.getIsreplicated() == false) {
+                    cr = this.loadVoltTableByPartition(catalog_tbl, vt);
+                }
+                else {
+                    int tries = 3;
+                    String procName = VoltSystemProcedure.procCallName(LoadMultipartitionTable.class);
+                    while (tries-- > 0) {
+                        try {
+                            cr = m_voltClient.callProcedure(procName, tableName, vt);
+                        } catch (ProcCallException ex) {
+                            // If this thing was rejected, then we'll allow us to try again. 
+                            cr = ex.getClientResponse();
+                            if (cr.getStatus() == Status.ABORT_REJECT && tries > 0) {
+                                if (debug.val) 
+                                    LOG.warn(String.format("Loading data for %s was rejected. Going to try again\n%s",
+                                             tableName, cr.toString()));
+                                continue;
+                            }
+                            // Anything else needs to be thrown out of here
+                            throw ex;
                         }
-                        // Anything else needs to be thrown out of here
-                        throw ex;
-                    }
-                    break;
-                } // WHILE
+                        break;
+                    } // WHILE
+                }
             } catch (Throwable ex) {
                 throw new RuntimeException("Error when trying load data for '" + tableName + "'", ex);
             } finally {
@@ -1086,6 +1118,130 @@ public abstract class BenchmarkComponent {
         return (cr);
     }
     
+    /**
+     * Split the tuples for a partitioned table by their partition and then load
+     * each set of tuples directly into its partition with @LoadPartitionTable.
+     * All of the partitions are loaded in parallel. The current thread will block
+     * until all of the partitions return their result.
+     * Returns the first response that was not successful, otherwise it returns
+     * the last response that it got back.
+     * @param catalog_tbl
+     * @param vt
+     * @throws Exception
+     */
+    private ClientResponse loadVoltTableByPartition(Table catalog_tbl, VoltTable vt) throws Exception {
+        final String tableName = catalog_tbl.getName();
+        final PartitionEstimator p_estimator = this.getBulkLoadEstimator();
+        
+        // Split the tuples up by partition
+        final Map<Integer, VoltTable> partitionTables = new TreeMap<Integer, VoltTable>();
+        vt.resetRowPosition();
+        while (vt.advanceRow()) {
+            VoltTableRow row = vt.getRow();
+            int partition = p_estimator.getTableRowPartition(catalog_tbl, row);
+            VoltTable partitionTable = partitionTables.get(partition);
+            if (partitionTable == null) {
+                partitionTable = new VoltTable(vt);
+                partitionTables.put(partition, partitionTable);
+            }
+            partitionTable.add(row);
+        } // WHILE
+        vt.resetRowPosition();
+        if (partitionTables.isEmpty()) {
+            return (m_dummyResponse);
+        }
+        if (debug.val)
+            LOG.debug(String.format("%s: Loading %d rows directly into %d partitions",
+                      tableName, vt.getRowCount(), partitionTables.size()));
+        
+        synchronized (m_bulkLoadPartitions) {
+            if (m_bulkLoadTables.containsKey(tableName) == false) {
+                m_bulkLoadTables.put(tableName, new VoltTable(vt));
+                m_bulkLoadPartitions.put(tableName, new HashSet<Integer>());
+            }
+            m_bulkLoadPartitions.get(tableName).addAll(partitionTables.keySet());
+        } // SYNCH
+        
+        final String procName = VoltSystemProcedure.procCallName(LoadPartitionTable.class);
+        final Map<Integer, ClientResponse> responses = new HashMap<Integer, ClientResponse>();
+        final CountDownLatch latch = new CountDownLatch(partitionTables.size());
+        for (final Integer partition : partitionTables.keySet()) {
+            ProcedureCallback callback = new ProcedureCallback() {
+                @Override
+                public void clientCallback(ClientResponse clientResponse) {
+                    synchronized (responses) {
+                        responses.put(partition, clientResponse);
+                    } // SYNCH
+                    latch.countDown();
+                }
+            };
+            boolean queued = m_voltClient.callProcedure(callback, procName,
+                                                        partition, tableName,
+                                                        partitionTables.get(partition), 0);
+            if (queued == false) {
+                throw new RuntimeException(String.format("Failed to queue %s for %s at partition %d",
+                                           procName, tableName, partition));
+            }
+        } // FOR
+        latch.await();
+        
+        // If a partition rejected the request, then we'll try it one more time
+        ClientResponse cr = null;
+        for (Integer partition : partitionTables.keySet()) {
+            cr = responses.get(partition);
+            if (cr.getStatus() == Status.ABORT_REJECT) {
+                if (debug.val)
+                    LOG.warn(String.format("Loading data for %s at partition %d was rejected. Going to try again\n%s",
+                             tableName, partition, cr.toString()));
+                cr = m_voltClient.callProcedure(procName, partition, tableName, partitionTables.get(partition), 0);
+            }
+            if (cr.getStatus() != Status.OK) break;
+        } // FOR
+        return (cr);
+    }
+    
+    /**
+     * Tell every partition that we bulk loaded tuples into with loadVoltTable()
+     * that we are finished loading. Each load txn already builds the indexes that
+     * it deferred, so this only makes sure that no partition is left with a
+     * deferred index build for one of our tables.
+     * This is a no-op if ${client.bulkload} is disabled.
+     */
+    public void finishBulkLoad() {
+        if (m_noUploading || m_bulkLoadTables.isEmpty()) return;
+        
+        String procName = VoltSystemProcedure.procCallName(LoadPartitionTable.class);
+        synchronized (m_bulkLoadPartitions) {
+            for (String tableName : m_bulkLoadTables.keySet()) {
+                VoltTable emptyTable = m_bulkLoadTables.get(tableName);
+                for (Integer partition : m_bulkLoadPartitions.get(tableName)) {
+                    if (debug.val)
+                        LOG.debug(String.format("Finishing bulk load for %s at partition %d",
+                                  tableName, partition));
+                    try {
+                        m_voltClient.callProcedure(procName, partition, tableName, emptyTable, 1);
+                    } catch (Throwable ex) {
+                        throw new RuntimeException(String.format("Failed to finish bulk load for '%s' at partition %d",
+                                                   tableName, partition), ex);
+                    }
+                } // FOR
+            } // FOR
+            m_bulkLoadTables.clear();
+            m_bulkLoadPartitions.clear();
+        } // SYNCH
+    }
+    
+    private synchronized PartitionEstimator getBulkLoadEstimator() {
+        if (m_bulkLoadEstimator == null) {
+            CatalogContext catalogContext = this.getCatalogContext();
+            AbstractHasher hasher = ClassUtil.newInstance(m_hstoreConf.global.hasher_class,
+                                                          new Object[]{ catalogContext, catalogContext.numberOfPartitions },
+                                                          new Class<?>[]{ CatalogContext.class, int.class });
+            m_bulkLoadEstimator = new PartitionEstimator(catalogContext, hasher);
+        }
+        return (m_bulkLoadEstimator);
+    }
+    
     /**
      * Return an overridden transaction weight
      * @param txnName
@@ -1383,6 +1539,16 @@ public abstract class BenchmarkComponent {
         m_controlPipe = new ControlPipe(this, in, m_controlPipeAutoStart);
         return (m_controlPipe);
     }
+    
+    /**
+     * Change where this client writes its control messages for the BenchmarkController.
+     * By default this is System.out, but when we are running inside of the 
+     * same JVM as the BenchmarkController we need to write to a ThreadProcess' pipe
+     * @param out
+     */
+    protected void setControlOutput(PrintStream out) {
+        m_controlOutput = out;
+    }
 
     /**
      * Return the number of partitions in the cluster for this benchmark invocation
@@ -2,9 +2,11 @@ package edu.brown.api;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -40,6 +42,8 @@ public class BenchmarkComponentSet implements Runnable {
 
 
     private final int clientIds[];
+    private final InputStream input;
+    private final PrintStream output;
     private final Map<BenchmarkComponent, PrintWriter> components = new HashMap<BenchmarkComponent, PrintWriter>();
     private final Map<BenchmarkComponent, Thread> threads = new HashMap<BenchmarkComponent, Thread>();
     
@@ -59,10 +63,31 @@ public class BenchmarkComponentSet implements Runnable {
      * @throws Exception
      */
     public BenchmarkComponentSet(final Class<? extends BenchmarkComponent> componentClass, final int clientIds[], final String args[]) throws Exception {
+        this(componentClass, clientIds, args, System.in, System.out);
+    }
+    
+    /**
+     * Constructor
+     * The commands from the BenchmarkController will be read from the given InputStream
+     * and the BenchmarkComponents will write their control messages to the given PrintStream.
+     * @param componentClass
+     * @param clientIds
+     * @param args
+     * @param input
+     * @param output
+     * @throws Exception
+     */
+    public BenchmarkComponentSet(final Class<? extends BenchmarkComponent> componentClass,
+                                 final int clientIds[],
+                                 final String args[],
+                                 final InputStream input,
+                                 final PrintStream output) throws Exception {
         Thread.setDefaultUncaughtExceptionHandler(this.exceptionHandler);
         Thread.currentThread().setUncaughtExceptionHandler(this.exceptionHandler);
         this.exceptionHandler.addObserver(this.exceptionObserver);
         this.clientIds = clientIds;
+        this.input = input;
+        this.output = output;
         
         final List<Runnable> runnables = new ArrayList<Runnable>();
         for (int i = 0; i < this.clientIds.length; i++) {
@@ -78,6 +103,7 @@ public class BenchmarkComponentSet implements Runnable {
                     BenchmarkComponent comp = BenchmarkComponent.main(componentClass,
                                                                       clientArgs.toArray(new String[0]),
                                                                       false);
+                    comp.setControlOutput(output);
                     synchronized (BenchmarkComponentSet.this.components) {
                         BenchmarkComponentSet.this.components.put(comp, writer);
                     } // SYNCH
@@ -100,20 +126,45 @@ public class BenchmarkComponentSet implements Runnable {
     @Override
     public void run() {
         String line = null;
-        final BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        final BufferedReader in = new BufferedReader(new InputStreamReader(this.input));
         while (true) {
             if (debug.val) LOG.debug("Blocking on input stream for commands from BenchmarkController");
             try {
-                line = in.readLine().trim();
+                line = in.readLine();
             } catch (final IOException e) {
                 throw new RuntimeException("Error on standard input", e);
             }
+            
+            // If our input stream is closed, then we'll close the pipes
+            // to all of our components so that they stop too
+            if (line == null) {
+                if (debug.val) LOG.debug("Input stream closed. Stopping all BenchmarkComponents");
+                for (PrintWriter out : this.components.values()) {
+                    out.close();
+                } // FOR
+                break;
+            }
+            line = line.trim();
 
             if (debug.val) LOG.debug("New Command: " + line);
             for (PrintWriter out : this.components.values()) {
                 out.println(line);
                 out.flush();
             } // FOR
+            
+            // Once we've told everybody to stop, we'll wait for them to finish
+            // and then we're done. No more commands will come after this.
+            ControlCommand command = ControlCommand.get(line.split(" ")[0]);
+            if (command == ControlCommand.STOP || command == ControlCommand.SHUTDOWN) {
+                for (Thread t : this.threads.values()) {
+                    try {
+                        t.join();
+                    } catch (InterruptedException ex) {
+                        break;
+                    }
+                } // FOR
+                break;
+            }
         } // WHILE
     }
     
@@ -53,6 +53,8 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
 import java.lang.reflect.Field;
 import java.net.URL;
 import java.net.UnknownHostException;
@@ -91,6 +93,7 @@ import org.voltdb.client.NullCallback;
 import org.voltdb.client.ProcCallException;
 import org.voltdb.processtools.ProcessSetManager;
 import org.voltdb.processtools.SSHTools;
+import org.voltdb.processtools.ThreadProcess;
 import org.voltdb.sysprocs.DatabaseDump;
 import org.voltdb.sysprocs.EvictHistory;
 import org.voltdb.sysprocs.EvictedAccessHistory;
@@ -117,7 +120,9 @@ import edu.brown.api.results.ResultsPrinter;
 import edu.brown.api.results.ResultsUploader;
 import edu.brown.benchmark.AbstractProjectBuilder;
 import edu.brown.catalog.CatalogUtil;
+import edu.brown.hstore.HStore;
 import edu.brown.hstore.HStoreConstants;
+import edu.brown.hstore.HStoreSite;
 import edu.brown.hstore.HStoreThreadManager;
 import edu.brown.hstore.Hstoreservice.Status;
 import edu.brown.hstore.conf.HStoreConf;
@@ -168,6 +173,13 @@ public class BenchmarkController {
     /** Server Sites **/
     final ProcessSetManager sitePSM;
     
+    /**
+     * The in-process HStoreSites and BenchmarkComponentSets that we started in local mode.
+     * We have to wait for all of their threads to finish before we can return.
+     */
+    private final List<ThreadProcess> localProcesses = new ArrayList<ThreadProcess>();
+    private static final long LOCAL_SHUTDOWN_TIMEOUT = 30000; // ms
+    
     Thread self = null;
     boolean stop = false;
     boolean failed = false;
@@ -432,8 +444,10 @@ public class BenchmarkController {
             m_config.clientParameters.remove(key);
         
         // Now figure out which hosts we really want to launch this mofo on
+        // In local mode all of the HStoreSites run inside of this JVM, so we always
+        // need to use the catalog's hosts and ports to keep them from clashing
         Set<String> unique_hosts = new HashSet<String>();
-        if (m_config.useCatalogHosts == false) {
+        if (m_config.useCatalogHosts == false && m_config.localmode == false) {
             if (debug.val) LOG.debug("Creating host information from BenchmarkConfig");
             m_launchHosts = new HashMap<Integer, Set<Pair<String,Integer>>>();
             int site_id = HStoreConstants.FIRST_PARTITION_ID;
@@ -505,12 +519,10 @@ public class BenchmarkController {
             }
             
         } else {
-            // START A SERVER LOCALLY IN-PROCESS
-//            VoltDB.Configuration localconfig = new VoltDB.Configuration();
-//            localconfig.m_pathToCatalog = this.jarFileName.getAbsolutePath();
-//            m_localserver = null;//new ServerThread(localconfig);
-//            m_localserver.start();
-//            m_localserver.waitForInitialization();
+            // START THE SERVERS LOCALLY IN-PROCESS
+            if (m_config.noSites == false) {
+                this.startSites();
+            }
         }
 
         
@@ -559,6 +571,12 @@ public class BenchmarkController {
             }
         } // FOR
         
+        // In local mode the HStoreSites all share our HStoreConf, so we
+        // need to apply their parameters here
+        if (m_config.localmode) {
+            hstore_conf.loadFromArgs(m_config.siteParameters);
+        }
+        
         List<String> siteBaseCommand = new ArrayList<String>();
         if (hstore_conf.global.sshprefix != null &&
             hstore_conf.global.sshprefix.isEmpty() == false) {
@@ -592,8 +610,14 @@ public class BenchmarkController {
                 continue;
             }
             
-            LOG.info(String.format("Starting HStoreSite %s on %s",
-                                   HStoreThreadManager.formatSiteName(site_id), host));
+            LOG.info(String.format("Starting HStoreSite %s on %s%s",
+                                   HStoreThreadManager.formatSiteName(site_id), host,
+                                   (m_config.localmode ? " [in-process]" : "")));
+            if (m_config.localmode) {
+                sitePSM.startProcess(host_id, this.startLocalProcess(this.createLocalSite(site_id)));
+                hosts_started++;
+                continue;
+            }
 
 //            String debugString = "";
 //            if (m_config.listenForDebugger) {
@@ -644,6 +668,107 @@ public class BenchmarkController {
         if (debug.val) LOG.debug("All remote HStoreSites are initialized");
     }
     
+    /**
+     * Create a ThreadProcess that will run an HStoreSite inside of this JVM.
+     * All of the in-process HStoreSites share the same CatalogContext that
+     * we loaded from the project jar.
+     * @param site_id
+     * @return
+     */
+    private ThreadProcess createLocalSite(final int site_id) {
+        final String name = HStoreThreadManager.getThreadName(site_id, null, "main");
+        return new ThreadProcess(name) {
+            private HStoreSite hstore_site;
+            
+            @Override
+            protected int execute(InputStream in, final PrintStream out, PrintStream err) throws Exception {
+                this.hstore_site = HStore.initialize(catalogContext, site_id, hstore_conf);
+                
+                // Write the ready message to the pipe that our ProcessSetManager is watching
+                this.hstore_site.getReadyObservable().addObserver(new EventObserver<HStoreSite>() {
+                    @Override
+                    public void update(EventObservable<HStoreSite> o, HStoreSite arg) {
+                        out.println(arg.getReadyMessage());
+                    }
+                });
+                this.hstore_site.run(); // BLOCKING
+                return (0);
+            }
+            @Override
+            protected void terminate() {
+                if (this.hstore_site != null) this.hstore_site.shutdown();
+            }
+        };
+    }
+    
+    /**
+     * Start the given ThreadProcess and remember it so that cleanUpBenchmark()
+     * can wait for it to finish
+     * @param process
+     * @return
+     */
+    private ThreadProcess startLocalProcess(ThreadProcess process) {
+        synchronized (this.localProcesses) {
+            this.localProcesses.add(process);
+        } // SYNCH
+        return (process.start());
+    }
+    
+    /**
+     * Stop all of the in-process HStoreSites and BenchmarkComponentSets and then
+     * wait for every thread that they started to finish. Otherwise their non-daemon
+     * threads will keep this JVM alive after the benchmark is over.
+     */
+    private void joinLocalProcesses() {
+        List<ThreadProcess> processes = null;
+        synchronized (this.localProcesses) {
+            processes = new ArrayList<ThreadProcess>(this.localProcesses);
+            this.localProcesses.clear();
+        } // SYNCH
+        for (ThreadProcess p : processes) {
+            p.destroy();
+        } // FOR
+        for (ThreadProcess p : processes) {
+            Collection<Thread> alive = null;
+            try {
+                alive = p.join(LOCAL_SHUTDOWN_TIMEOUT);
+            } catch (InterruptedException ex) {
+                LOG.warn("Interrupted while waiting for " + p + " to finish");
+                break;
+            }
+            if (alive.isEmpty() == false) {
+                LOG.warn(String.format("%d threads from %s are still running after %.1f sec: %s",
+                         alive.size(), p, LOCAL_SHUTDOWN_TIMEOUT / 1000d, alive));
+            } else if (debug.val) {
+                LOG.debug("All threads for " + p + " have finished");
+            }
+        } // FOR
+    }
+    
+    /**
+     * Create a ThreadProcess that will run a BenchmarkComponentSet inside of this JVM
+     * @param clientIds
+     * @param args
+     * @return
+     */
+    private ThreadProcess createLocalClients(String clientHostId, final List<Integer> clientIds, final List<String> args) {
+        return new ThreadProcess(clientHostId) {
+            @Override
+            protected int execute(InputStream in, PrintStream out, PrintStream err) throws Exception {
+                int ids[] = new int[clientIds.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = clientIds.get(i);
+                } // FOR
+                BenchmarkComponentSet bcs = new BenchmarkComponentSet(m_clientClass,
+                                                                      ids,
+                                                                      args.toArray(new String[0]),
+                                                                      in, out);
+                bcs.run(); // BLOCKING
+                return (0);
+            }
+        };
+    }
+    
     /**
      * Invoke the benchmark loader
      */
@@ -803,7 +928,11 @@ public class BenchmarkController {
         allClientArgs.add(BenchmarkComponentSet.class.getCanonicalName());
         allClientArgs.add(m_clientClass.getCanonicalName());
         
+        // The in-process clients get the same parameters that we pass to the
+        // remote ones, just without the quotes that we need for the shell
+        final List<String> localClientArgs = new ArrayList<String>();
         for (Entry<String,String> e : m_config.clientParameters.entrySet()) {
+            localClientArgs.add(String.format("%s=%s", e.getKey(), e.getValue()));
             String value = e.getValue();
             if (value.startsWith("\"") == false) {
                 value = '"' + value + '"';
@@ -814,21 +943,24 @@ public class BenchmarkController {
                 LOG.trace("  " + opt);
         } // FOR
 
-        this.addHostConnections(allClientArgs);
-        allClientArgs.add("CONF=" + m_config.hstore_conf_path);
-        allClientArgs.add("NAME=" + this.projectBuilder.getProjectName());
-        allClientArgs.add("CHECKTRANSACTION=" + m_config.checkTransaction);
-        allClientArgs.add("CHECKTABLES=" + m_config.checkTables);
-        allClientArgs.add("LOADER=false");
+        List<String> commonClientArgs = new ArrayList<String>();
+        this.addHostConnections(commonClientArgs);
+        commonClientArgs.add("CONF=" + m_config.hstore_conf_path);
+        commonClientArgs.add("NAME=" + this.projectBuilder.getProjectName());
+        commonClientArgs.add("CHECKTRANSACTION=" + m_config.checkTransaction);
+        commonClientArgs.add("CHECKTABLES=" + m_config.checkTables);
+        commonClientArgs.add("LOADER=false");
         
         if (m_config.statsDatabaseURL != null) {
-            allClientArgs.add("STATSDATABASEURL=" + m_config.statsDatabaseURL);
-            allClientArgs.add("STATSDATABASEUSER=" + m_config.statsDatabaseUser);
-            allClientArgs.add("STATSDATABASEPASS=" + m_config.statsDatabasePass);
-            allClientArgs.add("STATSDATABASEJDBC=" + m_config.statsDatabaseJDBC);
-            allClientArgs.add("STATSPOLLINTERVAL=" + m_config.statsPollInterval);
-            // allClientArgs.add("STATSTAG=" + m_config.statsTag);
+            commonClientArgs.add("STATSDATABASEURL=" + m_config.statsDatabaseURL);
+            commonClientArgs.add("STATSDATABASEUSER=" + m_config.statsDatabaseUser);
+            commonClientArgs.add("STATSDATABASEPASS=" + m_config.statsDatabasePass);
+            commonClientArgs.add("STATSDATABASEJDBC=" + m_config.statsDatabaseJDBC);
+            commonClientArgs.add("STATSPOLLINTERVAL=" + m_config.statsPollInterval);
+            // commonClientArgs.add("STATSTAG=" + m_config.statsTag);
         }
+        allClientArgs.addAll(commonClientArgs);
+        localClientArgs.addAll(commonClientArgs);
         
         int threads_per_client = hstore_conf.client.threads_per_host;
         if (hstore_conf.client.processesperclient_per_partition) {
@@ -865,7 +997,7 @@ public class BenchmarkController {
             final String clientHostId = "client-" + _hostId;
             m_clients.add(clientHostId);
             
-            final List<String> curClientArgs = new ArrayList<String>(allClientArgs);
+            final List<String> curClientArgs = new ArrayList<String>(m_config.localmode ? localClientArgs : allClientArgs);
             final List<Integer> clientIds = new ArrayList<Integer>();
             for (int j = 0; j < threads_per_client; j++) {
                 int clientId = clientIndex.getAndIncrement();
@@ -877,7 +1009,7 @@ public class BenchmarkController {
                 @Override
                 public void run() {
                     for (int i = 0, cnt = clientIds.size(); i < cnt; i++) {
-                        if (m_config.listenForDebugger) {
+                        if (m_config.listenForDebugger && m_config.localmode == false) {
                             String arg = "-agentlib:jdwp=transport=dt_socket,address="
                                 + (8003 + i) + ",server=y,suspend=n ";
                             curClientArgs.set(1, arg);
@@ -900,6 +1032,13 @@ public class BenchmarkController {
                         }
                     } // FOR
                     
+                    // In local mode we'll run the clients inside of this JVM
+                    if (m_config.localmode) {
+                        if (trace.val) LOG.trace("Local Client Parameters: " + curClientArgs);
+                        clientPSM.startProcess(clientHostId, startLocalProcess(createLocalClients(clientHostId, clientIds, curClientArgs)));
+                        return;
+                    }
+                    
                     curClientArgs.add("ID=" + StringUtil.join(",", clientIds));
                     
                     String args[] = SSHTools.convert(m_config.remoteUser, clientHost, m_config.remotePath, m_config.sshOptions, curClientArgs);
@@ -1017,6 +1156,11 @@ public class BenchmarkController {
                 LOG.warn(String.format("Not sending %s file to client %d. The local file '%s' does not exist", param, clientId, local_file));
                 continue;
             }
+            // In-process clients can just read the local file directly
+            if (m_config.localmode) {
+                newArgs.add(param + "=" + local_file.getPath());
+                continue;
+            }
             boolean skip = false;
             synchronized (sent_files) {
                 files = sent_files.get(clientHost);
@@ -1631,6 +1775,12 @@ public class BenchmarkController {
             sitePSM.shutdown();
         }
         
+        // The in-process HStoreSites and clients have to be stopped even if we
+        // failed, because otherwise they will keep our JVM from exiting
+        if (m_config.localmode && m_config.noShutdown == false) {
+            this.joinLocalProcesses();
+        }
+        
         this.cleaned = true;
     }
 
@@ -1831,8 +1981,8 @@ public class BenchmarkController {
                 checkTables = Boolean.parseBoolean(parts[1]);
             } else if (parts[0].equalsIgnoreCase("LOCAL")) {
                 /*
-                 * The number of Volt servers to start.
-                 * Can be less then the number of provided hosts
+                 * Run all of the HStoreSites and clients as threads
+                 * inside of this JVM instead of launching new processes
                  */
                 localmode = Boolean.parseBoolean(parts[1]);
             } else if (parts[0].equalsIgnoreCase("HOSTCOUNT")) {
@@ -2261,6 +2411,5 @@ public class BenchmarkController {
                 Thread.sleep(1000);
             } // WHILE
         }
-
     }
 }
@@ -75,7 +75,14 @@ public class ControlPipe implements Runnable {
                 this.autoStart = false;
             } else {
                 try {
-                    command = ControlCommand.get(p.split(in.readLine())[0]);
+                    String line = in.readLine();
+                    if (line == null) {
+                        // The BenchmarkController went away, so there is nobody
+                        // left to tell us what to do
+                        if (debug.val) LOG.debug("Input stream closed. Stopping ControlPipe");
+                        break;
+                    }
+                    command = ControlCommand.get(p.split(line)[0]);
                     if (debug.val) 
                         LOG.debug(String.format("Recieved Message: '%s'", command));
                 } catch (final IOException e) {
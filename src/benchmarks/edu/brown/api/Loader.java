@@ -12,7 +12,11 @@ public abstract class Loader extends BenchmarkComponent {
     
     @Override
     protected final void runLoop() throws IOException {
-        this.load();
+        try {
+            this.load();
+        } finally {
+            this.finishBulkLoad();
+        }
     }
 
     @Override
@@ -36,7 +36,6 @@ import org.apache.log4j.Logger;
 import org.voltdb.VoltTable;
 
 import edu.brown.api.BenchmarkComponent;
-import edu.brown.hstore.conf.HStoreConf;
 import edu.brown.utils.StringUtil;
 
 public class LocalityLoader extends BenchmarkComponent {
@@ -72,7 +71,7 @@ public class LocalityLoader extends BenchmarkComponent {
     public LocalityLoader(String[] args) {
         super(args);
 
-        double scaleFactor = HStoreConf.singleton().client.scalefactor;
+        double scaleFactor = this.getHStoreConf().client.scalefactor;
         for (String key : m_extraParams.keySet()) {
             String value = m_extraParams.get(key);
 
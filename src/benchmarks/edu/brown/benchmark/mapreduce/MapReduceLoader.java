@@ -40,7 +40,6 @@ import org.voltdb.catalog.Table;
 import edu.brown.api.BenchmarkComponent;
 import edu.brown.catalog.CatalogUtil;
 import edu.brown.utils.StringUtil;
-import edu.brown.hstore.conf.HStoreConf;
 
 public class MapReduceLoader extends BenchmarkComponent {
     private static final Logger LOG = Logger.getLogger(MapReduceLoader.class);
@@ -70,7 +69,7 @@ public class MapReduceLoader extends BenchmarkComponent {
     public MapReduceLoader(String[] args) {
         super(args);
         
-        double scaleFactor = HStoreConf.singleton().client.scalefactor; 
+        double scaleFactor = this.getHStoreConf().client.scalefactor; 
         for (String key : m_extraParams.keySet()) {
             String value = m_extraParams.get(key);
 
@@ -36,7 +36,6 @@ import org.apache.log4j.Logger;
 import org.voltdb.VoltTable;
 
 import edu.brown.api.BenchmarkComponent;
-import edu.brown.hstore.conf.HStoreConf;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
 import edu.brown.rand.AbstractRandomGenerator;
@@ -89,7 +88,7 @@ public class MarkovLoader extends BenchmarkComponent {
         String randGenClassName = RandomGenerator.class.getName();
         String randGenProfilePath = null;
 
-        double scaleFactor = HStoreConf.singleton().client.scalefactor;
+        double scaleFactor = this.getHStoreConf().client.scalefactor;
         for (String key : m_extraParams.keySet()) {
             String value = m_extraParams.get(key);
 
@@ -160,6 +160,15 @@ public class BlockingClient extends Semaphore implements Client {
         return this.inner.callProcedure(callback, expectedSerializedSize, procName, hints, parameters);
     }
 
+    @Override
+    public boolean callProcedures(ProcedureCallback callbacks[], String procNames[], Object parameters[][]) throws IOException, NoConnectionsException {
+        ProcedureCallback blocking[] = new ProcedureCallback[callbacks.length];
+        for (int i = 0; i < blocking.length; i++) {
+            blocking[i] = new BlockingCallback(procNames[i], callbacks[i]);
+        } // FOR
+        return this.inner.callProcedures(blocking, procNames, parameters);
+    }
+
     /* (non-Javadoc)
      * @see org.voltdb.client.Client#close()
      */
@@ -52,6 +52,12 @@ namespace voltdb
 // -----------------------------------------
 // AntiCacheEvictionManager Implementation 
 // -----------------------------------------
+
+static inline int64_t currentTimeNanos() {
+    struct timespec ts;
+    clock_gettime(CLOCK_MONOTONIC, &ts);
+    return ((int64_t)ts.tv_sec * 1000000000 + ts.tv_nsec);
+}
     
     
 /*
@@ -83,11 +89,13 @@ AntiCacheEvictionManager::AntiCacheEvictionManager(const VoltDBEngine *engine) {
 
     m_numdbs = 0;
     m_migrate = false;
+    m_compressor = NULL;
 }
 
 AntiCacheEvictionManager::~AntiCacheEvictionManager() {
     delete m_evictResultTable;
     delete m_evicted_tuple;
+    delete m_compressor;
     TupleSchema::freeTupleSchema(m_evicted_schema);
     
     // int i;
@@ -680,11 +688,12 @@ bool AntiCacheEvictionManager::evictBlockToDisk(PersistentTable *table, const lo
             // TODO: make this look like
             // block.flush();
             //  antiCacheDB->writeBlock(block);
-            antiCacheDB->writeBlock(table->name(),
-                                    _block_id,
-                                    num_tuples_evicted,
-                                    blockdata,
-                                    blocksize);
+            writeEvictedBlock(antiCacheDB,
+                              table,
+                              _block_id,
+                              num_tuples_evicted,
+                              blockdata,
+                              blocksize);
             needs_flush = true;
 
             // store pointer to AntiCacheDB associated with this block
@@ -1009,7 +1018,8 @@ bool AntiCacheEvictionManager::evictBlockToDiskInBatch(PersistentTable *table, P
             //          antiCacheDB->writeBlock(block);
 
 
-            antiCacheDB->writeBlock(table->name(),
+            writeEvictedBlock(antiCacheDB,
+                    table,
                     _block_id,
                     num_tuples_evicted,
                     block.getSerializedData(),
@@ -1176,16 +1186,24 @@ bool AntiCacheEvictionManager::readEvictedBlock(PersistentTable *table, int32_t
         AntiCacheBlock* value = antiCacheDB->readBlock(_block_id);
 
         // allocate the memory for this block
-        char* unevicted_tuples = new char[value->getSize()];
-        memcpy(unevicted_tuples, value->getData(), value->getSize());
+        long blockSize = value->getSize();
+        char* unevicted_tuples;
+        if (m_compressor == NULL) {
+            unevicted_tuples = new char[blockSize];
+            memcpy(unevicted_tuples, value->getData(), blockSize);
+        } else {
+            int64_t start = currentTimeNanos();
+            unevicted_tuples = m_compressor->decompress(value->getData(), value->getSize(), blockSize);
+            table->m_decompressionTime += currentTimeNanos() - start;
+        }
         /*
         for (int i = 0; i < 200; i++) {
             printf( "%X", unevicted_tuples[i]);
         }
         cout << "\n";*/
         VOLT_INFO("***************** READ EVICTED BLOCK %d *****************", _block_id);
-        VOLT_INFO("Block Size = %ld / Table = %s", value->getSize(), table->name().c_str());
-        ReferenceSerializeInput in(unevicted_tuples, value->getSize());
+        VOLT_INFO("Block Size = %ld / Table = %s", blockSize, table->name().c_str());
+        ReferenceSerializeInput in(unevicted_tuples, blockSize);
         
         // Read in all the block meta-data
         int num_tables = in.readInt();
@@ -1222,6 +1240,35 @@ bool AntiCacheEvictionManager::readEvictedBlock(PersistentTable *table, int32_t
 }
 
 
+void AntiCacheEvictionManager::setCompression(AntiCacheCompressionType type) {
+    VOLT_INFO("Setting anti-cache block compression to type %d", (int)type);
+    delete m_compressor;
+    m_compressor = (type != ANTICACHE_COMPRESSION_NONE ? new BlockCompressor(type) : NULL);
+}
+
+/*
+ * Compress a block (if enabled) and write it out to the given AntiCacheDB.
+ * The NVM backend stores every block in a fixed-size slot, so we only add
+ * our header to those blocks instead of spending the time to compress them.
+ */
+void AntiCacheEvictionManager::writeEvictedBlock(AntiCacheDB* antiCacheDB, PersistentTable *table,
+                                                 int16_t blockId, int tupleCount,
+                                                 const char* data, long size) {
+    long storedSize = size;
+    if (m_compressor != NULL && antiCacheDB->getDBType() == ANTICACHEDB_NVM) {
+        storedSize = m_compressor->store(data, size);
+        data = m_compressor->getData();
+    } else if (m_compressor != NULL) {
+        int64_t start = currentTimeNanos();
+        storedSize = m_compressor->compress(table->name(), data, size);
+        data = m_compressor->getData();
+        table->m_compressionTime += currentTimeNanos() - start;
+    }
+    antiCacheDB->writeBlock(table->name(), blockId, tupleCount, data, storedSize);
+    table->m_blockBytesUncompressed += size;
+    table->m_blockBytesCompressed += storedSize;
+}
+
 // stub method that may either be implemented by plug in policies
 // or via class inheritance.
 
@@ -35,6 +35,7 @@
 #include "common/NValue.hpp"
 #include "common/ValuePeeker.hpp"
 #include "anticache/AntiCacheDB.h"
+#include "anticache/BlockCompressor.h"
 
 #include <vector>
 #include <map>
@@ -76,6 +77,15 @@ public:
     int16_t addAntiCacheDB(AntiCacheDB* acdb);
     AntiCacheDB* getAntiCacheDB(int acid);
 
+    /**
+     * Set how blocks are compressed before we write them out to the AntiCacheDBs.
+     * This has to be called before anything is evicted.
+     */
+    void setCompression(AntiCacheCompressionType type);
+    inline AntiCacheCompressionType getCompression() const {
+        return (m_compressor != NULL ? m_compressor->getType() : ANTICACHE_COMPRESSION_NONE);
+    }
+
     // -----------------------------------------
     // Evicted Access Tracking Methods
     // -----------------------------------------
@@ -98,6 +108,8 @@ protected:
     bool removeTupleDoubleLinkedList(PersistentTable* table, TableTuple* tuple_to_remove, uint32_t removal_id);
     
     void printLRUChain(PersistentTable* table, int max, bool forward);
+    void writeEvictedBlock(AntiCacheDB* antiCacheDB, PersistentTable *table, int16_t blockId,
+                           int tupleCount, const char* data, long size);
     char *itoa(uint32_t i);
     
     Table *m_evictResultTable;
@@ -121,6 +133,9 @@ protected:
     // m_numdbs > 1;
     bool m_migrate;
     //std::map<int16_t, AntiCacheDB*> m_db_lookup_table;
+
+    // NULL if blocks are not compressed
+    BlockCompressor* m_compressor;
     
 }; // AntiCacheEvictionManager class
 
@@ -0,0 +1,333 @@
+/* Copyright (C) 2014 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "anticache/BlockCompressor.h"
+#include "common/debuglog.h"
+#include "common/FatalException.hpp"
+
+#include <cstring>
+
+using namespace std;
+
+namespace voltdb {
+
+// LZ4 block format constants
+#define LZ4_MIN_MATCH 4
+#define LZ4_HASH_LOG 14
+#define LZ4_MAX_OFFSET 65535
+#define LZ4_LAST_LITERALS 5
+#define LZ4_MF_LIMIT 12
+#define LZ4_SKIP_TRIGGER 6
+
+// Dictionaries are built out of chunks of this size
+#define DICTIONARY_CHUNK_SIZE 512
+
+static inline uint32_t read32(const uint8_t *p) {
+    uint32_t value;
+    ::memcpy(&value, p, sizeof(value));
+    return (value);
+}
+
+static inline uint32_t hash32(uint32_t sequence) {
+    return ((sequence * 2654435761U) >> (32 - LZ4_HASH_LOG));
+}
+
+static inline uint8_t* writeLength(uint8_t *op, long length) {
+    while (length >= 255) {
+        *op++ = 255;
+        length -= 255;
+    } // WHILE
+    *op++ = static_cast<uint8_t>(length);
+    return (op);
+}
+
+BlockCompressor::BlockCompressor(AntiCacheCompressionType type) :
+    m_type(type) {
+}
+
+long BlockCompressor::compress(const std::string &tableName, const char *data, long size) {
+    uint16_t dictionaryId = 0;
+    const std::string *dictionary = NULL;
+    if (m_type == ANTICACHE_COMPRESSION_LZ4_DICT) {
+        std::map<std::string, uint16_t>::const_iterator it = m_tableDictionaries.find(tableName);
+        if (it != m_tableDictionaries.end()) {
+            dictionaryId = it->second;
+        } else if (m_dictionaries.size() < UINT16_MAX) {
+            m_dictionaries.push_back(trainDictionary(data, size));
+            dictionaryId = static_cast<uint16_t>(m_dictionaries.size());
+            m_tableDictionaries[tableName] = dictionaryId;
+            VOLT_INFO("Trained anti-cache dictionary #%d for %s [size=%ld]",
+                      dictionaryId, tableName.c_str(), (long)m_dictionaries.back().size());
+        }
+        if (dictionaryId > 0) dictionary = &m_dictionaries[dictionaryId - 1];
+    }
+
+    m_buffer.resize(HEADER_SIZE + maxCompressedLength(size));
+    uint8_t *output = reinterpret_cast<uint8_t*>(&m_buffer[HEADER_SIZE]);
+    AntiCacheCompressionType storedType = ANTICACHE_COMPRESSION_LZ4;
+    long compressedSize = size;
+    if (m_type != ANTICACHE_COMPRESSION_NONE) {
+        // The compressor reads the dictionary and the block as one buffer
+        long dictionaryLength = (dictionary != NULL ? (long)dictionary->size() : 0);
+        m_input.resize(dictionaryLength + size + 1);
+        if (dictionaryLength > 0) ::memcpy(&m_input[0], dictionary->data(), dictionaryLength);
+        ::memcpy(&m_input[dictionaryLength], data, size);
+        compressedSize = compressLZ4(&m_input[0], dictionaryLength, dictionaryLength + size, output);
+    }
+
+    // Store the block as-is if compressing it didn't help
+    if (compressedSize >= size) {
+        ::memcpy(output, data, size);
+        compressedSize = size;
+        storedType = ANTICACHE_COMPRESSION_NONE;
+        dictionaryId = 0;
+    } else if (dictionaryId > 0) {
+        storedType = ANTICACHE_COMPRESSION_LZ4_DICT;
+    }
+
+    VOLT_DEBUG("Compressed %s block [type=%d / dictionary=%d / size=%ld / compressed=%ld]",
+               tableName.c_str(), (int)storedType, dictionaryId, size, compressedSize);
+    return (writeHeader(storedType, dictionaryId, size, compressedSize));
+}
+
+long BlockCompressor::store(const char *data, long size) {
+    m_buffer.resize(HEADER_SIZE + size);
+    ::memcpy(&m_buffer[HEADER_SIZE], data, size);
+    return (writeHeader(ANTICACHE_COMPRESSION_NONE, 0, size, size));
+}
+
+long BlockCompressor::writeHeader(AntiCacheCompressionType storedType, uint16_t dictionaryId,
+                                  long size, long storedSize) {
+    int32_t uncompressedSize = static_cast<int32_t>(size);
+    m_buffer[0] = static_cast<char>(storedType);
+    m_buffer[1] = 0;
+    ::memcpy(&m_buffer[2], &dictionaryId, sizeof(dictionaryId));
+    ::memcpy(&m_buffer[4], &uncompressedSize, sizeof(uncompressedSize));
+    return (HEADER_SIZE + storedSize);
+}
+
+char* BlockCompressor::decompress(const char *data, long size, long &uncompressedSize) const {
+    if (size < HEADER_SIZE) {
+        throwFatalException("Invalid compressed anti-cache block [size=%ld]", size);
+    }
+    AntiCacheCompressionType type = static_cast<AntiCacheCompressionType>(data[0]);
+    uint16_t dictionaryId;
+    int32_t length;
+    ::memcpy(&dictionaryId, data + 2, sizeof(dictionaryId));
+    ::memcpy(&length, data + 4, sizeof(length));
+    uncompressedSize = length;
+
+    const uint8_t *src = reinterpret_cast<const uint8_t*>(data + HEADER_SIZE);
+    long srcLength = size - HEADER_SIZE;
+    char *output = new char[length];
+
+    switch (type) {
+        case ANTICACHE_COMPRESSION_NONE:
+            if (srcLength != length) {
+                delete [] output;
+                throwFatalException("Invalid uncompressed anti-cache block [size=%ld / expected=%d]",
+                                    srcLength, length);
+            }
+            ::memcpy(output, src, length);
+            break;
+        case ANTICACHE_COMPRESSION_LZ4:
+        case ANTICACHE_COMPRESSION_LZ4_DICT: {
+            const uint8_t *dictionary = NULL;
+            long dictionaryLength = 0;
+            if (dictionaryId > 0) {
+                if (dictionaryId > m_dictionaries.size()) {
+                    delete [] output;
+                    throwFatalException("Unknown anti-cache block dictionary #%d", dictionaryId);
+                }
+                const std::string &dict = m_dictionaries[dictionaryId - 1];
+                dictionary = reinterpret_cast<const uint8_t*>(dict.data());
+                dictionaryLength = (long)dict.size();
+            }
+            if (decompressLZ4(src, srcLength, reinterpret_cast<uint8_t*>(output), length,
+                              dictionary, dictionaryLength) == false) {
+                delete [] output;
+                throwFatalException("Corrupt compressed anti-cache block [size=%ld / expected=%d]",
+                                    srcLength, length);
+            }
+            break;
+        }
+        default:
+            delete [] output;
+            throwFatalException("Unknown anti-cache block compression type %d", (int)type);
+    } // SWITCH
+    return (output);
+}
+
+long BlockCompressor::compressLZ4(const uint8_t *src, long start, long end, uint8_t *dst) {
+    int32_t table[1 << LZ4_HASH_LOG];
+    for (int i = 0; i < (1 << LZ4_HASH_LOG); i++) {
+        table[i] = -1;
+    } // FOR
+
+    // Prime the hash table with the end of the dictionary
+    long dictStart = (start > LZ4_MAX_OFFSET ? start - LZ4_MAX_OFFSET : 0);
+    for (long i = dictStart; i + LZ4_MIN_MATCH <= start; i++) {
+        table[hash32(read32(src + i))] = static_cast<int32_t>(i);
+    } // FOR
+
+    uint8_t *op = dst;
+    long anchor = start;
+    long ip = start;
+    const long matchLimit = end - LZ4_LAST_LITERALS;
+    const long mfLimit = end - LZ4_MF_LIMIT;
+    int searches = 1 << LZ4_SKIP_TRIGGER;
+
+    while (ip < mfLimit) {
+        uint32_t sequence = read32(src + ip);
+        uint32_t h = hash32(sequence);
+        long ref = table[h];
+        table[h] = static_cast<int32_t>(ip);
+        if (ref < 0 || ip - ref > LZ4_MAX_OFFSET || read32(src + ref) != sequence) {
+            // Skip faster through data that doesn't compress
+            ip += (searches++ >> LZ4_SKIP_TRIGGER);
+            continue;
+        }
+        searches = 1 << LZ4_SKIP_TRIGGER;
+
+        // Extend the match backwards and then forwards
+        while (ip > anchor && ref > 0 && src[ip - 1] == src[ref - 1]) {
+            ip--;
+            ref--;
+        } // WHILE
+        long length = LZ4_MIN_MATCH;
+        while (ip + length < matchLimit && src[ref + length] == src[ip + length]) {
+            length++;
+        } // WHILE
+
+        // Literals
+        long literals = ip - anchor;
+        uint8_t *token = op++;
+        if (literals >= 15) {
+            *token = (15 << 4);
+            op = writeLength(op, literals - 15);
+        } else {
+            *token = static_cast<uint8_t>(literals << 4);
+        }
+        ::memcpy(op, src + anchor, literals);
+        op += literals;
+
+        // Match
+        uint16_t offset = static_cast<uint16_t>(ip - ref);
+        *op++ = static_cast<uint8_t>(offset & 0xFF);
+        *op++ = static_cast<uint8_t>(offset >> 8);
+        long matchLength = length - LZ4_MIN_MATCH;
+        if (matchLength >= 15) {
+            *token |= 15;
+            op = writeLength(op, matchLength - 15);
+        } else {
+            *token |= static_cast<uint8_t>(matchLength);
+        }
+
+        ip += length;
+        anchor = ip;
+        if (ip < mfLimit) {
+            table[hash32(read32(src + ip - 2))] = static_cast<int32_t>(ip - 2);
+        }
+    } // WHILE
+
+    // The last sequence is only literals
+    long literals = end - anchor;
+    if (literals >= 15) {
+        *op++ = (15 << 4);
+        op = writeLength(op, literals - 15);
+    } else {
+        *op++ = static_cast<uint8_t>(literals << 4);
+    }
+    ::memcpy(op, src + anchor, literals);
+    op += literals;
+    return (op - dst);
+}
+
+bool BlockCompressor::decompressLZ4(const uint8_t *src, long srcLength,
+                                    uint8_t *dst, long dstLength,
+                                    const uint8_t *dictionary, long dictionaryLength) {
+    long ip = 0;
+    long op = 0;
+    while (ip < srcLength) {
+        uint8_t token = src[ip++];
+
+        // Literals
+        long literals = token >> 4;
+        if (literals == 15) {
+            uint8_t b;
+            do {
+                if (ip >= srcLength) return (false);
+                b = src[ip++];
+                literals += b;
+            } while (b == 255);
+        }
+        if (ip + literals > srcLength || op + literals > dstLength) return (false);
+        ::memcpy(dst + op, src + ip, literals);
+        ip += literals;
+        op += literals;
+
+        // The last sequence doesn't have a match
+        if (ip == srcLength) break;
+
+        // Match
+        if (ip + 2 > srcLength) return (false);
+        long offset = src[ip] | (src[ip + 1] << 8);
+        ip += 2;
+        long length = token & 15;
+        if (length == 15) {
+            uint8_t b;
+            do {
+                if (ip >= srcLength) return (false);
+                b = src[ip++];
+                length += b;
+            } while (b == 255);
+        }
+        length += LZ4_MIN_MATCH;
+        if (offset == 0 || offset > op + dictionaryLength || op + length > dstLength) return (false);
+
+        // Matches can overlap with themselves, so copy one byte at a time
+        long from = op - offset;
+        for (long i = 0; i < length; i++, from++) {
+            dst[op++] = (from >= 0 ? dst[from] : dictionary[dictionaryLength + from]);
+        } // FOR
+    } // WHILE
+    return (op == dstLength);
+}
+
+std::string BlockCompressor::trainDictionary(const char *data, long size) {
+    if (size <= DICTIONARY_SIZE) {
+        return (std::string(data, size));
+    }
+    std::string dictionary;
+    dictionary.reserve(DICTIONARY_SIZE);
+    long chunks = DICTIONARY_SIZE / DICTIONARY_CHUNK_SIZE;
+    long stride = size / chunks;
+    for (long i = 0; i < chunks; i++) {
+        dictionary.append(data + (i * stride), DICTIONARY_CHUNK_SIZE);
+    } // FOR
+    return (dictionary);
+}
+
+}
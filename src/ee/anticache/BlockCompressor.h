@@ -0,0 +1,137 @@
+/* Copyright (C) 2014 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#ifndef HSTOREBLOCKCOMPRESSOR_H
+#define HSTOREBLOCKCOMPRESSOR_H
+
+#include <stdint.h>
+#include <map>
+#include <string>
+#include <vector>
+
+#include "common/types.h"
+
+namespace voltdb {
+
+/**
+ * Compresses the blocks of evicted tuples before the AntiCacheEvictionManager
+ * hands them to an AntiCacheDB. Every block that we produce starts with a
+ * small header that says how it was stored, so decompress() does not
+ * need to know what the configuration was when the block was written.
+ *
+ * The codec writes the LZ4 block format. With ANTICACHE_COMPRESSION_LZ4_DICT
+ * we also keep a dictionary for each table that is sampled from the first
+ * block that we evict for it. The dictionaries are only kept in memory, which
+ * is fine because the anti-cache databases do not outlive the EE.
+ */
+class BlockCompressor {
+public:
+    /** The number of bytes in front of every block that we write */
+    static const int HEADER_SIZE = 8;
+
+    /** The maximum size of a table's dictionary */
+    static const long DICTIONARY_SIZE = 32 * 1024;
+
+    BlockCompressor(AntiCacheCompressionType type);
+
+    inline AntiCacheCompressionType getType() const {
+        return (m_type);
+    }
+
+    /**
+     * Compress a serialized block for the given table. The result can be
+     * retrieved with getData() until the next call to compress().
+     * Returns the number of bytes in the compressed block.
+     */
+    long compress(const std::string &tableName, const char *data, long size);
+
+    /**
+     * Put a serialized block in our format without compressing it. We use
+     * this for the AntiCacheDBs that store every block in a fixed-size slot,
+     * because compressing the block would not save any space there.
+     * Returns the number of bytes in the stored block.
+     */
+    long store(const char *data, long size);
+
+    inline const char* getData() const {
+        return (&m_buffer[0]);
+    }
+
+    /**
+     * Decompress a block that was created by compress(). The caller owns
+     * the returned buffer and has to delete [] it.
+     */
+    char* decompress(const char *data, long size, long &uncompressedSize) const;
+
+    /**
+     * Returns the number of tables that we have trained dictionaries for
+     */
+    inline size_t getDictionaryCount() const {
+        return (m_dictionaries.size());
+    }
+
+    /**
+     * The largest number of bytes that compressing size bytes can take
+     */
+    static inline long maxCompressedLength(long size) {
+        return (size + (size / 255) + 16);
+    }
+
+    /**
+     * Compress src[start..end) into dst using the LZ4 block format.
+     * The bytes in src[0..start) can be used as matches, which is how we
+     * use a dictionary. Returns the number of bytes written to dst.
+     */
+    static long compressLZ4(const uint8_t *src, long start, long end, uint8_t *dst);
+
+    /**
+     * Decompress an LZ4 block into exactly dstLength bytes. Matches may
+     * refer back into the given dictionary. Returns false if the
+     * block is corrupt.
+     */
+    static bool decompressLZ4(const uint8_t *src, long srcLength,
+                              uint8_t *dst, long dstLength,
+                              const uint8_t *dictionary, long dictionaryLength);
+
+    /**
+     * Build a dictionary by sampling evenly spaced chunks of the given block
+     */
+    static std::string trainDictionary(const char *data, long size);
+
+private:
+    long writeHeader(AntiCacheCompressionType storedType, uint16_t dictionaryId, long size, long storedSize);
+
+    AntiCacheCompressionType m_type;
+    std::vector<char> m_buffer;
+    std::vector<uint8_t> m_input;
+
+    /** Dictionary ids start at one, zero means no dictionary */
+    std::vector<std::string> m_dictionaries;
+    std::map<std::string, uint16_t> m_tableDictionaries;
+}; // CLASS
+
+}
+
+#endif
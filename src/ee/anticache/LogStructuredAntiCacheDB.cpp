@@ -0,0 +1,343 @@
+/* Copyright (C) 2014 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "anticache/AntiCacheDB.h"
+#include "anticache/LogStructuredAntiCacheDB.h"
+#include "anticache/UnknownBlockAccessException.h"
+#include "anticache/FullBackingStoreException.h"
+#include "common/debuglog.h"
+#include "common/FatalException.hpp"
+#include "common/executorcontext.hpp"
+#include "common/types.h"
+#include <fcntl.h>
+#include <unistd.h>
+#include <errno.h>
+#include <string.h>
+#include <stdio.h>
+
+using namespace std;
+
+namespace voltdb {
+
+const double LogStructuredAntiCacheDB::COMPACTION_THRESHOLD = 0.5;
+
+LogStructuredAntiCacheBlock::LogStructuredAntiCacheBlock(int16_t blockId, std::string tableName,
+                                                         char* record, char* data, long size) :
+    AntiCacheBlock(blockId) {
+
+    payload p;
+    p.tableName = tableName;
+    p.blockId = blockId;
+    p.data = data;
+    p.size = size;
+
+    m_payload = p;
+    m_block = data;
+    m_buf = record;
+    m_size = size;
+    m_blockType = ANTICACHEDB_LOG;
+
+    VOLT_DEBUG("LogStructuredAntiCacheBlock #%d from table: %s [size=%ld]",
+               blockId, m_payload.tableName.c_str(), m_size);
+}
+
+LogStructuredAntiCacheBlock::~LogStructuredAntiCacheBlock() {
+    delete [] m_buf;
+}
+
+LogStructuredAntiCacheDB::LogStructuredAntiCacheDB(ExecutorContext *ctx, std::string db_dir, long blockSize, long maxSize) :
+    AntiCacheDB(ctx, db_dir, blockSize, maxSize) {
+
+    m_dbType = ANTICACHEDB_LOG;
+    initializeDB();
+}
+
+LogStructuredAntiCacheDB::~LogStructuredAntiCacheDB() {
+    shutdownDB();
+}
+
+void LogStructuredAntiCacheDB::initializeDB() {
+    // use executor context to figure out which partition we are at
+    // if there is no executor context, assume this is a test and let it go
+    if (!m_executorContext) {
+        VOLT_WARN("LogStructuredAntiCacheDB has no executor context. If this is an EE test, don't worry\n");
+        m_partitionId = 0;
+    } else {
+        m_partitionId = (int)m_executorContext->getPartitionId();
+    }
+
+    m_segmentSize = m_blockSize * BLOCKS_PER_SEGMENT;
+    m_compactedBlocks = 0;
+    m_nextSegmentId = 0;
+    m_activeSegment = -1;
+    m_bufferOffset = 0;
+    m_writeBuffer.reserve(WRITE_BUFFER_SIZE);
+
+    openSegment();
+}
+
+void LogStructuredAntiCacheDB::shutdownDB() {
+    // The evicted blocks do not outlive the EE, so we don't keep the log around
+    std::vector<int> segmentIds;
+    for (std::map<int, Segment>::iterator it = m_segments.begin(); it != m_segments.end(); ++it) {
+        segmentIds.push_back(it->first);
+    } // FOR
+    for (std::vector<int>::iterator it = segmentIds.begin(); it != segmentIds.end(); ++it) {
+        removeSegment(*it);
+    } // FOR
+    m_blockMap.clear();
+    m_writeBuffer.clear();
+}
+
+void LogStructuredAntiCacheDB::openSegment() {
+    char segment_name[50];
+    snprintf(segment_name, sizeof(segment_name), "/anticache-%d-%d.log", m_partitionId, m_nextSegmentId);
+
+    Segment segment;
+    segment.path = m_dbDir + segment_name;
+    segment.size = 0;
+    segment.liveBytes = 0;
+    segment.fd = open(segment.path.c_str(), O_RDWR | O_CREAT | O_TRUNC, 0644);
+    if (segment.fd < 0) {
+        VOLT_ERROR("Anti-Cache initialization error.");
+        VOLT_ERROR("Failed to open anti-cache log segment %s: %s", segment.path.c_str(), strerror(errno));
+        throwFatalException("Failed to create anti-cache log segment in directory %s.", m_dbDir.c_str());
+    }
+    VOLT_INFO("Created anti-cache log segment: %s", segment.path.c_str());
+
+    m_segments[m_nextSegmentId] = segment;
+    m_activeSegment = m_nextSegmentId++;
+    m_bufferOffset = 0;
+}
+
+void LogStructuredAntiCacheDB::removeSegment(int segmentId) {
+    std::map<int, Segment>::iterator it = m_segments.find(segmentId);
+    assert(it != m_segments.end());
+    if (segmentId == m_activeSegment) {
+        m_writeBuffer.clear();
+        m_activeSegment = -1;
+    }
+    VOLT_INFO("Removing anti-cache log segment: %s [size=%ld]", it->second.path.c_str(), it->second.size);
+    close(it->second.fd);
+    unlink(it->second.path.c_str());
+    m_segments.erase(it);
+}
+
+long LogStructuredAntiCacheDB::getLogSize() const {
+    long size = 0;
+    for (std::map<int, Segment>::const_iterator it = m_segments.begin(); it != m_segments.end(); ++it) {
+        size += it->second.size;
+    } // FOR
+    return (size);
+}
+
+void LogStructuredAntiCacheDB::flushWriteBuffer() {
+    if (m_writeBuffer.empty()) return;
+
+    Segment &segment = m_segments[m_activeSegment];
+    long written = 0;
+    long length = (long)m_writeBuffer.size();
+    while (written < length) {
+        ssize_t ret = pwrite(segment.fd, &m_writeBuffer[written], length - written, m_bufferOffset + written);
+        if (ret < 0) {
+            if (errno == EINTR) continue;
+            VOLT_ERROR("Failed to write to anti-cache log segment %s: %s", segment.path.c_str(), strerror(errno));
+            throwFatalException("Failed to write to anti-cache log segment %s.", segment.path.c_str());
+        }
+        written += ret;
+    } // WHILE
+    VOLT_DEBUG("Flushed %ld bytes to anti-cache log segment %s at offset %ld",
+               length, segment.path.c_str(), m_bufferOffset);
+    m_bufferOffset += length;
+    m_writeBuffer.clear();
+}
+
+char* LogStructuredAntiCacheDB::appendRecord(int16_t blockId, long length, BlockLocation &location) {
+    // Start a new segment once the active one is full
+    if (m_segments[m_activeSegment].size > 0 && m_segments[m_activeSegment].size + length > m_segmentSize) {
+        flushWriteBuffer();
+        openSegment();
+    }
+    if (!m_writeBuffer.empty() && (long)m_writeBuffer.size() + length > WRITE_BUFFER_SIZE) {
+        flushWriteBuffer();
+    }
+
+    Segment &segment = m_segments[m_activeSegment];
+    location.segmentId = m_activeSegment;
+    location.offset = segment.size;
+    location.length = length;
+
+    // The caller fills in the record, so a full buffer gets written
+    // out by the next append or flushBlocks()
+    long start = (long)m_writeBuffer.size();
+    m_writeBuffer.resize(start + length);
+    segment.size += length;
+    segment.liveBytes += length;
+    segment.blocks.insert(blockId);
+    return (&m_writeBuffer[start]);
+}
+
+void LogStructuredAntiCacheDB::readRecord(const BlockLocation &location, char* buffer) {
+    // The record might not have made it out to disk yet
+    if (location.segmentId == m_activeSegment && location.offset >= m_bufferOffset) {
+        memcpy(buffer, &m_writeBuffer[location.offset - m_bufferOffset], location.length);
+        return;
+    }
+
+    Segment &segment = m_segments[location.segmentId];
+    long read = 0;
+    while (read < location.length) {
+        ssize_t ret = pread(segment.fd, buffer + read, location.length - read, location.offset + read);
+        if (ret < 0 && errno == EINTR) continue;
+        if (ret <= 0) {
+            VOLT_ERROR("Failed to read from anti-cache log segment %s: %s",
+                       segment.path.c_str(), (ret < 0 ? strerror(errno) : "unexpected end of file"));
+            throwFatalException("Failed to read from anti-cache log segment %s.", segment.path.c_str());
+        }
+        read += ret;
+    } // WHILE
+}
+
+void LogStructuredAntiCacheDB::writeBlock(const std::string tableName,
+                                          int16_t blockId,
+                                          const int tupleCount,
+                                          const char* data,
+                                          const long size) {
+
+    if (getFreeBlocks() == 0) {
+        VOLT_WARN("No free space in ACID %d for blockid %d with blocksize %ld",
+                m_ACID, blockId, size);
+        throw FullBackingStoreException(((int32_t)m_ACID << 16) | blockId, 0);
+    }
+
+    // Record Header: [blockId][tableName length][tupleCount][size]
+    // We build the record right in the write buffer so the data only gets copied once
+    uint16_t nameLength = static_cast<uint16_t>(tableName.size());
+    int64_t dataSize = static_cast<int64_t>(size);
+    long length = RECORD_HEADER_SIZE + nameLength + size;
+    BlockLocation location;
+    char* record = appendRecord(blockId, length, location);
+    memcpy(record, &blockId, sizeof(blockId));
+    memcpy(record + 2, &nameLength, sizeof(nameLength));
+    memcpy(record + 4, &tupleCount, sizeof(tupleCount));
+    memcpy(record + 8, &dataSize, sizeof(dataSize));
+    memcpy(record + RECORD_HEADER_SIZE, tableName.data(), nameLength);
+    memcpy(record + RECORD_HEADER_SIZE + nameLength, data, size);
+
+    VOLT_INFO("Writing out a block #%d to anti-cache log [tuples=%d / size=%ld]",
+              blockId, tupleCount, size);
+    m_blockMap[blockId] = location;
+
+    pushBlockLRU(blockId);
+}
+
+AntiCacheBlock* LogStructuredAntiCacheDB::readBlock(int16_t blockId) {
+    std::map<int16_t, BlockLocation>::iterator itr = m_blockMap.find(blockId);
+    if (itr == m_blockMap.end()) {
+        VOLT_ERROR("Invalid anti-cache blockId '%d'", blockId);
+        throw UnknownBlockAccessException(blockId);
+    }
+    BlockLocation location = itr->second;
+
+    char* record = new char[location.length];
+    readRecord(location, record);
+
+    uint16_t nameLength;
+    int64_t dataSize;
+    memcpy(&nameLength, record + 2, sizeof(nameLength));
+    memcpy(&dataSize, record + 8, sizeof(dataSize));
+    if (RECORD_HEADER_SIZE + nameLength + dataSize != location.length) {
+        delete [] record;
+        throwFatalException("Corrupt anti-cache log record for block %d in segment %d",
+                            blockId, location.segmentId);
+    }
+    std::string tableName(record + RECORD_HEADER_SIZE, nameLength);
+
+    VOLT_INFO("Reading evicted block with id %d from segment %d [offset=%ld / size=%ld]",
+              blockId, location.segmentId, location.offset, (long)dataSize);
+    AntiCacheBlock* block = new LogStructuredAntiCacheBlock(blockId, tableName, record,
+                                                            record + RECORD_HEADER_SIZE + nameLength,
+                                                            (long)dataSize);
+
+    // Once a block is unevicted its record is dead. We can drop the whole
+    // segment as soon as nothing in it is alive anymore.
+    m_blockMap.erase(itr);
+    Segment &segment = m_segments[location.segmentId];
+    segment.blocks.erase(blockId);
+    segment.liveBytes -= location.length;
+    if (segment.blocks.empty() && location.segmentId != m_activeSegment) {
+        removeSegment(location.segmentId);
+    }
+
+    removeBlockLRU(blockId);
+    return (block);
+}
+
+void LogStructuredAntiCacheDB::flushBlocks() {
+    flushWriteBuffer();
+
+    // Compact the segments with the fewest live bytes first
+    for (int i = 0; i < MAX_COMPACTIONS_PER_FLUSH; i++) {
+        int victim = -1;
+        double victimRatio = COMPACTION_THRESHOLD;
+        for (std::map<int, Segment>::iterator it = m_segments.begin(); it != m_segments.end(); ++it) {
+            if (it->first == m_activeSegment || it->second.size == 0) continue;
+            double ratio = it->second.liveBytes / (double)it->second.size;
+            if (ratio < victimRatio) {
+                victim = it->first;
+                victimRatio = ratio;
+            }
+        } // FOR
+        if (victim == -1) break;
+        compactSegment(victim);
+    } // FOR
+}
+
+void LogStructuredAntiCacheDB::compactSegment(int segmentId) {
+    // Copy the ids first since appending can't touch this segment but we
+    // don't want to iterate over a set that we are modifying
+    std::vector<int16_t> blockIds(m_segments[segmentId].blocks.begin(),
+                                  m_segments[segmentId].blocks.end());
+    VOLT_INFO("Compacting anti-cache log segment %d [liveBlocks=%d / liveBytes=%ld / size=%ld]",
+              segmentId, (int)blockIds.size(), m_segments[segmentId].liveBytes, m_segments[segmentId].size);
+
+    for (std::vector<int16_t>::iterator it = blockIds.begin(); it != blockIds.end(); ++it) {
+        BlockLocation &location = m_blockMap[*it];
+        assert(location.segmentId == segmentId);
+        // The segment is not the active one, so its records are all on disk
+        // and we can read them straight into the write buffer
+        BlockLocation moved;
+        char* record = appendRecord(*it, location.length, moved);
+        readRecord(location, record);
+        location = moved;
+        m_compactedBlocks++;
+    } // FOR
+
+    // Make sure that the moved blocks are on disk before we delete the old copies
+    flushWriteBuffer();
+    removeSegment(segmentId);
+}
+
+}
@@ -0,0 +1,193 @@
+/* Copyright (C) 2014 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#ifndef LOGSTRUCTUREDHSTOREANTICACHE_H
+#define LOGSTRUCTUREDHSTOREANTICACHE_H
+
+#include "common/types.h"
+#include "common/debuglog.h"
+#include "anticache/AntiCacheDB.h"
+
+#include <map>
+#include <set>
+#include <string>
+#include <vector>
+
+using namespace std;
+
+namespace voltdb {
+
+class ExecutorContext;
+class AntiCacheDB;
+
+class LogStructuredAntiCacheBlock : public AntiCacheBlock {
+    friend class LogStructuredAntiCacheDB;
+
+    public:
+        ~LogStructuredAntiCacheBlock();
+
+    private:
+        /**
+         * The block takes ownership of the record that it was read from.
+         * The data points at the payload inside of the record.
+         */
+        LogStructuredAntiCacheBlock(int16_t blockId, std::string tableName, char* record, char* data, long size);
+}; // CLASS
+
+/**
+ * An anti-cache database that appends every block to the end of a log of
+ * segment files. Blocks are buffered in memory so that we only issue large
+ * sequential writes, and an in-memory index maps each block id to where its
+ * record is so that we can read it back with a single pread().
+ *
+ * Blocks are removed from the index when they are read (i.e., unevicted).
+ * A segment with no live blocks left is deleted right away. Segments that
+ * are mostly dead get compacted a little at a time in flushBlocks(), which
+ * copies their live blocks to the end of the log and then deletes them.
+ * The EE is single-threaded, so doing the compaction in flushBlocks() keeps
+ * it off of the path that reads blocks without needing to lock the index.
+ */
+class LogStructuredAntiCacheDB : public AntiCacheDB {
+    public:
+        /** The size of the header in front of every block in a segment */
+        static const long RECORD_HEADER_SIZE = 16;
+
+        /** The number of bytes that we buffer before writing them out */
+        static const long WRITE_BUFFER_SIZE = 4 * 1024 * 1024;
+
+        /** The number of blocks that fit in a segment */
+        static const int BLOCKS_PER_SEGMENT = 32;
+
+        /** Segments with less than this fraction of live bytes get compacted */
+        static const double COMPACTION_THRESHOLD;
+
+        /** The most segments that a single flushBlocks() will compact */
+        static const int MAX_COMPACTIONS_PER_FLUSH = 1;
+
+        LogStructuredAntiCacheDB(ExecutorContext *ctx, std::string db_dir, long blockSize, long maxSize);
+        ~LogStructuredAntiCacheDB();
+
+        void initializeDB();
+
+        inline int16_t nextBlockId() {
+            return (++m_nextBlockId);
+        }
+
+        AntiCacheBlock* readBlock(int16_t blockId);
+
+        void shutdownDB();
+
+        void flushBlocks();
+
+        void writeBlock(const std::string tableName,
+                        int16_t blockId,
+                        const int tupleCount,
+                        const char* data,
+                        const long size);
+
+        /**
+         * Return the number of segment files that are on disk
+         */
+        inline int getNumSegments() const {
+            return ((int)m_segments.size());
+        }
+
+        /**
+         * Return the total number of bytes in all of the segments,
+         * including the ones that have not been written out yet
+         */
+        long getLogSize() const;
+
+        /**
+         * Return the number of blocks that compaction has moved
+         */
+        inline long getNumCompactedBlocks() const {
+            return (m_compactedBlocks);
+        }
+
+    private:
+        /**
+         * Where a block's record is in the log
+         */
+        struct BlockLocation {
+            int segmentId;
+            long offset;
+            long length;
+        };
+
+        struct Segment {
+            int fd;
+            std::string path;
+            long size;
+            long liveBytes;
+            std::set<int16_t> blocks;
+        };
+
+        int m_partitionId;
+        long m_segmentSize;
+        long m_compactedBlocks;
+
+        std::map<int16_t, BlockLocation> m_blockMap;
+        std::map<int, Segment> m_segments;
+
+        /** The segment that new records are appended to */
+        int m_activeSegment;
+        int m_nextSegmentId;
+
+        /**
+         * The records at the end of the active segment that have not been
+         * written to disk yet. They start at m_bufferOffset in the segment.
+         */
+        std::vector<char> m_writeBuffer;
+        long m_bufferOffset;
+
+        /**
+         * Make room for a record at the end of the log and return where
+         * the caller should write it in the write buffer. The pointer is only
+         * valid until the next call.
+         */
+        char* appendRecord(int16_t blockId, long length, BlockLocation &location);
+
+        /**
+         * Copy a record from the log into the given buffer
+         */
+        void readRecord(const BlockLocation &location, char* buffer);
+
+        /**
+         * Write the buffered records out to the active segment
+         */
+        void flushWriteBuffer();
+
+        void openSegment();
+        void removeSegment(int segmentId);
+
+        /**
+         * Move the live blocks of a segment to the end of the log and delete it
+         */
+        void compactSegment(int segmentId);
+};
+
+}
+#endif
@@ -51,15 +51,11 @@ NVMAntiCacheBlock::NVMAntiCacheBlock(int16_t blockId, char* block, long size) :
     char* buffer = block;
     std::string tableName = buffer;
     
-    block = buffer + tableName.size() + 1;
+    // Keep the buffer that we read the block into and point at the data in it
+    m_buf = buffer;
+    m_block = buffer + tableName.size() + 1;
     size -= tableName.size() + 1;
 
-
-    m_block = new char[size];
-    memcpy(m_block, block, size);
-
-    delete [] buffer;
-
     payload p;
     p.tableName = tableName;
     p.blockId = blockId;
@@ -77,7 +73,7 @@ NVMAntiCacheBlock::NVMAntiCacheBlock(int16_t blockId, char* block, long size) :
 }
 
 NVMAntiCacheBlock::~NVMAntiCacheBlock() {
-    delete [] m_block;
+    delete [] m_buf;
 }
 
 NVMAntiCacheDB::NVMAntiCacheDB(ExecutorContext *ctx, std::string db_dir, long blockSize, long maxSize) :
@@ -198,20 +194,15 @@ void NVMAntiCacheDB::writeBlock(const std::string tableName,
     if (getFreeBlocks() == 0) {
         VOLT_WARN("No free space in ACID %d for blockid %d with blocksize %ld",
                 m_ACID, blockId, size);
-        throw FullBackingStoreException(((int32_t)m_ACID << 16) & blockId, 0);
+        throw FullBackingStoreException(((int32_t)m_ACID << 16) | blockId, 0);
     }
     int index = (int)blockId;
     VOLT_TRACE("block index: %d", index);
     char* block = getNVMBlock(index); 
-    long bufsize; 
-    char* buffer = new char [tableName.size() + 1 + size];
-    memset(buffer, 0, tableName.size() + 1 + size);
-    bufsize = tableName.size() + 1;
-    memcpy(buffer, tableName.c_str(), bufsize);
-    memcpy(buffer + bufsize, data, size);
+    long bufsize = tableName.size() + 1;
+    memcpy(block, tableName.c_str(), bufsize);
+    memcpy(block + bufsize, data, size);
     bufsize += size;
-    memcpy(block, buffer, bufsize); 
-    delete[] buffer;
 
     VOLT_INFO("Writing NVM Block: ID = %d, index = %d, size = %ld", blockId, index, bufsize); 
 
@@ -0,0 +1,276 @@
+/* Copyright (C) 2014 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#ifndef HSTORESHAREDMEMORYRING_H
+#define HSTORESHAREDMEMORYRING_H
+
+#include <stdint.h>
+#include <stddef.h>
+#include <string.h>
+#include <fcntl.h>
+#include <sched.h>
+#include <time.h>
+#include <unistd.h>
+#include <sys/mman.h>
+#include <sys/stat.h>
+
+namespace voltdb {
+
+/**
+ * One direction of a shared memory channel. This is a single-producer,
+ * single-consumer byte ring living inside of a memory-mapped file.
+ * The layout must match org.voltdb.jni.SharedMemoryChannel:
+ *
+ *   0: int32 magic, int32 capacity
+ *  64: int64 write position (only updated by the producer)
+ * 128: int64 read position (only updated by the consumer)
+ * 192: int32 closed flag (set by the producer)
+ * 256: data[capacity]
+ */
+class SharedMemoryRing {
+public:
+    static const int32_t MAGIC = 0x56524E47; // "VRNG"
+    static const size_t HEADER_SIZE = 256;
+
+    SharedMemoryRing() : m_base(NULL), m_data(NULL), m_capacity(0), m_mask(0) { }
+
+    void attach(char *base) {
+        m_base = base;
+        m_capacity = *reinterpret_cast<int32_t*>(base + 4);
+        m_mask = m_capacity - 1;
+        m_data = base + HEADER_SIZE;
+    }
+
+    bool isValid() const {
+        return (m_base != NULL &&
+                *reinterpret_cast<const int32_t*>(m_base) == MAGIC &&
+                m_capacity > 0 && (m_capacity & m_mask) == 0);
+    }
+
+    int32_t capacity() const { return m_capacity; }
+
+    int64_t writePosition() const { return load(m_base + 64); }
+    int64_t readPosition() const { return load(m_base + 128); }
+    bool isClosed() const {
+        int32_t closed = *reinterpret_cast<volatile int32_t*>(m_base + 192);
+        __sync_synchronize();
+        return (closed != 0);
+    }
+    void close() {
+        __sync_synchronize();
+        *reinterpret_cast<volatile int32_t*>(m_base + 192) = 1;
+        __sync_synchronize();
+    }
+
+    /**
+     * Copy up to sz bytes out of the ring. Returns the number of
+     * bytes copied, which will be zero if the ring is empty.
+     */
+    size_t read(char *dst, size_t sz) {
+        const int64_t readPos = readPosition();
+        const int64_t available = writePosition() - readPos;
+        if (available <= 0) return 0;
+        size_t length = (size_t)available < sz ? (size_t)available : sz;
+        size_t index = (size_t)(readPos & m_mask);
+        size_t first = m_capacity - index < length ? m_capacity - index : length;
+        memcpy(dst, m_data + index, first);
+        if (first < length) {
+            memcpy(dst + first, m_data, length - first);
+        }
+        store(m_base + 128, readPos + length);
+        return length;
+    }
+
+    /**
+     * Copy up to sz bytes into the ring. Returns the number of bytes
+     * copied, which will be zero if the ring is full.
+     */
+    size_t write(const char *src, size_t sz) {
+        const int64_t writePos = writePosition();
+        const int64_t free = m_capacity - (writePos - readPosition());
+        if (free <= 0) return 0;
+        size_t length = (size_t)free < sz ? (size_t)free : sz;
+        size_t index = (size_t)(writePos & m_mask);
+        size_t first = m_capacity - index < length ? m_capacity - index : length;
+        memcpy(m_data + index, src, first);
+        if (first < length) {
+            memcpy(m_data, src + first, length - first);
+        }
+        store(m_base + 64, writePos + length);
+        return length;
+    }
+
+private:
+    // The barriers make sure that the data copies are not reordered
+    // around the position updates on either side.
+    static int64_t load(const char *addr) {
+        int64_t value = *reinterpret_cast<const volatile int64_t*>(addr);
+        __sync_synchronize();
+        return value;
+    }
+    static void store(char *addr, int64_t value) {
+        __sync_synchronize();
+        *reinterpret_cast<volatile int64_t*>(addr) = value;
+    }
+
+    char *m_base;
+    char *m_data;
+    int32_t m_capacity;
+    int32_t m_mask;
+};
+
+/**
+ * The EE's side of a shared memory channel. The Java side creates the
+ * file and initializes both rings. We read requests from the first ring
+ * and write responses to the second one. The JVM cannot wait on a futex,
+ * so we spin for a while and then back off to sched_yield() and short
+ * sleeps when there is nothing to do.
+ */
+class SharedMemoryChannel {
+public:
+    SharedMemoryChannel() : m_mapping(NULL), m_size(0) { }
+
+    ~SharedMemoryChannel() {
+        close();
+    }
+
+    /**
+     * Map the given file. Returns false if it does not look like a channel.
+     */
+    bool open(const char *path) {
+        int fd = ::open(path, O_RDWR);
+        if (fd < 0) return false;
+        struct stat st;
+        if (fstat(fd, &st) != 0 || (size_t)st.st_size < 2 * SharedMemoryRing::HEADER_SIZE) {
+            ::close(fd);
+            return false;
+        }
+        void *mapping = mmap(NULL, st.st_size, PROT_READ | PROT_WRITE, MAP_SHARED, fd, 0);
+        ::close(fd);
+        if (mapping == MAP_FAILED) return false;
+        m_mapping = static_cast<char*>(mapping);
+        m_size = st.st_size;
+
+        m_requests.attach(m_mapping);
+        if (m_requests.isValid() == false) return false;
+        size_t ringSize = SharedMemoryRing::HEADER_SIZE + m_requests.capacity();
+        if (2 * ringSize != m_size) return false;
+        m_responses.attach(m_mapping + ringSize);
+        return m_responses.isValid();
+    }
+
+    /**
+     * Block until exactly sz bytes have been read. Returns false if
+     * the other side closed the channel first.
+     */
+    bool readFully(char *dst, size_t sz) {
+        size_t done = 0;
+        int attempt = 0;
+        while (done < sz) {
+            size_t b = m_requests.read(dst + done, sz - done);
+            if (b > 0) {
+                done += b;
+                attempt = 0;
+            } else if (m_requests.isClosed() && m_requests.writePosition() == m_requests.readPosition()) {
+                return false;
+            } else if (idle(attempt) == false) {
+                return false;
+            } else {
+                attempt = nextAttempt(attempt);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Block until all sz bytes have been written. Returns false if the
+     * other side went away.
+     */
+    bool writeFully(const char *src, size_t sz) {
+        size_t done = 0;
+        int attempt = 0;
+        while (done < sz) {
+            size_t b = m_responses.write(src + done, sz - done);
+            if (b > 0) {
+                done += b;
+                attempt = 0;
+            } else if (m_requests.isClosed() || idle(attempt) == false) {
+                return false;
+            } else {
+                attempt = nextAttempt(attempt);
+            }
+        }
+        return true;
+    }
+
+    void close() {
+        if (m_mapping == NULL) return;
+        if (m_responses.isValid()) m_responses.close();
+        munmap(m_mapping, m_size);
+        m_mapping = NULL;
+        m_size = 0;
+    }
+
+private:
+    static const int SPIN_TRIES = 10000;
+    static const int YIELD_TRIES = 100;
+    static const int MAX_ATTEMPTS = 1 << 30;
+
+    static int nextAttempt(int attempt) {
+        // Don't let the counter wrap around while we are sleeping
+        return (attempt < MAX_ATTEMPTS ? attempt + 1 : SPIN_TRIES + YIELD_TRIES);
+    }
+
+    /**
+     * Back off while waiting for the other side. Returns false if
+     * the JVM that started us is gone.
+     */
+    bool idle(int attempt) {
+        if (attempt < SPIN_TRIES) {
+            return true;
+        } else if (attempt < SPIN_TRIES + YIELD_TRIES) {
+            sched_yield();
+            return true;
+        }
+        struct timespec ts;
+        ts.tv_sec = 0;
+        ts.tv_nsec = 50000; // 50us
+        nanosleep(&ts, NULL);
+        // If our parent died, then we have been adopted by init
+        if (attempt % 1000 == 0 && getppid() == 1) {
+            return false;
+        }
+        return true;
+    }
+
+    char *m_mapping;
+    size_t m_size;
+    SharedMemoryRing m_requests;
+    SharedMemoryRing m_responses;
+};
+
+}
+
+#endif
@@ -283,6 +283,8 @@ enum TableIndexType {
     BALANCED_TREE_INDEX     = 1,
     HASH_TABLE_INDEX        = 2,
     ARRAY_INDEX             = 3,
+    // 4 is BTREE in the catalog, which the factory builds as a generic tree index
+    RADIX_TREE_INDEX        = 5,
 };
 
 // ------------------------------------------------------------------
@@ -359,7 +361,29 @@ enum AntiCacheDBType {
     /*
      * NVM file-based store
      */
-    ANTICACHEDB_NVM = 2
+    ANTICACHEDB_NVM = 2,
+    /*
+     * Log-structured segment files
+     */
+    ANTICACHEDB_LOG = 3
+};
+
+// -----------------------------------------------------------------
+// AntiCache Block Compression Types
+// -----------------------------------------------------------------
+enum AntiCacheCompressionType {
+    /*
+     * Blocks are written out as-is
+     */
+    ANTICACHE_COMPRESSION_NONE = 0,
+    /*
+     * LZ4 block format
+     */
+    ANTICACHE_COMPRESSION_LZ4 = 1,
+    /*
+     * LZ4 block format with a dictionary for each table
+     */
+    ANTICACHE_COMPRESSION_LZ4_DICT = 2
 };
 
 // ------------------------------------------------------------------
@@ -322,6 +322,30 @@ int VoltDBEngine::executeQuery(int64_t planfragmentId,
 
     std::map<int64_t, boost::shared_ptr<ExecutorVector> >::const_iterator iter =
             m_executorMap.find(planfragmentId);
+    if (iter == m_executorMap.end()) {
+        // This is the first time that we have seen this fragment, so we
+        // have to deserialize its plan and create its executors now
+        try {
+            if (!initLazyPlanFragment(planfragmentId)) {
+                char message[128];
+                snprintf(message, 128, "Unable to load plan fragment '%jd' for"
+                        " transaction %jd.", (intmax_t) planfragmentId, (intmax_t) txnId);
+                throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION,
+                        message);
+            }
+        } catch (SerializableEEException &e) {
+            VOLT_ERROR("Failed to initialize PlanFragment '%jd'",
+                    (intmax_t)planfragmentId);
+            resetReusedResultOutputBuffer();
+            e.serialize(getExceptionOutputSerializer());
+
+            // set these back to -1 for error handling
+            m_currentOutputDepId = -1;
+            m_currentInputDepId = -1;
+            return ENGINE_ERRORCODE_ERROR;
+        }
+        iter = m_executorMap.find(planfragmentId);
+    }
     assert(iter != m_executorMap.end());
     boost::shared_ptr<ExecutorVector> execsForFrag = iter->second;
 
@@ -787,6 +811,24 @@ bool VoltDBEngine::loadTable(Table *table,
     return true;
 }
 
+bool VoltDBEngine::setIndexBuildDeferred(int32_t tableId, bool deferred) {
+    PersistentTable* table = dynamic_cast<PersistentTable*>(getTable(tableId));
+    if (table == NULL) {
+        VOLT_ERROR("Table ID %d doesn't exist or is not a persistent table."
+                " Could not change its index builds", (int) tableId);
+        return false;
+    }
+
+    if (deferred) {
+        table->deferIndexBuild();
+    } else if (table->isIndexBuildDeferred()) {
+        int64_t numTuples = table->buildDeferredIndexes();
+        VOLT_INFO("Built the deferred indexes for %ld tuples in table '%s'",
+                  (long)numTuples, table->name().c_str());
+    }
+    return true;
+}
+
 /*
  * Delete and rebuild id based table collections. Does not affect
  * any currently stored tuples.
@@ -846,13 +888,18 @@ bool VoltDBEngine::rebuildTableCollections() {
 }
 
 /*
- * Delete and rebuild all plan fragments.
+ * Delete and rebuild all plan fragments. We check every plan here, but
+ * each engine only creates a fragment's executors the first time that
+ * it is executed (see initLazyPlanFragment()). The parsed plans are
+ * shared with every other engine on the same catalog version.
  */
 bool VoltDBEngine::rebuildPlanFragmentCollections() {
     for (int ii = 0; ii < m_planFragments.size(); ii++)
         delete m_planFragments[ii];
     m_planFragments.clear();
     m_executorMap.clear();
+    m_lazyPlanFragments.clear();
+    PlanNodeFragment::releaseSharedPlans(m_catalogVersion);
 
     // initialize all the planfragments.
     map<string, catalog::Procedure*>::const_iterator proc_iterator;
@@ -877,8 +924,14 @@ bool VoltDBEngine::rebuildPlanFragmentCollections() {
                     pf_iterator != catalogStmt->fragments().end();
                     pf_iterator++) {
                 int64_t fragId = uniqueIdForFragment(pf_iterator->second);
-                string planNodeTree = pf_iterator->second->plannodetree();
-                if (!initPlanFragment(fragId, planNodeTree)) {
+                if (m_lazyPlanFragments.find(fragId) != m_lazyPlanFragments.end()) {
+                    VOLT_ERROR("Duplicate plan fragment '%s' in catalogs\n"
+                            "Failed SQL Statement: %s",
+                            pf_iterator->second->name().c_str(),
+                            catalogStmt->sqltext().c_str());
+                    return false;
+                }
+                if (!loadPlanFragment(fragId, pf_iterator->second)) {
                     VOLT_ERROR("Failed to initialize plan fragment '%s' from"
                             " catalogs\nFailed SQL Statement: %s",
                             pf_iterator->second->name().c_str(),
@@ -894,8 +947,15 @@ bool VoltDBEngine::rebuildPlanFragmentCollections() {
                     pf_iterator2++) {
                 int64_t fragId = uniqueIdForFragment(pf_iterator2->second);
 //                 fprintf(stderr, "Initializing Multi-Partition: %jd\n", (intmax_t)fragId);
-                std::string planNodeTree = pf_iterator2->second->plannodetree();
-                if (!initPlanFragment(fragId, planNodeTree)) {
+                if (m_lazyPlanFragments.find(fragId) != m_lazyPlanFragments.end()) {
+                    VOLT_ERROR(
+                            "Duplicate multi-partition plan fragment '%s' in"
+                                    " catalogs\nFailed SQL Statement: %s",
+                            pf_iterator2->second->name().c_str(),
+                            catalogStmt->sqltext().c_str());
+                    return false;
+                }
+                if (!loadPlanFragment(fragId, pf_iterator2->second)) {
                     VOLT_ERROR(
                             "Failed to initialize multi-partition plan fragment '%s' from"
                                     " catalogs\nFailed SQL Statement: %s",
@@ -929,8 +989,14 @@ bool VoltDBEngine::initPlanFragment(const int64_t fragId,
     }
 
     // catalog method plannodetree returns PlanNodeList.java
-    PlanNodeFragment *pnf = PlanNodeFragment::createFromCatalog(planNodeTree,
-            m_database);
+    // Ad-hoc plans are only used once, so there is no point in sharing them
+    PlanNodeFragment *pnf = NULL;
+    if (fragId == AD_HOC_FRAG_ID) {
+        pnf = PlanNodeFragment::createFromCatalog(planNodeTree, m_database);
+    } else {
+        pnf = PlanNodeFragment::createFromSharedPlan(m_catalogVersion, fragId,
+                planNodeTree, m_database);
+    }
     m_planFragments.push_back(pnf);
     VOLT_TRACE("\n%s\n", pnf->debug().c_str());
     assert(pnf->getRootNode());
@@ -968,6 +1034,44 @@ bool VoltDBEngine::initPlanFragment(const int64_t fragId,
     return true;
 }
 
+/*
+ * Check a PlanFragment's plan from the catalog and record it so that
+ * we can create its executors the first time that it is executed.
+ */
+bool VoltDBEngine::loadPlanFragment(const int64_t fragId,
+        const catalog::PlanFragment *catalog_frag) {
+    try {
+        PlanNodeFragment::loadSharedPlan(m_catalogVersion, fragId,
+                catalog_frag->plannodetree(), m_database);
+    } catch (SerializableEEException &e) {
+        VOLT_ERROR("Invalid plan for PlanFragment '%jd': %s",
+                (intmax_t )fragId, e.message().c_str());
+        return false;
+    }
+    m_lazyPlanFragments[fragId] = catalog_frag;
+    return true;
+}
+
+/*
+ * Initialize a PlanFragment from the catalog the first time that it is executed.
+ */
+bool VoltDBEngine::initLazyPlanFragment(const int64_t fragId) {
+    std::map<int64_t, const catalog::PlanFragment*>::iterator iter =
+            m_lazyPlanFragments.find(fragId);
+    if (iter == m_lazyPlanFragments.end()) {
+        VOLT_ERROR("Unknown PlanFragment '%jd'", (intmax_t )fragId);
+        return false;
+    }
+    VOLT_DEBUG("Initializing PlanFragment '%jd' on first use", (intmax_t )fragId);
+    if (!initPlanFragment(fragId, iter->second->plannodetree())) {
+        VOLT_ERROR("Failed to initialize plan fragment '%s' from catalogs",
+                iter->second->name().c_str());
+        return false;
+    }
+    m_lazyPlanFragments.erase(iter);
+    return true;
+}
+
 bool VoltDBEngine::initPlanNode(const int64_t fragId, AbstractPlanNode* node,
         int* tempTableMemoryInBytes) {
     assert(node);
@@ -1948,6 +2052,27 @@ int VoltDBEngine::trackingTupleSet(int64_t txnId, bool writes) {
     return (ENGINE_ERRORCODE_ERROR);
 }
 
+int VoltDBEngine::trackingSummary(int64_t txnId) {
+    if (m_executorContext->isTrackingEnabled() == false) {
+        return (ENGINE_ERRORCODE_NO_DATA);
+    }
+
+    ReadWriteTrackerManager *trackerMgr =
+            m_executorContext->getTrackerManager();
+    ReadWriteTracker *tracker = trackerMgr->getTracker(txnId);
+    if (tracker == NULL) {
+        return (ENGINE_ERRORCODE_NO_DATA);
+    }
+
+    VOLT_INFO("Getting tracking summary for txn #%ld at Partition %d",
+            txnId, m_partitionId);
+    size_t lengthPosition = m_resultOutput.reserveBytes(sizeof(int32_t));
+    trackerMgr->serializeSummary(tracker, m_resultOutput);
+    m_resultOutput.writeIntAt(lengthPosition,
+            static_cast<int32_t>(m_resultOutput.size() - sizeof(int32_t)));
+    return (ENGINE_ERRORCODE_SUCCESS);
+}
+
 // std::vector<std::string> VoltDBEngine::trackingTablesRead(int64_t txnId) {
 //     if (m_executorContext->isTrackingEnabled()) {
 //         ReadWriteTracker *tracker = m_executorContext->getTrackerManager(txnId);
@@ -1984,6 +2109,12 @@ void VoltDBEngine::antiCacheAddDB(std::string dbDir, AntiCacheDBType dbType, lon
     m_executorContext->addAntiCacheDB(dbDir, blockSize, dbType, maxSize);
 }
 
+void VoltDBEngine::antiCacheSetCompression(AntiCacheCompressionType compressionType) const {
+    VOLT_INFO("Setting Anti-Cache block compression type %d at Partition %d",
+              (int)compressionType, m_partitionId);
+    m_executorContext->getAntiCacheEvictionManager()->setCompression(compressionType);
+}
+
 int VoltDBEngine::antiCacheReadBlocks(int32_t tableId, int numBlocks, int32_t blockIds[], int32_t tupleOffsets[]) {
     int retval = ENGINE_ERRORCODE_SUCCESS;
 
@@ -211,6 +211,12 @@ class __attribute__((visibility("default"))) VoltDBEngine {
                                int64_t txnId, int64_t lastCommittedTxnId,
                                bool isExecutionNormal);
 
+        /**
+        * Turn deferred index builds for bulk loading on or off for the given table.
+        * Turning them off adds all of the tuples loaded in the meantime to the indexes.
+        */
+        bool setIndexBuildDeferred(int32_t tableId, bool deferred);
+
         void resetReusedResultOutputBuffer(const size_t headerSize = 0);
         inline ReferenceSerializeOutput* getResultOutputSerializer() { return &m_resultOutput; }
         inline ReferenceSerializeOutput* getExceptionOutputSerializer() { return &m_exceptionOutput; }
@@ -291,6 +297,7 @@ class __attribute__((visibility("default"))) VoltDBEngine {
 //         std::vector<std::string> trackingTablesRead(int64_t txnId);
 //         std::vector<std::string> trackingTablesWritten(int64_t txnId);
         int trackingTupleSet(int64_t txnId, bool writes);
+        int trackingSummary(int64_t txnId);
         
         // -------------------------------------------------
         // ANTI-CACHE FUNCTIONS
@@ -299,6 +306,7 @@ class __attribute__((visibility("default"))) VoltDBEngine {
 
         #ifdef ANTICACHE
         void antiCacheAddDB(std::string dbDir, AntiCacheDBType dbType, long blockSize, long maxSize) const;
+        void antiCacheSetCompression(AntiCacheCompressionType compressionType) const;
 
         int antiCacheReadBlocks(int32_t tableId, int numBlocks, int32_t blockIds[], int32_t tupleOffsets[]);
         int antiCacheEvictBlock(int32_t tableId, long blockSize, int numBlocks);
@@ -498,6 +506,8 @@ class __attribute__((visibility("default"))) VoltDBEngine {
         // Initialization Functions
         // -------------------------------------------------
         bool initPlanFragment(const int64_t fragId, const std::string planNodeTree);
+        bool loadPlanFragment(const int64_t fragId, const catalog::PlanFragment *catalog_frag);
+        bool initLazyPlanFragment(const int64_t fragId);
         bool initPlanNode(const int64_t fragId, AbstractPlanNode* node, int* tempTableMemoryInBytes);
         bool initCluster();
         bool initMaterializedViews(bool addAll);
@@ -521,6 +531,13 @@ class __attribute__((visibility("default"))) VoltDBEngine {
         };
         std::map<int64_t, boost::shared_ptr<ExecutorVector> > m_executorMap;
 
+        /**
+         * PlanFragments from the catalog that have not been executed yet.
+         * We don't deserialize a fragment's plan and create its executors
+         * until the first time that it is used.
+         */
+        std::map<int64_t, const catalog::PlanFragment*> m_lazyPlanFragments;
+
         voltdb::UndoLog m_undoLog;
         voltdb::UndoQuantum *m_currentUndoQuantum;
 
@@ -287,6 +287,21 @@ bool IndexScanExecutor::p_init(AbstractPlanNode *abstractNode,
         m_needsSubstitutePostExpression =
             m_node->getPredicate()->hasParameter();
     }
+    
+    //
+    // COMPILED EXPRESSIONS
+    // These will be NULL if the expression can't be compiled
+    //
+    m_compiledEndExpression.reset(
+        CompiledPredicate::compile(m_node->getEndExpression(), m_targetTable->schema()));
+    m_compiledPostExpression.reset(
+        CompiledPredicate::compile(m_node->getPredicate(), m_targetTable->schema()));
+    if (m_projectionNode != NULL && m_projectionAllTupleArray != NULL) {
+        m_compiledProjection.reset(
+            CompiledProjection::compile(m_projectionNode->getOutputColumnExpressions(),
+                                        m_targetTable->schema(),
+                                        m_outputTable->schema()));
+    }
 
     //
     // INLINE AGGREGATE
@@ -435,6 +450,11 @@ bool IndexScanExecutor::p_execute(const NValueArray &params, ReadWriteTracker *t
         }
         VOLT_DEBUG("End Expression:\n%s", end_expression->debug(true).c_str());
     }
+    CompiledPredicate* compiled_end_expression = NULL;
+    if (end_expression != NULL && m_compiledEndExpression.get() != NULL &&
+        m_compiledEndExpression->bind()) {
+        compiled_end_expression = m_compiledEndExpression.get();
+    }
 
     //
     // POST EXPRESSION
@@ -447,6 +467,11 @@ bool IndexScanExecutor::p_execute(const NValueArray &params, ReadWriteTracker *t
         }
         VOLT_DEBUG("Post Expression:\n%s", post_expression->debug(true).c_str());
     }
+    CompiledPredicate* compiled_post_expression = NULL;
+    if (post_expression != NULL && m_compiledPostExpression.get() != NULL &&
+        m_compiledPostExpression->bind()) {
+        compiled_post_expression = m_compiledPostExpression.get();
+    }
 
     assert (m_index);
     assert (m_index == m_targetTable->index(m_node->getTargetIndexName()));
@@ -546,7 +571,9 @@ bool IndexScanExecutor::p_execute(const NValueArray &params, ReadWriteTracker *t
         // First check whether the end_expression is now false
         //
         if (end_expression != NULL &&
-            end_expression->eval(&m_tuple, NULL).isFalse()) {
+            (compiled_end_expression != NULL ?
+                compiled_end_expression->eval(&m_tuple, NULL) == false :
+                end_expression->eval(&m_tuple, NULL).isFalse())) {
             VOLT_DEBUG("End Expression evaluated to false, stopping scan");
             break;
         }
@@ -554,7 +581,9 @@ bool IndexScanExecutor::p_execute(const NValueArray &params, ReadWriteTracker *t
         // Then apply our post-predicate to do further filtering
         //
         if (post_expression == NULL ||
-            post_expression->eval(&m_tuple, NULL).isTrue()) {
+            (compiled_post_expression != NULL ?
+                compiled_post_expression->eval(&m_tuple, NULL) :
+                post_expression->eval(&m_tuple, NULL).isTrue())) {
 
             #ifdef ANTICACHE
             if (hasEvictedTable) {
@@ -597,7 +626,9 @@ bool IndexScanExecutor::p_execute(const NValueArray &params, ReadWriteTracker *t
             //
             } else if (m_projectionNode != NULL) {
                 TableTuple &temp_tuple = m_outputTable->tempTuple();
-                if (m_projectionAllTupleArray != NULL) {
+                if (m_compiledProjection.get() != NULL) {
+                    m_compiledProjection->project(m_tuple, temp_tuple);
+                } else if (m_projectionAllTupleArray != NULL) {
                     VOLT_DEBUG("sweet, all tuples");
                     for (int ctr = m_numOfColumns - 1; ctr >= 0; --ctr) {
                         temp_tuple.setNValue(ctr,
@@ -51,7 +51,9 @@
 #include "catalog/catalogtype.h"
 #include "catalog/table.h"
 #include "executors/abstractexecutor.h"
+#include "expressions/compiledexpression.h"
 
+#include "boost/scoped_ptr.hpp"
 #include "boost/shared_array.hpp"
 #include "boost/unordered_set.hpp"
 #include "boost/pool/pool_alloc.hpp"
@@ -100,6 +102,7 @@ protected:
     ProjectionPlanNode* m_projectionNode;
     int* m_projectionAllTupleArray; // projection_all_tuple_array_ptr[]
     AbstractExpression** m_projectionExpressions;
+    boost::scoped_ptr<CompiledProjection> m_compiledProjection;
 
     // Inline Distinct
     DistinctPlanNode* m_distinctNode;
@@ -119,6 +122,8 @@ protected:
     bool* m_needsSubstituteSearchKey; // needs_substitute_search_key_ptr[]
     bool m_needsSubstitutePostExpression;
     bool m_needsSubstituteEndExpression;
+    boost::scoped_ptr<CompiledPredicate> m_compiledPostExpression;
+    boost::scoped_ptr<CompiledPredicate> m_compiledEndExpression;
 
     // Inline Aggregate
     AggregatePlanNode* m_aggregateNode;
@@ -183,6 +183,12 @@ bool NestLoopExecutor::p_init(AbstractPlanNode* abstract_node, const catalog::Da
     }
 
     delete[] columnNames;
+    
+    // OPTIMIZATION: COMPILED JOIN PREDICATE
+    // This has to come after we have figured out which tuple each
+    // column in the predicate is coming from
+    m_compiledPredicate.reset(CompiledPredicate::compile(node->getPredicate(), first, second));
+    
     return true;
 }
 
@@ -219,6 +225,10 @@ bool NestLoopExecutor::p_execute(const NValueArray &params, ReadWriteTracker *tr
         VOLT_TRACE ("predicate: %s", predicate == NULL ?
                     "NULL" : predicate->debug(true).c_str());
     }
+    CompiledPredicate *compiled = NULL;
+    if (predicate != NULL && m_compiledPredicate.get() != NULL && m_compiledPredicate->bind()) {
+        compiled = m_compiledPredicate.get();
+    }
 
     int outer_cols = outer_table->columnCount();
     int inner_cols = inner_table->columnCount();
@@ -238,7 +248,9 @@ bool NestLoopExecutor::p_execute(const NValueArray &params, ReadWriteTracker *tr
 
         TableIterator iterator1(inner_table);
         while (iterator1.next(inner_tuple)) {
-            if (predicate == NULL || predicate->eval(&outer_tuple, &inner_tuple).isTrue()) {
+            if (predicate == NULL ||
+                (compiled != NULL ? compiled->eval(&outer_tuple, &inner_tuple) :
+                                    predicate->eval(&outer_tuple, &inner_tuple).isTrue())) {
                 // Matched! Complete the joined tuple with the inner column values.
                 for (int col_ctr = 0; col_ctr < inner_cols; col_ctr++) {
                     joined.setNValue(col_ctr + outer_cols, inner_tuple.getNValue(col_ctr));
@@ -46,9 +46,11 @@
 #ifndef HSTORENESTLOOPEXECUTOR_H
 #define HSTORENESTLOOPEXECUTOR_H
 
+#include "boost/scoped_ptr.hpp"
 #include "common/common.h"
 #include "common/valuevector.h"
 #include "executors/abstractexecutor.h"
+#include "expressions/compiledexpression.h"
 
 namespace voltdb {
 
@@ -64,6 +66,8 @@ class NestLoopExecutor : public AbstractExecutor {
     protected:
         bool p_init(AbstractPlanNode*, const catalog::Database* catalog_db, int* tempTableMemoryInBytes);
         bool p_execute(const NValueArray &params, ReadWriteTracker *tracker);
+        
+        boost::scoped_ptr<CompiledPredicate> m_compiledPredicate;
 };
 
 }
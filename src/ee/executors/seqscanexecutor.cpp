@@ -93,6 +93,14 @@ bool SeqScanExecutor::p_init(AbstractPlanNode *abstract_node,
         //
         assert(projection_node->getOutputTable());
         node->setOutputTable(projection_node->getOutputTable());
+        
+        // OPTIMIZATION: COMPILED PROJECTION
+        // If the projection is just pulling columns out of our target table,
+        // then we can copy them directly between the tuples
+        m_compiledProjection.reset(
+            CompiledProjection::compile(projection_node->getOutputColumnExpressions(),
+                                        target_table->schema(),
+                                        projection_node->getOutputTable()->schema()));
     //
     // FULL TABLE SCHEMA
     //
@@ -124,6 +132,56 @@ bool SeqScanExecutor::p_init(AbstractPlanNode *abstract_node,
                     tempTableMemoryInBytes));
         }
     }
+    
+    // OPTIMIZATION: COMPILED PREDICATE
+    // Flatten the predicate tree into something that we can evaluate without
+    // creating NValues for every node. This will be NULL if the predicate
+    // uses something that we can't compile.
+    m_compiledPredicate.reset(CompiledPredicate::compile(node->getPredicate(), target_table->schema()));
+    
+    return true;
+}
+
+bool SeqScanExecutor::insertOutputTuple(TableTuple &tuple,
+                                        Table* output_table,
+                                        Table* target_table,
+                                        ProjectionPlanNode* projection_node,
+                                        int num_of_columns) {
+    //
+    // Nested Projection
+    // Project (or replace) values from input tuple
+    //
+    if (projection_node != NULL) {
+        TableTuple &temp_tuple = output_table->tempTuple();
+        if (m_compiledProjection.get() != NULL) {
+            m_compiledProjection->project(tuple, temp_tuple);
+        } else {
+            for (int ctr = 0; ctr < num_of_columns; ctr++) {
+                NValue value =
+                    projection_node->
+                  getOutputColumnExpressions()[ctr]->eval(&tuple, NULL);
+                temp_tuple.setNValue(ctr, value);
+            }
+        }
+        if (!output_table->insertTuple(temp_tuple)) {
+            VOLT_ERROR("Failed to insert tuple from table '%s' into"
+                       " output table '%s'",
+                       target_table->name().c_str(),
+                       output_table->name().c_str());
+            return false;
+        }
+    } else {
+        //
+        // Insert the tuple into our output table
+        //
+        if (!output_table->insertTuple(tuple)) {
+            VOLT_ERROR("Failed to insert tuple from table '%s' into"
+                       " output table '%s'",
+                       target_table->name().c_str(),
+                       output_table->name().c_str());
+            return false;
+        }
+    }
     return true;
 }
 
@@ -212,73 +270,100 @@ bool SeqScanExecutor::p_execute(const NValueArray &params, ReadWriteTracker *tra
                        predicate->debug(true).c_str());
         }
 
+        // Only use the compiled predicate if the parameters that we were
+        // given match the types that it was compiled for
+        CompiledPredicate *compiled = NULL;
+        if (predicate != NULL && m_compiledPredicate.get() != NULL && m_compiledPredicate->bind()) {
+            compiled = m_compiledPredicate.get();
+        }
+
         int tuple_ctr = 0;
-        while (iterator.next(tuple)) {
-            target_table->updateTupleAccessCount();
+        
+        // OPTIMIZATION: BATCHED PREDICATE EVALUATION
+        // Pull a batch of tuples out of the table and then evaluate the compiled
+        // predicate against all of them at once. We can't do this if we have a
+        // limit because we don't want to read more tuples than we actually need.
+        if (compiled != NULL && limit < 0) {
+            char* batch[BATCH_SIZE];
+            bool more = true;
+            while (more) {
+                int batch_size = 0;
+                while (batch_size < BATCH_SIZE && (more = iterator.next(tuple))) {
+                    target_table->updateTupleAccessCount();
+                    
+                    // Read/Write Set Tracking
+                    if (tracker != NULL) {
+                        tracker->markTupleRead(target_table, &tuple);
+                    }
+                    
+                    // No tuple that we find here should *ever* be evicted!!
+                    #ifdef ANTICACHE
+                    assert(tuple.isEvicted() == false);
+                    #endif
+                    batch[batch_size++] = tuple.address();
+                } // WHILE
+                
+                int selected = compiled->filter(batch, batch_size);
+                VOLT_DEBUG("Compiled predicate selected %d/%d tuples", selected, batch_size);
+                for (int i = 0; i < selected; i++) {
+                    tuple.move(batch[i]);
+                    if (!this->insertOutputTuple(tuple, output_table, target_table,
+                                                 projection_node, num_of_columns)) {
+                        return false;
+                    }
+                    ++tuple_ctr;
+                    
+                    #ifdef ANTICACHE
+                    if (hasEvictedTable) {
+                        // update the tuple in the LRU eviction chain
+                        eviction_manager->updateTuple(target_table, &tuple, false);
+                    }
+                    #endif
+                } // FOR
+            } // WHILE
+        } else {
+            while (iterator.next(tuple)) {
+                target_table->updateTupleAccessCount();
             
-            // Read/Write Set Tracking
-            if (tracker != NULL) {
-                tracker->markTupleRead(target_table, &tuple);
-            }
+                // Read/Write Set Tracking
+                if (tracker != NULL) {
+                    tracker->markTupleRead(target_table, &tuple);
+                }
             
-            // No tuple that we find here should *ever* be evicted!!
-            #ifdef ANTICACHE
-            assert(tuple.isEvicted() == false);
-            #endif
+                // No tuple that we find here should *ever* be evicted!!
+                #ifdef ANTICACHE
+                assert(tuple.isEvicted() == false);
+                #endif
             
-            VOLT_DEBUG("INPUT TUPLE: %s, %d/%d\n",
-                       tuple.debug(target_table->name()).c_str(), tuple_ctr,
-                       (int)target_table->activeTupleCount());
-            //
-            // For each tuple we need to evaluate it against our predicate
-            //
-            if (predicate == NULL || predicate->eval(&tuple, NULL).isTrue()) {
+                VOLT_DEBUG("INPUT TUPLE: %s, %d/%d\n",
+                           tuple.debug(target_table->name()).c_str(), tuple_ctr,
+                           (int)target_table->activeTupleCount());
                 //
-                // Nested Projection
-                // Project (or replace) values from input tuple
+                // For each tuple we need to evaluate it against our predicate
                 //
-                if (projection_node != NULL) {
-                    TableTuple &temp_tuple = output_table->tempTuple();
-                    for (int ctr = 0; ctr < num_of_columns; ctr++) {
-                        NValue value =
-                            projection_node->
-                          getOutputColumnExpressions()[ctr]->eval(&tuple, NULL);
-                        temp_tuple.setNValue(ctr, value);
-                    }
-                    if (!output_table->insertTuple(temp_tuple)) {
-                        VOLT_ERROR("Failed to insert tuple from table '%s' into"
-                                   " output table '%s'",
-                                   target_table->name().c_str(),
-                                   output_table->name().c_str());
-                        return false;
-                    }
-                } else {
-                    //
-                    // Insert the tuple into our output table
-                    //
-                    if (!output_table->insertTuple(tuple)) {
-                        VOLT_ERROR("Failed to insert tuple from table '%s' into"
-                                   " output table '%s'",
-                                   target_table->name().c_str(),
-                                   output_table->name().c_str());
+                if (predicate == NULL ||
+                    (compiled != NULL ? compiled->eval(&tuple, NULL) :
+                                        predicate->eval(&tuple, NULL).isTrue())) {
+                    if (!this->insertOutputTuple(tuple, output_table, target_table,
+                                                 projection_node, num_of_columns)) {
                         return false;
                     }
-                }
-                ++tuple_ctr;
+                    ++tuple_ctr;
                 
-                #ifdef ANTICACHE
-                if (hasEvictedTable) {
-                    // update the tuple in the LRU eviction chain
-                    eviction_manager->updateTuple(target_table, &tuple, false);
-                }
-                #endif
+                    #ifdef ANTICACHE
+                    if (hasEvictedTable) {
+                        // update the tuple in the LRU eviction chain
+                        eviction_manager->updateTuple(target_table, &tuple, false);
+                    }
+                    #endif
                 
-                // Check whether we have gone past our limit
-                if (limit >= 0 && tuple_ctr >= limit) {
-                    break;
+                    // Check whether we have gone past our limit
+                    if (limit >= 0 && tuple_ctr >= limit) {
+                        break;
+                    }
                 }
-            }
-        } // WHILE
+            } // WHILE
+        }
         
         #ifdef ANTICACHE
         // PAVLO 2014-07-17
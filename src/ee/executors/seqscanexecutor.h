@@ -46,15 +46,18 @@
 #ifndef HSTORESEQSCANEXECUTOR_H
 #define HSTORESEQSCANEXECUTOR_H
 
+#include "boost/scoped_ptr.hpp"
 #include "common/common.h"
 #include "common/valuevector.h"
 #include "executors/abstractexecutor.h"
+#include "expressions/compiledexpression.h"
 #include "catalog/table.h"
 
 namespace voltdb
 {
     class UndoLog;
     class ReadWriteSet;
+    class ProjectionPlanNode;
 
     class SeqScanExecutor : public AbstractExecutor {
     public:
@@ -68,6 +71,20 @@ namespace voltdb
         bool needsOutputTableClear();
         
         catalog::Table* m_catalogTable;
+        
+    private:
+        // The number of tuples that we will evaluate a compiled
+        // predicate against at the same time
+        static const int BATCH_SIZE = 64;
+        
+        bool insertOutputTuple(TableTuple &tuple,
+                               Table* output_table,
+                               Table* target_table,
+                               ProjectionPlanNode* projection_node,
+                               int num_of_columns);
+        
+        boost::scoped_ptr<CompiledPredicate> m_compiledPredicate;
+        boost::scoped_ptr<CompiledProjection> m_compiledProjection;
     };
 }
 
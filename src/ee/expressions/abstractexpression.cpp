@@ -164,7 +164,7 @@ AbstractExpression::debug(const std::string &spacer) const
 // SERIALIZATION METHODS
 // ------------------------------------------------------------------
 AbstractExpression*
-AbstractExpression::buildExpressionTree(json_spirit::Object &obj)
+AbstractExpression::buildExpressionTree(const json_spirit::Object &obj)
 {
     AbstractExpression * exp =
       AbstractExpression::buildExpressionTree_recurse(obj);
@@ -175,7 +175,7 @@ AbstractExpression::buildExpressionTree(json_spirit::Object &obj)
 }
 
 AbstractExpression*
-AbstractExpression::buildExpressionTree_recurse(json_spirit::Object &obj)
+AbstractExpression::buildExpressionTree_recurse(const json_spirit::Object &obj)
 {
     // build a tree recursively from the bottom upwards.
     // when the expression node is instantiated, its type,
@@ -95,7 +95,7 @@ class AbstractExpression {
 
     /** create an expression tree. call this once with the input
         stream positioned at the root expression node */
-    static AbstractExpression* buildExpressionTree(json_spirit::Object &obj);
+    static AbstractExpression* buildExpressionTree(const json_spirit::Object &obj);
 
     /** accessors */
     ExpressionType getExpressionType() const {
@@ -118,7 +118,7 @@ class AbstractExpression {
                        AbstractExpression *right);
 
   private:
-    static AbstractExpression* buildExpressionTree_recurse(json_spirit::Object &obj);
+    static AbstractExpression* buildExpressionTree_recurse(const json_spirit::Object &obj);
     bool initParamShortCircuits();
 
   protected:
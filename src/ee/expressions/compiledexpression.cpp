@@ -0,0 +1,340 @@
+/* Copyright (C) 2014 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "expressions/compiledexpression.h"
+#include "expressions/tuplevalueexpression.h"
+#include "common/debuglog.h"
+#include "common/ValuePeeker.hpp"
+
+namespace voltdb {
+
+// ------------------------------------------------------------------
+// HELPERS
+// ------------------------------------------------------------------
+
+static bool isIntegerType(ValueType type) {
+    switch (type) {
+        case VALUE_TYPE_TINYINT:
+        case VALUE_TYPE_SMALLINT:
+        case VALUE_TYPE_INTEGER:
+        case VALUE_TYPE_BIGINT:
+        case VALUE_TYPE_TIMESTAMP:
+            return (true);
+        default:
+            return (false);
+    } // SWITCH
+}
+
+static bool isFixedWidthType(ValueType type) {
+    return (isIntegerType(type) ||
+            type == VALUE_TYPE_DOUBLE ||
+            type == VALUE_TYPE_DECIMAL);
+}
+
+static bool isOperand(const AbstractExpression *expr) {
+    return (expr->getExpressionType() == EXPRESSION_TYPE_VALUE_CONSTANT ||
+            expr->getExpressionType() == EXPRESSION_TYPE_VALUE_PARAMETER);
+}
+
+// ------------------------------------------------------------------
+// COMPILED PREDICATE
+// ------------------------------------------------------------------
+
+CompiledPredicate* CompiledPredicate::compile(const AbstractExpression *expr,
+                                              const TupleSchema *schema0,
+                                              const TupleSchema *schema1) {
+    if (expr == NULL) return (NULL);
+    CompiledPredicate *compiled = new CompiledPredicate();
+    if (compiled->compileNode(expr, schema0, schema1) == false) {
+        VOLT_DEBUG("Unable to compile predicate:\n%s", expr->debug(true).c_str());
+        delete compiled;
+        return (NULL);
+    }
+    VOLT_DEBUG("Compiled predicate into %d terms [conjunctive=%d]",
+               compiled->getTermCount(), compiled->isConjunctive());
+    return (compiled);
+}
+
+bool CompiledPredicate::compileNode(const AbstractExpression *expr,
+                                    const TupleSchema *schema0,
+                                    const TupleSchema *schema1) {
+    Instruction inst;
+    switch (expr->getExpressionType()) {
+        case EXPRESSION_TYPE_CONJUNCTION_AND:
+        case EXPRESSION_TYPE_CONJUNCTION_OR: {
+            if (compileNode(expr->getLeft(), schema0, schema1) == false ||
+                compileNode(expr->getRight(), schema0, schema1) == false) {
+                return (false);
+            }
+            if (expr->getExpressionType() == EXPRESSION_TYPE_CONJUNCTION_AND) {
+                inst.opcode = OP_AND;
+            } else {
+                inst.opcode = OP_OR;
+                m_conjunctive = false;
+            }
+            inst.term = -1;
+            m_program.push_back(inst);
+            return (true);
+        }
+        case EXPRESSION_TYPE_COMPARE_EQUAL:
+        case EXPRESSION_TYPE_COMPARE_NOTEQUAL:
+        case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+        case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+        case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+        case EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO: {
+            if (compileComparison(expr, schema0, schema1) == false) {
+                return (false);
+            }
+            inst.opcode = OP_TERM;
+            inst.term = (int)m_terms.size() - 1;
+            m_program.push_back(inst);
+            return (true);
+        }
+        default:
+            return (false);
+    } // SWITCH
+}
+
+bool CompiledPredicate::compileComparison(const AbstractExpression *expr,
+                                          const TupleSchema *schema0,
+                                          const TupleSchema *schema1) {
+    const AbstractExpression *left = expr->getLeft();
+    const AbstractExpression *right = expr->getRight();
+    if (left == NULL || right == NULL) return (false);
+
+    // We always want a column on the left-hand side. If it is on the right,
+    // then we have to flip the comparison around.
+    bool flip = false;
+    const TupleValueExpression *tve = NULL;
+    const AbstractExpression *operand = NULL;
+    if (left->getExpressionType() == EXPRESSION_TYPE_VALUE_TUPLE) {
+        tve = dynamic_cast<const TupleValueExpression*>(left);
+        operand = right;
+    } else if (right->getExpressionType() == EXPRESSION_TYPE_VALUE_TUPLE) {
+        tve = dynamic_cast<const TupleValueExpression*>(right);
+        operand = left;
+        flip = true;
+    }
+    if (tve == NULL || m_terms.size() >= MAX_TERMS) return (false);
+
+    Term term;
+    if (resolveColumn(tve, schema0, schema1, term.tupleIdx, term.offset, term.columnType) == false) {
+        return (false);
+    }
+    term.operand = operand;
+    term.intValue = 0;
+    term.doubleValue = 0;
+    term.operandIsColumn = false;
+    term.operandTupleIdx = 0;
+    term.operandOffset = 0;
+    term.operandType = VALUE_TYPE_INVALID;
+    
+    if (operand->getExpressionType() == EXPRESSION_TYPE_VALUE_TUPLE) {
+        const TupleValueExpression *other = dynamic_cast<const TupleValueExpression*>(operand);
+        if (other == NULL ||
+            resolveColumn(other, schema0, schema1, term.operandTupleIdx,
+                          term.operandOffset, term.operandType) == false) {
+            return (false);
+        }
+        // NValue compares mixed integer/double columns as doubles, so we
+        // only handle the cases where both columns are the same kind
+        if (isIntegerType(term.columnType) != isIntegerType(term.operandType)) {
+            return (false);
+        }
+        term.operandIsColumn = true;
+    } else if (isOperand(operand) == false) {
+        return (false);
+    }
+
+    switch (expr->getExpressionType()) {
+        case EXPRESSION_TYPE_COMPARE_EQUAL:
+            term.op = CMP_EQ;
+            break;
+        case EXPRESSION_TYPE_COMPARE_NOTEQUAL:
+            term.op = CMP_NE;
+            break;
+        case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+            term.op = (flip ? CMP_GT : CMP_LT);
+            break;
+        case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+            term.op = (flip ? CMP_LT : CMP_GT);
+            break;
+        case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+            term.op = (flip ? CMP_GTE : CMP_LTE);
+            break;
+        case EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO:
+            term.op = (flip ? CMP_LTE : CMP_GTE);
+            break;
+        default:
+            return (false);
+    } // SWITCH
+    m_terms.push_back(term);
+    return (true);
+}
+
+bool CompiledPredicate::resolveColumn(const TupleValueExpression *tve,
+                                      const TupleSchema *schema0,
+                                      const TupleSchema *schema1,
+                                      int &tupleIdx,
+                                      uint32_t &offset,
+                                      ValueType &type) {
+    tupleIdx = tve->getTupleIndex();
+    const TupleSchema *schema = (tupleIdx == 0 ? schema0 : schema1);
+    if (schema == NULL || tve->getColumnId() >= schema->columnCount()) return (false);
+
+    type = schema->columnType(tve->getColumnId());
+    if (isIntegerType(type) == false && type != VALUE_TYPE_DOUBLE) {
+        return (false);
+    }
+    offset = schema->columnOffset(tve->getColumnId()) + TUPLE_HEADER_SIZE;
+    return (true);
+}
+
+bool CompiledPredicate::bind() {
+    for (int i = 0, cnt = (int)m_terms.size(); i < cnt; i++) {
+        Term &term = m_terms[i];
+        if (term.operandIsColumn) continue;
+        const NValue value = term.operand->eval(NULL, NULL);
+        const ValueType valueType = ValuePeeker::peekValueType(value);
+        if (term.columnType == VALUE_TYPE_DOUBLE) {
+            if (valueType != VALUE_TYPE_DOUBLE) return (false);
+            term.doubleValue = ValuePeeker::peekDouble(value);
+        } else {
+            // Mixed integer/double comparisons are done as doubles by NValue,
+            // so we will let the original expression tree handle them
+            if (isIntegerType(valueType) == false) return (false);
+            term.intValue = ValuePeeker::peekAsBigInt(value);
+        }
+    } // FOR
+    return (true);
+}
+
+bool CompiledPredicate::evalProgram(const char *data0, const char *data1) const {
+    // Fast path for a list of AND'd terms
+    if (m_conjunctive) {
+        for (int i = 0, cnt = (int)m_terms.size(); i < cnt; i++) {
+            if (evalTerm(m_terms[i], data0, data1) == false) {
+                return (false);
+            }
+        } // FOR
+        return (true);
+    }
+
+    // The program can never be deeper than the number of terms
+    bool stack[MAX_TERMS];
+    int top = -1;
+    for (int i = 0, cnt = (int)m_program.size(); i < cnt; i++) {
+        const Instruction &inst = m_program[i];
+        switch (inst.opcode) {
+            case OP_TERM: {
+                stack[++top] = evalTerm(m_terms[inst.term], data0, data1);
+                break;
+            }
+            case OP_AND:
+                top--;
+                stack[top] = (stack[top] && stack[top+1]);
+                break;
+            case OP_OR:
+                top--;
+                stack[top] = (stack[top] || stack[top+1]);
+                break;
+        } // SWITCH
+    } // FOR
+    assert(top == 0);
+    return (stack[0]);
+}
+
+int CompiledPredicate::filter(char **tuples, int count) const {
+    int selected = count;
+    if (m_conjunctive) {
+        // Evaluate one term at a time across the whole batch. Each term
+        // only has to look at the tuples that passed all of the previous ones.
+        for (int i = 0, cnt = (int)m_terms.size(); i < cnt && selected > 0; i++) {
+            const Term &term = m_terms[i];
+            int next = 0;
+            for (int j = 0; j < selected; j++) {
+                if (evalTerm(term, tuples[j], tuples[j])) {
+                    tuples[next++] = tuples[j];
+                }
+            } // FOR
+            selected = next;
+        } // FOR
+    } else {
+        selected = 0;
+        for (int j = 0; j < count; j++) {
+            if (evalProgram(tuples[j], tuples[j])) {
+                tuples[selected++] = tuples[j];
+            }
+        } // FOR
+    }
+    return (selected);
+}
+
+// ------------------------------------------------------------------
+// COMPILED PROJECTION
+// ------------------------------------------------------------------
+
+CompiledProjection* CompiledProjection::compile(const std::vector<AbstractExpression*> &expressions,
+                                                const TupleSchema *inputSchema,
+                                                const TupleSchema *outputSchema) {
+    if (expressions.size() != outputSchema->columnCount()) return (NULL);
+
+    CompiledProjection *compiled = new CompiledProjection();
+    for (int ctr = 0, cnt = (int)expressions.size(); ctr < cnt; ctr++) {
+        const TupleValueExpression *tve = dynamic_cast<const TupleValueExpression*>(expressions[ctr]);
+        if (tve == NULL || tve->getColumnId() >= inputSchema->columnCount()) {
+            delete compiled;
+            return (NULL);
+        }
+        const int input_col = tve->getColumnId();
+        const ValueType type = inputSchema->columnType(input_col);
+        if (isFixedWidthType(type) == false || outputSchema->columnType(ctr) != type) {
+            compiled->m_values.push_back(std::pair<int, int>(input_col, ctr));
+            continue;
+        }
+
+        Copy copy;
+        copy.srcOffset = inputSchema->columnOffset(input_col) + TUPLE_HEADER_SIZE;
+        copy.destOffset = outputSchema->columnOffset(ctr) + TUPLE_HEADER_SIZE;
+        copy.length = NValue::getTupleStorageSize(type);
+
+        // Merge with the previous copy if the columns are next to each other
+        // in both the input and the output tuples
+        if (compiled->m_copies.empty() == false) {
+            Copy &last = compiled->m_copies.back();
+            if (last.srcOffset + last.length == copy.srcOffset &&
+                last.destOffset + last.length == copy.destOffset) {
+                last.length += copy.length;
+                continue;
+            }
+        }
+        compiled->m_copies.push_back(copy);
+    } // FOR
+    VOLT_DEBUG("Compiled projection into %d copies and %d values",
+               (int)compiled->m_copies.size(), (int)compiled->m_values.size());
+    return (compiled);
+}
+
+}
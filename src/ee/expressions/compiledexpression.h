@@ -0,0 +1,261 @@
+/* Copyright (C) 2014 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#ifndef HSTORECOMPILEDEXPRESSION_H
+#define HSTORECOMPILEDEXPRESSION_H
+
+#include <cstring>
+#include <vector>
+
+#include "common/common.h"
+#include "common/tabletuple.h"
+#include "common/TupleSchema.h"
+#include "expressions/abstractexpression.h"
+
+namespace voltdb {
+
+class TupleValueExpression;
+
+/**
+ * A flattened version of a predicate tree that is made up of AND/OR conjunctions
+ * of comparisons between a numeric column and a constant, a parameter, or another
+ * numeric column of the same kind (e.g., "W_ID = ? AND D_ID > 5" or "A.ID = B.ID"). The tree is compiled once when the executor
+ * is initialized into a postfix program over a list of type-resolved terms.
+ * Each term reads the column directly out of the tuple's storage, so we never
+ * have to create an NValue for every node in the tree for every tuple.
+ *
+ * The constant/parameter operands are resolved by bind() after the executor
+ * substitutes its parameters. If an operand has a type that we did not compile
+ * for, then bind() returns false and the caller has to fall back to evaluating
+ * the original expression tree.
+ */
+class CompiledPredicate {
+  public:
+    /**
+     * Compile the given expression. Returns NULL if the expression contains
+     * something that we do not support. The caller owns the returned object.
+     * The second schema is only needed for join predicates.
+     */
+    static CompiledPredicate* compile(const AbstractExpression *expr,
+                                      const TupleSchema *schema0,
+                                      const TupleSchema *schema1 = NULL);
+
+    /**
+     * Resolve the values of all of the constant and parameter operands.
+     * This must be called after substitute() has been called on the
+     * original expression tree.
+     */
+    bool bind();
+
+    /**
+     * Evaluate the predicate for the given tuple(s).
+     */
+    inline bool eval(const TableTuple *tuple0, const TableTuple *tuple1) const {
+        const char *data0 = tuple0->address();
+        const char *data1 = (tuple1 != NULL ? tuple1->address() : NULL);
+        return (evalProgram(data0, data1));
+    }
+
+    /**
+     * Evaluate the predicate for a batch of tuples from the same table.
+     * The array of tuple addresses is compacted in place so that the first
+     * N entries are the tuples that satisfied the predicate (in their
+     * original order). Returns N.
+     */
+    int filter(char **tuples, int count) const;
+
+    int getTermCount() const {
+        return ((int)m_terms.size());
+    }
+
+    bool isConjunctive() const {
+        return (m_conjunctive);
+    }
+
+  private:
+    static const size_t MAX_TERMS = 64;
+
+    enum CompareOp {
+        CMP_EQ,
+        CMP_NE,
+        CMP_LT,
+        CMP_GT,
+        CMP_LTE,
+        CMP_GTE
+    };
+    enum OpCode {
+        OP_TERM,
+        OP_AND,
+        OP_OR
+    };
+    struct Term {
+        CompareOp op;
+        int tupleIdx;
+        uint32_t offset;         // includes the tuple header
+        ValueType columnType;
+        // Either a constant/parameter or a column
+        const AbstractExpression *operand;
+        int64_t intValue;
+        double doubleValue;
+        bool operandIsColumn;
+        int operandTupleIdx;
+        uint32_t operandOffset;
+        ValueType operandType;
+    };
+    struct Instruction {
+        OpCode opcode;
+        int term;
+    };
+
+    CompiledPredicate() : m_conjunctive(true) {}
+
+    bool compileNode(const AbstractExpression *expr,
+                     const TupleSchema *schema0,
+                     const TupleSchema *schema1);
+    bool compileComparison(const AbstractExpression *expr,
+                           const TupleSchema *schema0,
+                           const TupleSchema *schema1);
+    static bool resolveColumn(const TupleValueExpression *tve,
+                              const TupleSchema *schema0,
+                              const TupleSchema *schema1,
+                              int &tupleIdx,
+                              uint32_t &offset,
+                              ValueType &type);
+
+    bool evalProgram(const char *data0, const char *data1) const;
+
+    static inline int64_t readInteger(const char *data, ValueType type) {
+        switch (type) {
+            case VALUE_TYPE_TINYINT: {
+                const int8_t val = *reinterpret_cast<const int8_t*>(data);
+                return (val == INT8_NULL ? INT64_NULL : val);
+            }
+            case VALUE_TYPE_SMALLINT: {
+                int16_t val;
+                ::memcpy(&val, data, sizeof(int16_t));
+                return (val == INT16_NULL ? INT64_NULL : val);
+            }
+            case VALUE_TYPE_INTEGER: {
+                int32_t val;
+                ::memcpy(&val, data, sizeof(int32_t));
+                return (val == INT32_NULL ? INT64_NULL : val);
+            }
+            default: {
+                int64_t val;
+                ::memcpy(&val, data, sizeof(int64_t));
+                return (val);
+            }
+        } // SWITCH
+    }
+
+    template <typename T>
+    static inline bool compare(CompareOp op, T lhs, T rhs) {
+        switch (op) {
+            case CMP_EQ:  return (lhs == rhs);
+            case CMP_NE:  return (lhs != rhs);
+            case CMP_LT:  return (lhs < rhs);
+            case CMP_GT:  return (lhs > rhs);
+            case CMP_LTE: return (lhs <= rhs);
+            case CMP_GTE: return (lhs >= rhs);
+        } // SWITCH
+        return (false);
+    }
+
+    static inline double readDouble(const char *data) {
+        double val;
+        ::memcpy(&val, data, sizeof(double));
+        return (val);
+    }
+
+    inline bool evalTerm(const Term &term, const char *data0, const char *data1) const {
+        const char *ptr = (term.tupleIdx == 0 ? data0 : data1) + term.offset;
+        if (term.operandIsColumn) {
+            const char *other = (term.operandTupleIdx == 0 ? data0 : data1) + term.operandOffset;
+            if (term.columnType == VALUE_TYPE_DOUBLE) {
+                return (compare<double>(term.op, readDouble(ptr), readDouble(other)));
+            }
+            return (compare<int64_t>(term.op, readInteger(ptr, term.columnType),
+                                              readInteger(other, term.operandType)));
+        }
+        if (term.columnType == VALUE_TYPE_DOUBLE) {
+            return (compare<double>(term.op, readDouble(ptr), term.doubleValue));
+        }
+        return (compare<int64_t>(term.op, readInteger(ptr, term.columnType), term.intValue));
+    }
+
+    std::vector<Term> m_terms;
+    std::vector<Instruction> m_program;
+    // True if the program is just a list of terms that are AND'd together
+    bool m_conjunctive;
+};
+
+/**
+ * A projection where every output column is just a column from the input tuple.
+ * Fixed-width columns that have the same type in the input and output schemas
+ * are copied directly between the tuples' storage (adjacent columns are merged
+ * into a single copy). Everything else still goes through NValues.
+ */
+class CompiledProjection {
+  public:
+    /**
+     * Returns NULL if any of the projection's expressions are not a
+     * TupleValueExpression. The caller owns the returned object.
+     */
+    static CompiledProjection* compile(const std::vector<AbstractExpression*> &expressions,
+                                       const TupleSchema *inputSchema,
+                                       const TupleSchema *outputSchema);
+
+    inline void project(const TableTuple &input, TableTuple &output) const {
+        const char *src = input.address();
+        char *dest = output.address();
+        for (int i = 0, cnt = (int)m_copies.size(); i < cnt; i++) {
+            const Copy &copy = m_copies[i];
+            ::memcpy(dest + copy.destOffset, src + copy.srcOffset, copy.length);
+        } // FOR
+        for (int i = 0, cnt = (int)m_values.size(); i < cnt; i++) {
+            output.setNValue(m_values[i].second, input.getNValue(m_values[i].first));
+        } // FOR
+    }
+
+    int getCopyCount() const {
+        return ((int)m_copies.size());
+    }
+
+  private:
+    struct Copy {
+        uint32_t srcOffset;
+        uint32_t destOffset;
+        uint32_t length;
+    };
+
+    CompiledProjection() {}
+
+    std::vector<Copy> m_copies;
+    // <InputColumn, OutputColumn>
+    std::vector<std::pair<int, int> > m_values;
+};
+
+}
+#endif
@@ -228,7 +228,7 @@ operatorFactory(ExpressionType et,
 /** convert the enumerated value type into a concrete c type for
  * constant value expressions templated ctors */
 AbstractExpression*
-constantValueFactory(json_spirit::Object &obj,
+constantValueFactory(const json_spirit::Object &obj,
                      ValueType vt, ExpressionType et,
                      AbstractExpression *lc, AbstractExpression *rc)
 {
@@ -326,7 +326,7 @@ constantValueFactory(const NValue &newvalue)
 /** convert the enumerated value type into a concrete c type for
  * parameter value expression templated ctors */
 AbstractExpression*
-parameterValueFactory(json_spirit::Object &obj,
+parameterValueFactory(const json_spirit::Object &obj,
                       ExpressionType et,
                       AbstractExpression *lc, AbstractExpression *rc)
 {
@@ -346,10 +346,14 @@ AbstractExpression * parameterValueFactory(int idx) {
     return new ParameterValueExpression(idx);
 }
 
+AbstractExpression * tupleValueFactory(int idx) {
+    return new TupleValueExpression(idx, "", "");
+}
+
 /** convert the enumerated value type into a concrete c type for
  * tuple value expression templated ctors */
 AbstractExpression*
-tupleValueFactory(json_spirit::Object &obj, ExpressionType et,
+tupleValueFactory(const json_spirit::Object &obj, ExpressionType et,
                   AbstractExpression *lc, AbstractExpression *rc)
 {
     // read the tuple value expression specific data
@@ -411,7 +415,7 @@ conjunctionFactory(ExpressionType et, AbstractExpression *lc, AbstractExpression
  * class-specific serialization from serialize_io. */
 
 AbstractExpression*
-expressionFactory(json_spirit::Object &obj,
+expressionFactory(const json_spirit::Object &obj,
                   ExpressionType et, ValueType vt, int vs,
                   AbstractExpression* lc,
                   AbstractExpression* rc)
@@ -57,7 +57,7 @@
 namespace voltdb {
 
 /** instantiate a typed expression */
-voltdb::AbstractExpression* expressionFactory(json_spirit::Object &obj,
+voltdb::AbstractExpression* expressionFactory(const json_spirit::Object &obj,
                   voltdb::ExpressionType et, ValueType vt, int vs,
                   voltdb::AbstractExpression* lc,
                   voltdb::AbstractExpression* rc);
@@ -0,0 +1,867 @@
+/* Copyright (C) 2014 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <cassert>
+#include <cstdlib>
+#include <cstring>
+#include <algorithm>
+#include "indexes/AdaptiveRadixTree.h"
+
+namespace voltdb {
+namespace art {
+
+// The number of prefix bytes that are stored in each inner node. Longer
+// prefixes are only partially stored and the rest of the bytes are read
+// from one of the leaves below the node when we need them.
+static const uint32_t MAX_PREFIX = 8;
+
+enum NodeType {
+    NODE4 = 0,
+    NODE16,
+    NODE48,
+    NODE256
+};
+
+struct Node {
+    uint8_t type;
+    uint16_t count;
+    uint32_t prefixLen;
+    uint8_t prefix[MAX_PREFIX];
+};
+
+struct Node4 : public Node {
+    uint8_t keys[4];
+    Node *children[4];
+};
+
+struct Node16 : public Node {
+    uint8_t keys[16];
+    Node *children[16];
+};
+
+struct Node48 : public Node {
+    // Zero means that there is no child for that byte.
+    // Otherwise it is the offset of the child plus one.
+    uint8_t childIndex[256];
+    Node *children[48];
+};
+
+struct Node256 : public Node {
+    Node *children[256];
+};
+
+struct PinnedKey {
+    uint32_t length;
+    uint8_t bytes[1];
+};
+
+struct Leaf {
+    union {
+        const void *value;
+        // The next leaf in the free list
+        Leaf *next;
+    };
+    // A copy of the key if it can't be loaded from the value
+    PinnedKey *pinned;
+};
+
+// The number of leaves that we allocate at a time
+static const size_t LEAF_CHUNK_SIZE = 256;
+
+// Leaves are stored in the same child slots as inner nodes.
+// We tell them apart by setting the lowest bit of the pointer.
+static inline bool isLeaf(const Node *node) {
+    return (reinterpret_cast<uintptr_t>(node) & 1);
+}
+
+static inline Leaf* asLeaf(const Node *node) {
+    return reinterpret_cast<Leaf*>(reinterpret_cast<uintptr_t>(node) & ~static_cast<uintptr_t>(1));
+}
+
+static inline Node* tagLeaf(const Leaf *leaf) {
+    return reinterpret_cast<Node*>(reinterpret_cast<uintptr_t>(leaf) | 1);
+}
+
+static inline size_t pinnedKeySize(uint32_t length) {
+    return (offsetof(PinnedKey, bytes) + length);
+}
+
+static inline size_t nodeSize(int type) {
+    switch (type) {
+        case NODE4:   return sizeof(Node4);
+        case NODE16:  return sizeof(Node16);
+        case NODE48:  return sizeof(Node48);
+        case NODE256: return sizeof(Node256);
+    }
+    assert(false);
+    return (0);
+}
+
+static inline int compareKeys(const uint8_t *a, uint32_t aLength, const uint8_t *b, uint32_t bLength) {
+    int cmp = ::memcmp(a, b, std::min(aLength, bLength));
+    if (cmp != 0) return (cmp);
+    return (aLength < bLength ? -1 : (aLength > bLength ? 1 : 0));
+}
+
+// ------------------------------------------------------------------
+// CHILD ACCESS
+// ------------------------------------------------------------------
+// The children of a node are visited by position. For Node4 and Node16
+// the position is the offset in the sorted key array. For Node48 and
+// Node256 the position is the key byte itself.
+
+static inline int nextPos(const Node *node, int pos) {
+    switch (node->type) {
+        case NODE4:
+        case NODE16:
+            return (pos + 1 < node->count ? pos + 1 : -1);
+        case NODE48: {
+            const Node48 *n = static_cast<const Node48*>(node);
+            for (int i = pos + 1; i < 256; i++) {
+                if (n->childIndex[i] != 0) return (i);
+            } // FOR
+            break;
+        }
+        case NODE256: {
+            const Node256 *n = static_cast<const Node256*>(node);
+            for (int i = pos + 1; i < 256; i++) {
+                if (n->children[i] != NULL) return (i);
+            } // FOR
+            break;
+        }
+    } // SWITCH
+    return (-1);
+}
+
+static inline int prevPos(const Node *node, int pos) {
+    switch (node->type) {
+        case NODE4:
+        case NODE16:
+            return (std::min(pos, static_cast<int>(node->count)) - 1);
+        case NODE48: {
+            const Node48 *n = static_cast<const Node48*>(node);
+            for (int i = std::min(pos, 256) - 1; i >= 0; i--) {
+                if (n->childIndex[i] != 0) return (i);
+            } // FOR
+            break;
+        }
+        case NODE256: {
+            const Node256 *n = static_cast<const Node256*>(node);
+            for (int i = std::min(pos, 256) - 1; i >= 0; i--) {
+                if (n->children[i] != NULL) return (i);
+            } // FOR
+            break;
+        }
+    } // SWITCH
+    return (-1);
+}
+
+static inline const Node* childAt(const Node *node, int pos) {
+    switch (node->type) {
+        case NODE4:   return (static_cast<const Node4*>(node)->children[pos]);
+        case NODE16:  return (static_cast<const Node16*>(node)->children[pos]);
+        case NODE48: {
+            const Node48 *n = static_cast<const Node48*>(node);
+            return (n->children[n->childIndex[pos] - 1]);
+        }
+        case NODE256: return (static_cast<const Node256*>(node)->children[pos]);
+    }
+    return (NULL);
+}
+
+static inline int byteAt(const Node *node, int pos) {
+    switch (node->type) {
+        case NODE4:   return (static_cast<const Node4*>(node)->keys[pos]);
+        case NODE16:  return (static_cast<const Node16*>(node)->keys[pos]);
+    }
+    return (pos);
+}
+
+/**
+ * Return the position of the first child whose byte is greater than or equal to the given byte
+ */
+static inline int lowerBoundPos(const Node *node, uint8_t byte) {
+    switch (node->type) {
+        case NODE4: {
+            const Node4 *n = static_cast<const Node4*>(node);
+            for (int i = 0; i < n->count; i++) {
+                if (n->keys[i] >= byte) return (i);
+            } // FOR
+            return (-1);
+        }
+        case NODE16: {
+            const Node16 *n = static_cast<const Node16*>(node);
+            const uint8_t *pos = std::lower_bound(n->keys, n->keys + n->count, byte);
+            return (pos != n->keys + n->count ? static_cast<int>(pos - n->keys) : -1);
+        }
+    }
+    return (nextPos(node, static_cast<int>(byte) - 1));
+}
+
+static inline Node** findChild(Node *node, uint8_t byte) {
+    switch (node->type) {
+        case NODE4: {
+            Node4 *n = static_cast<Node4*>(node);
+            for (int i = 0; i < n->count; i++) {
+                if (n->keys[i] == byte) return (&n->children[i]);
+            } // FOR
+            break;
+        }
+        case NODE16: {
+            Node16 *n = static_cast<Node16*>(node);
+            uint8_t *pos = std::lower_bound(n->keys, n->keys + n->count, byte);
+            if (pos != n->keys + n->count && *pos == byte) return (&n->children[pos - n->keys]);
+            break;
+        }
+        case NODE48: {
+            Node48 *n = static_cast<Node48*>(node);
+            if (n->childIndex[byte] != 0) return (&n->children[n->childIndex[byte] - 1]);
+            break;
+        }
+        case NODE256: {
+            Node256 *n = static_cast<Node256*>(node);
+            if (n->children[byte] != NULL) return (&n->children[byte]);
+            break;
+        }
+    } // SWITCH
+    return (NULL);
+}
+
+static inline void copyHeader(Node *dest, const Node *src) {
+    dest->count = src->count;
+    dest->prefixLen = src->prefixLen;
+    ::memcpy(dest->prefix, src->prefix, std::min(src->prefixLen, MAX_PREFIX));
+}
+
+/**
+ * Add a child to the sorted key array of a Node4 or Node16 that has room for it
+ */
+template<int N>
+static inline void insertSorted(uint8_t (&keys)[N], Node* (&children)[N], uint16_t &count, uint8_t byte, Node *child) {
+    assert(count < N);
+    int pos = 0;
+    while (pos < count && keys[pos] < byte) pos++;
+    ::memmove(keys + pos + 1, keys + pos, count - pos);
+    ::memmove(children + pos + 1, children + pos, (count - pos) * sizeof(Node*));
+    keys[pos] = byte;
+    children[pos] = child;
+    count++;
+}
+
+template<int N>
+static inline void removeSorted(uint8_t (&keys)[N], Node* (&children)[N], uint16_t &count, int pos) {
+    ::memmove(keys + pos, keys + pos + 1, count - pos - 1);
+    ::memmove(children + pos, children + pos + 1, (count - pos - 1) * sizeof(Node*));
+    count--;
+}
+
+} // namespace art
+
+using namespace art;
+
+// ------------------------------------------------------------------
+// ITERATOR
+// ------------------------------------------------------------------
+
+const void* AdaptiveRadixTree::Iterator::value() const {
+    assert(m_leaf != NULL);
+    return (m_leaf->value);
+}
+
+const uint8_t* AdaptiveRadixTree::Iterator::key(uint32_t *length) const {
+    assert(m_leaf != NULL);
+    return (m_tree->leafKey(m_leaf, length));
+}
+
+void AdaptiveRadixTree::Iterator::descend(const Node *node, bool forward) {
+    while (!isLeaf(node)) {
+        Frame frame;
+        frame.node = node;
+        frame.pos = (forward ? nextPos(node, -1) : prevPos(node, 256));
+        m_stack.push_back(frame);
+        node = childAt(node, frame.pos);
+    } // WHILE
+    m_leaf = asLeaf(node);
+}
+
+void AdaptiveRadixTree::Iterator::next() {
+    m_leaf = NULL;
+    while (!m_stack.empty()) {
+        Frame &frame = m_stack.back();
+        int pos = nextPos(frame.node, frame.pos);
+        if (pos >= 0) {
+            frame.pos = pos;
+            descend(childAt(frame.node, pos), true);
+            return;
+        }
+        m_stack.pop_back();
+    } // WHILE
+}
+
+void AdaptiveRadixTree::Iterator::prev() {
+    m_leaf = NULL;
+    while (!m_stack.empty()) {
+        Frame &frame = m_stack.back();
+        int pos = prevPos(frame.node, frame.pos);
+        if (pos >= 0) {
+            frame.pos = pos;
+            descend(childAt(frame.node, pos), false);
+            return;
+        }
+        m_stack.pop_back();
+    } // WHILE
+}
+
+// ------------------------------------------------------------------
+// TREE
+// ------------------------------------------------------------------
+
+AdaptiveRadixTree::AdaptiveRadixTree(const KeyLoader *loader, int64_t *memoryEstimate) :
+    m_loader(loader),
+    m_root(NULL),
+    m_size(0),
+    m_memoryEstimate(memoryEstimate),
+    m_freeLeaves(NULL) {
+}
+
+AdaptiveRadixTree::~AdaptiveRadixTree() {
+    clear();
+}
+
+void AdaptiveRadixTree::clear() {
+    if (m_root != NULL) destroy(m_root);
+    m_root = NULL;
+    m_size = 0;
+    for (size_t i = 0; i < m_leafChunks.size(); i++) {
+        ::free(m_leafChunks[i]);
+        *m_memoryEstimate -= LEAF_CHUNK_SIZE * sizeof(Leaf);
+    } // FOR
+    m_leafChunks.clear();
+    m_freeLeaves = NULL;
+}
+
+// ------------------------------------------------------------------
+// KEYS
+// ------------------------------------------------------------------
+
+const uint8_t* AdaptiveRadixTree::leafKey(const Leaf *leaf, uint32_t *length) const {
+    if (leaf->pinned != NULL) {
+        *length = leaf->pinned->length;
+        return (leaf->pinned->bytes);
+    }
+    return (m_loader->loadKey(leaf->value, length));
+}
+
+bool AdaptiveRadixTree::leafMatches(const Leaf *leaf, const uint8_t *key, uint32_t length, const void *value) const {
+    if (value != NULL) return (leaf->value == value);
+    uint32_t leafLength;
+    const uint8_t *leafKey = this->leafKey(leaf, &leafLength);
+    return (leafLength == length && ::memcmp(leafKey, key, length) == 0);
+}
+
+const Leaf* AdaptiveRadixTree::minimum(const Node *node) const {
+    while (!isLeaf(node)) {
+        node = childAt(node, nextPos(node, -1));
+    } // WHILE
+    return (asLeaf(node));
+}
+
+/**
+ * Compare the entire prefix of the node with the key starting at the given depth.
+ * If the key ends before the prefix does, then the prefix is considered to be greater.
+ */
+int AdaptiveRadixTree::comparePrefix(const Node *node, const uint8_t *key, uint32_t length, uint32_t depth) const {
+    const uint8_t *prefix = node->prefix;
+    if (node->prefixLen > MAX_PREFIX) {
+        uint32_t leafLength;
+        prefix = leafKey(minimum(node), &leafLength) + depth;
+    }
+    uint32_t max = std::min(node->prefixLen, length - depth);
+    int cmp = ::memcmp(prefix, key + depth, max);
+    if (cmp != 0) return (cmp);
+    return (max < node->prefixLen ? 1 : 0);
+}
+
+/**
+ * Return the number of bytes of the node's prefix that match the key starting at the given depth
+ */
+uint32_t AdaptiveRadixTree::prefixMismatch(const Node *node, const uint8_t *key, uint32_t length, uint32_t depth) const {
+    uint32_t max = std::min(std::min(node->prefixLen, MAX_PREFIX), length - depth);
+    uint32_t i = 0;
+    for (; i < max; i++) {
+        if (node->prefix[i] != key[depth + i]) return (i);
+    } // FOR
+    if (node->prefixLen > MAX_PREFIX) {
+        uint32_t leafLength;
+        const uint8_t *leafKey = this->leafKey(minimum(node), &leafLength);
+        max = std::min(std::min(leafLength, length) - depth, node->prefixLen);
+        for (; i < max; i++) {
+            if (leafKey[depth + i] != key[depth + i]) return (i);
+        } // FOR
+    }
+    return (i);
+}
+
+void AdaptiveRadixTree::destroy(Node *node) {
+    if (isLeaf(node)) {
+        freeLeaf(asLeaf(node));
+        return;
+    }
+    for (int pos = nextPos(node, -1); pos >= 0; pos = nextPos(node, pos)) {
+        destroy(const_cast<Node*>(childAt(node, pos)));
+    } // FOR
+    freeNode(node);
+}
+
+Node* AdaptiveRadixTree::newNode(int type) {
+    size_t size = nodeSize(type);
+    Node *node = static_cast<Node*>(::calloc(1, size));
+    assert(node != NULL);
+    node->type = static_cast<uint8_t>(type);
+    *m_memoryEstimate += size;
+    return (node);
+}
+
+void AdaptiveRadixTree::freeNode(Node *node) {
+    *m_memoryEstimate -= nodeSize(node->type);
+    ::free(node);
+}
+
+Node* AdaptiveRadixTree::newLeaf(const uint8_t *key, uint32_t length, const void *value, bool pinKey) {
+    if (m_freeLeaves == NULL) {
+        Leaf *chunk = static_cast<Leaf*>(::malloc(LEAF_CHUNK_SIZE * sizeof(Leaf)));
+        assert(chunk != NULL);
+        m_leafChunks.push_back(chunk);
+        *m_memoryEstimate += LEAF_CHUNK_SIZE * sizeof(Leaf);
+        for (size_t i = 0; i < LEAF_CHUNK_SIZE; i++) {
+            chunk[i].next = m_freeLeaves;
+            m_freeLeaves = &chunk[i];
+        } // FOR
+    }
+    Leaf *leaf = m_freeLeaves;
+    m_freeLeaves = leaf->next;
+    leaf->value = value;
+    leaf->pinned = NULL;
+    if (pinKey) this->pinKey(leaf, key, length);
+    return (tagLeaf(leaf));
+}
+
+void AdaptiveRadixTree::freeLeaf(Leaf *leaf) {
+    unpinKey(leaf);
+    leaf->next = m_freeLeaves;
+    m_freeLeaves = leaf;
+}
+
+void AdaptiveRadixTree::pinKey(Leaf *leaf, const uint8_t *key, uint32_t length) {
+    assert(leaf->pinned == NULL);
+    size_t size = pinnedKeySize(length);
+    leaf->pinned = static_cast<PinnedKey*>(::malloc(size));
+    assert(leaf->pinned != NULL);
+    leaf->pinned->length = length;
+    ::memcpy(leaf->pinned->bytes, key, length);
+    *m_memoryEstimate += size;
+}
+
+void AdaptiveRadixTree::unpinKey(Leaf *leaf) {
+    if (leaf->pinned == NULL) return;
+    *m_memoryEstimate -= pinnedKeySize(leaf->pinned->length);
+    ::free(leaf->pinned);
+    leaf->pinned = NULL;
+}
+
+Leaf* AdaptiveRadixTree::findLeaf(const uint8_t *key, uint32_t length) const {
+    Node *node = m_root;
+    uint32_t depth = 0;
+    while (node != NULL) {
+        if (isLeaf(node)) {
+            Leaf *leaf = asLeaf(node);
+            return (leafMatches(leaf, key, length, NULL) ? leaf : NULL);
+        }
+        // We only check the bytes of the prefix that are stored in the node.
+        // The comparison with the leaf at the end will catch the rest.
+        if (node->prefixLen > 0) {
+            if (depth + node->prefixLen >= length) return (NULL);
+            if (::memcmp(node->prefix, key + depth, std::min(node->prefixLen, MAX_PREFIX)) != 0) return (NULL);
+            depth += node->prefixLen;
+        }
+        if (depth >= length) return (NULL);
+        Node **child = findChild(node, key[depth]);
+        node = (child != NULL ? *child : NULL);
+        depth++;
+    } // WHILE
+    return (NULL);
+}
+
+const void* AdaptiveRadixTree::find(const uint8_t *key, uint32_t length) const {
+    const Leaf *leaf = findLeaf(key, length);
+    return (leaf != NULL ? leaf->value : NULL);
+}
+
+bool AdaptiveRadixTree::update(const uint8_t *key, uint32_t length, const void *value, bool pinKey) {
+    Leaf *leaf = findLeaf(key, length);
+    if (leaf == NULL) return (false);
+    unpinKey(leaf);
+    leaf->value = value;
+    if (pinKey) this->pinKey(leaf, key, length);
+    return (true);
+}
+
+bool AdaptiveRadixTree::insert(const uint8_t *key, uint32_t length, const void *value, bool pinKey) {
+    if (insert(&m_root, key, length, 0, value, pinKey)) {
+        m_size++;
+        return (true);
+    }
+    return (false);
+}
+
+bool AdaptiveRadixTree::insert(Node **ref, const uint8_t *key, uint32_t length, uint32_t depth, const void *value, bool pinKey) {
+    Node *node = *ref;
+    if (node == NULL) {
+        *ref = newLeaf(key, length, value, pinKey);
+        return (true);
+    }
+
+    // Replace the leaf with a new Node4 that holds both the old and the new leaf
+    if (isLeaf(node)) {
+        Leaf *leaf = asLeaf(node);
+        uint32_t leafLength;
+        const uint8_t *leafKey = this->leafKey(leaf, &leafLength);
+        if (leafLength == length && ::memcmp(leafKey, key, length) == 0) return (false);
+
+        uint32_t limit = std::min(leafLength, length);
+        uint32_t mismatch = depth;
+        while (mismatch < limit && leafKey[mismatch] == key[mismatch]) mismatch++;
+        assert(mismatch < limit); // One key is a prefix of the other
+        if (mismatch >= limit) return (false);
+        uint8_t leafByte = leafKey[mismatch];
+
+        Node4 *parent = static_cast<Node4*>(newNode(NODE4));
+        parent->prefixLen = mismatch - depth;
+        ::memcpy(parent->prefix, key + depth, std::min(parent->prefixLen, MAX_PREFIX));
+        insertSorted(parent->keys, parent->children, parent->count, leafByte, node);
+        insertSorted(parent->keys, parent->children, parent->count, key[mismatch], newLeaf(key, length, value, pinKey));
+        *ref = parent;
+        return (true);
+    }
+
+    // If the key does not match the node's prefix, then we need to split
+    // the prefix with a new Node4 that holds the old node and the new leaf
+    if (node->prefixLen > 0) {
+        uint32_t mismatch = prefixMismatch(node, key, length, depth);
+        if (mismatch < node->prefixLen) {
+            assert(depth + mismatch < length); // The key is a prefix of another key
+            if (depth + mismatch >= length) return (false);
+
+            Node4 *parent = static_cast<Node4*>(newNode(NODE4));
+            parent->prefixLen = mismatch;
+            ::memcpy(parent->prefix, node->prefix, std::min(mismatch, MAX_PREFIX));
+            if (node->prefixLen <= MAX_PREFIX) {
+                insertSorted(parent->keys, parent->children, parent->count, node->prefix[mismatch], node);
+                node->prefixLen -= mismatch + 1;
+                ::memmove(node->prefix, node->prefix + mismatch + 1, std::min(node->prefixLen, MAX_PREFIX));
+            } else {
+                uint32_t leafLength;
+                const uint8_t *leafKey = this->leafKey(minimum(node), &leafLength);
+                insertSorted(parent->keys, parent->children, parent->count, leafKey[depth + mismatch], node);
+                node->prefixLen -= mismatch + 1;
+                ::memcpy(node->prefix, leafKey + depth + mismatch + 1, std::min(node->prefixLen, MAX_PREFIX));
+            }
+            insertSorted(parent->keys, parent->children, parent->count, key[depth + mismatch], newLeaf(key, length, value, pinKey));
+            *ref = parent;
+            return (true);
+        }
+        depth += node->prefixLen;
+    }
+
+    assert(depth < length); // The key is a prefix of another key
+    if (depth >= length) return (false);
+
+    Node **child = findChild(node, key[depth]);
+    if (child != NULL) {
+        return insert(child, key, length, depth + 1, value, pinKey);
+    }
+    addChild(ref, node, key[depth], newLeaf(key, length, value, pinKey));
+    return (true);
+}
+
+void AdaptiveRadixTree::addChild(Node **ref, Node *node, uint8_t byte, Node *child) {
+    switch (node->type) {
+        case NODE4: {
+            Node4 *n = static_cast<Node4*>(node);
+            if (n->count < 4) {
+                insertSorted(n->keys, n->children, n->count, byte, child);
+                return;
+            }
+            Node16 *bigger = static_cast<Node16*>(newNode(NODE16));
+            copyHeader(bigger, n);
+            ::memcpy(bigger->keys, n->keys, n->count);
+            ::memcpy(bigger->children, n->children, n->count * sizeof(Node*));
+            insertSorted(bigger->keys, bigger->children, bigger->count, byte, child);
+            *ref = bigger;
+            freeNode(n);
+            return;
+        }
+        case NODE16: {
+            Node16 *n = static_cast<Node16*>(node);
+            if (n->count < 16) {
+                insertSorted(n->keys, n->children, n->count, byte, child);
+                return;
+            }
+            Node48 *bigger = static_cast<Node48*>(newNode(NODE48));
+            copyHeader(bigger, n);
+            for (int i = 0; i < n->count; i++) {
+                bigger->children[i] = n->children[i];
+                bigger->childIndex[n->keys[i]] = static_cast<uint8_t>(i + 1);
+            } // FOR
+            bigger->children[n->count] = child;
+            bigger->childIndex[byte] = static_cast<uint8_t>(n->count + 1);
+            bigger->count++;
+            *ref = bigger;
+            freeNode(n);
+            return;
+        }
+        case NODE48: {
+            Node48 *n = static_cast<Node48*>(node);
+            if (n->count < 48) {
+                // Deletes can leave holes in the children array
+                int pos = 0;
+                while (n->children[pos] != NULL) pos++;
+                n->children[pos] = child;
+                n->childIndex[byte] = static_cast<uint8_t>(pos + 1);
+                n->count++;
+                return;
+            }
+            Node256 *bigger = static_cast<Node256*>(newNode(NODE256));
+            copyHeader(bigger, n);
+            for (int i = 0; i < 256; i++) {
+                if (n->childIndex[i] != 0) bigger->children[i] = n->children[n->childIndex[i] - 1];
+            } // FOR
+            bigger->children[byte] = child;
+            bigger->count++;
+            *ref = bigger;
+            freeNode(n);
+            return;
+        }
+        case NODE256: {
+            Node256 *n = static_cast<Node256*>(node);
+            n->children[byte] = child;
+            n->count++;
+            return;
+        }
+    } // SWITCH
+}
+
+bool AdaptiveRadixTree::erase(const uint8_t *key, uint32_t length, const void *value) {
+    if (erase(&m_root, key, length, 0, value)) {
+        // Give back the leaf chunks once the tree is empty
+        if (--m_size == 0) clear();
+        return (true);
+    }
+    return (false);
+}
+
+bool AdaptiveRadixTree::erase(Node **ref, const uint8_t *key, uint32_t length, uint32_t depth, const void *value) {
+    Node *node = *ref;
+    if (node == NULL) return (false);
+
+    // This only happens when the root is a leaf
+    if (isLeaf(node)) {
+        Leaf *leaf = asLeaf(node);
+        if (!leafMatches(leaf, key, length, value)) return (false);
+        freeLeaf(leaf);
+        *ref = NULL;
+        return (true);
+    }
+
+    if (node->prefixLen > 0) {
+        if (depth + node->prefixLen >= length) return (false);
+        if (::memcmp(node->prefix, key + depth, std::min(node->prefixLen, MAX_PREFIX)) != 0) return (false);
+        depth += node->prefixLen;
+    }
+    if (depth >= length) return (false);
+
+    Node **child = findChild(node, key[depth]);
+    if (child == NULL) return (false);
+    if (isLeaf(*child)) {
+        Leaf *leaf = asLeaf(*child);
+        if (!leafMatches(leaf, key, length, value)) return (false);
+        removeChild(ref, node, key[depth], child);
+        freeLeaf(leaf);
+        return (true);
+    }
+    return erase(child, key, length, depth + 1, value);
+}
+
+void AdaptiveRadixTree::removeChild(Node **ref, Node *node, uint8_t byte, Node **child) {
+    switch (node->type) {
+        case NODE4: {
+            Node4 *n = static_cast<Node4*>(node);
+            removeSorted(n->keys, n->children, n->count, static_cast<int>(child - n->children));
+            if (n->count > 1) return;
+
+            // Collapse this node into its only child. If the child is an inner node,
+            // then it gets this node's prefix plus the byte that leads to the child.
+            Node *only = n->children[0];
+            if (!isLeaf(only)) {
+                uint8_t prefix[MAX_PREFIX];
+                uint32_t filled = std::min(n->prefixLen, MAX_PREFIX);
+                ::memcpy(prefix, n->prefix, filled);
+                if (filled < MAX_PREFIX) prefix[filled++] = n->keys[0];
+                if (filled < MAX_PREFIX) {
+                    uint32_t more = std::min(only->prefixLen, MAX_PREFIX - filled);
+                    ::memcpy(prefix + filled, only->prefix, more);
+                    filled += more;
+                }
+                ::memcpy(only->prefix, prefix, filled);
+                only->prefixLen += n->prefixLen + 1;
+            }
+            *ref = only;
+            freeNode(n);
+            return;
+        }
+        case NODE16: {
+            Node16 *n = static_cast<Node16*>(node);
+            removeSorted(n->keys, n->children, n->count, static_cast<int>(child - n->children));
+            if (n->count > 3) return;
+
+            Node4 *smaller = static_cast<Node4*>(newNode(NODE4));
+            copyHeader(smaller, n);
+            ::memcpy(smaller->keys, n->keys, n->count);
+            ::memcpy(smaller->children, n->children, n->count * sizeof(Node*));
+            *ref = smaller;
+            freeNode(n);
+            return;
+        }
+        case NODE48: {
+            Node48 *n = static_cast<Node48*>(node);
+            n->children[n->childIndex[byte] - 1] = NULL;
+            n->childIndex[byte] = 0;
+            n->count--;
+            if (n->count > 12) return;
+
+            Node16 *smaller = static_cast<Node16*>(newNode(NODE16));
+            copyHeader(smaller, n);
+            int pos = 0;
+            for (int i = 0; i < 256; i++) {
+                if (n->childIndex[i] == 0) continue;
+                smaller->keys[pos] = static_cast<uint8_t>(i);
+                smaller->children[pos] = n->children[n->childIndex[i] - 1];
+                pos++;
+            } // FOR
+            *ref = smaller;
+            freeNode(n);
+            return;
+        }
+        case NODE256: {
+            Node256 *n = static_cast<Node256*>(node);
+            n->children[byte] = NULL;
+            n->count--;
+            if (n->count > 37) return;
+
+            Node48 *smaller = static_cast<Node48*>(newNode(NODE48));
+            copyHeader(smaller, n);
+            int pos = 0;
+            for (int i = 0; i < 256; i++) {
+                if (n->children[i] == NULL) continue;
+                smaller->children[pos] = n->children[i];
+                smaller->childIndex[i] = static_cast<uint8_t>(pos + 1);
+                pos++;
+            } // FOR
+            *ref = smaller;
+            freeNode(n);
+            return;
+        }
+    } // SWITCH
+}
+
+void AdaptiveRadixTree::seekFirst(Iterator &iter) const {
+    iter.reset(this);
+    if (m_root != NULL) iter.descend(m_root, true);
+}
+
+void AdaptiveRadixTree::seekLast(Iterator &iter) const {
+    iter.reset(this);
+    if (m_root != NULL) iter.descend(m_root, false);
+}
+
+void AdaptiveRadixTree::lowerBound(Iterator &iter, const uint8_t *key, uint32_t length, bool inclusive) const {
+    iter.reset(this);
+    const Node *node = m_root;
+    if (node == NULL) return;
+
+    uint32_t depth = 0;
+    while (true) {
+        if (isLeaf(node)) {
+            const Leaf *leaf = asLeaf(node);
+            uint32_t leafLength;
+            const uint8_t *leafKey = this->leafKey(leaf, &leafLength);
+            int cmp = compareKeys(leafKey, leafLength, key, length);
+            iter.m_leaf = leaf;
+            if (cmp < 0 || (cmp == 0 && !inclusive)) iter.next();
+            return;
+        }
+
+        if (node->prefixLen > 0) {
+            int cmp = comparePrefix(node, key, length, depth);
+            // Every key below this node is greater than the search key
+            if (cmp > 0) {
+                iter.descend(node, true);
+                return;
+            }
+            // Every key below this node is less than the search key,
+            // so we want whatever comes after the largest one
+            if (cmp < 0) {
+                iter.descend(node, false);
+                iter.next();
+                return;
+            }
+            depth += node->prefixLen;
+        }
+        if (depth >= length) {
+            iter.descend(node, true);
+            return;
+        }
+
+        uint8_t byte = key[depth];
+        int pos = lowerBoundPos(node, byte);
+        if (pos < 0) {
+            iter.descend(node, false);
+            iter.next();
+            return;
+        }
+        Iterator::Frame frame;
+        frame.node = node;
+        frame.pos = pos;
+        iter.m_stack.push_back(frame);
+        node = childAt(node, pos);
+        if (byteAt(frame.node, pos) > byte) {
+            iter.descend(node, true);
+            return;
+        }
+        depth++;
+    } // WHILE
+}
+
+}
@@ -0,0 +1,205 @@
+/* Copyright (C) 2014 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#ifndef HSTOREADAPTIVERADIXTREE_H
+#define HSTOREADAPTIVERADIXTREE_H
+
+#include <stdint.h>
+#include <stddef.h>
+#include <vector>
+
+namespace voltdb {
+
+namespace art {
+    struct Node;
+    struct Leaf;
+    struct PinnedKey;
+}
+
+/**
+ * An ordered map from binary keys to tuple addresses that is implemented
+ * as an Adaptive Radix Tree (Leis et al., ICDE 2013). Each inner node uses
+ * one of four layouts (4, 16, 48 or 256 children) depending on how many
+ * children it has, and chains of nodes with a single child are collapsed
+ * into a prefix that is stored in their parent. This makes the tree much
+ * smaller than a std::map for keys that share long prefixes.
+ *
+ * Keys are compared byte-wise like memcmp(). No key in the tree can be a
+ * prefix of another key in the tree. The keys generated by RadixKey always
+ * satisfy this.
+ *
+ * The leaves only store the value. Whenever the tree needs the key of a leaf,
+ * it asks the KeyLoader to derive it from the value (i.e., to encode the key
+ * columns of the tuple at that address). A leaf only keeps a copy of its key if
+ * it was inserted with pinKey set, because its value can't be used to load it.
+ *
+ * Modifying the tree invalidates all of its iterators.
+ */
+class AdaptiveRadixTree {
+public:
+    /**
+     * Derives the key of an entry from its value.
+     */
+    class KeyLoader {
+    public:
+        virtual ~KeyLoader() {}
+
+        /**
+         * Return the key of the entry with the given value. The returned
+         * bytes only have to stay valid until the next call.
+         */
+        virtual const uint8_t* loadKey(const void *value, uint32_t *length) const = 0;
+    };
+
+    /**
+     * A position in the tree. The iterator keeps the path from the root to
+     * the current leaf so that it can move in both directions.
+     */
+    class Iterator {
+        friend class AdaptiveRadixTree;
+    public:
+        Iterator() : m_tree(NULL), m_leaf(NULL) {}
+
+        inline bool isValid() const { return (m_leaf != NULL); }
+        const void* value() const;
+        /**
+         * Return the key of the current entry. The bytes are only valid until
+         * the next time that the tree needs to load a key.
+         */
+        const uint8_t* key(uint32_t *length) const;
+
+        /** Move to the next largest key. The iterator is invalid if there is none */
+        void next();
+        /** Move to the next smallest key. The iterator is invalid if there is none */
+        void prev();
+
+        inline void reset(const AdaptiveRadixTree *tree) {
+            m_stack.clear();
+            m_tree = tree;
+            m_leaf = NULL;
+        }
+
+    private:
+        struct Frame {
+            const art::Node *node;
+            int pos;
+        };
+
+        void descend(const art::Node *node, bool forward);
+
+        std::vector<Frame> m_stack;
+        const AdaptiveRadixTree *m_tree;
+        const art::Leaf *m_leaf;
+    };
+
+    /**
+     * @param loader derives the key of each entry from its value
+     * @param memoryEstimate the counter to update whenever memory is allocated or freed
+     */
+    AdaptiveRadixTree(const KeyLoader *loader, int64_t *memoryEstimate);
+    ~AdaptiveRadixTree();
+
+    /**
+     * Add a new key. Returns false if the key already exists.
+     * If pinKey is true, then the leaf keeps a copy of the key instead of
+     * loading it from the value.
+     */
+    bool insert(const uint8_t *key, uint32_t length, const void *value, bool pinKey = false);
+
+    /**
+     * Remove a key. Returns false if the key does not exist.
+     * If value is not NULL, then we only remove the entry for the key if it has
+     * that value, and we never load the key of that entry. This is what we use
+     * when the tuple at that address no longer has the key that it was indexed with.
+     */
+    bool erase(const uint8_t *key, uint32_t length, const void *value = NULL);
+
+    /**
+     * Change the value of an existing key. Returns false if the key does not exist.
+     * If pinKey is true, then the leaf keeps a copy of the key instead of
+     * loading it from the new value.
+     */
+    bool update(const uint8_t *key, uint32_t length, const void *value, bool pinKey = false);
+
+    /**
+     * Return the value for the given key or NULL if the key does not exist.
+     */
+    const void* find(const uint8_t *key, uint32_t length) const;
+
+    void seekFirst(Iterator &iter) const;
+    void seekLast(Iterator &iter) const;
+
+    /**
+     * Position the iterator at the smallest key that is greater than or equal
+     * to the given key. If inclusive is false, then it is positioned at the
+     * smallest key that is strictly greater than the given key.
+     */
+    void lowerBound(Iterator &iter, const uint8_t *key, uint32_t length, bool inclusive) const;
+
+    inline size_t size() const { return m_size; }
+
+    /**
+     * Remove all of the keys in the tree.
+     */
+    void clear();
+
+private:
+    // Not copyable
+    AdaptiveRadixTree(const AdaptiveRadixTree&);
+    AdaptiveRadixTree& operator=(const AdaptiveRadixTree&);
+
+    bool insert(art::Node **ref, const uint8_t *key, uint32_t length, uint32_t depth, const void *value, bool pinKey);
+    bool erase(art::Node **ref, const uint8_t *key, uint32_t length, uint32_t depth, const void *value);
+    art::Leaf* findLeaf(const uint8_t *key, uint32_t length) const;
+    bool leafMatches(const art::Leaf *leaf, const uint8_t *key, uint32_t length, const void *value) const;
+    const uint8_t* leafKey(const art::Leaf *leaf, uint32_t *length) const;
+    const art::Leaf* minimum(const art::Node *node) const;
+    int comparePrefix(const art::Node *node, const uint8_t *key, uint32_t length, uint32_t depth) const;
+    uint32_t prefixMismatch(const art::Node *node, const uint8_t *key, uint32_t length, uint32_t depth) const;
+    void addChild(art::Node **ref, art::Node *node, uint8_t byte, art::Node *child);
+    void removeChild(art::Node **ref, art::Node *node, uint8_t byte, art::Node **child);
+    void destroy(art::Node *node);
+
+    art::Node* newNode(int type);
+    void freeNode(art::Node *node);
+    art::Node* newLeaf(const uint8_t *key, uint32_t length, const void *value, bool pinKey);
+    void freeLeaf(art::Leaf *leaf);
+    void pinKey(art::Leaf *leaf, const uint8_t *key, uint32_t length);
+    void unpinKey(art::Leaf *leaf);
+
+    const KeyLoader *m_loader;
+    art::Node *m_root;
+    size_t m_size;
+    int64_t *m_memoryEstimate;
+
+    // The leaves are all the same size, so we allocate them in chunks
+    // and keep the ones that are not used in a free list
+    std::vector<art::Leaf*> m_leafChunks;
+    art::Leaf *m_freeLeaves;
+};
+
+}
+
+#endif
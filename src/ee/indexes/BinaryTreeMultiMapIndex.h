@@ -46,8 +46,10 @@
 #ifndef BINARYTREEMULTIMAPINDEX_H_
 #define BINARYTREEMULTIMAPINDEX_H_
 
+#include <algorithm>
 #include <map>
 #include <iostream>
+#include <vector>
 #include "indexes/tableindex.h"
 #include "common/tabletuple.h"
 #include "stx/btree_map.h"
@@ -72,6 +74,15 @@ class BinaryTreeMultiMapIndex : public TableIndex
     typedef typename MapType::iterator MMIter;
     typedef typename MapType::const_reverse_iterator MMCRIter;
     typedef typename MapType::reverse_iterator MMRIter;
+    typedef std::pair<KeyType, const void*> EntryType;
+
+    struct EntryComparator {
+        KeyComparator m_cmp;
+        EntryComparator(const KeyComparator &cmp) : m_cmp(cmp) {}
+        inline bool operator()(const EntryType &lhs, const EntryType &rhs) const {
+            return m_cmp(lhs.first, rhs.first);
+        }
+    };
 
 public:
 
@@ -86,6 +97,28 @@ public:
         return addEntryPrivate(tuple, m_tmp1);
     }
 
+    bool addEntries(TableTuple &tuple, const std::vector<char*> &addresses)
+    {
+        std::vector<EntryType> entries;
+        entries.reserve(addresses.size());
+        for (size_t i = 0; i < addresses.size(); i++) {
+            tuple.move(addresses[i]);
+            m_tmp1.setFromTuple(&tuple, column_indices_, m_keySchema);
+            entries.push_back(EntryType(m_tmp1, tuple.address()));
+        }
+
+        // The sort is stable so that tuples with the same key stay in the
+        // same order that they would be in if we called addEntry() for each.
+        // When the map is empty, inserting the sorted keys right before the
+        // end of it only takes amortized constant time for each of them.
+        std::stable_sort(entries.begin(), entries.end(), EntryComparator(KeyComparator(m_keySchema)));
+        for (size_t i = 0; i < entries.size(); i++) {
+            m_entries->insert(m_entries->end(), entries[i]);
+        }
+        m_inserts += static_cast<int>(entries.size());
+        return true;
+    }
+
     bool deleteEntry(const TableTuple *tuple)
     {
         m_tmp1.setFromTuple(tuple, column_indices_, m_keySchema);
@@ -49,7 +49,9 @@
 //#include <map>
 #include "stx/btree_map.h"
 #include "stx/btree.h"
+#include <algorithm>
 #include <iostream>
+#include <vector>
 #include "common/debuglog.h"
 #include "common/tabletuple.h"
 #include "indexes/tableindex.h"
@@ -68,6 +70,15 @@ class BinaryTreeUniqueIndex : public TableIndex
     //typedef std::map<KeyType, const void*, KeyComparator> MapType;
     typedef h_index::AllocatorTracker<pair<const KeyType, const void*> > AllocatorType;
     typedef stx::btree_map<KeyType, const void*, KeyComparator, stx::btree_default_map_traits<KeyType, const void*>, AllocatorType> MapType;
+    typedef std::pair<KeyType, const void*> EntryType;
+
+    struct EntryComparator {
+        KeyComparator m_cmp;
+        EntryComparator(const KeyComparator &cmp) : m_cmp(cmp) {}
+        inline bool operator()(const EntryType &lhs, const EntryType &rhs) const {
+            return m_cmp(lhs.first, rhs.first);
+        }
+    };
 
 public:
 
@@ -82,6 +93,44 @@ public:
         return addEntryPrivate(tuple, m_tmp1);
     }
 
+    bool addEntries(TableTuple &tuple, const std::vector<char*> &addresses)
+    {
+        std::vector<EntryType> entries;
+        entries.reserve(addresses.size());
+        for (size_t i = 0; i < addresses.size(); i++) {
+            tuple.move(addresses[i]);
+            m_tmp1.setFromTuple(&tuple, column_indices_, m_keySchema);
+            entries.push_back(EntryType(m_tmp1, tuple.address()));
+        }
+
+        // The sort is stable so that the first tuple with a key wins,
+        // just like it would if we called addEntry() for each of them
+        std::stable_sort(entries.begin(), entries.end(), EntryComparator(KeyComparator(m_keySchema)));
+        bool success = true;
+        size_t count = 0;
+        for (size_t i = 0; i < entries.size(); i++) {
+            if (count > 0 && m_eq(entries[count - 1].first, entries[i].first)) {
+                success = false;
+                continue;
+            }
+            entries[count++] = entries[i];
+        }
+        entries.resize(count);
+        m_inserts += static_cast<int>(count);
+
+        // We can only build the tree from the bottom up if it is empty
+        if (m_entries->empty()) {
+            if (entries.empty() == false) {
+                m_entries->bulk_load(entries.begin(), entries.end());
+            }
+        } else {
+            for (size_t i = 0; i < entries.size(); i++) {
+                success = m_entries->insert(entries[i]).second && success;
+            }
+        }
+        return success;
+    }
+
     bool deleteEntry(const TableTuple* tuple)
     {
         m_tmp1.setFromTuple(tuple, column_indices_, m_keySchema);
@@ -0,0 +1,259 @@
+/* Copyright (C) 2014 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#ifndef HSTORERADIXKEY_H
+#define HSTORERADIXKEY_H
+
+#include <stdint.h>
+#include <cstring>
+#include <vector>
+#include "common/types.h"
+#include "common/NValue.hpp"
+#include "common/ValuePeeker.hpp"
+#include "common/tabletuple.h"
+#include "common/TupleSchema.h"
+#include "common/FatalException.hpp"
+
+namespace voltdb {
+
+/**
+ * Encodes the columns of an index key into a byte string whose memcmp()
+ * order is the same as the order of the NValues. This is what we store in
+ * an AdaptiveRadixTree.
+ *
+ * Integers are stored big-endian with the sign bit flipped. The NULL value
+ * of each type is its smallest value, so NULLs sort first like they do in
+ * NValue::compare(). Doubles have every bit flipped if they are negative and
+ * only the sign bit flipped otherwise. VARCHARs are 0x00 for NULL; otherwise
+ * they are 0x01 followed by the bytes of the string where each 0x00 byte is
+ * escaped as 0x00 0xFF, and then the terminator 0x00 0x00. This makes every
+ * encoded key prefix-free, which the tree requires.
+ */
+class RadixKey {
+public:
+    /** The number of bytes added by appendAddress() */
+    static const uint32_t ADDRESS_LENGTH = 8;
+
+    RadixKey() : m_keySchema(NULL), m_length(0) {}
+
+    /**
+     * Check that the tree can index every column in the key schema
+     * and allocate enough space for the common case.
+     */
+    void init(const TupleSchema *keySchema) {
+        m_keySchema = keySchema;
+        size_t capacity = ADDRESS_LENGTH;
+        for (int i = 0; i < keySchema->columnCount(); i++) {
+            ValueType type = keySchema->columnType(i);
+            switch (type) {
+                case VALUE_TYPE_TINYINT:
+                case VALUE_TYPE_SMALLINT:
+                case VALUE_TYPE_INTEGER:
+                case VALUE_TYPE_BIGINT:
+                case VALUE_TYPE_TIMESTAMP:
+                case VALUE_TYPE_DOUBLE:
+                case VALUE_TYPE_DECIMAL:
+                    capacity += NValue::getTupleStorageSize(type);
+                    break;
+                case VALUE_TYPE_VARCHAR:
+                    capacity += keySchema->columnLength(i) + 3;
+                    break;
+                default:
+                    throwFatalException("Unsupported column type %s for a radix tree index key",
+                                        getTypeName(type).c_str());
+            } // SWITCH
+        } // FOR
+        m_buffer.resize(capacity);
+    }
+
+    /**
+     * Encode the key columns of a table tuple
+     */
+    inline void setFromTuple(const TableTuple *tuple, const int *indices, const TupleSchema *keySchema) {
+        m_length = 0;
+        for (int i = 0; i < keySchema->columnCount(); i++) {
+            append(tuple->getNValue(indices[i]), keySchema->columnType(i));
+        } // FOR
+    }
+
+    /**
+     * Encode a tuple that uses the key schema
+     */
+    inline void setFromKey(const TableTuple *key) {
+        m_length = 0;
+        for (int i = 0; i < m_keySchema->columnCount(); i++) {
+            append(key->getNValue(i), m_keySchema->columnType(i));
+        } // FOR
+    }
+
+    /**
+     * Copy an already encoded key
+     */
+    inline void setFromBytes(const uint8_t *key, uint32_t length) {
+        m_length = 0;
+        ::memcpy(reserve(length), key, length);
+        m_length = length;
+    }
+
+    /**
+     * Add a tuple address to the end of the key.
+     * This is how the multimap index makes every entry unique.
+     */
+    inline void appendAddress(const void *address) {
+        appendUInt64(static_cast<uint64_t>(reinterpret_cast<uintptr_t>(address)));
+    }
+
+    /**
+     * Add the given byte to the end of the key count times. Filling with
+     * 0x00 or 0xFF makes a key that sorts before or after every address.
+     */
+    inline void appendFill(uint8_t byte, uint32_t count) {
+        uint8_t *data = reserve(count);
+        ::memset(data, byte, count);
+        m_length += count;
+    }
+
+    inline void setLength(uint32_t length) {
+        assert(length <= m_length);
+        m_length = length;
+    }
+
+    inline const uint8_t* data() const { return (&m_buffer[0]); }
+    inline uint32_t length() const { return (m_length); }
+
+    inline bool equals(const RadixKey &other) const {
+        return (m_length == other.m_length && ::memcmp(data(), other.data(), m_length) == 0);
+    }
+
+    /**
+     * Returns true if the first length bytes of this key are the same as the given bytes
+     */
+    inline bool matches(const uint8_t *key, uint32_t length) const {
+        return (length >= m_length && ::memcmp(data(), key, m_length) == 0);
+    }
+
+private:
+    inline uint8_t* reserve(size_t bytes) {
+        if (m_length + bytes > m_buffer.size()) {
+            m_buffer.resize((m_length + bytes) * 2);
+        }
+        return (&m_buffer[m_length]);
+    }
+
+    inline void appendUInt64(uint64_t value) {
+        uint8_t *data = reserve(8);
+        for (int i = 0; i < 8; i++) {
+            data[i] = static_cast<uint8_t>(value >> (56 - (i * 8)));
+        } // FOR
+        m_length += 8;
+    }
+
+    inline void appendUInt32(uint32_t value) {
+        uint8_t *data = reserve(4);
+        data[0] = static_cast<uint8_t>(value >> 24);
+        data[1] = static_cast<uint8_t>(value >> 16);
+        data[2] = static_cast<uint8_t>(value >> 8);
+        data[3] = static_cast<uint8_t>(value);
+        m_length += 4;
+    }
+
+    inline void appendByte(uint8_t value) {
+        *reserve(1) = value;
+        m_length++;
+    }
+
+    void append(const NValue &value, ValueType type) {
+        switch (type) {
+            case VALUE_TYPE_TINYINT:
+                appendByte(static_cast<uint8_t>(ValuePeeker::peekTinyInt(value)) ^ 0x80);
+                break;
+            case VALUE_TYPE_SMALLINT: {
+                uint16_t v = static_cast<uint16_t>(ValuePeeker::peekSmallInt(value)) ^ 0x8000;
+                appendByte(static_cast<uint8_t>(v >> 8));
+                appendByte(static_cast<uint8_t>(v));
+                break;
+            }
+            case VALUE_TYPE_INTEGER:
+                appendUInt32(static_cast<uint32_t>(ValuePeeker::peekInteger(value)) ^ 0x80000000U);
+                break;
+            case VALUE_TYPE_BIGINT:
+                appendUInt64(static_cast<uint64_t>(ValuePeeker::peekBigInt(value)) ^ (1ULL << 63));
+                break;
+            case VALUE_TYPE_TIMESTAMP:
+                appendUInt64(static_cast<uint64_t>(ValuePeeker::peekTimestamp(value)) ^ (1ULL << 63));
+                break;
+            case VALUE_TYPE_DOUBLE: {
+                double d = ValuePeeker::peekDouble(value);
+                if (d == 0.0) d = 0.0; // -0.0 and 0.0 are equal
+                uint64_t bits;
+                ::memcpy(&bits, &d, sizeof(bits));
+                appendUInt64((bits & (1ULL << 63)) ? ~bits : (bits | (1ULL << 63)));
+                break;
+            }
+            case VALUE_TYPE_DECIMAL: {
+                TTInt d = ValuePeeker::peekDecimal(value);
+                const int words = sizeof(d.table) / sizeof(d.table[0]);
+                for (int i = words - 1; i >= 0; i--) {
+                    uint64_t word = static_cast<uint64_t>(d.table[i]);
+                    if (sizeof(d.table[0]) == 4) {
+                        if (i == words - 1) word ^= 0x80000000U;
+                        appendUInt32(static_cast<uint32_t>(word));
+                    } else {
+                        if (i == words - 1) word ^= (1ULL << 63);
+                        appendUInt64(word);
+                    }
+                } // FOR
+                break;
+            }
+            case VALUE_TYPE_VARCHAR: {
+                if (value.isNull()) {
+                    appendByte(0x00);
+                    break;
+                }
+                const uint8_t *str = static_cast<const uint8_t*>(ValuePeeker::peekObjectValue(value));
+                int32_t length = ValuePeeker::peekObjectLength(value);
+                appendByte(0x01);
+                for (int32_t i = 0; i < length; i++) {
+                    appendByte(str[i]);
+                    if (str[i] == 0x00) appendByte(0xFF);
+                } // FOR
+                appendByte(0x00);
+                appendByte(0x00);
+                break;
+            }
+            default:
+                throwFatalException("Unsupported column type %s for a radix tree index key",
+                                    getTypeName(type).c_str());
+        } // SWITCH
+    }
+
+    const TupleSchema *m_keySchema;
+    std::vector<uint8_t> m_buffer;
+    uint32_t m_length;
+};
+
+}
+
+#endif
@@ -0,0 +1,293 @@
+/* Copyright (C) 2014 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#ifndef RADIXTREEMULTIMAPINDEX_H_
+#define RADIXTREEMULTIMAPINDEX_H_
+
+#include <iostream>
+#include <sstream>
+#include "indexes/tableindex.h"
+#include "indexes/AdaptiveRadixTree.h"
+#include "indexes/RadixKey.h"
+#include "common/tabletuple.h"
+
+namespace voltdb {
+
+/**
+ * Non-unique index implemented as an Adaptive Radix Tree. The tree only
+ * holds unique keys, so we add the tuple's address to the end of each
+ * encoded key. All of the entries for the same key are then next to each
+ * other in the tree and we find them with a range scan. Like the unique
+ * index, the tree only stores the tuple's address and encodes the key
+ * from the tuple when it needs it, except for evicted tuples.
+ * @see TableIndex
+ */
+class RadixTreeMultiMapIndex : public TableIndex, private AdaptiveRadixTree::KeyLoader
+{
+    friend class TableIndexFactory;
+
+public:
+
+    ~RadixTreeMultiMapIndex() {};
+
+    bool addEntry(const TableTuple *tuple)
+    {
+        ++m_inserts;
+        m_tmp1.setFromTuple(tuple, column_indices_, m_keySchema);
+        m_tmp1.appendAddress(tuple->address());
+        return m_entries.insert(m_tmp1.data(), m_tmp1.length(), tuple->address());
+    }
+
+    bool deleteEntry(const TableTuple *tuple)
+    {
+        ++m_deletes;
+        m_tmp1.setFromTuple(tuple, column_indices_, m_keySchema);
+        m_tmp1.appendAddress(tuple->address());
+        return m_entries.erase(m_tmp1.data(), m_tmp1.length(), tuple->address());
+    }
+
+    bool replaceEntry(const TableTuple *oldTupleValue,
+                      const TableTuple* newTupleValue)
+    {
+        m_tmp1.setFromTuple(oldTupleValue, column_indices_, m_keySchema);
+        m_tmp2.setFromTuple(newTupleValue, column_indices_, m_keySchema);
+        if (m_tmp1.equals(m_tmp2))
+        {
+            // no update is needed for this index
+            return true;
+        }
+
+        // Like BinaryTreeMultiMapIndex, the old entry is found using
+        // the address of the tuple that now holds the new value
+        m_tmp1.appendAddress(newTupleValue->address());
+        m_tmp2.appendAddress(newTupleValue->address());
+        bool deleted = m_entries.erase(m_tmp1.data(), m_tmp1.length(), newTupleValue->address());
+        bool inserted = m_entries.insert(m_tmp2.data(), m_tmp2.length(), newTupleValue->address());
+        ++m_updates;
+        return (deleted && inserted);
+    }
+
+    bool setEntryToNewAddress(const TableTuple *tuple, const void* address, const void *oldAddress) {
+        m_tmp1.setFromTuple(tuple, column_indices_, m_keySchema);
+        ++m_updates;
+
+        uint32_t length = m_tmp1.length();
+        m_tmp1.appendAddress(oldAddress);
+        if (m_entries.erase(m_tmp1.data(), m_tmp1.length(), oldAddress) == false) {
+            VOLT_INFO("Tuple not found.");
+            //key exists, but not this tuple
+            return false;
+        }
+        m_tmp1.setLength(length);
+        m_tmp1.appendAddress(address);
+        return m_entries.insert(m_tmp1.data(), m_tmp1.length(), address, isEvicted(address));
+    }
+
+    bool checkForIndexChange(const TableTuple *lhs, const TableTuple *rhs)
+    {
+        m_tmp1.setFromTuple(lhs, column_indices_, m_keySchema);
+        m_tmp2.setFromTuple(rhs, column_indices_, m_keySchema);
+        return !(m_tmp1.equals(m_tmp2));
+    }
+
+    bool exists(const TableTuple* values)
+    {
+        ++m_lookups;
+        m_tmp1.setFromTuple(values, column_indices_, m_keySchema);
+        return seekToKey(m_tmp1);
+    }
+
+    bool moveToKey(const TableTuple *searchKey)
+    {
+        m_tmp1.setFromKey(searchKey);
+        return moveToKeyPrivate();
+    }
+
+    bool moveToTuple(const TableTuple *searchTuple)
+    {
+        m_tmp1.setFromTuple(searchTuple, column_indices_, m_keySchema);
+        return moveToKeyPrivate();
+    }
+
+    void moveToKeyOrGreater(const TableTuple *searchKey)
+    {
+        ++m_lookups;
+        m_begin = true;
+        m_tmp1.setFromKey(searchKey);
+        m_tmp1.appendFill(0x00, RadixKey::ADDRESS_LENGTH);
+        m_entries.lowerBound(m_seqIter, m_tmp1.data(), m_tmp1.length(), true);
+    }
+
+    void moveToGreaterThanKey(const TableTuple *searchKey)
+    {
+        ++m_lookups;
+        m_begin = true;
+        m_tmp1.setFromKey(searchKey);
+        m_tmp1.appendFill(0xFF, RadixKey::ADDRESS_LENGTH);
+        m_entries.lowerBound(m_seqIter, m_tmp1.data(), m_tmp1.length(), false);
+    }
+
+    void moveToEnd(bool begin)
+    {
+        ++m_lookups;
+        m_begin = begin;
+        if (begin)
+            m_entries.seekFirst(m_seqIter);
+        else
+            m_entries.seekLast(m_seqIter);
+    }
+
+    TableTuple nextValue()
+    {
+        if (!m_seqIter.isValid())
+            return TableTuple();
+
+        TableTuple retval(m_tupleSchema);
+        retval.move(const_cast<void*>(m_seqIter.value()));
+        if (m_begin)
+            m_seqIter.next();
+        else
+            m_seqIter.prev();
+        return retval;
+    }
+
+    TableTuple nextValueAtKey()
+    {
+        if (m_match.isNullTuple()) return m_match;
+        TableTuple retval = m_match;
+        m_keyIter.next();
+        m_match.move(NULL);
+        if (m_keyIter.isValid()) {
+            uint32_t length = 0;
+            const uint8_t *key = m_keyIter.key(&length);
+            if (m_matchKey.matches(key, length))
+                m_match.move(const_cast<void*>(m_keyIter.value()));
+        }
+        return retval;
+    }
+
+    bool advanceToNextKey()
+    {
+        // Skip over every entry that has the current key
+        m_matchKey.appendFill(0xFF, RadixKey::ADDRESS_LENGTH);
+        m_entries.lowerBound(m_keyIter, m_matchKey.data(), m_matchKey.length(), false);
+        if (!m_keyIter.isValid())
+        {
+            m_match.move(NULL);
+            return false;
+        }
+        uint32_t length = 0;
+        const uint8_t *key = m_keyIter.key(&length);
+        m_matchKey.setFromBytes(key, length - RadixKey::ADDRESS_LENGTH);
+        m_match.move(const_cast<void*>(m_keyIter.value()));
+        return !m_match.isNullTuple();
+    }
+
+    size_t getSize() const { return m_entries.size(); }
+
+    int64_t getMemoryEstimate() const {
+        return m_memoryEstimate;
+    }
+
+    std::string getTypeName() const { return "RadixTreeMultiMapIndex"; };
+
+protected:
+    RadixTreeMultiMapIndex(const TableIndexScheme &scheme) :
+        TableIndex(scheme),
+        m_entries(this, &m_memoryEstimate),
+        m_begin(true)
+    {
+        m_match = TableTuple(m_tupleSchema);
+        m_loadTuple = TableTuple(m_tupleSchema);
+        m_tmp1.init(m_keySchema);
+        m_tmp2.init(m_keySchema);
+        m_matchKey.init(m_keySchema);
+        m_loadKey.init(m_keySchema);
+    }
+
+    const uint8_t* loadKey(const void *value, uint32_t *length) const
+    {
+        m_loadTuple.move(const_cast<void*>(value));
+        m_loadKey.setFromTuple(&m_loadTuple, column_indices_, m_keySchema);
+        m_loadKey.appendAddress(value);
+        *length = m_loadKey.length();
+        return m_loadKey.data();
+    }
+
+    inline bool isEvicted(const void *address)
+    {
+        m_loadTuple.move(const_cast<void*>(address));
+        return m_loadTuple.isEvicted();
+    }
+
+    /**
+     * Position m_keyIter at the first entry for the given key.
+     * Returns false if there are no entries for the key.
+     */
+    inline bool seekToKey(RadixKey &key)
+    {
+        uint32_t length = key.length();
+        key.appendFill(0x00, RadixKey::ADDRESS_LENGTH);
+        m_entries.lowerBound(m_keyIter, key.data(), key.length(), true);
+        key.setLength(length);
+        if (!m_keyIter.isValid()) return false;
+        uint32_t found = 0;
+        const uint8_t *foundKey = m_keyIter.key(&found);
+        return (found == length + RadixKey::ADDRESS_LENGTH && key.matches(foundKey, found));
+    }
+
+    inline bool moveToKeyPrivate()
+    {
+        ++m_lookups;
+        m_begin = true;
+        if (seekToKey(m_tmp1) == false)
+        {
+            m_match.move(NULL);
+            return false;
+        }
+        m_matchKey.setFromBytes(m_tmp1.data(), m_tmp1.length());
+        m_match.move(const_cast<void*>(m_keyIter.value()));
+        return !m_match.isNullTuple();
+    }
+
+    AdaptiveRadixTree m_entries;
+    RadixKey m_tmp1;
+    RadixKey m_tmp2;
+
+    // key loading stuff
+    mutable RadixKey m_loadKey;
+    mutable TableTuple m_loadTuple;
+
+    // iteration stuff
+    bool m_begin;
+    AdaptiveRadixTree::Iterator m_keyIter;
+    AdaptiveRadixTree::Iterator m_seqIter;
+    RadixKey m_matchKey;
+    TableTuple m_match;
+};
+
+}
+
+#endif // RADIXTREEMULTIMAPINDEX_H_
@@ -0,0 +1,272 @@
+/* Copyright (C) 2014 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#ifndef RADIXTREEUNIQUEINDEX_H_
+#define RADIXTREEUNIQUEINDEX_H_
+
+#include <iostream>
+#include <sstream>
+#include "indexes/tableindex.h"
+#include "indexes/AdaptiveRadixTree.h"
+#include "indexes/RadixKey.h"
+#include "common/tabletuple.h"
+
+namespace voltdb {
+
+/**
+ * Unique index implemented as an Adaptive Radix Tree. The key columns are
+ * encoded with RadixKey so that the tree's byte order is the same as the
+ * order of a BinaryTreeUniqueIndex on the same columns. The tree only
+ * stores the tuple's address and encodes the key from the tuple when it
+ * needs it, except for evicted tuples whose keys have to be pinned.
+ * @see TableIndex
+ */
+class RadixTreeUniqueIndex : public TableIndex, private AdaptiveRadixTree::KeyLoader
+{
+    friend class TableIndexFactory;
+
+public:
+
+    ~RadixTreeUniqueIndex() {};
+
+    bool addEntry(const TableTuple* tuple)
+    {
+        ++m_inserts;
+        m_tmp1.setFromTuple(tuple, column_indices_, m_keySchema);
+        return m_entries.insert(m_tmp1.data(), m_tmp1.length(), tuple->address());
+    }
+
+    bool deleteEntry(const TableTuple* tuple)
+    {
+        ++m_deletes;
+        m_tmp1.setFromTuple(tuple, column_indices_, m_keySchema);
+        return m_entries.erase(m_tmp1.data(), m_tmp1.length(), tuple->address());
+    }
+
+    bool replaceEntry(const TableTuple* oldTupleValue,
+                      const TableTuple* newTupleValue)
+    {
+        m_tmp1.setFromTuple(oldTupleValue, column_indices_, m_keySchema);
+        m_tmp2.setFromTuple(newTupleValue, column_indices_, m_keySchema);
+        if (m_tmp1.equals(m_tmp2))
+        {
+            // no update is needed for this index
+            return true;
+        }
+
+        // The tuple may already hold the new value, so the old entry
+        // is found using its address instead of its key
+        bool deleted = m_entries.erase(m_tmp1.data(), m_tmp1.length(), newTupleValue->address());
+        bool inserted = m_entries.insert(m_tmp2.data(), m_tmp2.length(), newTupleValue->address());
+        ++m_updates;
+        return (deleted && inserted);
+    }
+
+    bool setEntryToNewAddress(const TableTuple *tuple, const void* address, const void *oldAddress) {
+        m_tmp1.setFromTuple(tuple, column_indices_, m_keySchema);
+        ++m_updates;
+        return m_entries.update(m_tmp1.data(), m_tmp1.length(), address, isEvicted(address));
+    }
+
+    bool checkForIndexChange(const TableTuple* lhs, const TableTuple* rhs)
+    {
+        m_tmp1.setFromTuple(lhs, column_indices_, m_keySchema);
+        m_tmp2.setFromTuple(rhs, column_indices_, m_keySchema);
+        return !(m_tmp1.equals(m_tmp2));
+    }
+
+    bool exists(const TableTuple* values)
+    {
+        ++m_lookups;
+        m_tmp1.setFromTuple(values, column_indices_, m_keySchema);
+        // The tuple that is being updated already holds the new value,
+        // so it would find itself here
+        const void *value = m_entries.find(m_tmp1.data(), m_tmp1.length());
+        return (value != NULL && value != values->address());
+    }
+
+    bool moveToKey(const TableTuple* searchKey)
+    {
+        m_tmp1.setFromKey(searchKey);
+        return moveToKeyPrivate();
+    }
+
+    bool moveToTuple(const TableTuple* searchTuple)
+    {
+        m_tmp1.setFromTuple(searchTuple, column_indices_, m_keySchema);
+        return moveToKeyPrivate();
+    }
+
+    void moveToKeyOrGreater(const TableTuple* searchKey)
+    {
+        ++m_lookups;
+        m_begin = true;
+        m_tmp1.setFromKey(searchKey);
+        m_entries.lowerBound(m_keyIter, m_tmp1.data(), m_tmp1.length(), true);
+    }
+
+    void moveToGreaterThanKey(const TableTuple* searchKey)
+    {
+        ++m_lookups;
+        m_begin = true;
+        m_tmp1.setFromKey(searchKey);
+        m_entries.lowerBound(m_keyIter, m_tmp1.data(), m_tmp1.length(), false);
+    }
+
+    void moveToEnd(bool begin)
+    {
+        ++m_lookups;
+        m_begin = begin;
+        if (begin)
+            m_entries.seekFirst(m_keyIter);
+        else
+            m_entries.seekLast(m_keyIter);
+    }
+
+    TableTuple nextValue()
+    {
+        if (!m_keyIter.isValid())
+            return TableTuple();
+
+        TableTuple retval(m_tupleSchema);
+        retval.move(const_cast<void*>(m_keyIter.value()));
+        if (m_begin)
+            m_keyIter.next();
+        else
+            m_keyIter.prev();
+        return retval;
+    }
+
+    TableTuple nextValueAtKey()
+    {
+        TableTuple retval = m_match;
+        m_match.move(NULL);
+        return retval;
+    }
+
+    bool advanceToNextKey()
+    {
+        if (m_keyIter.isValid()) {
+            if (m_begin)
+                m_keyIter.next();
+            else
+                m_keyIter.prev();
+        }
+        if (!m_keyIter.isValid())
+        {
+            m_match.move(NULL);
+            return false;
+        }
+        m_match.move(const_cast<void*>(m_keyIter.value()));
+        return !m_match.isNullTuple();
+    }
+
+    size_t getSize() const { return m_entries.size(); }
+
+    int64_t getMemoryEstimate() const {
+        return m_memoryEstimate;
+    }
+
+    std::string getTypeName() const { return "RadixTreeUniqueIndex"; };
+    std::string debug() const
+    {
+        std::ostringstream buffer;
+        buffer << TableIndex::debug() << std::endl;
+
+        AdaptiveRadixTree::Iterator i;
+        m_entries.seekFirst(i);
+        while (i.isValid()) {
+            TableTuple retval(m_tupleSchema);
+            retval.move(const_cast<void*>(i.value()));
+            buffer << retval.debugNoHeader() << std::endl;
+            i.next();
+        }
+        std::string ret(buffer.str());
+        return (ret);
+    }
+
+protected:
+    RadixTreeUniqueIndex(const TableIndexScheme &scheme) :
+        TableIndex(scheme),
+        m_entries(this, &m_memoryEstimate),
+        m_begin(true)
+    {
+        m_match = TableTuple(m_tupleSchema);
+        m_loadTuple = TableTuple(m_tupleSchema);
+        m_tmp1.init(m_keySchema);
+        m_tmp2.init(m_keySchema);
+        m_loadKey.init(m_keySchema);
+    }
+
+    const uint8_t* loadKey(const void *value, uint32_t *length) const
+    {
+        m_loadTuple.move(const_cast<void*>(value));
+        m_loadKey.setFromTuple(&m_loadTuple, column_indices_, m_keySchema);
+        *length = m_loadKey.length();
+        return m_loadKey.data();
+    }
+
+    inline bool isEvicted(const void *address)
+    {
+        m_loadTuple.move(const_cast<void*>(address));
+        return m_loadTuple.isEvicted();
+    }
+
+    inline bool moveToKeyPrivate()
+    {
+        ++m_lookups;
+        m_begin = true;
+        m_entries.lowerBound(m_keyIter, m_tmp1.data(), m_tmp1.length(), true);
+        if (!m_keyIter.isValid()) {
+            m_match.move(NULL);
+            return false;
+        }
+        uint32_t length = 0;
+        const uint8_t *key = m_keyIter.key(&length);
+        if (length != m_tmp1.length() || !m_tmp1.matches(key, length)) {
+            m_match.move(NULL);
+            return false;
+        }
+        m_match.move(const_cast<void*>(m_keyIter.value()));
+        return !m_match.isNullTuple();
+    }
+
+    AdaptiveRadixTree m_entries;
+    RadixKey m_tmp1;
+    RadixKey m_tmp2;
+
+    // key loading stuff
+    mutable RadixKey m_loadKey;
+    mutable TableTuple m_loadTuple;
+
+    // iteration stuff
+    bool m_begin;
+    AdaptiveRadixTree::Iterator m_keyIter;
+    TableTuple m_match;
+};
+
+}
+
+#endif // RADIXTREEUNIQUEINDEX_H_
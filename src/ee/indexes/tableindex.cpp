@@ -83,6 +83,17 @@ TableIndex::~TableIndex()
     voltdb::TupleSchema::freeTupleSchema(m_keySchema);
 }
 
+bool TableIndex::addEntries(TableTuple &tuple, const std::vector<char*> &addresses)
+{
+    ensureCapacity(static_cast<uint32_t>(getSize() + addresses.size()));
+    bool success = true;
+    for (size_t i = 0; i < addresses.size(); i++) {
+        tuple.move(addresses[i]);
+        success = addEntry(&tuple) && success;
+    }
+    return success;
+}
+
 IndexStats* TableIndex::getIndexStats() {
     return &m_stats;
 }
@@ -132,6 +132,14 @@ public:
      */
     virtual bool addEntry(const TableTuple *tuple) = 0;
 
+    /**
+     * adds an index entry for each of the tuples at the given addresses.
+     * The passed tuple is moved to each address in turn. Indexes that can
+     * build themselves faster from sorted keys override this.
+     * Returns false if any of the entries could not be added.
+     */
+    virtual bool addEntries(TableTuple &tuple, const std::vector<char*> &addresses);
+
     /**
      * removes the index entry linked to given value (and tuple
      * pointer, if it's non-unique index).
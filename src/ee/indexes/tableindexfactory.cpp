@@ -55,6 +55,8 @@
 #include "indexes/BinaryTreeMultiMapIndex.h"
 #include "indexes/HashTableUniqueIndex.h"
 #include "indexes/HashTableMultiMapIndex.h"
+#include "indexes/RadixTreeUniqueIndex.h"
+#include "indexes/RadixTreeMultiMapIndex.h"
 
 namespace voltdb {
 
@@ -83,6 +85,14 @@ namespace voltdb {
             ints_only = false;
         }
         
+        // the radix tree encodes the keys itself so it doesn't need any specializations
+        if (type == RADIX_TREE_INDEX) {
+            if (unique) {
+                return new RadixTreeUniqueIndex(schemeCopy);
+            }
+            return new RadixTreeMultiMapIndex(schemeCopy);
+        }
+
         // a bit of a hack, this should be improved later
         if ((ints_only) && (unique) && (type == ARRAY_INDEX)) {
             return new ArrayUniqueIndex(schemeCopy);
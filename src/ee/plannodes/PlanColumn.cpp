@@ -23,7 +23,7 @@ using namespace json_spirit;
 using namespace std;
 using namespace voltdb;
 
-PlanColumn::PlanColumn(Object& colObject) : m_colObject(colObject)
+PlanColumn::PlanColumn(const Object& colObject) : m_colObject(colObject)
 {
     bool contains_guid = false;
     bool contains_name = false;
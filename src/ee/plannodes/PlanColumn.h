@@ -38,7 +38,7 @@ namespace voltdb
 class PlanColumn
 {
 public:
-    PlanColumn(json_spirit::Object& colObject);
+    PlanColumn(const json_spirit::Object& colObject);
 
     int getGuid() const;
     std::string getName() const;
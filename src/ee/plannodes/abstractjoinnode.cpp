@@ -131,7 +131,7 @@ AbstractJoinPlanNode::setOutputColumnGuids(vector<int> output_column_guids)
 }
 
 void
-AbstractJoinPlanNode::loadFromJSONObject(Object& obj,
+AbstractJoinPlanNode::loadFromJSONObject(const Object& obj,
                                          const catalog::Database* catalog_db)
 {
     Value joinTypeValue = find_value(obj, "JOIN_TYPE");
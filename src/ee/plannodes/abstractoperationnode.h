@@ -67,8 +67,8 @@ class AbstractOperationPlanNode : public AbstractPlanNode {
         virtual std::string debugInfo(const std::string &spacer) const;
 
     protected:
-        friend AbstractPlanNode* AbstractPlanNode::fromJSONObject(json_spirit::Object &obj, const catalog::Database *catalog_db);
-        virtual void loadFromJSONObject(json_spirit::Object &obj, const catalog::Database *catalog_db);
+        friend AbstractPlanNode* AbstractPlanNode::fromJSONObject(const json_spirit::Object &obj, const catalog::Database *catalog_db);
+        virtual void loadFromJSONObject(const json_spirit::Object &obj, const catalog::Database *catalog_db);
         AbstractOperationPlanNode(int32_t id) : AbstractPlanNode(id) {
             target_table = NULL;
             target_table_name = "NOT_SPECIFIED";
@@ -232,7 +232,7 @@ AbstractPlanNode::getOutputColumnGuids() const
 //  Serialization Functions
 // ----------------------------------------------------
 AbstractPlanNode*
-AbstractPlanNode::fromJSONObject(Object &obj, const catalog::Database *catalog_db) {
+AbstractPlanNode::fromJSONObject(const Object &obj, const catalog::Database *catalog_db) {
 
     Value typeValue = find_value(obj, "PLAN_NODE_TYPE");
     if (typeValue == Value::null)
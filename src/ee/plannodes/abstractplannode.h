@@ -118,7 +118,7 @@ public:
     // UTILITY METHODS
     // ------------------------------------------------------------------
     static AbstractPlanNode*
-    fromJSONObject(json_spirit::Object& obj,
+    fromJSONObject(const json_spirit::Object& obj,
                    const catalog::Database* catalog_db);
 
     virtual int getColumnIndexFromGuid(int guid,
@@ -141,7 +141,7 @@ public:
     }
 
 protected:
-    virtual void loadFromJSONObject(json_spirit::Object& obj,
+    virtual void loadFromJSONObject(const json_spirit::Object& obj,
                                     const catalog::Database *catalog_db) = 0;
     AbstractPlanNode(int32_t plannode_id);
     AbstractPlanNode();
@@ -176,7 +176,7 @@ AbstractScanPlanNode::getColumnIndexFromGuid(int guid,
 }
 
 void
-AbstractScanPlanNode::loadFromJSONObject(json_spirit::Object& obj,
+AbstractScanPlanNode::loadFromJSONObject(const json_spirit::Object& obj,
                                          const catalog::Database* catalog_db)
 {
     Value outputColumnsValue = find_value(obj, "OUTPUT_COLUMNS");
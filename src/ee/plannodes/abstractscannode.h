@@ -73,9 +73,9 @@ public:
 
 protected:
     friend AbstractPlanNode*
-        AbstractPlanNode::fromJSONObject(json_spirit::Object &obj,
+        AbstractPlanNode::fromJSONObject(const json_spirit::Object &obj,
                                          const catalog::Database *catalog_db);
-    virtual void loadFromJSONObject(json_spirit::Object &obj,
+    virtual void loadFromJSONObject(const json_spirit::Object &obj,
                                     const catalog::Database *catalog_db);
 
     int getColumnIndexFromName(std::string name,
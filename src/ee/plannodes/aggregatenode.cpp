@@ -280,7 +280,7 @@ string AggregatePlanNode::debugInfo(const string &spacer) const {
 }
 
 void
-AggregatePlanNode::loadFromJSONObject(Object &obj,
+AggregatePlanNode::loadFromJSONObject(const Object &obj,
                                       const catalog::Database *catalog_db)
 {
     Value outputColumnsValue = find_value(obj, "OUTPUT_COLUMNS");
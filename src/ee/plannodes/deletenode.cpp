@@ -62,7 +62,7 @@ DeletePlanNode::~DeletePlanNode() {
     }
 }
 
-void DeletePlanNode::loadFromJSONObject(json_spirit::Object &obj, const catalog::Database *catalog_db) {
+void DeletePlanNode::loadFromJSONObject(const json_spirit::Object &obj, const catalog::Database *catalog_db) {
     AbstractOperationPlanNode::loadFromJSONObject(obj, catalog_db);
     json_spirit::Value truncateValue = json_spirit::find_value( obj, "TRUNCATE");
     if (truncateValue == json_spirit::Value::null) {
@@ -68,8 +68,8 @@ class DeletePlanNode : public AbstractOperationPlanNode {
         void setTruncate(bool truncate) { this->truncate = truncate; }
 
     protected:
-        friend AbstractPlanNode* AbstractPlanNode::fromJSONObject(json_spirit::Object &obj, const catalog::Database *catalog_db);
-        virtual void loadFromJSONObject(json_spirit::Object &obj, const catalog::Database *catalog_db);
+        friend AbstractPlanNode* AbstractPlanNode::fromJSONObject(const json_spirit::Object &obj, const catalog::Database *catalog_db);
+        virtual void loadFromJSONObject(const json_spirit::Object &obj, const catalog::Database *catalog_db);
         /** true if all tuples are deleted. */
         bool truncate;
 };
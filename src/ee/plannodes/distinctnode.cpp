@@ -126,7 +126,7 @@ DistinctPlanNode::debugInfo(const string &spacer) const
 }
 
 void
-DistinctPlanNode::loadFromJSONObject(json_spirit::Object& obj,
+DistinctPlanNode::loadFromJSONObject(const json_spirit::Object& obj,
                                      const catalog::Database* catalog_db)
 {
     json_spirit::Value distinctColumnGuidValue =
@@ -96,8 +96,8 @@ class IndexScanPlanNode : public AbstractScanPlanNode {
         std::string debugInfo(const std::string &spacer) const;
 
     protected:
-        friend AbstractPlanNode* AbstractPlanNode::fromJSONObject(json_spirit::Object &obj, const catalog::Database *catalog_db);
-        virtual void loadFromJSONObject(json_spirit::Object &obj, const catalog::Database *catalog_db);
+        friend AbstractPlanNode* AbstractPlanNode::fromJSONObject(const json_spirit::Object &obj, const catalog::Database *catalog_db);
+        virtual void loadFromJSONObject(const json_spirit::Object &obj, const catalog::Database *catalog_db);
         //
         // This is the id of the index to reference during execution
         //
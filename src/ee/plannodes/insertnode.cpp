@@ -52,7 +52,7 @@
 
 namespace voltdb {
 
-void InsertPlanNode::loadFromJSONObject(json_spirit::Object &obj, const catalog::Database *catalog_db) {
+void InsertPlanNode::loadFromJSONObject(const json_spirit::Object &obj, const catalog::Database *catalog_db) {
     AbstractOperationPlanNode::loadFromJSONObject(obj, catalog_db);
     json_spirit::Value multiPartitionValue = json_spirit::find_value(obj, "MULTI_PARTITION");
     if (multiPartitionValue == json_spirit::Value::null) {
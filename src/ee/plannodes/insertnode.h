@@ -69,8 +69,8 @@ class InsertPlanNode : public AbstractOperationPlanNode {
         bool isMultiPartition() { return m_multiPartition; }
 
     protected:
-        friend AbstractPlanNode* AbstractPlanNode::fromJSONObject(json_spirit::Object &obj, const catalog::Database *catalog_db);
-        virtual void loadFromJSONObject(json_spirit::Object &obj, const catalog::Database *catalog_db);
+        friend AbstractPlanNode* AbstractPlanNode::fromJSONObject(const json_spirit::Object &obj, const catalog::Database *catalog_db);
+        virtual void loadFromJSONObject(const json_spirit::Object &obj, const catalog::Database *catalog_db);
 
         bool m_multiPartition;
 };
@@ -103,8 +103,8 @@ class LimitPlanNode : public AbstractPlanNode {
         std::string debugInfo(const std::string &spacer) const;
 
     protected:
-        friend AbstractPlanNode* AbstractPlanNode::fromJSONObject(json_spirit::Object &obj, const catalog::Database *catalog_db);
-        virtual void loadFromJSONObject(json_spirit::Object &obj, const catalog::Database *catalog_db);
+        friend AbstractPlanNode* AbstractPlanNode::fromJSONObject(const json_spirit::Object &obj, const catalog::Database *catalog_db);
+        virtual void loadFromJSONObject(const json_spirit::Object &obj, const catalog::Database *catalog_db);
         int limit;
         int offset;
         int limitParamIdx;
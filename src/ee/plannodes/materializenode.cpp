@@ -66,7 +66,7 @@ std::string MaterializePlanNode::debugInfo(const std::string &spacer) const {
     return (buffer.str());
 }
 
-void MaterializePlanNode::loadFromJSONObject(json_spirit::Object &obj, const catalog::Database *catalog_db) {
+void MaterializePlanNode::loadFromJSONObject(const json_spirit::Object &obj, const catalog::Database *catalog_db) {
     ProjectionPlanNode::loadFromJSONObject( obj, catalog_db);
     json_spirit::Value batchedValue = json_spirit::find_value( obj, "BATCHED");
     if (batchedValue == json_spirit::Value::null) {
@@ -157,7 +157,7 @@ OrderByPlanNode::debugInfo(const string& spacer) const
 }
 
 void
-OrderByPlanNode::loadFromJSONObject(json_spirit::Object& obj,
+OrderByPlanNode::loadFromJSONObject(const json_spirit::Object& obj,
                                     const catalog::Database* catalog_db)
 {
     json_spirit::Value sortColumnsValue =
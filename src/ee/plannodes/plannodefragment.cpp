@@ -88,9 +88,11 @@ PlanNodeFragment::~PlanNodeFragment() {
     }
 }
 
-PlanNodeFragment *
-PlanNodeFragment::createFromCatalog(const string hex_string,
-                                    const catalog::Database *catalog_db)
+PlanNodeFragment::SharedPlanMap PlanNodeFragment::m_sharedPlans;
+pthread_mutex_t PlanNodeFragment::m_sharedPlansMutex = PTHREAD_MUTEX_INITIALIZER;
+
+boost::shared_ptr<const json_spirit::Value>
+PlanNodeFragment::parseFromCatalog(const string &hex_string)
 {
     //cout << "PlanNodeFragment::createFromCatalog: hex_string.size() == " << hex_string.size() << endl;
     assert (hex_string.size() % 2 == 0);
@@ -98,17 +100,99 @@ PlanNodeFragment::createFromCatalog(const string hex_string,
     boost::shared_array<char> buffer(new char[buffer_length]);
     catalog::Catalog::hexDecodeString(hex_string, buffer.get());
     std::string bufferString( buffer.get() );
-    json_spirit::Value value;
-    json_spirit::read( bufferString, value );
+    json_spirit::Value *value = new json_spirit::Value();
+    json_spirit::read( bufferString, *value );
+    return boost::shared_ptr<const json_spirit::Value>(value);
+}
+
+PlanNodeFragment *
+PlanNodeFragment::createFromCatalog(const string hex_string,
+                                    const catalog::Database *catalog_db)
+{
+    boost::shared_ptr<const json_spirit::Value> value = parseFromCatalog(hex_string);
+    return PlanNodeFragment::fromJSONObject(value->get_obj(), catalog_db);
+}
+
+boost::shared_ptr<const json_spirit::Value>
+PlanNodeFragment::getSharedPlan(int catalogVersion, int64_t fragId,
+                                const std::string &hex_string,
+                                const catalog::Database *catalog_db)
+{
+    // Every partition's engine loads the same catalog, so only the first
+    // one to get here has to parse and check the plan. The others reuse it.
+    SharedPlanKey key(catalogVersion, fragId);
+    boost::shared_ptr<const json_spirit::Value> value;
+    pthread_mutex_lock(&m_sharedPlansMutex);
+    SharedPlanMap::const_iterator iter = m_sharedPlans.find(key);
+    if (iter != m_sharedPlans.end()) {
+        value = iter->second;
+    }
+    pthread_mutex_unlock(&m_sharedPlansMutex);
+    if (value.get() != NULL) {
+        return value;
+    }
+
+    // We don't hold the lock while parsing. It's ok if two engines
+    // parse the same plan at the same time.
+    value = parseFromCatalog(hex_string);
+    if (value->type() != json_spirit::obj_type) {
+        throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION,
+                                      "Failure while loading a PlanNodeList. "
+                                      "The plan is not a JSON object");
+    }
+    // Build the fragment once so that a bad plan is caught now
+    // and not when a txn tries to execute it
+    delete PlanNodeFragment::fromJSONObject(value->get_obj(), catalog_db);
+
+    pthread_mutex_lock(&m_sharedPlansMutex);
+    m_sharedPlans.insert(std::make_pair(key, value));
+    pthread_mutex_unlock(&m_sharedPlansMutex);
+    return value;
+}
+
+void
+PlanNodeFragment::loadSharedPlan(int catalogVersion, int64_t fragId,
+                                 const std::string &hex_string,
+                                 const catalog::Database *catalog_db)
+{
+    getSharedPlan(catalogVersion, fragId, hex_string, catalog_db);
+}
+
+PlanNodeFragment *
+PlanNodeFragment::createFromSharedPlan(int catalogVersion, int64_t fragId,
+                                       const std::string &hex_string,
+                                       const catalog::Database *catalog_db)
+{
+    boost::shared_ptr<const json_spirit::Value> value =
+        getSharedPlan(catalogVersion, fragId, hex_string, catalog_db);
+    return PlanNodeFragment::fromJSONObject(value->get_obj(), catalog_db);
+}
 
-    return PlanNodeFragment::fromJSONObject(value.get_obj(), catalog_db);
+void
+PlanNodeFragment::releaseSharedPlans(int catalogVersion)
+{
+    pthread_mutex_lock(&m_sharedPlansMutex);
+    SharedPlanMap::iterator iter = m_sharedPlans.begin();
+    while (iter != m_sharedPlans.end() && iter->first.first < catalogVersion) {
+        m_sharedPlans.erase(iter++);
+    }
+    pthread_mutex_unlock(&m_sharedPlansMutex);
+}
+
+size_t
+PlanNodeFragment::getSharedPlanCount()
+{
+    pthread_mutex_lock(&m_sharedPlansMutex);
+    size_t count = m_sharedPlans.size();
+    pthread_mutex_unlock(&m_sharedPlansMutex);
+    return count;
 }
 
 PlanNodeFragment *
-PlanNodeFragment::fromJSONObject(json_spirit::Object &obj,
+PlanNodeFragment::fromJSONObject(const json_spirit::Object &obj,
                                  const catalog::Database *catalog_db)
 {
-    json_spirit::Value planNodesValue = json_spirit::find_value( obj, "PLAN_NODES");
+    const json_spirit::Value &planNodesValue = json_spirit::find_value( obj, "PLAN_NODES");
     if (planNodesValue == json_spirit::Value::null) {
         throwFatalException("Failure attempting to load plan a plan node fragment from a "
                                  "json_spirit::Object. There was no value \"PLAN_NODES\"");
@@ -116,7 +200,7 @@ PlanNodeFragment::fromJSONObject(json_spirit::Object &obj,
 
     PlanNodeFragment * pnf = new PlanNodeFragment();
     // read and construct plannodes from json object
-    json_spirit::Array planNodesArray = planNodesValue.get_array();
+    const json_spirit::Array &planNodesArray = planNodesValue.get_array();
     for (int ii = 0; ii < planNodesArray.size(); ii++) {
         AbstractPlanNode *node = NULL;
         try {
@@ -156,7 +240,7 @@ PlanNodeFragment::fromJSONObject(json_spirit::Object &obj,
 }
 
 void
-PlanNodeFragment::loadFromJSONObject(json_spirit::Object &obj)
+PlanNodeFragment::loadFromJSONObject(const json_spirit::Object &obj)
 {
     json_spirit::Value executeListValue = json_spirit::find_value( obj, "EXECUTE_LIST");
     if (executeListValue == json_spirit::Value::null) {
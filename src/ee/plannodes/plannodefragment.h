@@ -50,7 +50,9 @@
 #include <vector>
 #include <map>
 #include <list>
+#include <pthread.h>
 
+#include "boost/shared_ptr.hpp"
 #include "json_spirit/json_spirit.h"
 #include "common/common.h"
 #include "common/serializeio.h"
@@ -76,8 +78,27 @@ class PlanNodeFragment {
     static PlanNodeFragment * createFromCatalog(const std::string,
                                                 const catalog::Database *catalog_db);
 
+    // parse and check the catalog's serialization of a fragment and keep it
+    // in the process-wide cache for every engine on the same catalog version.
+    // throws a SerializableEEException if the plan is invalid.
+    static void loadSharedPlan(int catalogVersion, int64_t fragId,
+                               const std::string &hex_string,
+                               const catalog::Database *catalog_db);
+
+    // construct a new fragment from the process-wide cache. the plan is
+    // parsed and cached first if loadSharedPlan() was not called for it.
+    static PlanNodeFragment * createFromSharedPlan(int catalogVersion, int64_t fragId,
+                                                   const std::string &hex_string,
+                                                   const catalog::Database *catalog_db);
+
+    // free the cached plans of every catalog version before this one
+    static void releaseSharedPlans(int catalogVersion);
+
+    // the number of parsed plans in the process-wide cache
+    static size_t getSharedPlanCount();
+
     // construct a new fragment from a serialized json object
-    static PlanNodeFragment* fromJSONObject(json_spirit::Object &obj,
+    static PlanNodeFragment* fromJSONObject(const json_spirit::Object &obj,
                                             const catalog::Database *catalog_db);
 
     // construct a new fragment from a root node (used by testcode)
@@ -105,7 +126,22 @@ class PlanNodeFragment {
   private:
 
     // reads execute list from plannodelist json objects
-    void loadFromJSONObject(json_spirit::Object &obj);
+    void loadFromJSONObject(const json_spirit::Object &obj);
+
+    // decode and parse the catalog's serialization of a plan
+    static boost::shared_ptr<const json_spirit::Value> parseFromCatalog(const std::string &hex_string);
+
+    static boost::shared_ptr<const json_spirit::Value> getSharedPlan(int catalogVersion, int64_t fragId,
+                                                                     const std::string &hex_string,
+                                                                     const catalog::Database *catalog_db);
+
+    // Parsed plans that are shared by every engine in this process
+    // The key is the catalog version and the fragment id so that we never
+    // return a stale plan after a catalog update
+    typedef std::pair<int, int64_t> SharedPlanKey;
+    typedef std::map<SharedPlanKey, boost::shared_ptr<const json_spirit::Value> > SharedPlanMap;
+    static SharedPlanMap m_sharedPlans;
+    static pthread_mutex_t m_sharedPlansMutex;
 
     // serialized java type: org.voltdb.plannodes.PlanNode[List|Tree]
     std::string m_serializedType;
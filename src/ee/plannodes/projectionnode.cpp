@@ -191,7 +191,7 @@ ProjectionPlanNode::debugInfo(const string& spacer) const
 
 
 void
-ProjectionPlanNode::loadFromJSONObject(json_spirit::Object& obj,
+ProjectionPlanNode::loadFromJSONObject(const json_spirit::Object& obj,
                                        const catalog::Database *catalog_db)
 {
     json_spirit::Value outputColumnsValue =
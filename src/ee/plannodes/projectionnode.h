@@ -84,10 +84,10 @@ class ProjectionPlanNode : public AbstractPlanNode
 
  protected:
     friend AbstractPlanNode*
-        AbstractPlanNode::fromJSONObject(json_spirit::Object& obj,
+        AbstractPlanNode::fromJSONObject(const json_spirit::Object& obj,
                                          const catalog::Database* catalog_db);
 
-    virtual void loadFromJSONObject(json_spirit::Object& obj,
+    virtual void loadFromJSONObject(const json_spirit::Object& obj,
                                     const catalog::Database* catalog_db);
     //
     // The node must define what the columns in the output table are
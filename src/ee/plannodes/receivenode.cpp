@@ -147,7 +147,7 @@ ReceivePlanNode::debugInfo(const string& spacer) const
 }
 
 void
-ReceivePlanNode::loadFromJSONObject(json_spirit::Object& obj,
+ReceivePlanNode::loadFromJSONObject(const json_spirit::Object& obj,
                                     const catalog::Database *catalog_db)
 {
     json_spirit::Value outputColumnsValue =
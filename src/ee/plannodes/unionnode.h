@@ -64,8 +64,8 @@ class UnionPlanNode : public AbstractPlanNode {
         virtual PlanNodeType getPlanNodeType() const { return (PLAN_NODE_TYPE_UNION); }
 
         std::string debugInfo(const std::string &spacer) const;
-        friend AbstractPlanNode* AbstractPlanNode::fromJSONObject(json_spirit::Object &obj, const catalog::Database *catalog_db);
-        virtual void loadFromJSONObject(json_spirit::Object &obj, const catalog::Database *catalog_db) {}
+        friend AbstractPlanNode* AbstractPlanNode::fromJSONObject(const json_spirit::Object &obj, const catalog::Database *catalog_db);
+        virtual void loadFromJSONObject(const json_spirit::Object &obj, const catalog::Database *catalog_db) {}
 };
 
 }
@@ -52,7 +52,7 @@
 
 namespace voltdb {
 
-void UpdatePlanNode::loadFromJSONObject(json_spirit::Object &obj, const catalog::Database *catalog_db) {
+void UpdatePlanNode::loadFromJSONObject(const json_spirit::Object &obj, const catalog::Database *catalog_db) {
     AbstractOperationPlanNode::loadFromJSONObject(obj, catalog_db);
     json_spirit::Value updatesIndexesValue = json_spirit::find_value( obj, "UPDATES_INDEXES");
     if (updatesIndexesValue == json_spirit::Value::null) {
@@ -26,6 +26,7 @@
 #include "common/debuglog.h"
 #include "common/FatalException.hpp"
 #include "common/ValueFactory.hpp"
+#include "common/serializeio.h"
 #include "storage/ReadWriteTracker.h"
 #include "storage/tablefactory.h"
 
@@ -40,43 +41,38 @@ ReadWriteTracker::ReadWriteTracker(int64_t txnId) :
 }
 
 ReadWriteTracker::~ReadWriteTracker() {
-    boost::unordered_map<std::string, RowOffsets*>::const_iterator iter;
-    
-    iter = this->reads.begin();
-    while (iter != this->reads.end()) {
-        delete iter->second;
-        iter++;
-    } // WHILE
-    
-    iter = this->writes.begin();
-    while (iter != this->writes.end()) {
-        delete iter->second;
-        iter++;
-    } // WHILE
+    this->clear();
 }
 
-void ReadWriteTracker::insertTuple(boost::unordered_map<std::string, RowOffsets*> *map, Table *table, TableTuple *tuple) {
+void ReadWriteTracker::insertTuple(boost::unordered_map<std::string, RowOffsets*> *map,
+                                   boost::unordered_map<std::string, TupleSummary*> *summaries,
+                                   Table *table, TableTuple *tuple) {
     RowOffsets *offsets = NULL;
+    TupleSummary *summary = NULL;
     const std::string tableName = table->name();
     boost::unordered_map<std::string, RowOffsets*>::const_iterator iter = map->find(tableName);
     if (iter != map->end()) {
         offsets = iter->second;
+        summary = summaries->find(tableName)->second;
     } else {
         offsets = new RowOffsets();
         map->insert(std::make_pair(tableName, offsets));
+        summary = new TupleSummary();
+        summaries->insert(std::make_pair(tableName, summary));
     }
     
     uint32_t tupleId = table->getTupleID(tuple->address());
     offsets->insert(tupleId);
+    summary->add(tupleId);
     VOLT_INFO("*** TXN #%ld -> %s / %d", this->txnId, tableName.c_str(), tupleId);
 }
 
 void ReadWriteTracker::markTupleRead(Table *table, TableTuple *tuple) {
-    this->insertTuple(&this->reads, table, tuple);
+    this->insertTuple(&this->reads, &this->readSummaries, table, tuple);
 }
 
 void ReadWriteTracker::markTupleWritten(Table *table, TableTuple *tuple) {
-    this->insertTuple(&this->writes, table, tuple);
+    this->insertTuple(&this->writes, &this->writeSummaries, table, tuple);
 }
 
 std::vector<std::string> ReadWriteTracker::getTableNames(boost::unordered_map<std::string, RowOffsets*> *map) const {
@@ -98,8 +94,36 @@ std::vector<std::string> ReadWriteTracker::getTablesWritten() {
 }
 
 void ReadWriteTracker::clear() {
+    boost::unordered_map<std::string, RowOffsets*>::const_iterator iter;
+    
+    iter = this->reads.begin();
+    while (iter != this->reads.end()) {
+        delete iter->second;
+        iter++;
+    } // WHILE
     this->reads.clear();
+    
+    iter = this->writes.begin();
+    while (iter != this->writes.end()) {
+        delete iter->second;
+        iter++;
+    } // WHILE
     this->writes.clear();
+    
+    boost::unordered_map<std::string, TupleSummary*>::const_iterator summaryIter;
+    summaryIter = this->readSummaries.begin();
+    while (summaryIter != this->readSummaries.end()) {
+        delete summaryIter->second;
+        summaryIter++;
+    } // WHILE
+    this->readSummaries.clear();
+    
+    summaryIter = this->writeSummaries.begin();
+    while (summaryIter != this->writeSummaries.end()) {
+        delete summaryIter->second;
+        summaryIter++;
+    } // WHILE
+    this->writeSummaries.clear();
 }
 
 // -------------------------------------------------------------------------
@@ -182,4 +206,34 @@ Table* ReadWriteTrackerManager::getTuplesWritten(ReadWriteTracker *tracker) {
     return (this->resultTable);
 }
 
+void ReadWriteTrackerManager::serializeSummaries(boost::unordered_map<std::string, RowOffsets*> *map,
+                                                 boost::unordered_map<std::string, TupleSummary*> *summaries,
+                                                 SerializeOutput &output) const {
+    output.writeInt(static_cast<int32_t>(summaries->size()));
+    boost::unordered_map<std::string, TupleSummary*>::const_iterator iter = summaries->begin();
+    while (iter != summaries->end()) {
+        TupleSummary *summary = iter->second;
+        output.writeTextString(iter->first);
+        output.writeInt(static_cast<int32_t>(map->find(iter->first)->second->size()));
+        output.writeInt(static_cast<int32_t>(summary->maxTupleId));
+        for (int i = 0; i < TRACKING_SUMMARY_WORDS; i++) {
+            output.writeLong(static_cast<int64_t>(summary->words[i]));
+        } // FOR
+        iter++;
+    } // WHILE
+}
+
+/**
+ * Serialize the tuple summaries for the given tracker. The format is:
+ *   int32 numBits
+ *   READ summaries, then WRITE summaries. Each one is:
+ *     int32 numTables
+ *     For each table: string tableName, int32 tupleCount, int32 maxTupleId, int64 words[numBits/64]
+ */
+void ReadWriteTrackerManager::serializeSummary(ReadWriteTracker *tracker, SerializeOutput &output) const {
+    output.writeInt(TRACKING_SUMMARY_BITS);
+    this->serializeSummaries(&tracker->reads, &tracker->readSummaries, output);
+    this->serializeSummaries(&tracker->writes, &tracker->writeSummaries, output);
+}
+
 }
\ No newline at end of file
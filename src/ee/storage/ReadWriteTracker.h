@@ -27,6 +27,7 @@
 #define HSTORE_READWRITETRACKER_H
 
 #include <string>
+#include <cstring>
 #include "boost/unordered_set.hpp"
 #include "boost/unordered_map.hpp"
 #include "common/tabletuple.h"
@@ -35,12 +36,39 @@
 
 typedef boost::unordered_set<uint32_t> RowOffsets;
 
+/**
+ * The number of bits in each table's tuple summary. This must be a power of two.
+ * Tuple ids are offsets into the table's storage, so a summary is an exact
+ * bitmap of the tuples that were accessed as long as all of the tuple ids are
+ * less than this. Otherwise it acts like a single-hash Bloom filter.
+ */
+#define TRACKING_SUMMARY_BITS 4096
+#define TRACKING_SUMMARY_WORDS (TRACKING_SUMMARY_BITS / 64)
+
 namespace voltdb {
     
 class ExecutorContext;
 class TableTuple;
 class TupleSchema;
 class Table;
+class SerializeOutput;
+
+/**
+ * Compact summary of the tuples that a txn accessed in a single table
+ */
+struct TupleSummary {
+    uint64_t words[TRACKING_SUMMARY_WORDS];
+    uint32_t maxTupleId;
+    
+    TupleSummary() : maxTupleId(0) {
+        ::memset(words, 0, sizeof(words));
+    }
+    inline void add(uint32_t tupleId) {
+        uint32_t bit = tupleId & (TRACKING_SUMMARY_BITS - 1);
+        words[bit >> 6] |= (static_cast<uint64_t>(1) << (bit & 63));
+        if (tupleId > maxTupleId) maxTupleId = tupleId;
+    }
+};
     
 /**
  * Read/Write Tuple Tracker for a single transaction
@@ -62,7 +90,9 @@ class ReadWriteTracker {
         std::vector<std::string> getTablesWritten();
         
     private:
-        void insertTuple(boost::unordered_map<std::string, RowOffsets*> *map, Table *table, TableTuple *tuple);
+        void insertTuple(boost::unordered_map<std::string, RowOffsets*> *map,
+                         boost::unordered_map<std::string, TupleSummary*> *summaries,
+                         Table *table, TableTuple *tuple);
         std::vector<std::string> getTableNames(boost::unordered_map<std::string, RowOffsets*> *map) const;
         
         int64_t txnId;
@@ -71,6 +101,10 @@ class ReadWriteTracker {
         boost::unordered_map<std::string, RowOffsets*> reads;
         boost::unordered_map<std::string, RowOffsets*> writes;
         
+        // TableName -> TupleSummary
+        boost::unordered_map<std::string, TupleSummary*> readSummaries;
+        boost::unordered_map<std::string, TupleSummary*> writeSummaries;
+        
 }; // CLASS
 
 /**
@@ -88,8 +122,13 @@ class ReadWriteTrackerManager {
         Table* getTuplesRead(ReadWriteTracker *tracker);
         Table* getTuplesWritten(ReadWriteTracker *tracker);
         
+        void serializeSummary(ReadWriteTracker *tracker, SerializeOutput &output) const;
+        
     private:
         void getTuples(boost::unordered_map<std::string, RowOffsets*> *map) const;
+        void serializeSummaries(boost::unordered_map<std::string, RowOffsets*> *map,
+                                boost::unordered_map<std::string, TupleSummary*> *summaries,
+                                SerializeOutput &output) const;
         
         ExecutorContext *executorContext;
         TupleSchema *resultSchema;
@@ -54,6 +54,12 @@ vector<string> TableStats::generateTableStatsColumnNames() {
     columnNames.push_back("ANTICACHE_TUPLES_READ");
     columnNames.push_back("ANTICACHE_BLOCKS_READ");
     columnNames.push_back("ANTICACHE_BYTES_READ");
+    
+    // BLOCK COMPRESSION
+    columnNames.push_back("ANTICACHE_BLOCK_BYTES_UNCOMPRESSED");
+    columnNames.push_back("ANTICACHE_BLOCK_BYTES_COMPRESSED");
+    columnNames.push_back("ANTICACHE_COMPRESSION_TIME");
+    columnNames.push_back("ANTICACHE_DECOMPRESSION_TIME");
     #endif
     
     return columnNames;
@@ -118,6 +124,26 @@ void TableStats::populateTableStatsSchema(
     types.push_back(VALUE_TYPE_BIGINT);
     columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
     allowNull.push_back(false);
+    
+    // ANTICACHE_BLOCK_BYTES_UNCOMPRESSED
+    types.push_back(VALUE_TYPE_BIGINT);
+    columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+    allowNull.push_back(false);
+    
+    // ANTICACHE_BLOCK_BYTES_COMPRESSED
+    types.push_back(VALUE_TYPE_BIGINT);
+    columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+    allowNull.push_back(false);
+    
+    // ANTICACHE_COMPRESSION_TIME
+    types.push_back(VALUE_TYPE_BIGINT);
+    columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+    allowNull.push_back(false);
+    
+    // ANTICACHE_DECOMPRESSION_TIME
+    types.push_back(VALUE_TYPE_BIGINT);
+    columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+    allowNull.push_back(false);
     #endif
 }
 
@@ -167,6 +193,11 @@ TableStats::TableStats(Table* table)
     m_lastTuplesRead = 0;
     m_lastBlocksRead = 0;
     m_lastBytesRead = 0;
+    
+    m_lastBlockBytesUncompressed = 0;
+    m_lastBlockBytesCompressed = 0;
+    m_lastCompressionTime = 0;
+    m_lastDecompressionTime = 0;
     #endif
 }
 
@@ -235,6 +266,11 @@ void TableStats::updateStatsTuple(TableTuple *tuple) {
     int32_t tuplesRead = m_table->getTuplesRead();
     int32_t blocksRead = m_table->getBlocksRead();
     int64_t bytesRead = m_table->getBytesRead();
+    
+    int64_t blockBytesUncompressed = m_table->getBlockBytesUncompressed();
+    int64_t blockBytesCompressed = m_table->getBlockBytesCompressed();
+    int64_t compressionTime = m_table->getCompressionTime();
+    int64_t decompressionTime = m_table->getDecompressionTime();
     #endif
 
     if (interval()) {
@@ -288,6 +324,19 @@ void TableStats::updateStatsTuple(TableTuple *tuple) {
         
         bytesRead = bytesRead - m_lastBytesRead;
         m_lastBytesRead = m_table->getBytesRead();
+        
+        // BLOCK COMPRESSION
+        blockBytesUncompressed = blockBytesUncompressed - m_lastBlockBytesUncompressed;
+        m_lastBlockBytesUncompressed = m_table->getBlockBytesUncompressed();
+        
+        blockBytesCompressed = blockBytesCompressed - m_lastBlockBytesCompressed;
+        m_lastBlockBytesCompressed = m_table->getBlockBytesCompressed();
+        
+        compressionTime = compressionTime - m_lastCompressionTime;
+        m_lastCompressionTime = m_table->getCompressionTime();
+        
+        decompressionTime = decompressionTime - m_lastDecompressionTime;
+        m_lastDecompressionTime = m_table->getDecompressionTime();
         #endif
     }
 
@@ -360,6 +409,16 @@ void TableStats::updateStatsTuple(TableTuple *tuple) {
     tuple->setNValue( StatsSource::m_columnName2Index["ANTICACHE_BYTES_READ"],
                       ValueFactory::
                       getBigIntValue(static_cast<int64_t>(bytesRead)));
+    
+    // BLOCK COMPRESSION
+    tuple->setNValue( StatsSource::m_columnName2Index["ANTICACHE_BLOCK_BYTES_UNCOMPRESSED"],
+                      ValueFactory::getBigIntValue(blockBytesUncompressed));
+    tuple->setNValue( StatsSource::m_columnName2Index["ANTICACHE_BLOCK_BYTES_COMPRESSED"],
+                      ValueFactory::getBigIntValue(blockBytesCompressed));
+    tuple->setNValue( StatsSource::m_columnName2Index["ANTICACHE_COMPRESSION_TIME"],
+                      ValueFactory::getBigIntValue(compressionTime));
+    tuple->setNValue( StatsSource::m_columnName2Index["ANTICACHE_DECOMPRESSION_TIME"],
+                      ValueFactory::getBigIntValue(decompressionTime));
     #endif
 }
 
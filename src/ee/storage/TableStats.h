@@ -128,6 +128,12 @@ private:
     int32_t m_lastTuplesRead;
     int32_t m_lastBlocksRead;
     int64_t m_lastBytesRead;
+    
+    // BLOCK COMPRESSION
+    int64_t m_lastBlockBytesUncompressed;
+    int64_t m_lastBlockBytesCompressed;
+    int64_t m_lastCompressionTime;
+    int64_t m_lastDecompressionTime;
     #endif
 };
 
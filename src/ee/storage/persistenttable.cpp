@@ -100,7 +100,7 @@ PersistentTable::PersistentTable(ExecutorContext *ctx, bool exportEnabled) :
     Table(TABLE_BLOCKSIZE,ctx->isMMAPEnabled()), m_executorContext(ctx), m_uniqueIndexes(NULL), m_uniqueIndexCount(0), m_allowNulls(NULL),
     m_indexes(NULL), m_indexCount(0), m_pkeyIndex(NULL), m_wrapper(NULL),
     m_tsSeqNo(0), stats_(this), m_exportEnabled(exportEnabled),
-    m_COWContext(NULL)
+    m_COWContext(NULL), m_indexBuildDeferred(false)
 {
 
 #ifdef ANTICACHE
@@ -127,7 +127,7 @@ PersistentTable::PersistentTable(ExecutorContext *ctx, const std::string name, b
     Table(TABLE_BLOCKSIZE,ctx->isMMAPEnabled()), m_executorContext(ctx), m_uniqueIndexes(NULL), m_uniqueIndexCount(0), m_allowNulls(NULL),
     m_indexes(NULL), m_indexCount(0), m_pkeyIndex(NULL), m_wrapper(NULL),
     m_tsSeqNo(0), stats_(this), m_exportEnabled(exportEnabled),
-    m_COWContext(NULL)
+    m_COWContext(NULL), m_indexBuildDeferred(false)
 {
 
 #ifdef ANTICACHE
@@ -892,6 +892,8 @@ voltdb::TableTuple PersistentTable::lookupTuple(TableTuple tuple) {
 }
 
 void PersistentTable::insertIntoAllIndexes(TableTuple *tuple) {
+    // The indexes are incomplete while a bulk load is deferring its index builds
+    assert(!m_indexBuildDeferred);
     for (int i = m_indexCount - 1; i >= 0;--i) {
         if (!m_indexes[i]->addEntry(tuple)) {
             throwFatalException("Failed to insert tuple into index");
@@ -900,6 +902,8 @@ void PersistentTable::insertIntoAllIndexes(TableTuple *tuple) {
 }
 
 void PersistentTable::deleteFromAllIndexes(TableTuple *tuple) {
+    // The indexes are incomplete while a bulk load is deferring its index builds
+    assert(!m_indexBuildDeferred);
     for (int i = m_indexCount - 1; i >= 0;--i) {
         if (!m_indexes[i]->deleteEntry(tuple)) {
             throwFatalException("Failed to delete tuple from index %s.%s [%s]",
@@ -910,6 +914,8 @@ void PersistentTable::deleteFromAllIndexes(TableTuple *tuple) {
 }
 
 void PersistentTable::updateFromAllIndexes(TableTuple &targetTuple, const TableTuple &sourceTuple) {
+    // The indexes are incomplete while a bulk load is deferring its index builds
+    assert(!m_indexBuildDeferred);
     for (int i = m_indexCount - 1; i >= 0;--i) {
         if (!m_indexes[i]->replaceEntry(&targetTuple, &sourceTuple)) {
             VOLT_ERROR("Failed to update indexes"); 
@@ -1088,6 +1094,12 @@ void PersistentTable::processLoadedTuple(bool allowExport, TableTuple &tuple) {
  */
 void PersistentTable::populateIndexes(int tupleCount) 
 {
+    // Remember where these tuples are so that buildDeferredIndexes() can add them later
+    if (m_indexBuildDeferred) {
+        m_deferredIndexTuples.push_back(std::pair<uint32_t, int>(m_usedTuples, tupleCount));
+        return;
+    }
+
     // populate indexes. walk the contiguous memory in the inner loop.
     for (int i = m_indexCount - 1; i >= 0;--i) {
         TableIndex *index = m_indexes[i];
@@ -1098,6 +1110,37 @@ void PersistentTable::populateIndexes(int tupleCount)
     }
 }
 
+void PersistentTable::deferIndexBuild() {
+    VOLT_DEBUG("Deferring index builds for loaded tuples in table '%s'", name().c_str());
+    m_indexBuildDeferred = true;
+}
+
+int64_t PersistentTable::buildDeferredIndexes() {
+    m_indexBuildDeferred = false;
+
+    std::vector<char*> addresses;
+    for (std::vector<std::pair<uint32_t, int> >::const_iterator it = m_deferredIndexTuples.begin();
+         it != m_deferredIndexTuples.end(); ++it) {
+        for (int j = 0; j < it->second; ++j) {
+            m_tmpTarget1.move(dataPtrForTuple((int) it->first + j));
+            // Skip anything that was deleted or evicted in the meantime
+            if (m_tmpTarget1.isActive() == false) continue;
+            addresses.push_back(m_tmpTarget1.address());
+        } // FOR
+    } // FOR
+    m_deferredIndexTuples.clear();
+
+    VOLT_DEBUG("Building %d indexes for %d deferred tuples in table '%s'",
+               m_indexCount, (int)addresses.size(), name().c_str());
+    for (int i = m_indexCount - 1; i >= 0; --i) {
+        if (m_indexes[i]->addEntries(m_tmpTarget1, addresses) == false) {
+            VOLT_ERROR("Failed to add some of the %d deferred tuples to index '%s' on table '%s'",
+                       (int)addresses.size(), m_indexes[i]->getName().c_str(), name().c_str());
+        }
+    } // FOR
+    return (static_cast<int64_t>(addresses.size()));
+}
+
 size_t PersistentTable::appendToELBuffer(TableTuple &tuple, int64_t seqNo,
         TupleStreamWrapper::Type type) {
 
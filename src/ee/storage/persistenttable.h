@@ -188,6 +188,23 @@ class PersistentTable : public Table {
     virtual TableIndex *primaryKeyIndex() { return m_pkeyIndex; }
     virtual const TableIndex *primaryKeyIndex() const { return m_pkeyIndex; }
 
+    /**
+     * Stop adding the tuples from loadTuplesFrom() to the indexes. They are
+     * all added at once when buildDeferredIndexes() is called. Nothing else
+     * may use this table's indexes until then, so the caller must build them
+     * before the load txn that deferred them finishes.
+     */
+    void deferIndexBuild();
+
+    /**
+     * Add all of the tuples that were loaded since deferIndexBuild() to the
+     * indexes and go back to maintaining them on every load.
+     * Returns the number of tuples that were indexed.
+     */
+    int64_t buildDeferredIndexes();
+
+    bool isIndexBuildDeferred() const { return m_indexBuildDeferred; }
+
     // ------------------------------------------------------------------
     // UTILITY
     // ------------------------------------------------------------------
@@ -418,6 +435,11 @@ protected:
 
     //Recovery stuff
     boost::scoped_ptr<RecoveryContext> m_recoveryContext;
+
+    // Bulk loading: the (offset, count) of each chunk of loaded tuples
+    // that has not been added to the indexes yet
+    bool m_indexBuildDeferred;
+    std::vector<std::pair<uint32_t, int> > m_deferredIndexTuples;
 };
 
 inline TableTuple& PersistentTable::getTempTupleInlined(TableTuple &source) {
@@ -97,6 +97,11 @@ Table::Table(int tableAllocationTargetSize) :
     m_tuplesRead = 0;
     m_blocksRead = 0;
     m_bytesRead = 0;
+    
+    m_blockBytesUncompressed = 0;
+    m_blockBytesCompressed = 0;
+    m_compressionTime = 0;
+    m_decompressionTime = 0;
     #endif
 }
 
@@ -136,6 +141,11 @@ Table::Table(int tableAllocationTargetSize, bool enableMMAP) :
     m_tuplesRead = 0;
     m_blocksRead = 0;
     m_bytesRead = 0;
+    
+    m_blockBytesUncompressed = 0;
+    m_blockBytesCompressed = 0;
+    m_compressionTime = 0;
+    m_decompressionTime = 0;
     #endif
 }
 
@@ -221,6 +221,11 @@ public:
     inline int32_t getTuplesRead() const { return (m_tuplesRead); }
     inline int32_t getBlocksRead() const { return (m_blocksRead); }
     inline int64_t getBytesRead()  const { return (m_bytesRead); }
+    
+    inline int64_t getBlockBytesUncompressed() const { return (m_blockBytesUncompressed); }
+    inline int64_t getBlockBytesCompressed() const { return (m_blockBytesCompressed); }
+    inline int64_t getCompressionTime() const { return (m_compressionTime); }
+    inline int64_t getDecompressionTime() const { return (m_decompressionTime); }
     #endif
     
     int getTupleID(const char* tuple_address); 
@@ -409,6 +414,12 @@ protected:
     int32_t m_tuplesRead;
     int32_t m_blocksRead;
     int64_t m_bytesRead;
+    
+    // BLOCK COMPRESSION (times are in nanoseconds)
+    int64_t m_blockBytesUncompressed;
+    int64_t m_blockBytesCompressed;
+    int64_t m_compressionTime;
+    int64_t m_decompressionTime;
 #endif
 
 #ifdef ANTICACHE_TIMESTAMPS_PRIME
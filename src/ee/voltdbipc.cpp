@@ -232,7 +232,7 @@ static VoltDBIPC *currentVolt = NULL;
 // defined in voltdbjni.cpp
 extern void deserializeParameterSetCommon(int, voltdb::ReferenceSerializeInput&, voltdb::GenericValueArray<voltdb::NValue>&, Pool *stringPool);
 
-VoltDBIPC::VoltDBIPC(int fd) : m_fd(fd) {
+VoltDBIPC::VoltDBIPC(int fd, SharedMemoryChannel *shm) : m_fd(fd), m_shm(shm) {
     currentVolt = this;
     m_engine = NULL;
     m_counter = 0;
@@ -248,6 +248,35 @@ VoltDBIPC::~VoltDBIPC() {
     delete [] m_exceptionBuffer;
 }
 
+/**
+ * Blocking write of a response to Java through either the
+ * shared memory channel or the socket. Exits if it fails.
+ */
+void VoltDBIPC::sendOrDie(unsigned char *data, ssize_t sz) {
+    if (m_shm == NULL) {
+        writeOrDie(m_fd, data, sz);
+    } else if (sz > 0 && m_shm->writeFully(reinterpret_cast<char*>(data), sz) == false) {
+        printf("\n\nIPC write to shared memory failed. Exiting\n\n");
+        fflush(stdout);
+        exit(-1);
+    }
+}
+
+ssize_t VoltDBIPC::receive(void *data, size_t sz) {
+    if (m_shm != NULL) {
+        return m_shm->readFully(static_cast<char*>(data), sz) ? (ssize_t)sz : -1;
+    }
+    size_t bytes = 0;
+    while (bytes < sz) {
+        ssize_t b = read(m_fd, static_cast<char*>(data) + bytes, sz - bytes);
+        if (b <= 0) {
+            return (bytes > 0 ? (ssize_t)bytes : b);
+        }
+        bytes += b;
+    }
+    return (ssize_t)bytes;
+}
+
 bool VoltDBIPC::execute(struct ipc_command *cmd) {
     int8_t result = kErrorCode_None;
 
@@ -339,9 +368,9 @@ bool VoltDBIPC::execute(struct ipc_command *cmd) {
             char msg[5];
             msg[0] = result;
             *reinterpret_cast<int32_t*>(&msg[1]) = 0;//exception length 0
-            writeOrDie(m_fd, (unsigned char*)msg, sizeof(int8_t) + sizeof(int32_t));
+            sendOrDie((unsigned char*)msg, sizeof(int8_t) + sizeof(int32_t));
         } else {
-            writeOrDie(m_fd, (unsigned char*)&result, sizeof(int8_t));
+            sendOrDie((unsigned char*)&result, sizeof(int8_t));
         }
     }
     return m_terminate;
@@ -578,7 +607,7 @@ void VoltDBIPC::executeQueryPlanFragmentsAndGetResults(struct ipc_command *cmd)
         const int32_t size = m_engine->getResultsSize();
         char *resultBuffer = m_engine->getReusedResultBuffer();
         resultBuffer[0] = kErrorCode_Success;
-        writeOrDie(m_fd, (unsigned char*)resultBuffer, size);
+        sendOrDie((unsigned char*)resultBuffer, size);
     } else {
         sendException(kErrorCode_Error);
     }
@@ -634,14 +663,14 @@ void VoltDBIPC::executePlanFragmentAndGetResults(struct ipc_command *cmd) {
         const int32_t size = m_engine->getResultsSize();
         char *resultBuffer = m_engine->getReusedResultBuffer();
         resultBuffer[0] = kErrorCode_Success;
-        writeOrDie(m_fd, (unsigned char*)resultBuffer, size);
+        sendOrDie((unsigned char*)resultBuffer, size);
     } else {
         sendException(kErrorCode_Error);
     }
 }
 
 void VoltDBIPC::sendException(int8_t errorCode) {
-    writeOrDie(m_fd, (unsigned char*)&errorCode, sizeof(int8_t));
+    sendOrDie((unsigned char*)&errorCode, sizeof(int8_t));
 
     const void* exceptionData =
       m_engine->getExceptionOutputSerializer()->data();
@@ -651,7 +680,7 @@ void VoltDBIPC::sendException(int8_t errorCode) {
     fflush(stdout);
 
     const std::size_t expectedSize = exceptionLength + sizeof(int32_t);
-    writeOrDie(m_fd, (unsigned char*)exceptionData, expectedSize);
+    sendOrDie((unsigned char*)exceptionData, expectedSize);
 }
 
 void VoltDBIPC::executeCustomPlanFragmentAndGetResults(struct ipc_command *cmd) {
@@ -682,11 +711,11 @@ void VoltDBIPC::executeCustomPlanFragmentAndGetResults(struct ipc_command *cmd)
     // write the results array back across the wire
     const int8_t successResult = kErrorCode_Success;
     if (errors == 0) {
-        writeOrDie(m_fd, (unsigned char*)&successResult, sizeof(int8_t));
+        sendOrDie((unsigned char*)&successResult, sizeof(int8_t));
         const int32_t size = m_engine->getResultsSize();
 
         // write the dependency tables back across the wire
-        writeOrDie(m_fd, (unsigned char*)(m_engine->getReusedResultBuffer()), size);
+        sendOrDie((unsigned char*)(m_engine->getReusedResultBuffer()), size);
     } else {
         sendException(kErrorCode_Error);
     }
@@ -754,11 +783,11 @@ char *VoltDBIPC::retrieveDependency(int32_t dependencyId, size_t *dependencySz)
     // tell java to send the dependency over the socket
     message[0] = static_cast<int8_t>(kErrorCode_RetrieveDependency);
     *reinterpret_cast<int32_t*>(&message[1]) = htonl(dependencyId);
-    writeOrDie(m_fd, (unsigned char*)message, sizeof(int8_t) + sizeof(int32_t));
+    sendOrDie((unsigned char*)message, sizeof(int8_t) + sizeof(int32_t));
 
     // read java's response code
     int8_t responseCode;
-    ssize_t bytes = read(m_fd, &responseCode, sizeof(int8_t));
+    ssize_t bytes = receive(&responseCode, sizeof(int8_t));
     if (bytes != sizeof(int8_t)) {
         printf("Error - blocking read failed. %jd read %jd attempted",
                 (intmax_t)bytes, (intmax_t)sizeof(int8_t));
@@ -780,7 +809,7 @@ char *VoltDBIPC::retrieveDependency(int32_t dependencyId, size_t *dependencySz)
 
     // start reading the dependency. its length is first
     int32_t dependencyLength;
-    bytes = read(m_fd, &dependencyLength, sizeof(int32_t));
+    bytes = receive(&dependencyLength, sizeof(int32_t));
     if (bytes != sizeof(int32_t)) {
         printf("Error - blocking read failed. %jd read %jd attempted",
                 (intmax_t)bytes, (intmax_t)sizeof(int32_t));
@@ -793,17 +822,7 @@ char *VoltDBIPC::retrieveDependency(int32_t dependencyId, size_t *dependencySz)
     dependencyLength = ntohl(dependencyLength);
     *dependencySz = (size_t)dependencyLength;
     char *dependencyData = new char[dependencyLength];
-    while (bytes != dependencyLength) {
-        ssize_t oldBytes = bytes;
-        bytes += read(m_fd, dependencyData + bytes, dependencyLength - bytes);
-        if (oldBytes == bytes) {
-            break;
-        }
-        if (oldBytes > bytes) {
-            bytes++;
-            break;
-        }
-    }
+    bytes = receive(dependencyData, dependencyLength);
 
     if (bytes != dependencyLength) {
         printf("Error - blocking read failed. %jd read %jd attempted",
@@ -871,7 +890,7 @@ void VoltDBIPC::crashVoltDB(voltdb::FatalException e) {
         position += traceLength;
     }
 
-    writeOrDie(m_fd,  (unsigned char*)m_reusedResultBuffer, 5 + messageLength);
+    sendOrDie((unsigned char*)m_reusedResultBuffer, 5 + messageLength);
     exit(-1);
 }
 
@@ -905,12 +924,12 @@ void VoltDBIPC::getStats(struct ipc_command *cmd) {
         // write the results array back across the wire
         const int8_t successResult = kErrorCode_Success;
         if (result == 1) {
-            writeOrDie(m_fd, (unsigned char*)&successResult, sizeof(int8_t));
+            sendOrDie((unsigned char*)&successResult, sizeof(int8_t));
 
             // write the dependency tables back across the wire
             // the result set includes the total serialization size
             const int32_t size = m_engine->getResultsSize();
-            writeOrDie(m_fd, (unsigned char*)(m_engine->getReusedResultBuffer()), size);
+            sendOrDie((unsigned char*)(m_engine->getReusedResultBuffer()), size);
         } else {
             sendException(kErrorCode_Error);
         }
@@ -948,7 +967,7 @@ void VoltDBIPC::tableStreamSerializeMore(struct ipc_command *cmd) {
         char msg[3];
         msg[0] = kErrorCode_Error;
         *reinterpret_cast<int16_t*>(&msg[1]) = 0;//exception length 0
-        writeOrDie(m_fd, (unsigned char*)msg, sizeof(int8_t) + sizeof(int16_t));
+        sendOrDie((unsigned char*)msg, sizeof(int8_t) + sizeof(int16_t));
     }
 
     try {
@@ -965,7 +984,7 @@ void VoltDBIPC::tableStreamSerializeMore(struct ipc_command *cmd) {
             serialized = 0;
         }
         const ssize_t toWrite = serialized + 5;
-        writeOrDie(m_fd, (unsigned char*)m_reusedResultBuffer, toWrite);
+        sendOrDie((unsigned char*)m_reusedResultBuffer, toWrite);
     } catch (FatalException e) {
         crashVoltDB(e);
     }
@@ -987,7 +1006,7 @@ void VoltDBIPC::tableHashCode( struct ipc_command *cmd) {
     char response[9];
     response[0] = kErrorCode_Success;
     *reinterpret_cast<int64_t*>(&response[1]) = htonll(tableHashCode);
-    writeOrDie(m_fd, (unsigned char*)response, 9);
+    sendOrDie((unsigned char*)response, 9);
 }
 
 void VoltDBIPC::exportAction(struct ipc_command *cmd) {
@@ -1005,10 +1024,10 @@ void VoltDBIPC::exportAction(struct ipc_command *cmd) {
 
     // write offset across bigendian.
     result = htonll(result);
-    writeOrDie(m_fd, (unsigned char*)&result, sizeof(result));
+    sendOrDie((unsigned char*)&result, sizeof(result));
 
     // write the poll data. It is at least 4 bytes of length prefix.
-    writeOrDie(m_fd, (unsigned char*)(m_engine->getReusedResultBuffer()), buflength);
+    sendOrDie((unsigned char*)(m_engine->getReusedResultBuffer()), buflength);
 }
 
 void VoltDBIPC::hashinate(struct ipc_command* cmd)
@@ -1037,7 +1056,7 @@ void VoltDBIPC::hashinate(struct ipc_command* cmd)
     char response[5];
     response[0] = kErrorCode_Success;
     *reinterpret_cast<int32_t*>(&response[1]) = htonl(retval);
-    writeOrDie(m_fd, (unsigned char*)response, 5);
+    sendOrDie((unsigned char*)response, 5);
 }
 
 void VoltDBIPC::signalHandler(int signum, siginfo_t *info, void *context) {
@@ -1076,61 +1095,73 @@ int main(int argc, char **argv) {
     int max_ipc_message_size = (1024 * 1024 * 2);
 
     int port = 0;
+    voltdb::SharedMemoryChannel *shm = NULL;
 
-    if (argc == 2) {
+    if (argc == 3 && strcmp(argv[1], "--shm") == 0) {
+        // The JVM already created the channel for us, so there is no socket to set up
+        shm = new voltdb::SharedMemoryChannel();
+        if (shm->open(argv[2]) == false) {
+            printf("Failed to open shared memory channel %s\n", argv[2]);
+            exit(-1);
+        }
+        printf("listening\n");
+        fflush(stdout);
+    } else if (argc == 2) {
         printf("Binding to a specific socket is no longer supported\n");
         exit(-1);
     }
 
-    struct sockaddr_in address;
-    address.sin_family = AF_INET;
-    address.sin_port = htons(port);
-    address.sin_addr.s_addr = INADDR_ANY;
+    if (shm == NULL) {
+        struct sockaddr_in address;
+        address.sin_family = AF_INET;
+        address.sin_port = htons(port);
+        address.sin_addr.s_addr = INADDR_ANY;
 
 
-    // read args which presumably configure VoltDBIPC
+        // read args which presumably configure VoltDBIPC
 
-    // and set up an accept socket.
-    if ((sock = socket(AF_INET,SOCK_STREAM, 0)) < 0) {
-        printf("Failed to create socket.\n");
-        exit(-2);
-    }
+        // and set up an accept socket.
+        if ((sock = socket(AF_INET,SOCK_STREAM, 0)) < 0) {
+            printf("Failed to create socket.\n");
+            exit(-2);
+        }
 
-    if ((bind(sock, (struct sockaddr*) (&address), sizeof(struct sockaddr_in))) != 0) {
-        printf("Failed to bind socket.\n");
-        exit(-3);
-    }
+        if ((bind(sock, (struct sockaddr*) (&address), sizeof(struct sockaddr_in))) != 0) {
+            printf("Failed to bind socket.\n");
+            exit(-3);
+        }
 
-    socklen_t address_len = sizeof(struct sockaddr_in);
-    if (getsockname( sock, reinterpret_cast<sockaddr*>(&address), &address_len)) {
-        printf("Failed to find socket address\n");
-        exit(-4);
-    }
+        socklen_t address_len = sizeof(struct sockaddr_in);
+        if (getsockname( sock, reinterpret_cast<sockaddr*>(&address), &address_len)) {
+            printf("Failed to find socket address\n");
+            exit(-4);
+        }
 
-    port = ntohs(address.sin_port);
-    printf("==%d==\n", port);
-    fflush(stdout);
+        port = ntohs(address.sin_port);
+        printf("==%d==\n", port);
+        fflush(stdout);
 
-    if ((listen(sock, 1)) != 0) {
-        printf("Failed to listen on socket.\n");
-        exit(-5);
-    }
-    printf("listening\n");
-    fflush(stdout);
+        if ((listen(sock, 1)) != 0) {
+            printf("Failed to listen on socket.\n");
+            exit(-5);
+        }
+        printf("listening\n");
+        fflush(stdout);
 
-    struct sockaddr_in client_addr;
-    socklen_t addr_size = sizeof(struct sockaddr_in);
-    fd = accept(sock, (struct sockaddr*) (&client_addr), &addr_size);
-    if (fd < 0) {
-        printf("Failed to accept socket.\n");
-        exit(-6);
-    }
+        struct sockaddr_in client_addr;
+        socklen_t addr_size = sizeof(struct sockaddr_in);
+        fd = accept(sock, (struct sockaddr*) (&client_addr), &addr_size);
+        if (fd < 0) {
+            printf("Failed to accept socket.\n");
+            exit(-6);
+        }
 
-    int flag = 1;
-    int ret = setsockopt( fd, IPPROTO_TCP, TCP_NODELAY, (char *)&flag, sizeof(flag) );
-    if (ret == -1) {
-      printf("Couldn't setsockopt(TCP_NODELAY)\n");
-      exit( EXIT_FAILURE );
+        int flag = 1;
+        int ret = setsockopt( fd, IPPROTO_TCP, TCP_NODELAY, (char *)&flag, sizeof(flag) );
+        if (ret == -1) {
+          printf("Couldn't setsockopt(TCP_NODELAY)\n");
+          exit( EXIT_FAILURE );
+        }
     }
 
     // requests larger than this will cause havoc.
@@ -1139,12 +1170,19 @@ int main(int argc, char **argv) {
     memset(data, 0, max_ipc_message_size);
 
     // instantiate voltdbipc to interface to EE.
-    VoltDBIPC *voltipc = new VoltDBIPC(fd);
+    VoltDBIPC *voltipc = new VoltDBIPC(fd, shm);
     int more = 1;
     while (more) {
         size_t bytesread = 0;
 
         // read the header
+        if (shm != NULL) {
+            if (shm->readFully(data, 4) == false) {
+                printf("client eof\n");
+                goto done;
+            }
+            bytesread = 4;
+        }
         while (bytesread < 4) {
             std::size_t b = read(fd, data + bytesread, 4 - bytesread);
             if (b == 0) {
@@ -1169,6 +1207,13 @@ int main(int argc, char **argv) {
             data = newdata;
         }
 
+        if (shm != NULL && bytesread < msg_size) {
+            if (shm->readFully(data + bytesread, msg_size - bytesread) == false) {
+                printf("client eof\n");
+                goto done;
+            }
+            bytesread = msg_size;
+        }
         while (bytesread < msg_size) {
             std::size_t b = read(fd, data + bytesread, msg_size - bytesread);
             if (b == 0) {
@@ -1199,9 +1244,10 @@ int main(int argc, char **argv) {
     }
 
   done:
-    close(sock);
-    close(fd);
+    if (sock >= 0) close(sock);
+    if (fd >= 0) close(fd);
     delete voltipc;
+    delete shm;
     free(data);
     fflush(stdout);
     return 0;
@@ -25,6 +25,7 @@
 #include "logging/LogProxy.h"
 #include "execution/VoltDBEngine.h"
 #include "common/FatalException.hpp"
+#include "common/SharedMemoryRing.h"
 
 class VoltDBIPC {
 public:
@@ -44,7 +45,11 @@ public:
         kErrorCode_CrashVoltDB = 104 //Crash with reason string
     };
 
-    VoltDBIPC(int fd);
+    /**
+     * If shm is not null, then all requests and responses will go through
+     * the shared memory channel instead of the socket.
+     */
+    VoltDBIPC(int fd, voltdb::SharedMemoryChannel *shm);
 
     ~VoltDBIPC();
 
@@ -79,6 +84,12 @@ public:
      */
     void terminate();
 
+    /**
+     * Blocking read of exactly sz bytes from Java. Returns the number of bytes
+     * read, which will be less than sz if the other side went away.
+     */
+    ssize_t receive(void *data, size_t sz);
+
 private:
     voltdb::VoltDBEngine *m_engine;
     long int m_counter;
@@ -129,7 +140,10 @@ private:
     static void signalDispatcher(int signum, siginfo_t *info, void *context);
     void setupSigHandler(void) const;
 
+    void sendOrDie(unsigned char *data, ssize_t sz);
+
     int m_fd;
+    voltdb::SharedMemoryChannel *m_shm;
     char *m_reusedResultBuffer;
     char *m_exceptionBuffer;
     bool m_terminate;
@@ -460,6 +460,38 @@ Java_org_voltdb_jni_ExecutionEngine_nativeLoadTable (
 }
 
 
+/**
+ * Turn deferred index builds for bulk loading on or off for a table.
+ * @param pointer the VoltDBEngine pointer
+ * @param table_id catalog ID of the table
+ * @param deferred whether to stop adding loaded tuples to the indexes
+ * @return error code
+*/
+SHAREDLIB_JNIEXPORT jint JNICALL
+Java_org_voltdb_jni_ExecutionEngine_nativeSetIndexBuildDeferred (
+    JNIEnv *env, jobject obj, jlong engine_ptr, jint table_id, jboolean deferred)
+{
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    Topend *topend = static_cast<JNITopend*>(engine->getTopend())->updateJNIEnv(env);
+    if (engine == NULL) {
+        return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
+    }
+    updateJNILogProxy(engine);
+    try {
+        try {
+            bool success = engine->setIndexBuildDeferred(table_id, deferred != JNI_FALSE);
+            if (success)
+                return org_voltdb_jni_ExecutionEngine_ERRORCODE_SUCCESS;
+        } catch (SerializableEEException &e) {
+            engine->resetReusedResultOutputBuffer();
+            e.serialize(engine->getExceptionOutputSerializer());
+        }
+    } catch (FatalException e) {
+        topend->crashVoltDB(e);
+    }
+    return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
+}
+
 ////////////////////////////////////////////////////////////////////////////
 // PlanNode Execution
 ////////////////////////////////////////////////////////////////////////////
@@ -1432,6 +1464,35 @@ SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeTrack
     return retval;
 }
 
+/**
+ * Get the compact READ/WRITE tuple summaries for the given txnId.
+ * @param pointer the VoltDBEngine pointer
+ * @param txnId the transaction to retrieve data from.
+ * @return error code
+ */
+SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeTrackingSummary(
+        JNIEnv *env,
+        jobject obj,
+        jlong engine_ptr,
+        jlong txnId) {
+    
+    VOLT_DEBUG("nativeTrackingSummary() start");
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    Topend *topend = static_cast<JNITopend*>(engine->getTopend())->updateJNIEnv(env);
+    if (engine == NULL) {
+        return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
+    }
+    
+    engine->resetReusedResultOutputBuffer();
+    int retval = org_voltdb_jni_ExecutionEngine_ERRORCODE_SUCCESS;
+    try {
+        retval = engine->trackingSummary(static_cast<int64_t>(txnId));
+    } catch (FatalException e) {
+        topend->crashVoltDB(e);
+    }
+    return retval;
+}
+
 // ----------------------------------------------------------------------------
 // ANTI-CACHING
 // ----------------------------------------------------------------------------
@@ -1498,6 +1559,32 @@ SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeAntiC
     return org_voltdb_jni_ExecutionEngine_ERRORCODE_SUCCESS;
 }
 
+/**
+ * Set how evicted blocks are compressed before they are written out
+ * to the anti-cache databases.
+ * @param pointer the VoltDBEngine pointer
+ * @param compressionType the AntiCacheCompressionType
+ * @return error code
+ */
+SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeAntiCacheSetCompression (
+        JNIEnv *env,
+        jobject obj,
+        jlong engine_ptr,
+        jint compressionType) {
+    VOLT_DEBUG("nativeAntiCacheSetCompression() start");
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    Topend *topend = static_cast<JNITopend*>(engine->getTopend())->updateJNIEnv(env);
+    if (engine == NULL) {
+        return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
+    }
+    try {
+        engine->antiCacheSetCompression(static_cast<AntiCacheCompressionType>(compressionType));
+    } catch (FatalException e) {
+        topend->crashVoltDB(e);
+    }
+    return org_voltdb_jni_ExecutionEngine_ERRORCODE_SUCCESS;
+}
+
 SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeAntiCacheReadBlocks (
         JNIEnv *env,
         jobject obj,
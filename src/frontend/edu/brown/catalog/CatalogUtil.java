@@ -418,6 +418,10 @@ public abstract class CatalogUtil extends org.voltdb.utils.CatalogUtil {
                 builder.addEntry(CatalogUtil.CATALOG_FILENAME,
                                  catalog.serialize().getBytes());
             }
+            else if (file.equals(PlanFragmentIndex.FILENAME)) {
+                builder.addEntry(PlanFragmentIndex.FILENAME,
+                                 PlanFragmentIndex.serialize(CatalogUtil.getDatabase(catalog)));
+            }
             else {
                 builder.addEntry(file, bytes.get(i));
             }
@@ -11,6 +11,11 @@ public abstract class PlanFragmentIdGenerator {
     private static final int READONLY_OFFSET = 16;
     private static final int FASTAGGREGATE_OFFSET = 17;
     private static final int FASTCOMBINE_OFFSET = 18;
+    
+    /**
+     * The largest index that a PlanFragment id can have
+     */
+    public static final int MAX_INDEX = (1 << READONLY_OFFSET) - 1;
 
     /**
      * @param next_id
@@ -37,6 +42,16 @@ public abstract class PlanFragmentIdGenerator {
         return (next_id);
     }
     
+    /**
+     * Returns the dense index of the PlanFragment id without any of its flags.
+     * This can be used to look up the fragment in an array.
+     * @param id
+     * @return
+     */
+    public static int getPlanFragmentIndex(long id) {
+        return ((int)(id & MAX_INDEX));
+    }
+    
     /**
      * Returns true if the PlanFragmnt id is marked as a read only
      * @param id
@@ -0,0 +1,212 @@
+package edu.brown.catalog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.PlanFragment;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Statement;
+import org.voltdb.catalog.Table;
+import org.voltdb.utils.JarReader;
+
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+
+/**
+ * A compact binary summary of every PlanFragment in a catalog that the
+ * VoltCompiler stores in the catalog jar next to the catalog itself.
+ * This allows a CatalogContext to find out what tables each PlanFragment
+ * reads or writes without having to deserialize every fragment's JSON plan
+ * tree when the site starts up. Each entry includes a hash of the fragment's
+ * serialized plan so that we will ignore entries that no longer match the
+ * catalog (e.g., if the catalog was updated in the jar without regenerating
+ * the index). The table ids are only valid as long as the list of tables
+ * in the catalog has not changed, so the header includes a hash of their names.
+ * <PRE>
+ * int32 magic, int32 version, int32 tablesHash, int32 numFragments
+ * For each fragment:
+ *    int32 fragmentId, int32 planHash, byte readonly, int16 numTables, int16 tableIds[]
+ * </PRE>
+ */
+public abstract class PlanFragmentIndex {
+    private static final Logger LOG = Logger.getLogger(PlanFragmentIndex.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug);
+    }
+
+    /**
+     * The name of the index file in the catalog jar
+     */
+    public static final String FILENAME = "planfragments.idx";
+
+    private static final int MAGIC = 0x48535046; // "HSPF"
+    private static final int VERSION = 1;
+
+    /**
+     * The pre-computed information for a single PlanFragment
+     */
+    public static class Entry {
+        public final int fragmentId;
+        public final boolean readonly;
+        /** The relative indexes of the tables referenced by this fragment */
+        public final int tableIds[];
+
+        public Entry(int fragmentId, boolean readonly, int tableIds[]) {
+            this.fragmentId = fragmentId;
+            this.readonly = readonly;
+            this.tableIds = tableIds;
+        }
+    } // CLASS
+
+    /**
+     * Return the relative indexes of the tables referenced by the given PlanFragment.
+     * Note that this will deserialize the fragment's plan tree.
+     * @param catalog_frag
+     * @return
+     */
+    public static int[] getReferencedTableIds(PlanFragment catalog_frag) {
+        Collection<Table> tables = CatalogUtil.getReferencedTables(catalog_frag);
+        int tableIds[] = new int[tables.size()];
+        int i = 0;
+        for (Table tbl : tables) {
+            tableIds[i++] = tbl.getRelativeIndex();
+        } // FOR
+        return (tableIds);
+    }
+
+    /**
+     * Generate the serialized index for all of the PlanFragments in the given database
+     * @param catalog_db
+     * @return
+     * @throws IOException
+     */
+    public static byte[] serialize(Database catalog_db) throws IOException {
+        Map<Integer, PlanFragment> fragments = getAllPlanFragments(catalog_db);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(getTablesHash(catalog_db));
+        out.writeInt(fragments.size());
+        for (PlanFragment catalog_frag : fragments.values()) {
+            int tableIds[] = getReferencedTableIds(catalog_frag);
+            out.writeInt(catalog_frag.getId());
+            out.writeInt(catalog_frag.getPlannodetree().hashCode());
+            out.writeBoolean(catalog_frag.getReadonly());
+            out.writeShort(tableIds.length);
+            for (int tableId : tableIds) {
+                out.writeShort(tableId);
+            } // FOR
+        } // FOR
+        out.close();
+        return (bytes.toByteArray());
+    }
+
+    /**
+     * Deserialize an index and return the entries that still match the given database.
+     * Returns an empty map if the index is invalid.
+     * @param catalog_db
+     * @param serialized
+     * @return
+     */
+    public static Map<Integer, Entry> deserialize(Database catalog_db, byte serialized[]) {
+        Map<Integer, PlanFragment> fragments = getAllPlanFragments(catalog_db);
+        Map<Integer, Entry> entries = new HashMap<Integer, Entry>();
+        int num_tables = catalog_db.getTables().size();
+        int stale = 0;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(serialized));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                LOG.warn("Invalid " + FILENAME + " header");
+                return (entries);
+            }
+            if (in.readInt() != getTablesHash(catalog_db)) {
+                if (debug.val)
+                    LOG.debug(String.format("Ignoring %s because the catalog's tables have changed", FILENAME));
+                return (entries);
+            }
+            int num_entries = in.readInt();
+            for (int i = 0; i < num_entries; i++) {
+                int fragmentId = in.readInt();
+                int planHash = in.readInt();
+                boolean readonly = in.readBoolean();
+                int tableIds[] = new int[in.readShort()];
+                boolean valid = true;
+                for (int j = 0; j < tableIds.length; j++) {
+                    tableIds[j] = in.readShort();
+                    valid = valid && tableIds[j] > 0 && tableIds[j] <= num_tables;
+                } // FOR
+
+                PlanFragment catalog_frag = fragments.get(fragmentId);
+                if (valid == false || catalog_frag == null ||
+                    catalog_frag.getReadonly() != readonly ||
+                    catalog_frag.getPlannodetree().hashCode() != planHash) {
+                    stale++;
+                    continue;
+                }
+                entries.put(fragmentId, new Entry(fragmentId, readonly, tableIds));
+            } // FOR
+        } catch (IOException ex) {
+            LOG.warn("Failed to deserialize " + FILENAME, ex);
+            entries.clear();
+        }
+        if (debug.val)
+            LOG.debug(String.format("Loaded %d PlanFragment entries from %s [stale=%d, missing=%d]",
+                      entries.size(), FILENAME, stale, fragments.size() - entries.size()));
+        return (entries);
+    }
+
+    /**
+     * Load the index from the given catalog jar. Returns an empty map if the
+     * jar does not contain an index or it is invalid.
+     * @param catalog_db
+     * @param jarPath
+     * @return
+     */
+    public static Map<Integer, Entry> load(Database catalog_db, File jarPath) {
+        byte serialized[] = null;
+        if (jarPath != null && jarPath.exists()) {
+            serialized = JarReader.readFileFromJarAtURL(jarPath.getAbsolutePath(), FILENAME);
+        }
+        if (serialized == null) {
+            if (debug.val)
+                LOG.debug(String.format("No %s found in %s", FILENAME, jarPath));
+            return (new HashMap<Integer, Entry>());
+        }
+        return (deserialize(catalog_db, serialized));
+    }
+
+    private static int getTablesHash(Database catalog_db) {
+        int hash = 1;
+        for (Table catalog_tbl : catalog_db.getTables()) {
+            hash = 31 * hash + catalog_tbl.getName().hashCode();
+        } // FOR
+        return (hash);
+    }
+
+    private static Map<Integer, PlanFragment> getAllPlanFragments(Database catalog_db) {
+        Map<Integer, PlanFragment> fragments = new HashMap<Integer, PlanFragment>();
+        for (Procedure catalog_proc : catalog_db.getProcedures()) {
+            for (Statement catalog_stmt : catalog_proc.getStatements()) {
+                for (PlanFragment catalog_frag : catalog_stmt.getFragments()) {
+                    fragments.put(catalog_frag.getId(), catalog_frag);
+                } // FOR
+                for (PlanFragment catalog_frag : catalog_stmt.getMs_fragments()) {
+                    fragments.put(catalog_frag.getId(), catalog_frag);
+                } // FOR
+            } // FOR (stmt)
+        } // FOR (proc)
+        return (fragments);
+    }
+}
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -42,6 +43,7 @@ import edu.brown.catalog.ClusterConfiguration;
 import edu.brown.catalog.FixCatalog;
 import edu.brown.catalog.special.NullProcParameter;
 import edu.brown.catalog.special.RandomProcParameter;
+import edu.brown.designer.DesignerHints;
 import edu.brown.designer.partitioners.plan.PartitionPlan;
 import edu.brown.hstore.HStoreConstants;
 import edu.brown.logging.LoggerUtil;
@@ -117,6 +119,21 @@ public class SingleSitedCostModel extends AbstractCostModel {
 
     private final Set<Long> last_invalidateTxns = new HashSet<Long>();
 
+    /**
+     * Incremental Estimates
+     * If enabled, we keep track of the cost that we last computed for each
+     * txn so that the next workload estimate only has to look at the txns that
+     * were invalidated (or that were not complete) since the last estimate.
+     * The running totals are only valid for the same workload and filter that
+     * they were computed with.
+     */
+    private boolean use_incremental = false;
+    private Workload incremental_workload = null;
+    private Filter incremental_filter = null;
+    private double incremental_cost = 0d;
+    private final Map<Long, Double> incremental_txnCosts = new HashMap<Long, Double>();
+    private final Set<Long> incremental_pendingTxns = new HashSet<Long>();
+
     /**
      * Cost Estimate Explanation
      */
@@ -450,6 +467,7 @@ public class SingleSitedCostModel extends AbstractCostModel {
 
         this.txn_entries.clear();
         this.last_invalidateTxns.clear();
+        this.resetIncremental();
 
         for (Collection<QueryCacheEntry> c : this.cache_tableXref.values()) {
             c.clear();
@@ -645,6 +663,8 @@ public class SingleSitedCostModel extends AbstractCostModel {
         this.cache_procXref.get(txn_entry.proc_key).remove(txn_entry);
         this.txn_entries.remove(txn_entry.getTransactionId());
         this.last_invalidateTxns.add(txn_entry.getTransactionId());
+        if (this.incremental_workload != null)
+            this.incremental_pendingTxns.add(txn_entry.getTransactionId());
     }
 
     /**
@@ -792,6 +812,8 @@ public class SingleSitedCostModel extends AbstractCostModel {
                 this.histogram_sp_procs.dec(txn_entry.getProcedureKey(), txn_entry.weight);
             }
             txn_entry.singlesited = new_singlesited;
+            if (this.incremental_workload != null)
+                this.incremental_pendingTxns.add(txn_entry.getTransactionId());
         } // FOR
 
         // Sanity Check: If we don't have any TransactionCacheEntries, then the
@@ -827,6 +849,106 @@ public class SingleSitedCostModel extends AbstractCostModel {
         }
     }
 
+    // --------------------------------------------------------------------------------------------
+    // INCREMENTAL ESTIMATION METHODS
+    // --------------------------------------------------------------------------------------------
+
+    @Override
+    public void applyDesignerHints(DesignerHints hints) {
+        super.applyDesignerHints(hints);
+        this.setIncrementalEnabled(hints.enable_costmodel_incremental);
+    }
+
+    /**
+     * Enable incremental workload estimates. This only works if caching is
+     * enabled and the filters passed into estimateWorkloadCost() never skip
+     * entire transactions.
+     * @param useIncremental
+     */
+    public void setIncrementalEnabled(boolean useIncremental) {
+        if (debug.val)
+            LOG.debug("Incremental Estimates: " + useIncremental);
+        this.use_incremental = useIncremental;
+        this.resetIncremental();
+    }
+
+    public boolean isIncrementalEnabled() {
+        return (this.use_incremental);
+    }
+
+    private void resetIncremental() {
+        this.incremental_workload = null;
+        this.incremental_filter = null;
+        this.incremental_cost = 0d;
+        this.incremental_txnCosts.clear();
+        this.incremental_pendingTxns.clear();
+    }
+
+    /**
+     * Record the cost of the given txn for the next incremental estimate.
+     * Returns the change in the cost for this txn from the last time.
+     */
+    private double updateIncremental(TransactionTrace txn_trace, double cost) {
+        final Long txn_id = txn_trace.getTransactionId();
+        Double last_cost = this.incremental_txnCosts.put(txn_id, cost);
+        TransactionCacheEntry txn_entry = this.txn_entries.get(txn_id);
+        if (txn_entry == null || txn_entry.isComplete() == false ||
+            txn_entry.base_partition == HStoreConstants.NULL_PARTITION_ID) {
+            this.incremental_pendingTxns.add(txn_id);
+        }
+        return (cost - (last_cost != null ? last_cost.doubleValue() : 0d));
+    }
+
+    @Override
+    protected double estimateWorkloadCostImpl(CatalogContext catalogContext, Workload workload, Filter filter, Double upper_bound) throws Exception {
+        if (this.use_incremental == false || this.use_caching == false) {
+            return (super.estimateWorkloadCostImpl(catalogContext, workload, filter, upper_bound));
+        }
+
+        // If we have already seen every txn in this workload with this filter, then we
+        // only need to recalculate the ones that were invalidated or that were incomplete.
+        // A different filter can include different queries for the same txns, so we
+        // can't reuse any of the costs that we computed with the last one
+        if (this.incremental_workload == workload && this.incremental_filter == filter) {
+            if (debug.val)
+                LOG.debug(String.format("Incremental estimate for %d out of %d txns",
+                          this.incremental_pendingTxns.size(), this.incremental_txnCosts.size()));
+            Long txn_ids[] = this.incremental_pendingTxns.toArray(new Long[this.incremental_pendingTxns.size()]);
+            this.incremental_pendingTxns.clear();
+            for (Long txn_id : txn_ids) {
+                TransactionTrace txn_trace = workload.getTransaction(txn_id);
+                assert (txn_trace != null) : "Missing txn #" + txn_id;
+                double cost = this.estimateTransactionCost(catalogContext, workload, filter, txn_trace);
+                this.incremental_cost += this.updateIncremental(txn_trace, cost);
+            } // FOR
+            return (this.incremental_cost);
+        }
+
+        // Otherwise we have to look at the entire workload. Note that we ignore
+        // the upper bound here because we need a cost for every txn
+        this.resetIncremental();
+        double cost = 0.0d;
+        int txn_ctr = 0;
+        Iterator<TransactionTrace> it = workload.iterator(filter);
+        while (it.hasNext()) {
+            TransactionTrace txn_trace = it.next();
+            double txn_cost = this.estimateTransactionCost(catalogContext, workload, filter, txn_trace);
+            cost += this.updateIncremental(txn_trace, txn_cost);
+            txn_ctr++;
+        } // WHILE
+        if (txn_ctr == workload.getTransactionCount()) {
+            this.incremental_workload = workload;
+            this.incremental_filter = filter;
+            this.incremental_cost = cost;
+        } else {
+            if (debug.val)
+                LOG.debug(String.format("Filter skipped %d txns. Unable to use incremental estimates",
+                          workload.getTransactionCount() - txn_ctr));
+            this.resetIncremental();
+        }
+        return (cost);
+    }
+
     // --------------------------------------------------------------------------------------------
     // ESTIMATION METHODS
     // --------------------------------------------------------------------------------------------
@@ -114,6 +114,19 @@ public class DesignerHints implements Cloneable, JSONSerializable {
     public Integer limit_back_tracks = null;
     public double back_tracks_multiplier = 1.01;
 
+    /**
+     * The number of threads to use for the branch-and-bound search. Each
+     * thread searches against its own copy of the catalog and they all share
+     * the same best solution for pruning.
+     */
+    public int search_threads = 1;
+
+    /**
+     * How many levels at the top of the search tree are searched once before
+     * the threads start. Each subtree below this depth is searched by one thread.
+     */
+    public int search_split_depth = 2;
+
     /**
      * The amount of memory available to each partition
      */
@@ -150,6 +163,13 @@ public class DesignerHints implements Cloneable, JSONSerializable {
     /** Enable caching in cost models */
     public boolean enable_costmodel_caching = false;
 
+    /**
+     * Enable incremental workload estimates in cost models. Only the txns that
+     * were invalidated since the last estimate are recalculated. Requires
+     * caching and filters that never skip entire transactions.
+     */
+    public boolean enable_costmodel_incremental = false;
+
     /** Enable skew calculations in cost models */
     public boolean enable_costmodel_skew = true;
 
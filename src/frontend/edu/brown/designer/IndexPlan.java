@@ -12,6 +12,7 @@ import org.voltdb.catalog.Column;
 import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.Table;
+import org.voltdb.types.IndexType;
 
 public class IndexPlan extends HashMap<Table, Set<IndexPlan.Entry>> {
     private static final long serialVersionUID = 1L;
@@ -24,6 +25,7 @@ public class IndexPlan extends HashMap<Table, Set<IndexPlan.Entry>> {
         private final List<Column> columns = new ArrayList<Column>();
         private final Set<Procedure> procedures = new HashSet<Procedure>();
         private double weight = 0;
+        private IndexType type = IndexType.HASH_TABLE;
 
         public Entry(Table catalog_tbl) {
             this.catalog_tbl = catalog_tbl;
@@ -60,6 +62,17 @@ public class IndexPlan extends HashMap<Table, Set<IndexPlan.Entry>> {
             this.weight = weight;
         }
 
+        /**
+         * The type of index that the designer will create for this entry
+         */
+        public IndexType getType() {
+            return this.type;
+        }
+
+        public void setType(IndexType type) {
+            this.type = type;
+        }
+
         @Override
         public boolean equals(Object obj) {
             if (obj instanceof Entry) {
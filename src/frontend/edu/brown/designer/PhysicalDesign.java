@@ -104,10 +104,9 @@ public class PhysicalDesign {
                 int idx = table_idxs.get(new_catalog_tbl);
                 table_idxs.put(new_catalog_tbl, idx + 1);
 
-                // TODO: Support different index types
-                String idx_name = "IDX_" + new_catalog_tbl.getName() + "_DESIGNER_" + idx;
+                String idx_name = "IDX_" + new_catalog_tbl.getName() + "_DESIGNER_" + idx + index.getType().getSQLSuffix();
                 Index new_catalog_index = catalog_tbl.getIndexes().add(idx_name);
-                new_catalog_index.setType(IndexType.HASH_TABLE.getValue());
+                new_catalog_index.setType(index.getType().getValue());
 
                 // need to set other index data here (column, etc)
                 for (int i = 0, cnt = index.getColumns().size(); i < cnt; i++) {
@@ -5,16 +5,22 @@ package edu.brown.designer.partitioners;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.collections15.CollectionUtils;
 import org.apache.log4j.Logger;
+import org.voltdb.CatalogContext;
 import org.voltdb.catalog.CatalogType;
 import org.voltdb.catalog.Column;
 import org.voltdb.catalog.Database;
@@ -32,6 +38,7 @@ import edu.brown.catalog.special.NullProcParameter;
 import edu.brown.catalog.special.ReplicatedColumn;
 import edu.brown.catalog.special.VerticalPartitionColumn;
 import edu.brown.costmodel.AbstractCostModel;
+import edu.brown.costmodel.TimeIntervalCostModel;
 import edu.brown.designer.AccessGraph;
 import edu.brown.designer.Designer;
 import edu.brown.designer.DesignerHints;
@@ -41,11 +48,14 @@ import edu.brown.designer.generators.AccessGraphGenerator;
 import edu.brown.designer.partitioners.plan.PartitionPlan;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
+import edu.brown.mappings.ParameterMappingsSet;
 import edu.brown.profilers.ProfileMeasurement;
 import edu.brown.statistics.TableStatistics;
+import edu.brown.utils.ClassUtil;
 import edu.brown.utils.MathUtil;
 import edu.brown.utils.StringBoxUtil;
 import edu.brown.utils.StringUtil;
+import edu.brown.utils.ThreadUtil;
 import edu.brown.workload.filters.Filter;
 
 /**
@@ -239,6 +249,116 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
         }
     } // END CLASS
 
+    /**
+     * The state that is shared between all of the workers in a parallel
+     * search. Each worker searches against its own copy of the catalog, so
+     * the only things that they need to agree on are the best solution found
+     * thus far, which subtrees still need to be searched, and whether the
+     * search needs to stop.
+     */
+    protected static class SharedSearchState {
+        /** The index of the level in the search tree where the subtrees start */
+        private final int split_idx;
+        /**
+         * The StateVertex for the root of each subtree at the split level.
+         * These are ordered by their cost so that the workers look at the most
+         * promising subtrees first.
+         */
+        private final Queue<StateVertex> subtrees = new PriorityBlockingQueue<StateVertex>(11, new Comparator<StateVertex>() {
+            @Override
+            public int compare(StateVertex v0, StateVertex v1) {
+                return (v0.cost.compareTo(v1.cost));
+            }
+        });
+        private final AtomicInteger subtree_ctr = new AtomicInteger(0);
+        private final AtomicLong backtrack_ctr = new AtomicLong(0);
+        private volatile StateVertex best_vertex;
+        private volatile HaltReason halt_reason = null;
+        /** True while the levels above the split level are still being searched */
+        private volatile boolean collecting = true;
+
+        public SharedSearchState(StateVertex start, int split_idx) {
+            this.best_vertex = start;
+            this.split_idx = split_idx;
+        }
+
+        public StateVertex getBestVertex() {
+            return (this.best_vertex);
+        }
+
+        /**
+         * Replace the best solution with the given StateVertex if it has a
+         * lower cost. Returns true if the given StateVertex is the new best.
+         * 
+         * @param state
+         * @return
+         */
+        public synchronized boolean offer(StateVertex state) {
+            if (this.best_vertex.isStartVertex() || state.cost < this.best_vertex.cost) {
+                this.best_vertex = state;
+                return (true);
+            }
+            return (false);
+        }
+
+        /**
+         * Add the root of a subtree at the split level that still needs to be
+         * searched by one of the workers.
+         * 
+         * @param state
+         */
+        public void addSubtree(StateVertex state) {
+            assert (this.collecting);
+            assert (state.depth == this.split_idx) : state.depth + " != " + this.split_idx;
+            this.subtrees.add(state);
+            this.subtree_ctr.incrementAndGet();
+        }
+
+        /**
+         * Returns the next subtree that a worker should search. Returns null
+         * if there are no more subtrees left.
+         * 
+         * @return
+         */
+        public StateVertex claim() {
+            assert (this.collecting == false);
+            return (this.subtrees.poll());
+        }
+
+        public int getSplitIndex() {
+            return (this.split_idx);
+        }
+
+        public boolean isCollecting() {
+            return (this.collecting);
+        }
+
+        public void finishCollecting() {
+            this.collecting = false;
+        }
+
+        public int getSubtreeCount() {
+            return (this.subtree_ctr.get());
+        }
+
+        public long getBackTrackCount() {
+            return (this.backtrack_ctr.get());
+        }
+
+        public boolean isHalted() {
+            return (this.halt_reason != null);
+        }
+
+        public HaltReason getHaltReason() {
+            return (this.halt_reason);
+        }
+
+        public synchronized void halt(HaltReason reason) {
+            if (this.halt_reason == null)
+                this.halt_reason = reason;
+        }
+    } // END CLASS
+
     // --------------------------------------------------------------------------------------------
     // DATA MEMBERS
     // --------------------------------------------------------------------------------------------
@@ -249,6 +369,11 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
     protected final Map<CatalogType, WorkloadFilter> traversal_filters = new HashMap<CatalogType, WorkloadFilter>();
     protected TraverseThread thread = null;
 
+    /**
+     * Only set if we are using multiple threads for the search
+     */
+    protected SharedSearchState shared = null;
+
     protected List<Table> table_visit_order = new ArrayList<Table>();
     protected List<Procedure> proc_visit_order = new ArrayList<Procedure>();
     protected AccessGraph agraph = null;
@@ -313,7 +438,9 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
      * @return
      */
     public Boolean wasHalted() {
-        if (this.thread != null) {
+        if (this.shared != null) {
+            return (this.shared.isHalted());
+        } else if (this.thread != null) {
             return (this.thread.halt_search);
         }
         return (null);
@@ -325,12 +452,16 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
      * @return
      */
     public HaltReason getLastHaltReason() {
+        if (this.shared != null)
+            return (this.shared.isHalted() ? this.shared.getHaltReason() : HaltReason.EXHAUSTED_SEARCH);
         if (this.thread != null)
             return (this.thread.halt_reason);
         return (null);
     }
 
     public Long getLastBackTrackCount() {
+        if (this.shared != null)
+            return (this.shared.getBackTrackCount());
         if (this.thread != null)
             return (this.thread.backtrack_ctr);
         return (null);
@@ -345,6 +476,30 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
         return (this.best_vertex);
     }
 
+    /**
+     * Return the best StateVertex found by any thread in the current search
+     * 
+     * @return
+     */
+    private StateVertex getCurrentBestVertex() {
+        return (this.shared != null ? this.shared.getBestVertex() : this.best_vertex);
+    }
+
+    /**
+     * Try to make the given StateVertex the new best solution. Returns true if
+     * it was accepted.
+     * 
+     * @param state
+     * @return
+     */
+    private boolean updateBestVertex(StateVertex state) {
+        if (this.shared != null && this.shared.offer(state) == false) {
+            return (false);
+        }
+        this.best_vertex = state;
+        return (true);
+    }
+
     protected PartitionPlan createPartitionPlan(DesignerHints hints, StateVertex vertex, boolean validate, boolean useCatalog) {
         Map<String, String> catalogkey_map = vertex.getCatalogKeyMap();
         if (validate) {
@@ -568,9 +723,16 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
             LOG.debug("Branch-and-Bound Status:\n" + StringUtil.formatMaps(m));
         }
 
-        this.thread = new TraverseThread(info, hints, this.best_vertex, this.agraph, this.table_visit_order, this.proc_visit_order);
-        thread.run(); // BLOCK
-        this.halt_reason = this.thread.halt_reason;
+        boolean completed_search = false;
+        this.shared = null;
+        if (this.canSearchInParallel(hints)) {
+            completed_search = this.generateParallel(hints);
+        } else {
+            this.thread = new TraverseThread(info, hints, this.best_vertex, this.agraph, this.table_visit_order, this.proc_visit_order);
+            thread.run(); // BLOCK
+            this.halt_reason = this.thread.halt_reason;
+            completed_search = this.thread.completed_search;
+        }
 
         PartitionPlan pplan = null;
 
@@ -592,7 +754,7 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
             this.setProcedureSinglePartitionFlags(pplan, hints);
         }
         // Make sure that we actually completed the search and didn't just abort
-        if (!thread.completed_search) {
+        if (!completed_search) {
             LOG.error("Failed to complete search successfully:\n" + pplan);
             assert (false);
         }
@@ -600,6 +762,143 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
         return (pplan);
     }
 
+    // --------------------------------------------------------------------------------------------
+    // PARALLEL SEARCH
+    // --------------------------------------------------------------------------------------------
+
+    /**
+     * Returns true if we can split the search for the given hints across
+     * multiple threads. The greedy search only ever follows a single path, so
+     * there is nothing to split up. Vertical partitioning modifies the
+     * WorkloadStatistics, so that is not safe to do concurrently.
+     * 
+     * @param hints
+     * @return
+     */
+    protected boolean canSearchInParallel(DesignerHints hints) {
+        // We need at least one table above the split level and one below it
+        if (hints.search_threads <= 1 || this.table_visit_order.size() < 2)
+            return (false);
+        if (hints.greedy_search || hints.enable_vertical_partitioning) {
+            if (debug.val)
+                LOG.debug("Unable to use parallel search with greedy search or vertical partitioning");
+            return (false);
+        }
+        if (info.getMappings() != null && info.getMappingsFile() == null) {
+            if (debug.val)
+                LOG.debug("Unable to use parallel search without a ParameterMappings file");
+            return (false);
+        }
+        return (true);
+    }
+
+    /**
+     * Execute the search using multiple worker threads. We first search the
+     * levels of the tree above the split depth ourselves to find the root of
+     * every subtree that is worth searching. Each worker then gets its own copy
+     * of the catalog and cost model, and searches those subtrees until there
+     * are none left. They all prune against the same best solution.
+     * Returns true if all of the workers completed their search.
+     * 
+     * @param hints
+     * @return
+     * @throws Exception
+     */
+    protected boolean generateParallel(final DesignerHints hints) throws Exception {
+        int split_depth = Math.max(1, Math.min(hints.search_split_depth, this.table_visit_order.size() - 1));
+        this.shared = new SharedSearchState(this.best_vertex, split_depth);
+        if (debug.val)
+            LOG.debug(String.format("Starting parallel search [threads=%d, splitDepth=%d]", hints.search_threads, split_depth));
+
+        // Search the levels above the split depth once
+        this.thread = new TraverseThread(info, hints, this.best_vertex, this.agraph, this.table_visit_order, this.proc_visit_order);
+        this.thread.run(); // BLOCK
+        this.shared.finishCollecting();
+        if (debug.val)
+            LOG.debug(String.format("Found %d subtrees to search at depth %d", this.shared.getSubtreeCount(), split_depth));
+
+        final List<BranchAndBoundPartitioner> workers = new ArrayList<BranchAndBoundPartitioner>();
+        if (this.shared.isHalted() == false && this.shared.getSubtreeCount() > 0) {
+            int num_workers = Math.min(hints.search_threads, this.shared.getSubtreeCount());
+            List<Runnable> runnables = new ArrayList<Runnable>();
+            for (int i = 0; i < num_workers; i++) {
+                final BranchAndBoundPartitioner worker = this.createWorker(hints);
+                workers.add(worker);
+                runnables.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        worker.thread = worker.new TraverseThread(worker.info, hints, worker.best_vertex, worker.agraph, worker.table_visit_order, worker.proc_visit_order);
+                        worker.thread.run();
+                    }
+                });
+            } // FOR
+            ThreadUtil.runNewPool(runnables, num_workers); // BLOCK
+        }
+
+        boolean completed_search = this.thread.completed_search;
+        for (BranchAndBoundPartitioner worker : workers) {
+            completed_search = completed_search && (worker.thread != null && worker.thread.completed_search);
+        } // FOR
+        this.best_vertex = this.shared.getBestVertex();
+        this.halt_reason = this.getLastHaltReason();
+        LOG.info(String.format("Parallel Search Halted - %s [threads=%d, subtrees=%d, backTracks=%d]",
+                 this.halt_reason, workers.size(), this.shared.getSubtreeCount(), this.shared.getBackTrackCount()));
+        return (completed_search);
+    }
+
+    /**
+     * Create a new partitioner that will search against its own copy of the
+     * catalog. The StateVertex solutions that it generates only contain
+     * CatalogKeys, so we can apply them to our own catalog afterwards.
+     * 
+     * @param hints
+     * @return
+     * @throws Exception
+     */
+    protected BranchAndBoundPartitioner createWorker(final DesignerHints hints) throws Exception {
+        CatalogContext catalogContext = new CatalogContext(info.catalogContext.catalog.deepCopy());
+        Database catalog_db = catalogContext.database;
+        DesignerInfo worker_info = new DesignerInfo(catalogContext, info.workload, info.stats);
+        worker_info.setNumIntervals(info.getNumIntervals());
+        worker_info.setPartitionerClass(info.getPartitionerClass());
+        if (info.getMappingsFile() != null) {
+            ParameterMappingsSet mappings = new ParameterMappingsSet();
+            mappings.load(info.getMappingsFile(), catalog_db);
+            worker_info.setMappings(mappings);
+            worker_info.setMappingsFile(info.getMappingsFile());
+        }
+
+        // Cost Model
+        AbstractCostModel cost_model = info.getCostModel();
+        AbstractCostModel worker_costmodel = null;
+        if (cost_model instanceof TimeIntervalCostModel<?>) {
+            TimeIntervalCostModel<?> ti_costmodel = (TimeIntervalCostModel<?>) cost_model;
+            worker_costmodel = new TimeIntervalCostModel<AbstractCostModel>(catalogContext, ti_costmodel.getCostModel(0).getClass(), ti_costmodel.getIntevalCount());
+        } else {
+            worker_costmodel = (AbstractCostModel) ClassUtil.newInstance(cost_model.getClass(), new Object[] { catalogContext }, new Class<?>[] { CatalogContext.class });
+        }
+        worker_costmodel.applyDesignerHints(hints);
+        worker_info.setCostModel(worker_costmodel);
+
+        // Translate our search elements into the worker's catalog
+        List<Table> worker_tables = new ArrayList<Table>();
+        for (Table catalog_tbl : this.table_visit_order) {
+            worker_tables.add(catalog_db.getTables().get(catalog_tbl.getName()));
+        } // FOR
+        List<Procedure> worker_procs = new ArrayList<Procedure>();
+        for (Procedure catalog_proc : this.proc_visit_order) {
+            worker_procs.add(catalog_db.getProcedures().get(catalog_proc.getName()));
+        } // FOR
+        AccessGraph worker_agraph = AccessGraphGenerator.convertToSingleColumnEdges(catalog_db, AccessGraphGenerator.generateGlobal(worker_info));
+
+        BranchAndBoundPartitioner worker = new BranchAndBoundPartitioner(this.designer, worker_info, worker_agraph, worker_tables, worker_procs);
+        worker.upper_bounds_pplan = this.upper_bounds_pplan;
+        worker.upper_bounds_vertex = this.upper_bounds_vertex;
+        worker.shared = this.shared;
+        worker.init(hints);
+        return (worker);
+    }
+
     /**
      * 
      */
@@ -785,7 +1084,7 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
                 if (this.halt_time != null)
                     LOG.debug("Remaining Search Time: " + (this.halt_time - System.currentTimeMillis()) / 1000d);
                 LOG.debug(String.format("Starting Search for %d Elements: %s", this.all_search_elements.size(), this.all_search_elements));
-                LOG.debug("Current Best Solution: " + best_vertex.cost);
+                LOG.debug("Current Best Solution: " + getCurrentBestVertex().cost);
             }
             if (hints.target_plan != null) {
                 LOG.info("Searching for target PartitionPlan '" + hints.target_plan_path + "'");
@@ -793,7 +1092,11 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
 
             ProfileMeasurement timer = new ProfileMeasurement("timer").start();
             try {
-                this.traverse(start, 0);
+                if (shared != null && shared.isCollecting() == false) {
+                    this.traverseSubtrees();
+                } else {
+                    this.traverse(start, 0);
+                }
             } catch (Exception ex) {
                 LOG.error("Failed to execute search", ex);
                 throw new RuntimeException(ex);
@@ -806,6 +1109,65 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
             LOG.info(String.format("Search Halted - %s [%.2f sec]", this.halt_reason, timer.getTotalThinkTimeSeconds()));
         }
 
+        /**
+         * Search the subtrees that were found by the coordinator of a parallel
+         * search until there are none left. The levels above each subtree were
+         * already searched, so we just apply their partitioning attributes to
+         * our copy of the catalog and then start at the split level.
+         * 
+         * @throws Exception
+         */
+        protected void traverseSubtrees() throws Exception {
+            final Database catalog_db = info.catalogContext.database;
+            final int split_idx = shared.getSplitIndex();
+            assert (split_idx > 0 && split_idx < this.num_tables) : "Invalid split index " + split_idx;
+
+            StateVertex subtree = null;
+            while (this.halt_search == false && shared.isHalted() == false && (subtree = shared.claim()) != null) {
+                // The best solution might have gotten better since this subtree was added
+                StateVertex current_best = getCurrentBestVertex();
+                if (this.hints.exhaustive_search == false && current_best.isStartVertex() == false && subtree.cost >= current_best.cost) {
+                    if (trace.val)
+                        LOG.trace("Pruning subtree " + subtree.getCatalogKeyMap());
+                    continue;
+                }
+                if (debug.val)
+                    LOG.debug(String.format("Searching subtree [cost=%.05f]: %s", subtree.cost, subtree.getCatalogKeyMap()));
+
+                // Apply the partitioning columns for the levels above the split
+                // in the same order that traverse() would have
+                for (int i = 0; i < split_idx; i++) {
+                    Table catalog_tbl = (Table) this.all_search_elements.get(i);
+                    String col_key = subtree.getCatalogKeyMap().get(this.all_search_keys.get(i));
+                    Column search_col = CatalogKey.getFromKey(catalog_db, col_key, Column.class);
+                    assert (search_col != null) : "Invalid column key " + col_key;
+                    if (search_col instanceof ReplicatedColumn) {
+                        catalog_tbl.setIsreplicated(true);
+                        catalog_tbl.setPartitioncolumn(ReplicatedColumn.get(catalog_tbl));
+                    } else if (search_col instanceof MultiColumn) {
+                        catalog_tbl.setIsreplicated(false);
+                        catalog_tbl.setPartitioncolumn(search_col);
+                    } else {
+                        catalog_tbl.setIsreplicated(false);
+                        catalog_tbl.setPartitioncolumn(catalog_tbl.getColumns().get(search_col.getName()));
+                    }
+                    if (this.cost_model.isCachingEnabled()) {
+                        this.cost_model.invalidateCache(this.all_search_keys.get(i));
+                    }
+                    this.cp.update(catalog_tbl);
+                } // FOR
+                if (this.cost_model.isCachingEnabled() == false) {
+                    this.cost_model.clear();
+                }
+
+                this.traverse(subtree, split_idx);
+
+                for (int i = split_idx - 1; i >= 0; i--) {
+                    this.cp.reset(this.all_search_elements.get(i));
+                } // FOR
+            } // WHILE
+        }
+
         /**
          * @param parent
          * @param idx
@@ -826,22 +1188,36 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
                 assert (current instanceof Table);
             final String spacer = BranchAndBoundPartitioner.TRAVERSAL_SPACERS.get(idx);
 
+            // If another thread halted the search, then we need to stop too
+            if (this.halt_search == false && shared != null && shared.isHalted()) {
+                this.halt_search = true;
+                this.halt_reason = shared.getHaltReason();
+            }
             if (this.halt_search == false) {
                 assert (this.halt_reason == null);
-                if (hints.limit_back_tracks != null && hints.limit_back_tracks >= 0 && this.backtrack_ctr > hints.limit_back_tracks) {
-                    LOG.info("Hit back track limit. Halting search [" + this.backtrack_ctr + "]");
-                    this.halt_search = true;
-                    this.halt_reason = HaltReason.BACKTRACK_LIMIT;
+                long backtracks = (shared != null ? shared.getBackTrackCount() : this.backtrack_ctr);
+                if (hints.limit_back_tracks != null && hints.limit_back_tracks >= 0 && backtracks > hints.limit_back_tracks) {
+                    LOG.info("Hit back track limit. Halting search [" + backtracks + "]");
+                    this.haltSearch(HaltReason.BACKTRACK_LIMIT);
                     return;
                 } else if (this.halt_time != null && System.currentTimeMillis() >= this.halt_time) {
-                    LOG.info("Hit time limit. Halting search [" + this.backtrack_ctr + "]");
-                    this.halt_search = true;
-                    this.halt_reason = (this.halt_time_local ? HaltReason.LOCAL_TIME_LIMIT : HaltReason.GLOBAL_TIME_LIMIT);
+                    LOG.info("Hit time limit. Halting search [" + backtracks + "]");
+                    this.haltSearch(this.halt_time_local ? HaltReason.LOCAL_TIME_LIMIT : HaltReason.GLOBAL_TIME_LIMIT);
                     return;
                 }
             } else
                 return;
 
+            // If we are searching the levels above the split level for a parallel
+            // search, then we hand this subtree off to the workers instead of
+            // searching it ourselves
+            if (shared != null && shared.isCollecting() && idx == shared.getSplitIndex()) {
+                if (trace.val)
+                    LOG.trace("Adding subtree for parallel search: " + parent.getCatalogKeyMap());
+                shared.addSubtree(parent);
+                return;
+            }
+
             // Get the list of possible attributes that we could use for this
             // current element
             Collection<CatalogType> current_attributes = null;
@@ -1015,7 +1391,7 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
                 Double singlep_txns = null;
                 // Don't estimate the cost if it doesn't fit
                 if (!memory_exceeded) {
-                    cost = this.cost_model.estimateWorkloadCost(info.catalogContext, info.workload, filter, best_vertex.cost);
+                    cost = this.cost_model.estimateWorkloadCost(info.catalogContext, info.workload, filter, getCurrentBestVertex().cost);
                     singlep_txns = this.cost_model.getSinglePartitionProcedureHistogram().getSampleCount() / (double) this.cost_model.getProcedureHistogram().getSampleCount();
                 } else {
                     cost = Double.MAX_VALUE;
@@ -1071,7 +1447,7 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
                         LOG.error("CURRENT COST IS GREATER THAN CURRENT COST! THIS CANNOT HAPPEN!\n" + StringUtil.formatMaps(m0, m1));
 
                         cost_model.clear();
-                        double cost2 = this.cost_model.estimateWorkloadCost(info.catalogContext, info.workload, filter, best_vertex.cost);
+                        double cost2 = this.cost_model.estimateWorkloadCost(info.catalogContext, info.workload, filter, getCurrentBestVertex().cost);
                         LOG.error("Second Time: " + cost2);
 
                     }
@@ -1090,15 +1466,15 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
                 // (a) The current best solution is the start vertex
                 // (b) Or the current solution has a cost less than the current
                 // best solution
+                final StateVertex current_best = getCurrentBestVertex();
                 if (complete_solution && memory_exceeded == false && cost < BranchAndBoundPartitioner.this.upper_bounds_vertex.cost
-                        && (BranchAndBoundPartitioner.this.best_vertex.isStartVertex() || cost < BranchAndBoundPartitioner.this.best_vertex.cost)) {
-                    assert (best_vertex.cost > state.cost) : "Best=" + best_vertex.cost + ", Current=" + state.cost;
+                        && (current_best.isStartVertex() || cost < current_best.cost) && updateBestVertex(state)) {
+                    assert (current_best.cost > state.cost) : "Best=" + current_best.cost + ", Current=" + state.cost;
                     assert (upper_bounds_vertex.cost > state.cost) : "Upper=" + upper_bounds_vertex.cost + ", Current=" + state.cost;
 
                     if (debug.val) {
-                        LOG.debug("Old Solution:\n" + StringBoxUtil.box(best_vertex.toString()));
+                        LOG.debug("Old Solution:\n" + StringBoxUtil.box(current_best.toString()));
                     }
-                    BranchAndBoundPartitioner.this.best_vertex = state;
                     if (debug.val) {
                         LOG.debug("New Best Solution:\n" + StringBoxUtil.box(best_vertex.toString()));
                         if (this.cost_model.hasDebugMessages())
@@ -1106,8 +1482,11 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
                     }
 
                     // Log new solution cost
-                    if (hints.shouldLogSolutionCosts())
-                        hints.logSolutionCost(state.cost, state.singlep_txns);
+                    if (hints.shouldLogSolutionCosts()) {
+                        synchronized (hints) {
+                            hints.logSolutionCost(state.cost, state.singlep_txns);
+                        } // SYNCH
+                    }
 
                     // Check whether we found our target solution and need to
                     // stop
@@ -1120,8 +1499,7 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
                             LOG.info("Comparing new best solution with target PartitionPlan");
                         PartitionPlan new_plan = createPartitionPlan(hints, best_vertex, false, false);
                         if (hints.target_plan.getTableEntries().equals(new_plan.getTableEntries())) {
-                            this.halt_search = true;
-                            this.halt_reason = HaltReason.FOUND_TARGET;
+                            this.haltSearch(HaltReason.FOUND_TARGET);
                         }
                     }
 
@@ -1158,7 +1536,7 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
                 // exhaustive flag is enabled
                 if (this.halt_search == false
                         && ((last_attribute && is_table && this.hints.greedy_search) || (this.hints.exhaustive_search == true) || (complete_solution == false && is_table
-                                && cost < BranchAndBoundPartitioner.this.best_vertex.cost && cost < BranchAndBoundPartitioner.this.upper_bounds_vertex.cost))) {
+                                && cost < getCurrentBestVertex().cost && cost < BranchAndBoundPartitioner.this.upper_bounds_vertex.cost))) {
 
                     // IMPORTANT: If this is the last table in our traversal,
                     // then we need to switch over
@@ -1225,7 +1603,7 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
                 // past our best cost
                 // our upper bounds, then keep going...
                 if (complete_solution == false && hints.enable_procparameter_search && (this.hints.greedy_search == true)
-                        || (local_best_vertex.cost < best_vertex.cost && local_best_vertex.cost < upper_bounds_vertex.cost)) {
+                        || (local_best_vertex.cost < getCurrentBestVertex().cost && local_best_vertex.cost < upper_bounds_vertex.cost)) {
                     this.cp.update(current_proc);
                     this.traverse(local_best_vertex, idx + 1);
                     this.cp.reset(current_proc);
@@ -1246,11 +1624,21 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
                     catalog_proc.setPartitionparameter(-1);
                 } // FOR
             }
-            if (this.halt_search == false)
+            if (this.halt_search == false) {
                 this.backtrack_ctr++;
+                if (shared != null)
+                    shared.backtrack_ctr.incrementAndGet();
+            }
             return;
         }
 
+        private void haltSearch(HaltReason reason) {
+            this.halt_search = true;
+            this.halt_reason = reason;
+            if (shared != null)
+                shared.halt(reason);
+        }
+
         private void revertVerticalPartitionColumn(VerticalPartitionColumn vp_col) {
             // Reset the catalog and optimized queries in the cost model
             vp_col.revertUpdate();
@@ -1271,8 +1659,9 @@ public class BranchAndBoundPartitioner extends AbstractPartitioner {
 
         private StringBuilder createLevelOutput(StateVertex state, String label, String spacer, boolean memory_exceeded) {
             final StringBuilder debug = new StringBuilder();
-            if (!BranchAndBoundPartitioner.this.best_vertex.isStartVertex()) {
-                debug.append(String.format("[%.02f] ", BranchAndBoundPartitioner.this.best_vertex.cost));
+            final StateVertex current_best = getCurrentBestVertex();
+            if (!current_best.isStartVertex()) {
+                debug.append(String.format("[%.02f] ", current_best.cost));
             } else {
                 debug.append("[----] ");
             }
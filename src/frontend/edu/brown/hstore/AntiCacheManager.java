@@ -816,6 +816,14 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
             return tables.values();
         }
         
+        public void updateCompression(long uncompressed, long compressed,
+                long compressionTime, long decompressionTime) {
+            this.blockBytesUncompressed += uncompressed;
+            this.blockBytesCompressed += compressed;
+            this.compressionTime += compressionTime;
+            this.decompressionTime += decompressionTime;
+        }
+        
         public void setEvicted() {
             evictionSizeKb = sizeKb;
             evictionBlocksEvicted = blocksEvicted;
@@ -836,9 +844,19 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
             for (Stats tstats : tables.values()) {
                 tstats.reset();
             }
+            blockBytesUncompressed = 0;
+            blockBytesCompressed = 0;
+            compressionTime = 0;
+            decompressionTime = 0;
         }
 
         private HashMap<String, Stats> tables;
+        
+        // Block compression (times are in nanoseconds)
+        private long blockBytesUncompressed = 0;
+        private long blockBytesCompressed = 0;
+        private long compressionTime = 0;
+        private long decompressionTime = 0;
     }
 
     private class Stats {
@@ -897,6 +915,10 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
                 long blocksWritten = vt.getLong("ANTICACHE_BLOCKS_WRITTEN");
                 long accesses = vt.getLong("TUPLE_ACCESSES");
                 stats.update(table, sizeKb, blocksEvicted, blocksFetched, blocksWritten, accesses, indexes);
+                stats.updateCompression(vt.getLong("ANTICACHE_BLOCK_BYTES_UNCOMPRESSED"),
+                                        vt.getLong("ANTICACHE_BLOCK_BYTES_COMPRESSED"),
+                                        vt.getLong("ANTICACHE_COMPRESSION_TIME"),
+                                        vt.getLong("ANTICACHE_DECOMPRESSION_TIME"));
             } while(vt.advanceRow());
 
             //LOG.info(String.format("Tuple Mem: %d; String Mem: %d\n", tupleMem, stringMem));
@@ -979,6 +1001,27 @@ public class AntiCacheManager extends AbstractProcessingRunnable<AntiCacheManage
         public boolean isEvicting() {
             return (pendingEvictions != 0);
         }
+        /**
+         * Returns the ratio of the uncompressed size of the evicted blocks
+         * at the given partition over the number of bytes that were written out.
+         */
+        public double getCompressionRatio(int partition) {
+            PartitionStats stats = partitionStats[partition];
+            if (stats.blockBytesCompressed == 0) return (1.0d);
+            return (stats.blockBytesUncompressed / (double)stats.blockBytesCompressed);
+        }
+        /**
+         * Returns the total time in nanoseconds spent compressing blocks
+         */
+        public long getCompressionTime(int partition) {
+            return (partitionStats[partition].compressionTime);
+        }
+        /**
+         * Returns the total time in nanoseconds spent decompressing blocks
+         */
+        public long getDecompressionTime(int partition) {
+            return (partitionStats[partition].decompressionTime);
+        }
     }
 
     private AntiCacheManager.Debug cachedDebugContext;
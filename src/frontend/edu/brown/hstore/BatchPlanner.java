@@ -87,11 +87,6 @@ public class BatchPlanner {
      */
     private static final AtomicInteger NEXT_DEPENDENCY_ID = new AtomicInteger(FIRST_DEPENDENCY_ID);
 
-    /**
-     * Cached set of PlanFragment -> Set<PartitionIds>
-     */
-    private static Map<Statement, Map<PlanFragment, PartitionSet>> CACHED_FRAGMENT_PARTITION_MAPS[];
-
     // ----------------------------------------------------------------------------
     // GLOBAL DATA MEMBERS
     // ----------------------------------------------------------------------------
@@ -123,7 +118,10 @@ public class BatchPlanner {
     private final boolean cache_isSinglePartition[];
     private final int cache_fastLookups[][];
     private final BatchPlan cache_singlePartitionPlans[];
-    private Map<Statement, Map<PlanFragment, PartitionSet>> cache_singlePartitionFragmentPartitions;
+    /**
+     * BasePartition -> StmtIndex -> PlanFragment -> PartitionSet
+     */
+    private final Map<PlanFragment, PartitionSet> cache_singlePartitionFragmentPartitions[][];
 
     // PROFILING
     private BatchPlannerProfiler profiler;
@@ -481,6 +479,7 @@ public class BatchPlanner {
         this.cache_isSinglePartition = (hstore_conf.site.planner_caching ? new boolean[this.batchSize] : null);
         this.cache_fastLookups = (hstore_conf.site.planner_caching ? new int[this.batchSize][] : null);
         this.cache_singlePartitionPlans = (hstore_conf.site.planner_caching ? new BatchPlan[this.catalogContext.numberOfPartitions] : null);
+        this.cache_singlePartitionFragmentPartitions = (Map<PlanFragment, PartitionSet>[][]) new Map<?, ?>[this.catalogContext.numberOfPartitions][];
         int nonReplicatedStmtCnt = 0;
         for (int i = 0; i < this.batchSize; i++) {
             this.catalog_stmts[i] = batchStmts[i].getStatement();
@@ -504,28 +503,6 @@ public class BatchPlanner {
             }
         } // FOR
         this.nonReplicatedStmtCount = nonReplicatedStmtCnt;
-
-        // Static Cache Members
-        if (CACHED_FRAGMENT_PARTITION_MAPS == null) {
-            synchronized (BatchPlanner.class) {
-                if (CACHED_FRAGMENT_PARTITION_MAPS == null)
-                    BatchPlanner.clear(this.catalogContext.numberOfPartitions);
-            } // SYNCH
-        }
-    }
-
-    /**
-     * Clear out internal cache
-     * 
-     * @param num_partitions
-     *            The total number of partitions in the cluster
-     */
-    @SuppressWarnings("unchecked")
-    public static synchronized void clear(int num_partitions) {
-        CACHED_FRAGMENT_PARTITION_MAPS = (Map<Statement, Map<PlanFragment, PartitionSet>>[]) new Map<?, ?>[num_partitions];
-        for (int i = 0; i < num_partitions; i++) {
-            CACHED_FRAGMENT_PARTITION_MAPS[i] = new HashMap<Statement, Map<PlanFragment, PartitionSet>>();
-        } // FOR
     }
 
     
@@ -563,6 +540,7 @@ public class BatchPlanner {
      * @param batchArgs
      * @return
      */
+    @SuppressWarnings("unchecked")
     public BatchPlan plan(final Long txn_id,
                           final int base_partition,
                           final PartitionSet predict_partitions,
@@ -717,17 +695,19 @@ public class BatchPlanner {
                 }
                 assert (has_singlepartition_plan);
 
-                if (this.cache_singlePartitionFragmentPartitions == null) {
-                    this.cache_singlePartitionFragmentPartitions = CACHED_FRAGMENT_PARTITION_MAPS[base_partition];
+                Map<PlanFragment, PartitionSet> cached_partition_maps[] = this.cache_singlePartitionFragmentPartitions[base_partition];
+                if (cached_partition_maps == null) {
+                    cached_partition_maps = (Map<PlanFragment, PartitionSet>[])new Map<?, ?>[this.batchSize];
+                    this.cache_singlePartitionFragmentPartitions[base_partition] = cached_partition_maps;
                 }
-                Map<PlanFragment, PartitionSet> cached_frag_partitions = this.cache_singlePartitionFragmentPartitions.get(catalog_stmt);
+                Map<PlanFragment, PartitionSet> cached_frag_partitions = cached_partition_maps[stmt_index];
                 if (cached_frag_partitions == null) {
                     cached_frag_partitions = new HashMap<PlanFragment, PartitionSet>();
                     PartitionSet p = this.catalogContext.getPartitionSetSingleton(base_partition);
                     for (PlanFragment catalog_frag : catalog_stmt.getFragments().values()) {
                         cached_frag_partitions.put(catalog_frag, p);
                     } // FOR
-                    this.cache_singlePartitionFragmentPartitions.put(catalog_stmt, cached_frag_partitions);
+                    cached_partition_maps[stmt_index] = cached_frag_partitions;
                 }
                 if (plan.stmt_partitions_swap[stmt_index] == null) {
                     plan.stmt_partitions_swap[stmt_index] = plan.stmt_partitions[stmt_index];
@@ -50,6 +50,8 @@ import edu.brown.markov.containers.MarkovGraphsContainerUtil;
 import edu.brown.markov.containers.MarkovGraphsContainer;
 import edu.brown.utils.ArgumentsParser;
 import edu.brown.utils.ClassUtil;
+import edu.brown.utils.EventObservable;
+import edu.brown.utils.EventObserver;
 import edu.brown.utils.PartitionEstimator;
 import edu.brown.utils.StringBoxUtil;
 import edu.brown.utils.ThreadUtil;
@@ -77,7 +79,8 @@ public abstract class HStore {
     /**
      * Retrieve a reference to the main HStoreSite running in this JVM. 
      * When running a real server (and not a test harness), this instance will only
-     * be useful after calling HStore.initialize().
+     * be useful after calling HStore.initialize(). If there are multiple HStoreSites
+     * in this JVM, then this is the first one that was initialized.
      *
      * @return A reference to the underlying HStoreSite object.
      */
@@ -118,12 +121,16 @@ public abstract class HStore {
      * Initialize the HStore server.
      */
     public synchronized static final HStoreSite initialize(CatalogContext catalogContext, int site_id, HStoreConf hstore_conf) {
-        singleton = new HStoreSite(site_id, catalogContext, hstore_conf);
+        HStoreSite hstore_site = new HStoreSite(site_id, catalogContext, hstore_conf);
+        
+        // When there are multiple HStoreSites in the same JVM (e.g., in-process
+        // benchmark clusters), the first one that was initialized is our singleton
+        if (singleton == null) singleton = hstore_site;
         
         // For every partition in our local site, we want to setup a new ExecutionSite
         // Thankfully I had enough sense to have PartitionEstimator take in the local partition
         // as a parameter, so we can share a single instance across all ExecutionSites
-        PartitionEstimator p_estimator = singleton.getPartitionEstimator();
+        PartitionEstimator p_estimator = hstore_site.getPartitionEstimator();
         
         // ----------------------------------------------------------------------------
         // MarkovGraphs
@@ -135,11 +142,11 @@ public abstract class HStore {
                 long start = System.currentTimeMillis();
                 try {
                     markovs = MarkovGraphsContainerUtil.loadIds(catalogContext, path, 
-                                                                singleton.getLocalPartitionIds());
+                                                                hstore_site.getLocalPartitionIds());
                 } catch (Exception ex) {
                     throw new RuntimeException(ex);
                 }
-                MarkovGraphsContainerUtil.setHasher(markovs, singleton.getPartitionEstimator().getHasher());
+                MarkovGraphsContainerUtil.setHasher(markovs, hstore_site.getPartitionEstimator().getHasher());
                 long load_time = System.currentTimeMillis() - start;
                 LOG.info(String.format("Finished loading %s '%s' in %.1f sec",
                          MarkovGraphsContainer.class.getSimpleName(), path, (load_time / 1000d)));
@@ -167,7 +174,7 @@ public abstract class HStore {
         // PartitionExecutor Initialization
         // ----------------------------------------------------------------------------
         boolean first = true;
-        for (int local_partition : singleton.getLocalPartitionIds().values()) {
+        for (int local_partition : hstore_site.getLocalPartitionIds().values()) {
             MarkovGraphsContainer local_markovs = null;
             if (markovs != null) {
                 if (markovs.containsKey(MarkovUtil.GLOBAL_MARKOV_CONTAINER_ID)) {
@@ -185,13 +192,13 @@ public abstract class HStore {
             // stick them into the HStoreSite
             if (debug.val)
                 LOG.debug(String.format("Creating %s for %s",
-                          TransactionEstimator.class.getSimpleName(), singleton.getSiteName()));
+                          TransactionEstimator.class.getSimpleName(), hstore_site.getSiteName()));
             TransactionEstimator t_estimator = null;
             if (hstore_conf.site.markov_enable) {
                 if (hstore_conf.site.markov_fixed == false && markovs != null) {
                     t_estimator = new MarkovEstimator(catalogContext, p_estimator, local_markovs);
                 } else if (hstore_conf.site.markov_fixed) {
-                    t_estimator = AbstractFixedEstimator.factory(p_estimator, singleton.getCatalogContext());
+                    t_estimator = AbstractFixedEstimator.factory(p_estimator, hstore_site.getCatalogContext());
                 }
             }
             if (first && t_estimator != null)
@@ -204,17 +211,17 @@ public abstract class HStore {
                           PartitionExecutor.class.getSimpleName(), local_partition));
             PartitionExecutor executor = new PartitionExecutor(
                                                 local_partition,
-                                                singleton.getCatalogContext(),
+                                                hstore_site.getCatalogContext(),
                                                 BackendTarget.NATIVE_EE_JNI, // BackendTarget.NULL,
                                                 p_estimator,
                                                 t_estimator);
-            singleton.addPartitionExecutor(local_partition, executor);
+            hstore_site.addPartitionExecutor(local_partition, executor);
             first = false;
         } // FOR
         
         TheHashinator.initialize(catalogContext.catalog);
         
-        return (singleton);
+        return (hstore_site);
     }
     
     /**
@@ -261,6 +268,16 @@ public abstract class HStore {
         // ----------------------------------------------------------------------------
         // Bombs Away!
         // ----------------------------------------------------------------------------
+        // IMPORTANT: This message must always be printed in order for the BenchmarkController
+        //            to know that we're ready! That's why we have to use System.out instead of LOG
+        hstore_site.getReadyObservable().addObserver(new EventObserver<HStoreSite>() {
+            @Override
+            public void update(EventObservable<HStoreSite> o, HStoreSite arg) {
+                System.out.println(arg.getReadyMessage());
+                System.out.flush();
+            }
+        });
+        
         if (debug.val)
             LOG.debug("Instantiating HStoreSite network connections for " + hstore_site.getSiteName());
         hstore_site.run();
@@ -51,6 +51,8 @@ public abstract class HStoreConstants {
     public static final String THREAD_NAME_QUEUE_RESTART = "queuerestart";
     public static final String THREAD_NAME_COMMANDLOGGER = "cmdlg";
     public static final String THREAD_NAME_ANTICACHE = "anticache";
+    public static final String THREAD_NAME_TRACE = "trace";
+    public static final String THREAD_NAME_EXPORT = "export";
     public static final String THREAD_NAME_LOGGING = "logging";
     public static final String THREAD_NAME_MAPREDUCE = "mr";
     public static final String THREAD_NAME_DEBUGSTATUS = "status";
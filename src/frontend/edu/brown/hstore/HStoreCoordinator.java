@@ -3,6 +3,7 @@ package edu.brown.hstore;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -95,6 +96,7 @@ import edu.brown.hstore.txns.LocalTransaction;
 import edu.brown.hstore.txns.RemoteTransaction;
 import edu.brown.hstore.txns.TransactionUtil;
 import edu.brown.hstore.util.TransactionCounter;
+import edu.brown.hstore.util.VoltTableCodec;
 import edu.brown.interfaces.Shutdownable;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
@@ -102,6 +104,7 @@ import edu.brown.protorpc.NIOEventLoop;
 import edu.brown.protorpc.ProtoRpcChannel;
 import edu.brown.protorpc.ProtoRpcController;
 import edu.brown.protorpc.ProtoServer;
+import edu.brown.protorpc.StripedProtoRpcChannel;
 import edu.brown.utils.EventObservable;
 import edu.brown.utils.PartitionSet;
 import edu.brown.utils.StringUtil;
@@ -130,6 +133,12 @@ public class HStoreCoordinator implements Shutdownable {
     private final int num_sites;
     private final int local_site_id;
     
+    /**
+     * The HStoreService methods that carry bulk data. If priority lanes are
+     * enabled, then these are sent on different connections than everything else.
+     */
+    private final Set<String> bulkMethods = new HashSet<String>();
+    
     /** SiteId -> HStoreService */
     private final HStoreService channels[];
     
@@ -295,6 +304,13 @@ public class HStoreCoordinator implements Shutdownable {
         this.local_site_id = this.catalog_site.getId();
         this.num_sites = this.hstore_site.getCatalogContext().numberOfSites;
         this.channels = new HStoreService[this.num_sites];
+        
+        if (hstore_conf.site.network_bulk_methods != null) {
+            for (String name : hstore_conf.site.network_bulk_methods.split(",")) {
+                name = name.trim();
+                if (name.isEmpty() == false) this.bulkMethods.add(name);
+            } // FOR
+        }
 
         if (debug.val)
             LOG.debug(String.format("Local Partitions for Site #%d: %s",
@@ -366,7 +382,8 @@ public class HStoreCoordinator implements Shutdownable {
             }
             if (has_prefetch) {
                 tmpPlanner = new PrefetchQueryPlanner(this.catalogContext,
-                                                      hstore_site.getPartitionEstimator());
+                                                      hstore_site.getPartitionEstimator(),
+                                                      hstore_site.getPrefetchQueryAdvisor());
             }
         }
         this.prefetchPlanner = tmpPlanner;
@@ -532,21 +549,30 @@ public class HStoreCoordinator implements Shutdownable {
         }
         else {
             if (debug.val) LOG.debug("Connecting to " + destinations.size() + " remote site messengers");
-            ProtoRpcChannel[] channels = null;
+            StripedProtoRpcChannel[] channels = null;
             InetSocketAddress arr[] = new InetSocketAddress[destinations.size()];
             for (int i = 0; i < arr.length; i++) {
                 arr[i] = destinations.get(i).getSecond();
                 if (debug.val) LOG.debug("Attemping to connect to " + arr[i]);
             } // FOR
                     
+            int num_connections = Math.max(1, hstore_conf.site.network_connections_per_site);
+            Collection<String> bulk_methods = (hstore_conf.site.network_priority_lanes ? this.bulkMethods : null);
+            if (debug.val)
+                LOG.debug(String.format("Using %d connections per remote site [priorityLanes=%s]",
+                          num_connections, hstore_conf.site.network_priority_lanes));
+            
             int tries = hstore_conf.site.network_startup_retries;
             boolean success = false;
             Throwable error = null;
             while (tries-- > 0 && success == false) {
                 try {
-                    channels = ProtoRpcChannel.connectParallel(this.eventLoop,
-                                                               arr,
-                                                               hstore_conf.site.network_startup_wait);
+                    channels = StripedProtoRpcChannel.connectParallel(HStoreService.getDescriptor(),
+                                                                      this.eventLoop,
+                                                                      arr,
+                                                                      num_connections,
+                                                                      bulk_methods,
+                                                                      hstore_conf.site.network_startup_wait);
                     success = true;
                 } catch (Throwable ex) {
                     if (tries > 0) {
@@ -1204,6 +1230,7 @@ public class HStoreCoordinator implements Shutdownable {
                 continue;
             }
 
+            int threshold = (hstore_conf.site.network_compression ? hstore_conf.site.network_compression_threshold : -1);
             SendDataRequest.Builder builder = SendDataRequest.newBuilder()
                                                 .setTransactionId(txn_id.longValue())
                                                 .setSenderSite(local_site_id);
@@ -1215,15 +1242,13 @@ public class HStoreCoordinator implements Shutdownable {
                     continue;
                 }
                 ByteString bs = null;
-                byte bytes[] = null;
                 try {
-                    bytes = ByteBuffer.wrap(FastSerializer.serialize(vt)).array();
-                    bs = ByteString.copyFrom(bytes); 
+                    bs = VoltTableCodec.serialize(vt, threshold, this.serializers.get());
                     if (debug.val)
                         LOG.debug(String.format("%s - Outbound data for partition #%d " +
                         		  "[RowCount=%d / MD5=%s / Length=%d]",
                                   ts, catalog_part.getId(),
-                                  vt.getRowCount(), StringUtil.md5sum(bytes), bytes.length));
+                                  vt.getRowCount(), StringUtil.md5sum(bs.toByteArray()), bs.size()));
                 } catch (Exception ex) {
                     String msg = String.format("Unexpected error when serializing %s data for partition %d",
                                                ts, catalog_part.getId());
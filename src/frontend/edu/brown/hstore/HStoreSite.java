@@ -33,6 +33,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.List;
@@ -56,6 +57,7 @@ import org.voltdb.ProcedureProfiler;
 import org.voltdb.StatsAgent;
 import org.voltdb.StatsSource;
 import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.StoredProcedureInvocationBatch;
 import org.voltdb.SysProcSelector;
 import org.voltdb.TransactionIdManager;
 import org.voltdb.VoltSystemProcedure;
@@ -83,6 +85,7 @@ import org.voltdb.sysprocs.SnapshotSave;
 import org.voltdb.utils.DBBPool;
 import org.voltdb.utils.EstTime;
 import org.voltdb.utils.EstTimeUpdater;
+import org.voltdb.utils.HTTPAdminListener;
 import org.voltdb.utils.Pair;
 import org.voltdb.utils.SystemStatsCollector;
 
@@ -95,6 +98,7 @@ import edu.brown.hstore.HStoreThreadManager.ThreadGroupType;
 import edu.brown.hstore.Hstoreservice.QueryEstimate;
 import edu.brown.hstore.Hstoreservice.Status;
 import edu.brown.hstore.Hstoreservice.WorkFragment;
+import edu.brown.hstore.callbacks.ClientResponseBatchCallback;
 import edu.brown.hstore.callbacks.ClientResponseCallback;
 import edu.brown.hstore.callbacks.LocalFinishCallback;
 import edu.brown.hstore.callbacks.LocalInitQueueCallback;
@@ -103,10 +107,13 @@ import edu.brown.hstore.callbacks.RedirectCallback;
 import edu.brown.hstore.cmdlog.CommandLogWriter;
 import edu.brown.hstore.conf.HStoreConf;
 import edu.brown.hstore.estimators.EstimatorState;
+import edu.brown.hstore.estimators.PartitionFootprintCache;
 import edu.brown.hstore.estimators.TransactionEstimator;
 import edu.brown.hstore.estimators.remote.RemoteEstimator;
 import edu.brown.hstore.estimators.remote.RemoteEstimatorState;
+import edu.brown.hstore.export.ExportManager;
 import edu.brown.hstore.internal.SetDistributedTxnMessage;
+import edu.brown.hstore.specexec.PrefetchQueryAdvisor;
 import edu.brown.hstore.stats.AntiCacheManagerProfilerStats;
 import edu.brown.hstore.stats.BatchPlannerProfilerStats;
 import edu.brown.hstore.stats.MarkovEstimatorProfilerStats;
@@ -121,6 +128,8 @@ import edu.brown.hstore.txns.DependencyTracker;
 import edu.brown.hstore.txns.LocalTransaction;
 import edu.brown.hstore.txns.RemoteTransaction;
 import edu.brown.hstore.util.MapReduceHelperThread;
+import edu.brown.hstore.util.PartitionAdmissionController;
+import edu.brown.hstore.util.ResultCache;
 import edu.brown.hstore.util.TransactionCounter;
 import edu.brown.hstore.util.TransactionProfilerDumper;
 import edu.brown.interfaces.Configurable;
@@ -130,6 +139,7 @@ import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
 import edu.brown.logging.RingBufferAppender;
 import edu.brown.markov.EstimationThresholds;
+import edu.brown.metrics.HStoreSiteMetrics;
 import edu.brown.plannodes.PlanNodeUtil;
 import edu.brown.profilers.HStoreSiteProfiler;
 import edu.brown.statistics.FastIntHistogram;
@@ -143,6 +153,7 @@ import edu.brown.utils.FileUtil;
 import edu.brown.utils.PartitionEstimator;
 import edu.brown.utils.PartitionSet;
 import edu.brown.utils.StringUtil;
+import edu.brown.workload.SampledWorkloadTrace;
 import edu.brown.workload.Workload;
 
 /**
@@ -217,6 +228,12 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
      */
     private final TransactionInitializer txnInitializer;
     
+    /**
+     * Bounded-staleness copies of the results of read-only single-partition txns.
+     * This will be null if ${site.result_cache_enable} is false.
+     */
+    private final ResultCache resultCache;
+    
     /**
      * This class determines what partitions transactions/queries will
      * need to execute on based on their input parameters.
@@ -294,6 +311,12 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
      */
     private final DependencyTracker depTrackers[];
     
+    /**
+     * Keeps track of which Statements we are allowed to prefetch for
+     * distributed transactions and whether their results are being used. 
+     */
+    private final PrefetchQueryAdvisor prefetchAdvisor;
+    
     /**
      * The queue manager is responsible for deciding what distributed transaction
      * is allowed to acquire the locks for each partition. It can also requeue
@@ -338,6 +361,11 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
      * Transaction Command Logger (WAL)
      */
     private final CommandLogWriter commandLogger;
+    
+    /**
+     * Always-on sampled workload tracing
+     */
+    private final SampledWorkloadTrace sampledTrace;
 
     /**
      * AdHoc: This thread waits for AdHoc queries. 
@@ -350,6 +378,17 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
      */
     private final AntiCacheManager anticacheManager;
     
+    /**
+     * Moves committed export data out of the EE to the export sinks
+     */
+    private final ExportManager exportManager;
+    
+    /**
+     * Always-on metrics and the HTTP listener that serves them
+     */
+    private final HStoreSiteMetrics metrics;
+    private HTTPAdminListener metricsListener;
+    
     /**
      * This catches any exceptions that are thrown in the various
      * threads spawned by this HStoreSite
@@ -486,6 +525,15 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         this.executor_threads = new Thread[num_partitions];
         this.depTrackers = new DependencyTracker[num_partitions];
         
+        // Prefetch Query Advisor
+        // This has to be initialized before the HStoreCoordinator because it
+        // may mark additional Statements as prefetchable in the catalog
+        if (hstore_conf.site.exec_prefetch_queries) {
+            this.prefetchAdvisor = new PrefetchQueryAdvisor(this.catalogContext, hstore_conf);
+        } else {
+            this.prefetchAdvisor = null;
+        }
+        
         // Get the hasher we will use for this HStoreSite
         this.hasher = ClassUtil.newInstance(hstore_conf.global.hasher_class,
                                              new Object[]{ this.catalogContext, num_partitions },
@@ -513,10 +561,9 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         }
                         
         // **IMPORTANT**
-        // Always clear out the CatalogUtil and BatchPlanner before we start our new HStoreSite
+        // Always clear out the CatalogUtil before we start our new HStoreSite
         // TODO: Move this cache information into CatalogContext
         CatalogUtil.clearCache(this.catalogContext.database);
-        BatchPlanner.clear(this.catalogContext.numberOfPartitions);
         TransactionCounter.resetAll(this.catalogContext);
 
         // Only preload stuff if we were asked to
@@ -633,6 +680,16 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
             this.anticacheManager = null;
         }
         
+        // Export
+        if (hstore_conf.site.export_enable &&
+                ExportManager.getExportTables(this.catalogContext.database).isEmpty() == false) {
+            this.exportManager = new ExportManager(this);
+        } else {
+            if (hstore_conf.site.export_enable)
+                LOG.warn("Export is enabled but there are no exported tables in the catalog");
+            this.exportManager = null;
+        }
+        
         // -------------------------------
         // NETWORK SETUP
         // -------------------------------
@@ -647,6 +704,15 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         // Transaction Properties Initializer
         this.txnInitializer = new TransactionInitializer(this);
         
+        // Result Cache
+        if (hstore_conf.site.result_cache_enable) {
+            this.resultCache = new ResultCache(this.catalogContext.numberOfPartitions,
+                                               hstore_conf.site.result_cache_ttl,
+                                               hstore_conf.site.result_cache_max_entries);
+        } else {
+            this.resultCache = null;
+        }
+        
         // CACHED MESSAGES
         this.REJECTION_MESSAGE = "Transaction was rejected by " + this.getSiteName();
         
@@ -667,6 +733,32 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
             this.profiler = null;
         }
         
+        // Metrics
+        if (hstore_conf.site.metrics_enable) {
+            this.metrics = new HStoreSiteMetrics(this);
+        } else {
+            this.metrics = null;
+        }
+        
+        // Sampled Workload Tracing
+        // This has to be created before the PartitionExecutors create their VoltProcedures.
+        // Each VoltProcedure gets the trace from its own HStoreSite, so that multiple sites
+        // in the same JVM don't write into each other's traces
+        if (hstore_conf.site.trace_sampling) {
+            this.sampledTrace = new SampledWorkloadTrace(hstore_conf.site.trace_sampling_rate,
+                                                         hstore_conf.site.trace_sampling_buffer,
+                                                         hstore_conf.site.trace_sampling_file_size * 1048576l,
+                                                         hstore_conf.site.trace_sampling_interval);
+            this.sampledTrace.setCatalog(this.catalogContext.catalog);
+            this.sampledTrace.setSampleRates(hstore_conf.site.trace_sampling_procedures);
+            this.sampledTrace.setOutputPath(new File(hstore_conf.site.trace_sampling_dir +
+                                                     File.separator +
+                                                     this.getSiteName().toLowerCase()));
+            this.sampledTrace.setProfiler(this.profiler);
+        } else {
+            this.sampledTrace = null;
+        }
+        
         this.status_monitor = new HStoreSiteStatus(this, hstore_conf);
         
         LoggerUtil.refreshLogging(hstore_conf.global.log_refresh);
@@ -711,6 +803,15 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         t.setUncaughtExceptionHandler(this.exceptionHandler);
         t.start();
         
+        // Start SampledWorkloadTrace
+        if (this.sampledTrace != null) {
+            t = new Thread(auxGroup, this.sampledTrace);
+            t.setName(HStoreThreadManager.getThreadName(this, HStoreConstants.THREAD_NAME_TRACE));
+            t.setDaemon(true);
+            t.setUncaughtExceptionHandler(this.exceptionHandler);
+            t.start();
+        }
+        
         // Start AntiCacheManager Queue Processor
         if (this.anticacheManager != null && this.anticacheManager.getEvictableTables().isEmpty() == false) {
             t = new Thread(auxGroup, this.anticacheManager);
@@ -719,6 +820,28 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
             t.start();
         }
         
+        // Start ExportManager Sink Thread
+        if (this.exportManager != null) {
+            t = new Thread(auxGroup, this.exportManager);
+            t.setName(HStoreThreadManager.getThreadName(this, HStoreConstants.THREAD_NAME_EXPORT));
+            t.setDaemon(true);
+            t.setUncaughtExceptionHandler(this.exceptionHandler);
+            t.start();
+        }
+        
+        // Start Metrics HTTP Listener
+        if (this.metrics != null && hstore_conf.site.metrics_http_port > 0) {
+            int port = hstore_conf.site.metrics_http_port + this.site_id;
+            try {
+                this.metricsListener = new HTTPAdminListener(port, this.metrics.getRegistry());
+                if (debug.val)
+                    LOG.debug(String.format("Serving metrics for %s on port %d", this.getSiteName(), port));
+            } catch (IOException ex) {
+                LOG.warn(String.format("Failed to start metrics listener for %s on port %d",
+                         this.getSiteName(), port), ex);
+            }
+        }
+        
         // TransactionPreProcessors
         if (this.preProcessors != null) {
             for (TransactionPreProcessor tpp : this.preProcessors) {
@@ -974,7 +1097,7 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
 
                 CatalogContext cc = this.getCatalogContext();
                 String procName = VoltSystemProcedure.procCallName(SnapshotSave.class);
-                Procedure catalog_proc = cc.procedures.getIgnoreCase(procName);
+                Procedure catalog_proc = cc.getProcedureByName(procName);
 
                 ParameterSet params = new ParameterSet();
                 params.setParameters(
@@ -1148,7 +1271,7 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         assert(this.shutdown_state != ShutdownState.STARTED);
         assert(executor != null);
         this.executors[partition] = executor;
-        this.depTrackers[partition] = new DependencyTracker(executor);
+        this.depTrackers[partition] = new DependencyTracker(executor, this.prefetchAdvisor);
         this.executors[partition].initHStoreSite(this);
     }
     
@@ -1315,6 +1438,9 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
     public AntiCacheManager getAntiCacheManager() {
         return (this.anticacheManager);
     }
+    public ExportManager getExportManager() {
+        return (this.exportManager);
+    }
     public ClientInterface getClientInterface() {
         return (this.clientInterface);
     }
@@ -1336,6 +1462,12 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
     public CommandLogWriter getCommandLogWriter() {
         return (this.commandLogger);
     }
+    public SampledWorkloadTrace getSampledWorkloadTrace() {
+        return (this.sampledTrace);
+    }
+    public HStoreSiteMetrics getMetrics() {
+        return (this.metrics);
+    }
     protected final Map<Long, AbstractTransaction> getInflightTxns() {
         return (this.inflight_txns);
     }
@@ -1366,6 +1498,13 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
     public TransactionInitializer getTransactionInitializer() {
         return (this.txnInitializer);
     }
+    /**
+     * Returns the cache of read-only txn results for this site's partitions.
+     * This will be null if ${site.result_cache_enable} is false.
+     */
+    public ResultCache getResultCache() {
+        return (this.resultCache);
+    }
     public PartitionExecutor getPartitionExecutor(int partition) {
         PartitionExecutor es = this.executors[partition]; 
         assert(es != null) : 
@@ -1376,6 +1515,9 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
     public DependencyTracker getDependencyTracker(int partition) {
         return (this.depTrackers[partition]);
     }
+    public PrefetchQueryAdvisor getPrefetchQueryAdvisor() {
+        return (this.prefetchAdvisor);
+    }
     
     public MemoryStats getMemoryStatsSource() {
         return (this.memoryStats);
@@ -1515,17 +1657,6 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
 //        }
         this.ready = true;
         this.ready_observable.notifyObservers(this);
-
-        // IMPORTANT: This message must always be printed in order for the BenchmarkController
-        //            to know that we're ready! That's why we have to use System.out instead of LOG
-        String msg = String.format("%s : Site=%s / Address=%s:%d / Partitions=%s",
-                                   HStoreConstants.SITE_READY_MSG,
-                                   this.getSiteName(),
-                                   this.catalog_site.getHost().getIpaddr(),
-                                   CollectionUtil.first(CatalogUtil.getExecutionSitePorts(this.catalog_site)),
-                                   this.local_partitions);
-        System.out.println(msg);
-        System.out.flush();
         
         // We will join on our HStoreCoordinator thread. When that goes
         // down then we know that the whole party is over
@@ -1547,6 +1678,20 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         }
     }
     
+    /**
+     * Returns the message that whoever started this HStoreSite needs to write out
+     * once it is ready so that the BenchmarkController knows that it can start.
+     * @return
+     */
+    public String getReadyMessage() {
+        return String.format("%s : Site=%s / Address=%s:%d / Partitions=%s",
+                             HStoreConstants.SITE_READY_MSG,
+                             this.getSiteName(),
+                             this.catalog_site.getHost().getIpaddr(),
+                             CollectionUtil.first(CatalogUtil.getExecutionSitePorts(this.catalog_site)),
+                             this.local_partitions);
+    }
+    
     /**
      * Returns true if this HStoreSite is fully initialized and running
      * This will be set to false if the system is shutting down
@@ -1663,9 +1808,15 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         if (this.commandLogger != null) {
             this.commandLogger.prepareShutdown(error);
         }
+        if (this.sampledTrace != null) {
+            this.sampledTrace.prepareShutdown(error);
+        }
         if (this.anticacheManager != null) {
             this.anticacheManager.prepareShutdown(error);
         }
+        if (this.exportManager != null) {
+            this.exportManager.prepareShutdown(error);
+        }
         for (TransactionCleaner t : this.txnCleaners) {
             t.prepareShutdown(error);
         } // FOR
@@ -1741,9 +1892,18 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         if (this.commandLogger != null) {
             this.commandLogger.shutdown();
         }
+        if (this.sampledTrace != null) {
+            this.sampledTrace.shutdown();
+        }
         if (this.anticacheManager != null) {
             this.anticacheManager.shutdown();
         }
+        if (this.exportManager != null) {
+            this.exportManager.shutdown();
+        }
+        if (this.metricsListener != null) {
+            this.metricsListener.shutdown(false);
+        }
         for (TransactionCleaner t : this.txnCleaners) {
             t.shutdown();
         } // FOR
@@ -1815,6 +1975,10 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
     
     protected void invocationQueue(ByteBuffer buffer, ClientInputHandler handler, Connection c) {
         int messageSize = buffer.capacity();
+        if (StoredProcedureInvocationBatch.isBatch(buffer)) {
+            this.invocationQueueBatch(buffer, c, messageSize);
+            return;
+        }
         RpcCallback<ClientResponseImpl> callback = new ClientResponseCallback(this.clientInterface, c, messageSize);
         this.clientInterface.increaseBackpressure(messageSize);
         
@@ -1825,6 +1989,31 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         }
     }
     
+    /**
+     * Queue all of the invocations in a StoredProcedureInvocationBatch. The response 
+     * for each of these txns will be sent back to the client as soon as it completes,
+     * together with any other responses from the batch that completed at the same time.
+     * @param buffer
+     * @param c
+     * @param messageSize
+     */
+    private void invocationQueueBatch(ByteBuffer buffer, Connection c, int messageSize) {
+        int numInvocations = StoredProcedureInvocationBatch.getInvocationCount(buffer);
+        if (debug.val)
+            LOG.debug(String.format("Received batch of %d invocations from %s", numInvocations, c));
+        if (numInvocations == 0) return;
+        RpcCallback<ClientResponseImpl> callback = new ClientResponseBatchCallback(this.clientInterface, c,
+                                                                                   messageSize, numInvocations);
+        this.clientInterface.increaseBackpressure(messageSize);
+        
+        // The TransactionPreProcessor will split the batch up for us
+        if (this.preProcessorQueue != null) {
+            this.preProcessorQueue.add(Pair.of(buffer, callback));
+        } else {
+            this.invocationProcess(StoredProcedureInvocationBatch.split(buffer), callback);
+        }
+    }
+    
     /**
      * This is legacy method needed for using Evan's VoltProcedureListener.
      */
@@ -1864,6 +2053,42 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
      * @param clientCallback
      */
     public void invocationProcess(ByteBuffer buffer, RpcCallback<ClientResponseImpl> clientCallback) {
+        LocalTransaction ts = this.invocationInit(buffer, clientCallback);
+        if (ts != null) {
+            this.transactionQueue(ts);
+            if (trace.val)
+                LOG.trace(String.format("Finished initial processing of new txn."));
+        }
+    }
+    
+    /**
+     * Process all of the requests from a StoredProcedureInvocationBatch. The new 
+     * LocalTransactions are queued together once all of them have been initialized.
+     * @param requests
+     * @param clientCallback
+     */
+    public void invocationProcess(ByteBuffer requests[], RpcCallback<ClientResponseImpl> clientCallback) {
+        List<LocalTransaction> txns = new ArrayList<LocalTransaction>(requests.length);
+        for (ByteBuffer buffer : requests) {
+            LocalTransaction ts = this.invocationInit(buffer, clientCallback);
+            if (ts != null) txns.add(ts);
+        } // FOR
+        if (txns.isEmpty() == false) {
+            this.transactionQueue(txns);
+            if (trace.val)
+                LOG.trace(String.format("Finished initial processing of %d new txns.", txns.size()));
+        }
+    }
+    
+    /**
+     * Create a new LocalTransaction for the given ByteBuffer request from the client.
+     * Returns null if the request was handled here and there is no txn to queue
+     * (e.g., the request was redirected to another HStoreSite or was rejected). 
+     * @param buffer
+     * @param clientCallback
+     * @return
+     */
+    private LocalTransaction invocationInit(ByteBuffer buffer, RpcCallback<ClientResponseImpl> clientCallback) {
 //        if (hstore_conf.site.network_profiling || hstore_conf.site.txn_profiling) {
 //            long timestamp = ProfileMeasurement.getTime();
 //            if (hstore_conf.site.network_profiling) {
@@ -1898,7 +2123,7 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         // Otherwise, we have to get the procedure name and do a look up with that.
         if (catalog_proc == null) {
             String procName = StoredProcedureInvocation.getProcedureName(incomingDeserializer);
-            catalog_proc = this.catalogContext.procedures.getIgnoreCase(procName);
+            catalog_proc = this.catalogContext.getProcedureByName(procName);
             if (catalog_proc == null) {
                 String msg = "Unknown procedure '" + procName + "'";
                 this.responseError(client_handle,
@@ -1906,7 +2131,7 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
                                    msg,
                                    clientCallback,
                                    timestamp);
-                return;
+                return (null);
             }
         }
         boolean sysproc = catalog_proc.getSystemproc();
@@ -1935,7 +2160,7 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         // If this method returns true, then we want to halt processing the
         // request any further and immediately return
         if (sysproc && this.processSysProc(client_handle, catalog_proc, procParams, clientCallback)) {
-            return;
+            return (null);
         }
         
         // If this is the first non-sysproc transaction that we've seen, then
@@ -1965,6 +2190,26 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
             } // SYNCH
         }
         
+        // -------------------------------
+        // RESULT CACHE
+        // -------------------------------
+        // We only keep results for our local partitions, because those are
+        // the only ones whose writes we see and can invalidate them for
+        if (this.resultCache != null &&
+                base_partition != HStoreConstants.NULL_PARTITION_ID &&
+                this.isLocalPartition(base_partition) &&
+                ResultCache.isCacheable(catalog_proc)) {
+            ResultCache.Key cacheKey = this.resultCache.createKey(catalog_proc, procParams);
+            ClientResponseImpl cresponse = this.resultCache.get(base_partition, cacheKey, client_handle);
+            if (cresponse != null) {
+                if (debug.val)
+                    LOG.debug(String.format("Returning %s results from result cache for partition %d [handle=%d]",
+                              catalog_proc.getName(), base_partition, client_handle));
+                this.responseSend(cresponse, clientCallback, timestamp, 0);
+                return (null);
+            }
+        }
+        
         // -------------------------------
         // REDIRECT TXN TO PROPER BASE PARTITION
         // -------------------------------
@@ -1972,7 +2217,7 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
             // If the base_partition isn't local, then we need to ship it off to
             // the right HStoreSite
             this.transactionRedirect(catalog_proc, buffer, base_partition, clientCallback);
-            return;
+            return (null);
         }
         
         // 2012-12-24 - We always want the network threads to do the initialization
@@ -1986,12 +2231,31 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
                                         catalog_proc,
                                         procParams,
                                         clientCallback);
-        this.transactionQueue(ts);
-        if (trace.val)
-            LOG.trace(String.format("Finished initial processing of new txn."));
+        
+        // -------------------------------
+        // ADMISSION CONTROL
+        // -------------------------------
+        // If the queueing delay at any of the partitions that this txn is predicted
+        // to lock is too high, then we have to shed it to let those queues drain.
+        // We only do this here before the txn is queued anywhere so that txns that
+        // were already admitted somewhere else are never rejected.
+        PartitionAdmissionController admission = this.txnQueueManager.getAdmissionController();
+        if (admission != null && sysproc == false &&
+                admission.admit(ts.getPredictTouchedPartitions(), System.currentTimeMillis()) == false) {
+            if (debug.val)
+                LOG.debug(String.format("%s - The queueing delay at one of %s is above the target. " +
+                          "Shedding %s request [handle=%d]",
+                          ts, ts.getPredictTouchedPartitions(), catalog_proc.getName(), client_handle));
+            // Nobody will ever answer our init requests, so we can delete it right away
+            ts.getInitCallback().cancel();
+            this.transactionReject(ts, Status.ABORT_REJECT);
+            this.queueDeleteTransaction(ts.getTransactionId(), Status.ABORT_REJECT);
+            return (null);
+        }
 //        if (hstore_conf.site.network_profiling) {
 //            ProfileMeasurement.swap(this.profiler.network_processing_time, this.profiler.network_idle_time);
 //        }
+        return (ts);
     }
     
     
@@ -2145,6 +2409,43 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         }
     }
     
+    /**
+     * Queue a group of new transactions that arrived together from a client.
+     * The single-partition txns are added to the TransactionQueueManager all at once,
+     * grouped by their base partition. Distributed txns are queued one at a time.
+     * @param txns
+     */
+    public void transactionQueue(List<LocalTransaction> txns) {
+        if (txns.size() == 1) {
+            this.transactionQueue(txns.get(0));
+            return;
+        }
+        List<LocalTransaction> singlePartition = new ArrayList<LocalTransaction>(txns.size());
+        for (LocalTransaction ts : txns) {
+            if (ts.isPredictSinglePartition() && ts.isMapReduce() == false) {
+                assert(ts.isInitialized()) : "Uninitialized transaction handle [" + ts + "]";
+                singlePartition.add(ts);
+            } else {
+                this.transactionQueue(ts);
+            }
+        } // FOR
+        if (singlePartition.isEmpty() == false) {
+            // This is a stable sort so each partition's txns stay in the same order
+            Collections.sort(singlePartition, BASE_PARTITION_COMPARATOR);
+            if (debug.val)
+                LOG.debug(String.format("Dispatching %d single-partition transactions together",
+                          singlePartition.size()));
+            this.txnQueueManager.queueTransactionInit(singlePartition);
+        }
+    }
+    
+    private static final Comparator<LocalTransaction> BASE_PARTITION_COMPARATOR = new Comparator<LocalTransaction>() {
+        @Override
+        public int compare(LocalTransaction ts0, LocalTransaction ts1) {
+            return (ts0.getBasePartition() - ts1.getBasePartition());
+        }
+    };
+    
     /**
      * Queue the given transaction to be initialized in the local TransactionQueueManager.
      * This is a non-blocking call.
@@ -2490,6 +2791,29 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
             }
         }
         
+        // Remember what this txn really touched so that the next invocation with the
+        // same routing parameter is not mispredicted. We have to do this before the
+        // redirection below adds the local partitions to its touched partitions.
+        if (status == Status.ABORT_MISPREDICT && orig_ts.isSysProc() == false) {
+            PartitionFootprintCache footprints = this.txnInitializer.getPartitionFootprintCache();
+            if (footprints != null) {
+                PartitionSet footprint = new PartitionSet();
+                Collection<Integer> orig_touchedPartitions = orig_ts.getTouchedPartitions().values();
+                while (true) {
+                    try {
+                        footprint.addAll(orig_touchedPartitions);
+                    } catch (ConcurrentModificationException ex) {
+                        footprint.clear();
+                        continue;
+                    }
+                    break;
+                } // WHILE
+                if (footprint.isEmpty() == false) {
+                    footprints.put(orig_ts.getProcedure(), orig_ts.getProcedureParameters(), footprint);
+                }
+            }
+        }
+        
         // -------------------------------
         // REDIRECTION
         // -------------------------------
@@ -2774,6 +3098,17 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
         if (this.commandLogger != null && status == Status.OK && ts.isSysProc() == false) {
             sendResponse = this.commandLogger.appendToLog(ts, cresponse);
         }
+        
+        // If a distributed txn only ended up touching its base partition, then
+        // we don't want to keep predicting that it needs more than that
+        if (status == Status.OK && ts.isSysProc() == false && ts.isPredictSinglePartition() == false) {
+            PartitionFootprintCache footprints = this.txnInitializer.getPartitionFootprintCache();
+            FastIntHistogram touched = ts.getTouchedPartitions();
+            if (footprints != null && touched.getValueCount() <= 1 &&
+                    (touched.getValueCount() == 0 || touched.contains(ts.getBasePartition()))) {
+                footprints.remove(ts.getProcedure(), ts.getProcedureParameters());
+            }
+        }
 
         if (sendResponse) {
             // NO GROUP COMMIT -- SEND OUT AND COMPLETE
@@ -3091,6 +3426,11 @@ public class HStoreSite implements VoltProcedureListener.Handler, Shutdownable,
             this.txn_profiler_dumper.writeRow(ts);
         }
         
+        // Always-on metrics
+        if (this.metrics != null) {
+            this.metrics.transactionFinished(ts, status);
+        }
+        
         // Update additional transaction profiling counters
         if (hstore_conf.site.txn_counters) {
             // Speculative Execution Counters
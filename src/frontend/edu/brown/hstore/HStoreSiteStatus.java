@@ -49,6 +49,7 @@ import edu.brown.utils.ExceptionHandlingRunnable;
 import edu.brown.utils.StringBoxUtil;
 import edu.brown.utils.StringUtil;
 import edu.brown.utils.TableUtil;
+import edu.brown.workload.SampledWorkloadTrace;
 
 /**
  * 
@@ -375,6 +376,17 @@ public class HStoreSiteStatus extends ExceptionHandlingRunnable implements Shutd
         ));
         
         
+        // SampledWorkloadTrace
+        SampledWorkloadTrace sampledTrace = hstore_site.getSampledWorkloadTrace();
+        if (sampledTrace != null) {
+            siteInfo.put("Workload Trace",
+                         String.format("%d sampled / %d dropped / %d written [files=%d]",
+                                       sampledTrace.getSampledCount(),
+                                       sampledTrace.getDroppedCount(),
+                                       sampledTrace.getWrittenCount(),
+                                       sampledTrace.getOutputFiles().size()));
+        }
+        
         if (hstore_conf.site.status_check_for_zombies) {
             this.zombieInfo(siteInfo);
         }
@@ -102,6 +102,7 @@ import org.voltdb.jni.ExecutionEngineJNI;
 import org.voltdb.jni.MockExecutionEngine;
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.messaging.FastSerializer;
+import org.voltdb.types.AntiCacheCompressionType;
 import org.voltdb.types.AntiCacheDBType;
 import org.voltdb.types.SpecExecSchedulerPolicyType;
 import org.voltdb.types.SpeculationConflictCheckerType;
@@ -135,6 +136,7 @@ import edu.brown.hstore.estimators.Estimate;
 import edu.brown.hstore.estimators.EstimatorState;
 import edu.brown.hstore.estimators.EstimatorUtil;
 import edu.brown.hstore.estimators.TransactionEstimator;
+import edu.brown.hstore.export.ExportManager;
 import edu.brown.hstore.internal.DeferredQueryMessage;
 import edu.brown.hstore.internal.FinishTxnMessage;
 import edu.brown.hstore.internal.InternalMessage;
@@ -162,15 +164,18 @@ import edu.brown.hstore.txns.RemoteTransaction;
 import edu.brown.hstore.util.ArrayCache.IntArrayCache;
 import edu.brown.hstore.util.ArrayCache.LongArrayCache;
 import edu.brown.hstore.util.ParameterSetArrayCache;
+import edu.brown.hstore.util.ResultCache;
 import edu.brown.hstore.util.TransactionCounter;
 import edu.brown.hstore.util.TransactionUndoTokenComparator;
 import edu.brown.hstore.util.TransactionWorkRequestBuilder;
+import edu.brown.hstore.util.VoltTableCodec;
 import edu.brown.interfaces.Configurable;
 import edu.brown.interfaces.DebugContext;
 import edu.brown.interfaces.Shutdownable;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
 import edu.brown.markov.EstimationThresholds;
+import edu.brown.metrics.SampledTimer;
 import edu.brown.profilers.PartitionExecutorProfiler;
 import edu.brown.protorpc.NullCallback;
 import edu.brown.statistics.FastIntHistogram;
@@ -303,6 +308,13 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
     private PartitionLockQueue lockQueue;
     private DependencyTracker depTracker;
     
+    /**
+     * The HStoreSite's copies of the results of read-only txns.
+     * This is null if ${site.result_cache_enable} is false.
+     */
+    private ResultCache resultCache;
+    private ExportManager exportManager;
+    
     // ----------------------------------------------------------------------------
     // Work Queue
     // ----------------------------------------------------------------------------
@@ -617,6 +629,11 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
     
     private final PartitionExecutorProfiler profiler = new PartitionExecutorProfiler();
     
+    /**
+     * Always-on sampled timer for EE invocations (null if metrics are disabled)
+     */
+    private SampledTimer metrics_eeTime;
+    
     // ----------------------------------------------------------------------------
     // WORK REQUEST CALLBACK
     // ----------------------------------------------------------------------------
@@ -755,7 +772,8 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
                              final PartitionEstimator p_estimator,
                              final TransactionEstimator t_estimator) {
         this.hstore_conf = HStoreConf.singleton();
-        this.work_queue = new PartitionMessageQueue();
+        this.work_queue = new PartitionMessageQueue(hstore_conf.site.exec_work_batch_size);
+        if (hstore_conf.site.exec_profiling) this.work_queue.setProfiler(this.profiler);
         this.backend_target = target;
         this.catalogContext = catalogContext;
         this.partition = catalogContext.getPartitionById(partitionId);
@@ -847,7 +865,16 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
                         
                             }
                         }
-                    }      
+                    }
+                    
+                    AntiCacheCompressionType compressionType = AntiCacheCompressionType.get(hstore_conf.site.anticache_compression);
+                    if (compressionType == null) {
+                        throw new IllegalArgumentException("Invalid anti-cache compression type '" +
+                                                           hstore_conf.site.anticache_compression + "'");
+                    }
+                    if (compressionType != AntiCacheCompressionType.NONE) {
+                        eeTemp.antiCacheSetCompression(compressionType);
+                    }
                 }
                 
                 // Initialize STORAGE_MMAP
@@ -924,6 +951,7 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
         this.thresholds = hstore_site.getThresholds();
         this.queueManager = hstore_site.getTransactionQueueManager();
         this.lockQueue = this.queueManager.getLockQueue(this.partitionId);
+        this.resultCache = hstore_site.getResultCache();
         
         if (hstore_conf.site.exec_deferrable_queries) {
             tmp_def_txn = new LocalTransaction(hstore_site);
@@ -931,6 +959,14 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
 
         // ARIES        
         this.m_ariesLog = this.hstore_site.getAriesLogger();
+        
+        // Export
+        this.exportManager = this.hstore_site.getExportManager();
+        
+        // Metrics
+        if (this.hstore_site.getMetrics() != null) {
+            this.metrics_eeTime = this.hstore_site.getMetrics().ee_time;
+        }
 
         // -------------------------------
         // BENCHMARK START NOTIFICATIONS
@@ -1625,6 +1661,12 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
     public final DependencyTracker getDependencyTracker() {
         return (this.depTracker);
     }
+    /**
+     * Return the number of messages that are waiting in this partition's work queue
+     */
+    public final int getWorkQueueSize() {
+        return (this.work_queue.size());
+    }
     public final PartitionExecutorProfiler getProfiler() {
         return profiler;
     }
@@ -1713,6 +1755,11 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
         // do other periodic work
         if (m_snapshotter != null)
             m_snapshotter.doSnapshotWork(this.ee);
+        
+        // Push committed export data out to the sinks
+        if (this.exportManager != null && this.ee != null) {
+            this.exportManager.poll(this.partitionId, this.ee, time);
+        }
                 
     }
         
@@ -2101,7 +2148,7 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
         if (debug.val)
             LOG.debug(String.format("%s - Adding prefetch result for %s with %d rows from partition %d " +
                       "[stmtCounter=%d / paramsHash=%d]",
-                      ts, CatalogUtil.getPlanFragment(catalogContext.catalog, fragmentId).fullName(),
+                      ts, catalogContext.getPlanFragmentById(fragmentId).fullName(),
                       result.getRowCount(), partitionId, stmtCounter, paramsHash));
         this.depTracker.addPrefetchResult(ts, stmtCounter, fragmentId, partitionId, paramsHash, result);
     }
@@ -2390,7 +2437,13 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
             ByteString bs = result.getDepData(i);
             VoltTable vt = null;
             if (bs.isEmpty() == false) {
-                FastDeserializer fd = new FastDeserializer(bs.asReadOnlyByteBuffer());
+                // Encoded tables are not decoded until the txn actually needs them
+                ByteBuffer buffer = bs.asReadOnlyByteBuffer();
+                if (VoltTableCodec.isEncoded(buffer)) {
+                    this.depTracker.addEncodedResult(ts, result.getPartitionId(), depId, buffer);
+                    continue;
+                }
+                FastDeserializer fd = new FastDeserializer(buffer);
                 try {
                     vt = fd.readObject(VoltTable.class);
                     if (trace.val)
@@ -2865,7 +2918,7 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
                     for (int i = 0, cnt = result.size(); i < cnt; i++) {
                         if (trace.val)
                             LOG.trace(String.format("%s - Storing %s prefetch result [params=%s]",
-                                      ts, CatalogUtil.getPlanFragment(catalogContext.catalog, fragment.getFragmentId(fragmentOffsets[i])).fullName(),
+                                      ts, catalogContext.getPlanFragmentById(fragment.getFragmentId(fragmentOffsets[i])).fullName(),
                                       parameters[i]));
                         other.addPrefetchResult((LocalTransaction)ts,
                                                 fragment.getStmtCounter(fragmentOffsets[i]),
@@ -3236,10 +3289,10 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
             // We don't need to maintain read/write sets for non-speculative txns
             if (speculative || singlePartition == false) {
                 if (fragReadOnly) {
-                    tableIds = catalogContext.getReadTableIds(Long.valueOf(fragmentIds[i]));
+                    tableIds = catalogContext.getReadTableIds(fragmentIds[i]);
                     if (tableIds != null) ts.markTableIdsRead(this.partitionId, tableIds);
                 } else {
-                    tableIds = catalogContext.getWriteTableIds(Long.valueOf(fragmentIds[i]));
+                    tableIds = catalogContext.getWriteTableIds(fragmentIds[i]);
                     if (tableIds != null) ts.markTableIdsWritten(this.partitionId, tableIds);
                 }
             }
@@ -3278,6 +3331,7 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
         }
         
         Throwable error = null;
+        long metrics_start = (this.metrics_eeTime != null ? this.metrics_eeTime.start(this.partitionId) : SampledTimer.NULL_MARKER);
         try {
             assert(this.lastCommittedUndoToken < undoToken) :
                 String.format("Trying to execute work using undoToken %d for %s but " +
@@ -3317,6 +3371,7 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
             throw new ServerFaultException(msg, ex);
         } finally {
             if (needs_profiling) ((LocalTransaction)ts).profiler.stopExecEE();
+            if (metrics_start != SampledTimer.NULL_MARKER) this.metrics_eeTime.stop(this.partitionId, metrics_start);
             if (error == null && result == null) {
                 LOG.warn(String.format("%s - Finished executing fragments but got back null results [fragmentIds=%s]",
                          ts, Arrays.toString(fragmentIds)));
@@ -3348,7 +3403,7 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
      * @throws VoltAbortException
      */
     public void loadTable(AbstractTransaction ts, String clusterName, String databaseName, String tableName, VoltTable data, int allowELT) throws VoltAbortException {
-        Table table = this.catalogContext.database.getTables().getIgnoreCase(tableName);
+        Table table = this.catalogContext.getTableByName(tableName);
         if (table == null) {
             throw new VoltAbortException("Table '" + tableName + "' does not exist in database " + clusterName + "." + databaseName);
         }
@@ -3367,6 +3422,61 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
                           allowELT != 0);
     }
 
+    /**
+     * Bulk load a VoltTable into the EE at this partition for a single-partition
+     * txn that is running at this partition. If undoLogging is false, then
+     * the load is executed without an undo token and cannot be rolled back.
+     * If deferIndexes is true, then the tuples are not added to the table's
+     * indexes one at a time. Instead, the indexes are built from all of the
+     * loaded tuples at once before this method returns, so no other txn ever
+     * sees the table while its indexes are incomplete.
+     * @param ts
+     * @param table
+     * @param data
+     * @param undoLogging
+     * @param deferIndexes
+     * @throws VoltAbortException
+     */
+    public void loadTable(LocalTransaction ts, Table table, VoltTable data, boolean undoLogging, boolean deferIndexes) throws VoltAbortException {
+        assert(ts.getBasePartition() == this.partitionId);
+        if (data == null || data.getRowCount() == 0) {
+            return;
+        }
+        
+        long undoToken = HStoreConstants.DISABLE_UNDO_LOGGING_TOKEN;
+        if (undoLogging) {
+            undoToken = this.calculateNextUndoToken(ts, false);
+        }
+        if (debug.val)
+            LOG.debug(String.format("%s - Bulk loading %d row(s) into %s [undoToken=%s]",
+                      ts, data.getRowCount(), table.getName(),
+                      (undoToken == HStoreConstants.DISABLE_UNDO_LOGGING_TOKEN ? "<DISABLED>" : undoToken)));
+        
+        ts.initFirstRound(undoToken, 0);
+        ts.markExecutedWork(this.partitionId);
+        ts.markExecNotReadOnly(this.partitionId);
+        if (deferIndexes) {
+            this.ee.setIndexBuildDeferred(table.getRelativeIndex(), true);
+        }
+        try {
+            this.ee.loadTable(table.getRelativeIndex(), data,
+                              ts.getTransactionId(),
+                              this.lastCommittedTxnId.longValue(),
+                              undoToken,
+                              false);
+        } finally {
+            // Always build the deferred indexes, even if the load failed part of the way
+            // through, so that the tuples that did get loaded are in every index
+            try {
+                if (deferIndexes) {
+                    this.ee.setIndexBuildDeferred(table.getRelativeIndex(), false);
+                }
+            } finally {
+                ts.fastFinishRound(this.partitionId);
+            }
+        }
+    }
+
     /**
      * Load a VoltTable directly into the EE at this partition.
      * <B>NOTE:</B> This should only be used for testing
@@ -3608,12 +3718,11 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
         
         // Push dependencies back to the remote partition that needs it
         if (status == Status.OK) {
+            int threshold = (hstore_conf.site.network_compression ? hstore_conf.site.network_compression_threshold : -1);
             for (int i = 0, cnt = result.size(); i < cnt; i++) {
                 builder.addDepId(result.depIds[i]);
-                this.fs.clear();
                 try {
-                    result.dependencies[i].writeExternal(this.fs);
-                    ByteString bs = ByteString.copyFrom(this.fs.getBBContainer().b);
+                    ByteString bs = VoltTableCodec.serialize(result.dependencies[i], threshold, this.fs);
                     builder.addDepData(bs);
                 } catch (Exception ex) {
                     throw new ServerFaultException(String.format("Failed to serialize output dependency %d for %s", result.depIds[i], ts), ex);
@@ -3980,7 +4089,7 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
                     has_remote = true;
                 }
                 for (int frag_id : frag.getFragmentIdList()) {
-                    PlanFragment catalog_frag = CatalogUtil.getPlanFragment(catalogContext.database, frag_id);
+                    PlanFragment catalog_frag = catalogContext.getPlanFragmentById(frag_id);
                     Statement catalog_stmt = catalog_frag.getParent();
                     assert(catalog_stmt != null);
                     Procedure catalog_proc = catalog_stmt.getParent();
@@ -4714,6 +4823,26 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
         // We always need to do the following things regardless if we hit up the EE or not
         if (commit) this.lastCommittedTxnId = ts.getTransactionId();
         
+        // Update the result cache. We do this here because this thread is the only one
+        // that commits txns at this partition, so a result can never be stored after a
+        // write that it does not see has already invalidated the partition
+        if (commit && this.resultCache != null) {
+            if (ts.isExecReadOnly(this.partitionId) == false) {
+                this.resultCache.invalidate(this.partitionId);
+            }
+            else if (ts instanceof LocalTransaction &&
+                     ts.getBasePartition() == this.partitionId &&
+                     ts.isPredictSinglePartition() &&
+                     ResultCache.isCacheable(ts.getProcedure())) {
+                ClientResponseImpl cresponse = ((LocalTransaction)ts).getClientResponse();
+                if (cresponse != null && cresponse.getStatus() == Status.OK) {
+                    this.resultCache.put(this.partitionId,
+                                         this.resultCache.createKey(ts.getProcedure(), ts.getProcedureParameters()),
+                                         cresponse);
+                }
+            }
+        }
+        
         if (trace.val)
             LOG.trace(String.format("%s - Telling queue manager that txn is finished at partition %d",
                       ts, this.partitionId));
@@ -5280,7 +5409,7 @@ public class PartitionExecutor implements Runnable, Configurable, Shutdownable {
     
     public class Debug implements DebugContext {
         public VoltProcedure getVoltProcedure(String procName) {
-            Procedure proc = catalogContext.procedures.getIgnoreCase(procName);
+            Procedure proc = catalogContext.getProcedureByName(procName);
             return (PartitionExecutor.this.getVoltProcedure(proc.getId()));
         }
         public SpecExecScheduler getSpecExecScheduler() {
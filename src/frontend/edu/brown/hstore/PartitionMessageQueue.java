@@ -1,108 +1,452 @@
 package edu.brown.hstore;
 
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import edu.brown.hstore.internal.FinishTxnMessage;
 import edu.brown.hstore.internal.InternalMessage;
 import edu.brown.hstore.internal.InternalTxnMessage;
 import edu.brown.hstore.internal.PrepareTxnMessage;
 import edu.brown.hstore.internal.SetDistributedTxnMessage;
-import edu.brown.hstore.internal.WorkFragmentMessage;
 import edu.brown.hstore.internal.UtilityWorkMessage;
+import edu.brown.hstore.internal.WorkFragmentMessage;
+import edu.brown.profilers.PartitionExecutorProfiler;
 
-public class PartitionMessageQueue extends PriorityBlockingQueue<InternalMessage> {
-    
-    private static final long serialVersionUID = 1L;
-//    private List<InternalMessage> swap = null;
-    
-    public PartitionMessageQueue() {
-        super(100000, WORK_COMPARATOR); // FIXME
+/**
+ * The work queue for a PartitionExecutor.
+ * <p>
+ * Every type of InternalMessage is put into its own lane. Each lane is a lock-free
+ * queue, so the threads adding messages never have to contend with each other
+ * on a single lock. The lanes have a fixed priority (see {@link Lane}) and the
+ * consumer always takes from the highest priority lane that is not empty.
+ * Most lanes are FIFO. The START lane is ordered by txn id so that the txns
+ * are still started in the same order that they were before.
+ * <p>
+ * The consumer drains messages from the WORK, START, and UTILITY lanes in batches.
+ * The batch is kept inside of this queue, so everything that has been drained but
+ * not polled yet is still included in size(), drainTo(), and clear(). The control
+ * lanes above WORK are never batched. Their messages are always returned before
+ * the rest of the current batch, so a txn is never kept waiting for its
+ * prepare or finish by a batch of other work.
+ * <p>
+ * <B>NOTE:</B> Only a single thread is allowed to poll messages from this queue.
+ * Any thread can add messages or clear the queue.
+ */
+public class PartitionMessageQueue extends AbstractQueue<InternalMessage> implements BlockingQueue<InternalMessage> {
+
+    /**
+     * The default max number of messages that the consumer
+     * will take out of a lane at once.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 16;
+
+    /**
+     * The lanes in priority order
+     */
+    public enum Lane {
+        /** Table stats requests */
+        STATS,
+        /** SetDistributedTxnMessage */
+        SET_DTXN,
+        /** PrepareTxnMessage */
+        PREPARE,
+        /** FinishTxnMessage */
+        FINISH,
+        /** WorkFragmentMessage */
+        WORK,
+        /** StartTxnMessage and any other txn message, ordered by txn id */
+        START,
+        /** Everything else */
+        UTILITY;
+
+        public static Lane get(InternalMessage msg) {
+            if (msg instanceof InternalTxnMessage) {
+                if (msg instanceof WorkFragmentMessage) return (WORK);
+                if (msg instanceof FinishTxnMessage) return (FINISH);
+                if (msg instanceof PrepareTxnMessage) return (PREPARE);
+                if (msg instanceof SetDistributedTxnMessage) return (SET_DTXN);
+                return (START);
+            }
+            if (msg instanceof UtilityWorkMessage.TableStatsRequestMessage) return (STATS);
+            return (UTILITY);
+        }
     }
+    private static final Lane LANES[] = Lane.values();
     
-//    @Override
-//    public int drainTo(Collection<? super InternalMessage> c) {
-//        assert(c != null);
-//        InternalMessage msg = null;
-//        int ctr = 0;
-//        
-//        if (this.swap == null) {
-//            this.swap = new ArrayList<InternalMessage>();
-//        } else {
-//            this.swap.clear();
-//        }
-//        
-//        while ((msg = this.poll()) != null) {
-//            // All new transaction requests must be put in the new collection
-//            if (msg instanceof InitializeRequestMessage) {
-//                c.add(msg);
-//                ctr++;
-//            // Everything else will get added back in afterwards 
-//            } else {
-//                this.swap.add(msg);
-//            }
-//        } // WHILE
-//        if (this.swap.isEmpty() == false) this.addAll(this.swap);
-//        return (ctr);
-//    }
-    
-    private static final Comparator<InternalMessage> WORK_COMPARATOR = new Comparator<InternalMessage>() {
-        @SuppressWarnings("unchecked")
-        private final Class<? extends InternalMessage> compareOrder[] = (Class<? extends InternalMessage>[])new Class<?>[]{
-            SetDistributedTxnMessage.class,
-            PrepareTxnMessage.class,
-            FinishTxnMessage.class,
-            WorkFragmentMessage.class,
-        };
-        
+    /**
+     * The lanes before this one are control messages that are never batched
+     */
+    private static final Lane FIRST_BATCHED_LANE = Lane.WORK;
+
+    // ----------------------------------------------------------------------------
+    // ORDERED LANE
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Wrapper for messages in the START lane. The sequence number
+     * keeps messages for the same txn in the order that they were added.
+     */
+    private static class OrderedEntry {
+        private final long txnId;
+        private final long seq;
+        private final InternalMessage msg;
+
+        private OrderedEntry(long txnId, long seq, InternalMessage msg) {
+            this.txnId = txnId;
+            this.seq = seq;
+            this.msg = msg;
+        }
+    }
+
+    private static final Comparator<OrderedEntry> ORDERED_COMPARATOR = new Comparator<OrderedEntry>() {
         @Override
-        public int compare(InternalMessage msg0, InternalMessage msg1) {
-            assert(msg0 != null) : "Unexpected null message [msg0]";
-            assert(msg1 != null) : "Unexpected null message [msg1]";
-
-            Class<?> class0 = msg0.getClass();
-            Class<?> class1 = msg1.getClass();
-
-            boolean isUtl0 = class0.equals(UtilityWorkMessage.TableStatsRequestMessage.class);
-            boolean isUtl1 = class1.equals(UtilityWorkMessage.TableStatsRequestMessage.class);
-            if (isUtl0 && !isUtl1) return -1;
-            if (!isUtl0 && isUtl1) return 1;
-            
-            // Always compare Transaction Ids first
-            boolean isTxn0 = (msg0 instanceof InternalTxnMessage);
-            boolean isTxn1 = (msg1 instanceof InternalTxnMessage);
-            if (isTxn0 && isTxn1) {
-                // If they're both for the same txn, then use the compareOrder
-                Long txnId0 = ((InternalTxnMessage)msg0).getTransactionId();
-                assert(txnId0 != null) : "Unexpected null txnId for " + msg0;
-                Long txnId1 = ((InternalTxnMessage)msg1).getTransactionId();
-                assert(txnId1 != null) : "Unexpected null txnId for " + msg1;
-
-                // Compare TxnIds
-                int result = txnId0.compareTo(txnId1);
-                if (result != 0) return (result);
-                
-                // Rank them based on their message type
-                // This prevents us from removing a txn before it's been added 
-                if (class0.equals(class1) == false) {
-                    for (Class<? extends InternalMessage> clazz : compareOrder) {
-                        boolean isMatch0 = class0.equals(clazz);
-                        boolean isMatch1 = class1.equals(clazz);
-                        if (isMatch0 && !isMatch1) return (-1);
-                        else if (!isMatch0 && isMatch1) return (1);                    
-                    } // FOR
-                }
+        public int compare(OrderedEntry e0, OrderedEntry e1) {
+            if (e0.txnId != e1.txnId) return (e0.txnId < e1.txnId ? -1 : 1);
+            if (e0.seq != e1.seq) return (e0.seq < e1.seq ? -1 : 1);
+            return (0);
+        }
+    };
+
+    // ----------------------------------------------------------------------------
+    // DATA MEMBERS
+    // ----------------------------------------------------------------------------
+
+    @SuppressWarnings("unchecked")
+    private final Queue<InternalMessage> fifoLanes[] = (Queue<InternalMessage>[])new Queue<?>[LANES.length];
+    private final ConcurrentSkipListSet<OrderedEntry> orderedLane = new ConcurrentSkipListSet<OrderedEntry>(ORDERED_COMPARATOR);
+    private final AtomicLong orderedSeq = new AtomicLong(0);
+    private final AtomicInteger depths[] = new AtomicInteger[LANES.length];
+
+    /**
+     * The messages that the consumer has drained from a lane but not polled yet.
+     * This has to be thread-safe because other threads can clear the queue.
+     */
+    private final Queue<InternalMessage> batch = new ConcurrentLinkedQueue<InternalMessage>();
+    private final AtomicInteger batchCount = new AtomicInteger(0);
+    private final int batchSize;
+
+    /**
+     * The consumer thread if it is blocked waiting for a message to show up
+     */
+    private volatile Thread waiter = null;
+
+    private PartitionExecutorProfiler profiler;
+
+    // ----------------------------------------------------------------------------
+    // INITIALIZATION
+    // ----------------------------------------------------------------------------
+
+    public PartitionMessageQueue() {
+        this(DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor
+     * @param batchSize the max number of messages that will be drained from a lane at once
+     */
+    public PartitionMessageQueue(int batchSize) {
+        assert(batchSize > 0) : "Invalid batch size " + batchSize;
+        this.batchSize = batchSize;
+        for (Lane lane : LANES) {
+            this.depths[lane.ordinal()] = new AtomicInteger(0);
+            if (lane != Lane.START) {
+                this.fifoLanes[lane.ordinal()] = new ConcurrentLinkedQueue<InternalMessage>();
             }
-            else if (isTxn0) {
-                return (-1); 
-            } else if (isTxn1) {
-                return (1);
+        } // FOR
+    }
+
+    /**
+     * If set, then the lane depths will be recorded in the profiler
+     * whenever the consumer drains a new batch
+     * @param profiler
+     */
+    public void setProfiler(PartitionExecutorProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    // ----------------------------------------------------------------------------
+    // PRODUCER METHODS
+    // ----------------------------------------------------------------------------
+
+    @Override
+    public boolean offer(InternalMessage msg) {
+        assert(msg != null) : "Unexpected null message";
+        Lane lane = Lane.get(msg);
+        if (lane == Lane.START) {
+            Long txnId = ((InternalTxnMessage)msg).getTransactionId();
+            assert(txnId != null) : "Unexpected null txnId for " + msg;
+            this.orderedLane.add(new OrderedEntry(txnId.longValue(), this.orderedSeq.getAndIncrement(), msg));
+        } else {
+            this.fifoLanes[lane.ordinal()].offer(msg);
+        }
+        this.depths[lane.ordinal()].incrementAndGet();
+
+        // Wake up the consumer if it's waiting for something
+        Thread t = this.waiter;
+        if (t != null) LockSupport.unpark(t);
+        return (true);
+    }
+
+    @Override
+    public boolean offer(InternalMessage msg, long timeout, TimeUnit unit) {
+        return (this.offer(msg));
+    }
+
+    @Override
+    public void put(InternalMessage msg) {
+        this.offer(msg);
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return (Integer.MAX_VALUE);
+    }
+
+    // ----------------------------------------------------------------------------
+    // CONSUMER METHODS
+    // ----------------------------------------------------------------------------
+
+    private InternalMessage pollLane(Lane lane) {
+        InternalMessage msg = null;
+        if (lane == Lane.START) {
+            OrderedEntry entry = this.orderedLane.pollFirst();
+            if (entry != null) msg = entry.msg;
+        } else {
+            msg = this.fifoLanes[lane.ordinal()].poll();
+        }
+        if (msg != null) this.depths[lane.ordinal()].decrementAndGet();
+        return (msg);
+    }
+
+    private InternalMessage peekLane(Lane lane) {
+        if (lane == Lane.START) {
+            try {
+                return (this.orderedLane.first().msg);
+            } catch (NoSuchElementException ex) {
+                return (null);
+            }
+        }
+        return (this.fifoLanes[lane.ordinal()].peek());
+    }
+
+    /**
+     * Drain up to batchSize messages from the highest priority batched lane
+     * that is not empty into our batch.
+     * @return true if we got anything
+     */
+    private boolean fillBatch() {
+        for (int i = FIRST_BATCHED_LANE.ordinal(); i < LANES.length; i++) {
+            if (this.depths[i].get() == 0) continue;
+            if (this.profiler != null) this.recordDepths();
+            InternalMessage msg = null;
+            int ctr = 0;
+            while (ctr < this.batchSize && (msg = this.pollLane(LANES[i])) != null) {
+                this.batch.add(msg);
+                ctr++;
+            } // WHILE
+            if (ctr > 0) {
+                this.batchCount.addAndGet(ctr);
+                return (true);
             }
+        } // FOR
+        return (false);
+    }
+    
+    /**
+     * Returns the next control message, if there is one. These are never batched.
+     */
+    private InternalMessage pollControl() {
+        for (int i = 0; i < FIRST_BATCHED_LANE.ordinal(); i++) {
+            if (this.depths[i].get() == 0) continue;
+            InternalMessage msg = this.pollLane(LANES[i]);
+            if (msg != null) return (msg);
+        } // FOR
+        return (null);
+    }
 
-            // Last Resort: Just use hashCode
-            return msg0.hashCode() - msg1.hashCode();
+    private void recordDepths() {
+        for (Lane lane : LANES) {
+            int depth = this.depths[lane.ordinal()].get();
+            this.profiler.laneDepthTotal[lane.ordinal()] += depth;
+            if (depth > this.profiler.laneDepthMax[lane.ordinal()]) {
+                this.profiler.laneDepthMax[lane.ordinal()] = depth;
+            }
+        } // FOR
+        this.profiler.numLaneBatches++;
+    }
+
+    @Override
+    public InternalMessage poll() {
+        InternalMessage msg = this.pollControl();
+        if (msg != null) return (msg);
+        
+        msg = this.batch.poll();
+        if (msg == null) {
+            if (this.fillBatch() == false) return (null);
+            msg = this.batch.poll();
+            // Somebody else cleared the queue after we filled the batch
+            if (msg == null) return (null);
         }
-    };
+        this.batchCount.decrementAndGet();
+        return (msg);
+    }
 
+    @Override
+    public InternalMessage poll(long timeout, TimeUnit unit) throws InterruptedException {
+        InternalMessage msg = this.poll();
+        if (msg != null) return (msg);
 
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        this.waiter = Thread.currentThread();
+        try {
+            while (true) {
+                // We have to check again after we set the waiter, otherwise we
+                // might miss a message that was added right before that
+                msg = this.poll();
+                if (msg != null) return (msg);
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) return (null);
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) throw new InterruptedException();
+            } // WHILE
+        } finally {
+            this.waiter = null;
+        }
+    }
+
+    @Override
+    public InternalMessage take() throws InterruptedException {
+        InternalMessage msg = null;
+        while ((msg = this.poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) == null) {
+            // Keep waiting
+        } // WHILE
+        return (msg);
+    }
+
+    @Override
+    public InternalMessage peek() {
+        InternalMessage msg = null;
+        for (Lane lane : LANES) {
+            // The current batch goes before all of the other batched lanes
+            if (lane == FIRST_BATCHED_LANE) {
+                msg = this.batch.peek();
+                if (msg != null) return (msg);
+            }
+            if (this.depths[lane.ordinal()].get() == 0) continue;
+            msg = this.peekLane(lane);
+            if (msg != null) return (msg);
+        } // FOR
+        return (null);
+    }
+
+    @Override
+    public int drainTo(Collection<? super InternalMessage> c) {
+        return (this.drainTo(c, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public int drainTo(Collection<? super InternalMessage> c, int maxElements) {
+        int ctr = 0;
+        InternalMessage msg = null;
+        while (ctr < maxElements && (msg = this.poll()) != null) {
+            c.add(msg);
+            ctr++;
+        } // WHILE
+        return (ctr);
+    }
+
+    @Override
+    public void clear() {
+        while (this.batch.poll() != null) {
+            this.batchCount.decrementAndGet();
+        } // WHILE
+        for (Lane lane : LANES) {
+            while (this.pollLane(lane) != null) {
+                // Keep going
+            } // WHILE
+        } // FOR
+    }
+
+    // ----------------------------------------------------------------------------
+    // UTILITY METHODS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Returns the number of messages that are waiting in the given lane.
+     * This does not include messages that were already drained into the
+     * consumer's batch.
+     * @param lane
+     * @return
+     */
+    public int getLaneDepth(Lane lane) {
+        return (this.depths[lane.ordinal()].get());
+    }
+
+    @Override
+    public int size() {
+        int total = this.batchCount.get();
+        for (Lane lane : LANES) {
+            total += this.depths[lane.ordinal()].get();
+        } // FOR
+        return (total);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        if (this.batchCount.get() > 0) return (false);
+        for (Lane lane : LANES) {
+            if (this.depths[lane.ordinal()].get() > 0) return (false);
+        } // FOR
+        return (true);
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the messages in this queue in
+     * the order that they would be polled. This is only meant for debugging.
+     * The iterator does not support remove().
+     */
+    @Override
+    public Iterator<InternalMessage> iterator() {
+        List<InternalMessage> snapshot = new ArrayList<InternalMessage>();
+        for (Lane lane : LANES) {
+            if (lane == FIRST_BATCHED_LANE) {
+                snapshot.addAll(this.batch);
+            }
+            if (lane == Lane.START) {
+                for (OrderedEntry entry : this.orderedLane) {
+                    snapshot.add(entry.msg);
+                } // FOR
+            } else {
+                snapshot.addAll(this.fifoLanes[lane.ordinal()]);
+            }
+        } // FOR
+        final Iterator<InternalMessage> it = snapshot.iterator();
+        return new Iterator<InternalMessage>() {
+            @Override
+            public boolean hasNext() {
+                return (it.hasNext());
+            }
+            @Override
+            public InternalMessage next() {
+                return (it.next());
+            }
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
 }
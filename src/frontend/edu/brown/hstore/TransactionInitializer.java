@@ -45,6 +45,7 @@ import edu.brown.hstore.conf.HStoreConf;
 import edu.brown.hstore.estimators.TransactionEstimator;
 import edu.brown.hstore.estimators.Estimate;
 import edu.brown.hstore.estimators.EstimatorState;
+import edu.brown.hstore.estimators.PartitionFootprintCache;
 import edu.brown.hstore.estimators.markov.MarkovEstimatorState;
 import edu.brown.hstore.txns.AbstractTransaction;
 import edu.brown.hstore.txns.LocalTransaction;
@@ -93,6 +94,12 @@ public class TransactionInitializer {
     private final Random rng = new Random();
     private EstimationThresholds thresholds;
     
+    /**
+     * The partitions that mispredicted txns actually touched.
+     * This will be null if ${site.exec_footprint_cache} is false.
+     */
+    private final PartitionFootprintCache footprints;
+    
     /**
      * HACK: This is the internal map used to keep track of TxnId->TxnHandles
      * inside of the HStoreSite.
@@ -125,6 +132,12 @@ public class TransactionInitializer {
         this.thresholds = hstore_site.getThresholds();
         this.p_estimator = hstore_site.getPartitionEstimator();
         this.t_estimators = new TransactionEstimator[catalogContext.numberOfPartitions];
+        if (hstore_conf.site.exec_footprint_cache) {
+            this.footprints = new PartitionFootprintCache(hstore_conf.site.exec_footprint_cache_ttl,
+                                                          hstore_conf.site.exec_footprint_cache_max_entries);
+        } else {
+            this.footprints = null;
+        }
         
         int num_procs = this.catalogContext.procedures.size() + 1;
         this.isMapReduce = new boolean[num_procs];
@@ -145,6 +158,14 @@ public class TransactionInitializer {
         } // FOR
     }
     
+    /**
+     * Returns the PartitionFootprintCache for this HStoreSite.
+     * This will be null if ${site.exec_footprint_cache} is false.
+     */
+    public PartitionFootprintCache getPartitionFootprintCache() {
+        return (this.footprints);
+    }
+    
     public synchronized EventObservable<LocalTransaction> getNewTxnObservable() {
         if (this.newTxnObservable == null) {
             this.newTxnObservable = new EventObservable<LocalTransaction>();
@@ -768,6 +789,26 @@ public class TransactionInitializer {
         assert(predict_partitions != null);
         assert(predict_partitions.isEmpty() == false);
         
+        // -------------------------------
+        // PARTITION FOOTPRINT CACHE
+        // -------------------------------
+        // If the last txn with the same routing parameter was mispredicted, then
+        // we'll make sure that we include the partitions that it actually touched.
+        if (this.footprints != null &&
+                this.isSysProc[procId] == false &&
+                this.isMapReduce[procId] == false &&
+                predict_partitions.size() < catalogContext.numberOfPartitions) {
+            PartitionSet footprint = this.footprints.get(catalog_proc, params);
+            if (footprint != null && predict_partitions.containsAll(footprint) == false) {
+                if (debug.val)
+                    LOG.debug(String.format("%s - Adding partitions from footprint cache %s to prediction %s",
+                              TransactionUtil.formatTxnName(catalog_proc, txn_id),
+                              footprint, predict_partitions));
+                predict_partitions = new PartitionSet(predict_partitions);
+                predict_partitions.addAll(footprint);
+            }
+        }
+        
         // -------------------------------
         // SET EXECUTION PROPERTIES
         // -------------------------------
@@ -5,6 +5,7 @@ import java.util.concurrent.BlockingQueue;
 
 import org.apache.log4j.Logger;
 import org.voltdb.ClientResponseImpl;
+import org.voltdb.StoredProcedureInvocationBatch;
 import org.voltdb.utils.Pair;
 
 import com.google.protobuf.RpcCallback;
@@ -35,6 +36,11 @@ public class TransactionPreProcessor extends AbstractProcessingRunnable<Pair<Byt
     
     @Override
     protected void processingCallback(Pair<ByteBuffer, RpcCallback<ClientResponseImpl>> next) {
-        this.hstore_site.invocationProcess(next.getFirst(), next.getSecond());
+        ByteBuffer buffer = next.getFirst();
+        if (StoredProcedureInvocationBatch.isBatch(buffer)) {
+            this.hstore_site.invocationProcess(StoredProcedureInvocationBatch.split(buffer), next.getSecond());
+        } else {
+            this.hstore_site.invocationProcess(buffer, next.getSecond());
+        }
     }
 }
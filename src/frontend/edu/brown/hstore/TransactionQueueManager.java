@@ -2,6 +2,7 @@ package edu.brown.hstore;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -23,6 +24,7 @@ import edu.brown.hstore.callbacks.PartitionCountingCallback;
 import edu.brown.hstore.conf.HStoreConf;
 import edu.brown.hstore.txns.AbstractTransaction;
 import edu.brown.hstore.txns.LocalTransaction;
+import edu.brown.hstore.util.PartitionAdmissionController;
 import edu.brown.interfaces.Configurable;
 import edu.brown.interfaces.DebugContext;
 import edu.brown.interfaces.Shutdownable;
@@ -92,6 +94,12 @@ public class TransactionQueueManager extends ExceptionHandlingRunnable implement
     private final Long[] lockQueueLastTxns;
 
     private final TransactionQueueManagerProfiler[] profilers;
+    
+    /**
+     * Sheds new txns for partitions whose queueing delay is too high.
+     * This will be null if ${site.queue_admission_enable} is false.
+     */
+    private final PartitionAdmissionController admission;
 
     // ----------------------------------------------------------------------------
     // TRANSACTIONS THAT NEED TO ADDED TO LOCK QUEUES
@@ -135,6 +143,13 @@ public class TransactionQueueManager extends ExceptionHandlingRunnable implement
         this.initQueue = new LinkedBlockingQueue<AbstractTransaction>();
         this.restartQueue = new LinkedBlockingQueue<Pair<LocalTransaction,Status>>();
         this.profilers = new TransactionQueueManagerProfiler[catalogContext.numberOfPartitions];
+        if (hstore_conf.site.queue_admission_enable) {
+            this.admission = new PartitionAdmissionController(catalogContext.numberOfPartitions,
+                                                              hstore_conf.site.queue_admission_target,
+                                                              hstore_conf.site.queue_admission_interval);
+        } else {
+            this.admission = null;
+        }
         
         // Initialize internal queues
         for (int partition : this.localPartitions.values()) {
@@ -185,6 +200,10 @@ public class TransactionQueueManager extends ExceptionHandlingRunnable implement
                 queue.reset();
             }
         } // FOR
+        if (this.admission != null) {
+            this.admission.setTarget(hstore_conf.site.queue_admission_target,
+                                     hstore_conf.site.queue_admission_interval);
+        }
         
     }
     
@@ -375,6 +394,25 @@ public class TransactionQueueManager extends ExceptionHandlingRunnable implement
         this.initQueue.add(ts);
  }
     
+    /**
+     * Queue a group of brand new transactions at this HStoreSite to be added
+     * into the appropriate lock queues. The txns are added in the given order.
+     * @param txns
+     */
+    protected void queueTransactionInit(Collection<? extends AbstractTransaction> txns) {
+        if (debug.val)
+            LOG.debug(String.format("Adding %d txns to initialization queue", txns.size()));
+        if (hstore_conf.site.txn_profiling) {
+            for (AbstractTransaction ts : txns) {
+                if (ts instanceof LocalTransaction) {
+                    LocalTransaction localTxn = (LocalTransaction)ts;
+                    if (localTxn.profiler != null) localTxn.profiler.startInitQueue();
+                }
+            } // FOR
+        }
+        this.initQueue.addAll(txns);
+    }
+    
     /**
      * Add a new transaction to this queue manager.
      * Returns true if the transaction was successfully inserted at all partitions.
@@ -442,6 +480,7 @@ public class TransactionQueueManager extends ExceptionHandlingRunnable implement
                 // 2013-04-04
                 // I think that we don't need to hold the lockQueueBarrier for this part here,
                 // because the PartitionLockQueue will already have an internal lock...
+                if (this.admission != null) ts.markLockQueueInsert(partition, System.currentTimeMillis());
                 ret = this.lockQueues[partition].offer(ts, ts.isSysProc());
             }
             if (ret == false) {
@@ -527,6 +566,12 @@ public class TransactionQueueManager extends ExceptionHandlingRunnable implement
                           "Invoking %s.run()",
                           partition, nextTxn, callback.getClass().getSimpleName()));
             this.lockQueueLastTxns[partition] = nextTxn.getTransactionId();
+            
+            // Tell the admission controller how long this txn was waiting for its lock
+            if (this.admission != null && nextTxn.getLockQueueInsertTime(partition) != 0) {
+                long now = System.currentTimeMillis();
+                this.admission.update(partition, now - nextTxn.getLockQueueInsertTime(partition), now);
+            }
         }
         
         
@@ -759,6 +804,14 @@ public class TransactionQueueManager extends ExceptionHandlingRunnable implement
     // UTILITY METHODS
     // ----------------------------------------------------------------------------
     
+    /**
+     * Returns the PartitionAdmissionController for this HStoreSite.
+     * This will be null if ${site.queue_admission_enable} is false.
+     */
+    public PartitionAdmissionController getAdmissionController() {
+        return (this.admission);
+    }
+    
     public PartitionLockQueue getLockQueue(int partition) {
         return (this.lockQueues[partition]);
     }
@@ -0,0 +1,123 @@
+package edu.brown.hstore.callbacks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.exceptions.ClientConnectionLostException;
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.FastSerializable;
+import org.voltdb.messaging.FastSerializer;
+import org.voltdb.network.Connection;
+
+import com.google.protobuf.RpcCallback;
+
+import edu.brown.hstore.ClientInterface;
+
+/**
+ * Sends the ClientResponses for the invocations in a StoredProcedureInvocationBatch
+ * back to the client over the Connection. We never wait for the other txns in the
+ * batch to finish. Instead, we only queue a single message on the Connection at a time,
+ * and when the Connection gets around to writing it out, that message picks up all of
+ * the responses that have completed since then. So the responses for txns that finish
+ * together go back in a single message, and every message is flushed once.
+ * The batch only counts as a single message for backpressure, so we release it
+ * once we have queued all of the responses.
+ */
+public class ClientResponseBatchCallback implements RpcCallback<ClientResponseImpl> {
+
+    private final ClientInterface clientInterface;
+    private final Connection conn;
+    private final int messageSize;
+    private final int numInvocations;
+    private int received = 0;
+
+    /** The responses that have not been written out to the Connection yet */
+    private final List<ClientResponseImpl> pending = new ArrayList<ClientResponseImpl>();
+    /** Whether there is a message queued on the Connection that will pick up the pending responses */
+    private boolean queued = false;
+    private int numMessages = 0;
+
+    /**
+     * The message that we queue on the Connection. It takes all of the pending
+     * responses when it is serialized.
+     */
+    private final FastSerializable message = new FastSerializable() {
+        @Override
+        public void writeExternal(FastSerializer out) throws IOException {
+            ClientResponseImpl responses[] = drain();
+            if (responses.length == 1) {
+                responses[0].writeExternal(out);
+            } else {
+                ClientResponseImpl.writeBatch(out, responses);
+            }
+        }
+        @Override
+        public void readExternal(FastDeserializer in) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    public ClientResponseBatchCallback(ClientInterface clientInterface, Connection conn, int messageSize, int numInvocations) {
+        this.clientInterface = clientInterface;
+        this.conn = conn;
+        this.messageSize = messageSize;
+        this.numInvocations = numInvocations;
+    }
+
+    @Override
+    public void run(ClientResponseImpl parameter) {
+        boolean last;
+        boolean enqueue;
+        synchronized (this) {
+            assert(this.received < this.numInvocations) :
+                String.format("Unexpected ClientResponse for txn #%d [expected=%d]",
+                              parameter.getTransactionId(), this.numInvocations);
+            last = (++this.received == this.numInvocations);
+            this.pending.add(parameter);
+            enqueue = (this.queued == false);
+            if (enqueue) {
+                this.queued = true;
+                this.numMessages++;
+            }
+        } // SYNCH
+
+        // Always reduce backpressure before we throw the exception
+        boolean ret = (enqueue == false || this.conn.writeStream().enqueue(this.message));
+        if (last) this.clientInterface.reduceBackpressure(this.messageSize);
+        if (ret == false) {
+            throw new ClientConnectionLostException(parameter.getTransactionId());
+        }
+    }
+
+    /**
+     * Remove all of the pending responses. The next response that
+     * completes after this will queue a new message.
+     * @return
+     */
+    protected synchronized ClientResponseImpl[] drain() {
+        assert(this.pending.isEmpty() == false) : "No pending responses for " + this;
+        ClientResponseImpl responses[] = this.pending.toArray(new ClientResponseImpl[this.pending.size()]);
+        this.pending.clear();
+        this.queued = false;
+        return (responses);
+    }
+
+    public synchronized int getReceivedCount() {
+        return (this.received);
+    }
+
+    /**
+     * Returns the number of messages that have been queued on the Connection
+     * @return
+     */
+    public synchronized int getMessageCount() {
+        return (this.numMessages);
+    }
+
+    public String toString() {
+        return String.format("%s[%d/%d]", this.conn, this.getReceivedCount(), this.numInvocations);
+    }
+
+}
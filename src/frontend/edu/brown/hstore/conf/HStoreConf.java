@@ -240,6 +240,25 @@ public final class HStoreConf {
         )
         public int exec_ee_log_level;
         
+        @ConfigProperty(
+            description="If the PartitionExecutors are using an out-of-process ExecutionEngine " +
+                        "(i.e., the 'ipc' or 'valgrind_ipc' backends), then this parameter will " +
+                        "cause them to exchange requests and results with the voltdbipc process " +
+                        "through a pair of memory-mapped rings instead of a TCP socket.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean exec_ee_ipc_shm;
+        
+        @ConfigProperty(
+            description="The size of each of the request and response rings (in MB) used when " +
+                        "${site.exec_ee_ipc_shm} is enabled. Messages that are larger than the " +
+                        "ring are streamed through it in pieces.",
+            defaultInt=16,
+            experimental=true
+        )
+        public int exec_ee_ipc_shm_size;
+        
         @ConfigProperty(
             description="Enable execution site profiling. This will keep track of how busy each " +
                         "PartitionExecutor thread is during execution (i.e., the percentage of " +
@@ -309,7 +328,34 @@ public final class HStoreConf {
             experimental=false
         )
         public boolean exec_force_singlepartitioned;
-        
+
+        @ConfigProperty(
+            description="If set to true, then the HStoreSite will remember the partitions that a mispredicted " +
+                        "transaction actually touched, keyed by its procedure and routing parameter. The " +
+                        "TransactionInitializer will add these partitions to the prediction for the next " +
+                        "request with the same routing parameter so that it is not restarted again. " +
+                        "Entries expire after ${site.exec_footprint_cache_ttl}.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean exec_footprint_cache;
+
+        @ConfigProperty(
+            description="How long (in milliseconds) an entry in the partition footprint cache will be used " +
+                        "after it was recorded. See ${site.exec_footprint_cache}.",
+            defaultInt=10000,
+            experimental=true
+        )
+        public int exec_footprint_cache_ttl;
+
+        @ConfigProperty(
+            description="The maximum number of entries in the partition footprint cache. " +
+                        "See ${site.exec_footprint_cache}.",
+            defaultInt=100000,
+            experimental=true
+        )
+        public int exec_footprint_cache_max_entries;
+
         @ConfigProperty(
             description="Always execute all requests as distributed transactions that lock all " +
                         "partitions in the cluster.",
@@ -385,6 +431,15 @@ public final class HStoreConf {
         )
         public boolean exec_queued_response_ee_bypass;
         
+        @ConfigProperty(
+            description="The max number of messages that a PartitionExecutor will take out of one of " +
+                        "the lanes in its work queue at once. Messages that arrive in a higher priority " +
+                        "lane have to wait until the current batch is finished.",
+            defaultInt=16,
+            experimental=true
+        )
+        public int exec_work_batch_size;
+        
         @ConfigProperty(
             description="The maximum amount of time that the PartitionExecutor will wait for the results of a " +
                         "distributed query to return to the transaction's base partition. Usually if this limit " +
@@ -427,6 +482,62 @@ public final class HStoreConf {
         )
         public boolean exec_prefetch_queries;
         
+        @ConfigProperty(
+            description="If this parameter is enabled along with ${site.exec_prefetch_queries}, then " +
+                        "the DBMS will infer which read-only queries can be prefetched using the " +
+                        "ParameterMappingsSet for the project instead of only relying on the Statements " +
+                        "that were marked as prefetchable when the catalog was built. A query is only " +
+                        "inferred as prefetchable if all of its input parameters are mapped to the " +
+                        "Procedure's input parameters.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean exec_prefetch_infer;
+        
+        @ConfigProperty(
+            description="If this parameter is enabled along with ${site.exec_prefetch_queries}, then " +
+                        "the DBMS will keep track of how often the results of each prefetched Statement " +
+                        "are actually used by the transaction and automatically stop prefetching it " +
+                        "when its hit rate drops below ${site.exec_prefetch_disable_threshold}.",
+            defaultBoolean=true,
+            experimental=true
+        )
+        public boolean exec_prefetch_adaptive;
+        
+        @ConfigProperty(
+            description="The number of prefetch hits and misses for a Statement that the DBMS will " +
+                        "collect before it decides whether to enable or disable prefetching for it.",
+            defaultInt=50,
+            experimental=true
+        )
+        public int exec_prefetch_adaptive_window;
+        
+        @ConfigProperty(
+            description="Disable prefetching for a Statement when the fraction of its prefetched " +
+                        "results that are used by transactions drops below this threshold.",
+            defaultDouble=0.25,
+            experimental=true
+        )
+        public double exec_prefetch_disable_threshold;
+        
+        @ConfigProperty(
+            description="Re-enable prefetching for a Statement that was disabled when the fraction of " +
+                        "its prefetched results that are used by transactions goes above this threshold. " +
+                        "This should be larger than ${site.exec_prefetch_disable_threshold}.",
+            defaultDouble=0.50,
+            experimental=true
+        )
+        public double exec_prefetch_enable_threshold;
+        
+        @ConfigProperty(
+            description="When prefetching is disabled for a Statement, the DBMS will still prefetch " +
+                        "it for one out of every N transactions so that it can tell whether it " +
+                        "should be enabled again.",
+            defaultInt=10,
+            experimental=true
+        )
+        public int exec_prefetch_probe_interval;
+        
         @ConfigProperty(
             description="If this parameter is enabled, then the DBMS will queue up any single-partitioned " +
                         "queries for later execution if they are marked as deferrable.",
@@ -745,6 +856,19 @@ public final class HStoreConf {
                 enumOptions="org.voltdb.types.AntiCacheDBType"
         )
         public String anticache_dbtype;
+        
+        @ConfigProperty(
+                description="How the EE compresses blocks of evicted tuples before they are written " +
+                            "out to the anti-cache database. LZ4_DICT also trains a dictionary for " +
+                            "each table from the first block that is evicted from it. " +
+                            "Blocks written to the NVM anti-cache database are never compressed because " +
+                            "it stores every block in a fixed-size slot. " +
+                            "The compression ratio and codec times are reported in the ANTICACHE statistics.",
+                defaultString="NONE",
+                experimental=true,
+                enumOptions="org.voltdb.types.AntiCacheCompressionType"
+        )
+        public String anticache_compression;
        
         @ConfigProperty(
             description="Enable the anti-cache timestamps feature. This requires that the system " +
@@ -871,6 +995,61 @@ public final class HStoreConf {
             )
             public int snapshot_interval;
         
+        // ----------------------------------------------------------------------------
+        // Bulk Loading Options
+        // ----------------------------------------------------------------------------
+        
+        @ConfigProperty(
+                description="When tuples are bulk loaded into a partition with @LoadPartitionTable, do not " +
+                            "add them to the table's indexes one at a time. The indexes are instead built " +
+                            "from the sorted keys of all of the tuples in the batch before the load txn finishes.",
+                defaultBoolean=true,
+                experimental=true
+        )
+        public boolean bulkload_defer_indexes;
+        
+        @ConfigProperty(
+                description="Keep undo logging enabled when tuples are bulk loaded into a partition with " +
+                            "@LoadPartitionTable. If this is disabled, then a failed load cannot be " +
+                            "rolled back and the database must be reloaded.",
+                defaultBoolean=false,
+                experimental=true
+        )
+        public boolean bulkload_undo_logging;
+
+        // ----------------------------------------------------------------------------
+        // Result Cache Options
+        // ----------------------------------------------------------------------------
+
+        @ConfigProperty(
+                description="If set to true, then the HStoreSite will keep a copy of the results of " +
+                            "read-only single-partition transactions at its local partitions. A request " +
+                            "for the same procedure with the same parameters will be answered from this " +
+                            "copy without being queued at the partition, as long as the copy is not older " +
+                            "than ${site.result_cache_ttl}. All of a partition's results are " +
+                            "invalidated whenever a transaction that modified that partition commits.",
+                defaultBoolean=false,
+                experimental=true
+        )
+        public boolean result_cache_enable;
+
+        @ConfigProperty(
+                description="The maximum age (in milliseconds) of a result that will be returned " +
+                            "to a client from the result cache. " +
+                            "See ${site.result_cache_enable}.",
+                defaultInt=100,
+                experimental=true
+        )
+        public int result_cache_ttl;
+
+        @ConfigProperty(
+                description="The maximum number of results that the result cache will keep per partition. " +
+                            "See ${site.result_cache_enable}.",
+                defaultInt=10000,
+                experimental=true
+        )
+        public int result_cache_max_entries;
+
         // ----------------------------------------------------------------------------
         // MapReduce Options
         // ----------------------------------------------------------------------------
@@ -925,6 +1104,57 @@ public final class HStoreConf {
         )
         public int network_startup_retries;
         
+        @ConfigProperty(
+            description="The number of network connections that the HStoreCoordinator will open to " +
+                        "each remote site. Messages for the same transaction are always sent over the " +
+                        "same connection. Using more than one connection keeps a large message from " +
+                        "blocking the messages for other transactions behind it. If " +
+                        "${site.network_priority_lanes} is enabled, then this is the number of " +
+                        "connections per lane.",
+            defaultInt=1,
+            experimental=true
+        )
+        public int network_connections_per_site;
+        
+        @ConfigProperty(
+            description="If this parameter is set to true, then the HStoreCoordinator will use separate " +
+                        "connections to each remote site for bulk data messages (see " +
+                        "${site.network_bulk_methods}). The control messages (init, " +
+                        "prepare, finish, heartbeats) will not have to wait behind them, except " +
+                        "that once a transaction has sent bulk data to a site, the rest of its " +
+                        "messages to that site follow the data on the same connection.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean network_priority_lanes;
+        
+        @ConfigProperty(
+            description="Comma-separated list of the HStoreService methods that are sent over the bulk " +
+                        "data connections when ${site.network_priority_lanes} is enabled.",
+            defaultString="TransactionWork,TransactionPrefetch,TransactionMap,TransactionReduce,SendData,UnevictData",
+            experimental=true
+        )
+        public String network_bulk_methods;
+
+        @ConfigProperty(
+            description="If this parameter is set to true, then the VoltTables that are sent to other " +
+                        "HStoreSites in WorkResults and SendDataRequests will be stored column-wise " +
+                        "with dictionary and run-length encoding and then compressed with Snappy. " +
+                        "Only tables that are at least ${site.network_compression_threshold} bytes " +
+                        "are encoded, and only if the encoded form is actually smaller.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean network_compression;
+
+        @ConfigProperty(
+            description="The minimum size in bytes of a serialized VoltTable before the HStoreSite will " +
+                        "try to compress it. Smaller tables are always sent as is.",
+            defaultInt=16384,
+            experimental=true
+        )
+        public int network_compression_threshold;
+
         @ConfigProperty(
             description="Max size of queued transactions before an HStoreSite will stop accepting new requests " +
                         "from clients and will block the network connections.",
@@ -1104,7 +1334,39 @@ public final class HStoreConf {
             experimental=false
         )
         public double queue_release_factor;
-        
+
+        @ConfigProperty(
+            description="If set to true, then the TransactionQueueManager will track how long txns wait " +
+                        "in each partition's lock queue before they get the lock, and the HStoreSite will " +
+                        "shed new client txns that are predicted to lock an overloaded partition instead " +
+                        "of throttling the entire HStoreSite. A partition is overloaded when the queueing " +
+                        "delay of its txns stays above ${site.queue_admission_target} for longer than " +
+                        "${site.queue_admission_interval}. This follows the CoDel control law: the time " +
+                        "between shed txns starts at one interval and gets shorter (interval / sqrt(count)) " +
+                        "until a txn gets its lock under the target. Shed txns are rejected with ABORT_REJECT.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean queue_admission_enable;
+
+        @ConfigProperty(
+            description="The acceptable queueing delay (in milliseconds) for txns at a partition. " +
+                        "Note that this includes the ${site.txn_incoming_delay} that every txn waits. " +
+                        "See ${site.queue_admission_enable}.",
+            defaultInt=25,
+            experimental=true
+        )
+        public int queue_admission_target;
+
+        @ConfigProperty(
+            description="How long (in milliseconds) the queueing delay at a partition must stay above " +
+                        "${site.queue_admission_target} before we start shedding txns for it. " +
+                        "See ${site.queue_admission_enable}.",
+            defaultInt=100,
+            experimental=true
+        )
+        public int queue_admission_interval;
+
         // ----------------------------------------------------------------------------
         // Parameter Mapping Options
         // ----------------------------------------------------------------------------
@@ -1346,7 +1608,163 @@ public final class HStoreConf {
             experimental=false
         )
         public boolean trace_query_output;
-        
+
+        @ConfigProperty(
+            description="Enable always-on sampled workload tracing. A random subset of the transactions " +
+                        "executed at each partition will be recorded and periodically written out to a " +
+                        "binary workload trace file in ${site.trace_sampling_dir}.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean trace_sampling;
+
+        @ConfigProperty(
+            description="The default fraction (0.0 - 1.0) of the transactions for each procedure that " +
+                        "will be recorded when ${site.trace_sampling} is enabled.",
+            defaultDouble=0.01,
+            experimental=true
+        )
+        public double trace_sampling_rate;
+
+        @ConfigProperty(
+            description="Comma-separated list of ProcName:Rate pairs that override ${site.trace_sampling_rate} " +
+                        "for individual procedures. A rate of zero disables tracing for that procedure.",
+            defaultNull=true,
+            experimental=true
+        )
+        public String trace_sampling_procedures;
+
+        @ConfigProperty(
+            description="The number of sampled transactions that each partition can buffer before they are " +
+                        "written out. If a partition's buffer is full, then new samples are dropped " +
+                        "instead of blocking the partition.",
+            defaultInt=1024,
+            experimental=true
+        )
+        public int trace_sampling_buffer;
+
+        @ConfigProperty(
+            description="How often in milliseconds the sampled workload trace buffers are written out to disk.",
+            defaultInt=1000,
+            experimental=true
+        )
+        public int trace_sampling_interval;
+
+        @ConfigProperty(
+            description="The size in megabytes at which the current sampled workload trace file is closed " +
+                        "and a new one is started.",
+            defaultInt=64,
+            experimental=true
+        )
+        public int trace_sampling_file_size;
+
+        @ConfigProperty(
+            description="Directory for storage of sampled workload trace files",
+            defaultString="${global.temp_dir}/traces",
+            experimental=true
+        )
+        public String trace_sampling_dir;
+
+        // ----------------------------------------------------------------------------
+        // Export Options
+        // ----------------------------------------------------------------------------
+
+        @ConfigProperty(
+            description="Enable the export subsystem. Committed rows from tables that are part of the " +
+                        "catalog's export connector will be periodically polled from the EE at each " +
+                        "partition and written out to the sinks in ${site.export_sinks}.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean export_enable;
+
+        @ConfigProperty(
+            description="Comma-separated list of the sinks that export data will be written to. " +
+                        "Use 'file' to write to rolling local files in ${site.export_dir} and 'socket' " +
+                        "to stream to the receiver at ${site.export_socket_address}. Any other entry " +
+                        "must be the full name of a class that implements ExportSink and has a " +
+                        "constructor that takes an HStoreSite.",
+            defaultString="file",
+            experimental=true
+        )
+        public String export_sinks;
+
+        @ConfigProperty(
+            description="Directory for storage of export files",
+            defaultString="${global.temp_dir}/export",
+            experimental=true
+        )
+        public String export_dir;
+
+        @ConfigProperty(
+            description="The size in megabytes at which the current export file is closed " +
+                        "and a new one is started.",
+            defaultInt=64,
+            experimental=true
+        )
+        public int export_file_size;
+
+        @ConfigProperty(
+            description="The host:port of the remote receiver used by the 'socket' export sink.",
+            defaultNull=true,
+            experimental=true
+        )
+        public String export_socket_address;
+
+        @ConfigProperty(
+            description="How often in milliseconds each partition will poll the EE for new export data.",
+            defaultInt=100,
+            experimental=true
+        )
+        public int export_interval;
+
+        @ConfigProperty(
+            description="The max number of kilobytes of export data for a single table that a partition " +
+                        "will combine into a single batch for the export sinks.",
+            defaultInt=1024,
+            experimental=true
+        )
+        public int export_batch_size;
+
+        @ConfigProperty(
+            description="The max number of megabytes of export data from a single partition that can be " +
+                        "waiting to be written out to the sinks. Once a partition reaches this limit it will " +
+                        "stop polling the EE until the sinks catch up. The data stays buffered in the EE " +
+                        "until it has been acknowledged by all of the sinks.",
+            defaultInt=16,
+            experimental=true
+        )
+        public int export_max_pending;
+
+        // ----------------------------------------------------------------------------
+        // Metrics
+        // ----------------------------------------------------------------------------
+
+        @ConfigProperty(
+            description="Enable the always-on metrics registry. Unlike ${site.profiling}, the metrics " +
+                        "only use striped counters and sampled timers so they are cheap enough to leave " +
+                        "on in production.",
+            defaultBoolean=true,
+            experimental=false
+        )
+        public boolean metrics_enable;
+
+        @ConfigProperty(
+            description="The metrics timers will only measure one out of every N invocations.",
+            defaultInt=100,
+            experimental=false
+        )
+        public int metrics_sample_rate;
+
+        @ConfigProperty(
+            description="If this is set to a positive port number, then each HStoreSite will serve its " +
+                        "metrics in the Prometheus text format at http://host:port/metrics, where the port " +
+                        "is this value plus the site's id. Requires ${site.metrics_enable}.",
+            defaultInt=-1,
+            experimental=false
+        )
+        public int metrics_http_port;
+
         // ----------------------------------------------------------------------------
         // HSTORESITE STATUS UPDATES
         // ----------------------------------------------------------------------------
@@ -1633,6 +2051,16 @@ public final class HStoreConf {
             experimental=true
         )
         public boolean blocking_loader;
+        
+        @ConfigProperty(
+            description="When this parameter is enabled, the benchmark's loaders will split the tuples for " +
+                        "partitioned tables by their partition and send them directly to each partition " +
+                        "in parallel with @LoadPartitionTable instead of using @LoadMultipartitionTable. " +
+                        "See ${site.bulkload_defer_indexes} and ${site.bulkload_undo_logging}.",
+            defaultBoolean=false,
+            experimental=true
+        )
+        public boolean bulkload;
 
         @ConfigProperty(
             description="The scaling factor determines how large to make the target benchmark's data set. " +
@@ -1724,6 +2152,16 @@ public final class HStoreConf {
         )
         public boolean txn_hints;
         
+        @ConfigProperty(
+            description="The number of threads that each client's Distributer will use to invoke the " +
+                        "ProcedureCallbacks for ClientResponses. If this is set to zero, then the callbacks " +
+                        "are invoked directly by the network thread that read the response. Otherwise " +
+                        "the callbacks for each base partition are always invoked by the same thread.",
+            defaultInt=0,
+            experimental=true
+        )
+        public int callback_threads;
+        
         @ConfigProperty(
             description="If a node is executing multiple client processes, then the node may become overloaded if " +
                         "all the clients are started at the same time. This parameter defines the threshold for when " +
@@ -2668,20 +3106,33 @@ public final class HStoreConf {
 
     public synchronized static HStoreConf init(File f, String args[]) {
         if (conf != null) throw new RuntimeException("Trying to initialize HStoreConf more than once");
-        conf = new HStoreConf();
+        conf = HStoreConf.create(f, args);
+        return (conf);
+    }
+    
+    /**
+     * Create a new HStoreConf that is not the singleton. This is used when there
+     * are multiple components running in the same JVM that each need their own
+     * parameters (e.g., in-process BenchmarkComponents next to HStoreSites).
+     * @param f
+     * @param args
+     * @return
+     */
+    public static HStoreConf create(File f, String args[]) {
+        HStoreConf newConf = new HStoreConf();
         
         boolean changed = false;
         if (f != null && f.exists()) {
-            conf.loadFromFile(f);
+            newConf.loadFromFile(f);
             changed = true;
         }
         if (args != null) {
-            conf.loadFromArgs(args);
+            newConf.loadFromArgs(args);
             changed = true;
         }
-        if (changed) conf.populateDependencies();
+        if (changed) newConf.populateDependencies();
         
-        return (conf);
+        return (newConf);
     }
     
     public synchronized static HStoreConf init(File f) {
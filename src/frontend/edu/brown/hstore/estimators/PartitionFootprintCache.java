@@ -0,0 +1,119 @@
+package edu.brown.hstore.estimators;
+
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+import org.voltdb.ParameterSet;
+import org.voltdb.catalog.Procedure;
+
+import edu.brown.hstore.util.TTLCache;
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+import edu.brown.utils.PartitionSet;
+
+/**
+ * Remembers the partitions that txns actually touched when they were
+ * mispredicted, keyed by their procedure and the hash of their routing parameter.
+ * The TransactionInitializer uses this to predict the partitions of the next
+ * invocation so that it does not get mispredicted and restarted again.
+ * Entries expire after a fixed amount of time, so a footprint that was only
+ * true for a while will stop making txns distributed.
+ * Procedures without a routing parameter are not cached.
+ * <B>NOTE:</B> Two keys with the same hash share an entry. This is safe because
+ * a wrong prediction just means that the txn is restarted or locks more
+ * partitions than it needed to.
+ */
+public class PartitionFootprintCache {
+    private static final Logger LOG = Logger.getLogger(PartitionFootprintCache.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    private static final LoggerBoolean trace = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug, trace);
+    }
+
+    private final TTLCache<Long, PartitionSet> cache;
+
+    /**
+     * Constructor
+     * @param ttl How long an entry is used for (in milliseconds)
+     * @param maxEntries
+     */
+    public PartitionFootprintCache(int ttl, int maxEntries) {
+        this.cache = new TTLCache<Long, PartitionSet>(ttl, maxEntries);
+    }
+
+    /**
+     * Compute the key for an invocation of the given procedure from its routing
+     * parameter. Returns null if the procedure does not have one.
+     * @param catalog_proc
+     * @param params
+     * @return
+     */
+    protected static Long getKey(Procedure catalog_proc, ParameterSet params) {
+        Object values[] = params.toArray();
+        int idx = catalog_proc.getPartitionparameter();
+        if (idx < 0 || idx >= values.length) {
+            return (null);
+        }
+        int hash = Arrays.deepHashCode(new Object[]{ values[idx] });
+        return (((long)catalog_proc.getId() << 32) | (hash & 0xFFFFFFFFl));
+    }
+
+    /**
+     * Return the partitions that the last mispredicted invocation of this
+     * procedure with the same routing parameter touched. Returns null if
+     * there is not an entry or if it has expired.
+     * The returned PartitionSet must not be modified.
+     * @param catalog_proc
+     * @param params
+     * @return
+     */
+    public PartitionSet get(Procedure catalog_proc, ParameterSet params) {
+        Long key = getKey(catalog_proc, params);
+        if (key == null) return (null);
+        return (this.cache.get(key));
+    }
+
+    /**
+     * Record the partitions that a mispredicted invocation of this procedure touched.
+     * If the cache is full, then we will remove the expired entries and skip this
+     * one if that did not make any room.
+     * @param catalog_proc
+     * @param params
+     * @param partitions
+     */
+    public void put(Procedure catalog_proc, ParameterSet params, PartitionSet partitions) {
+        Long key = getKey(catalog_proc, params);
+        if (key == null) return;
+        if (this.cache.put(key, new PartitionSet(partitions)) == false) {
+            if (debug.val)
+                LOG.debug(String.format("Unable to record footprint for %s. Cache is full [entries=%d]",
+                          catalog_proc.getName(), this.cache.size()));
+        } else if (trace.val) {
+            LOG.trace(String.format("Recorded footprint for %s: %s", catalog_proc.getName(), partitions));
+        }
+    }
+
+    /**
+     * Remove the entry for the given invocation. This should be called when a txn
+     * that was predicted to be distributed turned out to only touch one partition.
+     * @param catalog_proc
+     * @param params
+     */
+    public void remove(Procedure catalog_proc, ParameterSet params) {
+        Long key = getKey(catalog_proc, params);
+        if (key != null) this.cache.remove(key);
+    }
+
+    public int size() {
+        return (this.cache.size());
+    }
+
+    public long getHitCount() {
+        return (this.cache.getHitCount());
+    }
+
+    public long getMissCount() {
+        return (this.cache.getMissCount());
+    }
+}
@@ -0,0 +1,127 @@
+package edu.brown.hstore.export;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A group of committed export blocks for a single table at a single partition
+ * that were polled from the EE together. The blocks are contiguous in the
+ * table's export stream, so once every sink has accepted this batch we can
+ * acknowledge everything up to {@link #getEndOffset()} and the EE can release it.
+ * <B>Frame Layout:</B>
+ * <pre>
+ * int frameLength (not including itself)
+ * int partitionId
+ * int tableId
+ * long endOffset
+ * int numBlocks
+ * { int length, byte[] data } x numBlocks
+ * </pre>
+ */
+public class ExportBatch {
+
+    public static final int HEADER_SIZE = 4 + 4 + 4 + 8 + 4;
+
+    private final int partitionId;
+    private final int tableId;
+    private final String tableName;
+    private final int generation;
+    private final List<ByteBuffer> blocks = new ArrayList<ByteBuffer>();
+    private long endOffset = -1;
+    private int size = 0;
+
+    public ExportBatch(int partitionId, int tableId, String tableName, int generation) {
+        this.partitionId = partitionId;
+        this.tableId = tableId;
+        this.tableName = tableName;
+        this.generation = generation;
+    }
+
+    /**
+     * Add the next block in the stream. The given offset is the position
+     * in the table's export stream of the end of this block.
+     * @param block
+     * @param offset
+     */
+    public void addBlock(ByteBuffer block, long offset) {
+        assert(offset >= this.endOffset) :
+            String.format("Out of order export block for %s [offset=%d, last=%d]",
+                          this.tableName, offset, this.endOffset);
+        this.blocks.add(block);
+        this.endOffset = offset;
+        this.size += block.remaining();
+    }
+
+    public int getPartitionId() {
+        return (this.partitionId);
+    }
+
+    public int getTableId() {
+        return (this.tableId);
+    }
+
+    public String getTableName() {
+        return (this.tableName);
+    }
+
+    protected int getGeneration() {
+        return (this.generation);
+    }
+
+    public List<ByteBuffer> getBlocks() {
+        return (this.blocks);
+    }
+
+    /**
+     * Returns the stream offset of the end of the last block in this batch.
+     * This is the offset that will be acknowledged once the batch is written.
+     */
+    public long getEndOffset() {
+        return (this.endOffset);
+    }
+
+    /**
+     * Returns the number of bytes of export data in this batch
+     */
+    public int getSize() {
+        return (this.size);
+    }
+
+    public boolean isEmpty() {
+        return (this.blocks.isEmpty());
+    }
+
+    /**
+     * Returns the number of bytes that this batch takes up when framed
+     */
+    public int getFrameSize() {
+        return (HEADER_SIZE + (4 * this.blocks.size()) + this.size);
+    }
+
+    /**
+     * Serialize this batch into a new frame that can be written out to a sink.
+     * The returned buffer is ready to be read from.
+     */
+    public ByteBuffer toFrame() {
+        ByteBuffer frame = ByteBuffer.allocate(this.getFrameSize());
+        frame.putInt(frame.capacity() - 4);
+        frame.putInt(this.partitionId);
+        frame.putInt(this.tableId);
+        frame.putLong(this.endOffset);
+        frame.putInt(this.blocks.size());
+        for (ByteBuffer block : this.blocks) {
+            frame.putInt(block.remaining());
+            frame.put(block.duplicate());
+        } // FOR
+        frame.flip();
+        return (frame);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ExportBatch{%s, partition=%d, blocks=%d, bytes=%d, offset=%d}",
+                             this.tableName, this.partitionId, this.blocks.size(),
+                             this.size, this.endOffset);
+    }
+}
@@ -0,0 +1,531 @@
+package edu.brown.hstore.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.voltdb.catalog.Connector;
+import org.voltdb.catalog.ConnectorTableInfo;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.Table;
+import org.voltdb.export.ExportProtoMessage;
+import org.voltdb.jni.ExecutionEngine;
+
+import edu.brown.hstore.HStoreSite;
+import edu.brown.interfaces.Shutdownable;
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+import edu.brown.utils.ClassUtil;
+import edu.brown.utils.ExceptionHandlingRunnable;
+import edu.brown.utils.PartitionSet;
+
+/**
+ * Moves committed export data out of the EE and into a set of {@link ExportSink}s.
+ * <p>
+ * Each PartitionExecutor periodically calls {@link #poll(int, ExecutionEngine, long)}
+ * from its own thread. This polls the committed export blocks for every exported
+ * table out of its EE, combines them into an {@link ExportBatch} per table, and hands
+ * them off to the sink thread. The sink thread writes the batches to every sink and
+ * then records the offset of the last batch that was successfully flushed. The next
+ * time that the partition polls its EE, it acknowledges that offset so that the EE
+ * can release those blocks. Nothing is removed from the EE until it has been written
+ * out to all of the sinks.
+ * <p>
+ * If the sinks fall behind, then a partition will stop polling once it has too many
+ * bytes waiting to be written out. The blocks will stay buffered in the EE until the
+ * sinks catch up. If a sink fails, then we throw away everything that we have queued
+ * for the affected tables and tell the EE to rewind its poll marker back to the first
+ * unacknowledged block. This gives us at-least-once delivery to each sink.
+ */
+public class ExportManager extends ExceptionHandlingRunnable implements Shutdownable {
+    private static final Logger LOG = Logger.getLogger(ExportManager.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    private static final LoggerBoolean trace = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug, trace);
+    }
+
+    /**
+     * The max number of batches that the sink thread will write
+     * before it flushes the sinks.
+     */
+    private static final int MAX_BATCHES_PER_FLUSH = 64;
+
+    /**
+     * How long in milliseconds the sink thread waits before trying
+     * again after one of the sinks failed.
+     */
+    private static final int RETRY_DELAY = 1000;
+
+    // ----------------------------------------------------------------------------
+    // INTERNAL STATE
+    // ----------------------------------------------------------------------------
+
+    /**
+     * The export stream for a single table at a single partition.
+     */
+    protected static class TableStream {
+        private final Table catalog_tbl;
+        private final int tableId;
+
+        /**
+         * The end offset of the last batch that all of the sinks accepted.
+         * Only updated by the sink thread.
+         */
+        private volatile long acked_offset = 0;
+
+        /**
+         * Incremented by the sink thread whenever a batch for this stream failed.
+         * Any batch that was created in a previous generation will be dropped.
+         */
+        private volatile int generation = 0;
+
+        // These are only used by the partition's thread
+        private long released_offset = 0;
+        private int polled_generation = 0;
+
+        private TableStream(Table catalog_tbl) {
+            this.catalog_tbl = catalog_tbl;
+            this.tableId = catalog_tbl.getRelativeIndex();
+        }
+
+        protected long getAckedOffset() {
+            return (this.acked_offset);
+        }
+
+        protected long getReleasedOffset() {
+            return (this.released_offset);
+        }
+    }
+
+    /**
+     * All of the export streams for a single partition
+     */
+    protected static class PartitionStreams {
+        private final TableStream streams[];
+        private final Map<Integer, TableStream> streamsById = new HashMap<Integer, TableStream>();
+        private final AtomicLong pending_bytes = new AtomicLong(0);
+        private long last_poll = 0;
+
+        private PartitionStreams(Collection<Table> tables) {
+            this.streams = new TableStream[tables.size()];
+            int i = 0;
+            for (Table catalog_tbl : tables) {
+                this.streams[i] = new TableStream(catalog_tbl);
+                this.streamsById.put(this.streams[i].tableId, this.streams[i]);
+                i++;
+            } // FOR
+        }
+    }
+
+    // ----------------------------------------------------------------------------
+    // DATA MEMBERS
+    // ----------------------------------------------------------------------------
+
+    private final PartitionStreams partitions[];
+    private final List<ExportSink> sinks;
+    private final int poll_interval;
+    private final int batch_size;
+    private final long max_pending;
+
+    private final LinkedBlockingQueue<ExportBatch> queue = new LinkedBlockingQueue<ExportBatch>();
+    private final List<ExportBatch> group = new ArrayList<ExportBatch>();
+    private final List<ExportBatch> written = new ArrayList<ExportBatch>();
+
+    private Thread self;
+    private volatile boolean stop = false;
+
+    // Statistics
+    private volatile long exported_batches = 0;
+    private volatile long exported_bytes = 0;
+    private volatile long failures = 0;
+
+    // ----------------------------------------------------------------------------
+    // INITIALIZATION
+    // ----------------------------------------------------------------------------
+
+    public ExportManager(HStoreSite hstore_site) {
+        this(getExportTables(hstore_site.getCatalogContext().database),
+             hstore_site.getLocalPartitionIds(),
+             createSinks(hstore_site, hstore_site.getHStoreConf().site.export_sinks),
+             hstore_site.getHStoreConf().site.export_interval,
+             hstore_site.getHStoreConf().site.export_batch_size * 1024,
+             hstore_site.getHStoreConf().site.export_max_pending * 1048576l);
+    }
+
+    /**
+     * Constructor
+     * @param tables the tables that are exported
+     * @param partitions the partitions that will be polled
+     * @param sinks where to write the export data
+     * @param poll_interval how often in milliseconds each partition polls the EE
+     * @param batch_size the max number of bytes per table in a single batch
+     * @param max_pending the max number of unwritten bytes per partition
+     */
+    public ExportManager(Collection<Table> tables,
+                         PartitionSet partitions,
+                         List<ExportSink> sinks,
+                         int poll_interval,
+                         int batch_size,
+                         long max_pending) {
+        assert(sinks.isEmpty() == false) : "No export sinks were given";
+        int max_partition = 0;
+        for (int p : partitions.values()) {
+            max_partition = Math.max(max_partition, p);
+        } // FOR
+        this.partitions = new PartitionStreams[max_partition+1];
+        for (int p : partitions.values()) {
+            this.partitions[p] = new PartitionStreams(tables);
+        } // FOR
+        this.sinks = sinks;
+        this.poll_interval = poll_interval;
+        this.batch_size = batch_size;
+        this.max_pending = max_pending;
+
+        if (debug.val)
+            LOG.debug(String.format("Initialized %s [tables=%d, partitions=%s, sinks=%s]",
+                      this.getClass().getSimpleName(), tables.size(), partitions, sinks));
+    }
+
+    /**
+     * Return the tables that the EE will create export streams for.
+     * This uses the same rules as the EE: there is a single connector
+     * named "0" and it has to be enabled.
+     * @param catalog_db
+     * @return
+     */
+    public static Collection<Table> getExportTables(Database catalog_db) {
+        List<Table> tables = new ArrayList<Table>();
+        Connector catalog_conn = catalog_db.getConnectors().get("0");
+        if (catalog_conn != null && catalog_conn.getEnabled()) {
+            for (ConnectorTableInfo info : catalog_conn.getTableinfo()) {
+                tables.add(info.getTable());
+            } // FOR
+        }
+        return (tables);
+    }
+
+    /**
+     * Create the ExportSinks from the given comma-separated list
+     * @param hstore_site
+     * @param names
+     * @return
+     */
+    public static List<ExportSink> createSinks(HStoreSite hstore_site, String names) {
+        List<ExportSink> sinks = new ArrayList<ExportSink>();
+        if (names == null) return (sinks);
+        for (String name : names.split(",")) {
+            name = name.trim();
+            if (name.isEmpty()) continue;
+            ExportSink sink = null;
+            if (name.equalsIgnoreCase("file")) {
+                sink = new FileExportSink(hstore_site);
+            } else if (name.equalsIgnoreCase("socket")) {
+                sink = new SocketExportSink(hstore_site);
+            } else {
+                sink = ClassUtil.newInstance(name,
+                                             new Object[]{ hstore_site },
+                                             new Class<?>[]{ HStoreSite.class });
+            }
+            sinks.add(sink);
+        } // FOR
+        return (sinks);
+    }
+
+    // ----------------------------------------------------------------------------
+    // PARTITION METHODS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Poll the given partition's EE for new committed export data and acknowledge
+     * anything that the sinks have written out since the last poll. This must only
+     * be called by the thread that owns the EE.
+     * @param partition
+     * @param ee
+     * @param now the current time in milliseconds
+     * @return the number of bytes that were polled from the EE
+     */
+    public int poll(int partition, ExecutionEngine ee, long now) {
+        PartitionStreams ps = this.partitions[partition];
+        assert(ps != null) : "Unexpected export poll from partition " + partition;
+        if (now - ps.last_poll < this.poll_interval) return (0);
+        ps.last_poll = now;
+
+        int total = 0;
+        for (TableStream stream : ps.streams) {
+            total += this.poll(partition, ps, stream, ee);
+        } // FOR
+        return (total);
+    }
+
+    private int poll(int partition, PartitionStreams ps, TableStream stream, ExecutionEngine ee) {
+        // If one of the sinks failed, then the EE has to start over from
+        // the first block that we haven't acknowledged
+        int generation = stream.generation;
+        boolean reset = (generation != stream.polled_generation);
+        stream.polled_generation = generation;
+
+        final long acked = stream.acked_offset;
+        ExportBatch batch = null;
+        int polled = 0;
+        while (true) {
+            // The EE will always give us back the next block when we acknowledge
+            // something, so we can only skip it if we don't need to do either
+            boolean ack = (acked > stream.released_offset);
+            if (ack == false && reset == false && ps.pending_bytes.get() >= this.max_pending) {
+                if (trace.val)
+                    LOG.trace(String.format("Not polling %s at partition %d because there are %d bytes pending",
+                              stream.catalog_tbl.getName(), partition, ps.pending_bytes.get()));
+                break;
+            }
+
+            ExportProtoMessage response = ee.exportAction(ack, true, reset, false,
+                                                          (ack ? acked : 0), 0,
+                                                          partition, stream.tableId);
+            if (ack) stream.released_offset = acked;
+            reset = false;
+            if (response == null) break;
+            if (response.isError()) {
+                LOG.warn(String.format("Failed to poll export data for %s at partition %d",
+                         stream.catalog_tbl.getName(), partition));
+                break;
+            }
+
+            // The data has a length prefix
+            ByteBuffer data = response.getData();
+            if (data == null || data.remaining() <= 4) break;
+            int length = data.getInt(data.position());
+            if (length <= 0) break;
+
+            // The EE reuses the buffer for its results, so we have to make a copy
+            ByteBuffer block = ByteBuffer.allocate(length);
+            ByteBuffer src = data.duplicate();
+            src.position(data.position() + 4);
+            src.limit(data.position() + 4 + length);
+            block.put(src);
+            block.flip();
+
+            if (batch == null) {
+                batch = new ExportBatch(partition, stream.tableId, stream.catalog_tbl.getName(), generation);
+            }
+            batch.addBlock(block, response.getAckOffset());
+            ps.pending_bytes.addAndGet(length);
+            polled += length;
+            if (batch.getSize() >= this.batch_size) break;
+        } // WHILE
+
+        if (batch != null) {
+            if (trace.val) LOG.trace("Queuing " + batch);
+            this.queue.offer(batch);
+        }
+        return (polled);
+    }
+
+    /**
+     * Returns true if the given partition has stopped polling its EE
+     * because too much of its data is still waiting to be written out
+     * @param partition
+     * @return
+     */
+    public boolean hasBackpressure(int partition) {
+        PartitionStreams ps = this.partitions[partition];
+        return (ps != null && ps.pending_bytes.get() >= this.max_pending);
+    }
+
+    /**
+     * Returns the number of bytes that the given partition has polled but that
+     * have not been written out to the sinks yet
+     * @param partition
+     * @return
+     */
+    public long getPendingBytes(int partition) {
+        PartitionStreams ps = this.partitions[partition];
+        return (ps != null ? ps.pending_bytes.get() : 0);
+    }
+
+    protected TableStream getTableStream(int partition, int tableId) {
+        return (this.partitions[partition].streamsById.get(tableId));
+    }
+
+    // ----------------------------------------------------------------------------
+    // SINK THREAD
+    // ----------------------------------------------------------------------------
+
+    @Override
+    public void runImpl() {
+        this.self = Thread.currentThread();
+        for (ExportSink sink : this.sinks) {
+            try {
+                sink.open();
+            } catch (IOException ex) {
+                throw new RuntimeException("Failed to open export sink " + sink, ex);
+            }
+        } // FOR
+        if (debug.val) LOG.debug("Starting export sink thread");
+
+        while (this.stop == false) {
+            ExportBatch batch = null;
+            try {
+                batch = this.queue.poll(this.poll_interval, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                if (this.stop) break;
+            }
+            if (batch == null) continue;
+
+            if (this.process(batch) == false && this.stop == false) {
+                try {
+                    Thread.sleep(RETRY_DELAY);
+                } catch (InterruptedException ex) {
+                    // Ignore
+                }
+            }
+        } // WHILE
+    }
+
+    /**
+     * Write out the given batch along with anything else that is queued up to
+     * every sink and then flush the sinks. Returns false if one of the sinks failed.
+     * @param first
+     * @return
+     */
+    protected synchronized boolean process(ExportBatch first) {
+        this.group.clear();
+        this.written.clear();
+        this.group.add(first);
+        this.queue.drainTo(this.group, MAX_BATCHES_PER_FLUSH - 1);
+
+        boolean success = true;
+        try {
+            for (ExportBatch batch : this.group) {
+                TableStream stream = this.getTableStream(batch.getPartitionId(), batch.getTableId());
+                if (batch.getGeneration() != stream.generation) {
+                    if (debug.val) LOG.debug("Dropping stale " + batch);
+                    continue;
+                }
+                for (ExportSink sink : this.sinks) {
+                    sink.write(batch);
+                } // FOR
+                this.written.add(batch);
+            } // FOR
+            for (ExportSink sink : this.sinks) {
+                sink.flush();
+            } // FOR
+
+            // Everything made it out, so now the partitions can acknowledge it
+            for (ExportBatch batch : this.written) {
+                TableStream stream = this.getTableStream(batch.getPartitionId(), batch.getTableId());
+                stream.acked_offset = batch.getEndOffset();
+                this.exported_batches++;
+                this.exported_bytes += batch.getSize();
+            } // FOR
+            if (trace.val && this.written.isEmpty() == false)
+                LOG.trace(String.format("Wrote %d export batches to %d sinks", this.written.size(), this.sinks.size()));
+        } catch (IOException ex) {
+            LOG.warn(String.format("Failed to write %d export batches. The data will be polled again",
+                     this.group.size()), ex);
+            this.failures++;
+            success = false;
+
+            // Make the partitions rewind their streams. We only want to
+            // bump the generation once for each table, so we'll skip any
+            // batches that were already stale.
+            for (ExportBatch batch : this.group) {
+                TableStream stream = this.getTableStream(batch.getPartitionId(), batch.getTableId());
+                if (batch.getGeneration() == stream.generation) {
+                    stream.generation++;
+                }
+            } // FOR
+        } finally {
+            for (ExportBatch batch : this.group) {
+                this.partitions[batch.getPartitionId()].pending_bytes.addAndGet(-batch.getSize());
+            } // FOR
+        }
+        return (success);
+    }
+
+    /**
+     * Write out everything that is currently queued.
+     * Returns false if one of the sinks failed.
+     * @return
+     */
+    protected boolean flushQueue() {
+        ExportBatch batch = null;
+        while ((batch = this.queue.poll()) != null) {
+            if (this.process(batch) == false) return (false);
+        } // WHILE
+        return (true);
+    }
+
+    @Override
+    public void prepareShutdown(boolean error) {
+        this.stop = true;
+    }
+
+    /**
+     * Stop the sink thread, write out anything that is still queued,
+     * and close all of the sinks.
+     */
+    @Override
+    public void shutdown() {
+        this.stop = true;
+        Thread t = this.self;
+        if (t != null && t != Thread.currentThread()) {
+            t.interrupt();
+            try {
+                t.join();
+            } catch (InterruptedException ex) {
+                // Ignore
+            }
+        }
+        this.flushQueue();
+        for (ExportSink sink : this.sinks) {
+            try {
+                sink.close();
+            } catch (IOException ex) {
+                LOG.warn("Failed to close export sink " + sink, ex);
+            }
+        } // FOR
+    }
+
+    @Override
+    public boolean isShuttingDown() {
+        return (this.stop);
+    }
+
+    // ----------------------------------------------------------------------------
+    // STATISTICS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Returns the number of batches that were written out to all of the sinks
+     */
+    public long getExportedBatchCount() {
+        return (this.exported_batches);
+    }
+
+    /**
+     * Returns the number of bytes of export data that were written out to all of the sinks
+     */
+    public long getExportedBytes() {
+        return (this.exported_bytes);
+    }
+
+    /**
+     * Returns the number of times that writing to the sinks failed
+     */
+    public long getFailureCount() {
+        return (this.failures);
+    }
+
+    public List<ExportSink> getSinks() {
+        return (this.sinks);
+    }
+}
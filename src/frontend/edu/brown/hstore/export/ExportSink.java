@@ -0,0 +1,49 @@
+package edu.brown.hstore.export;
+
+import java.io.IOException;
+
+/**
+ * A destination for export data. All of the methods are only invoked
+ * from the ExportManager's sink thread, so implementations do not need
+ * to be thread-safe.
+ * <p>
+ * The ExportManager will write one or more batches to each sink and then
+ * call {@link #flush()}. The batches are only acknowledged to the EE after
+ * flush() returns successfully for every sink, so a sink must not return
+ * from flush() until the data can no longer be lost. If a sink throws an
+ * IOException, then the batches since the last flush will be polled again
+ * from the EE and retried later. This means that a sink may see the same
+ * data more than once.
+ * <p>
+ * Custom sinks must have a public constructor that takes an HStoreSite.
+ */
+public interface ExportSink {
+
+    /**
+     * Prepare this sink to receive data.
+     * @throws IOException
+     */
+    public void open() throws IOException;
+
+    /**
+     * Write the given batch out to this sink. The batch is not considered
+     * to be delivered until the next call to flush() returns.
+     * @param batch
+     * @throws IOException
+     */
+    public void write(ExportBatch batch) throws IOException;
+
+    /**
+     * Block until all of the batches that were written since the
+     * last flush are durable.
+     * @throws IOException
+     */
+    public void flush() throws IOException;
+
+    /**
+     * Release all of the resources used by this sink.
+     * @throws IOException
+     */
+    public void close() throws IOException;
+
+}
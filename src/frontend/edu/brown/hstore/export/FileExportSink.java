@@ -0,0 +1,167 @@
+package edu.brown.hstore.export;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import edu.brown.hstore.HStoreSite;
+import edu.brown.hstore.conf.HStoreConf;
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+import edu.brown.utils.FileUtil;
+
+/**
+ * Writes export batches out to a series of local files. Each file is just
+ * a sequence of {@link ExportBatch} frames. Once the current file gets too big,
+ * it is closed and a new file is started with the next sequence number.
+ * The sequence numbers pick up after the files that are already in the output
+ * directory, so restarting a site never overwrites what it exported before.
+ */
+public class FileExportSink implements ExportSink {
+    private static final Logger LOG = Logger.getLogger(FileExportSink.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    private static final LoggerBoolean trace = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug, trace);
+    }
+
+    public static final String FILE_EXTENSION = ".export";
+
+    private final File output_dir;
+    private final String prefix;
+    private final long max_file_size;
+    private final List<File> output_files = new ArrayList<File>();
+
+    private FileOutputStream out;
+    private FileChannel channel;
+    private long file_size = 0;
+    private int next_file_id = 0;
+
+    public FileExportSink(HStoreSite hstore_site) {
+        this(new File(hstore_site.getHStoreConf().site.export_dir),
+             hstore_site.getSiteName().toLowerCase(),
+             hstore_site.getHStoreConf().site.export_file_size * 1048576l);
+    }
+
+    /**
+     * Constructor
+     * @param output_dir the directory to write the export files into
+     * @param prefix the prefix of each export file name
+     * @param max_file_size the size in bytes at which we will start a new file
+     */
+    public FileExportSink(File output_dir, String prefix, long max_file_size) {
+        assert(max_file_size > 0) : "Invalid max file size " + max_file_size;
+        this.output_dir = output_dir;
+        this.prefix = prefix;
+        this.max_file_size = max_file_size;
+    }
+
+    @Override
+    public void open() throws IOException {
+        FileUtil.makeDirIfNotExists(this.output_dir);
+        
+        // Start after the last file that we wrote out before
+        File files[] = this.output_dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                int file_id = this.getFileId(f.getName());
+                if (file_id >= this.next_file_id) this.next_file_id = file_id + 1;
+            } // FOR
+        }
+        if (debug.val)
+            LOG.debug(String.format("Next export file id in %s is %d", this.output_dir, this.next_file_id));
+    }
+    
+    /**
+     * Returns the sequence number of the given export file name.
+     * Returns -1 if the file was not created by a sink with our prefix.
+     */
+    private int getFileId(String name) {
+        String start = this.prefix + "-";
+        if (name.startsWith(start) == false || name.endsWith(FILE_EXTENSION) == false) {
+            return (-1);
+        }
+        String id = name.substring(start.length(), name.length() - FILE_EXTENSION.length());
+        try {
+            return (Integer.parseInt(id));
+        } catch (NumberFormatException ex) {
+            return (-1);
+        }
+    }
+
+    @Override
+    public void write(ExportBatch batch) throws IOException {
+        if (this.channel == null) {
+            File f = null;
+            do {
+                f = new File(this.output_dir, String.format("%s-%04d%s", this.prefix,
+                                                            this.next_file_id++, FILE_EXTENSION));
+            } while (f.exists());
+            this.out = new FileOutputStream(f);
+            this.channel = this.out.getChannel();
+            this.file_size = 0;
+            this.output_files.add(f);
+            if (debug.val) LOG.debug("Started new export file " + f);
+        }
+        ByteBuffer frame = batch.toFrame();
+        while (frame.hasRemaining()) {
+            this.file_size += this.channel.write(frame);
+        } // WHILE
+        if (trace.val) LOG.trace(String.format("Wrote %s to %s", batch, this.getCurrentFile()));
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (this.channel == null) return;
+        this.channel.force(false);
+        if (this.file_size >= this.max_file_size) {
+            this.rotate();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.channel != null) {
+            this.channel.force(false);
+            this.rotate();
+        }
+    }
+
+    private void rotate() throws IOException {
+        if (debug.val)
+            LOG.debug(String.format("Closing export file %s [bytes=%d]", this.getCurrentFile(), this.file_size));
+        try {
+            this.out.close();
+        } finally {
+            this.out = null;
+            this.channel = null;
+        }
+    }
+
+    /**
+     * Returns the file that is currently being written to. May be null
+     * if the last file was closed and nothing new has been written.
+     */
+    public File getCurrentFile() {
+        if (this.channel == null) return (null);
+        return (this.output_files.get(this.output_files.size()-1));
+    }
+
+    /**
+     * Returns all of the files that this sink has created.
+     */
+    public List<File> getOutputFiles() {
+        return (this.output_files);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%s]", this.getClass().getSimpleName(), this.output_dir);
+    }
+}
@@ -0,0 +1,143 @@
+package edu.brown.hstore.export;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import org.apache.log4j.Logger;
+
+import edu.brown.hstore.HStoreSite;
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+
+/**
+ * Streams export batches to a remote receiver over a TCP connection.
+ * Each batch is sent as an {@link ExportBatch} frame. The receiver must
+ * reply to every frame with the 8-byte end offset from that frame's header
+ * once it has safely stored it. Frames are pipelined, so we only wait for
+ * the replies in flush(). If anything goes wrong, then the connection is
+ * dropped and we will reconnect the next time that we are given a batch.
+ */
+public class SocketExportSink implements ExportSink {
+    private static final Logger LOG = Logger.getLogger(SocketExportSink.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    private static final LoggerBoolean trace = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug, trace);
+    }
+
+    private final InetSocketAddress address;
+    private final ByteBuffer ack = ByteBuffer.allocate(8);
+    private SocketChannel channel;
+
+    /**
+     * The end offsets of the frames that have not been acknowledged yet
+     */
+    private long pending[] = new long[16];
+    private int num_pending = 0;
+
+    public SocketExportSink(HStoreSite hstore_site) {
+        this(parseAddress(hstore_site.getHStoreConf().site.export_socket_address));
+    }
+
+    public SocketExportSink(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    /**
+     * Convert a "host:port" string into an InetSocketAddress
+     * @param address
+     * @return
+     */
+    public static InetSocketAddress parseAddress(String address) {
+        if (address == null || address.indexOf(':') <= 0) {
+            throw new IllegalArgumentException("Invalid export socket address '" + address + "'");
+        }
+        int idx = address.lastIndexOf(':');
+        return new InetSocketAddress(address.substring(0, idx).trim(),
+                                     Integer.parseInt(address.substring(idx+1).trim()));
+    }
+
+    @Override
+    public void open() throws IOException {
+        // We will connect when we get our first batch
+    }
+
+    private void connect() throws IOException {
+        if (debug.val) LOG.debug("Connecting to export receiver at " + this.address);
+        this.channel = SocketChannel.open();
+        this.channel.configureBlocking(true);
+        this.channel.socket().setTcpNoDelay(true);
+        this.channel.connect(this.address);
+        this.num_pending = 0;
+    }
+
+    @Override
+    public void write(ExportBatch batch) throws IOException {
+        try {
+            if (this.channel == null) this.connect();
+            ByteBuffer frame = batch.toFrame();
+            while (frame.hasRemaining()) {
+                this.channel.write(frame);
+            } // WHILE
+        } catch (IOException ex) {
+            this.disconnect();
+            throw ex;
+        }
+        if (this.num_pending == this.pending.length) {
+            long temp[] = new long[this.pending.length * 2];
+            System.arraycopy(this.pending, 0, temp, 0, this.num_pending);
+            this.pending = temp;
+        }
+        this.pending[this.num_pending++] = batch.getEndOffset();
+        if (trace.val) LOG.trace(String.format("Sent %s to %s", batch, this.address));
+    }
+
+    @Override
+    public void flush() throws IOException {
+        try {
+            for (int i = 0; i < this.num_pending; i++) {
+                this.ack.clear();
+                while (this.ack.hasRemaining()) {
+                    if (this.channel.read(this.ack) < 0) {
+                        throw new EOFException("Export receiver at " + this.address + " closed the connection");
+                    }
+                } // WHILE
+                this.ack.flip();
+                long offset = this.ack.getLong();
+                if (offset != this.pending[i]) {
+                    throw new IOException(String.format("Unexpected acknowledgement from export receiver at %s " +
+                                                        "[expected=%d, actual=%d]",
+                                                        this.address, this.pending[i], offset));
+                }
+            } // FOR
+        } catch (IOException ex) {
+            this.disconnect();
+            throw ex;
+        }
+        this.num_pending = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.disconnect();
+    }
+
+    private void disconnect() {
+        if (this.channel == null) return;
+        try {
+            this.channel.close();
+        } catch (IOException ex) {
+            // Ignore
+        }
+        this.channel = null;
+        this.num_pending = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%s]", this.getClass().getSimpleName(), this.address);
+    }
+}
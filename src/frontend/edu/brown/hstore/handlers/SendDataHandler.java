@@ -4,7 +4,6 @@ import java.nio.ByteBuffer;
 
 import org.apache.log4j.Logger;
 import org.voltdb.VoltTable;
-import org.voltdb.messaging.FastDeserializer;
 
 import com.google.protobuf.RpcCallback;
 import com.google.protobuf.RpcController;
@@ -17,6 +16,7 @@ import edu.brown.hstore.Hstoreservice.SendDataRequest;
 import edu.brown.hstore.Hstoreservice.SendDataResponse;
 import edu.brown.hstore.txns.AbstractTransaction;
 import edu.brown.hstore.txns.LocalTransaction;
+import edu.brown.hstore.util.VoltTableCodec;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
 import edu.brown.protorpc.ProtoRpcController;
@@ -80,7 +80,7 @@ public class SendDataHandler extends AbstractTransactionHandler<SendDataRequest,
             // Deserialize the VoltTable object for the given byte array
             VoltTable vt = null;
             try {
-                vt = FastDeserializer.deserialize(data, VoltTable.class);
+                vt = VoltTableCodec.deserialize(data);
             } catch (Exception ex) {
                 LOG.warn("Unexpected error when deserializing VoltTable", ex);
             }
@@ -1,6 +1,7 @@
 package edu.brown.hstore.handlers;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.apache.log4j.Logger;
 import org.voltdb.VoltTable;
@@ -19,6 +20,7 @@ import edu.brown.hstore.Hstoreservice.TransactionPrefetchResult;
 import edu.brown.hstore.Hstoreservice.WorkResult;
 import edu.brown.hstore.PartitionExecutor;
 import edu.brown.hstore.txns.LocalTransaction;
+import edu.brown.hstore.util.VoltTableCodec;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
 import edu.brown.protorpc.ProtoRpcController;
@@ -90,8 +92,13 @@ public class TransactionPrefetchHandler extends AbstractTransactionHandler<Trans
                 
                 VoltTable vt = null;
                 try {
-                    this.fds.setBuffer(result.getDepData(i).asReadOnlyByteBuffer());
-                    vt = this.fds.readObject(VoltTable.class);
+                    ByteBuffer buffer = result.getDepData(i).asReadOnlyByteBuffer();
+                    if (VoltTableCodec.isEncoded(buffer)) {
+                        vt = VoltTableCodec.decode(buffer);
+                    } else {
+                        this.fds.setBuffer(buffer);
+                        vt = this.fds.readObject(VoltTable.class);
+                    }
                 } catch (IOException ex) {
                     throw new RuntimeException(ex);
                 }
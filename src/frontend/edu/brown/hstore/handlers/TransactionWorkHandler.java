@@ -74,12 +74,13 @@ public class TransactionWorkHandler extends AbstractTransactionHandler<Transacti
         for (int i = 0; i < parameterSets.length; i++) {
             ByteString paramData = request.getParams(i);
             if (paramData != null && paramData.isEmpty() == false) {
-                final FastDeserializer fds = new FastDeserializer(paramData.asReadOnlyByteBuffer());
                 if (trace.val)
                     LOG.trace(String.format("Txn #%d paramData[%d] => %s",
-                              txn_id, i, fds.buffer()));
+                              txn_id, i, paramData.asReadOnlyByteBuffer()));
+                // The parameters are only deserialized if somebody asks for them,
+                // otherwise we pass these bytes straight to the EE
                 try {
-                    parameterSets[i] = fds.readObject(ParameterSet.class);
+                    parameterSets[i] = new ParameterSet().setSerializedParameters(paramData.asReadOnlyByteBuffer());
                 } catch (Exception ex) {
                     String msg = String.format("Failed to deserialize ParameterSet[%d] for txn #%d TransactionRequest", i, txn_id);
                     throw new ServerFaultException(msg, ex, txn_id);
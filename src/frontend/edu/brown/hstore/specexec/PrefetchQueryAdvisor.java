@@ -0,0 +1,284 @@
+package edu.brown.hstore.specexec;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.voltdb.CatalogContext;
+import org.voltdb.catalog.PlanFragment;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Statement;
+import org.voltdb.catalog.StmtParameter;
+
+import edu.brown.catalog.special.CountedStatement;
+import edu.brown.hstore.conf.HStoreConf;
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+import edu.brown.mappings.ParameterMapping;
+import edu.brown.mappings.ParameterMappingsSet;
+
+/**
+ * Site-wide bookkeeping for which Statements we are allowed to prefetch.
+ * On start-up we will infer additional prefetchable Statements from the
+ * project's ParameterMappingsSet. Then at runtime the DependencyTracker tells
+ * us whether each prefetched result was used by its txn, and we turn
+ * prefetching on and off for each Statement based on its recent hit rate.
+ */
+public class PrefetchQueryAdvisor {
+    private static final Logger LOG = Logger.getLogger(PrefetchQueryAdvisor.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    private static final LoggerBoolean trace = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug, trace);
+    }
+
+    /**
+     * Internal hit/waste counters for a single prefetchable Statement
+     */
+    protected class StatementStats {
+        private final Statement catalog_stmt;
+        private final boolean inferred;
+        private volatile boolean enabled = true;
+
+        private final AtomicLong skipped = new AtomicLong(0);
+        private long total_hits = 0;
+        private long total_wastes = 0;
+        private int window_hits = 0;
+        private int window_wastes = 0;
+        private int toggles = 0;
+
+        private StatementStats(Statement catalog_stmt, boolean inferred) {
+            this.catalog_stmt = catalog_stmt;
+            this.inferred = inferred;
+        }
+
+        private synchronized void update(boolean hit) {
+            if (hit) this.total_hits++;
+            else this.total_wastes++;
+            if (adaptive == false) return;
+            
+            if (hit) this.window_hits++;
+            else this.window_wastes++;
+            int total = this.window_hits + this.window_wastes;
+            if (total < window_size) return;
+
+            double rate = this.window_hits / (double)total;
+            if (this.enabled && rate < disable_threshold) {
+                this.enabled = false;
+                this.toggles++;
+                if (debug.val)
+                    LOG.debug(String.format("Disabling prefetching for %s [hitRate=%.2f, threshold=%.2f]",
+                              this.catalog_stmt.fullName(), rate, disable_threshold));
+            }
+            else if (this.enabled == false && rate >= enable_threshold) {
+                this.enabled = true;
+                this.toggles++;
+                if (debug.val)
+                    LOG.debug(String.format("Enabling prefetching for %s [hitRate=%.2f, threshold=%.2f]",
+                              this.catalog_stmt.fullName(), rate, enable_threshold));
+            }
+            this.window_hits = 0;
+            this.window_wastes = 0;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%s{enabled=%s, inferred=%s, hits=%d, wastes=%d}",
+                                 this.catalog_stmt.fullName(), this.enabled, this.inferred,
+                                 this.total_hits, this.total_wastes);
+        }
+    } // CLASS
+
+    private final CatalogContext catalogContext;
+    private final boolean adaptive;
+    private final int window_size;
+    private final double disable_threshold;
+    private final double enable_threshold;
+    private final int probe_interval;
+
+    /**
+     * StatementId -> StatementStats
+     */
+    private final StatementStats stmtStats[];
+
+    private int num_inferred = 0;
+
+    // ----------------------------------------------------------------------------
+    // INITIALIZATION
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Constructor
+     * @param catalogContext
+     * @param hstore_conf
+     */
+    public PrefetchQueryAdvisor(CatalogContext catalogContext, HStoreConf hstore_conf) {
+        this.catalogContext = catalogContext;
+        this.adaptive = hstore_conf.site.exec_prefetch_adaptive;
+        this.window_size = Math.max(1, hstore_conf.site.exec_prefetch_adaptive_window);
+        this.disable_threshold = hstore_conf.site.exec_prefetch_disable_threshold;
+        this.enable_threshold = Math.max(this.disable_threshold,
+                                         hstore_conf.site.exec_prefetch_enable_threshold);
+        this.probe_interval = Math.max(1, hstore_conf.site.exec_prefetch_probe_interval);
+
+        int max_id = 0;
+        for (Procedure catalog_proc : catalogContext.procedures.values()) {
+            for (Statement catalog_stmt : catalog_proc.getStatements().values()) {
+                max_id = Math.max(max_id, catalog_stmt.getId());
+            } // FOR
+        } // FOR
+        this.stmtStats = new StatementStats[max_id+1];
+
+        boolean infer = hstore_conf.site.exec_prefetch_infer;
+        if (infer && catalogContext.paramMappings == null) {
+            LOG.warn("Unable to infer prefetchable queries without a ParameterMappingSet");
+            infer = false;
+        }
+        for (Procedure catalog_proc : catalogContext.getRegularProcedures()) {
+            for (Statement catalog_stmt : catalog_proc.getStatements().values()) {
+                boolean inferred = false;
+                if (catalog_stmt.getPrefetchable() == false) {
+                    if (infer == false || this.canInfer(catalog_stmt) == false) continue;
+                    // Mark it in the catalog so that the TransactionEstimators
+                    // will pick it up when they estimate the txn's path
+                    catalog_stmt.setPrefetchable(true);
+                    catalog_proc.setPrefetchable(true);
+                    inferred = true;
+                    this.num_inferred++;
+                    if (debug.val)
+                        LOG.debug("Inferred prefetchable Statement " + catalog_stmt.fullName());
+                }
+                this.stmtStats[catalog_stmt.getId()] = new StatementStats(catalog_stmt, inferred);
+            } // FOR (stmt)
+        } // FOR (proc)
+
+        if (debug.val)
+            LOG.debug(String.format("Initialized %s [inferred=%d, adaptive=%s]",
+                      this.getClass().getSimpleName(), this.num_inferred, this.adaptive));
+    }
+
+    /**
+     * Returns true if the given Statement is safe to prefetch and all of its
+     * input parameters can be derived from the Procedure's input parameters
+     * the first time that it is executed.
+     * @param catalog_stmt
+     * @return
+     */
+    protected boolean canInfer(Statement catalog_stmt) {
+        // We can only prefetch queries that don't modify the database and
+        // there is no point in going to a remote partition for replicated data
+        if (catalog_stmt.getReadonly() == false || catalog_stmt.getReplicatedonly()) {
+            return (false);
+        }
+        // If the query has no input parameters, then it is not going to be
+        // targeting a specific remote partition
+        if (catalog_stmt.getParameters().isEmpty()) {
+            return (false);
+        }
+        return (this.hasParameterMappings(catalog_stmt, 0));
+    }
+
+    /**
+     * Returns true if every StmtParameter for the given Statement invocation
+     * has a ParameterMapping to one of the Procedure's input parameters.
+     * @param catalog_stmt
+     * @param stmtCounter
+     * @return
+     */
+    public boolean hasParameterMappings(Statement catalog_stmt, int stmtCounter) {
+        ParameterMappingsSet mappings = this.catalogContext.paramMappings;
+        if (mappings == null) return (false);
+        for (StmtParameter catalog_param : catalog_stmt.getParameters().values()) {
+            Collection<ParameterMapping> pms = mappings.get(catalog_stmt, stmtCounter, catalog_param);
+            if (pms == null || pms.isEmpty()) {
+                if (trace.val)
+                    LOG.trace(String.format("Missing ParameterMapping for %s in %s [stmtCounter=%d]",
+                              catalog_param.fullName(), catalog_stmt.fullName(), stmtCounter));
+                return (false);
+            }
+        } // FOR
+        return (true);
+    }
+
+    // ----------------------------------------------------------------------------
+    // RUNTIME METHODS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Returns true if we should include the given Statement invocation
+     * in a txn's prefetch batch. Statements that have been disabled will
+     * still be let through every so often so that we can tell whether
+     * their hit rate has improved.
+     * @param counted_stmt
+     * @return
+     */
+    public boolean shouldPrefetch(CountedStatement counted_stmt) {
+        StatementStats stats = this.getStatementStats(counted_stmt.statement);
+        if (stats == null) {
+            return (false);
+        }
+        else if (stats.enabled || this.adaptive == false) {
+            return (true);
+        }
+        return ((stats.skipped.incrementAndGet() % this.probe_interval) == 0);
+    }
+
+    /**
+     * Record whether the prefetched result for the given PlanFragment
+     * was used by its txn.
+     * @param fragmentId
+     * @param hit
+     */
+    public void record(int fragmentId, boolean hit) {
+        PlanFragment catalog_frag = this.catalogContext.getPlanFragmentById(fragmentId);
+        if (catalog_frag == null) return;
+        Statement catalog_stmt = catalog_frag.getParent();
+        StatementStats stats = this.stmtStats[catalog_stmt.getId()];
+        if (stats == null) return;
+        if (trace.val)
+            LOG.trace(String.format("Prefetch %s for %s", (hit ? "HIT" : "WASTE"), catalog_stmt.fullName()));
+        stats.update(hit);
+    }
+
+    protected StatementStats getStatementStats(Statement catalog_stmt) {
+        int id = catalog_stmt.getId();
+        return (id < this.stmtStats.length ? this.stmtStats[id] : null);
+    }
+
+    // ----------------------------------------------------------------------------
+    // DEBUG METHODS
+    // ----------------------------------------------------------------------------
+
+    public int getInferredCount() {
+        return (this.num_inferred);
+    }
+    public boolean isInferred(Statement catalog_stmt) {
+        StatementStats stats = this.getStatementStats(catalog_stmt);
+        return (stats != null && stats.inferred);
+    }
+    public boolean isEnabled(Statement catalog_stmt) {
+        StatementStats stats = this.getStatementStats(catalog_stmt);
+        return (stats != null && stats.enabled);
+    }
+    public long getHitCount(Statement catalog_stmt) {
+        StatementStats stats = this.getStatementStats(catalog_stmt);
+        if (stats == null) return (0);
+        synchronized (stats) {
+            return (stats.total_hits);
+        } // SYNCH
+    }
+    public long getWasteCount(Statement catalog_stmt) {
+        StatementStats stats = this.getStatementStats(catalog_stmt);
+        if (stats == null) return (0);
+        synchronized (stats) {
+            return (stats.total_wastes);
+        } // SYNCH
+    }
+    public int getToggleCount(Statement catalog_stmt) {
+        StatementStats stats = this.getStatementStats(catalog_stmt);
+        if (stats == null) return (0);
+        synchronized (stats) {
+            return (stats.toggles);
+        } // SYNCH
+    }
+}
@@ -57,6 +57,7 @@ public class PrefetchQueryPlanner {
     private final PartitionEstimator p_estimator;
     private final int[] partitionSiteXref;
     private final CatalogContext catalogContext;
+    private final PrefetchQueryAdvisor advisor;
     
     // ThreadLocal Stuff
     private final ThreadLocal<Map<Integer, BatchPlanner>> planners = new ThreadLocal<Map<Integer,BatchPlanner>>() {
@@ -72,8 +73,22 @@ public class PrefetchQueryPlanner {
      * @param p_estimator
      */
     public PrefetchQueryPlanner(CatalogContext catalogContext, PartitionEstimator p_estimator) {
+        this(catalogContext, p_estimator, null);
+    }
+    
+    /**
+     * Constructor
+     * @param catalogContext
+     * @param p_estimator
+     * @param advisor If not null, then it will decide which of the txn's estimated
+     *                prefetchable Statements we will actually prefetch.
+     */
+    public PrefetchQueryPlanner(CatalogContext catalogContext,
+                                PartitionEstimator p_estimator,
+                                PrefetchQueryAdvisor advisor) {
         this.catalogContext = catalogContext;
         this.p_estimator = p_estimator;
+        this.advisor = advisor;
 
         // Initialize a BatchPlanner for each Procedure if it has the
         // prefetch flag set to true. We generate an array of the SQLStmt
@@ -89,7 +104,13 @@ public class PrefetchQueryPlanner {
                 if (catalog_stmt.getPrefetchable() == false) continue;
                 // Make sure that all of this Statement's input parameters
                 // are mapped to one of the Procedure's ProcParameter
+                // Statements that were inferred by the PrefetchQueryAdvisor only need to
+                // have a ParameterMapping for each of their StmtParameters
                 boolean valid = true;
+                if (this.advisor != null && this.advisor.isInferred(catalog_stmt)) {
+                    prefetchStmts.add(new SQLStmt(catalog_stmt));
+                    continue;
+                }
                 for (StmtParameter catalog_param : catalog_stmt.getParameters().values()) {
                     if (catalog_param.getProcparameter() == null) {
                         LOG.warn(String.format("Unable to mark %s as prefetchable because %s is not " +
@@ -162,6 +183,22 @@ public class PrefetchQueryPlanner {
         }
         // Or without queries that can be prefetched.
         List<CountedStatement> prefetchable = ts.getEstimatorState().getPrefetchableStatements(); 
+        
+        // Let the PrefetchQueryAdvisor drop any queries that we can't build the
+        // parameters for or that have not been paying off lately
+        if (this.advisor != null && prefetchable.isEmpty() == false) {
+            List<CountedStatement> filtered = new ArrayList<CountedStatement>(prefetchable.size());
+            for (CountedStatement counted_stmt : prefetchable) {
+                if (this.advisor.hasParameterMappings(counted_stmt.statement, counted_stmt.counter) &&
+                    this.advisor.shouldPrefetch(counted_stmt)) {
+                    filtered.add(counted_stmt);
+                }
+                else if (debug.val) {
+                    LOG.debug(String.format("%s - Skipping prefetch query %s", ts, counted_stmt));
+                }
+            } // FOR
+            prefetchable = filtered;
+        }
         if (prefetchable.isEmpty()) {
             if (debug.val)
                 LOG.warn(ts + " - No prefetchable queries were found in the transaction's initial path estimate. " +
@@ -1,6 +1,5 @@
 package edu.brown.hstore.specexec;
 
-import java.io.IOException;
 import java.util.List;
 
 import org.apache.log4j.Logger;
@@ -78,10 +77,9 @@ public abstract class PrefetchQueryUtil {
         int num_parameters = rawParams.size();
         ParameterSet params[] = new ParameterSet[num_parameters]; 
         for (int i = 0; i < params.length; i++) {
-            fd.setBuffer(rawParams.get(i).asReadOnlyByteBuffer());
             try {
-                params[i] = fd.readObject(ParameterSet.class);
-            } catch (IOException ex) {
+                params[i] = new ParameterSet().setSerializedParameters(rawParams.get(i).asReadOnlyByteBuffer());
+            } catch (Exception ex) {
                 String msg = "Failed to deserialize pre-fetch ParameterSet at offset #" + i;
                 throw new ServerFaultException(msg, ex, ts.getTransactionId());
             }
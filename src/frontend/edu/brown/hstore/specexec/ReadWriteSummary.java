@@ -0,0 +1,173 @@
+package edu.brown.hstore.specexec;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.voltdb.messaging.FastDeserializer;
+
+/**
+ * Compact summary of the tuples that a txn read and wrote at a single partition.
+ * For each table, the EE keeps a fixed-size bitmap where the bit for a tuple is its
+ * tuple id modulo the number of bits. If every tuple id in both summaries is smaller
+ * than the number of bits, then the bitmaps are exact and an overlap is a real conflict.
+ * Otherwise the bitmaps act like Bloom filters and an overlap only means that there
+ * might be a conflict.
+ */
+public class ReadWriteSummary {
+
+    public static final int READ = 0;
+    public static final int WRITE = 1;
+
+    /**
+     * The result of comparing the tuple summaries for a single table
+     */
+    public enum Overlap {
+        /** The txns definitely did not access the same tuples */
+        NONE,
+        /** The txns might have accessed the same tuples */
+        POSSIBLE,
+        /** The txns definitely accessed the same tuples */
+        EXACT;
+    }
+
+    protected static class TableSummary {
+        private final long words[];
+        private int tupleCount = 0;
+        private int maxTupleId = 0;
+
+        private TableSummary(int numWords) {
+            this.words = new long[numWords];
+        }
+    }
+
+    private final int numBits;
+    private final int numWords;
+    @SuppressWarnings("unchecked")
+    private final Map<String, TableSummary> summaries[] = (Map<String, TableSummary>[])new Map<?, ?>[]{
+        new HashMap<String, TableSummary>(),
+        new HashMap<String, TableSummary>(),
+    };
+
+    public ReadWriteSummary(int numBits) {
+        assert(numBits > 0 && Integer.bitCount(numBits) == 1) : "Invalid number of bits " + numBits;
+        this.numBits = numBits;
+        this.numWords = Math.max(1, numBits / 64);
+    }
+
+    /**
+     * Read a summary that was serialized by the EE. This reads the bitmaps
+     * directly out of the deserializer's buffer.
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    public static ReadWriteSummary deserialize(FastDeserializer in) throws IOException {
+        ReadWriteSummary summary = new ReadWriteSummary(in.readInt());
+        for (Map<String, TableSummary> m : summary.summaries) {
+            int numTables = in.readInt();
+            for (int i = 0; i < numTables; i++) {
+                String tableName = in.readString().toUpperCase();
+                TableSummary ts = new TableSummary(summary.numWords);
+                ts.tupleCount = in.readInt();
+                ts.maxTupleId = in.readInt();
+                for (int j = 0; j < summary.numWords; j++) {
+                    ts.words[j] = in.readLong();
+                } // FOR
+                m.put(tableName, ts);
+            } // FOR
+        } // FOR
+        return (summary);
+    }
+
+    /**
+     * Mark the given tuple as being read or written. This is the same as what
+     * the EE does when it tracks a tuple, except that it does not check whether
+     * the tuple was already marked.
+     * @param set either READ or WRITE
+     * @param tableName
+     * @param tupleId
+     */
+    public void markTuple(int set, String tableName, int tupleId) {
+        tableName = tableName.toUpperCase();
+        TableSummary ts = this.summaries[set].get(tableName);
+        if (ts == null) {
+            ts = new TableSummary(this.numWords);
+            this.summaries[set].put(tableName, ts);
+        }
+        int bit = tupleId & (this.numBits - 1);
+        long mask = (1l << (bit & 63));
+        ts.words[bit >>> 6] |= mask;
+        ts.tupleCount++;
+        ts.maxTupleId = Math.max(ts.maxTupleId, tupleId);
+    }
+
+    /**
+     * Returns the number of bits in each table's bitmap
+     * @return
+     */
+    public int getNumBits() {
+        return (this.numBits);
+    }
+
+    /**
+     * Returns the total number of tuples in the given set for all tables
+     * @param set either READ or WRITE
+     * @return
+     */
+    public int getTupleCount(int set) {
+        int total = 0;
+        for (TableSummary ts : this.summaries[set].values()) {
+            total += ts.tupleCount;
+        } // FOR
+        return (total);
+    }
+
+    /**
+     * Returns true if the txn did not read or write anything
+     * @return
+     */
+    public boolean isEmpty() {
+        return (this.getTupleCount(READ) == 0 && this.getTupleCount(WRITE) == 0);
+    }
+
+    /**
+     * Compare the tuples in this summary's set for the given table against
+     * the tuples in the other summary's set.
+     * @param set the set in this summary (READ or WRITE)
+     * @param other the other txn's summary
+     * @param otherSet the set in the other summary (READ or WRITE)
+     * @param tableName
+     * @return
+     */
+    public Overlap overlaps(int set, ReadWriteSummary other, int otherSet, String tableName) {
+        assert(this.numBits == other.numBits) :
+            String.format("Mismatched summary sizes [%d != %d]", this.numBits, other.numBits);
+        tableName = tableName.toUpperCase();
+        TableSummary ts0 = this.summaries[set].get(tableName);
+        if (ts0 == null) return (Overlap.NONE);
+        TableSummary ts1 = other.summaries[otherSet].get(tableName);
+        if (ts1 == null) return (Overlap.NONE);
+
+        boolean found = false;
+        for (int i = 0; i < this.numWords; i++) {
+            if ((ts0.words[i] & ts1.words[i]) != 0) {
+                found = true;
+                break;
+            }
+        } // FOR
+        if (found == false) {
+            return (Overlap.NONE);
+        }
+        else if (ts0.maxTupleId < this.numBits && ts1.maxTupleId < this.numBits) {
+            return (Overlap.EXACT);
+        }
+        return (Overlap.POSSIBLE);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s{reads=%s, writes=%s}", this.getClass().getSimpleName(),
+                             this.summaries[READ].keySet(), this.summaries[WRITE].keySet());
+    }
+}
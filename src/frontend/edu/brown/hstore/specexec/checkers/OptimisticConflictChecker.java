@@ -13,8 +13,10 @@ import org.voltdb.CatalogContext;
 import org.voltdb.VoltTable;
 import org.voltdb.catalog.Table;
 import org.voltdb.jni.ExecutionEngine;
+import org.voltdb.utils.NotImplementedException;
 import org.voltdb.utils.VoltTableUtil;
 
+import edu.brown.hstore.specexec.ReadWriteSummary;
 import edu.brown.hstore.txns.AbstractTransaction;
 import edu.brown.hstore.txns.LocalTransaction;
 import edu.brown.logging.LoggerUtil;
@@ -34,15 +36,27 @@ public class OptimisticConflictChecker extends AbstractConflictChecker {
         LoggerUtil.attachObserver(LOG, debug, trace);
     }
     
-    protected static final int READ = 0;
-    protected static final int WRITE = 1;
+    protected static final int READ = ReadWriteSummary.READ;
+    protected static final int WRITE = ReadWriteSummary.WRITE;
     
     private final ExecutionEngine ee;
     
+    /**
+     * Used when the EE does not support read/write tracking
+     */
+    private TableConflictChecker tableChecker;
+    
     public OptimisticConflictChecker(CatalogContext catalogContext, ExecutionEngine ee) {
         super(catalogContext);
         this.ee = ee;
     }
+    
+    private TableConflictChecker getTableConflictChecker() {
+        if (this.tableChecker == null) {
+            this.tableChecker = new TableConflictChecker(this.catalogContext);
+        }
+        return (this.tableChecker);
+    }
 
     @Override
     public boolean shouldIgnoreTransaction(AbstractTransaction ts) {
@@ -64,11 +78,25 @@ public class OptimisticConflictChecker extends AbstractConflictChecker {
         assert(ts1.isInitialized()) :
             String.format("Uninitialized speculative transaction handle [%s]", ts1);
         
+        // Check the compact tuple summaries first. We only need to get
+        // the full tracking sets if the summaries say that there might be a conflict
+        ReadWriteSummary summary0 = this.getReadWriteSummary(ts0);
+        ReadWriteSummary summary1 = (summary0 != null ? this.getReadWriteSummary(ts1) : null);
+        if (summary0 != null && summary1 != null) {
+            return (this.hasSummaryConflict(partitionId, ts0, summary0, ts1, summary1));
+        }
+        
         // Get the READ/WRITE tracking sets from the EE
         VoltTable tsTracking0[] = this.getReadWriteSets(ts0);
+        if (tsTracking0 == null) {
+            return (this.getTableConflictChecker().hasConflictAfter(ts0, ts1, partitionId));
+        }
         if (trace.val)
             LOG.trace(String.format("%s READ/WRITE SETS:\n%s", ts0, VoltTableUtil.format(tsTracking0)));
         VoltTable tsTracking1[] = this.getReadWriteSets(ts1);
+        if (tsTracking1 == null) {
+            return (this.getTableConflictChecker().hasConflictAfter(ts0, ts1, partitionId));
+        }
         if (trace.val)
             LOG.trace(String.format("%s READ/WRITE SETS:\n%s", ts1, VoltTableUtil.format(tsTracking1)));
         
@@ -127,6 +155,79 @@ public class OptimisticConflictChecker extends AbstractConflictChecker {
         return (false);
     }
     
+    /**
+     * Returns true if there is a conflict between the two transactions based on
+     * their tuple summaries. If the summaries for a table overlap but are not exact,
+     * then we will fall back to comparing the full tracking sets for just that table.
+     * @param partition
+     * @param ts0
+     * @param summary0
+     * @param ts1
+     * @param summary1
+     * @return
+     */
+    protected boolean hasSummaryConflict(int partition,
+                                         AbstractTransaction ts0, ReadWriteSummary summary0,
+                                         LocalTransaction ts1, ReadWriteSummary summary1) {
+        // SPECIAL CASE
+        // Either txn did not actually read or write anything at this partition
+        if (summary0.isEmpty() || summary1.getTupleCount(ReadWriteSummary.WRITE) == 0) {
+            return (false);
+        }
+        
+        // The full tracking sets are only retrieved if we need them
+        VoltTable tsTracking[][] = new VoltTable[2][];
+        
+        // READ-WRITE CONFLICTS
+        for (int tableId : ts0.getTableIdsMarkedRead(partition)) {
+            if (this.hasSummaryConflict(partition, tableId, READ, ts0, summary0, ts1, summary1, tsTracking)) {
+                if (debug.val)
+                    LOG.debug(String.format("Found READ-WRITE conflict between %s and %s", ts0, ts1));
+                return (true);
+            }
+        } // FOR
+        
+        // WRITE-WRITE CONFLICTS
+        for (int tableId : ts0.getTableIdsMarkedWritten(partition)) {
+            if (this.hasSummaryConflict(partition, tableId, WRITE, ts0, summary0, ts1, summary1, tsTracking)) {
+                if (debug.val)
+                    LOG.debug(String.format("Found WRITE-WRITE conflict between %s and %s", ts0, ts1));
+                return (true);
+            }
+        } // FOR
+        
+        return (false);
+    }
+    
+    private boolean hasSummaryConflict(int partition, int tableId, int set0,
+                                       AbstractTransaction ts0, ReadWriteSummary summary0,
+                                       LocalTransaction ts1, ReadWriteSummary summary1,
+                                       VoltTable tsTracking[][]) {
+        Table targetTbl = catalogContext.getTableById(tableId);
+        ReadWriteSummary.Overlap overlap = summary0.overlaps(set0, summary1, WRITE, targetTbl.getName());
+        if (trace.val)
+            LOG.trace(String.format("%s summary overlap for %s [%s] with %s: %s",
+                      (set0 == READ ? "READ-WRITE" : "WRITE-WRITE"), ts0, targetTbl.getName(), ts1, overlap));
+        switch (overlap) {
+            case NONE:
+                return (false);
+            case EXACT:
+                return (true);
+            default:
+                // The summary can't tell us for sure, so we have to check the real tuples
+                if (tsTracking[0] == null) {
+                    tsTracking[0] = this.getReadWriteSets(ts0);
+                    tsTracking[1] = this.getReadWriteSets(ts1);
+                }
+                if (tsTracking[0] == null || tsTracking[1] == null) {
+                    return (this.getTableConflictChecker().hasConflictAfter(ts0, ts1, partition));
+                }
+                return (this.hasTupleConflict(partition, new int[]{ tableId },
+                                              ts0, tsTracking[0][set0],
+                                              ts1, tsTracking[1][WRITE]));
+        } // SWITCH
+    }
+    
     /**
      * Returns true if there is a conflict between the two transactions for the
      * given list of tableIds based on their tracking sets.
@@ -194,11 +295,43 @@ public class OptimisticConflictChecker extends AbstractConflictChecker {
         } // WHILE
     }
     
+    /**
+     * Returns the compact tuple summary for the given txn from the EE.
+     * If this returns null, then we will use the full tracking sets.
+     * @param ts
+     * @return
+     */
+    protected ReadWriteSummary getReadWriteSummary(AbstractTransaction ts) {
+        if (this.ee == null) return (null);
+        try {
+            return (this.ee.trackingSummary(ts.getTransactionId()));
+        } catch (NotImplementedException ex) {
+            if (debug.val)
+                LOG.debug(String.format("Tracking summaries are not supported by %s",
+                          this.ee.getClass().getSimpleName()));
+        } catch (Exception ex) {
+            LOG.warn(String.format("Failed to get read/write tracking summary for %s", ts), ex);
+        }
+        return (null);
+    }
+    
+    /**
+     * Returns the READ/WRITE tracking sets for the given txn from the EE.
+     * If this returns null, then the EE does not support tracking and we will
+     * have to use the table-level conflicts instead.
+     * @param ts
+     * @return
+     */
     protected VoltTable[] getReadWriteSets(AbstractTransaction ts) {
         VoltTable readSet, writeSet;
         try {
             readSet = this.ee.trackingReadSet(ts.getTransactionId());
             writeSet = this.ee.trackingWriteSet(ts.getTransactionId());
+        } catch (NotImplementedException ex) {
+            if (debug.val)
+                LOG.debug(String.format("Tracking sets are not supported by %s",
+                          this.ee.getClass().getSimpleName()));
+            return (null);
         } catch (Exception ex) {
             String msg = String.format("Failed to get read/write tracking set for %s", ts);
             throw new RuntimeException(msg, ex);
@@ -27,6 +27,9 @@ public class TableConflictChecker extends AbstractConflictChecker {
     private final boolean rwConflicts[][];
     private final boolean wwConflicts[][];
     
+    /** ProcedureId -> ProcedureId -> ConflictSet */
+    private final ConflictSet conflictSets[][];
+    
     public TableConflictChecker(CatalogContext catalogContext) {
         super(catalogContext);
         
@@ -34,6 +37,7 @@ public class TableConflictChecker extends AbstractConflictChecker {
         this.hasConflicts = new boolean[size];
         this.rwConflicts = new boolean[size][size];
         this.wwConflicts = new boolean[size][size];
+        this.conflictSets = new ConflictSet[size][size];
         
         Arrays.fill(this.hasConflicts, false);
         for (Procedure catalog_proc : this.catalogContext.procedures) {
@@ -41,6 +45,10 @@ public class TableConflictChecker extends AbstractConflictChecker {
            
             // Precompute bitmaps for the conflicts
             int idx = catalog_proc.getId();
+            for (ConflictSet cset : catalog_proc.getConflicts()) {
+                Procedure other = cset.getProcedure();
+                if (other != null) this.conflictSets[idx][other.getId()] = cset;
+            } // FOR
             
             this.rwConflicts[idx] = new boolean[size];
             for (Procedure conflict : ConflictSetUtil.getReadWriteConflicts(catalog_proc)) {
@@ -104,8 +112,8 @@ public class TableConflictChecker extends AbstractConflictChecker {
             return (false);
         }
 
-        final ConflictSet dtxn_conflicts = dtxn_proc.getConflicts().get(ts_proc.getName());
-        final ConflictSet ts_conflicts = ts_proc.getConflicts().get(dtxn_proc.getName());
+        final ConflictSet dtxn_conflicts = this.conflictSets[dtxn_procId][ts_procId];
+        final ConflictSet ts_conflicts = this.conflictSets[ts_procId][dtxn_procId];
         
         // If TS is going to write to something that DTXN will read or write, then 
         // we can let that slide as long as DTXN hasn't read from or written to those tables yet
@@ -62,6 +62,9 @@ public class AntiCacheManagerProfilerStats extends StatsSource {
         assert(profiler != null);
         
         columns.add(new VoltTable.ColumnInfo("RESTARTED_TXNS", VoltType.INTEGER));
+        columns.add(new VoltTable.ColumnInfo("COMPRESSION_RATIO", VoltType.FLOAT));
+        columns.add(new VoltTable.ColumnInfo("COMPRESSION_TIME", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("DECOMPRESSION_TIME", VoltType.BIGINT));
         for (ProfileMeasurement pm : profiler.getProfileMeasurements()) {
             String name = pm.getName().toUpperCase();
             columns.add(new VoltTable.ColumnInfo(name, VoltType.BIGINT));
@@ -78,6 +81,9 @@ public class AntiCacheManagerProfilerStats extends StatsSource {
         int offset = this.columnNameToIndex.get("PARTITION");
         rowValues[offset++] = partition;
         rowValues[offset++] = profiler.restarted_txns;
+        rowValues[offset++] = dbg.getCompressionRatio(partition);
+        rowValues[offset++] = dbg.getCompressionTime(partition);
+        rowValues[offset++] = dbg.getDecompressionTime(partition);
         
         for (ProfileMeasurement pm : profiler.getProfileMeasurements()) {
             rowValues[offset++] = pm.getTotalThinkTime();
@@ -12,6 +12,7 @@ import org.voltdb.VoltType;
 
 import edu.brown.hstore.HStoreSite;
 import edu.brown.hstore.PartitionExecutor;
+import edu.brown.hstore.PartitionMessageQueue;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
 import edu.brown.profilers.PartitionExecutorProfiler;
@@ -71,6 +72,14 @@ public class PartitionExecutorProfilerStats extends StatsSource {
             columns.add(new VoltTable.ColumnInfo(name, VoltType.BIGINT));
             columns.add(new VoltTable.ColumnInfo(name+"_CNT", VoltType.BIGINT));
         } // FOR
+        // Two columns for each lane in the PartitionMessageQueue
+        //  (1) The average depth
+        //  (2) The max depth
+        for (PartitionMessageQueue.Lane lane : PartitionMessageQueue.Lane.values()) {
+            String name = "LANE_" + lane.name();
+            columns.add(new VoltTable.ColumnInfo(name, VoltType.FLOAT));
+            columns.add(new VoltTable.ColumnInfo(name+"_MAX", VoltType.BIGINT));
+        } // FOR
     }
 
     @Override
@@ -95,6 +104,12 @@ public class PartitionExecutorProfilerStats extends StatsSource {
             rowValues[offset++] = pm.getTotalThinkTime();
             rowValues[offset++] = pm.getInvocations();
         } // FOR
+        for (PartitionMessageQueue.Lane lane : PartitionMessageQueue.Lane.values()) {
+            int idx = lane.ordinal();
+            rowValues[offset++] = (profiler.numLaneBatches > 0 ?
+                                   profiler.laneDepthTotal[idx] / (double)profiler.numLaneBatches : 0d);
+            rowValues[offset++] = profiler.laneDepthMax[idx];
+        } // FOR
         super.updateStatsRow(rowKey, rowValues);
     }
 }
@@ -13,6 +13,7 @@ import org.voltdb.VoltType;
 import edu.brown.hstore.HStoreSite;
 import edu.brown.hstore.PartitionLockQueue;
 import edu.brown.hstore.TransactionQueueManager;
+import edu.brown.hstore.util.PartitionAdmissionController;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
 import edu.brown.profilers.ProfileMeasurement;
@@ -76,6 +77,10 @@ public class TransactionQueueManagerProfilerStats extends StatsSource {
         columns.add(new VoltTable.ColumnInfo("THROTTLED", VoltType.BIGINT));
         columns.add(new VoltTable.ColumnInfo("THROTTLED_CNT", VoltType.BIGINT));
         
+        // PartitionAdmissionController
+        columns.add(new VoltTable.ColumnInfo("ADMISSION_SHED", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("ADMISSION_DELAY", VoltType.BIGINT));
+        
         // Add in PartitionLockQueueProfiler stats
         PartitionLockQueueProfiler initProfiler = new PartitionLockQueueProfiler();
         columns.add(new VoltTable.ColumnInfo("AVG_TXN_WAIT", VoltType.FLOAT));
@@ -108,6 +113,11 @@ public class TransactionQueueManagerProfilerStats extends StatsSource {
         rowValues[offset++] = throttlePM.getTotalThinkTime();
         rowValues[offset++] = throttlePM.getInvocations();
         
+        // PartitionAdmissionController
+        PartitionAdmissionController admission = this.queue_manager.getAdmissionController();
+        rowValues[offset++] = (admission != null ? admission.getShedCount(partition) : 0);
+        rowValues[offset++] = (admission != null ? admission.getLastDelay(partition) : 0);
+        
         // PartitionLockQueue
         rowValues[offset++] = MathUtil.weightedMean(initProfiler.waitTimes);
         for (ProfileMeasurement pm : initProfiler.queueStates.values()) {
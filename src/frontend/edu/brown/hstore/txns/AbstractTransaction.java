@@ -186,6 +186,11 @@ public abstract class AbstractTransaction implements Poolable, Comparable<Abstra
     private final boolean prepared[];
     private final boolean finished[];
     
+    /**
+     * When this txn was inserted into each partition's lock queue (in milliseconds)
+     */
+    private final long lockQueueInsertTime[];
+    
     protected final RoundState round_state[];
     protected final int round_ctr[];
     /**
@@ -268,6 +273,7 @@ public abstract class AbstractTransaction implements Poolable, Comparable<Abstra
         this.released = new boolean[numPartitions];
         this.prepared = new boolean[numPartitions];
         this.finished = new boolean[numPartitions];
+        this.lockQueueInsertTime = new long[numPartitions];
         this.round_state = new RoundState[numPartitions];
         this.round_ctr = new int[numPartitions];
         this.exec_readOnly = new boolean[numPartitions];
@@ -375,6 +381,7 @@ public abstract class AbstractTransaction implements Poolable, Comparable<Abstra
             this.released[partition] = false;
             this.prepared[partition] = false;
             this.finished[partition] = false;
+            this.lockQueueInsertTime[partition] = 0;
             this.round_state[partition] = null;
             this.round_ctr[partition] = 0;
             this.exec_readOnly[partition] = true;
@@ -897,6 +904,24 @@ public abstract class AbstractTransaction implements Poolable, Comparable<Abstra
         return (this.released[partition]);
     }
     
+    /**
+     * Record when this txn was inserted into the lock queue at the given partition
+     * @param partition
+     * @param timestamp (in milliseconds)
+     */
+    public final void markLockQueueInsert(int partition, long timestamp) {
+        this.lockQueueInsertTime[partition] = timestamp;
+    }
+    /**
+     * Returns when this txn was inserted into the lock queue at the given partition.
+     * Returns zero if it was never inserted.
+     * @param partition
+     * @return
+     */
+    public final long getLockQueueInsertTime(int partition) {
+        return (this.lockQueueInsertTime[partition]);
+    }
+    
     /**
      * Mark this txn as prepared and return the original value
      * This is a thread-safe operation
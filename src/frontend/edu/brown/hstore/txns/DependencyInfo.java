@@ -1,5 +1,7 @@
 package edu.brown.hstore.txns;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -11,8 +13,10 @@ import java.util.Set;
 import org.apache.log4j.Logger;
 import org.voltdb.CatalogContext;
 import org.voltdb.VoltTable;
+import org.voltdb.exceptions.ServerFaultException;
 
 import edu.brown.hstore.Hstoreservice.WorkFragment;
+import edu.brown.hstore.util.VoltTableCodec;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
 import edu.brown.pools.Poolable;
@@ -54,6 +58,14 @@ public class DependencyInfo implements Poolable {
      */
     private final List<VoltTable> results = new ArrayList<VoltTable>();
     
+    /**
+     * The encoded results that have not been decoded yet. Each entry lines
+     * up with a null placeholder in the results list. We only decode them
+     * when somebody actually asks for the results.
+     */
+    private final List<ByteBuffer> encodedResults = new ArrayList<ByteBuffer>();
+    private int encodedCount = 0;
+    
     /**
      * The List of PartitionIds that we have successfully gotten back from partitions
      */
@@ -126,6 +138,8 @@ public class DependencyInfo implements Poolable {
         this.prefetch = false;
         
         this.results.clear();
+        this.encodedResults.clear();
+        this.encodedCount = 0;
         this.resultPartitions.clear();
     }
     
@@ -272,10 +286,58 @@ public class DependencyInfo implements Poolable {
                           TransactionUtil.debugPartDep(partition, this.dependency_id),
                           this.txn_id, this.debug());
         this.results.add(result);
+        this.encodedResults.add(null);
+        this.resultPartitions.add(partition);
+        return (this.expectedPartitions.size() == this.resultPartitions.size()); 
+    }
+    
+    /**
+     * Add a result for a PartitionId that was sent to us by {@link VoltTableCodec}.
+     * The VoltTable will not be decoded until the results are retrieved.
+     * Returns true if we have all of the results that we expected to get
+     * from all of the partitions.
+     * @param partition
+     * @param encoded
+     * @return
+     */
+    public boolean addEncodedResult(int partition, ByteBuffer encoded) {
+        if (debug.val)
+            LOG.debug(String.format("#%s - Storing ENCODED RESULT for DependencyId #%d from partition %02d [bytes=%d]",
+                      this.txn_id, this.dependency_id, partition, encoded.remaining()));
+        assert(this.resultPartitions.contains(partition) == false) :
+            String.format("Trying to add result %s into %s twice for %s!\n%s",
+                          TransactionUtil.debugPartDep(partition, this.dependency_id),
+                          this, this.txn_id, this.debug());
+        assert(this.expectedPartitions.contains(partition)) :
+            String.format("Unexpected partition result %s for %s!\n%s",
+                          TransactionUtil.debugPartDep(partition, this.dependency_id),
+                          this.txn_id, this.debug());
+        this.results.add(null);
+        this.encodedResults.add(encoded);
+        this.encodedCount++;
         this.resultPartitions.add(partition);
         return (this.expectedPartitions.size() == this.resultPartitions.size()); 
     }
     
+    /**
+     * Decode any results that are still encoded
+     */
+    private void decodeResults() {
+        for (int i = 0, cnt = this.results.size(); i < cnt; i++) {
+            ByteBuffer encoded = this.encodedResults.get(i);
+            if (encoded == null) continue;
+            try {
+                this.results.set(i, VoltTableCodec.decode(encoded));
+            } catch (IOException ex) {
+                String msg = String.format("Failed to decode result #%d for DependencyId #%d for txn #%s",
+                                           i, this.dependency_id, this.txn_id);
+                throw new ServerFaultException(msg, ex, this.txn_id);
+            }
+            this.encodedResults.set(i, null);
+        } // FOR
+        this.encodedCount = 0;
+    }
+    
     /**
      * Get the number of results that have arrived so far for this DependencyInfo
      * @return
@@ -284,6 +346,7 @@ public class DependencyInfo implements Poolable {
         return (this.resultPartitions.size());
     }
     protected List<VoltTable> getResults() {
+        if (this.encodedCount > 0) this.decodeResults();
         return (this.results);
     }
     /**
@@ -308,6 +371,7 @@ public class DependencyInfo implements Poolable {
             		      "-------\n%s\n" +
             		      "-------\n%s",
             		      this.resultPartitions.size(), this, this.results, this.debug()); 
+        if (this.encodedCount > 0) this.decodeResults();
         return (this.results.get(0));
     }
     
@@ -385,7 +449,7 @@ public class DependencyInfo implements Poolable {
         for (int i = 0; i < this.results.size(); i++) {
             VoltTable vt = this.results.get(i);
             inner.put(String.format("#%02d", i),
-                      String.format("{%d tuples}", vt.getRowCount()));  
+                      (vt != null ? String.format("{%d tuples}", vt.getRowCount()) : "{encoded}"));  
         } // FOR
         m.put("- Results", inner);
         m.put("- Blocked", this.blockedTasks);
@@ -1,6 +1,7 @@
 package edu.brown.hstore.txns;
 
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -15,6 +16,7 @@ import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.log4j.Logger;
@@ -27,12 +29,13 @@ import org.voltdb.catalog.PlanFragment;
 import org.voltdb.exceptions.ServerFaultException;
 import org.voltdb.utils.Pair;
 
-import edu.brown.catalog.CatalogUtil;
 import edu.brown.hstore.HStoreConstants;
 import edu.brown.hstore.Hstoreservice.WorkFragment;
 import edu.brown.hstore.PartitionExecutor;
 import edu.brown.hstore.conf.HStoreConf;
+import edu.brown.hstore.specexec.PrefetchQueryAdvisor;
 import edu.brown.hstore.txns.AbstractTransaction.RoundState;
+import edu.brown.hstore.util.VoltTableCodec;
 import edu.brown.interfaces.DebugContext;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
@@ -101,6 +104,13 @@ public class DependencyTracker {
          */
         private final Map<Pair<Integer, Integer>, VoltTable> queued_results = new LinkedHashMap<Pair<Integer,Integer>, VoltTable>();
         
+        /**
+         * Queued results that are still encoded. The key will also be in queued_results
+         * with a null VoltTable so that we release them in the order that they arrived.
+         * Partition-DependencyId Key -> Encoded VoltTable
+         */
+        private final Map<Pair<Integer, Integer>, ByteBuffer> queued_encoded = new HashMap<Pair<Integer,Integer>, ByteBuffer>();
+        
         /**
          * Blocked FragmentTaskMessages
          */
@@ -180,6 +190,7 @@ public class DependencyTracker {
             this.dependencies.clear();
             this.output_order.clear();
             this.queued_results.clear();
+            this.queued_encoded.clear();
             this.blocked_tasks.clear();
             this.unblocked_tasks.clear();
             this.still_has_tasks = true;
@@ -233,13 +244,31 @@ public class DependencyTracker {
     private final CatalogContext catalogContext;
     private final Map<Long, TransactionState> txnStates = new ConcurrentHashMap<Long, TransactionState>();
     
+    /**
+     * If this is not null, then we will report whether each prefetched
+     * query was used by its txn so that it can adjust what we prefetch.
+     */
+    private final PrefetchQueryAdvisor prefetchAdvisor;
+    
+    /**
+     * The number of prefetched queries whose results were used (hits) 
+     * or never used (wastes) by the txns at this partition.
+     */
+    private final AtomicLong prefetchHits = new AtomicLong(0);
+    private final AtomicLong prefetchWastes = new AtomicLong(0);
+    
     // ----------------------------------------------------------------------------
     // INITIALIZATION
     // ----------------------------------------------------------------------------
     
     public DependencyTracker(PartitionExecutor executor) {
+        this(executor, null);
+    }
+    
+    public DependencyTracker(PartitionExecutor executor, PrefetchQueryAdvisor prefetchAdvisor) {
         this.executor = executor;
         this.catalogContext = this.executor.getCatalogContext();
+        this.prefetchAdvisor = prefetchAdvisor;
     }
     
     public void addTransaction(LocalTransaction ts) {
@@ -260,6 +289,33 @@ public class DependencyTracker {
         if (trace.val && state != null) {
             LOG.trace(String.format("Removed %s from %s", ts, this));
         }
+        if (state != null && state.prefetch_ctr > 0) {
+            this.updatePrefetchStats(ts, state);
+        }
+    }
+    
+    /**
+     * Figure out which of the txn's prefetched queries were actually used.
+     * A prefetch DependencyInfo only gets assigned to a round when one of the
+     * txn's regular WorkFragments claims it in getPrefetchDependencyInfo().
+     * @param ts
+     * @param state
+     */
+    private void updatePrefetchStats(LocalTransaction ts, TransactionState state) {
+        int hits = 0;
+        int wastes = 0;
+        for (Map<Integer, DependencyInfo> stmt_deps : state.prefetch_dependencies.values()) {
+            for (Entry<Integer, DependencyInfo> e : stmt_deps.entrySet()) {
+                boolean hit = (e.getValue().getRound() >= 0);
+                if (hit) hits++;
+                else wastes++;
+                if (this.prefetchAdvisor != null) this.prefetchAdvisor.record(e.getKey(), hit);
+            } // FOR
+        } // FOR
+        this.prefetchHits.addAndGet(hits);
+        this.prefetchWastes.addAndGet(wastes);
+        if (debug.val)
+            LOG.debug(String.format("%s - Prefetch results [hits=%d, wastes=%d]", ts, hits, wastes));
     }
     
     // ----------------------------------------------------------------------------
@@ -318,9 +374,11 @@ public class DependencyTracker {
                 LOG.trace(String.format("%s - Releasing %d queued results",
                           ts, state.queued_results.size()));
             for (Entry<Pair<Integer, Integer>, VoltTable> e : state.queued_results.entrySet()) {
-                this.addResult(ts, e.getKey(), e.getValue(), true);
+                ByteBuffer encoded = (e.getValue() == null ? state.queued_encoded.get(e.getKey()) : null);
+                this.addResult(ts, e.getKey(), e.getValue(), encoded, true);
             } // FOR
             state.queued_results.clear();
+            state.queued_encoded.clear();
         }
         
         // Now create the latch
@@ -752,7 +810,7 @@ public class DependencyTracker {
             } else {
                 for (int i = 0; i < num_fragments; i++) {
                     int frag_id = fragment.getFragmentId(i);
-                    PlanFragment catalog_frag = CatalogUtil.getPlanFragment(ts.getProcedure(), frag_id);
+                    PlanFragment catalog_frag = this.catalogContext.getPlanFragmentById(frag_id);
                     catalog_obj = catalog_frag.getParent();
                     if (catalog_obj != null) break;
                 } // FOR
@@ -784,13 +842,30 @@ public class DependencyTracker {
         assert(result != null) :
             String.format("%s - The result for DependencyId %d from partition %d is null",
                           ts, dependency_id, partition);
-        this.addResult(ts, Pair.of(partition, dependency_id), result, false);
+        this.addResult(ts, Pair.of(partition, dependency_id), result, null, false);
+    }
+    
+    /**
+     * Store an output dependency result for a transaction that is still encoded
+     * by {@link VoltTableCodec}. The VoltTable will not be decoded until the
+     * transaction actually retrieves it.
+     * @param ts
+     * @param partition
+     * @param dependency_id
+     * @param encoded
+     */
+    public void addEncodedResult(LocalTransaction ts, int partition, int dependency_id, ByteBuffer encoded) {
+        assert(encoded != null) :
+            String.format("%s - The encoded result for DependencyId %d from partition %d is null",
+                          ts, dependency_id, partition);
+        this.addResult(ts, Pair.of(partition, dependency_id), null, encoded, false);
     }
 
     /**
      * Store a VoltTable result that this transaction is waiting for.
      * @param key The hackish partition+dependency key
      * @param result The actual data for the result
+     * @param encoded The encoded data for the result if result is null
      * @param force If false, then we will check to make sure the result isn't a duplicate
      * @param partition The partition id that generated the result
      * @param dependency_id The dependency id that this result corresponds to
@@ -798,9 +873,10 @@ public class DependencyTracker {
     private void addResult(final LocalTransaction ts,
                            final Pair<Integer, Integer> key,
                            final VoltTable result,
+                           final ByteBuffer encoded,
                            final boolean force) {
         final TransactionState state = this.getState(ts);
-        assert(result != null);
+        assert(result != null || encoded != null);
         
         final ReentrantLock txnLock = ts.getTransactionLock();
         final int base_partition = ts.getBasePartition();
@@ -814,8 +890,9 @@ public class DependencyTracker {
                           roundState, ts, base_partition);
         
         if (debug.val)
-            LOG.debug(String.format("%s - Attemping to add new result with %d rows for %s",
-                      ts, result.getRowCount(), TransactionUtil.debugPartDep(partition, dependency_id)));
+            LOG.debug(String.format("%s - Attemping to add new result with %s rows for %s",
+                      ts, (result != null ? result.getRowCount() : "encoded"),
+                      TransactionUtil.debugPartDep(partition, dependency_id)));
         
         // If the txn is still in the INITIALIZED state, then we just want to queue up the results
         // for now. They will get released when we switch to STARTED 
@@ -828,6 +905,7 @@ public class DependencyTracker {
                         String.format("%s - Duplicate result %s",
                                       ts, TransactionUtil.debugPartDep(partition, dependency_id));
                     state.queued_results.put(key, result);
+                    if (encoded != null) state.queued_encoded.put(key, encoded);
                     if (debug.val)
                         LOG.debug(String.format("%s - Queued result %s until the round is started",
                                   ts, TransactionUtil.debugPartDep(partition, dependency_id)));
@@ -856,7 +934,11 @@ public class DependencyTracker {
             // 2013-05-12: DependencyInfo.addResult() must definitely be synchronized!!!
             //             There is a weird race condition where the inner PartitionSet is not
             //             updated properly. 
-            dinfo.addResult(partition, result);
+            if (result != null) {
+                dinfo.addResult(partition, result);
+            } else {
+                dinfo.addEncodedResult(partition, encoded);
+            }
             state.received_ctr++;
             this.updateAfterNewResult(ts, state, dinfo);
         } finally {
@@ -1056,7 +1138,7 @@ public class DependencyTracker {
                 String msg = String.format("%s - Adding prefetch %s %s at partition %d for %s",
                                            ts, dinfo,
                                            TransactionUtil.debugStmtDep(stmtCounter, output_dep_id), partition,
-                                           CatalogUtil.getPlanFragment(catalogContext.catalog, fragment.getFragmentId(i)).fullName());
+                                           catalogContext.getPlanFragmentById(fragment.getFragmentId(i)).fullName());
                 if (trace.val)
                     msg += "\n" + String.format("ProcedureParams = %s\n" +
                                                 "ParameterSet[%d] = %s\n%s",
@@ -1184,6 +1266,12 @@ public class DependencyTracker {
             final TransactionState state = getState(ts);
             return (state.dependencies);
         }
+        public long getPrefetchHitCount() {
+            return (prefetchHits.get());
+        }
+        public long getPrefetchWasteCount() {
+            return (prefetchWastes.get());
+        }
         public int getPrefetchCounter(LocalTransaction ts) {
             final TransactionState state = getState(ts);
             return (state.prefetch_ctr);
@@ -0,0 +1,234 @@
+package edu.brown.hstore.util;
+
+import org.apache.log4j.Logger;
+
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+import edu.brown.utils.PartitionSet;
+
+/**
+ * Latency-targeted admission control for the partitions at an HStoreSite.
+ * This follows the CoDel control law: we track how long txns wait in each
+ * partition's lock queue before they get the lock. If that delay stays above
+ * the target for a whole interval, then the partition is overloaded and we
+ * start shedding new txns for it. The time between sheds gets shorter
+ * (interval / sqrt(count)) until a txn gets its lock under the target. If the
+ * partition becomes overloaded again soon after, then we pick up the shedding
+ * rate where we left off instead of starting over at one shed per interval.
+ * Partitions that are keeping up are never affected by a hot partition.
+ */
+public class PartitionAdmissionController {
+    private static final Logger LOG = Logger.getLogger(PartitionAdmissionController.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    private static final LoggerBoolean trace = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug, trace);
+    }
+
+    // ----------------------------------------------------------------------------
+    // INTERNAL STATE
+    // ----------------------------------------------------------------------------
+
+    private static class PartitionState {
+        /** When the delay will have been above the target for a whole interval. Zero if below. */
+        long firstAboveTime = 0;
+        /** The next time that we will shed a txn when we are in the shedding state */
+        long shedNext = 0;
+        boolean shedding = false;
+        /** The number of txns shed since we entered the shedding state */
+        int count = 0;
+        int lastCount = 0;
+
+        long lastDelay = 0;
+        long shedTotal = 0;
+        long admittedTotal = 0;
+    }
+
+    private final PartitionState states[];
+    private int target;
+    private int interval;
+
+    // ----------------------------------------------------------------------------
+    // INITIALIZATION
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Constructor
+     * @param numPartitions
+     * @param target The acceptable queueing delay (in milliseconds)
+     * @param interval How long the delay must stay above the target before we
+     *                 start shedding (in milliseconds)
+     */
+    public PartitionAdmissionController(int numPartitions, int target, int interval) {
+        this.states = new PartitionState[numPartitions];
+        for (int i = 0; i < numPartitions; i++) {
+            this.states[i] = new PartitionState();
+        } // FOR
+        this.setTarget(target, interval);
+    }
+
+    public void setTarget(int target, int interval) {
+        assert(interval > 0);
+        this.target = target;
+        this.interval = interval;
+    }
+
+    private long controlLaw(long now, int count) {
+        return (now + (long)(this.interval / Math.sqrt(count)));
+    }
+
+    // ----------------------------------------------------------------------------
+    // API METHODS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Record that a txn got its lock at the given partition
+     * after waiting for the given amount of time.
+     * @param partition
+     * @param delay How long the txn was in the lock queue (in milliseconds)
+     * @param now The current time (in milliseconds)
+     */
+    public void update(int partition, long delay, long now) {
+        PartitionState state = this.states[partition];
+        synchronized (state) {
+            state.lastDelay = delay;
+            if (delay < this.target) {
+                state.firstAboveTime = 0;
+                if (state.shedding) {
+                    if (debug.val)
+                        LOG.debug(String.format("Partition %d :: Leaving shedding state [delay=%d, shed=%d]",
+                                  partition, delay, state.count));
+                    state.shedding = false;
+                }
+            }
+            else if (state.firstAboveTime == 0) {
+                state.firstAboveTime = now + this.interval;
+            }
+            else if (state.shedding == false && now >= state.firstAboveTime) {
+                // If we were shedding not that long ago, then start off
+                // where we left off instead of going back to a single shed per interval
+                int delta = state.count - state.lastCount;
+                if (delta > 1 && now - state.shedNext < 16 * this.interval) {
+                    state.count = delta;
+                } else {
+                    state.count = 1;
+                }
+                state.lastCount = state.count;
+                state.shedding = true;
+                state.shedNext = this.controlLaw(now, state.count);
+                if (debug.val)
+                    LOG.debug(String.format("Partition %d :: Entering shedding state [delay=%d, target=%d]",
+                              partition, delay, this.target));
+            }
+        } // SYNCH
+    }
+
+    /**
+     * Returns true if a new txn for the given partition should be admitted.
+     * If this returns false, then the caller must reject the txn.
+     * @param partition
+     * @param now The current time (in milliseconds)
+     * @return
+     */
+    public boolean admit(int partition, long now) {
+        if (this.shed(partition, now)) return (false);
+        PartitionState state = this.states[partition];
+        synchronized (state) {
+            state.admittedTotal++;
+        } // SYNCH
+        return (true);
+    }
+
+    /**
+     * Returns true if a new txn that will lock all of the given partitions
+     * should be admitted. The txn is shed if any one of its partitions is due
+     * to shed a txn, and every partition that was due counts it as its shed.
+     * If this returns false, then the caller must reject the txn.
+     * @param partitions
+     * @param now The current time (in milliseconds)
+     * @return
+     */
+    public boolean admit(PartitionSet partitions, long now) {
+        boolean shed = false;
+        for (int partition : partitions.values()) {
+            shed = this.shed(partition, now) || shed;
+        } // FOR
+        if (shed) return (false);
+
+        for (int partition : partitions.values()) {
+            PartitionState state = this.states[partition];
+            synchronized (state) {
+                state.admittedTotal++;
+            } // SYNCH
+        } // FOR
+        return (true);
+    }
+
+    /**
+     * Returns true if the given partition is due to shed a txn. If so,
+     * then we schedule the next shed for it.
+     * @param partition
+     * @param now
+     * @return
+     */
+    private boolean shed(int partition, long now) {
+        PartitionState state = this.states[partition];
+        synchronized (state) {
+            if (state.shedding == false || now < state.shedNext) {
+                return (false);
+            }
+            state.count++;
+            state.shedTotal++;
+            state.shedNext = this.controlLaw(state.shedNext, state.count);
+            // Don't let the next shed time fall behind if nobody has
+            // tried to get into this partition for a while
+            if (state.shedNext < now) state.shedNext = this.controlLaw(now, state.count);
+            if (trace.val)
+                LOG.trace(String.format("Partition %d :: Shedding txn [count=%d, next=%d]",
+                          partition, state.count, state.shedNext));
+        } // SYNCH
+        return (true);
+    }
+
+    // ----------------------------------------------------------------------------
+    // STATS METHODS
+    // ----------------------------------------------------------------------------
+
+    public boolean isShedding(int partition) {
+        PartitionState state = this.states[partition];
+        synchronized (state) {
+            return (state.shedding);
+        } // SYNCH
+    }
+
+    /**
+     * Returns the total number of txns that were shed for the given partition
+     */
+    public long getShedCount(int partition) {
+        PartitionState state = this.states[partition];
+        synchronized (state) {
+            return (state.shedTotal);
+        } // SYNCH
+    }
+
+    /**
+     * Returns the total number of txns that were admitted for the given partition
+     */
+    public long getAdmittedCount(int partition) {
+        PartitionState state = this.states[partition];
+        synchronized (state) {
+            return (state.admittedTotal);
+        } // SYNCH
+    }
+
+    /**
+     * Returns the queueing delay (in milliseconds) of the last txn
+     * released at the given partition
+     */
+    public long getLastDelay(int partition) {
+        PartitionState state = this.states[partition];
+        synchronized (state) {
+            return (state.lastDelay);
+        } // SYNCH
+    }
+}
@@ -0,0 +1,238 @@
+package edu.brown.hstore.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.ParameterSet;
+import org.voltdb.VoltTable;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.FastSerializer;
+
+import edu.brown.hstore.Hstoreservice.Status;
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+
+/**
+ * A cache of the results of read-only single-partition txns at an HStoreSite's
+ * local partitions, keyed by their procedure and parameters. The next request for
+ * the same thing is answered by the HStoreSite without queuing it at the partition,
+ * so it does not wait behind the writes that are queued at the PartitionExecutor.
+ * This is not a replica of the partition: requests for partitions at other sites
+ * are still redirected, and a miss still executes at the partition.
+ * All of the entries for a partition are invalidated whenever a txn that modified
+ * that partition commits, so a client never sees the results of a read that
+ * missed a committed write. The PartitionExecutor fills and invalidates the
+ * partition's entries from the thread that commits its txns.
+ * Results are also dropped once they are ${site.result_cache_ttl} old.
+ */
+public class ResultCache {
+    private static final Logger LOG = Logger.getLogger(ResultCache.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    private static final LoggerBoolean trace = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug, trace);
+    }
+
+    // ----------------------------------------------------------------------------
+    // INTERNAL CACHE MEMBERS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * The procedure and the parameters of a txn request
+     */
+    public static class Key {
+        private final int procId;
+        private final Object params[];
+        private final int hash;
+
+        private Key(int procId, Object params[]) {
+            this.procId = procId;
+            this.params = params;
+            this.hash = (31 * procId) + Arrays.deepHashCode(params);
+        }
+
+        @Override
+        public int hashCode() {
+            return (this.hash);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return (true);
+            if ((obj instanceof Key) == false) return (false);
+            Key other = (Key)obj;
+            return (this.hash == other.hash &&
+                    this.procId == other.procId &&
+                    Arrays.deepEquals(this.params, other.params));
+        }
+    }
+
+    private static class CacheEntry {
+        /** The id of the txn that produced these results */
+        final long txnId;
+        final byte appStatus;
+        final String appStatusString;
+        /** The serialized result tables. Every hit gets its own copy */
+        final byte results[][];
+
+        CacheEntry(long txnId, byte appStatus, String appStatusString, byte results[][]) {
+            this.txnId = txnId;
+            this.appStatus = appStatus;
+            this.appStatusString = appStatusString;
+            this.results = results;
+        }
+    }
+
+    private final TTLCache<Key, CacheEntry> partitionCaches[];
+
+    // ----------------------------------------------------------------------------
+    // INITIALIZATION
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Constructor
+     * @param numPartitions The total number of partitions in the cluster
+     * @param ttl The maximum age of an entry (in milliseconds)
+     * @param maxEntries The maximum number of entries per partition
+     */
+    @SuppressWarnings("unchecked")
+    public ResultCache(int numPartitions, int ttl, int maxEntries) {
+        this.partitionCaches = (TTLCache<Key, CacheEntry>[])new TTLCache<?, ?>[numPartitions];
+        for (int i = 0; i < numPartitions; i++) {
+            this.partitionCaches[i] = new TTLCache<Key, CacheEntry>(ttl, maxEntries);
+        } // FOR
+    }
+
+    /**
+     * Returns true if the results of the given procedure can be served
+     * from the cache.
+     * @param catalog_proc
+     * @return
+     */
+    public static boolean isCacheable(Procedure catalog_proc) {
+        return (catalog_proc.getReadonly() &&
+                catalog_proc.getSinglepartition() &&
+                catalog_proc.getSystemproc() == false &&
+                catalog_proc.getMapreduce() == false);
+    }
+
+    /**
+     * Create the Key for an invocation of the given procedure. The Key keeps
+     * its own copy of the parameter array, so it is safe to reuse the
+     * ParameterSet afterwards.
+     * @param catalog_proc
+     * @param procParams
+     * @return
+     */
+    public Key createKey(Procedure catalog_proc, ParameterSet procParams) {
+        Object params[] = procParams.toArray();
+        return (new Key(catalog_proc.getId(), (params != null ? params.clone() : new Object[0])));
+    }
+
+    // ----------------------------------------------------------------------------
+    // ACCESS METHODS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Return a new ClientResponse for the given request if we have a copy of its
+     * results that is not too stale. Otherwise returns null. The response has the
+     * id of the txn that produced the results.
+     * @param partition The base partition of the request
+     * @param key
+     * @param client_handle
+     * @return
+     */
+    public ClientResponseImpl get(int partition, Key key, long client_handle) {
+        CacheEntry entry = this.partitionCaches[partition].get(key);
+        if (entry == null) {
+            return (null);
+        }
+
+        VoltTable results[] = new VoltTable[entry.results.length];
+        try {
+            for (int i = 0; i < results.length; i++) {
+                FastDeserializer fds = new FastDeserializer(entry.results[i]);
+                results[i] = fds.readObject(VoltTable.class);
+            } // FOR
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to deserialize cached results", ex);
+        }
+        if (trace.val)
+            LOG.trace(String.format("Result cache hit at partition %d [handle=%d]", partition, client_handle));
+        return (new ClientResponseImpl(entry.txnId, client_handle, partition, Status.OK,
+                                       entry.appStatus, entry.appStatusString,
+                                       results, "", null));
+    }
+
+    /**
+     * Store the results of a committed txn for the given request. If the partition
+     * is full, then we will remove the stale entries and skip this one if that
+     * did not make any room.
+     * @param partition
+     * @param key
+     * @param cresponse
+     */
+    public void put(int partition, Key key, ClientResponseImpl cresponse) {
+        assert(cresponse.getStatus() == Status.OK);
+        VoltTable results[] = cresponse.getResults();
+        byte serialized[][] = new byte[results.length][];
+        try {
+            for (int i = 0; i < results.length; i++) {
+                serialized[i] = FastSerializer.serialize(results[i]);
+            } // FOR
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to serialize results for result cache", ex);
+        }
+        TTLCache<Key, CacheEntry> cache = this.partitionCaches[partition];
+        CacheEntry entry = new CacheEntry(cresponse.getTransactionId(), cresponse.getAppStatus(),
+                                          cresponse.getAppStatusString(), serialized);
+        if (cache.put(key, entry) == false) {
+            if (debug.val)
+                LOG.debug(String.format("Result cache for partition %d is full [entries=%d]",
+                          partition, cache.size()));
+        }
+    }
+
+    /**
+     * Remove all of the results for the given partition. This must be called
+     * whenever a txn that modified the partition commits.
+     * @param partition
+     */
+    public void invalidate(int partition) {
+        TTLCache<Key, CacheEntry> cache = this.partitionCaches[partition];
+        if (cache.isEmpty() == false) {
+            if (trace.val)
+                LOG.trace(String.format("Invalidating %d results for partition %d", cache.size(), partition));
+            cache.clear();
+        }
+    }
+
+    public void clear() {
+        for (TTLCache<Key, CacheEntry> cache : this.partitionCaches) {
+            cache.clear();
+        } // FOR
+    }
+
+    public int size(int partition) {
+        return (this.partitionCaches[partition].size());
+    }
+
+    public long getHitCount() {
+        long total = 0;
+        for (TTLCache<Key, CacheEntry> cache : this.partitionCaches) {
+            total += cache.getHitCount();
+        } // FOR
+        return (total);
+    }
+
+    public long getMissCount() {
+        long total = 0;
+        for (TTLCache<Key, CacheEntry> cache : this.partitionCaches) {
+            total += cache.getMissCount();
+        } // FOR
+        return (total);
+    }
+}
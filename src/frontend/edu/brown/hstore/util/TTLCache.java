@@ -0,0 +1,119 @@
+package edu.brown.hstore.util;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltdb.utils.EstTime;
+
+/**
+ * A bounded map whose entries are only returned for a fixed amount of time
+ * after they were added. Expired entries are removed when they are looked up
+ * or when we need to make room for a new entry. If the cache is full of entries
+ * that have not expired yet, then new entries are dropped instead of evicting
+ * the old ones.
+ * The timestamps come from EstTime, so they are only as precise as the last
+ * EstTimeUpdater update.
+ * @param <K>
+ * @param <V>
+ */
+public class TTLCache<K, V> {
+
+    private static class CacheEntry<V> {
+        final V value;
+        final long timestamp;
+
+        CacheEntry(V value, long timestamp) {
+            this.value = value;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private final ConcurrentHashMap<K, CacheEntry<V>> cache = new ConcurrentHashMap<K, CacheEntry<V>>();
+    private final int ttl;
+    private final int maxEntries;
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+
+    /**
+     * Constructor
+     * @param ttl How long an entry is returned for (in milliseconds)
+     * @param maxEntries
+     */
+    public TTLCache(int ttl, int maxEntries) {
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Return the value for the given key. Returns null if there is
+     * not an entry or if it has expired.
+     * @param key
+     * @return
+     */
+    public V get(K key) {
+        CacheEntry<V> entry = this.cache.get(key);
+        if (entry != null && EstTime.currentTimeMillis() - entry.timestamp > this.ttl) {
+            this.cache.remove(key, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            this.misses.incrementAndGet();
+            return (null);
+        }
+        this.hits.incrementAndGet();
+        return (entry.value);
+    }
+
+    /**
+     * Add the value for the given key. If the cache is full, then we will remove
+     * the expired entries and skip this one if that did not make any room.
+     * Returns true if the value was added.
+     * @param key
+     * @param value
+     * @return
+     */
+    public boolean put(K key, V value) {
+        long now = EstTime.currentTimeMillis();
+        if (this.cache.size() >= this.maxEntries && this.cache.containsKey(key) == false) {
+            this.purge(now);
+            if (this.cache.size() >= this.maxEntries) {
+                return (false);
+            }
+        }
+        this.cache.put(key, new CacheEntry<V>(value, now));
+        return (true);
+    }
+
+    public void remove(K key) {
+        this.cache.remove(key);
+    }
+
+    private void purge(long now) {
+        Iterator<CacheEntry<V>> it = this.cache.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().timestamp > this.ttl) it.remove();
+        } // WHILE
+    }
+
+    public void clear() {
+        this.cache.clear();
+    }
+
+    public boolean isEmpty() {
+        return (this.cache.isEmpty());
+    }
+
+    public int size() {
+        return (this.cache.size());
+    }
+
+    public long getHitCount() {
+        return (this.hits.get());
+    }
+
+    public long getMissCount() {
+        return (this.misses.get());
+    }
+}
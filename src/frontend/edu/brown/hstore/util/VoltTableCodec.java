@@ -0,0 +1,358 @@
+package edu.brown.hstore.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.FastSerializer;
+import org.voltdb.utils.CompressionService;
+
+import com.google.protobuf.ByteString;
+
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+
+/**
+ * Wire encoding for VoltTables that are sent between HStoreSites.
+ * A table is either sent in its normal row-major serialized form or in a
+ * column-wise form where each column is stored as plain values, run-length
+ * encoded values, or dictionary codes. The column-wise bytes are then
+ * compressed with Snappy.
+ * <B>Layout:</B>
+ * <pre>
+ * int MAGIC
+ * int rowCount
+ * int uncompressedLength
+ * byte[] compressed { header bytes, column blocks }
+ * </pre>
+ * The normal serialized form always starts with a non-negative length,
+ * so the (negative) magic number tells the two forms apart.
+ */
+public abstract class VoltTableCodec {
+    private static final Logger LOG = Logger.getLogger(VoltTableCodec.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug);
+    }
+
+    public static final int MAGIC = 0xC0DEC001;
+    private static final int HEADER_SIZE = 12;
+
+    private static final byte ENCODING_PLAIN = 0;
+    private static final byte ENCODING_RLE = 1;
+    private static final byte ENCODING_DICTIONARY = 2;
+
+    /**
+     * Dictionaries larger than this are not worth it
+     */
+    private static final int MAX_DICTIONARY_SIZE = 65536;
+
+    // ----------------------------------------------------------------------------
+    // ENCODING
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Serialize the given VoltTable for the wire. If the serialized table is at
+     * least threshold bytes, then we will try to encode it column-wise. We only
+     * use the encoded form if it is smaller than the original.
+     * A negative threshold disables encoding.
+     * @param vt
+     * @param threshold
+     * @param fs A FastSerializer that can be cleared and reused
+     * @return
+     * @throws IOException
+     */
+    public static ByteString serialize(VoltTable vt, int threshold, FastSerializer fs) throws IOException {
+        fs.clear();
+        vt.writeExternal(fs);
+        ByteBuffer raw = fs.getBBContainer().b;
+        int raw_size = raw.remaining();
+        if (threshold >= 0 && raw_size >= threshold && vt.getRowCount() > 0) {
+            byte encoded[] = encode(vt);
+            if (encoded.length < raw_size) {
+                if (debug.val)
+                    LOG.debug(String.format("Encoded VoltTable with %d rows [%d -> %d bytes]",
+                              vt.getRowCount(), raw_size, encoded.length));
+                return (ByteString.copyFrom(encoded));
+            }
+        }
+        return (ByteString.copyFrom(raw));
+    }
+
+    /**
+     * Encode the given VoltTable column-wise and compress it.
+     * @param vt
+     * @return
+     * @throws IOException
+     */
+    public static byte[] encode(VoltTable vt) throws IOException {
+        // The table's data ends at its buffer's position (just like in writeExternal)
+        ByteBuffer buffer = vt.getDirectDataReference().duplicate();
+        byte data[] = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(data);
+
+        final int rowStart = buffer.getInt(0) + 4;
+        final int numRows = buffer.getInt(rowStart);
+        final int numCols = vt.getColumnCount();
+
+        // Figure out where every value starts and how long it is
+        int offsets[][] = new int[numCols][numRows];
+        int lengths[][] = new int[numCols][numRows];
+        int position = rowStart + 4;
+        for (int row = 0; row < numRows; row++) {
+            position += 4; // Row Length
+            for (int col = 0; col < numCols; col++) {
+                int length = valueLength(vt.getColumnType(col), buffer, position);
+                offsets[col][row] = position;
+                lengths[col][row] = length;
+                position += length;
+            } // FOR
+        } // FOR
+
+        FastSerializer fs = new FastSerializer();
+        fs.write(data, 0, rowStart);
+        for (int col = 0; col < numCols; col++) {
+            if (vt.getColumnType(col) == VoltType.STRING) {
+                encodeVariableColumn(fs, data, offsets[col], lengths[col], numRows);
+            } else {
+                encodeFixedColumn(fs, data, offsets[col], vt.getColumnType(col).getLengthInBytesForFixedTypes(), numRows);
+            }
+        } // FOR
+
+        ByteBuffer payload = fs.getBBContainer().b;
+        assert(payload.hasArray());
+        int length = payload.limit();
+        byte compressed[] = CompressionService.compressBytes(payload.array(), payload.arrayOffset(), length);
+
+        ByteBuffer output = ByteBuffer.allocate(HEADER_SIZE + compressed.length);
+        output.putInt(MAGIC);
+        output.putInt(numRows);
+        output.putInt(length);
+        output.put(compressed);
+        return (output.array());
+    }
+
+    private static int valueLength(VoltType type, ByteBuffer buffer, int position) {
+        if (type == VoltType.STRING) {
+            int length = buffer.getInt(position);
+            return (4 + (length > 0 ? length : 0));
+        }
+        return (type.getLengthInBytesForFixedTypes());
+    }
+
+    private static boolean sameValue(byte data[], int offset0, int offset1, int length) {
+        for (int i = 0; i < length; i++) {
+            if (data[offset0 + i] != data[offset1 + i]) return (false);
+        } // FOR
+        return (true);
+    }
+
+    private static void encodeFixedColumn(FastSerializer fs, byte data[], int offsets[], int width, int numRows) throws IOException {
+        int numRuns = 1;
+        for (int row = 1; row < numRows; row++) {
+            if (sameValue(data, offsets[row-1], offsets[row], width) == false) numRuns++;
+        } // FOR
+
+        // Only use RLE if the runs actually save space
+        if (numRuns * (width + 4) >= numRows * width) {
+            fs.writeByte(ENCODING_PLAIN);
+            for (int row = 0; row < numRows; row++) {
+                fs.write(data, offsets[row], width);
+            } // FOR
+            return;
+        }
+        fs.writeByte(ENCODING_RLE);
+        fs.writeInt(numRuns);
+        int runStart = 0;
+        for (int row = 1; row <= numRows; row++) {
+            if (row == numRows || sameValue(data, offsets[runStart], offsets[row], width) == false) {
+                fs.writeInt(row - runStart);
+                fs.write(data, offsets[runStart], width);
+                runStart = row;
+            }
+        } // FOR
+    }
+
+    private static void encodeVariableColumn(FastSerializer fs, byte data[], int offsets[], int lengths[], int numRows) throws IOException {
+        Map<ByteString, Integer> dictionary = new HashMap<ByteString, Integer>();
+        int codes[] = new int[numRows];
+        int entryOffsets[] = new int[Math.min(numRows, MAX_DICTIONARY_SIZE)];
+        int dictionaryBytes = 0;
+        int plainBytes = 0;
+        for (int row = 0; row < numRows; row++) {
+            plainBytes += lengths[row];
+            if (dictionary == null) continue;
+            ByteString value = ByteString.copyFrom(data, offsets[row], lengths[row]);
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                if (dictionary.size() == entryOffsets.length) {
+                    dictionary = null;
+                    continue;
+                }
+                code = dictionary.size();
+                entryOffsets[code] = row;
+                dictionary.put(value, code);
+                dictionaryBytes += lengths[row];
+            }
+            codes[row] = code.intValue();
+        } // FOR
+
+        if (dictionary == null || dictionaryBytes + (numRows * 4) >= plainBytes) {
+            fs.writeByte(ENCODING_PLAIN);
+            for (int row = 0; row < numRows; row++) {
+                fs.write(data, offsets[row], lengths[row]);
+            } // FOR
+            return;
+        }
+        fs.writeByte(ENCODING_DICTIONARY);
+        fs.writeInt(dictionary.size());
+        for (int i = 0, cnt = dictionary.size(); i < cnt; i++) {
+            int row = entryOffsets[i];
+            fs.write(data, offsets[row], lengths[row]);
+        } // FOR
+        for (int row = 0; row < numRows; row++) {
+            fs.writeInt(codes[row]);
+        } // FOR
+    }
+
+    // ----------------------------------------------------------------------------
+    // DECODING
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Returns true if the given buffer contains an encoded VoltTable.
+     * This does not change the buffer's position.
+     * @param buffer
+     * @return
+     */
+    public static boolean isEncoded(ByteBuffer buffer) {
+        return (buffer.remaining() >= HEADER_SIZE && buffer.getInt(buffer.position()) == MAGIC);
+    }
+
+    /**
+     * Deserialize a VoltTable from the given buffer. This will handle
+     * both encoded tables and normal serialized tables.
+     * @param buffer
+     * @return
+     * @throws IOException
+     */
+    public static VoltTable deserialize(ByteBuffer buffer) throws IOException {
+        if (isEncoded(buffer)) {
+            return (decode(buffer));
+        }
+        return (FastDeserializer.deserialize(buffer, VoltTable.class));
+    }
+
+    /**
+     * Decompress and rebuild a VoltTable that was encoded with {@link #encode(VoltTable)}
+     * @param buffer
+     * @return
+     * @throws IOException
+     */
+    public static VoltTable decode(ByteBuffer buffer) throws IOException {
+        buffer = buffer.duplicate();
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Invalid encoded VoltTable");
+        }
+        final int numRows = buffer.getInt();
+        final int length = buffer.getInt();
+        byte compressed[] = new byte[buffer.remaining()];
+        buffer.get(compressed);
+        byte data[] = CompressionService.decompressBytes(compressed);
+        if (data.length != length) {
+            throw new IOException(String.format("Expected %d bytes for encoded VoltTable but got %d",
+                                                length, data.length));
+        }
+        ByteBuffer payload = ByteBuffer.wrap(data);
+
+        // Header
+        final int rowStart = payload.getInt(0) + 4;
+        final int numCols = payload.getShort(5);
+        VoltType types[] = new VoltType[numCols];
+        for (int col = 0; col < numCols; col++) {
+            types[col] = VoltType.get(payload.get(7 + col));
+        } // FOR
+        payload.position(rowStart);
+
+        // Find where every value is in the payload
+        int offsets[][] = new int[numCols][numRows];
+        int lengths[][] = new int[numCols][numRows];
+        int rowLengths[] = new int[numRows];
+        for (int col = 0; col < numCols; col++) {
+            byte encoding = payload.get();
+            int width = (types[col] == VoltType.STRING ? -1 : types[col].getLengthInBytesForFixedTypes());
+            switch (encoding) {
+                case ENCODING_PLAIN: {
+                    for (int row = 0; row < numRows; row++) {
+                        int valueLength = (width < 0 ? valueLength(types[col], payload, payload.position()) : width);
+                        offsets[col][row] = payload.position();
+                        lengths[col][row] = valueLength;
+                        payload.position(payload.position() + valueLength);
+                    } // FOR
+                    break;
+                }
+                case ENCODING_RLE: {
+                    int numRuns = payload.getInt();
+                    int row = 0;
+                    for (int i = 0; i < numRuns; i++) {
+                        int runLength = payload.getInt();
+                        int offset = payload.position();
+                        for (int j = 0; j < runLength; j++) {
+                            offsets[col][row] = offset;
+                            lengths[col][row] = width;
+                            row++;
+                        } // FOR
+                        payload.position(offset + width);
+                    } // FOR
+                    break;
+                }
+                case ENCODING_DICTIONARY: {
+                    int numEntries = payload.getInt();
+                    int entryOffsets[] = new int[numEntries];
+                    int entryLengths[] = new int[numEntries];
+                    for (int i = 0; i < numEntries; i++) {
+                        entryOffsets[i] = payload.position();
+                        entryLengths[i] = valueLength(types[col], payload, payload.position());
+                        payload.position(entryOffsets[i] + entryLengths[i]);
+                    } // FOR
+                    for (int row = 0; row < numRows; row++) {
+                        int code = payload.getInt();
+                        offsets[col][row] = entryOffsets[code];
+                        lengths[col][row] = entryLengths[code];
+                    } // FOR
+                    break;
+                }
+                default:
+                    throw new IOException("Unexpected column encoding " + encoding);
+            } // SWITCH
+            for (int row = 0; row < numRows; row++) {
+                rowLengths[row] += lengths[col][row];
+            } // FOR
+        } // FOR
+
+        // Now stitch the rows back together
+        int total = rowStart + 4;
+        for (int row = 0; row < numRows; row++) {
+            total += 4 + rowLengths[row];
+        } // FOR
+        byte output[] = new byte[total];
+        System.arraycopy(data, 0, output, 0, rowStart);
+        ByteBuffer out = ByteBuffer.wrap(output);
+        out.position(rowStart);
+        out.putInt(numRows);
+        for (int row = 0; row < numRows; row++) {
+            out.putInt(rowLengths[row]);
+            for (int col = 0; col < numCols; col++) {
+                out.put(data, offsets[col][row], lengths[col][row]);
+            } // FOR
+        } // FOR
+        out.flip();
+        return (new VoltTable(out, false));
+    }
+}
@@ -0,0 +1,68 @@
+package edu.brown.metrics;
+
+/**
+ * Base class for all of the metrics that can be registered in a MetricsRegistry.
+ * Each metric knows how to write itself out in the Prometheus text exposition format.
+ */
+public abstract class AbstractMetric {
+
+    protected final String name;
+    protected final String help;
+
+    protected AbstractMetric(String name, String help) {
+        assert(name.matches("[a-zA-Z_:][a-zA-Z0-9_:]*")) : "Invalid metric name '" + name + "'";
+        this.name = name;
+        this.help = help;
+    }
+
+    public final String getName() {
+        return (this.name);
+    }
+
+    public final String getHelp() {
+        return (this.help);
+    }
+
+    /**
+     * The Prometheus metric type (counter, gauge, summary)
+     */
+    public abstract String getType();
+
+    /**
+     * Write out all of the samples for this metric
+     * @param sb
+     * @param labels The labels that should be included in every sample (without braces)
+     * @param partitions The partitions that we should include per-partition samples for
+     */
+    protected abstract void export(StringBuilder sb, String labels, int partitions[]);
+
+    protected final void appendSample(StringBuilder sb, String suffix, String labels, int partition, String extra, long value) {
+        this.appendName(sb, suffix, labels, partition, extra);
+        sb.append(value).append('\n');
+    }
+
+    protected final void appendSample(StringBuilder sb, String suffix, String labels, int partition, String extra, double value) {
+        this.appendName(sb, suffix, labels, partition, extra);
+        sb.append(value).append('\n');
+    }
+
+    private void appendName(StringBuilder sb, String suffix, String labels, int partition, String extra) {
+        sb.append(this.name);
+        if (suffix != null) sb.append(suffix);
+        sb.append('{').append(labels);
+        if (partition >= 0) {
+            if (labels.isEmpty() == false) sb.append(',');
+            sb.append("partition=\"").append(partition).append('"');
+        }
+        if (extra != null) {
+            if (labels.isEmpty() == false || partition >= 0) sb.append(',');
+            sb.append(extra);
+        }
+        sb.append("} ");
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%s]", this.getClass().getSimpleName(), this.name);
+    }
+}
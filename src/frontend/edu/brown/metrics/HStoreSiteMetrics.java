@@ -0,0 +1,122 @@
+package edu.brown.metrics;
+
+import edu.brown.hstore.HStoreSite;
+import edu.brown.hstore.PartitionExecutor;
+import edu.brown.hstore.PartitionLockQueue;
+import edu.brown.hstore.Hstoreservice.Status;
+import edu.brown.hstore.conf.HStoreConf;
+import edu.brown.hstore.txns.LocalTransaction;
+
+/**
+ * The standard set of always-on metrics for an HStoreSite. Unlike the
+ * profilers, these are cheap enough that they can be left on in production.
+ * The counters are striped by the transaction's base partition.
+ */
+public class HStoreSiteMetrics {
+
+    public static final String PREFIX = "hstore_";
+
+    private final MetricsRegistry registry;
+
+    /** The number of txns that committed */
+    public final StripedCounter txns_completed;
+    /** The number of txns that were aborted by the user's code */
+    public final StripedCounter txns_aborted;
+    /** The number of txns that were aborted by the system and restarted */
+    public final StripedCounter txns_restarted;
+    /** The number of txns that were rejected */
+    public final StripedCounter txns_rejected;
+    /** The number of speculatively executed txns that committed */
+    public final StripedCounter specexec_hits;
+    /** The number of speculatively executed txns that had to be aborted */
+    public final StripedCounter specexec_misses;
+    /** The amount of time spent in the EE executing PlanFragments */
+    public final SampledTimer ee_time;
+
+    public HStoreSiteMetrics(final HStoreSite hstore_site) {
+        HStoreConf hstore_conf = hstore_site.getHStoreConf();
+        this.registry = new MetricsRegistry(PREFIX,
+                                            "site=\"" + hstore_site.getSiteId() + "\"",
+                                            hstore_site.getCatalogContext().numberOfPartitions,
+                                            hstore_site.getLocalPartitionIds(),
+                                            hstore_conf.site.metrics_sample_rate);
+
+        this.txns_completed = this.registry.counter("txns_completed_total",
+                "Number of transactions that committed");
+        this.txns_aborted = this.registry.counter("txns_aborted_total",
+                "Number of transactions that were aborted by the stored procedure");
+        this.txns_restarted = this.registry.counter("txns_restarted_total",
+                "Number of transactions that were aborted by the system and restarted");
+        this.txns_rejected = this.registry.counter("txns_rejected_total",
+                "Number of transactions that were rejected");
+        this.specexec_hits = this.registry.counter("specexec_hits_total",
+                "Number of speculatively executed transactions that committed");
+        this.specexec_misses = this.registry.counter("specexec_misses_total",
+                "Number of speculatively executed transactions that were aborted");
+        this.ee_time = this.registry.timer("ee_execute_seconds",
+                "Time spent in the execution engine executing a batch of PlanFragments");
+
+        this.registry.gauge("work_queue_depth",
+                "Number of messages waiting in each PartitionExecutor's work queue",
+                new MetricsRegistry.Gauge() {
+                    @Override
+                    public long getValue(int partition) {
+                        PartitionExecutor executor = hstore_site.getPartitionExecutor(partition);
+                        return (executor != null ? executor.getWorkQueueSize() : 0);
+                    }
+                });
+        this.registry.gauge("lock_queue_depth",
+                "Number of transactions waiting to acquire each partition's lock",
+                new MetricsRegistry.Gauge() {
+                    @Override
+                    public long getValue(int partition) {
+                        PartitionLockQueue queue = hstore_site.getTransactionQueueManager().getLockQueue(partition);
+                        return (queue != null ? queue.size() : 0);
+                    }
+                });
+        this.registry.siteGauge("inflight_txns",
+                "Number of transactions that are currently running at this site",
+                new MetricsRegistry.Gauge() {
+                    @Override
+                    public long getValue(int partition) {
+                        return (hstore_site.getDebugContext().getInflightTxnCount());
+                    }
+                });
+    }
+
+    public MetricsRegistry getRegistry() {
+        return (this.registry);
+    }
+
+    /**
+     * Update the counters for a txn that is being removed from the site
+     * @param ts
+     * @param status
+     */
+    public void transactionFinished(LocalTransaction ts, Status status) {
+        int partition = ts.getBasePartition();
+        switch (status) {
+            case OK:
+                this.txns_completed.inc(partition);
+                break;
+            case ABORT_USER:
+                this.txns_aborted.inc(partition);
+                break;
+            case ABORT_MISPREDICT:
+            case ABORT_RESTART:
+            case ABORT_EVICTEDACCESS:
+            case ABORT_SPECULATIVE:
+                // Don't count restarted txns more than once
+                if (ts.getRestartCounter() == 0) this.txns_restarted.inc(partition);
+                break;
+            case ABORT_REJECT:
+                this.txns_rejected.inc(partition);
+                break;
+            default:
+                // Nothing to count
+        } // SWITCH
+        if (ts.isSpeculative()) {
+            (status == Status.ABORT_SPECULATIVE ? this.specexec_misses : this.specexec_hits).inc(partition);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package edu.brown.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size concurrent histogram of non-negative long values (e.g., nanoseconds)
+ * that uses HdrHistogram-style log-linear buckets. Every power of two is split into
+ * SUB_BUCKETS linear buckets, so the value reported for any quantile is within
+ * 1/SUB_BUCKETS of the real value no matter how large it is. Recording a value
+ * never allocates.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    /** The number of linear buckets per power of two */
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Values less than this are stored in their own bucket */
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    /** Enough buckets for Long.MAX_VALUE */
+    private static final int NUM_BUCKETS = (63 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Return the bucket offset for the given value
+     */
+    protected static int getBucket(long value) {
+        if (value < LINEAR_LIMIT) {
+            return ((int)value);
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return ((shift * SUB_BUCKETS) + (int)(value >>> shift));
+    }
+
+    /**
+     * Return the smallest value that will be stored in the given bucket
+     */
+    protected static long getBucketLowerBound(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return (bucket);
+        }
+        int shift = (bucket / SUB_BUCKETS) - 1;
+        long mantissa = (bucket % SUB_BUCKETS) + SUB_BUCKETS;
+        return (mantissa << shift);
+    }
+
+    /**
+     * Return the largest value that will be stored in the given bucket
+     */
+    protected static long getBucketUpperBound(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return (bucket);
+        }
+        int shift = (bucket / SUB_BUCKETS) - 1;
+        long mantissa = (bucket % SUB_BUCKETS) + SUB_BUCKETS;
+        return (((mantissa + 1) << shift) - 1);
+    }
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        this.buckets.incrementAndGet(getBucket(value));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(value);
+        long curMax;
+        while (value > (curMax = this.max.get())) {
+            if (this.max.compareAndSet(curMax, value)) break;
+        } // WHILE
+    }
+
+    public long getCount() {
+        return (this.count.get());
+    }
+
+    public long getSum() {
+        return (this.sum.get());
+    }
+
+    public long getMax() {
+        return (this.max.get());
+    }
+
+    /**
+     * Return the value at the given quantile (0.0 - 1.0). The result is the upper
+     * bound of the bucket that contains it, so it will never be less than the real value
+     * (but it will not be larger than the max value that we have seen).
+     * Returns zero if the histogram is empty.
+     * @param quantile
+     * @return
+     */
+    public long getValueAtQuantile(double quantile) {
+        long total = this.count.get();
+        if (total == 0) return (0);
+        long target = Math.max(1, (long)Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += this.buckets.get(i);
+            if (seen >= target) {
+                return (Math.min(getBucketUpperBound(i), this.max.get()));
+            }
+        } // FOR
+        return (this.max.get());
+    }
+
+    /**
+     * Reset all of the counts. This is not atomic with respect to concurrent updates.
+     */
+    public void clear() {
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            this.buckets.set(i, 0);
+        } // FOR
+        this.count.set(0);
+        this.sum.set(0);
+        this.max.set(0);
+    }
+}
@@ -0,0 +1,167 @@
+package edu.brown.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.log4j.Logger;
+
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+import edu.brown.utils.PartitionSet;
+
+/**
+ * A collection of always-on metrics for a single HStoreSite that can be
+ * scraped in the Prometheus text exposition format. Metrics are registered
+ * once when the site starts up. Updating a metric never touches the registry.
+ */
+public class MetricsRegistry {
+    private static final Logger LOG = Logger.getLogger(MetricsRegistry.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug);
+    }
+
+    /**
+     * The content type of the output of export()
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4";
+
+    /**
+     * A callback that is invoked at scrape time to get the current value of a gauge
+     */
+    public interface Gauge {
+        public long getValue(int partition);
+    }
+
+    /**
+     * A metric whose value is sampled from a Gauge when we are scraped
+     */
+    private static class GaugeMetric extends AbstractMetric {
+        private final Gauge gauge;
+        private final boolean perPartition;
+
+        private GaugeMetric(String name, String help, Gauge gauge, boolean perPartition) {
+            super(name, help);
+            this.gauge = gauge;
+            this.perPartition = perPartition;
+        }
+        @Override
+        public String getType() {
+            return ("gauge");
+        }
+        @Override
+        protected void export(StringBuilder sb, String labels, int partitions[]) {
+            if (this.perPartition) {
+                for (int p : partitions) {
+                    this.appendSample(sb, null, labels, p, null, this.gauge.getValue(p));
+                } // FOR
+            } else {
+                this.appendSample(sb, null, labels, -1, null, this.gauge.getValue(-1));
+            }
+        }
+    } // CLASS
+
+    private final String prefix;
+    private final String labels;
+    private final int num_stripes;
+    private final int sample_rate;
+    private final int partitions[];
+    private final Map<String, AbstractMetric> metrics = new TreeMap<String, AbstractMetric>();
+
+    /**
+     * Constructor
+     * @param prefix The prefix to add to the name of every metric
+     * @param labels The labels to add to every sample (e.g., site="1")
+     * @param num_stripes The total number of partitions in the cluster
+     * @param partitions The local partitions that we will export values for
+     * @param sample_rate The default sample rate for SampledTimers
+     */
+    public MetricsRegistry(String prefix, String labels, int num_stripes, PartitionSet partitions, int sample_rate) {
+        this.prefix = prefix;
+        this.labels = (labels != null ? labels : "");
+        this.num_stripes = num_stripes;
+        this.sample_rate = sample_rate;
+        this.partitions = partitions.values().clone();
+    }
+
+    private synchronized <T extends AbstractMetric> T register(T metric) {
+        AbstractMetric orig = this.metrics.get(metric.getName());
+        if (orig != null) {
+            String msg = String.format("Duplicate metric '%s' [orig=%s / new=%s]", metric.getName(), orig, metric);
+            throw new IllegalArgumentException(msg);
+        }
+        this.metrics.put(metric.getName(), metric);
+        if (debug.val)
+            LOG.debug("Registered " + metric);
+        return (metric);
+    }
+
+    /**
+     * Create and register a new per-partition counter
+     * @param name
+     * @param help
+     * @return
+     */
+    public StripedCounter counter(String name, String help) {
+        return this.register(new StripedCounter(this.prefix + name, help, this.num_stripes));
+    }
+
+    /**
+     * Create and register a new SampledTimer that uses the registry's default sample rate
+     * @param name
+     * @param help
+     * @return
+     */
+    public SampledTimer timer(String name, String help) {
+        return this.register(new SampledTimer(this.prefix + name, help, this.num_stripes, this.sample_rate));
+    }
+
+    /**
+     * Register a gauge that will be polled for each local partition
+     * @param name
+     * @param help
+     * @param gauge
+     */
+    public void gauge(String name, String help, Gauge gauge) {
+        this.register(new GaugeMetric(this.prefix + name, help, gauge, true));
+    }
+
+    /**
+     * Register a gauge that has a single value for the entire site.
+     * The gauge will be invoked with a partition id of -1.
+     * @param name
+     * @param help
+     * @param gauge
+     */
+    public void siteGauge(String name, String help, Gauge gauge) {
+        this.register(new GaugeMetric(this.prefix + name, help, gauge, false));
+    }
+
+    public synchronized AbstractMetric get(String name) {
+        return (this.metrics.get(this.prefix + name));
+    }
+
+    public synchronized int size() {
+        return (this.metrics.size());
+    }
+
+    /**
+     * Write out all of the metrics in the Prometheus text format
+     * @return
+     */
+    public synchronized String export() {
+        StringBuilder sb = new StringBuilder();
+        for (AbstractMetric metric : this.metrics.values()) {
+            sb.append("# HELP ").append(metric.getName()).append(' ')
+              .append(metric.getHelp().replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            sb.append("# TYPE ").append(metric.getName()).append(' ').append(metric.getType()).append('\n');
+            try {
+                metric.export(sb, this.labels, this.partitions);
+            } catch (Throwable ex) {
+                // Don't let a bad gauge break the entire scrape
+                LOG.warn("Failed to export " + metric, ex);
+            }
+        } // FOR
+        return (sb.toString());
+    }
+}
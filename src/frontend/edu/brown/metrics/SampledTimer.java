@@ -0,0 +1,105 @@
+package edu.brown.metrics;
+
+/**
+ * A timer that counts every invocation but only measures the elapsed time
+ * for one out of every N of them. This avoids calling System.nanoTime() on
+ * every invocation like ProfileMeasurement does. The sampled times are
+ * recorded in a LatencyHistogram.
+ * <PRE>
+ * long start = timer.start(partition);
+ * ... do work ...
+ * timer.stop(partition, start);
+ * </PRE>
+ */
+public class SampledTimer extends AbstractMetric {
+
+    /**
+     * Returned by start() when this invocation is not being sampled
+     */
+    public static final long NULL_MARKER = Long.MIN_VALUE;
+
+    /** The quantiles that we will export */
+    private static final double QUANTILES[] = { 0.5, 0.95, 0.99, 0.999 };
+
+    private final int sample_rate;
+    private final StripedCounter invocations;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    /**
+     * Constructor
+     * @param name
+     * @param help
+     * @param num_stripes The total number of partitions in the cluster
+     * @param sample_rate Measure one out of every sample_rate invocations
+     */
+    public SampledTimer(String name, String help, int num_stripes, int sample_rate) {
+        super(name, help);
+        this.sample_rate = Math.max(1, sample_rate);
+        this.invocations = new StripedCounter(name + "_count", help, num_stripes);
+    }
+
+    /**
+     * Mark the start of an invocation at the given partition.
+     * @param partition
+     * @return The timestamp to pass to stop() or NULL_MARKER if this invocation is not being sampled
+     */
+    public final long start(int partition) {
+        if (this.invocations.inc(partition) % this.sample_rate != 0) {
+            return (NULL_MARKER);
+        }
+        return (System.nanoTime());
+    }
+
+    /**
+     * Mark the end of an invocation
+     * @param partition
+     * @param start The value returned by start()
+     */
+    public final void stop(int partition, long start) {
+        if (start != NULL_MARKER) {
+            this.histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Return the number of invocations at the given partition
+     */
+    public long getInvocations(int partition) {
+        return (this.invocations.get(partition));
+    }
+
+    /**
+     * Return the total number of invocations at all partitions
+     */
+    public long getInvocations() {
+        return (this.invocations.get());
+    }
+
+    public int getSampleRate() {
+        return (this.sample_rate);
+    }
+
+    public LatencyHistogram getHistogram() {
+        return (this.histogram);
+    }
+
+    @Override
+    public String getType() {
+        return ("summary");
+    }
+
+    @Override
+    protected void export(StringBuilder sb, String labels, int partitions[]) {
+        // The quantiles are in seconds and only come from the sampled invocations.
+        // The count is the real number of invocations but the sum is an estimate.
+        for (double q : QUANTILES) {
+            double value = this.histogram.getValueAtQuantile(q) / 1000000000d;
+            this.appendSample(sb, null, labels, -1, "quantile=\"" + q + "\"", value);
+        } // FOR
+        long count = this.invocations.get();
+        long samples = this.histogram.getCount();
+        double sum = (samples > 0 ? (this.histogram.getSum() / 1000000000d) * ((double)count / samples) : 0d);
+        this.appendSample(sb, "_sum", labels, -1, null, sum);
+        this.appendSample(sb, "_count", labels, -1, null, count);
+    }
+}
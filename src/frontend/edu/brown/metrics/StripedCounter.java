@@ -0,0 +1,80 @@
+package edu.brown.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A monotonically increasing counter that keeps a separate stripe for each
+ * partition. Each stripe is padded out to its own cache line so that the
+ * PartitionExecutors do not fight over the same line when they update
+ * their own partition's value.
+ */
+public class StripedCounter extends AbstractMetric {
+
+    /** Number of longs between two stripes (one 64-byte cache line) */
+    protected static final int PADDING = 8;
+
+    private final int num_stripes;
+    private final AtomicLongArray stripes;
+
+    /**
+     * Constructor
+     * @param name
+     * @param help
+     * @param num_stripes The total number of partitions in the cluster
+     */
+    public StripedCounter(String name, String help, int num_stripes) {
+        super(name, help);
+        this.num_stripes = num_stripes;
+        // Add an extra line at the front so that the first stripe
+        // does not share a line with the array header
+        this.stripes = new AtomicLongArray((num_stripes + 1) * PADDING);
+    }
+
+    private static int offset(int partition) {
+        return ((partition + 1) * PADDING);
+    }
+
+    /**
+     * Increment the given partition's stripe and return its new value
+     * @param partition
+     * @return
+     */
+    public final long inc(int partition) {
+        return (this.stripes.incrementAndGet(offset(partition)));
+    }
+
+    public final void add(int partition, long delta) {
+        this.stripes.addAndGet(offset(partition), delta);
+    }
+
+    public final long get(int partition) {
+        return (this.stripes.get(offset(partition)));
+    }
+
+    /**
+     * Return the sum of all of the stripes
+     */
+    public long get() {
+        long total = 0;
+        for (int p = 0; p < this.num_stripes; p++) {
+            total += this.get(p);
+        } // FOR
+        return (total);
+    }
+
+    public int getNumStripes() {
+        return (this.num_stripes);
+    }
+
+    @Override
+    public String getType() {
+        return ("counter");
+    }
+
+    @Override
+    protected void export(StringBuilder sb, String labels, int partitions[]) {
+        for (int p : partitions) {
+            this.appendSample(sb, null, labels, p, null, this.get(p));
+        } // FOR
+    }
+}
@@ -29,6 +29,23 @@ public class HStoreSiteProfiler extends AbstractProfiler {
      * How long the clean-up thread spends to delete transaction handles
      */
     public final ProfileMeasurement cleanup = new ConcurrentProfileMeasurement("CLEAN_UP");
+    
+    /**
+     * How much time the execution threads spend recording sampled workload traces.
+     * The number of invocations is the number of txns that were sampled.
+     */
+    public final ProfileMeasurement trace_record = new ConcurrentProfileMeasurement("TRACE_RECORD");
+    
+    /**
+     * The number of sampled txns that were dropped because their buffer was full.
+     * There is no think time for this measurement.
+     */
+    public final ProfileMeasurement trace_dropped = new ConcurrentProfileMeasurement("TRACE_DROPPED");
+    
+    /**
+     * How long the sampled workload trace thread spends writing traces out to disk
+     */
+    public final ProfileMeasurement trace_flush = new ConcurrentProfileMeasurement("TRACE_FLUSH");
  
     /**
      * The number of incoming transaction requests per partition 
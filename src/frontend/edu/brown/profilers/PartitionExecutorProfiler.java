@@ -1,5 +1,8 @@
 package edu.brown.profilers;
 
+import java.util.Arrays;
+
+import edu.brown.hstore.PartitionMessageQueue;
 import edu.brown.statistics.Histogram;
 import edu.brown.statistics.ObjectHistogram;
 
@@ -23,6 +26,25 @@ public class PartitionExecutorProfiler extends AbstractProfiler {
      */
     public long start_time;
     
+    /**
+     * The number of times that the PartitionExecutor drained a new batch
+     * of messages from one of the lanes in its PartitionMessageQueue
+     */
+    public long numLaneBatches = 0;
+    
+    /**
+     * The sum of the number of messages that were waiting in each lane of the
+     * PartitionMessageQueue whenever a new batch was drained. Divide by numLaneBatches
+     * to get the average depth. Indexed by PartitionMessageQueue.Lane ordinal.
+     */
+    public final long laneDepthTotal[] = new long[PartitionMessageQueue.Lane.values().length];
+    
+    /**
+     * The max number of messages that were waiting in each lane of the PartitionMessageQueue.
+     * Indexed by PartitionMessageQueue.Lane ordinal.
+     */
+    public final long laneDepthMax[] = new long[PartitionMessageQueue.Lane.values().length];
+    
     // ----------------------------------------------------------------------------
     // GLOBAL MEASUREMENTS
     // ----------------------------------------------------------------------------
@@ -108,5 +130,8 @@ public class PartitionExecutorProfiler extends AbstractProfiler {
         super.reset();
         this.start_time = System.currentTimeMillis();
         this.numTransactions = 0;
+        this.numLaneBatches = 0;
+        Arrays.fill(this.laneDepthTotal, 0);
+        Arrays.fill(this.laneDepthMax, 0);
     }
 }
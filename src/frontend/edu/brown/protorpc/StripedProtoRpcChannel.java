@@ -0,0 +1,229 @@
+package edu.brown.protorpc;
+
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.google.protobuf.RpcCallback;
+import com.google.protobuf.RpcChannel;
+import com.google.protobuf.RpcController;
+
+/**
+ * An RpcChannel that spreads its RPCs over multiple ProtoRpcChannels to the
+ * same remote server. Every ProtoRpcChannel has its own connection and its own
+ * lock, so a large message only blocks the other messages on its connection.
+ * <p>
+ * The connections are divided into two lanes. Methods that are marked as bulk
+ * methods go over the bulk lane and everything else goes over the control lane.
+ * If there is only one lane, then all methods share the same connections.
+ * Within a lane, requests with a transaction_id field are always sent on the
+ * same connection so that the messages for a single transaction stay in order.
+ * Requests without one are sent round-robin.
+ * <p>
+ * A transaction is never split across the lanes once it has sent a bulk message.
+ * After its first bulk message, all of its control messages are sent on the same
+ * bulk connection as well, so its finish message can not overtake its pending
+ * work. The transaction goes back to the control lane once its finish message
+ * has been sent.
+ * <p>
+ * The lane and the transaction_id field for each method of the service are
+ * looked up once when the channel is created.
+ */
+public class StripedProtoRpcChannel implements RpcChannel {
+    private static final Logger LOG = Logger.getLogger(StripedProtoRpcChannel.class);
+
+    /** The name of the request field that we use to pick the connection */
+    public static final String STRIPE_FIELD = "transaction_id";
+
+    /** The name of the method that is the last message for a transaction */
+    public static final String FINISH_METHOD = "TransactionFinish";
+
+    public enum Lane {
+        CONTROL,
+        BULK;
+    }
+
+    private final Descriptors.ServiceDescriptor service;
+    private final ProtoRpcChannel lanes[][];
+    private final AtomicInteger nextStripe = new AtomicInteger(0);
+
+    /** MethodIndex -> Lane */
+    private final Lane methodLanes[];
+    /** MethodIndex -> The field in the request used to pick the connection (may be null) */
+    private final FieldDescriptor methodStripeFields[];
+    /** The index of the FINISH_METHOD in the service (-1 if it doesn't have one) */
+    private final int finishMethodIndex;
+
+    /**
+     * The transactions that have sent a bulk message and not finished yet.
+     * All of their messages are sent on the bulk lane.
+     */
+    private final Set<Long> bulkTxns = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+    /**
+     * Constructor
+     * @param service the service whose methods will be called on this channel
+     * @param control the connections for control messages
+     * @param bulk the connections for bulk messages. If this is null, then
+     *        the bulk messages will use the control connections
+     * @param bulkMethods the names of the methods that are bulk messages
+     */
+    public StripedProtoRpcChannel(Descriptors.ServiceDescriptor service,
+                                  ProtoRpcChannel control[],
+                                  ProtoRpcChannel bulk[],
+                                  Collection<String> bulkMethods) {
+        assert(control != null && control.length > 0);
+        assert(bulk == null || bulk.length > 0);
+        this.service = service;
+        this.lanes = new ProtoRpcChannel[][]{ control, (bulk != null ? bulk : control) };
+
+        List<Descriptors.MethodDescriptor> methods = service.getMethods();
+        this.methodLanes = new Lane[methods.size()];
+        this.methodStripeFields = new FieldDescriptor[methods.size()];
+        for (Descriptors.MethodDescriptor method : methods) {
+            boolean isBulk = (bulkMethods != null && bulkMethods.contains(method.getName()));
+            this.methodLanes[method.getIndex()] = (isBulk ? Lane.BULK : Lane.CONTROL);
+            this.methodStripeFields[method.getIndex()] = method.getInputType().findFieldByName(STRIPE_FIELD);
+        } // FOR
+        Descriptors.MethodDescriptor finish = service.findMethodByName(FINISH_METHOD);
+        this.finishMethodIndex = (finish != null ? finish.getIndex() : -1);
+        if (bulkMethods != null) {
+            for (String name : bulkMethods) {
+                if (service.findMethodByName(name) == null)
+                    LOG.warn(String.format("Unknown bulk method '%s' for %s", name, service.getName()));
+            } // FOR
+        }
+    }
+
+    /**
+     * Returns the lane that the given method will be sent on
+     * @param method
+     * @return
+     */
+    public Lane getLane(Descriptors.MethodDescriptor method) {
+        assert(method.getService() == this.service) : "Unexpected method " + method.getFullName();
+        return (this.methodLanes[method.getIndex()]);
+    }
+
+    /**
+     * Returns the number of connections in the given lane
+     * @param lane
+     * @return
+     */
+    public int getConnectionCount(Lane lane) {
+        return (this.lanes[lane.ordinal()].length);
+    }
+
+    /**
+     * Returns the number of transactions whose messages are all being sent on the bulk lane
+     * @return
+     */
+    public int getBulkTransactionCount() {
+        return (this.bulkTxns.size());
+    }
+
+    /**
+     * Returns the ProtoRpcChannel that the given request will be sent on
+     * @param method
+     * @param request
+     * @return
+     */
+    protected ProtoRpcChannel getChannel(Descriptors.MethodDescriptor method, Message request) {
+        Lane lane = this.getLane(method);
+        FieldDescriptor field = this.methodStripeFields[method.getIndex()];
+        if (field != null && field.getContainingType() != request.getDescriptorForType()) {
+            // The request is not the method's input type, so we have to look it up
+            field = request.getDescriptorForType().findFieldByName(STRIPE_FIELD);
+        }
+        if (field == null || request.hasField(field) == false) {
+            ProtoRpcChannel channels[] = this.lanes[lane.ordinal()];
+            if (channels.length == 1) return (channels[0]);
+            return (channels[(this.nextStripe.getAndIncrement() & Integer.MAX_VALUE) % channels.length]);
+        }
+        long txnId = ((Number)request.getField(field)).longValue();
+
+        // Keep all of the txn's messages behind its bulk messages
+        if (this.lanes[Lane.CONTROL.ordinal()] != this.lanes[Lane.BULK.ordinal()]) {
+            if (lane == Lane.BULK) {
+                this.bulkTxns.add(txnId);
+            } else if (method.getIndex() == this.finishMethodIndex) {
+                if (this.bulkTxns.remove(txnId)) lane = Lane.BULK;
+            } else if (this.bulkTxns.contains(txnId)) {
+                lane = Lane.BULK;
+            }
+        }
+        ProtoRpcChannel channels[] = this.lanes[lane.ordinal()];
+        return (channels[(int)((txnId & Long.MAX_VALUE) % channels.length)]);
+    }
+
+    @Override
+    public void callMethod(Descriptors.MethodDescriptor method,
+            RpcController controller, Message request,
+            Message responsePrototype, RpcCallback<Message> done) {
+        ProtoRpcChannel channel = this.getChannel(method, request);
+        if (LOG.isTraceEnabled())
+            LOG.trace(String.format("Sending %s on channel %d", method.getName(), channel.hashCode()));
+        channel.callMethod(method, controller, request, responsePrototype, done);
+    }
+
+    public void close() {
+        Set<ProtoRpcChannel> closed = new HashSet<ProtoRpcChannel>();
+        for (ProtoRpcChannel channels[] : this.lanes) {
+            for (ProtoRpcChannel channel : channels) {
+                if (closed.add(channel)) channel.close();
+            } // FOR
+        } // FOR
+    }
+
+    /**
+     * Connect to all of the given addresses in parallel. We will make
+     * numConnections connections per lane to each address.
+     * @param service
+     * @param eventLoop
+     * @param addresses
+     * @param numConnections the number of connections per lane
+     * @param bulkMethods the names of the methods that should use their own lane.
+     *        If this is null or empty, then there is only one lane.
+     * @param total_time
+     * @return
+     */
+    public static StripedProtoRpcChannel[] connectParallel(final Descriptors.ServiceDescriptor service,
+                                                           final EventLoop eventLoop,
+                                                           final InetSocketAddress[] addresses,
+                                                           int numConnections,
+                                                           Collection<String> bulkMethods,
+                                                           int total_time) {
+        assert(numConnections > 0) : "Invalid number of connections " + numConnections;
+        int numLanes = (bulkMethods == null || bulkMethods.isEmpty() ? 1 : 2);
+        int perAddress = numConnections * numLanes;
+
+        // Connect to each address multiple times in one shot
+        InetSocketAddress allAddresses[] = new InetSocketAddress[addresses.length * perAddress];
+        for (int i = 0; i < allAddresses.length; i++) {
+            allAddresses[i] = addresses[i / perAddress];
+        } // FOR
+        ProtoRpcChannel channels[] = ProtoRpcChannel.connectParallel(eventLoop, allAddresses, total_time);
+
+        StripedProtoRpcChannel striped[] = new StripedProtoRpcChannel[addresses.length];
+        for (int i = 0; i < addresses.length; i++) {
+            ProtoRpcChannel control[] = new ProtoRpcChannel[numConnections];
+            ProtoRpcChannel bulk[] = (numLanes > 1 ? new ProtoRpcChannel[numConnections] : null);
+            for (int j = 0; j < numConnections; j++) {
+                control[j] = channels[i * perAddress + j];
+                if (bulk != null) bulk[j] = channels[i * perAddress + numConnections + j];
+            } // FOR
+            striped[i] = new StripedProtoRpcChannel(service, control, bulk, bulkMethods);
+        } // FOR
+        return (striped);
+    }
+}
@@ -0,0 +1,423 @@
+/***************************************************************************
+ *   Copyright (C) 2012 by H-Store Project                                 *
+ *   Brown University                                                      *
+ *   Massachusetts Institute of Technology                                 *
+ *   Yale University                                                       *
+ *                                                                         *
+ *   Permission is hereby granted, free of charge, to any person obtaining *
+ *   a copy of this software and associated documentation files (the       *
+ *   "Software"), to deal in the Software without restriction, including   *
+ *   without limitation the rights to use, copy, modify, merge, publish,   *
+ *   distribute, sublicense, and/or sell copies of the Software, and to    *
+ *   permit persons to whom the Software is furnished to do so, subject to *
+ *   the following conditions:                                             *
+ *                                                                         *
+ *   The above copyright notice and this permission notice shall be        *
+ *   included in all copies or substantial portions of the Software.       *
+ *                                                                         *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,       *
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF    *
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.*
+ *   IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR     *
+ *   OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, *
+ *   ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR *
+ *   OTHER DEALINGS IN THE SOFTWARE.                                       *
+ ***************************************************************************/
+package edu.brown.workload;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.voltdb.VoltType;
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.FastSerializer;
+import org.voltdb.types.TimestampType;
+
+/**
+ * Constants and value encoding shared by the BinaryWorkloadWriter and the
+ * BinaryWorkloadReader. A binary workload trace file has the following layout:
+ * <pre>
+ * HEADER   [MAGIC:int][VERSION:int]
+ * BLOCK*   ([RECORD_LENGTH:int][TransactionTrace])*
+ * FOOTER   [ProcDictionary][StmtDictionary][BlockIndex]
+ * TRAILER  [FOOTER_OFFSET:long][MAGIC:int]
+ * </pre>
+ * Procedure names and Statement keys are stored once in the footer's
+ * dictionaries, and each record only contains their dictionary ids. The
+ * first field of every record is the procedure id so that a reader can skip
+ * over records that it does not want without deserializing them. The block
+ * index records the set of procedures and the txn id / timestamp ranges
+ * that are contained in each block.
+ */
+public abstract class BinaryWorkloadFormat {
+
+    public static final int MAGIC = 0x48535457; // "HSTW"
+    public static final int VERSION = 2;
+
+    public static final int HEADER_SIZE = 8;
+    public static final int TRAILER_SIZE = 12;
+
+    /** Default number of bytes of records per block */
+    public static final int DEFAULT_BLOCK_SIZE = 4 * 1024 * 1024;
+
+    /** Stand-in for null Long timestamps */
+    protected static final long NULL_TIMESTAMP = Long.MIN_VALUE;
+
+    /** Stand-in for null arrays that we don't know the length of */
+    protected static final int NULL_LENGTH = -1;
+
+    // ----------------------------------------------------------------------------
+    // BLOCK INDEX
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Block index entry. This is everything that a reader needs to know
+     * to decide whether it can skip a block without ever touching it.
+     */
+    public static class Block {
+        long offset;
+        int length;
+        int num_txns = 0;
+        long min_txn_id = Long.MAX_VALUE;
+        long max_txn_id = Long.MIN_VALUE;
+        long min_start = Long.MAX_VALUE;
+        long max_start = Long.MIN_VALUE;
+        final BitSet procs = new BitSet();
+
+        void add(int proc_id, TransactionTrace txn_trace) {
+            this.num_txns++;
+            this.min_txn_id = Math.min(this.min_txn_id, txn_trace.getTransactionId());
+            this.max_txn_id = Math.max(this.max_txn_id, txn_trace.getTransactionId());
+            if (txn_trace.start_timestamp != null) {
+                this.min_start = Math.min(this.min_start, txn_trace.start_timestamp);
+                this.max_start = Math.max(this.max_start, txn_trace.start_timestamp);
+            }
+            this.procs.set(proc_id);
+        }
+
+        void writeExternal(FastSerializer fs) throws IOException {
+            fs.writeLong(this.offset);
+            fs.writeInt(this.length);
+            fs.writeInt(this.num_txns);
+            fs.writeLong(this.min_txn_id);
+            fs.writeLong(this.max_txn_id);
+            fs.writeLong(this.min_start);
+            fs.writeLong(this.max_start);
+            fs.writeInt(this.procs.cardinality());
+            for (int id = this.procs.nextSetBit(0); id >= 0; id = this.procs.nextSetBit(id+1)) {
+                fs.writeInt(id);
+            } // FOR
+        }
+
+        void readExternal(FastDeserializer fds) throws IOException {
+            this.offset = fds.readLong();
+            this.length = fds.readInt();
+            this.num_txns = fds.readInt();
+            this.min_txn_id = fds.readLong();
+            this.max_txn_id = fds.readLong();
+            this.min_start = fds.readLong();
+            this.max_start = fds.readLong();
+            for (int i = 0, cnt = fds.readInt(); i < cnt; i++) {
+                this.procs.set(fds.readInt());
+            } // FOR
+        }
+
+        public int getTransactionCount() {
+            return (this.num_txns);
+        }
+        /**
+         * Returns true if this block contains any of the given procedure ids
+         */
+        public boolean hasAnyProcedure(BitSet proc_ids) {
+            return (this.procs.intersects(proc_ids));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Block[offset=%d, length=%d, txns=%d, txnIds=%d-%d]",
+                                 this.offset, this.length, this.num_txns,
+                                 this.min_txn_id, this.max_txn_id);
+        }
+    } // CLASS
+
+    // ----------------------------------------------------------------------------
+    // VALUE ENCODING
+    // ----------------------------------------------------------------------------
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_ARRAY = -1;
+
+    /**
+     * The classes that we know how to serialize. A scalar value is prefixed
+     * with its position in this array (plus one). An array is prefixed with
+     * TAG_ARRAY followed by the number of dimensions of its component class
+     * and then the position of the component's innermost class.
+     */
+    private static final Class<?> VALUE_CLASSES[] = {
+        Object.class,
+        Boolean.class,
+        Byte.class,
+        Short.class,
+        Integer.class,
+        Long.class,
+        Float.class,
+        Double.class,
+        String.class,
+        TimestampType.class,
+        BigDecimal.class,
+        boolean.class,
+        byte.class,
+        short.class,
+        int.class,
+        long.class,
+        float.class,
+        double.class,
+    };
+    private static final Map<Class<?>, Byte> VALUE_CLASS_IDS = new HashMap<Class<?>, Byte>();
+    static {
+        for (int i = 0; i < VALUE_CLASSES.length; i++) {
+            VALUE_CLASS_IDS.put(VALUE_CLASSES[i], (byte)i);
+        } // FOR
+    }
+
+    private static final byte OBJECT_CLASS_ID = 0;
+
+    private static byte getClassId(Class<?> cls) throws IOException {
+        Byte id = VALUE_CLASS_IDS.get(cls);
+        if (id == null) {
+            throw new IOException("Unsupported workload trace value type " + cls.getName());
+        }
+        return (id.byteValue());
+    }
+
+    /**
+     * Serialize a single parameter or output value. The value can be an
+     * array (including an array of arrays) of any of the supported types.
+     * @param fs
+     * @param value
+     * @throws IOException
+     */
+    public static void writeValue(FastSerializer fs, Object value) throws IOException {
+        if (value == null) {
+            fs.writeByte(TAG_NULL);
+            return;
+        }
+        Class<?> cls = value.getClass();
+        if (cls.isArray()) {
+            // Write out the full component type so that arrays of arrays
+            // come back with the same type that they went in with
+            Class<?> component = cls.getComponentType();
+            int dimensions = 0;
+            while (component.isArray()) {
+                component = component.getComponentType();
+                dimensions++;
+            } // WHILE
+            fs.writeByte(TAG_ARRAY);
+            fs.writeByte(dimensions);
+            fs.writeByte(getClassId(component));
+            int length = Array.getLength(value);
+            fs.writeInt(length);
+            for (int i = 0; i < length; i++) {
+                writeValue(fs, Array.get(value, i));
+            } // FOR
+            return;
+        }
+
+        byte id = getClassId(cls);
+        fs.writeByte(id + 1);
+        switch (id) {
+            case OBJECT_CLASS_ID: break; // Nothing to write
+            case 1:  fs.writeBoolean((Boolean)value); break;
+            case 2:  fs.writeByte((Byte)value); break;
+            case 3:  fs.writeShort((Short)value); break;
+            case 4:  fs.writeInt((Integer)value); break;
+            case 5:  fs.writeLong((Long)value); break;
+            case 6:  fs.writeFloat((Float)value); break;
+            case 7:  fs.writeDouble((Double)value); break;
+            case 8:  fs.writeString((String)value); break;
+            case 9:  fs.writeTimestamp((TimestampType)value); break;
+            case 10: fs.writeString(((BigDecimal)value).toString()); break;
+            default:
+                throw new IOException("Unsupported workload trace value type " + cls.getName());
+        } // SWITCH
+    }
+
+    /**
+     * Deserialize a single value written by {@link #writeValue(FastSerializer, Object)}
+     * @param fds
+     * @return
+     * @throws IOException
+     */
+    public static Object readValue(FastDeserializer fds) throws IOException {
+        byte tag = fds.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return (null);
+            case TAG_ARRAY: {
+                int dimensions = fds.readByte();
+                Class<?> component = VALUE_CLASSES[fds.readByte()];
+                for (int i = 0; i < dimensions; i++) {
+                    component = Array.newInstance(component, 0).getClass();
+                } // FOR
+                int length = fds.readInt();
+                Object arr = Array.newInstance(component, length);
+                for (int i = 0; i < length; i++) {
+                    Array.set(arr, i, readValue(fds));
+                } // FOR
+                return (arr);
+            }
+            case OBJECT_CLASS_ID + 1: return (new Object());
+            case 2:  return (fds.readBoolean());
+            case 3:  return (fds.readByte());
+            case 4:  return (fds.readShort());
+            case 5:  return (fds.readInt());
+            case 6:  return (fds.readLong());
+            case 7:  return (fds.readFloat());
+            case 8:  return (fds.readDouble());
+            case 9:  return (fds.readString());
+            case 10: return (fds.readTimestamp());
+            case 11: return (new BigDecimal(fds.readString()));
+            default:
+                throw new IOException("Invalid workload trace value tag " + tag);
+        } // SWITCH
+    }
+
+    /**
+     * Serialize an array of values (or null)
+     */
+    public static void writeValues(FastSerializer fs, Object values[]) throws IOException {
+        if (values == null) {
+            fs.writeInt(NULL_LENGTH);
+            return;
+        }
+        fs.writeInt(values.length);
+        for (Object value : values) {
+            writeValue(fs, value);
+        } // FOR
+    }
+
+    public static Object[] readValues(FastDeserializer fds) throws IOException {
+        int length = fds.readInt();
+        if (length == NULL_LENGTH) return (null);
+        Object values[] = new Object[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = readValue(fds);
+        } // FOR
+        return (values);
+    }
+
+    // ----------------------------------------------------------------------------
+    // TRACE ELEMENTS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Serialize everything in an AbstractTraceElement except for its catalog item name
+     */
+    protected static void writeElement(FastSerializer fs, AbstractTraceElement<?> element) throws IOException {
+        fs.writeLong(element.start_timestamp != null ? element.start_timestamp : NULL_TIMESTAMP);
+        fs.writeLong(element.stop_timestamp != null ? element.stop_timestamp : NULL_TIMESTAMP);
+        fs.writeBoolean(element.aborted);
+        fs.writeShort(element.weight);
+        writeValues(fs, element.params);
+
+        // OUTPUT
+        if (element.output == null) {
+            fs.writeInt(NULL_LENGTH);
+        } else {
+            fs.writeInt(element.output.length);
+            for (int i = 0; i < element.output.length; i++) {
+                VoltType types[] = (element.output_types != null ? element.output_types[i] : null);
+                if (types == null) {
+                    fs.writeInt(NULL_LENGTH);
+                } else {
+                    fs.writeInt(types.length);
+                    for (VoltType type : types) {
+                        fs.writeByte(type != null ? type.getValue() : VoltType.INVALID.getValue());
+                    } // FOR
+                }
+                Object data[][] = element.output[i];
+                if (data == null) {
+                    fs.writeInt(NULL_LENGTH);
+                } else {
+                    fs.writeInt(data.length);
+                    for (Object row[] : data) {
+                        writeValues(fs, row);
+                    } // FOR
+                }
+            } // FOR
+        }
+    }
+
+    /**
+     * Deserialize everything in an AbstractTraceElement except for its catalog item name
+     */
+    protected static void readElement(FastDeserializer fds, AbstractTraceElement<?> element) throws IOException {
+        long start = fds.readLong();
+        long stop = fds.readLong();
+        element.start_timestamp = (start != NULL_TIMESTAMP ? start : null);
+        element.stop_timestamp = (stop != NULL_TIMESTAMP ? stop : null);
+        element.aborted = fds.readBoolean();
+        element.weight = fds.readShort();
+        element.params = readValues(fds);
+
+        // OUTPUT
+        int num_tables = fds.readInt();
+        if (num_tables != NULL_LENGTH) {
+            element.output = new Object[num_tables][][];
+            element.output_types = new VoltType[num_tables][];
+            for (int i = 0; i < num_tables; i++) {
+                int num_types = fds.readInt();
+                if (num_types != NULL_LENGTH) {
+                    element.output_types[i] = new VoltType[num_types];
+                    for (int j = 0; j < num_types; j++) {
+                        VoltType type = VoltType.get(fds.readByte());
+                        element.output_types[i][j] = (type != VoltType.INVALID ? type : null);
+                    } // FOR
+                }
+                int num_rows = fds.readInt();
+                if (num_rows != NULL_LENGTH) {
+                    element.output[i] = new Object[num_rows][];
+                    for (int j = 0; j < num_rows; j++) {
+                        element.output[i][j] = readValues(fds);
+                    } // FOR
+                }
+            } // FOR
+        }
+    }
+
+    // ----------------------------------------------------------------------------
+    // UTILITY METHODS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Returns true if the given file starts with the binary workload header
+     * @param path
+     * @return
+     */
+    public static boolean isBinaryWorkload(File path) {
+        if (path.isFile() == false || path.length() < HEADER_SIZE + TRAILER_SIZE) return (false);
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(path);
+            byte header[] = new byte[4];
+            if (in.read(header) != header.length) return (false);
+            return (new FastDeserializer(header).readInt() == MAGIC);
+        } catch (IOException ex) {
+            return (false);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ex) {
+                    // Ignore
+                }
+            }
+        }
+    }
+}
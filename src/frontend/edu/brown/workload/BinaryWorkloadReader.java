@@ -0,0 +1,353 @@
+/***************************************************************************
+ *   Copyright (C) 2012 by H-Store Project                                 *
+ *   Brown University                                                      *
+ *   Massachusetts Institute of Technology                                 *
+ *   Yale University                                                       *
+ *                                                                         *
+ *   Permission is hereby granted, free of charge, to any person obtaining *
+ *   a copy of this software and associated documentation files (the       *
+ *   "Software"), to deal in the Software without restriction, including   *
+ *   without limitation the rights to use, copy, modify, merge, publish,   *
+ *   distribute, sublicense, and/or sell copies of the Software, and to    *
+ *   permit persons to whom the Software is furnished to do so, subject to *
+ *   the following conditions:                                             *
+ *                                                                         *
+ *   The above copyright notice and this permission notice shall be        *
+ *   included in all copies or substantial portions of the Software.       *
+ *                                                                         *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,       *
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF    *
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.*
+ *   IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR     *
+ *   OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, *
+ *   ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR *
+ *   OTHER DEALINGS IN THE SOFTWARE.                                       *
+ ***************************************************************************/
+package edu.brown.workload;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.log4j.Logger;
+import org.voltdb.catalog.Database;
+import org.voltdb.messaging.FastDeserializer;
+
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+import edu.brown.workload.filters.Filter;
+import edu.brown.workload.filters.Filter.FilterResult;
+import edu.brown.workload.filters.ProcedureNameFilter;
+
+/**
+ * Reads a binary workload trace file written by BinaryWorkloadWriter.
+ * Each block is memory-mapped separately and the blocks are deserialized
+ * in parallel, while the Filter is applied in file order by the loading
+ * thread. If the Filter contains a ProcedureNameFilter, then we use
+ * the block index to skip entire blocks that do not contain any of the
+ * procedures that we want, and then skip individual records in the
+ * remaining blocks before deserializing them.
+ */
+public class BinaryWorkloadReader implements Closeable {
+    private static final Logger LOG = Logger.getLogger(BinaryWorkloadReader.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    private static final LoggerBoolean trace = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug, trace);
+    }
+
+    private final File input_path;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+
+    private final String procs[];
+    private final String stmts[];
+    private final List<BinaryWorkloadFormat.Block> blocks = new ArrayList<BinaryWorkloadFormat.Block>();
+
+    public BinaryWorkloadReader(File input_path) throws IOException {
+        this.input_path = input_path;
+        this.file = new RandomAccessFile(input_path, "r");
+        this.channel = this.file.getChannel();
+
+        long size = this.channel.size();
+        if (size < BinaryWorkloadFormat.HEADER_SIZE + BinaryWorkloadFormat.TRAILER_SIZE) {
+            throw new IOException("Invalid binary workload trace file '" + input_path + "'");
+        }
+        FastDeserializer fds = new FastDeserializer(this.map(0, BinaryWorkloadFormat.HEADER_SIZE));
+        if (fds.readInt() != BinaryWorkloadFormat.MAGIC) {
+            throw new IOException("Invalid header in binary workload trace file '" + input_path + "'");
+        }
+        int version = fds.readInt();
+        if (version != BinaryWorkloadFormat.VERSION) {
+            throw new IOException(String.format("Unsupported binary workload trace version %d in '%s'",
+                                                version, input_path));
+        }
+
+        // TRAILER
+        fds = new FastDeserializer(this.map(size - BinaryWorkloadFormat.TRAILER_SIZE, BinaryWorkloadFormat.TRAILER_SIZE));
+        long footer_offset = fds.readLong();
+        if (fds.readInt() != BinaryWorkloadFormat.MAGIC) {
+            throw new IOException("Incomplete binary workload trace file '" + input_path + "'");
+        }
+
+        // FOOTER
+        fds = new FastDeserializer(this.map(footer_offset, size - BinaryWorkloadFormat.TRAILER_SIZE - footer_offset));
+        this.procs = new String[fds.readInt()];
+        for (int i = 0; i < this.procs.length; i++) {
+            this.procs[i] = fds.readString();
+        } // FOR
+        this.stmts = new String[fds.readInt()];
+        for (int i = 0; i < this.stmts.length; i++) {
+            this.stmts[i] = fds.readString();
+        } // FOR
+        for (int i = 0, cnt = fds.readInt(); i < cnt; i++) {
+            BinaryWorkloadFormat.Block block = new BinaryWorkloadFormat.Block();
+            block.readExternal(fds);
+            this.blocks.add(block);
+        } // FOR
+        if (debug.val)
+            LOG.debug(String.format("Opened binary workload trace '%s' [procs=%d, stmts=%d, blocks=%d]",
+                      input_path.getName(), this.procs.length, this.stmts.length, this.blocks.size()));
+    }
+
+    private MappedByteBuffer map(long offset, long length) throws IOException {
+        return (this.channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+        this.file.close();
+    }
+
+    public List<BinaryWorkloadFormat.Block> getBlocks() {
+        return (Collections.unmodifiableList(this.blocks));
+    }
+
+    /**
+     * Return the total number of TransactionTraces stored in this file
+     */
+    public int getTransactionCount() {
+        int total = 0;
+        for (BinaryWorkloadFormat.Block block : this.blocks) {
+            total += block.getTransactionCount();
+        } // FOR
+        return (total);
+    }
+
+    /**
+     * Return the ids of the procedures that the ProcedureNameFilters in the given
+     * Filter chain could possibly allow. Returns null if every procedure is allowed.
+     * Like the fast pattern used by the JSON loader, the names are case-insensitive.
+     */
+    protected BitSet getAllowedProcedures(Filter filter) {
+        if (filter == null) return (null);
+        List<ProcedureNameFilter> procname_filters = filter.getFilters(ProcedureNameFilter.class);
+        if (procname_filters.isEmpty()) return (null);
+
+        BitSet allowed = null;
+        for (ProcedureNameFilter f : procname_filters) {
+            for (String name : f.getProcedureNames()) {
+                if (allowed == null) allowed = new BitSet(this.procs.length);
+                for (int i = 0; i < this.procs.length; i++) {
+                    if (this.procs[i].equalsIgnoreCase(name)) allowed.set(i);
+                } // FOR
+            } // FOR
+        } // FOR
+        return (allowed);
+    }
+
+    /**
+     * Deserialize the TransactionTrace at the current position of the given buffer
+     * @param fds
+     * @return
+     * @throws IOException
+     */
+    protected TransactionTrace readTransactionTrace(FastDeserializer fds) throws IOException {
+        TransactionTrace txn_trace = new TransactionTrace();
+        txn_trace.catalog_item_name = this.procs[fds.readInt()];
+        txn_trace.setTransactionId(fds.readLong());
+        BinaryWorkloadFormat.readElement(fds, txn_trace);
+        for (int i = 0, cnt = fds.readInt(); i < cnt; i++) {
+            QueryTrace query_trace = new QueryTrace(this.stmts[fds.readInt()], null, fds.readInt());
+            BinaryWorkloadFormat.readElement(fds, query_trace);
+            txn_trace.addQuery(query_trace);
+        } // FOR
+        return (txn_trace);
+    }
+
+    /**
+     * Load all of the TransactionTraces from this file into the given Workload.
+     * The blocks are deserialized in parallel, but the Filter is applied to the
+     * TransactionTraces in this thread in the same order that they were written.
+     * That way filters that depend on the order (e.g., limits or sampling) pick
+     * the same TransactionTraces every time, just like the JSON loader.
+     * @param workload
+     * @param catalog_db
+     * @param filter
+     * @param counters
+     * @param num_threads
+     * @throws Exception
+     */
+    protected void load(final Workload workload,
+                        final Database catalog_db,
+                        final Filter filter,
+                        final AtomicInteger counters[],
+                        int num_threads) throws Exception {
+        final BitSet allowed = this.getAllowedProcedures(filter);
+        final int num_blocks = this.blocks.size();
+        final AtomicReferenceArray<List<TransactionTrace>> decoded = new AtomicReferenceArray<List<TransactionTrace>>(num_blocks);
+        final CountDownLatch ready[] = new CountDownLatch[num_blocks];
+        for (int i = 0; i < num_blocks; i++) {
+            ready[i] = new CountDownLatch(1);
+        } // FOR
+        final AtomicInteger next_block = new AtomicInteger(0);
+        final AtomicInteger skipped_blocks = new AtomicInteger(0);
+        final AtomicBoolean halt = new AtomicBoolean(false);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        if (debug.val && allowed != null)
+            LOG.debug(String.format("Fast filter for %d out of %d procedures", allowed.cardinality(), this.procs.length));
+
+        // The workers can only get this many blocks ahead of us so that we don't
+        // deserialize the whole file when the filter halts early
+        num_threads = Math.max(1, Math.min(num_threads, num_blocks));
+        final Semaphore window = new Semaphore(num_threads * 2);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < num_threads; i++) {
+            Thread t = new Thread(String.format("%s-%d", BinaryWorkloadReader.class.getSimpleName(), i)) {
+                @Override
+                public void run() {
+                    while (true) {
+                        try {
+                            window.acquire();
+                        } catch (InterruptedException ex) {
+                            break;
+                        }
+                        if (halt.get()) break;
+                        int idx = next_block.getAndIncrement();
+                        if (idx >= num_blocks) break;
+
+                        BinaryWorkloadFormat.Block block = blocks.get(idx);
+                        try {
+                            if (allowed != null && block.hasAnyProcedure(allowed) == false) {
+                                if (trace.val) LOG.trace("Skipping " + block);
+                                skipped_blocks.incrementAndGet();
+                                decoded.set(idx, Collections.<TransactionTrace>emptyList());
+                            } else {
+                                decoded.set(idx, scanBlock(block, allowed, halt));
+                            }
+                        } catch (Throwable ex) {
+                            error.compareAndSet(null, new RuntimeException(String.format("Failed to read %s from binary workload trace file '%s'",
+                                                                                         block, input_path.getAbsolutePath()), ex));
+                            halt.set(true);
+                            // Nobody is going to scan the rest of the blocks, so
+                            // don't leave the loading thread waiting for them
+                            for (CountDownLatch latch : ready) {
+                                latch.countDown();
+                            } // FOR
+                        } finally {
+                            ready[idx].countDown();
+                        }
+                    } // WHILE
+                }
+            };
+            t.setDaemon(true);
+            threads.add(t);
+            t.start();
+        } // FOR
+        if (debug.val)
+            LOG.debug(String.format("Scanning %d blocks from '%s' using %d threads",
+                      num_blocks, this.input_path.getName(), num_threads));
+
+        try {
+            for (int idx = 0; idx < num_blocks && halt.get() == false; idx++) {
+                ready[idx].await();
+                if (error.get() != null) break;
+                List<TransactionTrace> txns = decoded.getAndSet(idx, null);
+                window.release();
+
+                for (TransactionTrace txn_trace : txns) {
+                    if (filter != null) {
+                        FilterResult result = filter.apply(txn_trace);
+                        if (trace.val) LOG.trace(txn_trace + " Filter Result: " + result);
+                        if (result == FilterResult.HALT) {
+                            if (debug.val) LOG.debug("Got HALT response from filter! Telling all threads to stop!");
+                            halt.set(true);
+                            break;
+                        }
+                        else if (result == FilterResult.SKIP) continue;
+                    }
+
+                    counters[WorkloadUtil.TXN_CTR_IDX].incrementAndGet();
+                    counters[WorkloadUtil.QUERY_CTR_IDX].addAndGet(txn_trace.getQueryCount());
+                    counters[WorkloadUtil.ELEMENT_CTR_IDX].addAndGet(1 + txn_trace.getQueries().size());
+                    counters[WorkloadUtil.WEIGHTED_TXN_CTR_IDX].addAndGet(txn_trace.weight);
+                    for (QueryTrace q : txn_trace.getQueries()) {
+                        counters[WorkloadUtil.WEIGHTED_QUERY_CTR_IDX].addAndGet(q.weight);
+                    } // FOR
+                    workload.addTransaction(txn_trace.getCatalogItem(catalog_db), txn_trace, true);
+                } // FOR
+            } // FOR
+        } finally {
+            // Wake up any workers that are waiting for us so that they see the halt
+            halt.set(true);
+            window.release(num_threads);
+            for (Thread t : threads) {
+                t.join();
+            } // FOR
+        }
+        if (error.get() != null) {
+            throw new RuntimeException(error.get());
+        }
+        if (debug.val && allowed != null)
+            LOG.debug(String.format("Skipped %d out of %d blocks", skipped_blocks.get(), num_blocks));
+    }
+
+    /**
+     * Deserialize all of the TransactionTraces in the given block whose
+     * procedure is in the allowed set (if there is one).
+     * @param block
+     * @param allowed
+     * @param halt
+     * @return
+     * @throws Exception
+     */
+    private List<TransactionTrace> scanBlock(BinaryWorkloadFormat.Block block,
+                                             BitSet allowed,
+                                             AtomicBoolean halt) throws Exception {
+        if (trace.val) LOG.trace("Scanning " + block);
+        List<TransactionTrace> txns = new ArrayList<TransactionTrace>(block.getTransactionCount());
+        ByteBuffer buffer = this.map(block.offset, block.length);
+        FastDeserializer fds = new FastDeserializer(buffer);
+        while (buffer.hasRemaining() && halt.get() == false) {
+            int length = buffer.getInt();
+            int position = buffer.position();
+
+            // Peek at the procedure id to see whether we even want this record
+            if (allowed != null && allowed.get(buffer.getInt(position)) == false) {
+                buffer.position(position + length);
+                continue;
+            }
+            TransactionTrace txn_trace = this.readTransactionTrace(fds);
+            assert(buffer.position() == position + length) :
+                String.format("Read %d bytes for %s but record was %d bytes",
+                              buffer.position() - position, txn_trace, length);
+            txns.add(txn_trace);
+        } // WHILE
+        return (txns);
+    }
+}
@@ -0,0 +1,282 @@
+/***************************************************************************
+ *   Copyright (C) 2012 by H-Store Project                                 *
+ *   Brown University                                                      *
+ *   Massachusetts Institute of Technology                                 *
+ *   Yale University                                                       *
+ *                                                                         *
+ *   Permission is hereby granted, free of charge, to any person obtaining *
+ *   a copy of this software and associated documentation files (the       *
+ *   "Software"), to deal in the Software without restriction, including   *
+ *   without limitation the rights to use, copy, modify, merge, publish,   *
+ *   distribute, sublicense, and/or sell copies of the Software, and to    *
+ *   permit persons to whom the Software is furnished to do so, subject to *
+ *   the following conditions:                                             *
+ *                                                                         *
+ *   The above copyright notice and this permission notice shall be        *
+ *   included in all copies or substantial portions of the Software.       *
+ *                                                                         *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,       *
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF    *
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.*
+ *   IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR     *
+ *   OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, *
+ *   ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR *
+ *   OTHER DEALINGS IN THE SOFTWARE.                                       *
+ ***************************************************************************/
+package edu.brown.workload;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.voltdb.catalog.Database;
+import org.voltdb.messaging.FastSerializer;
+
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+import edu.brown.utils.ArgumentsParser;
+import edu.brown.utils.FileUtil;
+
+/**
+ * Writes TransactionTraces out to a binary workload trace file.
+ * See {@link BinaryWorkloadFormat} for the file layout.
+ * The main() method converts an existing JSON workload trace into the binary format.
+ */
+public class BinaryWorkloadWriter implements Closeable {
+    private static final Logger LOG = Logger.getLogger(BinaryWorkloadWriter.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug);
+    }
+
+    private final File output_path;
+    private final OutputStream out;
+    private final int block_size;
+
+    private final Map<String, Integer> proc_ids = new HashMap<String, Integer>();
+    private final List<String> procs = new ArrayList<String>();
+    private final Map<String, Integer> stmt_ids = new HashMap<String, Integer>();
+    private final List<String> stmts = new ArrayList<String>();
+
+    private final List<BinaryWorkloadFormat.Block> blocks = new ArrayList<BinaryWorkloadFormat.Block>();
+    private BinaryWorkloadFormat.Block current_block;
+    private final FastSerializer block_buffer = new FastSerializer();
+    private final FastSerializer record_buffer = new FastSerializer();
+    private long position = 0;
+    private int txn_ctr = 0;
+    private boolean closed = false;
+
+    public BinaryWorkloadWriter(File output_path) throws IOException {
+        this(output_path, BinaryWorkloadFormat.DEFAULT_BLOCK_SIZE);
+    }
+
+    public BinaryWorkloadWriter(File output_path, int block_size) throws IOException {
+        assert(block_size > 0) : "Invalid block size " + block_size;
+        this.output_path = output_path;
+        this.block_size = block_size;
+        this.out = new FileOutputStream(output_path);
+
+        FastSerializer header = new FastSerializer();
+        header.writeInt(BinaryWorkloadFormat.MAGIC);
+        header.writeInt(BinaryWorkloadFormat.VERSION);
+        this.writeBytes(header);
+        assert(this.position == BinaryWorkloadFormat.HEADER_SIZE);
+    }
+
+    private void writeBytes(FastSerializer fs) throws IOException {
+        byte bytes[] = fs.getBytes();
+        this.out.write(bytes);
+        this.position += bytes.length;
+    }
+
+    private static int getId(String name, Map<String, Integer> ids, List<String> names) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            ids.put(name, id);
+            names.add(name);
+        }
+        return (id.intValue());
+    }
+
+    /**
+     * Append the given TransactionTrace to the output file
+     * @param txn_trace
+     * @throws IOException
+     */
+    public synchronized void write(TransactionTrace txn_trace) throws IOException {
+        assert(this.closed == false) : "Writing to closed file " + this.output_path;
+        int proc_id = getId(txn_trace.catalog_item_name, this.proc_ids, this.procs);
+
+        FastSerializer fs = this.record_buffer;
+        fs.clear();
+        fs.writeInt(proc_id);
+        fs.writeLong(txn_trace.getTransactionId());
+        BinaryWorkloadFormat.writeElement(fs, txn_trace);
+        List<QueryTrace> queries = txn_trace.getQueries();
+        fs.writeInt(queries.size());
+        for (QueryTrace query_trace : queries) {
+            fs.writeInt(getId(query_trace.catalog_item_name, this.stmt_ids, this.stmts));
+            fs.writeInt(query_trace.getBatchId());
+            BinaryWorkloadFormat.writeElement(fs, query_trace);
+        } // FOR
+        byte record[] = fs.getBytes();
+
+        if (this.current_block == null) {
+            this.current_block = new BinaryWorkloadFormat.Block();
+            this.current_block.offset = this.position;
+        }
+        this.block_buffer.writeInt(record.length);
+        this.block_buffer.write(record);
+        this.current_block.add(proc_id, txn_trace);
+        if (this.block_buffer.size() >= this.block_size) {
+            this.flushBlock();
+        }
+        this.txn_ctr++;
+    }
+
+    private void flushBlock() throws IOException {
+        if (this.current_block == null) return;
+        this.current_block.length = this.block_buffer.size();
+        this.writeBytes(this.block_buffer);
+        this.blocks.add(this.current_block);
+        if (debug.val) LOG.debug("Wrote " + this.current_block);
+        this.block_buffer.clear();
+        this.current_block = null;
+    }
+
+    /**
+     * Write out the footer and close the file. No more
+     * TransactionTraces can be written after this is called.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.closed) return;
+        this.flushBlock();
+        long footer_offset = this.position;
+
+        FastSerializer fs = new FastSerializer();
+        fs.writeInt(this.procs.size());
+        for (String proc_name : this.procs) {
+            fs.writeString(proc_name);
+        } // FOR
+        fs.writeInt(this.stmts.size());
+        for (String stmt_key : this.stmts) {
+            fs.writeString(stmt_key);
+        } // FOR
+        fs.writeInt(this.blocks.size());
+        for (BinaryWorkloadFormat.Block block : this.blocks) {
+            block.writeExternal(fs);
+        } // FOR
+
+        // TRAILER
+        fs.writeLong(footer_offset);
+        fs.writeInt(BinaryWorkloadFormat.MAGIC);
+        this.writeBytes(fs);
+        this.out.close();
+        this.closed = true;
+        if (debug.val)
+            LOG.debug(String.format("Wrote %d txns in %d blocks to '%s' [bytes=%d]",
+                      this.txn_ctr, this.blocks.size(), this.output_path, this.position));
+    }
+
+    public int getTransactionCount() {
+        return (this.txn_ctr);
+    }
+
+    /**
+     * Returns the number of bytes that have been written out to the file so far.
+     * This does not include the current block that is still being buffered.
+     * @return
+     */
+    public synchronized long getBytesWritten() {
+        return (this.position);
+    }
+
+    public File getOutputPath() {
+        return (this.output_path);
+    }
+
+    /**
+     * Write all of the TransactionTraces in the given Workload to a binary file
+     * @param workload
+     * @param output_path
+     * @return
+     * @throws IOException
+     */
+    public static File write(Workload workload, File output_path) throws IOException {
+        BinaryWorkloadWriter writer = new BinaryWorkloadWriter(output_path);
+        for (TransactionTrace txn_trace : workload) {
+            writer.write(txn_trace);
+        } // FOR
+        writer.close();
+        return (output_path);
+    }
+
+    /**
+     * Convert a JSON workload trace into a binary workload trace. We stream
+     * the input file one line at a time so that we never have to hold the
+     * entire workload in memory.
+     * @param input_path
+     * @param output_path
+     * @param catalog_db
+     * @return the number of transactions written
+     * @throws IOException
+     */
+    public static int convert(File input_path, File output_path, Database catalog_db) throws IOException {
+        BufferedReader in = FileUtil.getReader(input_path);
+        BinaryWorkloadWriter writer = new BinaryWorkloadWriter(output_path);
+        int line_ctr = 0;
+        String line = null;
+        while ((line = in.readLine()) != null) {
+            line_ctr++;
+            line = line.trim();
+            if (line.isEmpty()) continue;
+            TransactionTrace txn_trace = null;
+            try {
+                JSONObject json_object = new JSONObject(line);
+                if (json_object.has(TransactionTrace.Members.TXN_ID.name()) == false) continue;
+                txn_trace = TransactionTrace.loadFromJSONObject(json_object, catalog_db);
+            } catch (JSONException ex) {
+                LOG.warn(String.format("Ignoring invalid TransactionTrace on line %d of '%s'", line_ctr, input_path));
+                continue;
+            }
+            writer.write(txn_trace);
+            if (debug.val && writer.getTransactionCount() % 10000 == 0)
+                LOG.debug("Converted " + writer.getTransactionCount() + " transactions...");
+        } // WHILE
+        in.close();
+        writer.close();
+        return (writer.getTransactionCount());
+    }
+
+    public static void main(String[] vargs) throws Exception {
+        ArgumentsParser args = ArgumentsParser.load(vargs);
+        args.require(ArgumentsParser.PARAM_CATALOG, ArgumentsParser.PARAM_WORKLOAD_OUTPUT);
+
+        File output_path = new File(args.getParam(ArgumentsParser.PARAM_WORKLOAD_OUTPUT));
+        FileUtil.makeDirIfNotExists(output_path.getParent());
+        if (args.getOptParamCount() == 0) {
+            LOG.fatal("Missing input JSON workload trace file");
+            System.exit(1);
+        }
+        File input_path = new File(args.getOptParam(0));
+
+        long start = System.currentTimeMillis();
+        int num_txns = convert(input_path, output_path, args.catalog_db);
+        long stop = System.currentTimeMillis();
+        LOG.info(String.format("Converted %d txns from '%s' to '%s' in %.1f seconds [%d -> %d bytes]",
+                 num_txns, input_path.getName(), output_path.getName(), (stop - start) / 1000d,
+                 input_path.length(), output_path.length()));
+    }
+}
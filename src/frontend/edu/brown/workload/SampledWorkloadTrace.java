@@ -0,0 +1,531 @@
+/***************************************************************************
+ *   Copyright (C) 2012 by H-Store Project                                 *
+ *   Brown University                                                      *
+ *   Massachusetts Institute of Technology                                 *
+ *   Yale University                                                       *
+ *                                                                         *
+ *   Permission is hereby granted, free of charge, to any person obtaining *
+ *   a copy of this software and associated documentation files (the       *
+ *   "Software"), to deal in the Software without restriction, including   *
+ *   without limitation the rights to use, copy, modify, merge, publish,   *
+ *   distribute, sublicense, and/or sell copies of the Software, and to    *
+ *   permit persons to whom the Software is furnished to do so, subject to *
+ *   the following conditions:                                             *
+ *                                                                         *
+ *   The above copyright notice and this permission notice shall be        *
+ *   included in all copies or substantial portions of the Software.       *
+ *                                                                         *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,       *
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF    *
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.*
+ *   IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR     *
+ *   OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, *
+ *   ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR *
+ *   OTHER DEALINGS IN THE SOFTWARE.                                       *
+ ***************************************************************************/
+package edu.brown.workload;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.voltdb.VoltTable;
+import org.voltdb.WorkloadTrace;
+import org.voltdb.catalog.Catalog;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Statement;
+
+import edu.brown.catalog.CatalogUtil;
+import edu.brown.interfaces.Shutdownable;
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+import edu.brown.profilers.HStoreSiteProfiler;
+import edu.brown.utils.ExceptionHandlingRunnable;
+import edu.brown.utils.FileUtil;
+
+/**
+ * A WorkloadTrace that only records a random sample of the transactions that
+ * it sees so that it can be left on while the system is running.
+ * <p>
+ * Each thread that executes transactions gets its own bounded ring buffer.
+ * Finished TransactionTraces are added to the ring buffer of the thread that executed
+ * them without any locking. If a ring buffer is full, then the trace is dropped
+ * instead of making the execution thread wait. A separate thread periodically drains
+ * all of the ring buffers into a {@link BinaryWorkloadWriter}. Once the current
+ * file gets too big, it is closed and a new file is started. Only closed files
+ * have a footer, so the file that is currently being written cannot be read until
+ * it is rotated or this trace is shut down.
+ */
+public class SampledWorkloadTrace extends ExceptionHandlingRunnable implements WorkloadTrace, Shutdownable {
+    private static final Logger LOG = Logger.getLogger(SampledWorkloadTrace.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    private static final LoggerBoolean trace = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug, trace);
+    }
+
+    public static final String FILE_EXTENSION = ".trace";
+
+    // ----------------------------------------------------------------------------
+    // RING BUFFER
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Single-producer, single-consumer ring buffer of finished TransactionTraces.
+     * Only the owning execution thread is allowed to call offer() and only
+     * the flush thread is allowed to call poll().
+     */
+    protected static class TraceRingBuffer {
+        private final TransactionTrace buffer[];
+        private final int mask;
+        private final AtomicLong head = new AtomicLong(0);
+        private final AtomicLong tail = new AtomicLong(0);
+        private final Random rand = new Random();
+
+        // These are only updated by the owning thread
+        private volatile long sampled = 0;
+        private volatile long dropped = 0;
+        private volatile long hook_time = 0;
+
+        // These are only updated by the flush thread
+        private long last_sampled = 0;
+        private long last_dropped = 0;
+        private long last_hook_time = 0;
+
+        protected TraceRingBuffer(int capacity) {
+            int size = 1;
+            while (size < capacity) size <<= 1;
+            this.buffer = new TransactionTrace[size];
+            this.mask = size - 1;
+        }
+
+        protected boolean offer(TransactionTrace txn_trace) {
+            long t = this.tail.get();
+            if (t - this.head.get() >= this.buffer.length) {
+                return (false);
+            }
+            this.buffer[(int)(t & this.mask)] = txn_trace;
+            this.tail.lazySet(t + 1);
+            return (true);
+        }
+
+        protected TransactionTrace poll() {
+            long h = this.head.get();
+            if (h >= this.tail.get()) {
+                return (null);
+            }
+            int idx = (int)(h & this.mask);
+            TransactionTrace txn_trace = this.buffer[idx];
+            this.buffer[idx] = null;
+            this.head.lazySet(h + 1);
+            return (txn_trace);
+        }
+
+        protected int size() {
+            return ((int)(this.tail.get() - this.head.get()));
+        }
+
+        protected int capacity() {
+            return (this.buffer.length);
+        }
+    }
+
+    // ----------------------------------------------------------------------------
+    // DATA MEMBERS
+    // ----------------------------------------------------------------------------
+
+    private final double default_rate;
+    private final int ring_size;
+    private final long max_file_size;
+    private final int flush_interval;
+
+    private final Map<String, Double> proc_rates = new HashMap<String, Double>();
+    private final Set<String> ignored_procedures = new HashSet<String>();
+
+    /**
+     * The sample rate for each Procedure indexed by their catalog id.
+     * This is rebuilt whenever the rates change.
+     */
+    private volatile double cached_rates[];
+    private Catalog catalog;
+
+    private final List<TraceRingBuffer> rings = new CopyOnWriteArrayList<TraceRingBuffer>();
+    private final ThreadLocal<TraceRingBuffer> local_ring = new ThreadLocal<TraceRingBuffer>() {
+        @Override
+        protected TraceRingBuffer initialValue() {
+            TraceRingBuffer ring = new TraceRingBuffer(ring_size);
+            rings.add(ring);
+            return (ring);
+        }
+    };
+
+    private File output_path;
+    private BinaryWorkloadWriter writer;
+    private final List<File> output_files = new ArrayList<File>();
+    private long written = 0;
+
+    private HStoreSiteProfiler profiler;
+    private Thread self;
+    private volatile boolean stop = false;
+
+    // ----------------------------------------------------------------------------
+    // INITIALIZATION
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Constructor
+     * @param default_rate the fraction of the txns for each procedure that we will record
+     * @param ring_size the max number of txns that each thread can buffer before we drop samples
+     * @param max_file_size the size in bytes at which we will start a new output file
+     * @param flush_interval how often in milliseconds the flush thread drains the buffers
+     */
+    public SampledWorkloadTrace(double default_rate, int ring_size, long max_file_size, int flush_interval) {
+        assert(ring_size > 0) : "Invalid ring buffer size " + ring_size;
+        assert(max_file_size > 0) : "Invalid max file size " + max_file_size;
+        this.default_rate = default_rate;
+        this.ring_size = ring_size;
+        this.max_file_size = max_file_size;
+        this.flush_interval = flush_interval;
+    }
+
+    @Override
+    public void setCatalog(Catalog catalog) {
+        this.catalog = catalog;
+        this.rebuildSampleRates();
+    }
+
+    /**
+     * Set the base path of the output files. Each file will have
+     * a sequence number and the trace file extension appended to it.
+     */
+    @Override
+    public void setOutputPath(File path) {
+        this.output_path = path;
+    }
+
+    @Override
+    public synchronized void addIgnoredProcedure(String name) {
+        this.ignored_procedures.add(name.toUpperCase());
+        this.rebuildSampleRates();
+    }
+
+    /**
+     * Set the sample rate for the given Procedure
+     * @param proc_name
+     * @param rate
+     */
+    public synchronized void setSampleRate(String proc_name, double rate) {
+        this.proc_rates.put(proc_name.toUpperCase(), rate);
+        this.rebuildSampleRates();
+    }
+
+    /**
+     * Set the sample rates for procedures from a comma-separated list of
+     * ProcName:Rate pairs
+     * @param rates
+     */
+    public void setSampleRates(String rates) {
+        if (rates == null) return;
+        for (String entry : rates.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) continue;
+            int idx = entry.lastIndexOf(':');
+            if (idx <= 0) {
+                LOG.warn("Invalid procedure sample rate '" + entry + "'");
+                continue;
+            }
+            try {
+                this.setSampleRate(entry.substring(0, idx).trim(),
+                                   Double.parseDouble(entry.substring(idx+1).trim()));
+            } catch (NumberFormatException ex) {
+                LOG.warn("Invalid procedure sample rate '" + entry + "'");
+            }
+        } // FOR
+    }
+
+    public void setProfiler(HStoreSiteProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    private synchronized void rebuildSampleRates() {
+        if (this.catalog == null) return;
+        int max_id = 0;
+        for (Procedure catalog_proc : CatalogUtil.getDatabase(this.catalog).getProcedures()) {
+            max_id = Math.max(max_id, catalog_proc.getId());
+        } // FOR
+        double rates[] = new double[max_id+1];
+        for (Procedure catalog_proc : CatalogUtil.getDatabase(this.catalog).getProcedures()) {
+            rates[catalog_proc.getId()] = this.computeSampleRate(catalog_proc);
+        } // FOR
+        this.cached_rates = rates;
+    }
+
+    private double computeSampleRate(Procedure catalog_proc) {
+        String proc_name = catalog_proc.getName().toUpperCase();
+        if (catalog_proc.getSystemproc() || this.ignored_procedures.contains(proc_name)) {
+            return (0d);
+        }
+        Double rate = this.proc_rates.get(proc_name);
+        return (rate != null ? rate.doubleValue() : this.default_rate);
+    }
+
+    /**
+     * Return the fraction of txns for the given Procedure that will be recorded
+     * @param catalog_proc
+     * @return
+     */
+    public double getSampleRate(Procedure catalog_proc) {
+        double rates[] = this.cached_rates;
+        int id = catalog_proc.getId();
+        if (rates != null && id >= 0 && id < rates.length) {
+            return (rates[id]);
+        }
+        synchronized (this) {
+            return (this.computeSampleRate(catalog_proc));
+        } // SYNCH
+    }
+
+    // ----------------------------------------------------------------------------
+    // WORKLOAD TRACE INTERFACE
+    // ----------------------------------------------------------------------------
+
+    @Override
+    public Object startTransaction(long txn_id, Procedure catalog_proc, Object[] args) {
+        double rate = this.getSampleRate(catalog_proc);
+        if (rate <= 0) return (null);
+        TraceRingBuffer ring = this.local_ring.get();
+        if (rate < 1 && ring.rand.nextDouble() >= rate) return (null);
+
+        long start = System.nanoTime();
+        TransactionTrace txn_trace = new TransactionTrace(txn_id, catalog_proc, args);
+        ring.hook_time += (System.nanoTime() - start);
+        if (trace.val) LOG.trace("Sampling " + txn_trace);
+        return (txn_trace);
+    }
+
+    @Override
+    public void stopTransaction(Object xact_handle, VoltTable... result) {
+        if ((xact_handle instanceof TransactionTrace) == false) return;
+        long start = System.nanoTime();
+        TransactionTrace txn_trace = (TransactionTrace)xact_handle;
+        for (QueryTrace query_trace : txn_trace.getQueries()) {
+            if (query_trace.isStopped() == false) query_trace.abort();
+        } // FOR
+        txn_trace.stop();
+        if (result != null) txn_trace.setOutput(result);
+        this.enqueue(txn_trace, start);
+    }
+
+    @Override
+    public void abortTransaction(Object xact_handle) {
+        if ((xact_handle instanceof TransactionTrace) == false) return;
+        long start = System.nanoTime();
+        TransactionTrace txn_trace = (TransactionTrace)xact_handle;
+        for (QueryTrace query_trace : txn_trace.getQueries()) {
+            if (query_trace.isStopped() == false) query_trace.abort();
+        } // FOR
+        txn_trace.abort();
+        this.enqueue(txn_trace, start);
+    }
+
+    @Override
+    public Object startQuery(Object xact_handle, Statement catalog_statement, Object[] args, int batch_id) {
+        if ((xact_handle instanceof TransactionTrace) == false) return (null);
+        long start = System.nanoTime();
+        QueryTrace query_trace = new QueryTrace(catalog_statement, args, batch_id);
+        ((TransactionTrace)xact_handle).addQuery(query_trace);
+        this.local_ring.get().hook_time += (System.nanoTime() - start);
+        return (query_trace);
+    }
+
+    @Override
+    public void stopQuery(Object query_handle, VoltTable result) {
+        if ((query_handle instanceof QueryTrace) == false) return;
+        long start = System.nanoTime();
+        QueryTrace query_trace = (QueryTrace)query_handle;
+        query_trace.stop();
+        if (result != null) query_trace.setOutput(result);
+        this.local_ring.get().hook_time += (System.nanoTime() - start);
+    }
+
+    private void enqueue(TransactionTrace txn_trace, long start) {
+        TraceRingBuffer ring = this.local_ring.get();
+        if (ring.offer(txn_trace)) {
+            ring.sampled++;
+        } else {
+            ring.dropped++;
+            if (debug.val) LOG.debug("Dropping " + txn_trace + " because the trace buffer is full");
+        }
+        ring.hook_time += (System.nanoTime() - start);
+    }
+
+    // ----------------------------------------------------------------------------
+    // FLUSH THREAD
+    // ----------------------------------------------------------------------------
+
+    @Override
+    public void runImpl() {
+        this.self = Thread.currentThread();
+        if (debug.val) LOG.debug("Starting sampled workload trace flush thread");
+        while (this.stop == false) {
+            try {
+                Thread.sleep(this.flush_interval);
+            } catch (InterruptedException ex) {
+                if (this.stop) break;
+            }
+            this.flush();
+        } // WHILE
+    }
+
+    /**
+     * Drain all of the ring buffers and write their TransactionTraces out to disk.
+     * @return the number of TransactionTraces that were written
+     */
+    public synchronized int flush() {
+        if (this.profiler != null) this.profiler.trace_flush.start();
+        int ctr = 0;
+        for (TraceRingBuffer ring : this.rings) {
+            // Don't let a busy partition keep us in here forever
+            int limit = ring.capacity();
+            TransactionTrace txn_trace = null;
+            while (limit-- > 0 && (txn_trace = ring.poll()) != null) {
+                if (this.write(txn_trace)) ctr++;
+            } // WHILE
+            this.updateProfiler(ring);
+        } // FOR
+        if (this.writer != null && this.writer.getBytesWritten() >= this.max_file_size) {
+            this.rotate();
+        }
+        if (this.profiler != null) this.profiler.trace_flush.stop();
+        if (trace.val && ctr > 0) LOG.trace(String.format("Wrote %d sampled txns", ctr));
+        return (ctr);
+    }
+
+    private boolean write(TransactionTrace txn_trace) {
+        if (this.output_path == null) return (false);
+        try {
+            if (this.writer == null) {
+                File f = new File(String.format("%s-%04d%s", this.output_path.getPath(),
+                                                this.output_files.size(), FILE_EXTENSION));
+                FileUtil.makeDirIfNotExists(f.getParent());
+                this.writer = new BinaryWorkloadWriter(f);
+                this.output_files.add(f);
+                if (debug.val) LOG.debug("Started new sampled workload trace file " + f);
+            }
+            this.writer.write(txn_trace);
+        } catch (IOException ex) {
+            LOG.warn("Failed to write " + txn_trace + " to sampled workload trace", ex);
+            return (false);
+        }
+        this.written++;
+        return (true);
+    }
+
+    private void rotate() {
+        if (this.writer == null) return;
+        try {
+            this.writer.close();
+            if (debug.val)
+                LOG.debug(String.format("Closed sampled workload trace file %s [txns=%d, bytes=%d]",
+                          this.writer.getOutputPath(), this.writer.getTransactionCount(),
+                          this.writer.getBytesWritten()));
+        } catch (IOException ex) {
+            LOG.warn("Failed to close sampled workload trace file " + this.writer.getOutputPath(), ex);
+        }
+        this.writer = null;
+    }
+
+    private void updateProfiler(TraceRingBuffer ring) {
+        if (this.profiler == null) return;
+        long sampled = ring.sampled;
+        long dropped = ring.dropped;
+        long hook_time = ring.hook_time;
+        this.profiler.trace_record.appendTime(0, hook_time - ring.last_hook_time, (int)(sampled - ring.last_sampled));
+        this.profiler.trace_dropped.appendTime(0, 0, (int)(dropped - ring.last_dropped));
+        ring.last_sampled = sampled;
+        ring.last_dropped = dropped;
+        ring.last_hook_time = hook_time;
+    }
+
+    @Override
+    public void prepareShutdown(boolean error) {
+        this.stop = true;
+    }
+
+    /**
+     * Stop the flush thread, write out anything that is still buffered,
+     * and close the current output file.
+     */
+    @Override
+    public void shutdown() {
+        this.stop = true;
+        Thread t = this.self;
+        if (t != null && t != Thread.currentThread()) {
+            t.interrupt();
+            try {
+                t.join();
+            } catch (InterruptedException ex) {
+                // Ignore
+            }
+        }
+        synchronized (this) {
+            this.flush();
+            this.rotate();
+        } // SYNCH
+    }
+
+    @Override
+    public boolean isShuttingDown() {
+        return (this.stop);
+    }
+
+    // ----------------------------------------------------------------------------
+    // STATISTICS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Returns the total number of txns that were recorded and queued to be written out
+     */
+    public long getSampledCount() {
+        long total = 0;
+        for (TraceRingBuffer ring : this.rings) {
+            total += ring.sampled;
+        } // FOR
+        return (total);
+    }
+
+    /**
+     * Returns the total number of txns that were sampled but then dropped
+     * because their thread's buffer was full
+     */
+    public long getDroppedCount() {
+        long total = 0;
+        for (TraceRingBuffer ring : this.rings) {
+            total += ring.dropped;
+        } // FOR
+        return (total);
+    }
+
+    /**
+     * Returns the total number of txns that have been written out to disk
+     */
+    public synchronized long getWrittenCount() {
+        return (this.written);
+    }
+
+    /**
+     * Returns all of the output files that have been created so far
+     */
+    public synchronized List<File> getOutputFiles() {
+        return (new ArrayList<File>(this.output_files));
+    }
+}
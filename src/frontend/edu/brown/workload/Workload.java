@@ -365,7 +365,11 @@ public class Workload implements WorkloadTrace, Iterable<TransactionTrace> {
             LOG.debug("Reading workload trace from file '" + input_path + "'");
         this.input_path = input_path;
         long start = System.currentTimeMillis();
-        
+
+        if (BinaryWorkloadFormat.isBinaryWorkload(input_path)) {
+            return (this.loadBinary(input_path, catalog_db, filter, start));
+        }
+
         // HACK: Throw out traces unless they have the procedures that we're looking for
         Pattern temp_pattern = null;
         if (filter != null) {
@@ -423,14 +427,56 @@ public class Workload implements WorkloadTrace, Iterable<TransactionTrace> {
         
         long stop = System.currentTimeMillis();
         LOG.info(String.format("Loaded %d txns / %d queries from '%s' in %.1f seconds using %d threads",
-                 this.txn_traces.size(), counters[2].get(), this.input_path.getName(), (stop - start) / 1000d, num_threads));
-        if (counters[1].get() != counters[3].get() || counters[2].get() != counters[4].get()) {
+                 this.txn_traces.size(), counters[WorkloadUtil.QUERY_CTR_IDX].get(),
+                 this.input_path.getName(), (stop - start) / 1000d, num_threads));
+        if (counters[WorkloadUtil.TXN_CTR_IDX].get() != counters[WorkloadUtil.WEIGHTED_TXN_CTR_IDX].get() ||
+            counters[WorkloadUtil.QUERY_CTR_IDX].get() != counters[WorkloadUtil.WEIGHTED_QUERY_CTR_IDX].get()) {
             LOG.info(String.format("Weighted Workload: %d txns / %d queries",
-                     counters[3].get(), counters[4].get()));
+                     counters[WorkloadUtil.WEIGHTED_TXN_CTR_IDX].get(),
+                     counters[WorkloadUtil.WEIGHTED_QUERY_CTR_IDX].get()));
         }
         return (this);
     }
-    
+
+    /**
+     * Load a workload trace that was written by the BinaryWorkloadWriter
+     * @param input_path
+     * @param catalog_db
+     * @param filter
+     * @param start
+     * @throws Exception
+     */
+    private Workload loadBinary(File input_path, Database catalog_db, Filter filter, long start) throws Exception {
+        final AtomicInteger counters[] = new AtomicInteger[] {
+            new AtomicInteger(0), // ELEMENT COUNTER
+            new AtomicInteger(0), // TXN COUNTER
+            new AtomicInteger(0), // QUERY COUNTER
+            new AtomicInteger(0), // WEIGHTED TXN COUNTER
+            new AtomicInteger(0), // WEIGHTED QUERY COUNTER
+        };
+        int num_threads = ThreadUtil.getMaxGlobalThreads();
+
+        BinaryWorkloadReader reader = new BinaryWorkloadReader(input_path);
+        try {
+            reader.load(this, catalog_db, filter, counters, num_threads);
+        } finally {
+            reader.close();
+        }
+        VerifyWorkload.verify(catalog_db, this);
+
+        long stop = System.currentTimeMillis();
+        LOG.info(String.format("Loaded %d txns / %d queries from binary trace '%s' in %.1f seconds using %d threads",
+                 this.txn_traces.size(), counters[WorkloadUtil.QUERY_CTR_IDX].get(),
+                 input_path.getName(), (stop - start) / 1000d, num_threads));
+        if (counters[WorkloadUtil.TXN_CTR_IDX].get() != counters[WorkloadUtil.WEIGHTED_TXN_CTR_IDX].get() ||
+            counters[WorkloadUtil.QUERY_CTR_IDX].get() != counters[WorkloadUtil.WEIGHTED_QUERY_CTR_IDX].get()) {
+            LOG.info(String.format("Weighted Workload: %d txns / %d queries",
+                     counters[WorkloadUtil.WEIGHTED_TXN_CTR_IDX].get(),
+                     counters[WorkloadUtil.WEIGHTED_QUERY_CTR_IDX].get()));
+        }
+        return (this);
+    }
+
     // ----------------------------------------------------------
     // ITERATORS METHODS
     // ----------------------------------------------------------
@@ -34,11 +34,11 @@ public abstract class WorkloadUtil {
         LoggerUtil.attachObserver(LOG, debug, trace);
     }
     
-    private static final int ELEMENT_CTR_IDX            = 0;
-    private static final int TXN_CTR_IDX                = ELEMENT_CTR_IDX + 1;
-    private static final int QUERY_CTR_IDX              = ELEMENT_CTR_IDX + 2;
-    private static final int WEIGHTED_TXN_CTR_IDX       = ELEMENT_CTR_IDX + 3;
-    private static final int WEIGHTED_QUERY_CTR_IDX     = ELEMENT_CTR_IDX + 4;
+    static final int ELEMENT_CTR_IDX            = 0;
+    static final int TXN_CTR_IDX                = ELEMENT_CTR_IDX + 1;
+    static final int QUERY_CTR_IDX              = ELEMENT_CTR_IDX + 2;
+    static final int WEIGHTED_TXN_CTR_IDX       = ELEMENT_CTR_IDX + 3;
+    static final int WEIGHTED_QUERY_CTR_IDX     = ELEMENT_CTR_IDX + 4;
 
 
     /**
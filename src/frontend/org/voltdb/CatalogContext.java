@@ -21,9 +21,8 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.voltdb.catalog.Catalog;
 import org.voltdb.catalog.CatalogMap;
@@ -39,6 +38,8 @@ import org.voltdb.catalog.Table;
 import org.voltdb.utils.JarClassLoader;
 
 import edu.brown.catalog.CatalogUtil;
+import edu.brown.catalog.PlanFragmentIdGenerator;
+import edu.brown.catalog.PlanFragmentIndex;
 import edu.brown.mappings.ParameterMappingsSet;
 import edu.brown.mappings.ParametersUtil;
 import edu.brown.utils.PartitionSet;
@@ -95,11 +96,15 @@ public class CatalogContext {
     private final Collection<Procedure> mrProcedures = new ArrayList<Procedure>();
     private final Procedure proceduresArray[];
     
+    /** Lower-case Procedure name -> Procedure */
+    private final Map<String, Procedure> procedureNameXref = new HashMap<String, Procedure>();
+    
     // ------------------------------------------------------------
     // STATEMENTS
     // ------------------------------------------------------------
     
-    private final Map<Integer, Statement> stmtIdXref = new HashMap<Integer, Statement>();
+    /** StatementId -> Statement */
+    private final Statement statementsArray[];
     
     // ------------------------------------------------------------
     // TABLES
@@ -112,15 +117,41 @@ public class CatalogContext {
     private final Collection<Table> replicatedTables = new ArrayList<Table>();
     private final Collection<Table> evictableTables = new ArrayList<Table>();
     
+    /** TableId -> Table */
+    private final Table tablesArray[];
+    
+    /** Lower-case Table name -> Table */
+    private final Map<String, Table> tableNameXref = new HashMap<String, Table>();
+    
     // ------------------------------------------------------------
     // PLANFRAGMENTS
     // ------------------------------------------------------------
     
+    /**
+     * PlanFragmentIndex -> PlanFragment
+     * @see PlanFragmentIdGenerator#getPlanFragmentIndex(long)
+     */
+    private final PlanFragment fragmentsArray[];
+    
+    /**
+     * PlanFragmentIndex -> TableIds Read/Written
+     * These are loaded from the PlanFragmentIndex in the catalog jar if it has one.
+     * Otherwise we will compute them the first time that somebody asks for them.
+     */
+    private final PlanFragmentIndex.Entry fragmentTablesArray[];
+    
+    /**
+     * PlanFragmentId -> PlanFragment
+     * Catalogs from older compilers may not have dense PlanFragment ids, so
+     * the fragments whose index is already taken in fragmentsArray go here.
+     */
+    private final Map<Long, PlanFragment> fragmentsOverflow = new HashMap<Long, PlanFragment>();
+    
     /**
      * PlanFragmentId -> TableIds Read/Written
+     * The same as fragmentTablesArray but for the fragments in fragmentsOverflow.
      */
-    private final Map<Long, int[]> fragmentReadTables = new HashMap<Long, int[]>(); 
-    private final Map<Long, int[]> fragmentWriteTables = new HashMap<Long, int[]>();
+    private final Map<Long, PlanFragmentIndex.Entry> fragmentTablesOverflow = new ConcurrentHashMap<Long, PlanFragmentIndex.Entry>();
     
     public CatalogContext(Catalog catalog) {
         this(catalog, (File)null);
@@ -157,8 +188,20 @@ public class CatalogContext {
         // ------------------------------------------------------------
         this.procedures = database.getProcedures();
         this.proceduresArray = new Procedure[this.procedures.size()+1];
+        int maxStmtId = 0;
+        int maxFragIndex = 0;
         for (Procedure proc : this.procedures) {
             this.proceduresArray[proc.getId()] = proc;
+            this.procedureNameXref.put(proc.getName().toLowerCase(), proc);
+            for (Statement stmt : proc.getStatements()) {
+                maxStmtId = Math.max(maxStmtId, stmt.getId());
+                for (PlanFragment frag : stmt.getFragments()) {
+                    maxFragIndex = Math.max(maxFragIndex, PlanFragmentIdGenerator.getPlanFragmentIndex(frag.getId()));
+                } // FOR
+                for (PlanFragment frag : stmt.getMs_fragments()) {
+                    maxFragIndex = Math.max(maxFragIndex, PlanFragmentIdGenerator.getPlanFragmentIndex(frag.getId()));
+                } // FOR
+            } // FOR
             if (proc.getSystemproc()) {
                 this.sysProcedures.add(proc);
             }
@@ -196,7 +239,10 @@ public class CatalogContext {
         // ------------------------------------------------------------
         // TABLES
         // ------------------------------------------------------------
+        this.tablesArray = new Table[this.database.getTables().size()+1];
         for (Table tbl : this.database.getTables()) {
+            this.tablesArray[tbl.getRelativeIndex()] = tbl;
+            this.tableNameXref.put(tbl.getName().toLowerCase(), tbl);
             // SYSTEM TABLE
             if (tbl.getSystable()) {
                 this.sysTables.add(tbl);
@@ -222,32 +268,93 @@ public class CatalogContext {
         } // FOR
         this.numberOfTables = database.getTables().size();
         
-        // PLANFRAGMENTS
+        // ------------------------------------------------------------
+        // STATEMENTS + PLANFRAGMENTS
+        // ------------------------------------------------------------
+        this.statementsArray = new Statement[maxStmtId+1];
+        this.fragmentsArray = new PlanFragment[maxFragIndex+1];
+        this.fragmentTablesArray = new PlanFragmentIndex.Entry[maxFragIndex+1];
         this.initPlanFragments();
     }
     
     private void initPlanFragments() {
-        Set<PlanFragment> allFrags = new HashSet<PlanFragment>();
         for (Procedure proc : database.getProcedures()) {
             for (Statement stmt : proc.getStatements()) {
-                allFrags.clear();
-                allFrags.addAll(stmt.getFragments());
-                allFrags.addAll(stmt.getMs_fragments());
-                for (PlanFragment frag : allFrags) {
-                    Collection<Table> tables = CatalogUtil.getReferencedTables(frag);
-                    int tableIds[] = new int[tables.size()];
-                    int i = 0;
-                    for (Table tbl : tables) {
-                        tableIds[i++] = tbl.getRelativeIndex();
-                    } // FOR
-                    if (frag.getReadonly()) {
-                        this.fragmentReadTables.put(Long.valueOf(frag.getId()), tableIds);
-                    } else {
-                        this.fragmentWriteTables.put(Long.valueOf(frag.getId()), tableIds);
-                    }
-                } // FOR (frag)
+                this.statementsArray[stmt.getId()] = stmt;
+                for (PlanFragment frag : stmt.getFragments()) {
+                    this.addPlanFragment(frag);
+                } // FOR
+                for (PlanFragment frag : stmt.getMs_fragments()) {
+                    this.addPlanFragment(frag);
+                } // FOR
             } // FOR (stmt)
         } // FOR (proc)
+        
+        // Avoid deserializing every plan if the compiler already did the work for us 
+        if (this.jarPath != null) {
+            for (PlanFragmentIndex.Entry entry : PlanFragmentIndex.load(this.database, this.jarPath).values()) {
+                if (this.fragmentsOverflow.containsKey((long)entry.fragmentId)) {
+                    this.fragmentTablesOverflow.put((long)entry.fragmentId, entry);
+                } else {
+                    this.fragmentTablesArray[PlanFragmentIdGenerator.getPlanFragmentIndex(entry.fragmentId)] = entry;
+                }
+            } // FOR
+        }
+    }
+    
+    private void addPlanFragment(PlanFragment frag) {
+        int idx = PlanFragmentIdGenerator.getPlanFragmentIndex(frag.getId());
+        if (this.fragmentsArray[idx] == null || this.fragmentsArray[idx].getId() == frag.getId()) {
+            this.fragmentsArray[idx] = frag;
+        } else {
+            this.fragmentsOverflow.put((long)frag.getId(), frag);
+        }
+    }
+    
+    /**
+     * Return the cached tableIds for the given PlanFragment. If this is the
+     * first time that somebody has asked for them, then we will compute them.
+     * @param planFragmentId
+     * @return
+     */
+    private PlanFragmentIndex.Entry getPlanFragmentTables(long planFragmentId) {
+        int idx = PlanFragmentIdGenerator.getPlanFragmentIndex(planFragmentId);
+        if (idx >= this.fragmentTablesArray.length) return (null);
+        PlanFragment frag = this.fragmentsArray[idx];
+        if (frag == null || frag.getId() != planFragmentId) {
+            return (this.getOverflowPlanFragmentTables(planFragmentId));
+        }
+        PlanFragmentIndex.Entry entry = this.fragmentTablesArray[idx];
+        if (entry == null) {
+            // The plan deserialization caches are not thread-safe
+            synchronized (this.fragmentTablesArray) {
+                entry = this.fragmentTablesArray[idx];
+                if (entry == null) {
+                    entry = new PlanFragmentIndex.Entry(frag.getId(), frag.getReadonly(),
+                                                        PlanFragmentIndex.getReferencedTableIds(frag));
+                    this.fragmentTablesArray[idx] = entry;
+                }
+            } // SYNCH
+        }
+        return (entry.fragmentId == planFragmentId ? entry : null);
+    }
+    
+    private PlanFragmentIndex.Entry getOverflowPlanFragmentTables(long planFragmentId) {
+        if (this.fragmentsOverflow.isEmpty()) return (null);
+        PlanFragment frag = this.fragmentsOverflow.get(planFragmentId);
+        if (frag == null) return (null);
+        PlanFragmentIndex.Entry entry = this.fragmentTablesOverflow.get(planFragmentId);
+        if (entry == null) {
+            synchronized (this.fragmentTablesArray) {
+                entry = this.fragmentTablesOverflow.get(planFragmentId);
+                if (entry == null) {
+                    entry = new PlanFragmentIndex.Entry(frag.getId(), frag.getReadonly(),
+                                                        PlanFragmentIndex.getReferencedTableIds(frag));
+                    this.fragmentTablesOverflow.put(planFragmentId, entry);
+                }
+            } // SYNCH
+        }
+        return (entry);
     }
     
 
@@ -366,7 +473,11 @@ public class CatalogContext {
      * @param tableName
      */
     public Table getTableByName(String tableName) {
-        return (this.database.getTables().getIgnoreCase(tableName));
+        Table tbl = this.database.getTables().get(tableName);
+        if (tbl == null) {
+            tbl = this.tableNameXref.get(tableName.toLowerCase());
+        }
+        return (tbl);
     }
     
     /**
@@ -374,14 +485,11 @@ public class CatalogContext {
      * @param tableId
      */
     public Table getTableById(int tableId) {
-        // HACK HACK HACK
-        assert(tableId-1 >= 0);
-        Table tables[] = this.database.getTables().values();
-        if (tableId-1 >= tables.length) {
+        if (tableId <= 0 || tableId >= this.tablesArray.length) {
             String msg = "Invalid tableId '" + tableId + "'";
             throw new IllegalArgumentException(msg);
         }
-        return (tables[tableId-1]);
+        return (this.tablesArray[tableId]);
     }
     
     /**
@@ -437,6 +545,19 @@ public class CatalogContext {
         return (null);
     }
     
+    /**
+     * Return the Procedure with the given name (ignoring case)
+     * @param procName
+     * @return
+     */
+    public Procedure getProcedureByName(String procName) {
+        Procedure proc = this.procedures.get(procName);
+        if (proc == null) {
+            proc = this.procedureNameXref.get(procName.toLowerCase());
+        }
+        return (proc);
+    }
+    
     /**
      * Return all of the regular transactional Procedures in the catalog
      */
@@ -463,32 +584,39 @@ public class CatalogContext {
     // ------------------------------------------------------------
     
     public Statement getStatementById(int stmtId) {
-        // HACK: The first call will actually build the cache
-        if (this.stmtIdXref.isEmpty()) {
-            synchronized (this.stmtIdXref) {
-                if (this.stmtIdXref.isEmpty()) {
-                    for (Procedure catalog_proc : this.procedures.values()) {
-                        for (Statement catalog_stmt : catalog_proc.getStatements().values()) {
-                            this.stmtIdXref.put(catalog_stmt.getId(), catalog_stmt);
-                        } // FOR (stmt)
-                    } // FOR (proc)
-                }
-            } // SYNCH
+        if (stmtId >= 0 && stmtId < this.statementsArray.length) {
+            return (this.statementsArray[stmtId]);
         }
-        return (this.stmtIdXref.get(stmtId));
+        return (null);
     }
     
     // ------------------------------------------------------------
     // PLANFRAGMENTS
     // ------------------------------------------------------------
     
+    /**
+     * Return the PlanFragment for the given id
+     * @param planFragmentId
+     * @return
+     */
+    public PlanFragment getPlanFragmentById(long planFragmentId) {
+        int idx = PlanFragmentIdGenerator.getPlanFragmentIndex(planFragmentId);
+        if (idx < this.fragmentsArray.length) {
+            PlanFragment frag = this.fragmentsArray[idx];
+            if (frag != null && frag.getId() == planFragmentId) return (frag);
+        }
+        if (this.fragmentsOverflow.isEmpty()) return (null);
+        return (this.fragmentsOverflow.get(planFragmentId));
+    }
+    
     /**
      * Return the tableIds that are read by this PlanFragment
      * @param planFragmentId
      * @return
      */
-    public int[] getReadTableIds(Long planFragmentId) {
-        return (this.fragmentReadTables.get(planFragmentId));
+    public int[] getReadTableIds(long planFragmentId) {
+        PlanFragmentIndex.Entry entry = this.getPlanFragmentTables(planFragmentId);
+        return (entry != null && entry.readonly ? entry.tableIds : null);
     }
 
     /**
@@ -496,7 +624,8 @@ public class CatalogContext {
      * @param planFragmentId
      * @return
      */
-    public int[] getWriteTableIds(Long planFragmentId) {
-        return (this.fragmentWriteTables.get(planFragmentId));
+    public int[] getWriteTableIds(long planFragmentId) {
+        PlanFragmentIndex.Entry entry = this.getPlanFragmentTables(planFragmentId);
+        return (entry != null && entry.readonly == false ? entry.tableIds : null);
     }
 }
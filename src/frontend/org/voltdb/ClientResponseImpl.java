@@ -456,5 +456,68 @@ public class ClientResponseImpl implements FastSerializable, ClientResponse {
         b.put(24, (byte)status.ordinal()); // 1 + 1 + 8 + 8 + 1 + 1 + 4 = 24
     }
     
+    // ----------------------------------------------------------------------------
+    // BATCHED RESPONSES
+    // ----------------------------------------------------------------------------
+    
+    /**
+     * The version byte for a message that contains multiple ClientResponses.
+     * The responses for a StoredProcedureInvocationBatch that are ready at the
+     * same time are sent back together in one of these.
+     * <B>Layout:</B> byte BATCH_VERSION, int numResponses, { int length, ClientResponseImpl } x numResponses
+     */
+    public static final byte BATCH_VERSION = -1;
+    
+    /**
+     * Returns true if the given message contains multiple ClientResponses
+     * @param b
+     * @return
+     */
+    public static boolean isBatch(ByteBuffer b) {
+        return (b.remaining() > 0 && b.get(b.position()) == BATCH_VERSION);
+    }
+    
+    /**
+     * Serialize multiple ClientResponses into a single message
+     * @param out
+     * @param responses
+     * @throws IOException
+     */
+    public static void writeBatch(FastSerializer out, ClientResponseImpl responses[]) throws IOException {
+        out.writeByte(BATCH_VERSION);
+        out.writeInt(responses.length);
+        FastSerializer fs = new FastSerializer();
+        for (ClientResponseImpl cresponse : responses) {
+            fs.clear();
+            cresponse.writeExternal(fs);
+            ByteBuffer b = fs.getBBContainer().b;
+            out.writeInt(b.remaining());
+            out.write(b);
+        } // FOR
+    }
+    
+    /**
+     * Split a message created by {@link #writeBatch(FastSerializer, ClientResponseImpl[])}
+     * into the serialized ClientResponses without copying them.
+     * @param b
+     * @return
+     */
+    public static ByteBuffer[] splitBatch(ByteBuffer b) {
+        assert(isBatch(b));
+        ByteBuffer dup = b.duplicate();
+        final int limit = dup.limit();
+        dup.get(); // BATCH_VERSION
+        ByteBuffer result[] = new ByteBuffer[dup.getInt()];
+        for (int i = 0; i < result.length; i++) {
+            int length = dup.getInt();
+            int start = dup.position();
+            dup.limit(start + length);
+            result[i] = dup.slice();
+            dup.limit(limit);
+            dup.position(start + length);
+        } // FOR
+        return (result);
+    }
+    
     // ----------------------------------------------------------------------------
 }
@@ -34,14 +34,58 @@ import edu.brown.utils.StringUtil;
 /**
  * The ordered set of parameters of the proper types that is passed into
  * a stored procedure OR a plan fragment.
+ * <P>
+ * The serialized form of the parameters is cached in a buffer that is owned by
+ * the ParameterSet. The bytes are captured the second time that the same values
+ * are written out, so a ParameterSet that is only sent to the EE once never pays
+ * for the copy, while sending it again to the EE or to a remote site just copies
+ * the bytes. Calling setParameters() with values that are equal to the current
+ * ones keeps the cached bytes, which is what happens when a procedure executes the
+ * same statement with the same arguments in a later batch. The buffer is reused
+ * when the values change, so pooled ParameterSets do not allocate once they have
+ * grown to fit their largest parameters.
+ * <P>
+ * A ParameterSet can also be created from serialized bytes that it only decodes
+ * if somebody asks for the Java objects. If you change the array returned by
+ * toArray(), then you have to call setParameters() again with a new array.
  */
 public class ParameterSet implements FastSerializable, Poolable {
 
     static final byte ARRAY = -99;
     public static final ParameterSet EMPTY = new ParameterSet();
+    static {
+        // Zero parameters
+        EMPTY.m_buffer = new byte[]{ 0, 0 };
+        EMPTY.m_serializedLength = 2;
+    }
     
     private final boolean m_serializingToEE;
-    private Object m_params[] = new Object[0];
+    
+    /**
+     * The parameters. This will be null if we were created from 
+     * serialized bytes and nobody has asked for them yet.
+     * These are volatile because a batch's ParameterSets can be shared
+     * by all of the PartitionExecutors at a site.
+     */
+    private volatile Object m_params[] = new Object[0];
+    
+    /**
+     * The buffer that holds the serialized form of m_params. This is
+     * reused every time that the values change.
+     */
+    private byte m_buffer[];
+    
+    /**
+     * The number of bytes in m_buffer that are the serialized form of m_params.
+     * This is -1 if the current values have not been captured.
+     */
+    private volatile int m_serializedLength = -1;
+    
+    /**
+     * Whether the current values have already been written out once. We only
+     * capture the bytes when they are written out again.
+     */
+    private volatile boolean m_written = false;
     
     public ParameterSet() {
         this(false);
@@ -63,42 +107,163 @@ public class ParameterSet implements FastSerializable, Poolable {
     
     @Override
     public void finish() {
-        this.m_params = null;
+        this.clear();
     }
 
     /**
      * Sets the internal array to params. Note: this does *not* copy the argument.
+     * If the new values are the same as the current ones, then we keep the
+     * serialized bytes that we already have.
      */
     public ParameterSet setParameters(Object... params) {
+        if (sameValues(m_params, params) == false) {
+            this.invalidate();
+        }
         this.m_params = params;
         return (this);
     }
     
     /**
-     * Set the internal array of this ParameterSet to the same as the one given
+     * Set the internal array of this ParameterSet to the same as the one given.
+     * If the other ParameterSet was already serialized, then we will copy its bytes.
      * @param other
      * @return
      */
     public ParameterSet setParameters(ParameterSet other) {
-        this.m_params = other.m_params;
+        Object params[] = other.m_params;
+        if (params != null && sameValues(m_params, params)) {
+            this.m_params = params;
+            return (this);
+        }
+        
+        this.invalidate();
+        if (m_serializingToEE == other.m_serializingToEE) {
+            synchronized (other) {
+                int length = other.m_serializedLength;
+                if (length >= 0) {
+                    synchronized (this) {
+                        this.ensureCapacity(length);
+                        System.arraycopy(other.m_buffer, 0, m_buffer, 0, length);
+                        m_written = true;
+                        m_serializedLength = length;
+                    } // SYNCH
+                }
+            } // SYNCH
+        }
+        this.m_params = (params != null || m_serializedLength >= 0 ? params : other.toArray());
+        return (this);
+    }
+    
+    /**
+     * Set this ParameterSet to the serialized parameters in the given buffer.
+     * The buffer must contain exactly one ParameterSet. The parameters are not
+     * deserialized until somebody calls toArray(), so if they are only going
+     * to be passed to the EE then we never have to create the Java objects.
+     * @param buffer
+     * @return
+     */
+    public synchronized ParameterSet setSerializedParameters(ByteBuffer buffer) {
+        int length = buffer.remaining();
+        this.ensureCapacity(length);
+        buffer.get(m_buffer, 0, length);
+        m_params = null;
+        m_written = true;
+        m_serializedLength = length;
         return (this);
     }
     
+    /**
+     * Returns true if this ParameterSet has a cached serialized form
+     */
+    public boolean isSerialized() {
+        return (this.m_serializedLength >= 0);
+    }
+    
+    /**
+     * Returns true if the two arrays have the same values. We only compare
+     * immutable values. Anything else (e.g., arrays) is never the same because
+     * its contents could have been changed since it was serialized. The same
+     * goes for passing in the same array again.
+     */
+    private static boolean sameValues(Object params0[], Object params1[]) {
+        if (params0 == null || params0 == params1 || params0.length != params1.length) return (false);
+        for (int i = 0; i < params0.length; i++) {
+            Object obj0 = params0[i];
+            Object obj1 = params1[i];
+            if (obj0 == null || obj1 == null) {
+                if (obj0 != obj1) return (false);
+                continue;
+            }
+            Class<?> cls = obj0.getClass();
+            if (cls != obj1.getClass()) return (false);
+            if (cls == Long.class || cls == Integer.class || cls == Short.class ||
+                cls == Byte.class || cls == Double.class || cls == Float.class ||
+                cls == String.class || cls == BigDecimal.class || cls == TimestampType.class) {
+                if (obj0 != obj1 && obj0.equals(obj1) == false) return (false);
+            } else {
+                return (false);
+            }
+        } // FOR
+        return (true);
+    }
+    
+    private synchronized void invalidate() {
+        m_serializedLength = -1;
+        m_written = false;
+    }
+    
+    /**
+     * Make sure that our buffer can hold the given number of bytes. The
+     * caller must be holding the lock for this ParameterSet.
+     */
+    private void ensureCapacity(int length) {
+        if (m_buffer == null || m_buffer.length < length) {
+            m_buffer = new byte[length];
+        }
+    }
+    
     @Override
     public int hashCode() {
-        return Arrays.hashCode(m_params);
+        return Arrays.hashCode(this.toArray());
     }
 
     public void clear() {
         this.m_params = null;
+        this.invalidate();
     }
     
     public Object[] toArray() {
-        return m_params;
+        Object params[] = m_params;
+        if (params == null) {
+            synchronized (this) {
+                params = m_params;
+                if (params == null) {
+                    int length = m_serializedLength;
+                    if (length < 0) return (null);
+                    FastDeserializer in = new FastDeserializer(ByteBuffer.wrap(m_buffer, 0, length));
+                    try {
+                        params = readParameters(in);
+                    } catch (IOException ex) {
+                        throw new RuntimeException("Failed to deserialize " + this.getClass().getSimpleName(), ex);
+                    }
+                    m_params = params;
+                }
+            } // SYNCH
+        }
+        return (params);
     }
     
     public int size() {
-        return m_params.length;
+        Object params[] = m_params;
+        if (params == null) {
+            synchronized (this) {
+                if (m_serializedLength >= 2) {
+                    // The number of parameters is the first short
+                    return (((m_buffer[0] & 0xFF) << 8) | (m_buffer[1] & 0xFF));
+                }
+            } // SYNCH
+        }
+        return params.length;
     }
 
     static Object getParameterAtIndex(int partitionIndex, ByteBuffer unserializedParams) throws IOException {
@@ -118,19 +283,56 @@ public class ParameterSet implements FastSerializable, Poolable {
 
     @Override
     public void readExternal(FastDeserializer in) throws IOException {
+        this.invalidate();
+        m_params = readParameters(in);
+    }
+    
+    private static Object[] readParameters(FastDeserializer in) throws IOException {
         int paramLen = in.readShort();
-        m_params = new Object[paramLen];
-
+        Object params[] = new Object[paramLen];
         for (int i = 0; i < paramLen; i++) {
-            m_params[i] = readOneParameter(in);
+            params[i] = readOneParameter(in);
         }
+        return (params);
     }
 
     @Override
     public void writeExternal(FastSerializer out) throws IOException {
-        out.writeShort(m_params.length);
+        if (m_serializedLength >= 0) {
+            synchronized (this) {
+                int length = m_serializedLength;
+                if (length >= 0) {
+                    out.write(m_buffer, 0, length);
+                    return;
+                }
+            } // SYNCH
+        }
+        
+        // The first time that these values are written out we just encode them.
+        // If they get written out again, then we keep a copy of the bytes so
+        // that we don't have to serialize them a third time.
+        Object params[] = m_params;
+        boolean capture = m_written;
+        int start = out.getPosition();
+        writeParameters(out, params);
+        synchronized (this) {
+            if (m_params == params) {
+                if (capture) {
+                    int length = out.getPosition() - start;
+                    this.ensureCapacity(length);
+                    out.copyTo(start, m_buffer, 0, length);
+                    m_serializedLength = length;
+                } else {
+                    m_written = true;
+                }
+            }
+        } // SYNCH
+    }
+    
+    private void writeParameters(FastSerializer out, Object params[]) throws IOException {
+        out.writeShort(params.length);
 
-        for (Object obj : m_params) {
+        for (Object obj : params) {
             if (obj == null) {
                 VoltType type = VoltType.NULL;
                 out.writeByte(type.getValue());
@@ -255,7 +457,7 @@ public class ParameterSet implements FastSerializable, Poolable {
     public String toString() {
         return String.format("%s{%s}",
                 this.getClass().getSimpleName(),
-                StringUtil.toString(m_params, true, true));
+                StringUtil.toString(this.toArray(), true, true));
     }
     
     static private Object readOneParameter(FastDeserializer in) throws IOException {
@@ -0,0 +1,121 @@
+package org.voltdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.FastSerializable;
+import org.voltdb.messaging.FastSerializer;
+
+/**
+ * A group of StoredProcedureInvocations that the client library sends
+ * to the cluster in a single network message. The invocations do not need
+ * to be for the same procedure.
+ * <B>Layout:</B>
+ * <pre>
+ * short BATCH_MARKER
+ * int numInvocations
+ * { int length, StoredProcedureInvocation } x numInvocations
+ * </pre>
+ * The marker is in the same place as the restart counter of a
+ * single StoredProcedureInvocation, which is never negative.
+ */
+public class StoredProcedureInvocationBatch implements FastSerializable {
+
+    public static final short BATCH_MARKER = -1;
+
+    private StoredProcedureInvocation invocations[];
+
+    public StoredProcedureInvocationBatch() {
+        // Needed for FastDeserializer
+    }
+
+    public StoredProcedureInvocationBatch(StoredProcedureInvocation...invocations) {
+        this.invocations = invocations;
+    }
+
+    public StoredProcedureInvocation[] getInvocations() {
+        return (this.invocations);
+    }
+
+    public int size() {
+        return (this.invocations.length);
+    }
+
+    @Override
+    public void readExternal(FastDeserializer in) throws IOException {
+        short marker = in.readShort();
+        if (marker != BATCH_MARKER) {
+            throw new IOException("Invalid StoredProcedureInvocationBatch marker " + marker);
+        }
+        this.invocations = new StoredProcedureInvocation[in.readInt()];
+        for (int i = 0; i < this.invocations.length; i++) {
+            int length = in.readInt();
+            FastDeserializer fds = new FastDeserializer(in.readBuffer(length));
+            this.invocations[i] = fds.readObject(StoredProcedureInvocation.class);
+        } // FOR
+    }
+
+    @Override
+    public void writeExternal(FastSerializer out) throws IOException {
+        out.writeShort(BATCH_MARKER);
+        out.writeInt(this.invocations.length);
+        FastSerializer fs = new FastSerializer();
+        for (StoredProcedureInvocation invocation : this.invocations) {
+            fs.clear();
+            invocation.writeExternal(fs);
+            ByteBuffer b = fs.getBBContainer().b;
+            out.writeInt(b.remaining());
+            out.write(b);
+        } // FOR
+    }
+
+    // ----------------------------------------------------------------------------
+    // QUICK ACCESS METHODS
+    // ----------------------------------------------------------------------------
+
+    /**
+     * Returns true if the given serialized request is a batch of invocations
+     * instead of a single StoredProcedureInvocation
+     * @param buffer
+     * @return
+     */
+    public static boolean isBatch(ByteBuffer buffer) {
+        return (buffer.limit() >= 6 && buffer.getShort(0) == BATCH_MARKER);
+    }
+
+    /**
+     * Returns the number of invocations in the given serialized batch
+     * @param buffer
+     * @return
+     */
+    public static int getInvocationCount(ByteBuffer buffer) {
+        assert(isBatch(buffer));
+        return (buffer.getInt(2));
+    }
+
+    /**
+     * Split a serialized batch into the serialized StoredProcedureInvocations
+     * without having to deserialize them. Each of the returned buffers shares
+     * the given buffer's contents and can be used with the static methods
+     * in {@link StoredProcedureInvocation}.
+     * @param buffer
+     * @return
+     */
+    public static ByteBuffer[] split(ByteBuffer buffer) {
+        assert(isBatch(buffer));
+        ByteBuffer dup = buffer.duplicate();
+        final int limit = dup.limit();
+        dup.position(2);
+        ByteBuffer result[] = new ByteBuffer[dup.getInt()];
+        for (int i = 0; i < result.length; i++) {
+            int length = dup.getInt();
+            int start = dup.position();
+            dup.limit(start + length);
+            result[i] = dup.slice();
+            dup.limit(limit);
+            dup.position(start + length);
+        } // FOR
+        return (result);
+    }
+}
@@ -164,6 +164,7 @@ public abstract class VoltProcedure implements Poolable {
      * These traces are not used for recovery and are slow.
      */
     private boolean workloadTraceEnable = false;
+    private WorkloadTrace workloadTrace = null;
     private Object workloadTxnHandle = null;
     private List<Object> workloadQueryHandles;
 
@@ -251,12 +252,18 @@ public abstract class VoltProcedure implements Poolable {
         this.batchQueryStmts = new SQLStmt[hstore_conf.site.planner_max_batch_size];
         
         // Enable Workload Tracing
+        // Each HStoreSite can have its own sampled trace. Otherwise we will use
+        // the global trace if one was set up by the ProcedureProfiler
+        if (this.hstore_site != null && this.hstore_site.getSampledWorkloadTrace() != null) {
+            this.workloadTrace = this.hstore_site.getSampledWorkloadTrace();
+        } else if (ProcedureProfiler.profilingLevel == ProcedureProfiler.Level.INTRUSIVE) {
+            this.workloadTrace = ProcedureProfiler.workloadTrace;
+        }
         if (trace.val) {
             LOG.trace("Profiling Level: " + ProcedureProfiler.profilingLevel);
-            LOG.trace("Profiling Workload Handle: " + ProcedureProfiler.workloadTrace);
+            LOG.trace("Profiling Workload Handle: " + this.workloadTrace);
         }
-        this.workloadTraceEnable = (ProcedureProfiler.profilingLevel == ProcedureProfiler.Level.INTRUSIVE &&
-                                    ProcedureProfiler.workloadTrace != null);
+        this.workloadTraceEnable = (this.workloadTrace != null);
         if (this.workloadTraceEnable) {
             this.workloadQueryHandles = new ArrayList<Object>();
         }
@@ -553,7 +560,7 @@ public abstract class VoltProcedure implements Poolable {
         // a handle that we need to pass to the trace manager when we want to register a new query
         if (this.workloadTraceEnable) {
             this.workloadQueryHandles.clear();
-            this.workloadTxnHandle = ProcedureProfiler.workloadTrace.startTransaction(this.localTxnState.getTransactionId(),
+            this.workloadTxnHandle = this.workloadTrace.startTransaction(this.localTxnState.getTransactionId(),
                                                                                       this.catalog_proc, this.procParams);
         }
 
@@ -647,7 +654,7 @@ public abstract class VoltProcedure implements Poolable {
                 this.status_msg = "USER ABORT: " + ex.getMessage();
                 
                 if (this.workloadTraceEnable && this.workloadTxnHandle != null) {
-                    ProcedureProfiler.workloadTrace.abortTransaction(this.workloadTxnHandle);
+                    this.workloadTrace.abortTransaction(this.workloadTxnHandle);
                 }
             // -------------------------------
             // MispredictionException
@@ -727,9 +734,9 @@ public abstract class VoltProcedure implements Poolable {
             // Workload Trace - Stop the transaction trace record.
             if (this.workloadTraceEnable && this.workloadTxnHandle != null && this.status == Status.OK) {
                 if (hstore_conf.site.trace_txn_output) {
-                    ProcedureProfiler.workloadTrace.stopTransaction(this.workloadTxnHandle, this.results);
+                    this.workloadTrace.stopTransaction(this.workloadTxnHandle, this.results);
                 } else {
-                    ProcedureProfiler.workloadTrace.stopTransaction(this.workloadTxnHandle);
+                    this.workloadTrace.stopTransaction(this.workloadTxnHandle);
                 }
             }
         }
@@ -1069,7 +1076,7 @@ public abstract class VoltProcedure implements Poolable {
         if (this.workloadTraceEnable && this.workloadTxnHandle != null) {
             this.workloadQueryHandles.clear();
             for (int i = 0; i < this.batchQueryStmtIndex; i++) {
-                Object queryHandle = ProcedureProfiler.workloadTrace.startQuery(workloadTxnHandle,
+                Object queryHandle = this.workloadTrace.startQuery(workloadTxnHandle,
                                                                                 batchQueryStmts[i].catStmt,
                                                                                 batchQueryArgs[i],
                                                                                 this.batchId);
@@ -1104,9 +1111,9 @@ public abstract class VoltProcedure implements Poolable {
                 Object handle = this.workloadQueryHandles.get(i);
                 if (handle != null) {
                     if (hstore_conf.site.trace_query_output) {
-                        ProcedureProfiler.workloadTrace.stopQuery(handle, retval[i]);
+                        this.workloadTrace.stopQuery(handle, retval[i]);
                     } else {
-                        ProcedureProfiler.workloadTrace.stopQuery(handle, null);
+                        this.workloadTrace.stopQuery(handle, null);
                     }
                 }
             } // FOR
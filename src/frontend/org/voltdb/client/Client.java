@@ -169,6 +169,20 @@ public interface Client {
             Object... parameters)
     throws IOException, NoConnectionsException;
 
+    /**
+     * Asynchronously invoke a batch of procedures. The invocations that go to the same site are sent
+     * together in a single network message. Each callback is invoked as soon as its procedure's
+     * response comes back. The procedures in the batch do not need to be the same. Does not guarantee
+     * that the batch is actually queued. If there is backpressure on all connections to the cluster then
+     * none of the batch will be queued. Check the return value to determine if queuing actually took place.
+     * @param callbacks ProcedureCallbacks that will be invoked with each procedure's results.
+     * @param procNames class names (not qualified by package) of the procedures to execute.
+     * @param parameters list of each procedure's parameter values.
+     * @return <code>true</code> if the batch was queued and <code>false</code> otherwise
+     */
+    public boolean callProcedures(ProcedureCallback callbacks[], String procNames[], Object parameters[][])
+    throws IOException, NoConnectionsException;
+
     /**
      * Calculate the size of a stored procedure invocation once it is serialized. This is computationally intensive
      * as the invocation is serialized as part of the calculation.
@@ -19,6 +19,8 @@ package org.voltdb.client;
 
 import org.voltdb.catalog.Catalog;
 
+import edu.brown.hstore.conf.HStoreConf;
+
 /**
  * Factory for constructing instances of the {@link Client} interface
  *
@@ -51,7 +53,8 @@ public abstract class ClientFactory {
                 maxArenaSizes,
                 cores > 4 ? heavyweight : false,
                 statsSettings,
-                null);
+                null,
+                HStoreConf.singleton(true));
     }
     
     public static Client createClient(
@@ -60,13 +63,32 @@ public abstract class ClientFactory {
             boolean heavyweight,
             StatsUploaderSettings statsSettings,
             Catalog catalog) {
+        return createClient(expectedOutgoingMessageSize,
+                            maxArenaSizes,
+                            heavyweight,
+                            statsSettings,
+                            catalog,
+                            HStoreConf.singleton(true));
+    }
+    
+    /**
+     * Create a {@link Client} that uses the given HStoreConf instead of the singleton
+     */
+    public static Client createClient(
+            int expectedOutgoingMessageSize,
+            int maxArenaSizes[],
+            boolean heavyweight,
+            StatsUploaderSettings statsSettings,
+            Catalog catalog,
+            HStoreConf hstore_conf) {
         final int cores = Runtime.getRuntime().availableProcessors();
         return new ClientImpl(
                 expectedOutgoingMessageSize,
                 maxArenaSizes,
                 cores > 4 ? heavyweight : false,
                 statsSettings,
-                catalog);
+                catalog,
+                hstore_conf);
     }
 
     /**
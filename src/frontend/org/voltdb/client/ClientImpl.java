@@ -19,6 +19,12 @@ package org.voltdb.client;
 
 import java.io.IOException;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -100,7 +106,8 @@ final class ClientImpl implements Client {
         },
         false,
         null,
-        null);
+        null,
+        HStoreConf.singleton(true));
     }
 
     /**
@@ -111,16 +118,18 @@ final class ClientImpl implements Client {
      * @param expectedOutgoingMessageSize Expected size of procedure invocations in bytes
      * @param maxArenaSizes Maximum size arenas in the memory pool should grow to
      * @param heavyweight Whether to use multiple or a single thread
+     * @param hstore_conf The configuration parameters for this client
      */
     ClientImpl(
             int expectedOutgoingMessageSize,
             int maxArenaSizes[],
             boolean heavyweight,
             StatsUploaderSettings statsSettings,
-            Catalog catalog) {
+            Catalog catalog,
+            HStoreConf hstore_conf) {
         m_expectedOutgoingMessageSize = expectedOutgoingMessageSize;
 
-        m_hstoreConf = HStoreConf.singleton(true);
+        m_hstoreConf = hstore_conf;
 
         if (catalog != null && m_hstoreConf.client.txn_hints) {
             m_catalog = catalog;
@@ -134,7 +143,9 @@ final class ClientImpl implements Client {
                 maxArenaSizes,
                 heavyweight,
                 m_hstoreConf.global.nanosecond_latencies,
-                statsSettings);
+                statsSettings,
+                100,
+                m_hstoreConf.client.callback_threads);
         m_distributer.addClientStatusListener(new CSL());
     }
 
@@ -310,7 +321,101 @@ final class ClientImpl implements Client {
         }
         StoredProcedureInvocation invocation =
             new StoredProcedureInvocation(m_handle.getAndIncrement(), procName, parameters);
+        Integer site_id = this.initInvocation(invocation, hints);
 
+        if (m_blockingQueue) {
+            long start = ProfileMeasurement.getTime();
+            while (!m_distributer.queue(invocation, callback, expectedSerializedSize, true, site_id)) {
+                try {
+                    backpressureBarrier();
+                } catch (InterruptedException e) {
+                    throw new java.io.InterruptedIOException("Interrupted while invoking procedure asynchronously");
+                }
+            }
+            m_queueTime.appendTime(start, ProfileMeasurement.getTime(), 1);
+            return true;
+        } else {
+            long start = ProfileMeasurement.getTime();
+            boolean ret = m_distributer.queue(invocation, callback, expectedSerializedSize, false, site_id);
+            m_queueTime.appendTime(start, ProfileMeasurement.getTime(), 1);
+            return ret;
+        }
+    }
+
+    @Override
+    public final boolean callProcedures(ProcedureCallback callbacks[], String procNames[], Object parameters[][])
+            throws IOException, NoConnectionsException {
+        if (m_isShutdown) {
+            return false;
+        }
+        assert(callbacks.length == procNames.length && procNames.length == parameters.length);
+        
+        // Split the batch up by the site that each invocation should go to so that
+        // the cluster doesn't have to redirect them. The invocations that we don't
+        // know where to send go in their own batch (site_id == null)
+        Map<Integer, List<StoredProcedureInvocation>> siteInvocations = new LinkedHashMap<Integer, List<StoredProcedureInvocation>>();
+        Map<Integer, List<ProcedureCallback>> siteCallbacks = new HashMap<Integer, List<ProcedureCallback>>();
+        for (int i = 0; i < procNames.length; i++) {
+            ProcedureCallback callback = callbacks[i];
+            if (callback == null) {
+                callback = new NullCallback();
+            } else if (callback instanceof ProcedureArgumentCacher) {
+                ((ProcedureArgumentCacher)callback).setArgs(parameters[i]);
+            }
+            StoredProcedureInvocation invocation =
+                new StoredProcedureInvocation(m_handle.getAndIncrement(), procNames[i], parameters[i]);
+            Integer site_id = this.initInvocation(invocation, null);
+            
+            List<StoredProcedureInvocation> invocations = siteInvocations.get(site_id);
+            if (invocations == null) {
+                invocations = new ArrayList<StoredProcedureInvocation>();
+                siteInvocations.put(site_id, invocations);
+                siteCallbacks.put(site_id, new ArrayList<ProcedureCallback>());
+            }
+            invocations.add(invocation);
+            siteCallbacks.get(site_id).add(callback);
+        } // FOR
+        
+        // Only the first batch can be rejected because of backpressure. Once it has been 
+        // queued, we have to queue the rest too so that the client doesn't lose part of it.
+        // A blocking client waits for the backpressure to go away before it queues anything.
+        long start = ProfileMeasurement.getTime();
+        boolean ignoreBackpressure = false;
+        for (Entry<Integer, List<StoredProcedureInvocation>> e : siteInvocations.entrySet()) {
+            List<ProcedureCallback> batchCallbacks = siteCallbacks.get(e.getKey());
+            StoredProcedureInvocation batchInvocations[] = e.getValue().toArray(new StoredProcedureInvocation[0]);
+            ProcedureCallback batchCallbackArray[] = batchCallbacks.toArray(new ProcedureCallback[0]);
+            while (m_distributer.queue(batchInvocations,
+                                       batchCallbackArray,
+                                       m_expectedOutgoingMessageSize,
+                                       ignoreBackpressure,
+                                       e.getKey()) == false) {
+                assert(ignoreBackpressure == false);
+                if (m_blockingQueue == false) {
+                    return (false);
+                }
+                try {
+                    backpressureBarrier();
+                } catch (InterruptedException ex) {
+                    throw new java.io.InterruptedIOException("Interrupted while invoking procedures asynchronously");
+                }
+            } // WHILE
+            ignoreBackpressure = true;
+        } // FOR
+        m_queueTime.appendTime(start, ProfileMeasurement.getTime(), procNames.length);
+        return (true);
+    }
+    
+    /**
+     * Fill in the procedure id and base partition for a new invocation if we
+     * have the catalog. Returns the site that we should send this invocation to
+     * if we know it. Otherwise it returns null.
+     * @param invocation
+     * @param hints
+     * @return
+     */
+    private Integer initInvocation(StoredProcedureInvocation invocation, StoredProcedureInvocationHints hints) {
+        final String procName = invocation.getProcName();
         Integer site_id = null;
         if (m_catalog != null) {
             Procedure catalog_proc = m_catalogContext.procedures.getIgnoreCase(procName);
@@ -339,24 +444,7 @@ final class ClientImpl implements Client {
         if (hints != null && hints.basePartition != HStoreConstants.NULL_PARTITION_ID) {
             invocation.setBasePartition(hints.basePartition);
         }
-
-        if (m_blockingQueue) {
-            long start = ProfileMeasurement.getTime();
-            while (!m_distributer.queue(invocation, callback, expectedSerializedSize, true, site_id)) {
-                try {
-                    backpressureBarrier();
-                } catch (InterruptedException e) {
-                    throw new java.io.InterruptedIOException("Interrupted while invoking procedure asynchronously");
-                }
-            }
-            m_queueTime.appendTime(start, ProfileMeasurement.getTime(), 1);
-            return true;
-        } else {
-            long start = ProfileMeasurement.getTime();
-            boolean ret = m_distributer.queue(invocation, callback, expectedSerializedSize, false, site_id);
-            m_queueTime.appendTime(start, ProfileMeasurement.getTime(), 1);
-            return ret;
-        }
+        return (site_id);
     }
 
     public void drain() throws NoConnectionsException, InterruptedException {
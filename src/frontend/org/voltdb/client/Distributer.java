@@ -27,11 +27,17 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.StoredProcedureInvocationBatch;
 import org.voltdb.VoltTable;
 import org.voltdb.VoltTable.ColumnInfo;
 import org.voltdb.VoltType;
@@ -70,6 +76,10 @@ class Distributer {
     // collection of connections to the cluster
     private final ArrayList<NodeConnection> m_connections = new ArrayList<NodeConnection>();
     
+    // Copy of m_connections that is replaced whenever a connection is added or removed
+    // This lets us pick a connection for a new request without locking the Distributer
+    private volatile NodeConnection m_connectionSnapshot[] = new NodeConnection[0];
+    
     /** SiteId -> NodeConnection */
     private final Map<Integer, Collection<NodeConnection>> m_connectionSiteXref = new HashMap<Integer, Collection<NodeConnection>>();
 
@@ -79,7 +89,7 @@ class Distributer {
     private final VoltNetwork m_network;
 
     // Temporary until a distribution/affinity algorithm is written
-    private int m_nextConnection = 0;
+    private final AtomicInteger m_nextConnection = new AtomicInteger(0);
 
     private final int m_expectedOutgoingMessageSize;
 
@@ -92,6 +102,12 @@ class Distributer {
     private final String m_hostname;
     
     private final ConcurrentHashMap<Thread, FastSerializer> m_serializers = new ConcurrentHashMap<Thread, FastSerializer>();
+    
+    /**
+     * Optional threads used to invoke ProcedureCallbacks off of the network thread.
+     * Null if the callbacks should be invoked directly by the network thread.
+     */
+    private final ExecutorService m_callbackExecutors[];
 
     /**
      * Server's instances id. Unique for the cluster
@@ -191,25 +207,25 @@ class Distributer {
 
     class NodeConnection extends VoltProtocolHandler implements org.voltdb.network.QueueMonitor {
         private final AtomicInteger m_callbacksToInvoke = new AtomicInteger(0);
-        private final HashMap<Long, CallbackValues> m_callbacks;
-        private final HashMap<String, ProcedureStats> m_stats = new HashMap<String, ProcedureStats>();
+        private final ConcurrentHashMap<Long, CallbackValues> m_callbacks;
+        private final ConcurrentHashMap<String, ProcedureStats> m_stats = new ConcurrentHashMap<String, ProcedureStats>();
         // private final CircularFifoBuffer<Long> lastSeenClientHandles = new CircularFifoBuffer<Long>(100);
         private final int m_hostId;
         private final long m_connectionId;
         private Connection m_connection;
         private String m_hostname;
         private int m_port;
-        private boolean m_isConnected = true;
+        private volatile boolean m_isConnected = true;
 
-        private long m_invocationsCompleted = 0;
+        private final AtomicLong m_invocationsCompleted = new AtomicLong(0);
         private long m_lastInvocationsCompleted = 0;
-        private long m_invocationAborts = 0;
+        private final AtomicLong m_invocationAborts = new AtomicLong(0);
         private long m_lastInvocationAborts = 0;
-        private long m_invocationErrors = 0;
+        private final AtomicLong m_invocationErrors = new AtomicLong(0);
         private long m_lastInvocationErrors = 0;
 
         public NodeConnection(long ids[]) {
-            m_callbacks = new HashMap<Long, CallbackValues>();
+            m_callbacks = new ConcurrentHashMap<Long, CallbackValues>();
             m_hostId = (int)ids[0];
             m_connectionId = ids[1];
         }
@@ -219,37 +235,74 @@ class Distributer {
             return (String.format("NodeConnection[id=%d, host=%s, port=%d]", m_hostId, m_hostname, m_port));
         }
 
-        public void createWork(long now, long handle, String name, BBContainer c, ProcedureCallback callback) {
-            synchronized (this) {
-                if (!m_isConnected) {
-                    final ClientResponse r = new ClientResponseImpl(-1, -1, -1, Status.ABORT_CONNECTION_LOST,
-                            new VoltTable[0], "Connection to database host (" + m_hostname +
-                            ") was lost before a response was received");
-                    callback.clientCallback(r);
-                    c.discard();
-                    return;
-                }
+        private ClientResponse connectionLostResponse() {
+            return new ClientResponseImpl(-1, -1, -1, Status.ABORT_CONNECTION_LOST,
+                    new VoltTable[0], "Connection to database host (" + m_hostname +
+                    ") was lost before a response was received");
+        }
+        
+        /**
+         * Register the callback for the given client handle without taking any locks.
+         * If the connection was lost (either before or while we were adding the callback),
+         * then the callback will be invoked with an ABORT_CONNECTION_LOST response
+         * exactly once, either by us or by stopping(), and we will return false.
+         * @param now
+         * @param handle
+         * @param name
+         * @param callback
+         * @return true if the request can be written out to the connection
+         */
+        private boolean addCallback(long now, long handle, String name, ProcedureCallback callback) {
+            if (m_isConnected) {
                 m_callbacks.put(handle, new CallbackValues(now, callback, name));
                 m_callbacksToInvoke.incrementAndGet();
+                if (m_isConnected) return (true);
+                
+                // stopping() may have already drained the callback table before our put landed.
+                // Whoever removes the entry from the table is responsible for invoking it. 
+                if (m_callbacks.remove(handle) == null) return (false);
+                m_callbacksToInvoke.decrementAndGet();
+            }
+            callback.clientCallback(this.connectionLostResponse());
+            return (false);
+        }
+        
+        public void createWork(long now, long handle, String name, BBContainer c, ProcedureCallback callback) {
+            if (this.addCallback(now, handle, name, callback) == false) {
+                c.discard();
+                return;
             }
             m_connection.writeStream().enqueue(c);
         }
 
         public void createWork(long now, long handle, String name, FastSerializable f, ProcedureCallback callback) {
-            synchronized (this) {
-                if (!m_isConnected) {
-                    final ClientResponse r = new ClientResponseImpl(-1, -1, -1, Status.ABORT_CONNECTION_LOST,
-                            new VoltTable[0], "Connection to database host (" + m_hostname +
-                            ") was lost before a response was received");
-                    callback.clientCallback(r);
-                    return;
-                }
-                m_callbacks.put(handle, new CallbackValues(now, callback, name));
-                m_callbacksToInvoke.incrementAndGet();
+            if (this.addCallback(now, handle, name, callback) == false) {
+                return;
             }
             m_connection.writeStream().enqueue(f);
         }
 
+        public void createWork(long now, StoredProcedureInvocation invocations[], ProcedureCallback callbacks[], BBContainer c) {
+            boolean enqueue = true;
+            for (int i = 0; i < invocations.length; i++) {
+                enqueue = this.addCallback(now, invocations[i].getClientHandle(),
+                                           invocations[i].getProcName(), callbacks[i]) && enqueue;
+            } // FOR
+            if (enqueue == false) {
+                // Cancel anything that we did manage to add before the connection went away
+                for (int i = 0; i < invocations.length; i++) {
+                    CallbackValues cbv = m_callbacks.remove(invocations[i].getClientHandle());
+                    if (cbv != null) {
+                        m_callbacksToInvoke.decrementAndGet();
+                        cbv.callback.clientCallback(this.connectionLostResponse());
+                    }
+                } // FOR
+                c.discard();
+                return;
+            }
+            m_connection.writeStream().enqueue(c);
+        }
+
         private void updateStats(
                 String name,
                 int roundTrip,
@@ -260,13 +313,28 @@ class Distributer {
             ProcedureStats stats = m_stats.get(name);
             if (stats == null) {
                 stats = new ProcedureStats(name);
-                m_stats.put( name, stats);
+                ProcedureStats existing = m_stats.putIfAbsent(name, stats);
+                if (existing != null) stats = existing;
             }
             stats.update(roundTrip, clusterRoundTrip, abort, error, restartCounter);
         }
 
         @Override
         public void handleMessage(ByteBuffer buf, Connection c) {
+            // The responses for a StoredProcedureInvocationBatch all come back together
+            if (ClientResponseImpl.isBatch(buf)) {
+                ByteBuffer responses[] = ClientResponseImpl.splitBatch(buf);
+                if (debug.val)
+                    LOG.debug(String.format("Received batch of %d ClientResponses from %s", responses.length, this));
+                for (ByteBuffer b : responses) {
+                    this.handleResponse(b);
+                } // FOR
+            } else {
+                this.handleResponse(buf);
+            }
+        }
+        
+        private void handleResponse(ByteBuffer buf) {
             ClientResponseImpl response = null;
             FastDeserializer fds = new FastDeserializer(buf);
             try {
@@ -283,16 +351,9 @@ class Distributer {
             final Long clientHandle = new Long(response.getClientHandle());
             final Status status = response.getStatus();
             final long now = System.currentTimeMillis();
-            CallbackValues stuff = null;
-            synchronized (this) {
-                stuff = m_callbacks.remove(clientHandle);
-                if (stuff != null) {
-                    m_invocationsCompleted++;
-                    // this.lastSeenClientHandles.add(clientHandle);
-                }
-            } // SYNCH
-
+            final CallbackValues stuff = m_callbacks.remove(clientHandle);
             if (stuff != null) {
+                m_invocationsCompleted.incrementAndGet();
                 long callTime = stuff.time;
                 int delta = (int)(now - callTime);
                 ProcedureCallback cb = stuff.callback;
@@ -309,17 +370,17 @@ class Distributer {
                     
                     Map<String, Object> m1 = new LinkedHashMap<String, Object>();
                     m1.put("Connection", this);
-                    m1.put("Completed Invocations", m_invocationsCompleted);
-                    m1.put("Error Invocations", m_invocationErrors);
-                    m1.put("Abort Invocations", m_invocationAborts);
+                    m1.put("Completed Invocations", m_invocationsCompleted.get());
+                    m1.put("Error Invocations", m_invocationErrors.get());
+                    m1.put("Abort Invocations", m_invocationAborts.get());
                     LOG.debug("ClientResponse Information:\n" + StringUtil.formatMaps(m0, m1));
                 }
                 
                 if (status == Status.ABORT_USER || status == Status.ABORT_GRACEFUL) {
-                    m_invocationAborts++;
+                    m_invocationAborts.incrementAndGet();
                     abort = true;
                 } else if (status != Status.OK) {
-                    m_invocationErrors++;
+                    m_invocationErrors.incrementAndGet();
                     error = true;
                 }
                 int clusterRoundTrip = response.getClusterRoundtrip();
@@ -330,12 +391,11 @@ class Distributer {
                 
                 if (cb != null) {
                     response.setClientRoundtrip(delta);
-                    try {
-                        cb.clientCallback(response);
-                    } catch (Exception e) {
-                        uncaughtException(cb, response, e);
+                    if (m_callbackExecutors == null) {
+                        this.invokeCallback(cb, response);
+                    } else {
+                        this.dispatchCallback(cb, response);
                     }
-                    m_callbacksToInvoke.decrementAndGet();
                 } else if (m_isConnected) {
                     // TODO: what's the right error path here?
                     LOG.warn("No callback available for clientHandle " + clientHandle);
@@ -348,6 +408,38 @@ class Distributer {
             }
         }
 
+        private void invokeCallback(ProcedureCallback cb, ClientResponseImpl response) {
+            try {
+                cb.clientCallback(response);
+            } catch (Exception e) {
+                uncaughtException(cb, response, e);
+            }
+            m_callbacksToInvoke.decrementAndGet();
+        }
+        
+        /**
+         * Hand off the callback to one of the callback threads so that the network
+         * thread can go back to reading responses. All of the responses for the same
+         * base partition are handled by the same thread, so they are invoked in the
+         * order that they arrived in.
+         */
+        private void dispatchCallback(final ProcedureCallback cb, final ClientResponseImpl response) {
+            int idx = response.getBasePartition();
+            if (idx < 0) idx = (int)response.getClientHandle();
+            idx = Math.abs(idx % m_callbackExecutors.length);
+            try {
+                m_callbackExecutors[idx].execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        invokeCallback(cb, response);
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                // We are shutting down, so just run it here
+                this.invokeCallback(cb, response);
+            }
+        }
+        
         /**
          * A number specify the expected size of the majority of outgoing messages.
          * Used to determine the tipping point between where a heap byte buffer vs. direct byte buffer will be
@@ -370,25 +462,28 @@ class Distributer {
         @Override
         public void stopping(Connection c) {
             super.stopping(c);
-            synchronized (this) {
-                //Prevent queueing of new work to this connection
-                synchronized (Distributer.this) {
-                    m_connections.remove(this);
-                    //Notify listeners that a connection has been lost
-                    for (ClientStatusListener s : m_listeners) {
-                        s.connectionLost(m_hostname, m_connections.size());
-                    }
-                }
-                m_isConnected = false;
-
-                //Invoke callbacks for all queued invocations with a failure response
-                final ClientResponse r =
-                    new ClientResponseImpl(-1, -1, -1, Status.ABORT_CONNECTION_LOST,
-                        new VoltTable[0], "Connection to database host (" + m_hostname +
-                        ") was lost before a response was received");
-                for (final CallbackValues cbv : m_callbacks.values()) {
+            //Prevent queueing of new work to this connection
+            m_isConnected = false;
+
+            //Invoke callbacks for all queued invocations with a failure response
+            //We have to remove each entry first so that we don't race with addCallback()
+            //This happens before we remove the connection so that drain() waits for them
+            final ClientResponse r = this.connectionLostResponse();
+            for (final Long handle : m_callbacks.keySet()) {
+                final CallbackValues cbv = m_callbacks.remove(handle);
+                if (cbv != null) {
+                    m_callbacksToInvoke.decrementAndGet();
                     cbv.callback.clientCallback(r);
                 }
+            } // FOR
+            
+            synchronized (Distributer.this) {
+                m_connections.remove(this);
+                m_connectionSnapshot = m_connections.toArray(new NodeConnection[m_connections.size()]);
+                //Notify listeners that a connection has been lost
+                for (ClientStatusListener s : m_listeners) {
+                    s.connectionLost(m_hostname, m_connections.size());
+                }
             }
         }
 
@@ -424,8 +519,8 @@ class Distributer {
         /**
          * Get counters for invocations completed, aborted, errors. In that order.
          */
-        public synchronized long[] getCounters() {
-            return new long[] { m_invocationsCompleted, m_invocationAborts, m_invocationErrors };
+        public long[] getCounters() {
+            return new long[] { m_invocationsCompleted.get(), m_invocationAborts.get(), m_invocationErrors.get() };
         }
 
         /**
@@ -433,14 +528,17 @@ class Distributer {
          * Count returns count since this method was last invoked
          */
         public synchronized long[] getCountersInterval() {
-            final long invocationsCompletedThisTime = m_invocationsCompleted - m_lastInvocationsCompleted;
-            m_lastInvocationsCompleted = m_invocationsCompleted;
+            final long invocationsCompleted = m_invocationsCompleted.get();
+            final long invocationsCompletedThisTime = invocationsCompleted - m_lastInvocationsCompleted;
+            m_lastInvocationsCompleted = invocationsCompleted;
 
-            final long invocationsAbortsThisTime = m_invocationAborts - m_lastInvocationAborts;
-            m_lastInvocationAborts = m_invocationAborts;
+            final long invocationAborts = m_invocationAborts.get();
+            final long invocationsAbortsThisTime = invocationAborts - m_lastInvocationAborts;
+            m_lastInvocationAborts = invocationAborts;
 
-            final long invocationErrorsThisTime = m_invocationErrors - m_lastInvocationErrors;
-            m_lastInvocationErrors = m_invocationErrors;
+            final long invocationErrors = m_invocationErrors.get();
+            final long invocationErrorsThisTime = invocationErrors - m_lastInvocationErrors;
+            m_lastInvocationErrors = invocationErrors;
             return new long[] {
                     invocationsCompletedThisTime,
                     invocationsAbortsThisTime,
@@ -502,6 +600,17 @@ class Distributer {
             boolean nanoseconds,
             StatsUploaderSettings statsSettings,
             int backpressureWait) {
+        this(expectedOutgoingMessageSize, arenaSizes, useMultipleThreads, nanoseconds, statsSettings, backpressureWait, 0);
+    }
+    
+    Distributer(
+            int expectedOutgoingMessageSize,
+            int arenaSizes[],
+            boolean useMultipleThreads,
+            boolean nanoseconds,
+            StatsUploaderSettings statsSettings,
+            int backpressureWait,
+            int callbackThreads) {
         if (statsSettings != null) {
             m_statsLoader = new ClientStatsFusionLoader(statsSettings, this);
         } else {
@@ -521,9 +630,26 @@ class Distributer {
         m_hostname = hostname;
         m_nanoseconds = nanoseconds;
         
+        if (callbackThreads > 0) {
+            m_callbackExecutors = new ExecutorService[callbackThreads];
+            for (int i = 0; i < callbackThreads; i++) {
+                final String threadName = String.format("client-callback-%02d", i);
+                m_callbackExecutors[i] = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, threadName);
+                        t.setDaemon(true);
+                        return (t);
+                    }
+                });
+            } // FOR
+        } else {
+            m_callbackExecutors = null;
+        }
+        
         if (debug.val)
-            LOG.debug(String.format("Created new Distributer for %s [multiThread=%s]",
-                      m_hostname, m_useMultipleThreads));
+            LOG.debug(String.format("Created new Distributer for %s [multiThread=%s, callbackThreads=%d]",
+                      m_hostname, m_useMultipleThreads, callbackThreads));
 
 //        new Thread() {
 //            @Override
@@ -614,6 +740,7 @@ class Distributer {
         m_buildString = (String)connectionStuff[2];
         NodeConnection cxn = new NodeConnection(numbers);
         m_connections.add(cxn);
+        m_connectionSnapshot = m_connections.toArray(new NodeConnection[m_connections.size()]);
         if (site_id != null) {
             if (debug.val)
                 LOG.debug(String.format("Created connection for Site %s: %s", HStoreThreadManager.formatSiteName(site_id), cxn));
@@ -663,71 +790,10 @@ class Distributer {
             final boolean ignoreBackpressure,
             final Integer site_id)
         throws NoConnectionsException {
-        NodeConnection cxn = null;
-        boolean backpressure = true;
-        long now = System.currentTimeMillis();
-        
-        final int totalConnections = m_connections.size();
-
-        if (totalConnections == 0) {
-            throw new NoConnectionsException("No connections.");
-        }
-        
-        // If we were given a site_id, then we will want to grab a 
-        // random Connection to that site. This is so that we can send the
-        // txn request directly to the site that presumably has all of the
-        // data that the txn will need
-        if (site_id != null && m_connectionSiteXref.containsKey(site_id)) {
-            cxn = CollectionUtil.random(m_connectionSiteXref.get(site_id));
-            if (cxn == null) {
-                LOG.warn("No direct connection to " + HStoreThreadManager.formatSiteName(site_id));
-            }
-            else if (!cxn.hadBackPressure() || ignoreBackpressure) {
-                backpressure = false;
-            }
-//            else {
-//                LOG.warn(String.format("Had to use a non-direct connection to get to the cluster " +
-//                		 "[ignoreBackpressure=%s / hadBackPressure=%s]",
-//                		 ignoreBackpressure, cxn.hadBackPressure()));
-//                 cxn = null;
-//            }
-        }
-        
+        final long now = System.currentTimeMillis();
         if (trace.val) LOG.trace(invocation.toString() + " ::: ignoreBackpressure->" + ignoreBackpressure);
-        
-        // If we didn't get a direct site connection then we'll grab the next 
-        // connection in our round-robin look up
-        // Synchronization is necessary to ensure that m_connections is not modified
-        // as well as to ensure that backpressure is reported correctly
-        if (cxn == null) {
-            // int queuedInvocations = 0;
-            synchronized (this) {
-                for (int i=0; i < totalConnections; ++i) {
-                    int idx = Math.abs(++m_nextConnection % totalConnections);
-                    try {
-                        cxn = m_connections.get(idx);
-                    } catch (IndexOutOfBoundsException ex) {
-                        String msg = String.format("Failed to get connection #%d / %d", idx, totalConnections);
-                        throw new RuntimeException(msg, ex);
-                    }
-                     if (trace.val)
-                        LOG.trace("m_nextConnection = " + idx + " / " + totalConnections + " [" + cxn + "]");
-                    // queuedInvocations += cxn.m_callbacks.size();
-                    if (cxn.hadBackPressure() == false || ignoreBackpressure) {
-                        // serialize and queue the invocation
-                        backpressure = false;
-                        break;
-                    }
-                } // FOR
-            } // SYNCH
-        } 
-        if (backpressure) {
-            if (trace.val) LOG.trace("Blocking thread on backpressure from " + cxn);
-            cxn = null;
-            for (ClientStatusListener s : m_listeners) {
-                s.backpressure(true);
-            }
-        }
+        NodeConnection cxn = this.getConnection(ignoreBackpressure, site_id);
+        boolean backpressure = (cxn == null);
         
         /*
          * Do the heavy weight serialization outside the synchronized block.
@@ -771,6 +837,113 @@ class Distributer {
         return !backpressure;
     }
     
+    /**
+     * Queue a batch of invocations to be sent together in a single message on one
+     * connection. The invocations do not all need to be for the same procedure.
+     * @param invocations
+     * @param callbacks
+     * @param expectedSerializedSize
+     * @param ignoreBackpressure If true the invocations will be queued even if there is backpressure
+     * @param site_id The site that we should try to send the batch to (can be null)
+     * @return True if the batch was queued and false if it was not queued due to backpressure
+     * @throws NoConnectionsException
+     */
+    boolean queue(
+            StoredProcedureInvocation invocations[],
+            ProcedureCallback callbacks[],
+            int expectedSerializedSize,
+            final boolean ignoreBackpressure,
+            final Integer site_id)
+        throws NoConnectionsException {
+        assert(invocations.length == callbacks.length);
+        final long now = System.currentTimeMillis();
+        NodeConnection cxn = this.getConnection(ignoreBackpressure, site_id);
+        if (cxn == null) {
+            return (false);
+        }
+        if (debug.val) 
+            LOG.debug(String.format("Queuing batch of %d requests at %s [siteId=%s]",
+                      invocations.length, cxn, site_id));
+        
+        final FastSerializer fs = new FastSerializer(m_pool, expectedSerializedSize * invocations.length);
+        BBContainer c = null;
+        try {
+            c = fs.writeObjectForMessaging(new StoredProcedureInvocationBatch(invocations));
+        } catch (IOException e) {
+            fs.getBBContainer().discard();
+            throw new RuntimeException(e);
+        }
+        cxn.createWork(now, invocations, callbacks, c);
+        return (true);
+    }
+    
+    /**
+     * Pick the connection that we should send the next request on. If we were given a site_id,
+     * then we will try to use a connection directly to that site. Returns null if all of the
+     * connections have backpressure and we are not supposed to ignore it.
+     * @param ignoreBackpressure
+     * @param site_id
+     * @return
+     * @throws NoConnectionsException
+     */
+    private NodeConnection getConnection(final boolean ignoreBackpressure, final Integer site_id)
+        throws NoConnectionsException {
+        NodeConnection cxn = null;
+        boolean backpressure = true;
+        
+        final NodeConnection connections[] = m_connectionSnapshot;
+        final int totalConnections = connections.length;
+
+        if (totalConnections == 0) {
+            throw new NoConnectionsException("No connections.");
+        }
+        
+        // If we were given a site_id, then we will want to grab a 
+        // random Connection to that site. This is so that we can send the
+        // txn request directly to the site that presumably has all of the
+        // data that the txn will need
+        if (site_id != null && m_connectionSiteXref.containsKey(site_id)) {
+            cxn = CollectionUtil.random(m_connectionSiteXref.get(site_id));
+            if (cxn == null) {
+                LOG.warn("No direct connection to " + HStoreThreadManager.formatSiteName(site_id));
+            }
+            else if (!cxn.hadBackPressure() || ignoreBackpressure) {
+                backpressure = false;
+            }
+//            else {
+//                LOG.warn(String.format("Had to use a non-direct connection to get to the cluster " +
+//                		 "[ignoreBackpressure=%s / hadBackPressure=%s]",
+//                		 ignoreBackpressure, cxn.hadBackPressure()));
+//                 cxn = null;
+//            }
+        }
+        
+        // If we didn't get a direct site connection then we'll grab the next 
+        // connection in our round-robin look up. We use the snapshot of the connections
+        // so that we don't need to lock the Distributer to do this.
+        if (cxn == null) {
+            for (int i=0; i < totalConnections; ++i) {
+                int idx = Math.abs(m_nextConnection.incrementAndGet() % totalConnections);
+                cxn = connections[idx];
+                if (trace.val)
+                    LOG.trace("m_nextConnection = " + idx + " / " + totalConnections + " [" + cxn + "]");
+                if (cxn.hadBackPressure() == false || ignoreBackpressure) {
+                    // serialize and queue the invocation
+                    backpressure = false;
+                    break;
+                }
+            } // FOR
+        } 
+        if (backpressure) {
+            if (trace.val) LOG.trace("Blocking thread on backpressure from " + cxn);
+            cxn = null;
+            for (ClientStatusListener s : m_listeners) {
+                s.backpressure(true);
+            }
+        }
+        return (cxn);
+    }
+    
     /**
      * Return a thread-safe FastSerializer
      * @return
@@ -797,6 +970,11 @@ class Distributer {
             m_statsLoader.stop();
         }
         m_network.shutdown();
+        if (m_callbackExecutors != null) {
+            for (ExecutorService executor : m_callbackExecutors) {
+                executor.shutdown();
+            } // FOR
+        }
         synchronized (this) {
             try {
                 m_pool.clear();
@@ -81,7 +81,8 @@ public abstract class StatementCompiler {
             int max_id = 100;
             for (Statement catalog_stmt : CatalogUtil.getAllStatements(catalog_db)) {
                 for (PlanFragment catalog_frag : CatalogUtil.getAllPlanFragments(catalog_stmt)) {
-                    max_id = Math.max(max_id, catalog_frag.getId());
+                    // Ignore the flags so that the ids stay dense
+                    max_id = Math.max(max_id, PlanFragmentIdGenerator.getPlanFragmentIndex(catalog_frag.getId()));
                 } // FOR
             } // FOR
             NEXT_FRAGMENT_ID = new AtomicInteger(max_id);
@@ -90,6 +91,8 @@ public abstract class StatementCompiler {
         // If it's not readonly, then we'll offset it so that we can
         // easily identify it at runtime
         int next_id = NEXT_FRAGMENT_ID.incrementAndGet();
+        assert(next_id <= PlanFragmentIdGenerator.MAX_INDEX) :
+            "Too many PlanFragments [nextId=" + next_id + "]";
         return (PlanFragmentIdGenerator.createPlanFragmentId(next_id,
                                                               readonly,
                                                               fastAggregate,
@@ -92,6 +92,7 @@ import org.voltdb.sysprocs.GarbageCollection;
 import org.voltdb.sysprocs.GetCatalog;
 import org.voltdb.sysprocs.GetConfiguration;
 import org.voltdb.sysprocs.LoadMultipartitionTable;
+import org.voltdb.sysprocs.LoadPartitionTable;
 import org.voltdb.sysprocs.NoOp;
 import org.voltdb.sysprocs.MarkovUpdate;
 import org.voltdb.sysprocs.Quiesce;
@@ -115,6 +116,7 @@ import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 
 import edu.brown.catalog.CatalogUtil;
+import edu.brown.catalog.PlanFragmentIndex;
 import edu.brown.catalog.conflicts.ConflictSetCalculator;
 import edu.brown.catalog.special.MultiColumn;
 import edu.brown.catalog.special.NullProcParameter;
@@ -420,8 +422,19 @@ public class VoltCompiler {
             return false;
         }
 
+        // Pre-compute what tables each PlanFragment touches so that the sites
+        // don't have to deserialize all of the plans when they start up
+        byte[] fragmentIndexBytes = null;
+        try {
+            fragmentIndexBytes = PlanFragmentIndex.serialize(CatalogUtil.getDatabase(catalog));
+        } catch (final IOException e) {
+            addErr("Can't serialize the PlanFragment index: " + e.getMessage());
+            return false;
+        }
+
         try {
             m_jarBuilder.addEntry(CatalogUtil.CATALOG_FILENAME, catalogBytes);
+            m_jarBuilder.addEntry(PlanFragmentIndex.FILENAME, fragmentIndexBytes);
             m_jarBuilder.addEntry("project.xml", new File(projectFileURL));
             for (final Entry<String, String> e : m_ddlFilePaths.entrySet())
                 m_jarBuilder.addEntry(e.getKey(), new File(e.getValue()));
@@ -1284,6 +1297,7 @@ public class VoltCompiler {
         final Object[][] procedures = {
             // SysProcedure Class                   readonly    everysite
             {LoadMultipartitionTable.class,         false,      true},
+            {LoadPartitionTable.class,              false,      false},
             {DatabaseDump.class,                    true,       true},
             {MarkovUpdate.class,                    true,       true},
             {Shutdown.class,                        false,      true},
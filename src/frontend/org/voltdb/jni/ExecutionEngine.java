@@ -39,10 +39,12 @@ import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.utils.DBBPool.BBContainer;
 import org.voltdb.utils.LogKeys;
 import org.voltdb.utils.VoltLoggerFactory;
+import org.voltdb.types.AntiCacheCompressionType;
 import org.voltdb.types.AntiCacheDBType;
 
 import edu.brown.hstore.HStore;
 import edu.brown.hstore.PartitionExecutor;
+import edu.brown.hstore.specexec.ReadWriteSummary;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
 import edu.brown.utils.StringUtil;
@@ -374,6 +376,17 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
         int tableId, VoltTable table, long txnId,
         long lastCommittedTxnId, long undoToken, boolean allowExport) throws EEException;
 
+    /**
+     * Turn deferred index builds for bulk loading on or off for the given table.
+     * While they are deferred, the tuples from loadTable() are not added to the
+     * table's indexes. Turning them back off builds each index from the sorted keys
+     * of all of the tuples that were loaded in the meantime.
+     * @param tableId
+     * @param deferred
+     * @throws EEException
+     */
+    abstract public void setIndexBuildDeferred(int tableId, boolean deferred) throws EEException;
+
     /**
      * Set the log levels to be used when logging in this engine
      * @param logLevels Levels to set
@@ -553,6 +566,15 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
     protected native int nativeLoadTable(long pointer, int table_id, byte[] serialized_table,
             long txnId, long lastCommittedTxnId, long undoToken, boolean allowExport);
 
+    /**
+     * Turn deferred index builds for bulk loading on or off for a table.
+     * @param pointer the VoltDBEngine pointer
+     * @param table_id catalog ID of the table
+     * @param deferred whether to stop adding loaded tuples to the indexes
+     * @return error code
+     */
+    protected native int nativeSetIndexBuildDeferred(long pointer, int table_id, boolean deferred);
+
     //Execution
 
     /**
@@ -784,6 +806,23 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      * @throws EEException
      */
     protected native int nativeTrackingWriteSet(long pointer, long txnId) throws EEException;
+    
+    /**
+     * Get the compact summary of the tuples that this txn read and wrote.
+     * This is much cheaper than retrieving the full read and write sets.
+     * @param txnId
+     * @throws EEException
+     */
+    public abstract ReadWriteSummary trackingSummary(Long txnId) throws EEException;
+    
+    /**
+     * Get the compact read/write summary for this txn.
+     * @param pointer
+     * @param txnId
+     * @return
+     * @throws EEException
+     */
+    protected native int nativeTrackingSummary(long pointer, long txnId) throws EEException;
 
     
     // ----------------------------------------------------------------------------
@@ -812,6 +851,15 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     public abstract void antiCacheAddDB(File dbDir, AntiCacheDBType dbType, long blockSize, long maxSize) throws EEException;
     
+    /**
+     * Set how the EE compresses evicted blocks before they are written out.
+     * <B>NOTE:</B> This can only be invoked after antiCacheInitialize is invoked
+     * and before anything is evicted.
+     * @param compressionType
+     * @throws EEException
+     */
+    public abstract void antiCacheSetCompression(AntiCacheCompressionType compressionType) throws EEException;
+    
     /**
      * 
      * @param catalog_tbl
@@ -872,6 +920,14 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     protected native int nativeAntiCacheAddDB(long pointer, String dbDir, long blockSize, int dbtype, long maxSize);
     
+    /**
+     * 
+     * @param pointer
+     * @param compressionType
+     * @return
+     */
+    protected native int nativeAntiCacheSetCompression(long pointer, int compressionType);
+    
      /**
      * 
      * @param pointer
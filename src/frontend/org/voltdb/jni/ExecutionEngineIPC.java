@@ -26,6 +26,7 @@ import java.io.UnsupportedEncodingException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -49,10 +50,13 @@ import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.messaging.FastSerializer;
 import org.voltdb.utils.DBBPool.BBContainer;
 import org.voltdb.utils.NotImplementedException;
+import org.voltdb.types.AntiCacheCompressionType;
 import org.voltdb.types.AntiCacheDBType;
 
 import edu.brown.hstore.HStore;
 import edu.brown.hstore.PartitionExecutor;
+import edu.brown.hstore.conf.HStoreConf;
+import edu.brown.hstore.specexec.ReadWriteSummary;
 
 
 /* Serializes data over a connection that presumably is being read
@@ -142,6 +146,19 @@ public class ExecutionEngineIPC extends ExecutionEngine {
 
     private static AtomicInteger eeCount = new AtomicInteger(21214);
 
+    /**
+     * Returns the file that backs the shared memory rings for a partition's EE.
+     * We prefer /dev/shm so that the pages never get written back to disk.
+     */
+    private static File getSharedMemoryFile(final int siteId, final int partitionId) {
+        File dir = new File("/dev/shm");
+        if (dir.isDirectory() == false || dir.canWrite() == false) {
+            dir = new File(System.getProperty("java.io.tmpdir"));
+        }
+        return new File(dir, String.format("voltdbipc-%d-%d-%d.shm",
+                                           eeCount.getAndIncrement(), siteId, partitionId));
+    }
+
     /**
      * One connection per ExecutionEngineIPC. This connection also interfaces
      * with Valgrind to report any problems that Valgrind may find including
@@ -152,6 +169,10 @@ public class ExecutionEngineIPC extends ExecutionEngine {
     private class Connection {
         private Socket m_socket = null;
         private SocketChannel m_socketChannel = null;
+        /** Shared memory rings that replace the socket if site.exec_ee_ipc_shm is enabled */
+        private SharedMemoryChannel m_shmChannel = null;
+        /** All reads and writes go through this channel (either the socket or the rings) */
+        private ByteChannel m_channel = null;
         private Process m_eeProcess;
         private String m_eePID = null;
         private Thread m_stdoutParser = null;
@@ -169,7 +190,22 @@ public class ExecutionEngineIPC extends ExecutionEngine {
              * block e.printStackTrace(); } }
              */
             int port = 21214;
+            final HStoreConf hstore_conf = HStoreConf.singleton();
+            if (hstore_conf.site.exec_ee_ipc_shm) {
+                File shmFile = getSharedMemoryFile(m_siteId, m_partitionId);
+                try {
+                    m_shmChannel = new SharedMemoryChannel(shmFile, hstore_conf.site.exec_ee_ipc_shm_size * 1024 * 1024);
+                } catch (final IOException e) {
+                    e.printStackTrace();
+                    HStore.crashDB();
+                }
+                m_channel = m_shmChannel;
+                System.out.println("Created " + m_shmChannel);
+            }
             if (target == BackendTarget.NATIVE_EE_IPC) {
+                if (m_shmChannel != null) {
+                    System.out.println("Start the EE process with '--shm " + m_shmChannel.getFile().getAbsolutePath() + "'");
+                }
                 System.out
                         .println("Press enter after you have started the EE process to initiate the connection to the EE");
                 try {
@@ -197,13 +233,19 @@ public class ExecutionEngineIPC extends ExecutionEngine {
                     args.add("--log-file=site_" + m_siteId + ".log");
             }
                 args.add(voltdbIPCPath == null ? "./voltdbipc" : voltdbIPCPath);
-                port = eeCount.getAndIncrement();
-                args.add(Integer.toString(port));
+                if (m_shmChannel != null) {
+                    args.add("--shm");
+                    args.add(m_shmChannel.getFile().getAbsolutePath());
+                } else {
+                    port = eeCount.getAndIncrement();
+                    args.add(Integer.toString(port));
+                }
                 final ProcessBuilder pb = new ProcessBuilder(args);
                 pb.redirectErrorStream(true);
 
                 try {
                     m_eeProcess = pb.start();
+                    if (m_shmChannel != null) m_shmChannel.setPeerProcess(m_eeProcess);
                     final Process p = m_eeProcess;
                     Runtime.getRuntime().addShutdownHook(new Thread() {
                         @Override
@@ -317,12 +359,17 @@ public class ExecutionEngineIPC extends ExecutionEngine {
                 throw new RuntimeException("Shouldn't instantiate an ExecutionEngineIPC with BackendTarget " + target);
             }
 
+            if (m_shmChannel != null) {
+                System.out.println("Created shared memory IPC connection for site.");
+                return;
+            }
             try {
                 m_socketChannel = SocketChannel.open(new InetSocketAddress(
                         "localhost", port));
                 m_socketChannel.configureBlocking(true);
                 m_socket = m_socketChannel.socket();
                 m_socket.setTcpNoDelay(true);
+                m_channel = m_socketChannel;
             } catch (final Exception e) {
                 System.out.println(e.getMessage());
                 System.out
@@ -336,14 +383,16 @@ public class ExecutionEngineIPC extends ExecutionEngine {
 
         /* Close the socket indicating to the EE it should terminate */
         public void close() throws InterruptedException {
-            if (m_socketChannel != null) {
+            if (m_channel != null) {
                 try {
-                    m_socketChannel.close();
+                    m_channel.close();
                 } catch (final IOException e) {
                     throw new RuntimeException(e);
                 }
+                m_channel = null;
                 m_socketChannel = null;
                 m_socket = null;
+                m_shmChannel = null;
             }
             if (m_eeProcess != null) {
                 m_eeProcess.waitFor();
@@ -379,7 +428,24 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             m_dataNetwork.limit(4 + amt);
             m_dataNetwork.rewind();
             while (m_dataNetwork.hasRemaining()) {
-                m_socketChannel.write(m_dataNetwork);
+                m_channel.write(m_dataNetwork);
+            }
+        }
+
+        /** blocking read of a single byte. Returns -1 at the end of the stream */
+        int readByte() throws IOException {
+            if (m_shmChannel != null) {
+                return m_shmChannel.read();
+            }
+            return m_socket.getInputStream().read();
+        }
+
+        /** blocking write of a single byte */
+        void writeByte(final int b) throws IOException {
+            if (m_shmChannel != null) {
+                m_shmChannel.write(b);
+            } else {
+                m_socket.getOutputStream().write(b);
             }
         }
 
@@ -424,11 +490,11 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             int status = kErrorCode_RetrieveDependency;
 
             while (true) {
-                status = m_socket.getInputStream().read();
+                status = readByte();
                 if (status == kErrorCode_RetrieveDependency) {
                     final ByteBuffer dependencyIdBuffer = ByteBuffer.allocate(4);
                     while (dependencyIdBuffer.hasRemaining()) {
-                        final int read = m_socketChannel.read(dependencyIdBuffer);
+                        final int read = m_channel.read(dependencyIdBuffer);
                         if (read == -1) {
                             throw new IOException("Unable to read enough bytes for dependencyId in order to " +
                             " satisfy IPC backend request for a dependency table");
@@ -441,7 +507,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
                 if (status == kErrorCode_CrashVoltDB) {
                     ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
                     while (lengthBuffer.hasRemaining()) {
-                        final int read = m_socket.getChannel().read(lengthBuffer);
+                        final int read = m_channel.read(lengthBuffer);
                         if (read == -1) {
                             throw new EOFException();
                         }
@@ -449,7 +515,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
                     lengthBuffer.flip();
                     ByteBuffer messageBuffer = ByteBuffer.allocate(lengthBuffer.getInt());
                     while (messageBuffer.hasRemaining()) {
-                        final int read = m_socket.getChannel().read(messageBuffer);
+                        final int read = m_channel.read(messageBuffer);
                         if (read == -1) {
                             throw new EOFException();
                         }
@@ -507,7 +573,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
 
             //resultTablesLengthBytes.order(ByteOrder.LITTLE_ENDIAN);
             while (resultTablesLengthBytes.hasRemaining()) {
-                int read = m_socketChannel.read(resultTablesLengthBytes);
+                int read = m_channel.read(resultTablesLengthBytes);
                 if (read == -1) {
                     throw new EOFException();
                 }
@@ -519,7 +585,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
                     .allocate(resultTablesLength);
             //resultTablesBuffer.order(ByteOrder.LITTLE_ENDIAN);
             while (resultTablesBuffer.hasRemaining()) {
-                int read = m_socketChannel.read(resultTablesBuffer);
+                int read = m_channel.read(resultTablesBuffer);
                 if (read == -1) {
                     throw new EOFException();
                 }
@@ -550,7 +616,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             final ByteBuffer resultSetSizeBuff = ByteBuffer.allocate(4);
             resultSetSizeBuff.rewind();
             while (resultSetSizeBuff.hasRemaining()) {
-                int read = m_socketChannel.read(resultSetSizeBuff);
+                int read = m_channel.read(resultSetSizeBuff);
                 if (read == -1) {
                     throw new EOFException();
                 }
@@ -563,7 +629,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             final ByteBuffer depsBuff = ByteBuffer.allocate(resultsSize);
             depsBuff.clear().rewind();
             while (depsBuff.hasRemaining()) {
-                int read = m_socketChannel.read(depsBuff);
+                int read = m_channel.read(depsBuff);
                 if (read == -1) {
                     throw new EOFException();
                 }
@@ -592,7 +658,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         public void throwException(final int errorCode) throws IOException {
             final ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
             while (lengthBuffer.hasRemaining()) {
-                int read = m_socketChannel.read(lengthBuffer);
+                int read = m_channel.read(lengthBuffer);
                 if (read == -1) {
                     throw new EOFException();
                 }
@@ -605,7 +671,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
                 final ByteBuffer exceptionBuffer = ByteBuffer.allocate(exceptionLength + 4);
                 exceptionBuffer.putInt(exceptionLength);
                 while(exceptionBuffer.hasRemaining()) {
-                    int read = m_socketChannel.read(exceptionBuffer);
+                    int read = m_channel.read(exceptionBuffer);
                     if (read == -1) {
                         throw new EOFException();
                     }
@@ -1068,6 +1134,11 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         }
     }
 
+    @Override
+    public void setIndexBuildDeferred(final int tableId, final boolean deferred) throws EEException {
+        throw new NotImplementedException("Deferred index builds are disabled for IPC ExecutionEngine");
+    }
+
     @Override
     public VoltTable[] getStats(
             final SysProcSelector selector,
@@ -1108,7 +1179,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             if (result == ExecutionEngine.ERRORCODE_SUCCESS) {
                 final ByteBuffer messageLengthBuffer = ByteBuffer.allocate(4);
                 while (messageLengthBuffer.hasRemaining()) {
-                    int read = m_connection.m_socketChannel.read(messageLengthBuffer);
+                    int read = m_connection.m_channel.read(messageLengthBuffer);
                     if (read == -1) {
                         throw new EOFException();
                     }
@@ -1116,7 +1187,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
                 messageLengthBuffer.rewind();
                 final ByteBuffer messageBuffer = ByteBuffer.allocate(messageLengthBuffer.getInt());
                 while (messageBuffer.hasRemaining()) {
-                    int read = m_connection.m_socketChannel.read(messageBuffer);
+                    int read = m_connection.m_channel.read(messageBuffer);
                     if (read == -1) {
                         throw new EOFException();
                     }
@@ -1231,7 +1302,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
     private void sendDependencyTable(final int dependencyId) throws IOException{
         final byte[] dependencyBytes = nextDependencyAsBytes(dependencyId);
         if (dependencyBytes == null) {
-            m_connection.m_socket.getOutputStream().write(Connection.kErrorCode_DependencyNotFound);
+            m_connection.writeByte(Connection.kErrorCode_DependencyNotFound);
             return;
         }
         // 1 for response code + 4 for dependency length prefix + dependencyBytes.length
@@ -1246,9 +1317,8 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         // finally, write dependency table itself
         message.put(dependencyBytes);
         message.rewind();
-        if (m_connection.m_socketChannel.write(message) != message.capacity()) {
-            throw new IOException("Unable to send dependency table to client. Attempted blocking write of " +
-                    message.capacity() + " but not all of it was written");
+        while (message.hasRemaining()) {
+            m_connection.m_channel.write(message);
         }
     }
 
@@ -1299,7 +1369,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
 
             ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
             while (lengthBuffer.hasRemaining()) {
-                int read = m_connection.m_socketChannel.read(lengthBuffer);
+                int read = m_connection.m_channel.read(lengthBuffer);
                 if (read == -1) {
                     throw new EOFException();
                 }
@@ -1315,7 +1385,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             }
             view.limit(view.position() + length);
             while (view.hasRemaining()) {
-                m_connection.m_socketChannel.read(view);
+                m_connection.m_channel.read(view);
             }
         } catch (final IOException e) {
             System.out.println("Exception: " + e.getMessage());
@@ -1345,7 +1415,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             ByteBuffer data = null;
             ByteBuffer results = ByteBuffer.allocate(8);
             while (results.remaining() > 0)
-                m_connection.m_socketChannel.read(results);
+                m_connection.m_channel.read(results);
             results.flip();
             long result_offset = results.getLong();
             if (result_offset < 0) {
@@ -1357,13 +1427,13 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             else {
                 results = ByteBuffer.allocate(4);
                 while (results.remaining() > 0)
-                    m_connection.m_socketChannel.read(results);
+                    m_connection.m_channel.read(results);
                 results.flip();
                 int result_sz = results.getInt();
                 data = ByteBuffer.allocate(result_sz + 4);
                 data.putInt(result_sz);
                 while (data.remaining() > 0)
-                    m_connection.m_socketChannel.read(data);
+                    m_connection.m_channel.read(data);
                 data.flip();
 
                 ExportProtoMessage reply = null;
@@ -1411,7 +1481,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             m_connection.readStatusByte();
             ByteBuffer hashCode = ByteBuffer.allocate(8);
             while (hashCode.hasRemaining()) {
-                int read = m_connection.m_socketChannel.read(hashCode);
+                int read = m_connection.m_channel.read(hashCode);
                 if (read <= 0) {
                     throw new EOFException();
                 }
@@ -1448,7 +1518,7 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             m_connection.readStatusByte();
             ByteBuffer part = ByteBuffer.allocate(4);
             while (part.hasRemaining()) {
-                int read = m_connection.m_socketChannel.read(part);
+                int read = m_connection.m_channel.read(part);
                 if (read <= 0) {
                     throw new EOFException();
                 }
@@ -1477,6 +1547,11 @@ public class ExecutionEngineIPC extends ExecutionEngine {
     public VoltTable trackingWriteSet(Long txnId) throws EEException {
         throw new NotImplementedException("Read/Write Set Tracking is disabled for IPC ExecutionEngine");
     }
+    @Override
+    public ReadWriteSummary trackingSummary(Long txnId) throws EEException {
+        // Summaries are optional, so callers will fall back to the full tracking sets
+        return (null);
+    }
     
     @Override
     public void antiCacheInitialize(File dbFilePath, AntiCacheDBType dbType, long blockSize, long maxSize) throws EEException {
@@ -1488,6 +1563,11 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         throw new NotImplementedException("Anti-Caching is disabled for IPC ExecutionEngine");
     }
 
+    @Override
+    public void antiCacheSetCompression(AntiCacheCompressionType compressionType) throws EEException {
+        throw new NotImplementedException("Anti-Caching is disabled for IPC ExecutionEngine");
+    }
+
     @Override
     public void antiCacheReadBlocks(Table catalog_tbl, int[] block_ids, int[] tuple_offsets) {
         throw new NotImplementedException("Anti-Caching is disabled for IPC ExecutionEngine");
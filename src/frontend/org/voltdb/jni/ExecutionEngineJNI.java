@@ -39,12 +39,14 @@ import org.voltdb.export.ExportProtoMessage;
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.messaging.FastSerializer;
 import org.voltdb.messaging.FastSerializer.BufferGrowCallback;
+import org.voltdb.types.AntiCacheCompressionType;
 import org.voltdb.types.AntiCacheDBType;
 import org.voltdb.utils.DBBPool.BBContainer;
 
 import edu.brown.hstore.HStoreConstants;
 import edu.brown.hstore.PartitionExecutor;
 import edu.brown.hstore.conf.HStoreConf;
+import edu.brown.hstore.specexec.ReadWriteSummary;
 import edu.brown.logging.LoggerUtil;
 import edu.brown.logging.LoggerUtil.LoggerBoolean;
 
@@ -99,6 +101,11 @@ public class ExecutionEngineJNI extends ExecutionEngine {
      */
     private Map<Long, VoltTable[]> trackingCache;
     
+    /**
+     * Java cache for read/write tracking summaries
+     */
+    private Map<Long, ReadWriteSummary> trackingSummaryCache;
+    
     /**
      * initialize the native Engine object.
      */
@@ -250,7 +257,7 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         if (trace.val)
             LOG.trace("Executing planfragment:" + planFragmentId + ", params=" + parameterSet.toString());
         
-        if (this.trackingCache != null) {
+        if (this.trackingCache != null || this.trackingSummaryCache != null) {
             this.trackingResetCacheEntry(txnId);
         }
 
@@ -297,7 +304,7 @@ public class ExecutionEngineJNI extends ExecutionEngine {
             final int inputDepId, final long txnId, final long lastCommittedTxnId,
             final long undoQuantumToken) throws EEException
     {
-        if (this.trackingCache != null) {
+        if (this.trackingCache != null || this.trackingSummaryCache != null) {
             this.trackingResetCacheEntry(txnId);
         }
         
@@ -358,7 +365,7 @@ public class ExecutionEngineJNI extends ExecutionEngine {
             return (new DependencySet(new int[0], HStoreConstants.EMPTY_RESULT));
         }
         
-        if (this.trackingCache != null) {
+        if (this.trackingCache != null || this.trackingSummaryCache != null) {
             this.trackingResetCacheEntry(txnId);
         }
 
@@ -505,6 +512,15 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         checkErrorCode(errorCode);
     }
 
+    @Override
+    public void setIndexBuildDeferred(final int tableId, final boolean deferred) throws EEException {
+        if (debug.val)
+            LOG.debug(String.format("%s index builds for table #%d",
+                      (deferred ? "Deferring" : "Finishing"), tableId));
+        final int errorCode = nativeSetIndexBuildDeferred(this.pointer, tableId, deferred);
+        checkErrorCode(errorCode);
+    }
+
     /**
      * This method should be called roughly every second. It allows the EE
      * to do periodic non-transactional work.
@@ -745,10 +761,46 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         }
     }
     
+    @Override
+    public ReadWriteSummary trackingSummary(Long txnId) throws EEException {
+        if (debug.val)
+            LOG.debug(String.format("Get tracking summary for txn #%d at partition %d",
+                      txnId, this.executor.getPartitionId()));
+        
+        // Always check our cache first
+        if (this.trackingSummaryCache == null) {
+            this.trackingSummaryCache = new HashMap<Long, ReadWriteSummary>();
+        }
+        ReadWriteSummary summary = this.trackingSummaryCache.get(txnId);
+        if (summary != null) return (summary);
+        
+        deserializer.clear();
+        final int errorCode = nativeTrackingSummary(this.pointer, txnId.longValue());
+        if (errorCode == ERRORCODE_NO_DATA) {
+            if (debug.val)
+                LOG.debug(String.format("No tracking summary for txn #%d at partition %d",
+                          txnId, this.executor.getPartitionId()));
+            return (null);
+        } else checkErrorCode(errorCode);
+        
+        try {
+            deserializer.readInt(); // Ignore the length of the summary
+            summary = ReadWriteSummary.deserialize(deserializer);
+        } catch (final IOException ex) {
+            LOG.error("Failed to deserialize tracking summary", ex);
+            throw new EEException(ERRORCODE_WRONG_SERIALIZED_BYTES);
+        }
+        this.trackingSummaryCache.put(txnId, summary);
+        return (summary);
+    }
+    
     private final void trackingRemoveCacheEntry(Long txnId) {
         if (this.trackingCache != null) {
             this.trackingCache.remove(txnId);
         }
+        if (this.trackingSummaryCache != null) {
+            this.trackingSummaryCache.remove(txnId);
+        }
     }
     
     private final void trackingResetCacheEntry(Long txnId) {
@@ -757,6 +809,9 @@ public class ExecutionEngineJNI extends ExecutionEngine {
             ret[0] = null;
             ret[1] = null;
         }
+        if (this.trackingSummaryCache != null) {
+            this.trackingSummaryCache.remove(txnId);
+        }
     }
     
     private final VoltTable[] trackingGetCacheEntry(Long txnId) {
@@ -800,6 +855,16 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         final int errorCode = nativeAntiCacheAddDB(this.pointer, dbDir.getAbsolutePath(), blockSize, dbType.ordinal(), maxSize);
         checkErrorCode(errorCode);
     }
+    
+    @Override
+    public void antiCacheSetCompression(AntiCacheCompressionType compressionType) throws EEException {
+        assert(m_anticache == true);
+        if (debug.val)
+            LOG.debug(String.format("Partition #%d AntiCacheCompressionType: %s",
+                      this.executor.getPartitionId(), compressionType));
+        final int errorCode = nativeAntiCacheSetCompression(this.pointer, compressionType.ordinal());
+        checkErrorCode(errorCode);
+    }
 
     
     @Override
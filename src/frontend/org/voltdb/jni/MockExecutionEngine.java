@@ -18,6 +18,8 @@
 package org.voltdb.jni;
 
 import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.voltdb.DependencySet;
 import org.voltdb.ParameterSet;
@@ -31,10 +33,19 @@ import org.voltdb.exceptions.EEException;
 import org.voltdb.export.ExportProtoMessage;
 import org.voltdb.utils.NotImplementedException;
 import org.voltdb.utils.DBBPool.BBContainer;
+import org.voltdb.types.AntiCacheCompressionType;
 import org.voltdb.types.AntiCacheDBType;
 
+import edu.brown.hstore.specexec.ReadWriteSummary;
+
 public class MockExecutionEngine extends ExecutionEngine {
 
+    /** The number of bits in each table's tuple summary in the real EE */
+    private static final int TRACKING_SUMMARY_BITS = 4096;
+    
+    private final Map<Long, VoltTable[]> trackingSets = new HashMap<Long, VoltTable[]>();
+    private final Map<Long, ReadWriteSummary> trackingSummaries = new HashMap<Long, ReadWriteSummary>();
+
     public MockExecutionEngine() {
         super(null);
     }
@@ -98,6 +109,11 @@ public class MockExecutionEngine extends ExecutionEngine {
         // TODO Auto-generated method stub
     }
 
+    @Override
+    public void setIndexBuildDeferred(final int tableId, final boolean deferred) throws EEException {
+        // Nothing to do
+    }
+
     @Override
     public void release() throws EEException {
         // TODO Auto-generated method stub
@@ -182,21 +198,47 @@ public class MockExecutionEngine extends ExecutionEngine {
 
     @Override
     public void trackingEnable(Long txnId) throws EEException {
-        // TODO Auto-generated method stub
+        VoltTable sets[] = new VoltTable[2];
+        for (int i = 0; i < sets.length; i++) {
+            sets[i] = new VoltTable(new ColumnInfo("TABLE_NAME", VoltType.STRING),
+                                    new ColumnInfo("TUPLE_ID", VoltType.INTEGER));
+        } // FOR
+        this.trackingSets.put(txnId, sets);
+        this.trackingSummaries.put(txnId, new ReadWriteSummary(TRACKING_SUMMARY_BITS));
     }
     @Override
     public void trackingFinish(Long txnId) throws EEException {
-        // TODO Auto-generated method stub
+        this.trackingSets.remove(txnId);
+        this.trackingSummaries.remove(txnId);
     }
     @Override
     public VoltTable trackingReadSet(Long txnId) throws EEException {
-        // TODO Auto-generated method stub
-        return null;
+        VoltTable sets[] = this.trackingSets.get(txnId);
+        return (sets != null ? sets[ReadWriteSummary.READ] : null);
     }
     @Override
     public VoltTable trackingWriteSet(Long txnId) throws EEException {
-        // TODO Auto-generated method stub
-        return null;
+        VoltTable sets[] = this.trackingSets.get(txnId);
+        return (sets != null ? sets[ReadWriteSummary.WRITE] : null);
+    }
+    @Override
+    public ReadWriteSummary trackingSummary(Long txnId) throws EEException {
+        return (this.trackingSummaries.get(txnId));
+    }
+    
+    /**
+     * Record that the given txn accessed a tuple. This is what the real EE does
+     * whenever a txn with tracking enabled reads or writes a tuple.
+     * @param txnId
+     * @param set Either ReadWriteSummary.READ or ReadWriteSummary.WRITE
+     * @param tableName
+     * @param tupleId
+     */
+    public void trackingMarkTuple(Long txnId, int set, String tableName, int tupleId) {
+        VoltTable sets[] = this.trackingSets.get(txnId);
+        if (sets == null) return;
+        sets[set].addRow(tableName, tupleId);
+        this.trackingSummaries.get(txnId).markTuple(set, tableName, tupleId);
     }
     
     @Override
@@ -207,6 +249,10 @@ public class MockExecutionEngine extends ExecutionEngine {
     @Override
     public void antiCacheAddDB(File dbFilePath, AntiCacheDBType dbType, long blockSize, long maxSize) throws EEException {
     }
+    
+    @Override
+    public void antiCacheSetCompression(AntiCacheCompressionType compressionType) throws EEException {
+    }
 
     @Override
     public void antiCacheReadBlocks(Table catalog_tbl, int[] block_ids, int[] tuple_offsets) {
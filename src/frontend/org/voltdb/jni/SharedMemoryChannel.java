@@ -0,0 +1,358 @@
+package org.voltdb.jni;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A pair of single-producer/single-consumer byte rings in a memory-mapped file
+ * that the Java side of ExecutionEngineIPC uses to talk to the voltdbipc process
+ * without going through a socket. The layout of the file must match
+ * SharedMemoryRing.h in the EE:
+ * <PRE>
+ * [Request Ring (Java -> EE)][Response Ring (EE -> Java)]
+ *
+ * Each ring:
+ *   0: int32 magic, int32 capacity
+ *  64: int64 write position (only updated by the producer)
+ * 128: int64 read position (only updated by the consumer)
+ * 192: int32 closed flag (set by the producer)
+ * 256: data[capacity]
+ * </PRE>
+ * The positions are always increasing and the capacity is always a power of two.
+ * The JVM cannot block on a futex, so both sides spin for a little while and
+ * then back off to yielding and finally short sleeps when the ring stays idle.
+ * <p>
+ * Everything goes through the MappedByteBuffer. Its reads and writes are not volatile,
+ * so we put a full fence between the ring data and the position updates.
+ */
+public class SharedMemoryChannel implements ByteChannel {
+
+    public static final int MAGIC = 0x56524E47; // "VRNG"
+    public static final int RING_HEADER_SIZE = 256;
+
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_CAPACITY = 4;
+    private static final int OFFSET_WRITE_POS = 64;
+    private static final int OFFSET_READ_POS = 128;
+    private static final int OFFSET_CLOSED = 192;
+
+    private static final int SPIN_TRIES = 10000;
+    private static final int YIELD_TRIES = 100;
+    private static final long PARK_NANOS = 50000; // 50us
+    private static final int PEER_CHECK_INTERVAL = 1000;
+    private static final int MAX_ATTEMPTS = 1 << 30;
+
+    /**
+     * A volatile write followed by a volatile read of the same field is a full fence,
+     * so neither the JIT nor the CPU can move the buffer accesses across it.
+     */
+    private static volatile int FENCE = 0;
+    
+    private static int fence() {
+        FENCE = 0;
+        return (FENCE);
+    }
+
+    /**
+     * One direction of the channel
+     */
+    private static class Ring {
+        private final ByteBuffer header;
+        private final int offset;
+        private final int capacity;
+        private final int mask;
+        private final ByteBuffer data;
+
+        private Ring(MappedByteBuffer buffer, int offset, int capacity) {
+            this.header = buffer;
+            this.offset = offset;
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            ByteBuffer dup = buffer.duplicate();
+            dup.position(offset + RING_HEADER_SIZE);
+            dup.limit(offset + RING_HEADER_SIZE + capacity);
+            this.data = dup.slice();
+        }
+        private void init() {
+            this.header.putInt(this.offset + OFFSET_MAGIC, MAGIC);
+            this.header.putInt(this.offset + OFFSET_CAPACITY, this.capacity);
+            this.header.putLong(this.offset + OFFSET_WRITE_POS, 0l);
+            this.header.putLong(this.offset + OFFSET_READ_POS, 0l);
+            this.header.putInt(this.offset + OFFSET_CLOSED, 0);
+            fence();
+        }
+        private boolean isValid(int capacity) {
+            return (this.header.getInt(this.offset + OFFSET_MAGIC) == MAGIC &&
+                    this.header.getInt(this.offset + OFFSET_CAPACITY) == capacity);
+        }
+        private long getWritePosition() {
+            long pos = this.header.getLong(this.offset + OFFSET_WRITE_POS);
+            fence();
+            return (pos);
+        }
+        private void setWritePosition(long pos) {
+            fence();
+            this.header.putLong(this.offset + OFFSET_WRITE_POS, pos);
+        }
+        private long getReadPosition() {
+            long pos = this.header.getLong(this.offset + OFFSET_READ_POS);
+            fence();
+            return (pos);
+        }
+        private void setReadPosition(long pos) {
+            fence();
+            this.header.putLong(this.offset + OFFSET_READ_POS, pos);
+        }
+        private boolean isClosed() {
+            boolean closed = (this.header.getInt(this.offset + OFFSET_CLOSED) != 0);
+            fence();
+            return (closed);
+        }
+        private void close() {
+            fence();
+            this.header.putInt(this.offset + OFFSET_CLOSED, 1);
+            fence();
+        }
+    } // CLASS
+
+    private final File file;
+    private final boolean owner;
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer buffer;
+    private final Ring out;
+    private final Ring in;
+    private Process peer;
+    private boolean open = true;
+
+    /**
+     * Create a new channel file that the EE process will attach to.
+     * @param file
+     * @param capacity The size of each ring in bytes (rounded up to a power of two)
+     * @throws IOException
+     */
+    public SharedMemoryChannel(File file, int capacity) throws IOException {
+        this(file, capacity, true);
+    }
+
+    /**
+     * Constructor
+     * @param file
+     * @param capacity The size of each ring in bytes (rounded up to a power of two)
+     * @param owner If true, then we will create the file and write to the request ring.
+     *              Otherwise we will attach to an existing file and take the EE's side.
+     * @throws IOException
+     */
+    protected SharedMemoryChannel(File file, int capacity, boolean owner) throws IOException {
+        int size = Integer.highestOneBit(Math.max(4096, capacity));
+        if (size < capacity) size <<= 1;
+        final int ringSize = RING_HEADER_SIZE + size;
+
+        this.file = file;
+        this.owner = owner;
+        if (owner == false && file.exists() == false) {
+            throw new IOException("The shared memory file " + file + " does not exist");
+        }
+        this.raf = new RandomAccessFile(file, "rw");
+        if (owner) this.raf.setLength(2l * ringSize);
+        this.buffer = this.raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, 2l * ringSize);
+        this.buffer.order(ByteOrder.nativeOrder());
+
+        Ring request = new Ring(this.buffer, 0, size);
+        Ring response = new Ring(this.buffer, ringSize, size);
+        if (owner) {
+            request.init();
+            response.init();
+            this.out = request;
+            this.in = response;
+        } else {
+            if (request.isValid(size) == false) {
+                throw new IOException("Invalid shared memory file " + file);
+            }
+            this.out = response;
+            this.in = request;
+        }
+    }
+
+    /**
+     * Set the process on the other side of this channel. If it dies while
+     * we are waiting for it, then we will throw an exception instead of
+     * spinning forever.
+     * @param peer
+     */
+    public void setPeerProcess(Process peer) {
+        this.peer = peer;
+    }
+
+    public File getFile() {
+        return (this.file);
+    }
+
+    public int getCapacity() {
+        return (this.out.capacity);
+    }
+
+    /**
+     * Back off while we wait for the other side
+     * @param attempt The number of times that we have already waited
+     * @return The next attempt counter
+     * @throws IOException
+     */
+    private int idle(int attempt) throws IOException {
+        if (this.open == false) {
+            throw new ClosedChannelException();
+        }
+        if (attempt < SPIN_TRIES) {
+            return (attempt + 1);
+        }
+        else if (attempt < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+            return (attempt + 1);
+        }
+        LockSupport.parkNanos(PARK_NANOS);
+        if (this.peer != null && attempt % PEER_CHECK_INTERVAL == 0) {
+            try {
+                int exitValue = this.peer.exitValue();
+                throw new IOException("EE process exited with value " + exitValue);
+            } catch (IllegalThreadStateException ex) {
+                // Still running
+            }
+        }
+        // Don't let the counter wrap around while we are sleeping
+        return (attempt < MAX_ATTEMPTS ? attempt + 1 : SPIN_TRIES + YIELD_TRIES);
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (dst.hasRemaining() == false) return (0);
+
+        final Ring ring = this.in;
+        final long readPos = ring.getReadPosition();
+        long writePos;
+        int attempt = 0;
+        while ((writePos = ring.getWritePosition()) == readPos) {
+            if (ring.isClosed()) {
+                // Check once more in case they wrote something before closing
+                if (ring.getWritePosition() == readPos) return (-1);
+                continue;
+            }
+            attempt = this.idle(attempt);
+        } // WHILE
+
+        int length = (int)Math.min(writePos - readPos, dst.remaining());
+        int index = (int)(readPos & ring.mask);
+        int first = Math.min(length, ring.capacity - index);
+        this.copy(ring.data, index, first, dst);
+        if (first < length) {
+            this.copy(ring.data, 0, length - first, dst);
+        }
+        ring.setReadPosition(readPos + length);
+        return (length);
+    }
+
+    /**
+     * Read a single byte from the channel. Returns -1 if the other side closed the channel.
+     * @return
+     * @throws IOException
+     */
+    public int read() throws IOException {
+        final Ring ring = this.in;
+        final long readPos = ring.getReadPosition();
+        int attempt = 0;
+        while (ring.getWritePosition() == readPos) {
+            if (ring.isClosed() && ring.getWritePosition() == readPos) return (-1);
+            attempt = this.idle(attempt);
+        } // WHILE
+        int b = ring.data.get((int)(readPos & ring.mask)) & 0xFF;
+        ring.setReadPosition(readPos + 1);
+        return (b);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (this.open == false) throw new ClosedChannelException();
+        if (src.hasRemaining() == false) return (0);
+
+        final Ring ring = this.out;
+        final long writePos = ring.getWritePosition();
+        long free;
+        int attempt = 0;
+        while ((free = ring.capacity - (writePos - ring.getReadPosition())) == 0) {
+            attempt = this.idle(attempt);
+        } // WHILE
+
+        int length = (int)Math.min(free, src.remaining());
+        int index = (int)(writePos & ring.mask);
+        int first = Math.min(length, ring.capacity - index);
+        this.copy(src, first, ring.data, index);
+        if (first < length) {
+            this.copy(src, length - first, ring.data, 0);
+        }
+        ring.setWritePosition(writePos + length);
+        return (length);
+    }
+
+    /**
+     * Write a single byte to the channel
+     * @param b
+     * @throws IOException
+     */
+    public void write(int b) throws IOException {
+        if (this.open == false) throw new ClosedChannelException();
+        final Ring ring = this.out;
+        final long writePos = ring.getWritePosition();
+        int attempt = 0;
+        while (ring.capacity - (writePos - ring.getReadPosition()) == 0) {
+            attempt = this.idle(attempt);
+        } // WHILE
+        ring.data.put((int)(writePos & ring.mask), (byte)b);
+        ring.setWritePosition(writePos + 1);
+    }
+
+    private void copy(ByteBuffer ring, int index, int length, ByteBuffer dst) {
+        ByteBuffer view = ring.duplicate();
+        view.limit(index + length);
+        view.position(index);
+        dst.put(view);
+    }
+
+    private void copy(ByteBuffer src, int length, ByteBuffer ring, int index) {
+        ByteBuffer view = ring.duplicate();
+        view.position(index);
+        int limit = src.limit();
+        src.limit(src.position() + length);
+        view.put(src);
+        src.limit(limit);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return (this.open);
+    }
+
+    /**
+     * Tell the other side that we are done. If we created the file, then
+     * we will also remove it.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.open == false) return;
+        this.open = false;
+        this.out.close();
+        this.raf.close();
+        if (this.owner) this.file.delete();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%s, capacity=%d]",
+                             this.getClass().getSimpleName(), this.file, this.out.capacity);
+    }
+}
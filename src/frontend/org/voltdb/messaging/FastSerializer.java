@@ -549,4 +549,24 @@ public class FastSerializer implements DataOutput {
     public int getPosition() {
         return buffer.b.position();
     }
+
+    /**
+     * Copy bytes that were already written into this FastSerializer into the
+     * given array. This does not change the position of the underlying buffer.
+     * @param offset the position in the buffer of the first byte to copy
+     * @param dest
+     * @param destOffset
+     * @param length
+     */
+    public void copyTo(int offset, byte dest[], int destOffset, int length) {
+        assert(offset + length <= buffer.b.position());
+        ByteBuffer b = buffer.b;
+        if (b.hasArray()) {
+            System.arraycopy(b.array(), b.arrayOffset() + offset, dest, destOffset, length);
+        } else {
+            ByteBuffer dup = b.duplicate();
+            dup.position(offset);
+            dup.get(dest, destOffset, length);
+        }
+    }
 }
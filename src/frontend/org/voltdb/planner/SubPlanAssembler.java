@@ -162,10 +162,7 @@ public abstract class SubPlanAssembler {
         retval.index = index;
 
         // Non-scannable indexes require equality, full coverage expressions
-        // TODO: Should be metadata on the IndexType instance.
-        final boolean indexScannable =
-            (index.getType() == IndexType.BALANCED_TREE.getValue()) ||
-            (index.getType() == IndexType.BTREE.getValue());
+        final boolean indexScannable = IndexType.get(index.getType()).isOrdered();
 
         // build a set of all columns we can filter on (using equality for now)
         // sort expressions in to the proper buckets within the access path
@@ -492,7 +492,33 @@ public class ProcessSetManager implements Shutdownable {
         } catch (IOException e) {
             throw new RuntimeException("Failed to start process '" + processName + "'", e);
         }
+        this.watchProcess(processName, pd);
+    }
+    
+    /**
+     * Start managing a Process that was already created by somebody else.
+     * This is used for ThreadProcesses that run inside of this JVM.
+     * The given processName must be a unique handle that we will us to
+     * identify this process in the future.
+     * @param processName
+     * @param process
+     */
+    public void startProcess(String processName, Process process) {
+        if (debug.val) LOG.debug("Starting Process: " + process);
         
+        ProcessData pd = null;
+        synchronized (ProcessSetManager.class) {
+            if (m_processes.containsKey(processName)) {
+                throw new RuntimeException("Duplicate process name '" + processName + "'");
+            }
+            pd = new ProcessData(process);
+            m_processes.put(processName, pd);
+            ALL_PROCESSES.add(pd.process);
+        } // SYNCH
+        this.watchProcess(processName, pd);
+    }
+    
+    private void watchProcess(String processName, ProcessData pd) {
         BufferedReader out = new BufferedReader(new InputStreamReader(pd.process.getInputStream()));
         BufferedReader err = new BufferedReader(new InputStreamReader(pd.process.getErrorStream()));
         
@@ -0,0 +1,286 @@
+/***************************************************************************
+ *   Copyright (C) 2012 by H-Store Project                                 *
+ *   Brown University                                                      *
+ *   Massachusetts Institute of Technology                                 *
+ *   Yale University                                                       *
+ *                                                                         *
+ *   Permission is hereby granted, free of charge, to any person obtaining *
+ *   a copy of this software and associated documentation files (the       *
+ *   "Software"), to deal in the Software without restriction, including   *
+ *   without limitation the rights to use, copy, modify, merge, publish,   *
+ *   distribute, sublicense, and/or sell copies of the Software, and to    *
+ *   permit persons to whom the Software is furnished to do so, subject to *
+ *   the following conditions:                                             *
+ *                                                                         *
+ *   The above copyright notice and this permission notice shall be        *
+ *   included in all copies or substantial portions of the Software.       *
+ *                                                                         *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,       *
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF    *
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.*
+ *   IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR     *
+ *   OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, *
+ *   ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR *
+ *   OTHER DEALINGS IN THE SOFTWARE.                                       *
+ ***************************************************************************/
+package org.voltdb.processtools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.log4j.Logger;
+
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+
+/**
+ * A Process that is actually just a thread running inside of this JVM.
+ * This allows the ProcessSetManager to manage in-process HStoreSites and
+ * BenchmarkComponents the same way that it manages remote processes. The
+ * stdin/stdout/stderr streams are in-memory pipes, so anything that talks
+ * to a real process over its streams will work without any changes.
+ * Every thread that the process starts belongs to the process' ThreadGroup,
+ * so we can wait for all of them to go away with join().
+ */
+public abstract class ThreadProcess extends Process {
+    private static final Logger LOG = Logger.getLogger(ThreadProcess.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug);
+    }
+
+    /**
+     * Marker put into a Pipe's queue to signal the end of the stream
+     */
+    private static final byte EOF[] = new byte[0];
+
+    /**
+     * Simple in-memory pipe. Unlike java.io.PipedInputStream, this does
+     * not care which thread wrote to it last, so we can have any number
+     * of threads writing to the same stream and then going away.
+     * Each flush() makes the buffered bytes available to the reader.
+     */
+    private static class Pipe {
+        private final LinkedBlockingQueue<byte[]> queue = new LinkedBlockingQueue<byte[]>();
+
+        final OutputStream out = new OutputStream() {
+            private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            private boolean closed = false;
+
+            @Override
+            public synchronized void write(int b) throws IOException {
+                if (this.closed) throw new IOException("Pipe closed");
+                this.buffer.write(b);
+            }
+            @Override
+            public synchronized void write(byte[] b, int off, int len) throws IOException {
+                if (this.closed) throw new IOException("Pipe closed");
+                this.buffer.write(b, off, len);
+            }
+            @Override
+            public synchronized void flush() throws IOException {
+                if (this.buffer.size() > 0) {
+                    queue.add(this.buffer.toByteArray());
+                    this.buffer.reset();
+                }
+            }
+            @Override
+            public synchronized void close() throws IOException {
+                if (this.closed) return;
+                this.flush();
+                this.closed = true;
+                queue.add(EOF);
+            }
+        };
+
+        final InputStream in = new InputStream() {
+            private byte current[] = null;
+            private int offset = 0;
+            private boolean eof = false;
+
+            private boolean fill() throws IOException {
+                while (this.current == null || this.offset >= this.current.length) {
+                    if (this.eof) return (false);
+                    try {
+                        this.current = queue.take();
+                    } catch (InterruptedException ex) {
+                        throw new InterruptedIOException();
+                    }
+                    this.offset = 0;
+                    if (this.current == EOF) {
+                        this.eof = true;
+                        return (false);
+                    }
+                } // WHILE
+                return (true);
+            }
+            @Override
+            public synchronized int read() throws IOException {
+                if (this.fill() == false) return (-1);
+                return (this.current[this.offset++] & 0xFF);
+            }
+            @Override
+            public synchronized int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) return (0);
+                if (this.fill() == false) return (-1);
+                int cnt = Math.min(len, this.current.length - this.offset);
+                System.arraycopy(this.current, this.offset, b, off, cnt);
+                this.offset += cnt;
+                return (cnt);
+            }
+            @Override
+            public synchronized int available() throws IOException {
+                return (this.current != null ? this.current.length - this.offset : 0);
+            }
+        };
+    } // CLASS
+
+    // ----------------------------------------------------------------------------
+    // INSTANCE MEMBERS
+    // ----------------------------------------------------------------------------
+
+    private final String name;
+    private final Pipe stdin = new Pipe();
+    private final Pipe stdout = new Pipe();
+    private final Pipe stderr = new Pipe();
+    private final ThreadGroup group;
+    private final Thread thread;
+    private volatile Integer exitValue = null;
+
+    public ThreadProcess(String name) {
+        this.name = name;
+        this.group = new ThreadGroup(name);
+        this.thread = new Thread(this.group, name) {
+            @Override
+            public void run() {
+                PrintStream out = new PrintStream(stdout.out, true);
+                PrintStream err = new PrintStream(stderr.out, true);
+                int retval = 1;
+                try {
+                    retval = ThreadProcess.this.execute(stdin.in, out, err);
+                } catch (Throwable ex) {
+                    LOG.error(String.format("Unexpected error from '%s'", ThreadProcess.this.name), ex);
+                    ex.printStackTrace(err);
+                } finally {
+                    out.flush();
+                    err.flush();
+                    // We don't close stdout/stderr here so that the StreamWatchers
+                    // in ProcessSetManager just block instead of spinning on EOF
+                    ThreadProcess.this.exitValue = retval;
+                }
+            }
+        };
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Start executing this process in its own thread
+     * @return
+     */
+    public ThreadProcess start() {
+        if (debug.val) LOG.debug("Starting in-process thread '" + this.name + "'");
+        this.thread.start();
+        return (this);
+    }
+
+    /**
+     * The main body of this process. The return value is the exit code.
+     * @param in The input stream written to by the managing process.
+     * @param out The output stream read by the managing process.
+     * @param err The error stream read by the managing process.
+     * @return
+     * @throws Exception
+     */
+    protected abstract int execute(InputStream in, PrintStream out, PrintStream err) throws Exception;
+
+    /**
+     * Optional callback to tell the body of this process to stop.
+     * This is invoked before stdin is closed and the thread is interrupted.
+     */
+    protected void terminate() {
+        // Nothing by default
+    }
+
+    // ----------------------------------------------------------------------------
+    // PROCESS API
+    // ----------------------------------------------------------------------------
+
+    @Override
+    public OutputStream getOutputStream() {
+        return (this.stdin.out);
+    }
+    @Override
+    public InputStream getInputStream() {
+        return (this.stdout.in);
+    }
+    @Override
+    public InputStream getErrorStream() {
+        return (this.stderr.in);
+    }
+    @Override
+    public int waitFor() throws InterruptedException {
+        this.thread.join();
+        return (this.exitValue());
+    }
+    /**
+     * Wait for this process and all of the non-daemon threads that it started
+     * to finish. Returns the threads that are still alive after the timeout.
+     * @param timeout The maximum time to wait (in milliseconds)
+     * @return
+     * @throws InterruptedException
+     */
+    public Collection<Thread> join(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        this.thread.join(timeout);
+        
+        Collection<Thread> alive = new ArrayList<Thread>();
+        Thread threads[] = new Thread[this.group.activeCount() + 16];
+        int cnt = this.group.enumerate(threads, true);
+        for (int i = 0; i < cnt; i++) {
+            Thread t = threads[i];
+            if (t.isDaemon() || t == Thread.currentThread()) continue;
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining > 0) t.join(remaining);
+            if (t.isAlive()) alive.add(t);
+        } // FOR
+        if (this.thread.isAlive()) alive.add(this.thread);
+        return (alive);
+    }
+    
+    @Override
+    public int exitValue() {
+        Integer retval = this.exitValue;
+        if (retval == null) {
+            throw new IllegalThreadStateException("Process '" + this.name + "' has not exited");
+        }
+        return (retval.intValue());
+    }
+    @Override
+    public void destroy() {
+        if (this.exitValue != null) return;
+        if (debug.val) LOG.debug("Destroying in-process thread '" + this.name + "'");
+        try {
+            this.terminate();
+        } catch (Throwable ex) {
+            LOG.warn(String.format("Failed to terminate '%s'", this.name), ex);
+        }
+        try {
+            this.stdin.out.close();
+        } catch (IOException ex) {
+            // Ignore
+        }
+        this.thread.interrupt();
+    }
+
+    @Override
+    public String toString() {
+        return (String.format("%s{%s}", this.getClass().getSimpleName(), this.name));
+    }
+}
@@ -0,0 +1,120 @@
+package org.voltdb.sysprocs;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.voltdb.DependencySet;
+import org.voltdb.ParameterSet;
+import org.voltdb.ProcInfo;
+import org.voltdb.VoltSystemProcedure;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Table;
+import org.voltdb.jni.ExecutionEngine;
+
+import edu.brown.hstore.PartitionExecutor;
+import edu.brown.logging.LoggerUtil;
+import edu.brown.logging.LoggerUtil.LoggerBoolean;
+
+/**
+ * Special system procedure for bulk loading tuples that have already been
+ * split by partition directly into a single partition. Unlike
+ * LoadMultipartitionTable, this runs as a single-partition txn, so a client
+ * can load every partition in the cluster at the same time.
+ * <B>NOTE:</B> This is only meant to be used when loading the database before
+ * any other txns are executed. If ${site.bulkload_defer_indexes} is enabled,
+ * then the loaded tuples are not added to the table's indexes one at a time.
+ * The indexes are built from all of the tuples in the batch before this txn
+ * finishes, so the deferral never outlives a single invocation.
+ */
+@ProcInfo(
+    partitionParam = 0,
+    singlePartition = true
+)
+public class LoadPartitionTable extends VoltSystemProcedure {
+    private static final Logger LOG = Logger.getLogger(LoadPartitionTable.class);
+    private static final LoggerBoolean debug = new LoggerBoolean();
+    static {
+        LoggerUtil.attachObserver(LOG, debug);
+    }
+
+    public static final ColumnInfo ResultsColumns[] = {
+        new ColumnInfo("PARTITION", VoltType.INTEGER),
+        new ColumnInfo("TABLE", VoltType.STRING),
+        new ColumnInfo("TUPLES_LOADED", VoltType.BIGINT),
+        new ColumnInfo("INDEXES_DEFERRED", VoltType.TINYINT),
+    };
+
+    @Override
+    public void initImpl() {
+        executor.registerPlanFragment(SysProcFragmentId.PF_loadPartitionTable, this);
+    }
+
+    @Override
+    public DependencySet executePlanFragment(Long txn_id,
+                                             Map<Integer, List<VoltTable>> dependencies,
+                                             int fragmentId,
+                                             ParameterSet params,
+                                             PartitionExecutor.SystemProcedureExecutionContext context) {
+        assert(fragmentId == SysProcFragmentId.PF_loadPartitionTable);
+        throw new IllegalAccessError("Invalid invocation of " + this.getClass() + ".executePlanFragment()");
+    }
+
+    /**
+     * Load the tuples into the table at the given partition
+     * @param partition The partition that all of the tuples belong to
+     * @param tableName
+     * @param data The tuples to load. This can be empty.
+     * @param finished If true, then the client is done loading this table
+     *                 at this partition. Any index builds that are still
+     *                 deferred for the table are finished.
+     * @return
+     */
+    public VoltTable[] run(int partition, String tableName, VoltTable data, int finished) {
+        ExecutionEngine ee = executor.getExecutionEngine();
+
+        // Check Input
+        Table catalog_tbl = catalogContext.database.getTables().getIgnoreCase(tableName);
+        if (catalog_tbl == null) {
+            String msg = String.format("Unknown table '%s'", tableName);
+            throw new VoltAbortException(msg);
+        }
+        else if (catalog_tbl.getIsreplicated()) {
+            String msg = String.format("Unable to load replicated table '%s' at a single partition. " +
+                                       "Use @%s instead", catalog_tbl.getName(),
+                                       LoadMultipartitionTable.class.getSimpleName());
+            throw new VoltAbortException(msg);
+        }
+        else if (partition != this.partitionId) {
+            String msg = String.format("Trying to load tuples for partition %d at partition %d",
+                                       partition, this.partitionId);
+            throw new VoltAbortException(msg);
+        }
+
+        long tuplesLoaded = 0;
+        boolean deferred = hstore_conf.site.bulkload_defer_indexes;
+        if (data != null && data.getRowCount() > 0) {
+            if (debug.val)
+                LOG.debug(String.format("Loading %d tuples for %s at partition %d [deferIndexes=%s]",
+                          data.getRowCount(), catalog_tbl.getName(), this.partitionId, deferred));
+            executor.loadTable(this.getTransactionState(), catalog_tbl, data,
+                               hstore_conf.site.bulkload_undo_logging, deferred);
+            tuplesLoaded = data.getRowCount();
+        }
+        if (finished != 0) {
+            if (debug.val)
+                LOG.debug(String.format("Finished loading %s at partition %d",
+                          catalog_tbl.getName(), this.partitionId));
+            ee.setIndexBuildDeferred(catalog_tbl.getRelativeIndex(), false);
+        }
+
+        final VoltTable results = new VoltTable(ResultsColumns);
+        results.addRow(this.partitionId,
+                       catalog_tbl.getName(),
+                       tuplesLoaded,
+                       (deferred ? 1 : 0));
+        return new VoltTable[]{ results };
+    }
+}
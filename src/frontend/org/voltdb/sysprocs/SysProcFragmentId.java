@@ -97,6 +97,9 @@ public class SysProcFragmentId {
     public static final int PF_loadDistribute = 70;
     public static final int PF_loadAggregate = 71;
     
+    // @LoadPartitionTable
+    public static final int PF_loadPartitionTable = 72;
+    
     // @SnapshotRestoreLocal
     public static final int PF_SRLloadDistribute = 75;
     public static final int PF_SRLloadAggregate = 76;
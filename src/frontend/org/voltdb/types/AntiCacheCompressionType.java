@@ -0,0 +1,45 @@
+package org.voltdb.types;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How the EE compresses anti-cache blocks before they are written
+ * out to the AntiCacheDB. This has to match AntiCacheCompressionType in the EE.
+ */
+public enum AntiCacheCompressionType {
+    /**
+     * Blocks are written out as-is
+     */
+    NONE,
+    /**
+     * LZ4 block format
+     */
+    LZ4,
+    /**
+     * LZ4 block format with a dictionary for each table that is
+     * trained from the first block that is evicted from it
+     */
+    LZ4_DICT
+    ;
+
+    private static final Map<String, AntiCacheCompressionType> name_lookup = new HashMap<String, AntiCacheCompressionType>();
+    static {
+        for (AntiCacheCompressionType vt : EnumSet.allOf(AntiCacheCompressionType.class)) {
+            name_lookup.put(vt.name().toLowerCase(), vt);
+        }
+    } // STATIC
+
+    public static AntiCacheCompressionType get(int idx) {
+        AntiCacheCompressionType values[] = AntiCacheCompressionType.values();
+        if (idx < 0 || idx >= values.length) {
+            return(null);
+        }
+        return (values[idx]);
+    }
+
+    public static AntiCacheCompressionType get(String name) {
+        return AntiCacheCompressionType.name_lookup.get(name.toLowerCase());
+    }
+}
@@ -29,7 +29,8 @@ public enum IndexType {
     BALANCED_TREE   (1),
     HASH_TABLE      (2),
     ARRAY           (3),
-    BTREE           (4);
+    BTREE           (4),
+    RADIX_TREE      (5);
 
     IndexType(int val) {
         assert (this.ordinal() == val) :
@@ -42,6 +43,21 @@ public enum IndexType {
         return this.ordinal();
     }
 
+    /**
+     * Returns true if this type of index keeps its keys in sorted order
+     * and therefore can be used for range scans.
+     */
+    public boolean isOrdered() {
+        switch (this) {
+        case BALANCED_TREE:
+        case BTREE:
+        case RADIX_TREE:
+            return (true);
+        default:
+            return (false);
+        }
+    }
+
     protected static final Map<Integer, IndexType> idx_lookup = new HashMap<Integer, IndexType>();
     protected static final Map<String, IndexType> name_lookup = new HashMap<String, IndexType>();
     static {
@@ -81,6 +97,8 @@ public enum IndexType {
             return "_TREE";
         case ARRAY:
             return "_ARRAY";
+        case RADIX_TREE:
+            return "_RADIX";
         case BTREE:
         case HASH_TABLE:
             return "";
@@ -23,14 +23,36 @@ import java.util.Properties;
 import org.voltdb.CatalogContext;
 import org.voltdb.VoltDB;
 
+import edu.brown.metrics.MetricsRegistry;
+
 public class HTTPAdminListener extends NanoHTTPD {
 
+    /**
+     * The path that we will serve the metrics at
+     */
+    public static final String METRICS_URI = "/metrics";
+
+    private final MetricsRegistry metrics;
+
     public HTTPAdminListener(int port) throws IOException {
+        this(port, null);
+    }
+
+    public HTTPAdminListener(int port, MetricsRegistry metrics) throws IOException {
         super(port);
+        this.metrics = metrics;
     }
 
     @Override
     public Response serve(String uri, String method, Properties header, Properties parms) {
+        // Text scrape endpoint
+        if (uri.equals(METRICS_URI)) {
+            if (this.metrics == null) {
+                return new NanoHTTPD.Response(HTTP_NOTFOUND, MIME_PLAINTEXT, "Metrics are not enabled\n");
+            }
+            return new NanoHTTPD.Response(HTTP_OK, MetricsRegistry.CONTENT_TYPE, this.metrics.export());
+        }
+        
         // code for debugging
         //System.out.println( method + " '" + uri + "' " );
 
@@ -0,0 +1,163 @@
+/* Copyright (C) 2014 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <cstdlib>
+#include <cstring>
+#include <string>
+#include <vector>
+#include "harness.h"
+#include "anticache/BlockCompressor.h"
+
+using namespace std;
+using namespace voltdb;
+
+#define BLOCK_SIZE 262144
+
+/**
+ * BlockCompressor Tests
+ */
+class BlockCompressorTest : public Test {
+public:
+    BlockCompressorTest() {
+        srand(0);
+    }
+
+    /**
+     * Make a block that looks like a bunch of tuples with text columns
+     */
+    string makeBlock(long size) {
+        const char *words[] = { "anti", "cache", "evicted", "tuple", "block", "h-store", "partition" };
+        string block;
+        while ((long)block.size() < size) {
+            int32_t id = rand();
+            block.append(reinterpret_cast<const char*>(&id), sizeof(id));
+            for (int i = 0; i < 8; i++) {
+                block.append(words[rand() % 7]);
+                block.push_back(' ');
+            } // FOR
+        } // WHILE
+        block.resize(size);
+        return (block);
+    }
+
+    string makeRandomBlock(long size) {
+        string block;
+        for (long i = 0; i < size; i++) {
+            block.push_back(static_cast<char>(rand() % 256));
+        } // FOR
+        return (block);
+    }
+
+    void checkRoundTrip(BlockCompressor &compressor, const string &table, const string &block) {
+        long compressedSize = compressor.compress(table, block.data(), (long)block.size());
+        string compressed(compressor.getData(), compressedSize);
+
+        long uncompressedSize = -1;
+        char *output = compressor.decompress(compressed.data(), (long)compressed.size(), uncompressedSize);
+        ASSERT_EQ((long)block.size(), uncompressedSize);
+        ASSERT_EQ(0, memcmp(block.data(), output, block.size()));
+        delete [] output;
+    }
+};
+
+TEST_F(BlockCompressorTest, LZ4RoundTrip) {
+    BlockCompressor compressor(ANTICACHE_COMPRESSION_LZ4);
+    long sizes[] = { 0, 1, 12, 13, 100, 4096, BLOCK_SIZE };
+    for (int i = 0; i < 7; i++) {
+        checkRoundTrip(compressor, "TABLEA", makeBlock(sizes[i]));
+        checkRoundTrip(compressor, "TABLEA", makeRandomBlock(sizes[i]));
+        checkRoundTrip(compressor, "TABLEA", string(sizes[i], 'x'));
+    } // FOR
+
+    // Text should get a lot smaller
+    string block = makeBlock(BLOCK_SIZE);
+    long compressedSize = compressor.compress("TABLEA", block.data(), BLOCK_SIZE);
+    EXPECT_LT(compressedSize, BLOCK_SIZE / 2);
+    EXPECT_EQ(0, compressor.getDictionaryCount());
+}
+
+TEST_F(BlockCompressorTest, IncompressibleBlock) {
+    BlockCompressor compressor(ANTICACHE_COMPRESSION_LZ4);
+    string block = makeRandomBlock(BLOCK_SIZE);
+    long compressedSize = compressor.compress("TABLEA", block.data(), BLOCK_SIZE);
+
+    // We should just store it with the header
+    EXPECT_EQ(BLOCK_SIZE + BlockCompressor::HEADER_SIZE, compressedSize);
+    EXPECT_EQ(ANTICACHE_COMPRESSION_NONE, compressor.getData()[0]);
+    checkRoundTrip(compressor, "TABLEA", block);
+}
+
+TEST_F(BlockCompressorTest, StoreWithoutCompressing) {
+    BlockCompressor compressor(ANTICACHE_COMPRESSION_LZ4_DICT);
+    string block = makeBlock(BLOCK_SIZE);
+    long storedSize = compressor.store(block.data(), BLOCK_SIZE);
+    EXPECT_EQ(BLOCK_SIZE + BlockCompressor::HEADER_SIZE, storedSize);
+    EXPECT_EQ(ANTICACHE_COMPRESSION_NONE, compressor.getData()[0]);
+    EXPECT_EQ(0, compressor.getDictionaryCount());
+
+    long uncompressedSize = -1;
+    char *output = compressor.decompress(compressor.getData(), storedSize, uncompressedSize);
+    ASSERT_EQ(BLOCK_SIZE, uncompressedSize);
+    EXPECT_EQ(0, memcmp(block.data(), output, BLOCK_SIZE));
+    delete [] output;
+}
+
+TEST_F(BlockCompressorTest, Dictionary) {
+    BlockCompressor compressor(ANTICACHE_COMPRESSION_LZ4_DICT);
+    BlockCompressor plain(ANTICACHE_COMPRESSION_LZ4);
+
+    // The first block for each table trains its dictionary
+    checkRoundTrip(compressor, "TABLEA", makeBlock(BLOCK_SIZE));
+    checkRoundTrip(compressor, "TABLEB", makeBlock(BLOCK_SIZE));
+    EXPECT_EQ(2, compressor.getDictionaryCount());
+
+    // Small blocks get the most out of the dictionary
+    for (int i = 0; i < 100; i++) {
+        string block = makeBlock(1024);
+        long withDictionary = compressor.compress("TABLEA", block.data(), (long)block.size());
+        EXPECT_EQ(ANTICACHE_COMPRESSION_LZ4_DICT, compressor.getData()[0]);
+        long withoutDictionary = plain.compress("TABLEA", block.data(), (long)block.size());
+        EXPECT_LT(withDictionary, withoutDictionary);
+        checkRoundTrip(compressor, "TABLEA", block);
+    } // FOR
+    EXPECT_EQ(2, compressor.getDictionaryCount());
+}
+
+TEST_F(BlockCompressorTest, CorruptBlock) {
+    uint8_t output[64];
+    // A match that points before the start of the output
+    const uint8_t badOffset[] = { 0x14, 'a', 0x05, 0x00, 0x00 };
+    EXPECT_FALSE(BlockCompressor::decompressLZ4(badOffset, 4, output, 9, NULL, 0));
+    // Literals that run past the end of the input
+    const uint8_t badLiterals[] = { 0x50, 'a', 'b' };
+    EXPECT_FALSE(BlockCompressor::decompressLZ4(badLiterals, 3, output, 5, NULL, 0));
+    // Too much output
+    const uint8_t tooLong[] = { 0x30, 'a', 'b', 'c' };
+    EXPECT_FALSE(BlockCompressor::decompressLZ4(tooLong, 4, output, 2, NULL, 0));
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
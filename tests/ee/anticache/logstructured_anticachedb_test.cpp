@@ -0,0 +1,182 @@
+/* Copyright (C) 2014 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <cstring>
+#include <string>
+#include <vector>
+#include "harness.h"
+#include "anticache/AntiCacheDB.h"
+#include "anticache/LogStructuredAntiCacheDB.h"
+#include "anticache/UnknownBlockAccessException.h"
+
+using namespace std;
+using namespace voltdb;
+using stupidunit::ChTempDir;
+
+#define BLOCK_SIZE 65536
+#define MAX_SIZE 1024000000
+
+/**
+ * LogStructuredAntiCacheDB Tests
+ */
+class LogStructuredAntiCacheDBTest : public Test {
+public:
+    LogStructuredAntiCacheDBTest() {
+
+    };
+
+    string makePayload(int16_t blockId, long size) {
+        string payload;
+        for (long i = 0; i < size; i++) {
+            payload.push_back(static_cast<char>('a' + ((blockId + i) % 26)));
+        } // FOR
+        return (payload);
+    }
+
+    int16_t writePayload(LogStructuredAntiCacheDB *anticache, const string &tableName, long size) {
+        int16_t blockId = anticache->nextBlockId();
+        string payload = makePayload(blockId, size);
+        anticache->writeBlock(tableName, blockId, 1, payload.data(), (long)payload.size());
+        return (blockId);
+    }
+
+    void checkBlock(LogStructuredAntiCacheDB *anticache, const string &tableName, int16_t blockId, long size) {
+        AntiCacheBlock* block = anticache->readBlock(blockId);
+        ASSERT_EQ(tableName, block->getTableName());
+        ASSERT_EQ(blockId, block->getBlockId());
+        ASSERT_EQ(size, block->getSize());
+        ASSERT_EQ(0, memcmp(makePayload(blockId, size).data(), block->getData(), size));
+        delete block;
+    }
+};
+
+TEST_F(LogStructuredAntiCacheDBTest, ReadWriteBlock) {
+    ChTempDir tempdir;
+    LogStructuredAntiCacheDB* anticache = new LogStructuredAntiCacheDB(NULL, ".", BLOCK_SIZE, MAX_SIZE);
+
+    // The first block is still in the write buffer
+    int16_t blockId = writePayload(anticache, "FAKE", 100);
+    ASSERT_EQ(1, anticache->getNumBlocks());
+    checkBlock(anticache, "FAKE", blockId, 100);
+    ASSERT_EQ(0, anticache->getNumBlocks());
+
+    // This one has to be read back from disk
+    blockId = writePayload(anticache, "TABLEB", BLOCK_SIZE);
+    anticache->flushBlocks();
+    checkBlock(anticache, "TABLEB", blockId, BLOCK_SIZE);
+
+    // Blocks can only be read once
+    bool caught = false;
+    try {
+        anticache->readBlock(blockId);
+    } catch (UnknownBlockAccessException &ex) {
+        caught = true;
+    }
+    ASSERT_TRUE(caught);
+    delete anticache;
+}
+
+TEST_F(LogStructuredAntiCacheDBTest, ManySegments) {
+    ChTempDir tempdir;
+    LogStructuredAntiCacheDB* anticache = new LogStructuredAntiCacheDB(NULL, ".", BLOCK_SIZE, MAX_SIZE);
+
+    // Write out enough blocks to roll over into a few segments
+    int numBlocks = LogStructuredAntiCacheDB::BLOCKS_PER_SEGMENT * 3;
+    vector<int16_t> blockIds;
+    for (int i = 0; i < numBlocks; i++) {
+        blockIds.push_back(writePayload(anticache, "FAKE", BLOCK_SIZE - 100 + i));
+    } // FOR
+    ASSERT_GE(anticache->getNumSegments(), 3);
+    ASSERT_EQ(numBlocks, anticache->getNumBlocks());
+
+    // Read them back in a different order than we wrote them
+    for (int i = numBlocks - 1; i >= 0; i--) {
+        checkBlock(anticache, "FAKE", blockIds[i], BLOCK_SIZE - 100 + i);
+    } // FOR
+
+    // Only the active segment should be left
+    ASSERT_EQ(1, anticache->getNumSegments());
+    ASSERT_EQ(0, anticache->getNumBlocks());
+    delete anticache;
+}
+
+TEST_F(LogStructuredAntiCacheDBTest, Compaction) {
+    ChTempDir tempdir;
+    LogStructuredAntiCacheDB* anticache = new LogStructuredAntiCacheDB(NULL, ".", BLOCK_SIZE, MAX_SIZE);
+
+    int numBlocks = LogStructuredAntiCacheDB::BLOCKS_PER_SEGMENT * 2;
+    vector<int16_t> blockIds;
+    for (int i = 0; i < numBlocks; i++) {
+        blockIds.push_back(writePayload(anticache, "FAKE", BLOCK_SIZE / 2));
+    } // FOR
+    anticache->flushBlocks();
+    int numSegments = anticache->getNumSegments();
+    long logSize = anticache->getLogSize();
+
+    // Unevict three out of every four blocks. That leaves all of the
+    // segments mostly dead but none of them are empty.
+    for (int i = 0; i < numBlocks; i++) {
+        if (i % 4 != 0) checkBlock(anticache, "FAKE", blockIds[i], BLOCK_SIZE / 2);
+    } // FOR
+    ASSERT_EQ(numSegments, anticache->getNumSegments());
+
+    // Every flush compacts one segment
+    for (int i = 0; i < numSegments; i++) {
+        anticache->flushBlocks();
+    } // FOR
+    ASSERT_GT(anticache->getNumCompactedBlocks(), 0);
+    ASSERT_LT(anticache->getLogSize(), logSize);
+
+    // The blocks that were moved are still there
+    for (int i = 0; i < numBlocks; i += 4) {
+        checkBlock(anticache, "FAKE", blockIds[i], BLOCK_SIZE / 2);
+    } // FOR
+    ASSERT_EQ(0, anticache->getNumBlocks());
+    delete anticache;
+}
+
+TEST_F(LogStructuredAntiCacheDBTest, CheckCapacity) {
+    ChTempDir tempdir;
+    LogStructuredAntiCacheDB* anticache = new LogStructuredAntiCacheDB(NULL, ".", BLOCK_SIZE, BLOCK_SIZE*10);
+
+    for (int i = 0; i < 10; i++) {
+        writePayload(anticache, "FAKE", 100);
+    } // FOR
+    ASSERT_EQ(anticache->getMaxBlocks(), 10);
+    ASSERT_EQ(anticache->getFreeBlocks(), 0);
+
+    bool caught = false;
+    try {
+        writePayload(anticache, "FAKE", 100);
+    } catch (FullBackingStoreException &ex) {
+        caught = true;
+    }
+    ASSERT_TRUE(caught);
+    delete anticache;
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
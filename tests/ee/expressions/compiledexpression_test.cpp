@@ -0,0 +1,231 @@
+/* Copyright (C) 2014 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <vector>
+#include <cstdlib>
+
+#include "harness.h"
+#include "common/tabletuple.h"
+#include "common/TupleSchema.h"
+#include "common/ValueFactory.hpp"
+#include "expressions/expressions.h"
+#include "expressions/expressionutil.h"
+#include "expressions/compiledexpression.h"
+
+using namespace voltdb;
+using namespace std;
+
+#define NUM_TUPLES 500
+
+class CompiledExpressionTest : public Test {
+public:
+    CompiledExpressionTest() {
+        vector<bool> column_allow_null(4, true);
+        vector<ValueType> col_types;
+        col_types.push_back(VALUE_TYPE_BIGINT);
+        col_types.push_back(VALUE_TYPE_INTEGER);
+        col_types.push_back(VALUE_TYPE_TINYINT);
+        col_types.push_back(VALUE_TYPE_DOUBLE);
+        vector<int32_t> col_lengths;
+        for (int i = 0; i < col_types.size(); i++) {
+            col_lengths.push_back(NValue::getTupleStorageSize(col_types[i]));
+        }
+        m_schema = TupleSchema::createTupleSchema(col_types, col_lengths, column_allow_null, true);
+
+        srand(0);
+        for (int i = 0; i < NUM_TUPLES; i++) {
+            TableTuple tuple(m_schema);
+            tuple.move(new char[tuple.tupleLength()]);
+            tuple.setNValue(0, ValueFactory::getBigIntValue(i));
+            if (i % 10 == 0) {
+                tuple.setNValue(1, NValue::getNullValue(VALUE_TYPE_INTEGER));
+            } else {
+                tuple.setNValue(1, ValueFactory::getIntegerValue(rand() % 100));
+            }
+            tuple.setNValue(2, ValueFactory::getTinyIntValue((int8_t)(i % 5)));
+            tuple.setNValue(3, ValueFactory::getDoubleValue(i / 10.0));
+            m_tuples.push_back(tuple.address());
+        } // FOR
+    }
+
+    ~CompiledExpressionTest() {
+        for (int i = 0; i < m_tuples.size(); i++) {
+            delete [] m_tuples[i];
+        } // FOR
+        TupleSchema::freeTupleSchema(m_schema);
+    }
+
+    /**
+     * Check that the compiled predicate returns the same result
+     * as the original expression tree for every tuple
+     */
+    void checkPredicate(AbstractExpression *expr, bool expectCompiled) {
+        CompiledPredicate *compiled = CompiledPredicate::compile(expr, m_schema);
+        if (expectCompiled == false) {
+            EXPECT_TRUE(compiled == NULL);
+            delete expr;
+            return;
+        }
+        ASSERT_TRUE(compiled != NULL);
+        ASSERT_TRUE(compiled->bind());
+
+        TableTuple tuple(m_schema);
+        vector<char*> expected;
+        for (int i = 0; i < m_tuples.size(); i++) {
+            tuple.move(m_tuples[i]);
+            bool result = expr->eval(&tuple, NULL).isTrue();
+            EXPECT_EQ(result, compiled->eval(&tuple, NULL));
+            if (result) expected.push_back(m_tuples[i]);
+        } // FOR
+
+        // Then check the batched version
+        char **batch = new char*[m_tuples.size()];
+        for (int i = 0; i < m_tuples.size(); i++) {
+            batch[i] = m_tuples[i];
+        } // FOR
+        int selected = compiled->filter(batch, (int)m_tuples.size());
+        ASSERT_EQ((int)expected.size(), selected);
+        for (int i = 0; i < selected; i++) {
+            EXPECT_EQ(expected[i], batch[i]);
+        } // FOR
+
+        delete [] batch;
+        delete compiled;
+        delete expr;
+    }
+
+    AbstractExpression* column(int idx) {
+        return (tupleValueFactory(idx));
+    }
+
+    AbstractExpression* constant(NValue value) {
+        return (constantValueFactory(value));
+    }
+
+protected:
+    TupleSchema *m_schema;
+    vector<char*> m_tuples;
+};
+
+TEST_F(CompiledExpressionTest, SimpleComparisons) {
+    ExpressionType types[] = {
+        EXPRESSION_TYPE_COMPARE_EQUAL,
+        EXPRESSION_TYPE_COMPARE_NOTEQUAL,
+        EXPRESSION_TYPE_COMPARE_LESSTHAN,
+        EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+        EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO,
+        EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO
+    };
+    for (int i = 0; i < 6; i++) {
+        // Column on the left
+        checkPredicate(comparisonFactory(types[i], column(0), constant(ValueFactory::getBigIntValue(250))), true);
+        checkPredicate(comparisonFactory(types[i], column(1), constant(ValueFactory::getIntegerValue(50))), true);
+        checkPredicate(comparisonFactory(types[i], column(2), constant(ValueFactory::getTinyIntValue(2))), true);
+        checkPredicate(comparisonFactory(types[i], column(3), constant(ValueFactory::getDoubleValue(12.5))), true);
+        // Column on the right
+        checkPredicate(comparisonFactory(types[i], constant(ValueFactory::getBigIntValue(100)), column(0)), true);
+        checkPredicate(comparisonFactory(types[i], constant(ValueFactory::getIntegerValue(30)), column(1)), true);
+        // Two columns
+        checkPredicate(comparisonFactory(types[i], column(1), column(2)), true);
+    } // FOR
+}
+
+TEST_F(CompiledExpressionTest, Conjunctions) {
+    // A > 100 AND B < 50 AND C = 3
+    AbstractExpression *expr =
+        conjunctionFactory(EXPRESSION_TYPE_CONJUNCTION_AND,
+            conjunctionFactory(EXPRESSION_TYPE_CONJUNCTION_AND,
+                comparisonFactory(EXPRESSION_TYPE_COMPARE_GREATERTHAN, column(0), constant(ValueFactory::getBigIntValue(100))),
+                comparisonFactory(EXPRESSION_TYPE_COMPARE_LESSTHAN, column(1), constant(ValueFactory::getIntegerValue(50)))),
+            comparisonFactory(EXPRESSION_TYPE_COMPARE_EQUAL, column(2), constant(ValueFactory::getTinyIntValue(3))));
+    checkPredicate(expr, true);
+
+    // (A < 10 OR D >= 40.0) AND B <> 7
+    expr =
+        conjunctionFactory(EXPRESSION_TYPE_CONJUNCTION_AND,
+            conjunctionFactory(EXPRESSION_TYPE_CONJUNCTION_OR,
+                comparisonFactory(EXPRESSION_TYPE_COMPARE_LESSTHAN, column(0), constant(ValueFactory::getBigIntValue(10))),
+                comparisonFactory(EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO, column(3), constant(ValueFactory::getDoubleValue(40.0)))),
+            comparisonFactory(EXPRESSION_TYPE_COMPARE_NOTEQUAL, column(1), constant(ValueFactory::getIntegerValue(7))));
+    checkPredicate(expr, true);
+}
+
+TEST_F(CompiledExpressionTest, Unsupported) {
+    // Mixed integer/double columns are left to the original tree
+    checkPredicate(comparisonFactory(EXPRESSION_TYPE_COMPARE_EQUAL, column(0), column(3)), false);
+
+    // Arithmetic is not supported
+    checkPredicate(comparisonFactory(EXPRESSION_TYPE_COMPARE_EQUAL,
+                                     operatorFactory(EXPRESSION_TYPE_OPERATOR_PLUS, column(0), column(1)),
+                                     constant(ValueFactory::getBigIntValue(10))), false);
+
+    // An integer column compared to a double constant compiles, but it can't be bound
+    AbstractExpression *expr = comparisonFactory(EXPRESSION_TYPE_COMPARE_LESSTHAN, column(0),
+                                                 constant(ValueFactory::getDoubleValue(10.5)));
+    CompiledPredicate *compiled = CompiledPredicate::compile(expr, m_schema);
+    ASSERT_TRUE(compiled != NULL);
+    EXPECT_FALSE(compiled->bind());
+    delete compiled;
+    delete expr;
+}
+
+TEST_F(CompiledExpressionTest, Projection) {
+    // Reverse the columns
+    vector<AbstractExpression*> exprs;
+    vector<ValueType> col_types;
+    vector<int32_t> col_lengths;
+    vector<bool> column_allow_null(m_schema->columnCount(), true);
+    for (int i = m_schema->columnCount() - 1; i >= 0; i--) {
+        exprs.push_back(column(i));
+        col_types.push_back(m_schema->columnType(i));
+        col_lengths.push_back(m_schema->columnLength(i));
+    } // FOR
+    TupleSchema *output_schema = TupleSchema::createTupleSchema(col_types, col_lengths, column_allow_null, true);
+    CompiledProjection *compiled = CompiledProjection::compile(exprs, m_schema, output_schema);
+    ASSERT_TRUE(compiled != NULL);
+
+    TableTuple input(m_schema);
+    TableTuple output(output_schema);
+    output.move(new char[output.tupleLength()]);
+    for (int i = 0; i < m_tuples.size(); i++) {
+        input.move(m_tuples[i]);
+        compiled->project(input, output);
+        for (int col = 0; col < exprs.size(); col++) {
+            NValue expected = input.getNValue(m_schema->columnCount() - col - 1);
+            EXPECT_EQ(0, expected.compare(output.getNValue(col)));
+        } // FOR
+    } // FOR
+
+    delete [] output.address();
+    delete compiled;
+    for (int i = 0; i < exprs.size(); i++) {
+        delete exprs[i];
+    } // FOR
+    TupleSchema::freeTupleSchema(output_schema);
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -49,6 +49,7 @@
  * OTHER DEALINGS IN THE SOFTWARE.
  */
 
+#include <algorithm>
 #include "harness.h"
 #include "common/common.h"
 #include "common/NValue.hpp"
@@ -366,6 +367,89 @@ public:
                         .op_equals(tuple.getNValue(i)).isTrue());
     }
 
+    /*
+     * Build a new index over all of the tuples in the table with a
+     * single addEntries() call and check that we can find every tuple
+     */
+    TableIndex* addAllEntries(TableIndexScheme scheme, vector<char*> &addresses)
+    {
+        TableTuple tuple(table->schema());
+        TableIterator iterator = table->tableIterator();
+        while (iterator.next(tuple)) {
+            addresses.push_back(tuple.address());
+        }
+        // Give them to the index out of order
+        reverse(addresses.begin(), addresses.end());
+
+        scheme.tupleSchema = const_cast<TupleSchema*>(table->schema());
+        TableIndex* index = TableIndexFactory::getInstance(scheme);
+        EXPECT_TRUE(index->addEntries(tuple, addresses));
+        EXPECT_EQ(NUM_OF_TUPLES, index->getSize());
+        return index;
+    }
+
+    /*
+     * Count the number of tuples in the index with the given value
+     * for the index's only column
+     */
+    int countAtKey(TableIndex* index, int64_t value)
+    {
+        vector<ValueType> keyColumnTypes(1, VALUE_TYPE_BIGINT);
+        vector<int32_t> keyColumnLengths(1, NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+        vector<bool> keyColumnAllowNull(1, true);
+        TupleSchema* keySchema =
+            TupleSchema::createTupleSchema(keyColumnTypes, keyColumnLengths, keyColumnAllowNull, true);
+        TableTuple searchkey(keySchema);
+        searchkey.move(new char[searchkey.tupleLength()]);
+        searchkey.setNValue(0, ValueFactory::getBigIntValue(value));
+
+        int count = 0;
+        index->moveToKey(&searchkey);
+        while (!index->nextValueAtKey().isNullTuple()) {
+            count++;
+        }
+        delete[] searchkey.address();
+        TupleSchema::freeTupleSchema(keySchema);
+        return count;
+    }
+
+    /*
+     * Move the index to the given value for the index's only column
+     */
+    bool moveToKey(TableIndex* index, int64_t value)
+    {
+        vector<ValueType> keyColumnTypes(1, VALUE_TYPE_BIGINT);
+        vector<int32_t> keyColumnLengths(1, NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+        vector<bool> keyColumnAllowNull(1, true);
+        TupleSchema* keySchema =
+            TupleSchema::createTupleSchema(keyColumnTypes, keyColumnLengths, keyColumnAllowNull, true);
+        TableTuple searchkey(keySchema);
+        searchkey.move(new char[searchkey.tupleLength()]);
+        searchkey.setNValue(0, ValueFactory::getBigIntValue(value));
+        bool found = index->moveToKey(&searchkey);
+        delete[] searchkey.address();
+        TupleSchema::freeTupleSchema(keySchema);
+        return found;
+    }
+
+    /*
+     * Change the given column of a tuple in the table in place and
+     * then update the index, like PersistentTable::updateTuple() does
+     */
+    void updateInPlace(TableIndex* index, TableTuple &tuple, int column, int64_t value)
+    {
+        TableTuple oldTuple(table->schema());
+        oldTuple.move(new char[oldTuple.tupleLength()]);
+        oldTuple.copy(tuple);
+        tuple.setNValue(column, ValueFactory::getBigIntValue(value));
+        EXPECT_TRUE(index->checkForIndexChange(&oldTuple, &tuple));
+        if (index->isUniqueIndex()) {
+            EXPECT_FALSE(index->exists(&tuple));
+        }
+        EXPECT_TRUE(index->replaceEntry(&oldTuple, &tuple));
+        delete[] oldTuple.address();
+    }
+
 protected:
     PersistentTable* table;
     char* m_exceptionBuffer;
@@ -902,6 +986,209 @@ TEST_F(IndexTest, TupleKeyUnique) {
     delete[] searchkey.address();
 }
 
+TEST_F(IndexTest, AddEntriesUnique) {
+    vector<int> iu_column_indices;
+    vector<ValueType> iu_column_types;
+    iu_column_indices.push_back(3);
+    iu_column_types.push_back(VALUE_TYPE_BIGINT);
+    TableIndexScheme scheme("iu",
+                            BALANCED_TREE_INDEX,
+                            iu_column_indices,
+                            iu_column_types,
+                            true, true, NULL);
+    init(scheme);
+
+    TableIndexType types[] = { BALANCED_TREE_INDEX, HASH_TABLE_INDEX };
+    for (int i = 0; i < 2; i++) {
+        scheme.type = types[i];
+        vector<char*> addresses;
+        TableIndex* index = addAllEntries(scheme, addresses);
+        for (int64_t row = 1; row <= NUM_OF_TUPLES; row++) {
+            EXPECT_EQ(1, countAtKey(index, row + 20));
+        }
+        EXPECT_EQ(0, countAtKey(index, NUM_OF_TUPLES + 21));
+
+        // The tree has to come back out in order
+        if (scheme.type == BALANCED_TREE_INDEX) {
+            index->moveToEnd(true);
+            TableTuple tuple(table->schema());
+            for (int64_t row = 1; row <= NUM_OF_TUPLES; row++) {
+                tuple = index->nextValue();
+                ASSERT_FALSE(tuple.isNullTuple());
+                EXPECT_TRUE(ValueFactory::getBigIntValue(row).op_equals(tuple.getNValue(0)).isTrue());
+            }
+            EXPECT_TRUE(index->nextValue().isNullTuple());
+        }
+
+        // Adding all of them again should fail without changing anything
+        TableTuple tuple(table->schema());
+        EXPECT_FALSE(index->addEntries(tuple, addresses));
+        EXPECT_EQ(NUM_OF_TUPLES, index->getSize());
+        delete index;
+    }
+}
+
+TEST_F(IndexTest, AddEntriesMulti) {
+    vector<int> im_column_indices;
+    vector<ValueType> im_column_types;
+    im_column_indices.push_back(2);
+    im_column_types.push_back(VALUE_TYPE_BIGINT);
+    TableIndexScheme scheme("im",
+                            BALANCED_TREE_INDEX,
+                            im_column_indices,
+                            im_column_types,
+                            false, true, NULL);
+    init(scheme);
+
+    TableIndexType types[] = { BALANCED_TREE_INDEX, HASH_TABLE_INDEX };
+    for (int i = 0; i < 2; i++) {
+        scheme.type = types[i];
+        vector<char*> addresses;
+        TableIndex* index = addAllEntries(scheme, addresses);
+        EXPECT_EQ(333, countAtKey(index, 0));
+        EXPECT_EQ(334, countAtKey(index, 1));
+        EXPECT_EQ(333, countAtKey(index, 2));
+
+        // The second time around they get added to an index that is not empty
+        TableTuple tuple(table->schema());
+        EXPECT_TRUE(index->addEntries(tuple, addresses));
+        EXPECT_EQ(NUM_OF_TUPLES * 2, index->getSize());
+        EXPECT_EQ(668, countAtKey(index, 1));
+        delete index;
+    }
+}
+
+TEST_F(IndexTest, RadixTreeUnique) {
+    vector<int> iu_column_indices;
+    vector<ValueType> iu_column_types;
+    iu_column_indices.push_back(3);
+    iu_column_types.push_back(VALUE_TYPE_BIGINT);
+    init(TableIndexScheme("iu",
+                          RADIX_TREE_INDEX,
+                          iu_column_indices,
+                          iu_column_types,
+                          true, true, NULL));
+    TableIndex* index = table->index("iu");
+    ASSERT_EQ("RadixTreeUniqueIndex", index->getTypeName());
+    EXPECT_EQ(NUM_OF_TUPLES, index->getSize());
+
+    // moveToKey + nextValueAtKey
+    EXPECT_TRUE(moveToKey(index, 25));
+    TableTuple tuple = index->nextValueAtKey();
+    ASSERT_FALSE(tuple.isNullTuple());
+    EXPECT_TRUE(ValueFactory::getBigIntValue(5).op_equals(tuple.getNValue(0)).isTrue());
+    EXPECT_TRUE(index->nextValueAtKey().isNullTuple());
+    EXPECT_FALSE(moveToKey(index, 20));
+    EXPECT_TRUE(index->nextValueAtKey().isNullTuple());
+
+    // advanceToNextKey
+    EXPECT_TRUE(moveToKey(index, 25));
+    for (int64_t row = 6; row <= NUM_OF_TUPLES; row++) {
+        ASSERT_TRUE(index->advanceToNextKey());
+        TableTuple next = index->nextValueAtKey();
+        ASSERT_FALSE(next.isNullTuple());
+        EXPECT_TRUE(ValueFactory::getBigIntValue(row).op_equals(next.getNValue(0)).isTrue());
+    }
+    EXPECT_FALSE(index->advanceToNextKey());
+
+    // replaceEntry after the tuple already holds the new value
+    ASSERT_TRUE(moveToKey(index, 25));
+    tuple = index->nextValueAtKey();
+    updateInPlace(index, tuple, 3, NUM_OF_TUPLES * 10);
+    EXPECT_FALSE(moveToKey(index, 25));
+    ASSERT_TRUE(moveToKey(index, NUM_OF_TUPLES * 10));
+    EXPECT_EQ(tuple.address(), index->nextValueAtKey().address());
+    EXPECT_EQ(NUM_OF_TUPLES, index->getSize());
+    EXPECT_TRUE(moveToKey(index, 26));
+    TableTuple other = index->nextValueAtKey();
+    TableTuple &probe = table->tempTuple();
+    probe.copy(other);
+    EXPECT_TRUE(index->exists(&probe));
+    EXPECT_FALSE(index->exists(&other));
+
+    // setEntryToNewAddress with an evicted tuple, whose key has to be pinned
+    int64_t memory = index->getMemoryEstimate();
+    char* evicted = new char[tuple.tupleLength()];
+    ::memset(evicted, 0, tuple.tupleLength());
+    TableTuple evictedTuple(table->schema());
+    evictedTuple.move(evicted);
+    evictedTuple.setEvictedTrue();
+    EXPECT_TRUE(index->setEntryToNewAddress(&tuple, evicted, tuple.address()));
+    EXPECT_GT(index->getMemoryEstimate(), memory);
+    ASSERT_TRUE(moveToKey(index, NUM_OF_TUPLES * 10));
+    EXPECT_EQ(evicted, index->nextValueAtKey().address());
+    EXPECT_TRUE(moveToKey(index, 26));
+    EXPECT_EQ(other.address(), index->nextValueAtKey().address());
+
+    EXPECT_TRUE(index->setEntryToNewAddress(&tuple, tuple.address(), evicted));
+    EXPECT_EQ(memory, index->getMemoryEstimate());
+    ASSERT_TRUE(moveToKey(index, NUM_OF_TUPLES * 10));
+    EXPECT_EQ(tuple.address(), index->nextValueAtKey().address());
+    delete[] evicted;
+}
+
+TEST_F(IndexTest, RadixTreeMulti) {
+    vector<int> im_column_indices;
+    vector<ValueType> im_column_types;
+    im_column_indices.push_back(2);
+    im_column_types.push_back(VALUE_TYPE_BIGINT);
+    init(TableIndexScheme("im",
+                          RADIX_TREE_INDEX,
+                          im_column_indices,
+                          im_column_types,
+                          false, true, NULL));
+    TableIndex* index = table->index("im");
+    ASSERT_EQ("RadixTreeMultiMapIndex", index->getTypeName());
+    EXPECT_EQ(NUM_OF_TUPLES, index->getSize());
+
+    // moveToKey + nextValueAtKey
+    EXPECT_EQ(333, countAtKey(index, 0));
+    EXPECT_EQ(334, countAtKey(index, 1));
+    EXPECT_EQ(333, countAtKey(index, 2));
+    EXPECT_EQ(0, countAtKey(index, 3));
+
+    // advanceToNextKey
+    EXPECT_TRUE(moveToKey(index, 0));
+    for (int64_t key = 1; key <= 2; key++) {
+        ASSERT_TRUE(index->advanceToNextKey());
+        int count = 0;
+        TableTuple next(table->schema());
+        while (!(next = index->nextValueAtKey()).isNullTuple()) {
+            EXPECT_TRUE(ValueFactory::getBigIntValue(key).op_equals(next.getNValue(2)).isTrue());
+            count++;
+        }
+        EXPECT_EQ(key == 1 ? 334 : 333, count);
+    }
+    EXPECT_FALSE(index->advanceToNextKey());
+
+    // replaceEntry after the tuple already holds the new value
+    ASSERT_TRUE(moveToKey(index, 1));
+    TableTuple tuple = index->nextValueAtKey();
+    updateInPlace(index, tuple, 2, 7);
+    EXPECT_EQ(333, countAtKey(index, 1));
+    EXPECT_EQ(1, countAtKey(index, 7));
+    EXPECT_EQ(NUM_OF_TUPLES, index->getSize());
+
+    // setEntryToNewAddress with an evicted tuple, whose key has to be pinned
+    int64_t memory = index->getMemoryEstimate();
+    char* evicted = new char[tuple.tupleLength()];
+    ::memset(evicted, 0, tuple.tupleLength());
+    TableTuple evictedTuple(table->schema());
+    evictedTuple.move(evicted);
+    evictedTuple.setEvictedTrue();
+    EXPECT_TRUE(index->setEntryToNewAddress(&tuple, evicted, tuple.address()));
+    EXPECT_GT(index->getMemoryEstimate(), memory);
+    ASSERT_TRUE(moveToKey(index, 7));
+    EXPECT_EQ(evicted, index->nextValueAtKey().address());
+    EXPECT_TRUE(index->nextValueAtKey().isNullTuple());
+    EXPECT_EQ(333, countAtKey(index, 1));
+
+    EXPECT_TRUE(index->setEntryToNewAddress(&tuple, tuple.address(), evicted));
+    EXPECT_EQ(memory, index->getMemoryEstimate());
+    ASSERT_TRUE(moveToKey(index, 7));
+    EXPECT_EQ(tuple.address(), index->nextValueAtKey().address());
+    delete[] evicted;
+}
 
 int main()
 {
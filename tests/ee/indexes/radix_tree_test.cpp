@@ -0,0 +1,312 @@
+/* Copyright (C) 2014 by H-Store Project
+ * Brown University
+ * Massachusetts Institute of Technology
+ * Yale University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <cstdlib>
+#include <map>
+#include <string>
+#include <vector>
+#include "harness.h"
+#include "common/common.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "common/TupleSchema.h"
+#include "common/tabletuple.h"
+#include "indexes/AdaptiveRadixTree.h"
+#include "indexes/RadixKey.h"
+
+using namespace std;
+using namespace voltdb;
+
+#define NUM_OF_KEYS 20000
+
+class RadixTreeTest : public Test, public AdaptiveRadixTree::KeyLoader {
+public:
+    RadixTreeTest() : m_memory(0) {
+        srand(0);
+    }
+
+    /**
+     * Make a random key that shares a long prefix with a lot of the other keys
+     */
+    string makeKey() {
+        string key;
+        int length = 1 + (rand() % 24);
+        for (int i = 0; i < length; i++) {
+            key.push_back(static_cast<char>(i < 10 ? 'a' + (rand() % 3) : 1 + (rand() % 255)));
+        }
+        // Make the keys prefix-free
+        key.push_back('\0');
+        return key;
+    }
+
+    static const uint8_t* bytes(const string &key) {
+        return reinterpret_cast<const uint8_t*>(key.data());
+    }
+
+    /**
+     * The tree only stores the values, so we remember the key of each value here
+     */
+    const uint8_t* loadKey(const void *value, uint32_t *length) const {
+        map<const void*, string>::const_iterator i = m_keys.find(value);
+        assert(i != m_keys.end() && !i->second.empty());
+        *length = static_cast<uint32_t>(i->second.size());
+        return bytes(i->second);
+    }
+
+    const void* makeValue(int i, const string &key) {
+        const void *value = reinterpret_cast<const void*>(static_cast<intptr_t>(i + 1));
+        m_keys[value] = key;
+        return value;
+    }
+
+    void checkOrder(AdaptiveRadixTree &tree, map<string, const void*> &expected) {
+        AdaptiveRadixTree::Iterator iter;
+        tree.seekFirst(iter);
+        for (map<string, const void*>::iterator i = expected.begin(); i != expected.end(); ++i) {
+            ASSERT_TRUE(iter.isValid());
+            uint32_t length = 0;
+            const uint8_t *key = iter.key(&length);
+            ASSERT_EQ(i->first, string(reinterpret_cast<const char*>(key), length));
+            ASSERT_EQ(i->second, iter.value());
+            iter.next();
+        }
+        EXPECT_FALSE(iter.isValid());
+
+        tree.seekLast(iter);
+        for (map<string, const void*>::reverse_iterator i = expected.rbegin(); i != expected.rend(); ++i) {
+            ASSERT_TRUE(iter.isValid());
+            ASSERT_EQ(i->second, iter.value());
+            iter.prev();
+        }
+        EXPECT_FALSE(iter.isValid());
+    }
+
+    int64_t m_memory;
+    map<const void*, string> m_keys;
+};
+
+TEST_F(RadixTreeTest, InsertFindErase) {
+    AdaptiveRadixTree tree(this, &m_memory);
+    map<string, const void*> expected;
+
+    for (int i = 0; i < NUM_OF_KEYS; i++) {
+        string key = makeKey();
+        const void *value = makeValue(i, key);
+        bool inserted = expected.insert(make_pair(key, value)).second;
+        ASSERT_EQ(inserted, tree.insert(bytes(key), static_cast<uint32_t>(key.size()), value));
+    }
+    ASSERT_EQ(expected.size(), tree.size());
+    EXPECT_GT(m_memory, 0);
+
+    for (map<string, const void*>::iterator i = expected.begin(); i != expected.end(); ++i) {
+        ASSERT_EQ(i->second, tree.find(bytes(i->first), static_cast<uint32_t>(i->first.size())));
+    }
+    string missing("zzz\0", 4);
+    EXPECT_TRUE(tree.find(bytes(missing), static_cast<uint32_t>(missing.size())) == NULL);
+    checkOrder(tree, expected);
+
+    // Remove half of the keys so that the nodes have to shrink
+    int count = 0;
+    for (map<string, const void*>::iterator i = expected.begin(); i != expected.end(); ) {
+        if (count++ % 2 == 0) {
+            ASSERT_TRUE(tree.erase(bytes(i->first), static_cast<uint32_t>(i->first.size())));
+            ASSERT_FALSE(tree.erase(bytes(i->first), static_cast<uint32_t>(i->first.size())));
+            expected.erase(i++);
+        } else {
+            ++i;
+        }
+    }
+    ASSERT_EQ(expected.size(), tree.size());
+    checkOrder(tree, expected);
+
+    for (map<string, const void*>::iterator i = expected.begin(); i != expected.end(); ++i) {
+        ASSERT_TRUE(tree.erase(bytes(i->first), static_cast<uint32_t>(i->first.size())));
+    }
+    EXPECT_EQ(0, tree.size());
+    EXPECT_EQ(0, m_memory);
+}
+
+TEST_F(RadixTreeTest, LowerBound) {
+    AdaptiveRadixTree tree(this, &m_memory);
+    map<string, const void*> expected;
+    for (int i = 0; i < NUM_OF_KEYS; i++) {
+        string key = makeKey();
+        const void *value = makeValue(i, key);
+        if (expected.insert(make_pair(key, value)).second) {
+            tree.insert(bytes(key), static_cast<uint32_t>(key.size()), value);
+        }
+    }
+
+    AdaptiveRadixTree::Iterator iter;
+    for (int i = 0; i < NUM_OF_KEYS; i++) {
+        string key = makeKey();
+        bool inclusive = (i % 2 == 0);
+        map<string, const void*>::iterator match = (inclusive ? expected.lower_bound(key) : expected.upper_bound(key));
+        tree.lowerBound(iter, bytes(key), static_cast<uint32_t>(key.size()), inclusive);
+        if (match == expected.end()) {
+            ASSERT_FALSE(iter.isValid());
+        } else {
+            ASSERT_TRUE(iter.isValid());
+            ASSERT_EQ(match->second, iter.value());
+        }
+    }
+
+    // Existing keys
+    for (map<string, const void*>::iterator i = expected.begin(); i != expected.end(); ++i) {
+        tree.lowerBound(iter, bytes(i->first), static_cast<uint32_t>(i->first.size()), true);
+        ASSERT_EQ(i->second, iter.value());
+        tree.lowerBound(iter, bytes(i->first), static_cast<uint32_t>(i->first.size()), false);
+        map<string, const void*>::iterator next = i;
+        ++next;
+        if (next == expected.end()) {
+            ASSERT_FALSE(iter.isValid());
+        } else {
+            ASSERT_EQ(next->second, iter.value());
+        }
+    }
+}
+
+TEST_F(RadixTreeTest, EraseByValue) {
+    AdaptiveRadixTree tree(this, &m_memory);
+    string key0("abc\0", 4);
+    string key1("abd\0", 4);
+    const void *value0 = makeValue(0, key0);
+    const void *value1 = makeValue(1, key1);
+    ASSERT_TRUE(tree.insert(bytes(key0), 4, value0));
+    ASSERT_TRUE(tree.insert(bytes(key1), 4, value1));
+
+    // The value's key changes before the entry is removed, like when a
+    // table updates a tuple in place. The entry is still found by its value.
+    m_keys[value0] = string("abe\0", 4);
+    EXPECT_TRUE(tree.find(bytes(key0), 4) == NULL);
+    ASSERT_FALSE(tree.erase(bytes(key0), 4, value1));
+    ASSERT_TRUE(tree.erase(bytes(key0), 4, value0));
+    ASSERT_EQ(1, tree.size());
+    EXPECT_EQ(value1, tree.find(bytes(key1), 4));
+}
+
+TEST_F(RadixTreeTest, PinnedKeys) {
+    AdaptiveRadixTree tree(this, &m_memory);
+    map<string, const void*> expected;
+    for (int i = 0; i < NUM_OF_KEYS; i++) {
+        string key = makeKey();
+        const void *value = makeValue(i, key);
+        if (expected.insert(make_pair(key, value)).second) {
+            tree.insert(bytes(key), static_cast<uint32_t>(key.size()), value);
+        }
+    }
+    int64_t unpinned = m_memory;
+
+    // Point every other entry at a value whose key can't be loaded
+    int count = 0;
+    for (map<string, const void*>::iterator i = expected.begin(); i != expected.end(); ++i) {
+        if (count++ % 2 != 0) continue;
+        const void *value = makeValue(NUM_OF_KEYS * 2 + count, "");
+        ASSERT_TRUE(tree.update(bytes(i->first), static_cast<uint32_t>(i->first.size()), value, true));
+        i->second = value;
+    }
+    EXPECT_GT(m_memory, unpinned);
+    checkOrder(tree, expected);
+
+    // Add more keys around the pinned ones
+    for (int i = 0; i < NUM_OF_KEYS; i++) {
+        string key = makeKey();
+        const void *value = makeValue(NUM_OF_KEYS * 4 + i, key);
+        if (expected.insert(make_pair(key, value)).second) {
+            ASSERT_TRUE(tree.insert(bytes(key), static_cast<uint32_t>(key.size()), value));
+        }
+    }
+    checkOrder(tree, expected);
+
+    // Then point them back at values with loadable keys
+    count = 0;
+    for (map<string, const void*>::iterator i = expected.begin(); i != expected.end(); ++i) {
+        const void *value = makeValue(NUM_OF_KEYS * 6 + count++, i->first);
+        ASSERT_TRUE(tree.update(bytes(i->first), static_cast<uint32_t>(i->first.size()), value));
+        i->second = value;
+    }
+    checkOrder(tree, expected);
+    for (map<string, const void*>::iterator i = expected.begin(); i != expected.end(); ++i) {
+        ASSERT_TRUE(tree.erase(bytes(i->first), static_cast<uint32_t>(i->first.size())));
+    }
+    EXPECT_EQ(0, m_memory);
+}
+
+TEST_F(RadixTreeTest, KeyOrder) {
+    vector<ValueType> columnTypes;
+    columnTypes.push_back(VALUE_TYPE_BIGINT);
+    columnTypes.push_back(VALUE_TYPE_VARCHAR);
+    columnTypes.push_back(VALUE_TYPE_DOUBLE);
+    vector<int32_t> columnLengths;
+    columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+    columnLengths.push_back(10);
+    columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_DOUBLE));
+    vector<bool> columnAllowNull(3, true);
+    TupleSchema *keySchema = TupleSchema::createTupleSchema(columnTypes, columnLengths, columnAllowNull, true);
+
+    const int64_t ints[] = { INT64_NULL, -1000, -1, 0, 1, 1000 };
+    const char *strs[] = { NULL, "", "a", "ab", "b" };
+    const double doubles[] = { DOUBLE_NULL, -2.5, -0.0, 1.5 };
+
+    // Generate the keys in sorted order and make sure that the encodings are sorted too
+    vector<string> encoded;
+    RadixKey radixKey;
+    radixKey.init(keySchema);
+    TableTuple keyTuple(keySchema);
+    keyTuple.move(new char[keyTuple.tupleLength()]);
+    for (int i = 0; i < 6; i++) {
+        for (int s = 0; s < 5; s++) {
+            for (int d = 0; d < 4; d++) {
+                keyTuple.setNValue(0, ValueFactory::getBigIntValue(ints[i]));
+                NValue str = (strs[s] == NULL ? ValueFactory::getNullStringValue() : ValueFactory::getStringValue(strs[s]));
+                keyTuple.setNValue(1, str);
+                str.free();
+                keyTuple.setNValue(2, ValueFactory::getDoubleValue(doubles[d]));
+                radixKey.setFromKey(&keyTuple);
+                encoded.push_back(string(reinterpret_cast<const char*>(radixKey.data()), radixKey.length()));
+            }
+        }
+    }
+    for (int i = 1; i < encoded.size(); i++) {
+        EXPECT_LT(encoded[i - 1], encoded[i]);
+        // No key can be a prefix of another key
+        EXPECT_NE(0, encoded[i].compare(0, encoded[i - 1].size(), encoded[i - 1]));
+    }
+
+    // -0.0 and 0.0 are the same key
+    keyTuple.setNValue(2, ValueFactory::getDoubleValue(-0.0));
+    radixKey.setFromKey(&keyTuple);
+    string negative(reinterpret_cast<const char*>(radixKey.data()), radixKey.length());
+    keyTuple.setNValue(2, ValueFactory::getDoubleValue(0.0));
+    radixKey.setFromKey(&keyTuple);
+    EXPECT_EQ(negative, string(reinterpret_cast<const char*>(radixKey.data()), radixKey.length()));
+
+    delete [] keyTuple.address();
+    TupleSchema::freeTupleSchema(keySchema);
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
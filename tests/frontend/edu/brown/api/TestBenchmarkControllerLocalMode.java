@@ -0,0 +1,96 @@
+package edu.brown.api;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Runs a short TM1 benchmark with all of the HStoreSites and clients inside
+ * of the BenchmarkController's JVM (LOCAL=true). The controller runs in its own
+ * JVM so that we can check that it prints the results and then exits on its own.
+ */
+public class TestBenchmarkControllerLocalMode extends TestCase {
+
+    private static final long TIMEOUT = 180000; // ms
+    private static final String RESULTS_HEADER = "BENCHMARK RESULTS";
+
+    /**
+     * testLocalMode
+     */
+    public void testLocalMode() throws Exception {
+        File java = new File(new File(System.getProperty("java.home"), "bin"), "java");
+        List<String> command = new ArrayList<String>();
+        command.add(java.getAbsolutePath());
+        command.add("-ea");
+        command.add("-Xmx2048m");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("-Djava.library.path=" + System.getProperty("java.library.path"));
+        String log4j = System.getProperty("log4j.configuration");
+        if (log4j != null) command.add("-Dlog4j.configuration=" + log4j);
+        command.add(BenchmarkController.class.getCanonicalName());
+        command.add("CONF=properties/default.properties");
+        command.add("benchmark.conf=properties/benchmarks/tm1.properties");
+        command.add("benchmark.builder=edu.brown.benchmark.tm1.TM1ProjectBuilder");
+        command.add("LOCAL=true");
+        command.add("HOSTCOUNT=1");
+        command.add("SITESPERHOST=1");
+        command.add("HOST=localhost");
+        command.add("client.hosts=localhost");
+        command.add("client.threads_per_host=2");
+        command.add("client.warmup=0");
+        command.add("client.duration=5000");
+        command.add("client.interval=1000");
+        command.add("client.scalefactor=1000");
+        command.add("site.status_enable=false");
+
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        final Process process = builder.start();
+
+        // Collect all of the output so that we can check for the results
+        final StringBuilder output = new StringBuilder();
+        Thread reader = new Thread() {
+            public void run() {
+                BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()));
+                String line = null;
+                try {
+                    while ((line = in.readLine()) != null) {
+                        synchronized (output) {
+                            output.append(line).append("\n");
+                        } // SYNCH
+                    } // WHILE
+                } catch (Exception ex) {
+                    // Ignore
+                }
+            }
+        };
+        reader.setDaemon(true);
+        reader.start();
+
+        // The controller has to exit on its own once the benchmark is over
+        Integer exitValue = null;
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (exitValue == null && System.currentTimeMillis() < deadline) {
+            try {
+                exitValue = process.exitValue();
+            } catch (IllegalThreadStateException ex) {
+                Thread.sleep(500);
+            }
+        } // WHILE
+        if (exitValue == null) process.destroy();
+        reader.join(5000);
+
+        String log;
+        synchronized (output) {
+            log = output.toString();
+        } // SYNCH
+        assertNotNull("BenchmarkController did not exit after the benchmark\n" + log, exitValue);
+        assertEquals(log, 0, exitValue.intValue());
+        assertTrue(log, log.contains(RESULTS_HEADER));
+    }
+}
@@ -0,0 +1,117 @@
+package edu.brown.catalog;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.voltdb.CatalogContext;
+import org.voltdb.catalog.PlanFragment;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Statement;
+import org.voltdb.utils.JarReader;
+
+import edu.brown.BaseTestCase;
+import edu.brown.utils.CollectionUtil;
+import edu.brown.utils.ProjectType;
+
+public class TestPlanFragmentIndex extends BaseTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp(ProjectType.TM1);
+    }
+
+    private void checkEntry(PlanFragment catalog_frag, PlanFragmentIndex.Entry entry) {
+        assertNotNull(catalog_frag.fullName(), entry);
+        assertEquals(catalog_frag.getId(), entry.fragmentId);
+        assertEquals(catalog_frag.getReadonly(), entry.readonly);
+        int expected[] = PlanFragmentIndex.getReferencedTableIds(catalog_frag);
+        int actual[] = entry.tableIds.clone();
+        Arrays.sort(expected);
+        Arrays.sort(actual);
+        assertTrue(catalog_frag.fullName(), Arrays.equals(expected, actual));
+    }
+
+    /**
+     * testSerialize
+     */
+    public void testSerialize() throws Exception {
+        byte serialized[] = PlanFragmentIndex.serialize(catalog_db);
+        assertNotNull(serialized);
+        Map<Integer, PlanFragmentIndex.Entry> entries = PlanFragmentIndex.deserialize(catalog_db, serialized);
+        assertFalse(entries.isEmpty());
+
+        int num_frags = 0;
+        for (Procedure catalog_proc : catalog_db.getProcedures()) {
+            for (Statement catalog_stmt : catalog_proc.getStatements()) {
+                for (PlanFragment catalog_frag : catalog_stmt.getFragments()) {
+                    this.checkEntry(catalog_frag, entries.get(catalog_frag.getId()));
+                    num_frags++;
+                } // FOR
+                for (PlanFragment catalog_frag : catalog_stmt.getMs_fragments()) {
+                    this.checkEntry(catalog_frag, entries.get(catalog_frag.getId()));
+                    num_frags++;
+                } // FOR
+            } // FOR (stmt)
+        } // FOR (proc)
+        assertEquals(num_frags, entries.size());
+    }
+
+    /**
+     * testStaleEntries
+     */
+    public void testStaleEntries() throws Exception {
+        byte serialized[] = PlanFragmentIndex.serialize(catalog_db);
+
+        // If the plan changes, then we should ignore its entry
+        PlanFragment catalog_frag = null;
+        for (Procedure catalog_proc : catalogContext.getRegularProcedures()) {
+            for (Statement catalog_stmt : catalog_proc.getStatements()) {
+                if (catalog_stmt.getFragments().isEmpty() == false) {
+                    catalog_frag = CollectionUtil.first(catalog_stmt.getFragments());
+                    break;
+                }
+            } // FOR
+            if (catalog_frag != null) break;
+        } // FOR
+        assertNotNull(catalog_frag);
+        String orig = catalog_frag.getPlannodetree();
+        catalog_frag.setPlannodetree(orig + "00");
+        try {
+            Map<Integer, PlanFragmentIndex.Entry> entries = PlanFragmentIndex.deserialize(catalog_db, serialized);
+            assertFalse(entries.isEmpty());
+            assertFalse(catalog_frag.fullName(), entries.containsKey(catalog_frag.getId()));
+        } finally {
+            catalog_frag.setPlannodetree(orig);
+        }
+
+        // Garbage should not blow up
+        Map<Integer, PlanFragmentIndex.Entry> entries = PlanFragmentIndex.deserialize(catalog_db, new byte[]{ 1, 2, 3 });
+        assertTrue(entries.isEmpty());
+    }
+
+    /**
+     * testCatalogJar
+     */
+    public void testCatalogJar() throws Exception {
+        // The compiler should have put the index in the jar
+        byte serialized[] = JarReader.readFileFromJarAtURL(catalogContext.jarPath.getAbsolutePath(),
+                                                           PlanFragmentIndex.FILENAME);
+        assertNotNull(serialized);
+        Map<Integer, PlanFragmentIndex.Entry> entries = PlanFragmentIndex.load(catalog_db, catalogContext.jarPath);
+        assertFalse(entries.isEmpty());
+
+        // And the CatalogContext should give us the same thing with or without it
+        CatalogContext withoutJar = new CatalogContext(catalogContext.catalog);
+        for (PlanFragmentIndex.Entry entry : entries.values()) {
+            if (entry.readonly) {
+                assertTrue(Arrays.equals(entry.tableIds, catalogContext.getReadTableIds(entry.fragmentId)));
+                assertTrue(Arrays.equals(entry.tableIds, withoutJar.getReadTableIds(entry.fragmentId)));
+                assertNull(withoutJar.getWriteTableIds(entry.fragmentId));
+            } else {
+                assertTrue(Arrays.equals(entry.tableIds, catalogContext.getWriteTableIds(entry.fragmentId)));
+                assertTrue(Arrays.equals(entry.tableIds, withoutJar.getWriteTableIds(entry.fragmentId)));
+                assertNull(withoutJar.getReadTableIds(entry.fragmentId));
+            }
+        } // FOR
+    }
+}
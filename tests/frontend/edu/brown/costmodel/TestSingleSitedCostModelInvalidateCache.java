@@ -10,11 +10,16 @@ import java.util.Random;
 import org.voltdb.benchmark.tpcc.procedures.neworder;
 import org.voltdb.catalog.CatalogType;
 import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Statement;
 import org.voltdb.catalog.Table;
 
 import edu.brown.BaseTestCase;
+import edu.brown.catalog.CatalogUtil;
 import edu.brown.utils.ProjectType;
+import edu.brown.workload.AbstractTraceElement;
+import edu.brown.workload.QueryTrace;
 import edu.brown.workload.Workload;
+import edu.brown.workload.filters.Filter;
 import edu.brown.workload.filters.ProcedureLimitFilter;
 
 public class TestSingleSitedCostModelInvalidateCache extends BaseTestCase {
@@ -26,6 +31,34 @@ public class TestSingleSitedCostModelInvalidateCache extends BaseTestCase {
     private static Workload workload;
     private static final Random rand = new Random(100);
     
+    /**
+     * Allows every txn but only the queries that just reference the given tables.
+     * This is what the BranchAndBoundPartitioner uses for each level of its search.
+     */
+    private class TableQueryFilter extends Filter {
+        private final Collection<Table> tables;
+        
+        public TableQueryFilter(Collection<Table> tables) {
+            this.tables = tables;
+        }
+        @Override
+        protected FilterResult filter(AbstractTraceElement<? extends CatalogType> element) {
+            if (element instanceof QueryTrace) {
+                Statement catalog_stmt = ((QueryTrace)element).getCatalogItem(catalogContext.database);
+                return (this.tables.containsAll(CatalogUtil.getReferencedTables(catalog_stmt)) ? FilterResult.ALLOW : FilterResult.SKIP);
+            }
+            return (FilterResult.ALLOW);
+        }
+        @Override
+        protected void resetImpl() {
+            // Nothing
+        }
+        @Override
+        public String debugImpl() {
+            return (this.getClass().getSimpleName() + this.tables);
+        }
+    }
+    
     @Override
     protected void setUp() throws Exception {
         super.setUp(ProjectType.TPCC);
@@ -117,4 +150,65 @@ public class TestSingleSitedCostModelInvalidateCache extends BaseTestCase {
         List<CatalogType> all_items = new ArrayList<CatalogType>(catalog_proc.getStatements());
         this.validateCosts(cost_model, expected, all_items);
     }
+    
+    /**
+     * testInvalidateCacheIncremental
+     */
+    public void testInvalidateCacheIncremental() throws Exception {
+        // Calculate the total cost of the workload once
+        final SingleSitedCostModel cost_model = new SingleSitedCostModel(catalogContext);
+        cost_model.setIncrementalEnabled(true);
+        final double expected = cost_model.estimateWorkloadCost(catalogContext, workload);
+        assert(expected > 0);
+        assertEquals(expected, new SingleSitedCostModel(catalogContext).estimateWorkloadCost(catalogContext, workload), 0.00001);
+        
+        List<CatalogType> all_items = new ArrayList<CatalogType>();
+        all_items.addAll(catalogContext.database.getTables());
+        all_items.addAll(catalogContext.database.getProcedures());
+        Collections.shuffle(all_items, rand);
+        this.validateCosts(cost_model, expected, all_items);
+    }
+    
+    /**
+     * testIncrementalFilterChange
+     */
+    public void testIncrementalFilterChange() throws Exception {
+        // Switching between filters that let through different queries for the
+        // same txns must not reuse the costs from the last filter. We go through
+        // the filters the same way that the BranchAndBoundPartitioner does, so
+        // when we go back up we invalidate the tables that are no longer included
+        List<Table> tables = new ArrayList<Table>(catalogContext.getDataTables());
+        Collections.shuffle(tables, rand);
+        List<List<Table>> levels = new ArrayList<List<Table>>();
+        levels.add(tables.subList(0, 1));
+        levels.add(tables.subList(0, tables.size() / 2));
+        levels.add(tables);
+        Filter filters[] = new Filter[levels.size()];
+        double expected[] = new double[filters.length];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = new TableQueryFilter(levels.get(i));
+            SingleSitedCostModel cost_model = new SingleSitedCostModel(catalogContext);
+            expected[i] = cost_model.estimateWorkloadCost(catalogContext, workload, filters[i], null);
+        } // FOR
+        assert(expected[0] != expected[filters.length-1]);
+        
+        final SingleSitedCostModel cost_model = new SingleSitedCostModel(catalogContext);
+        cost_model.setIncrementalEnabled(true);
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < filters.length; i++) {
+                double cost = cost_model.estimateWorkloadCost(catalogContext, workload, filters[i], null);
+                assertEquals("Filter #" + i, expected[i], cost, 0.00001);
+                // Estimating again with the same filter should be incremental
+                cost = cost_model.estimateWorkloadCost(catalogContext, workload, filters[i], null);
+                assertEquals("Filter #" + i, expected[i], cost, 0.00001);
+            } // FOR
+            for (int i = filters.length - 2; i >= 0; i--) {
+                for (Table catalog_tbl : levels.get(i+1)) {
+                    if (levels.get(i).contains(catalog_tbl) == false) cost_model.invalidateCache(catalog_tbl);
+                } // FOR
+                double cost = cost_model.estimateWorkloadCost(catalogContext, workload, filters[i], null);
+                assertEquals("Filter #" + i, expected[i], cost, 0.00001);
+            } // FOR
+        } // FOR
+    }
 }
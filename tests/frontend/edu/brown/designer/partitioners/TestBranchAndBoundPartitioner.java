@@ -148,4 +148,53 @@ public class TestBranchAndBoundPartitioner extends BasePartitionerTestCase {
         assert(best_vertex.getCost() > 0) : best_vertex.getCost();
         assert(best_vertex.getMemory() > 0) : best_vertex.getMemory();
     }
-}
\ No newline at end of file
+    
+    /**
+     * testParallelSearch
+     */
+    public void testParallelSearch() throws Exception {
+        List<Procedure> proc_visit_order = new ArrayList<Procedure>();
+        List<Table> table_visit_order = PartitionerUtil.generateTableOrder(info, agraph, hints);
+        assert(table_visit_order.size() > 2) : table_visit_order;
+        
+        // Start from a bad partitioning so that there is something to find
+        for (Table catalog_tbl : table_visit_order) {
+            catalog_tbl.setPartitioncolumn(this.getColumn(catalog_tbl, -1));
+        } // FOR
+        PartitionPlan ub_pplan = PartitionPlan.createFromCatalog(catalog_db);
+        
+        hints.enable_procparameter_search = false;
+        hints.max_memory_per_partition = Long.MAX_VALUE;
+        
+        // Serial Search
+        hints.search_threads = 1;
+        BranchAndBoundPartitioner serial = new BranchAndBoundPartitioner(this.designer, this.info, agraph, table_visit_order, proc_visit_order);
+        serial.setUpperBounds(hints, ub_pplan, Double.MAX_VALUE, 1000l);
+        serial.generate(hints);
+        StateVertex serial_best = serial.getBestVertex();
+        assertNotNull(serial_best);
+        assertFalse(serial_best.isStartVertex());
+        assertNull(serial.shared);
+        
+        // Parallel Search
+        // The workers should start from the subtrees at the split level instead
+        // of re-evaluating the levels above it
+        hints.search_threads = 4;
+        hints.search_split_depth = 2;
+        this.info.getCostModel().clear(true);
+        BranchAndBoundPartitioner parallel = new BranchAndBoundPartitioner(this.designer, this.info, agraph, table_visit_order, proc_visit_order);
+        parallel.setUpperBounds(hints, ub_pplan, Double.MAX_VALUE, 1000l);
+        parallel.generate(hints);
+        assertNotNull(parallel.shared);
+        assertFalse(parallel.shared.isCollecting());
+        assertEquals(2, parallel.shared.getSplitIndex());
+        assert(parallel.shared.getSubtreeCount() > 1) : parallel.shared.getSubtreeCount();
+        assertNull(parallel.shared.claim());
+        assertEquals(AbstractPartitioner.HaltReason.EXHAUSTED_SEARCH, parallel.getLastHaltReason());
+        
+        StateVertex parallel_best = parallel.getBestVertex();
+        assertNotNull(parallel_best);
+        assertEquals(serial_best.getCost(), parallel_best.getCost(), 0.00001);
+        assertEquals(serial_best.getCatalogKeyMap().keySet(), parallel_best.getCatalogKeyMap().keySet());
+    }
+}
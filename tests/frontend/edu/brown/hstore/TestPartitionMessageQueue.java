@@ -4,8 +4,10 @@ import org.voltdb.catalog.Procedure;
 
 import edu.brown.BaseTestCase;
 import edu.brown.benchmark.tm1.procedures.UpdateLocation;
+import edu.brown.hstore.Hstoreservice.Status;
 import edu.brown.hstore.Hstoreservice.WorkFragment;
 import edu.brown.hstore.conf.HStoreConf;
+import edu.brown.hstore.internal.FinishTxnMessage;
 import edu.brown.hstore.internal.InternalMessage;
 import edu.brown.hstore.internal.StartTxnMessage;
 import edu.brown.hstore.internal.UtilityWorkMessage;
@@ -122,4 +124,102 @@ public class TestPartitionMessageQueue extends BaseTestCase {
         assertEquals(start0, next);
     }
     
+    /**
+     * testLaneDepths
+     */
+    public void testLaneDepths() throws Exception {
+        boolean ret;
+        ret = this.queue.add(this.startMsg);
+        assertTrue(ret);
+        ret = this.queue.add(this.workMsg);
+        assertTrue(ret);
+        ret = this.queue.add(this.utilMsg);
+        assertTrue(ret);
+        assertEquals(3, this.queue.size());
+        assertEquals(1, this.queue.getLaneDepth(PartitionMessageQueue.Lane.START));
+        assertEquals(1, this.queue.getLaneDepth(PartitionMessageQueue.Lane.WORK));
+        assertEquals(1, this.queue.getLaneDepth(PartitionMessageQueue.Lane.UTILITY));
+        
+        InternalMessage next = this.queue.poll();
+        assertEquals(this.workMsg, next);
+        assertEquals(0, this.queue.getLaneDepth(PartitionMessageQueue.Lane.WORK));
+        assertEquals(2, this.queue.size());
+    }
+    
+    /**
+     * testBatchedDrain
+     */
+    public void testBatchedDrain() throws Exception {
+        PartitionMessageQueue batchQueue = new PartitionMessageQueue(2);
+        StartTxnMessage start0 = new StartTxnMessage(ts1);
+        StartTxnMessage start1 = new StartTxnMessage(ts0);
+        batchQueue.add(start0);
+        batchQueue.add(start1);
+        
+        // Both of the start messages are now in the current batch, so
+        // the work message has to wait until they have been polled
+        InternalMessage next = batchQueue.poll();
+        assertEquals(start1, next);
+        batchQueue.add(this.workMsg);
+        assertEquals(2, batchQueue.size());
+        assertEquals(1, batchQueue.getLaneDepth(PartitionMessageQueue.Lane.WORK));
+        assertEquals(0, batchQueue.getLaneDepth(PartitionMessageQueue.Lane.START));
+        assertEquals(start0, batchQueue.peek());
+        
+        next = batchQueue.poll();
+        assertEquals(start0, next);
+        next = batchQueue.poll();
+        assertEquals(this.workMsg, next);
+        assertTrue(batchQueue.isEmpty());
+    }
+    
+    /**
+     * testControlBeforeBatch
+     */
+    public void testControlBeforeBatch() throws Exception {
+        PartitionMessageQueue batchQueue = new PartitionMessageQueue(2);
+        StartTxnMessage start0 = new StartTxnMessage(ts1);
+        StartTxnMessage start1 = new StartTxnMessage(ts0);
+        batchQueue.add(start0);
+        batchQueue.add(start1);
+        InternalMessage next = batchQueue.poll();
+        assertEquals(start1, next);
+        
+        // The finish message doesn't have to wait for the rest of the batch
+        FinishTxnMessage finishMsg = new FinishTxnMessage(ts0, Status.OK);
+        batchQueue.add(finishMsg);
+        assertEquals(2, batchQueue.size());
+        assertEquals(finishMsg, batchQueue.peek());
+        next = batchQueue.poll();
+        assertEquals(finishMsg, next);
+        next = batchQueue.poll();
+        assertEquals(start0, next);
+        assertTrue(batchQueue.isEmpty());
+    }
+    
+    /**
+     * testClearBatch
+     */
+    public void testClearBatch() throws Exception {
+        final PartitionMessageQueue batchQueue = new PartitionMessageQueue(2);
+        batchQueue.add(new StartTxnMessage(ts1));
+        batchQueue.add(new StartTxnMessage(ts0));
+        batchQueue.add(this.workMsg);
+        assertEquals(this.workMsg, batchQueue.poll());
+        assertNotNull(batchQueue.poll());
+        
+        // Another thread can clear the queue while there is still
+        // something left in the consumer's batch
+        Thread t = new Thread() {
+            public void run() {
+                batchQueue.clear();
+            }
+        };
+        t.start();
+        t.join();
+        assertEquals(0, batchQueue.size());
+        assertTrue(batchQueue.isEmpty());
+        assertNull(batchQueue.poll());
+    }
+    
 }
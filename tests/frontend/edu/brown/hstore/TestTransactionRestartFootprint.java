@@ -0,0 +1,139 @@
+package edu.brown.hstore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.voltdb.ParameterSet;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Site;
+import org.voltdb.utils.EstTime;
+import org.voltdb.utils.EstTimeUpdater;
+
+import edu.brown.BaseTestCase;
+import edu.brown.benchmark.tm1.procedures.GetNewDestination;
+import edu.brown.hstore.Hstoreservice.Status;
+import edu.brown.hstore.conf.HStoreConf;
+import edu.brown.hstore.estimators.PartitionFootprintCache;
+import edu.brown.hstore.txns.LocalTransaction;
+import edu.brown.utils.CollectionUtil;
+import edu.brown.utils.PartitionSet;
+import edu.brown.utils.ProjectType;
+
+/**
+ * Checks that the partitions that a mispredicted txn touched are remembered when
+ * it is restarted and then used to predict the next invocation with the same
+ * routing parameter.
+ */
+public class TestTransactionRestartFootprint extends BaseTestCase {
+
+    private static final int NUM_PARTITIONS = 2;
+    private static final long S_ID = 1234;
+
+    private HStoreSite hstore_site;
+    private HStoreConf hstore_conf;
+    private TransactionInitializer txnInitializer;
+    private TransactionQueueManager queueManager;
+    private Procedure catalog_proc;
+    private final List<LocalTransaction> queued = new ArrayList<LocalTransaction>();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp(ProjectType.TM1);
+        addPartitions(NUM_PARTITIONS);
+        this.catalog_proc = this.getProcedure(GetNewDestination.class);
+
+        this.hstore_conf = HStoreConf.singleton();
+        this.hstore_conf.site.status_enable = false;
+        this.hstore_conf.site.exec_footprint_cache = true;
+
+        Site catalog_site = CollectionUtil.first(catalogContext.sites);
+        this.hstore_site = new HStoreSite(catalog_site.getId(), catalogContext, this.hstore_conf) {
+            @Override
+            public void transactionQueue(LocalTransaction ts) {
+                queued.add(ts);
+            }
+        };
+        for (int p : this.hstore_site.getLocalPartitionIds().values()) {
+            MockPartitionExecutor executor = new MockPartitionExecutor(p, catalogContext, p_estimator);
+            this.hstore_site.addPartitionExecutor(p, executor);
+        } // FOR
+        this.txnInitializer = this.hstore_site.getTransactionInitializer();
+        this.queueManager = this.hstore_site.getTransactionQueueManager();
+        EstTimeUpdater.update(System.currentTimeMillis());
+    }
+
+    private ParameterSet makeParams(long s_id, long sf_type) {
+        return (new ParameterSet(s_id, sf_type, 8l, 16l));
+    }
+
+    private LocalTransaction createTransaction(ParameterSet params) throws Exception {
+        int base_partition = p_estimator.getBasePartition(this.catalog_proc, params.toArray());
+        return (this.txnInitializer.createLocalTransaction(null,
+                                                           EstTime.currentTimeMillis(),
+                                                           this.queued.size(),
+                                                           base_partition,
+                                                           this.catalog_proc,
+                                                           params,
+                                                           null));
+    }
+
+    /**
+     * testRestartFootprint
+     */
+    public void testRestartFootprint() throws Exception {
+        PartitionFootprintCache footprints = this.txnInitializer.getPartitionFootprintCache();
+        assertNotNull(footprints);
+        assertEquals(0, footprints.size());
+
+        // The first invocation is predicted to be single-partitioned, but
+        // then it touches the other partition too
+        LocalTransaction orig_ts = this.createTransaction(this.makeParams(S_ID, 1));
+        assertNotNull(orig_ts);
+        int base_partition = orig_ts.getBasePartition();
+        assertTrue(orig_ts.isPredictSinglePartition());
+        PartitionSet touched = new PartitionSet(catalogContext.getAllPartitionIds());
+        for (int p : touched.values()) {
+            orig_ts.getTouchedPartitions().put(p);
+        } // FOR
+
+        // Only the partitions that it touched should be recorded
+        Status status = this.hstore_site.transactionRestart(orig_ts, Status.ABORT_MISPREDICT);
+        assertEquals(Status.ABORT_RESTART, status);
+        assertEquals(1, footprints.size());
+        PartitionSet footprint = footprints.get(this.catalog_proc, this.makeParams(S_ID, 1));
+        assertEquals(touched, footprint);
+
+        // The restarted txn locks all of those partitions
+        assertEquals(1, this.queued.size());
+        LocalTransaction restart_ts = this.queued.get(0);
+        assertFalse(restart_ts.isPredictSinglePartition());
+        assertTrue(restart_ts.getPredictTouchedPartitions().containsAll(touched));
+
+        // The next invocation with the same routing parameter is predicted
+        // to touch the same partitions even though its other parameters differ
+        LocalTransaction next_ts = this.createTransaction(this.makeParams(S_ID, 2));
+        assertEquals(base_partition, next_ts.getBasePartition());
+        assertFalse(next_ts.isPredictSinglePartition());
+        assertEquals(touched, next_ts.getPredictTouchedPartitions());
+
+        // And it gets inserted into the lock queue of every one of them
+        for (int p : next_ts.getPredictTouchedPartitions().values()) {
+            assertEquals(Status.OK, this.queueManager.lockQueueInsert(next_ts, p, next_ts.getInitCallback()));
+            assertEquals(1, this.queueManager.getLockQueue(p).size());
+        } // FOR
+
+        // But a different routing parameter is not affected
+        LocalTransaction other_ts = this.createTransaction(this.makeParams(S_ID + 1, 1));
+        assertTrue(other_ts.isPredictSinglePartition());
+    }
+
+    /**
+     * testRestartWithoutTouchedPartitions
+     */
+    public void testRestartWithoutTouchedPartitions() throws Exception {
+        PartitionFootprintCache footprints = this.txnInitializer.getPartitionFootprintCache();
+        LocalTransaction orig_ts = this.createTransaction(this.makeParams(S_ID, 1));
+        this.hstore_site.transactionRestart(orig_ts, Status.ABORT_MISPREDICT);
+        assertEquals(0, footprints.size());
+    }
+}
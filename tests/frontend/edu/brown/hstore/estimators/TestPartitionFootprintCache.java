@@ -0,0 +1,105 @@
+package edu.brown.hstore.estimators;
+
+import org.voltdb.ParameterSet;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.utils.EstTimeUpdater;
+
+import edu.brown.BaseTestCase;
+import edu.brown.benchmark.tm1.procedures.GetNewDestination;
+import edu.brown.benchmark.tm1.procedures.GetTableCounts;
+import edu.brown.utils.PartitionSet;
+import edu.brown.utils.ProjectType;
+
+/**
+ * TestPartitionFootprintCache
+ */
+public class TestPartitionFootprintCache extends BaseTestCase {
+
+    private static final int TTL = 1000;
+    private static final int MAX_ENTRIES = 10;
+
+    PartitionFootprintCache cache;
+    Procedure catalog_proc;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp(ProjectType.TM1);
+        this.cache = new PartitionFootprintCache(TTL, MAX_ENTRIES);
+        this.catalog_proc = this.getProcedure(GetNewDestination.class);
+        EstTimeUpdater.update(System.currentTimeMillis());
+    }
+
+    private ParameterSet makeParams(long s_id, long sf_type) {
+        return (new ParameterSet(s_id, sf_type, 8l, 16l));
+    }
+
+    /**
+     * testGetKey
+     */
+    public void testGetKey() throws Exception {
+        // Only the routing parameter matters
+        assert(this.catalog_proc.getPartitionparameter() == 0);
+        Long key0 = PartitionFootprintCache.getKey(this.catalog_proc, this.makeParams(1234, 1));
+        Long key1 = PartitionFootprintCache.getKey(this.catalog_proc, this.makeParams(1234, 2));
+        Long key2 = PartitionFootprintCache.getKey(this.catalog_proc, this.makeParams(5678, 1));
+        assertNotNull(key0);
+        assertEquals(key0, key1);
+        assertFalse(key0.equals(key2));
+
+        // Procedures without a routing parameter are not cached
+        Procedure other = this.getProcedure(GetTableCounts.class);
+        assert(other.getPartitionparameter() < 0);
+        assertNull(PartitionFootprintCache.getKey(other, new ParameterSet()));
+        this.cache.put(other, new ParameterSet(), new PartitionSet(0, 1));
+        assertEquals(0, this.cache.size());
+        assertNull(this.cache.get(other, new ParameterSet()));
+    }
+
+    /**
+     * testPutGet
+     */
+    public void testPutGet() throws Exception {
+        PartitionSet partitions = new PartitionSet(0, 1);
+        assertNull(this.cache.get(this.catalog_proc, this.makeParams(1234, 1)));
+        this.cache.put(this.catalog_proc, this.makeParams(1234, 1), partitions);
+
+        PartitionSet footprint = this.cache.get(this.catalog_proc, this.makeParams(1234, 3));
+        assertNotNull(footprint);
+        assertEquals(partitions, footprint);
+        assertNotSame(partitions, footprint);
+        assertNull(this.cache.get(this.catalog_proc, this.makeParams(5678, 1)));
+        assertEquals(1, this.cache.getHitCount());
+        assertEquals(2, this.cache.getMissCount());
+
+        this.cache.remove(this.catalog_proc, this.makeParams(1234, 1));
+        assertNull(this.cache.get(this.catalog_proc, this.makeParams(1234, 1)));
+    }
+
+    /**
+     * testExpiration
+     */
+    public void testExpiration() throws Exception {
+        this.cache.put(this.catalog_proc, this.makeParams(1234, 1), new PartitionSet(0, 1));
+        assertNotNull(this.cache.get(this.catalog_proc, this.makeParams(1234, 1)));
+
+        EstTimeUpdater.update(System.currentTimeMillis() + TTL * 2);
+        assertNull(this.cache.get(this.catalog_proc, this.makeParams(1234, 1)));
+        assertEquals(0, this.cache.size());
+    }
+
+    /**
+     * testMaxEntries
+     */
+    public void testMaxEntries() throws Exception {
+        for (int i = 0; i < MAX_ENTRIES * 2; i++) {
+            this.cache.put(this.catalog_proc, this.makeParams(i, 1), new PartitionSet(0, 1));
+        } // FOR
+        assertEquals(MAX_ENTRIES, this.cache.size());
+
+        // Expired entries make room for new ones
+        EstTimeUpdater.update(System.currentTimeMillis() + TTL * 2);
+        this.cache.put(this.catalog_proc, this.makeParams(1000, 1), new PartitionSet(0, 1));
+        assertEquals(1, this.cache.size());
+        assertNotNull(this.cache.get(this.catalog_proc, this.makeParams(1000, 1)));
+    }
+}
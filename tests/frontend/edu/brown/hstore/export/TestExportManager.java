@@ -0,0 +1,335 @@
+package edu.brown.hstore.export;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.voltdb.catalog.Table;
+import org.voltdb.export.ExportProtoMessage;
+import org.voltdb.jni.MockExecutionEngine;
+import org.voltdb.messaging.FastDeserializer;
+
+import edu.brown.BaseTestCase;
+import edu.brown.benchmark.tm1.TM1Constants;
+import edu.brown.utils.FileUtil;
+import edu.brown.utils.PartitionSet;
+import edu.brown.utils.ProjectType;
+
+public class TestExportManager extends BaseTestCase {
+
+    private static final int PARTITION = 0;
+    private static final int BLOCK_SIZE = 100;
+    private static final String TARGET_TABLE = TM1Constants.TABLENAME_CALL_FORWARDING;
+
+    /**
+     * Fake EE that follows the same poll/ack rules as TupleStreamWrapper
+     */
+    private static class MockExportEngine extends MockExecutionEngine {
+        final Map<Long, LinkedList<byte[]>> blocks = new HashMap<Long, LinkedList<byte[]>>();
+        final Map<Long, Long> released = new HashMap<Long, Long>();
+        final Map<Long, Integer> next = new HashMap<Long, Integer>();
+
+        void addBlock(long tableId, byte data[]) {
+            if (this.blocks.containsKey(tableId) == false) {
+                this.blocks.put(tableId, new LinkedList<byte[]>());
+                this.released.put(tableId, 0l);
+                this.next.put(tableId, 0);
+            }
+            this.blocks.get(tableId).add(data);
+        }
+
+        int getUnreleasedCount(long tableId) {
+            return (this.blocks.get(tableId).size());
+        }
+
+        @Override
+        public ExportProtoMessage exportAction(boolean ackAction, boolean pollAction,
+                                               boolean resetAction, boolean syncAction,
+                                               long ackOffset, long seqNo, int partitionId, long tableId) {
+            LinkedList<byte[]> pending = this.blocks.get(tableId);
+            long offset = this.released.get(tableId);
+            int idx = this.next.get(tableId);
+            if (ackAction && ackOffset > 0) {
+                while (pending.isEmpty() == false && offset + pending.getFirst().length <= ackOffset) {
+                    offset += pending.removeFirst().length;
+                    idx--;
+                } // WHILE
+                this.released.put(tableId, offset);
+            }
+            if (resetAction) idx = 0;
+
+            ByteBuffer b = null;
+            for (int i = 0; i < idx; i++) {
+                offset += pending.get(i).length;
+            } // FOR
+            if (idx < pending.size()) {
+                byte data[] = pending.get(idx++);
+                offset += data.length;
+                b = ByteBuffer.allocate(4 + data.length);
+                b.putInt(data.length);
+                b.put(data);
+            } else {
+                b = ByteBuffer.allocate(4);
+                b.putInt(0);
+            }
+            b.flip();
+            this.next.put(tableId, idx);
+            return (new ExportProtoMessage(partitionId, tableId).pollResponse(offset, b));
+        }
+    }
+
+    /**
+     * Sink that keeps everything in memory
+     */
+    private static class MockSink implements ExportSink {
+        final List<ExportBatch> pending = new ArrayList<ExportBatch>();
+        final List<ExportBatch> flushed = new ArrayList<ExportBatch>();
+        boolean fail = false;
+
+        @Override
+        public void open() throws IOException {
+            // Nothing to do
+        }
+        @Override
+        public void write(ExportBatch batch) throws IOException {
+            this.pending.add(batch);
+        }
+        @Override
+        public void flush() throws IOException {
+            if (this.fail) {
+                this.pending.clear();
+                throw new IOException("Fake failure");
+            }
+            this.flushed.addAll(this.pending);
+            this.pending.clear();
+        }
+        @Override
+        public void close() throws IOException {
+            // Nothing to do
+        }
+    }
+
+    private Table catalog_tbl;
+    private long tableId;
+    private MockExportEngine ee;
+    private MockSink sink;
+    private long now = 0;
+    private int num_blocks = 0;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp(ProjectType.TM1);
+        this.catalog_tbl = this.getTable(TARGET_TABLE);
+        this.tableId = this.catalog_tbl.getRelativeIndex();
+        this.ee = new MockExportEngine();
+        this.sink = new MockSink();
+    }
+
+    private ExportManager createManager(int batch_size, long max_pending) {
+        List<ExportSink> sinks = new ArrayList<ExportSink>();
+        sinks.add(this.sink);
+        List<Table> tables = new ArrayList<Table>();
+        tables.add(this.catalog_tbl);
+        return new ExportManager(tables, new PartitionSet(PARTITION), sinks, 10, batch_size, max_pending);
+    }
+
+    private void addBlocks(int count) {
+        for (int i = 0; i < count; i++) {
+            byte data[] = new byte[BLOCK_SIZE];
+            data[0] = (byte)this.num_blocks++;
+            this.ee.addBlock(this.tableId, data);
+        } // FOR
+    }
+
+    private int poll(ExportManager manager) {
+        this.now += 1000;
+        return (manager.poll(PARTITION, this.ee, this.now));
+    }
+
+    /**
+     * testPollAndAck
+     */
+    @Test
+    public void testPollAndAck() throws Exception {
+        ExportManager manager = this.createManager(10240, 10240);
+        this.addBlocks(3);
+
+        // All three blocks should come back in a single batch
+        assertEquals(3 * BLOCK_SIZE, this.poll(manager));
+        assertEquals(3 * BLOCK_SIZE, manager.getPendingBytes(PARTITION));
+        assertTrue(manager.flushQueue());
+        assertEquals(0, manager.getPendingBytes(PARTITION));
+        assertEquals(1, this.sink.flushed.size());
+        ExportBatch batch = this.sink.flushed.get(0);
+        assertEquals(3, batch.getBlocks().size());
+        assertEquals(3 * BLOCK_SIZE, batch.getEndOffset());
+        assertEquals(1, manager.getExportedBatchCount());
+
+        // Nothing is released in the EE until the next poll
+        assertEquals(3, this.ee.getUnreleasedCount(this.tableId));
+        assertEquals(0, this.poll(manager));
+        assertEquals(0, this.ee.getUnreleasedCount(this.tableId));
+        assertEquals(3 * BLOCK_SIZE, manager.getTableStream(PARTITION, (int)this.tableId).getReleasedOffset());
+    }
+
+    /**
+     * testBatchSize
+     */
+    @Test
+    public void testBatchSize() throws Exception {
+        ExportManager manager = this.createManager(2 * BLOCK_SIZE, 10240);
+        this.addBlocks(5);
+
+        assertEquals(2 * BLOCK_SIZE, this.poll(manager));
+        assertEquals(2 * BLOCK_SIZE, this.poll(manager));
+        assertEquals(1 * BLOCK_SIZE, this.poll(manager));
+        assertTrue(manager.flushQueue());
+        assertEquals(3, this.sink.flushed.size());
+        long last = 0;
+        for (ExportBatch batch : this.sink.flushed) {
+            assertTrue(batch.getEndOffset() > last);
+            last = batch.getEndOffset();
+        } // FOR
+        assertEquals(5 * BLOCK_SIZE, last);
+    }
+
+    /**
+     * testBackpressure
+     */
+    @Test
+    public void testBackpressure() throws Exception {
+        ExportManager manager = this.createManager(10240, (long)(1.5 * BLOCK_SIZE));
+        this.addBlocks(4);
+
+        // We should stop polling once we go over the limit
+        assertEquals(2 * BLOCK_SIZE, this.poll(manager));
+        assertTrue(manager.hasBackpressure(PARTITION));
+        assertEquals(0, this.poll(manager));
+
+        // Once the sinks catch up we can poll again
+        assertTrue(manager.flushQueue());
+        assertFalse(manager.hasBackpressure(PARTITION));
+        assertEquals(2 * BLOCK_SIZE, this.poll(manager));
+        assertEquals(2, this.ee.getUnreleasedCount(this.tableId));
+        assertTrue(manager.flushQueue());
+        assertEquals(0, this.poll(manager));
+        assertEquals(0, this.ee.getUnreleasedCount(this.tableId));
+    }
+
+    /**
+     * testSinkFailure
+     */
+    @Test
+    public void testSinkFailure() throws Exception {
+        ExportManager manager = this.createManager(10240, 10240);
+        this.addBlocks(2);
+
+        this.sink.fail = true;
+        assertEquals(2 * BLOCK_SIZE, this.poll(manager));
+        assertFalse(manager.flushQueue());
+        assertEquals(1, manager.getFailureCount());
+        assertEquals(0, manager.getPendingBytes(PARTITION));
+        assertEquals(0, manager.getTableStream(PARTITION, (int)this.tableId).getAckedOffset());
+
+        // The next poll should rewind the stream and give us the same blocks again
+        this.sink.fail = false;
+        this.addBlocks(1);
+        assertEquals(3 * BLOCK_SIZE, this.poll(manager));
+        assertTrue(manager.flushQueue());
+        assertEquals(1, this.sink.flushed.size());
+        ExportBatch batch = this.sink.flushed.get(0);
+        assertEquals(3, batch.getBlocks().size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, batch.getBlocks().get(i).get(0));
+        } // FOR
+        assertEquals(3 * BLOCK_SIZE, batch.getEndOffset());
+    }
+
+    /**
+     * testFileExportSink
+     */
+    @Test
+    public void testFileExportSink() throws Exception {
+        File dir = FileUtil.getTempDirectory("export");
+        FileExportSink fileSink = new FileExportSink(dir, "test", 2 * BLOCK_SIZE);
+        fileSink.open();
+
+        int num_batches = 4;
+        for (int i = 0; i < num_batches; i++) {
+            ExportBatch batch = new ExportBatch(PARTITION, (int)this.tableId, TARGET_TABLE, 0);
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+            block.put(0, (byte)i);
+            batch.addBlock(block, (i+1) * BLOCK_SIZE);
+            fileSink.write(batch);
+            fileSink.flush();
+        } // FOR
+        fileSink.close();
+
+        // Each file should have rolled over after two batches
+        List<File> files = fileSink.getOutputFiles();
+        assertEquals(num_batches / 2, files.size());
+        assertNull(fileSink.getCurrentFile());
+
+        int ctr = 0;
+        for (File f : files) {
+            FastDeserializer fds = new FastDeserializer(FileUtil.readBytesFromFile(f.getAbsolutePath()));
+            while (fds.buffer().hasRemaining()) {
+                int length = fds.readInt();
+                assertEquals(ExportBatch.HEADER_SIZE + 4 + BLOCK_SIZE - 4, length);
+                assertEquals(PARTITION, fds.readInt());
+                assertEquals(this.tableId, fds.readInt());
+                assertEquals((ctr+1) * BLOCK_SIZE, fds.readLong());
+                assertEquals(1, fds.readInt());
+                assertEquals(BLOCK_SIZE, fds.readInt());
+                ByteBuffer data = fds.readBuffer(BLOCK_SIZE);
+                assertEquals(ctr, data.get(0));
+                ctr++;
+            } // WHILE
+            f.delete();
+        } // FOR
+        assertEquals(num_batches, ctr);
+    }
+    
+    /**
+     * testFileExportSinkRestart
+     */
+    @Test
+    public void testFileExportSinkRestart() throws Exception {
+        File dir = FileUtil.getTempDirectory("export");
+        List<File> files = new ArrayList<File>();
+        
+        // A new sink in the same directory must not overwrite the old files
+        for (int round = 0; round < 2; round++) {
+            FileExportSink fileSink = new FileExportSink(dir, "restart", BLOCK_SIZE);
+            fileSink.open();
+            ExportBatch batch = new ExportBatch(PARTITION, (int)this.tableId, TARGET_TABLE, 0);
+            ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+            block.put(0, (byte)round);
+            batch.addBlock(block, BLOCK_SIZE);
+            fileSink.write(batch);
+            fileSink.close();
+            assertEquals(1, fileSink.getOutputFiles().size());
+            files.addAll(fileSink.getOutputFiles());
+        } // FOR
+        assertFalse(files.get(0).equals(files.get(1)));
+        
+        for (int round = 0; round < files.size(); round++) {
+            File f = files.get(round);
+            FastDeserializer fds = new FastDeserializer(FileUtil.readBytesFromFile(f.getAbsolutePath()));
+            fds.readInt(); // length
+            fds.readInt(); // partition
+            fds.readInt(); // tableId
+            fds.readLong(); // offset
+            assertEquals(1, fds.readInt());
+            assertEquals(BLOCK_SIZE, fds.readInt());
+            assertEquals(round, fds.readBuffer(BLOCK_SIZE).get(0));
+            f.delete();
+        } // FOR
+    }
+}
@@ -0,0 +1,166 @@
+package edu.brown.hstore.specexec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.voltdb.catalog.CatalogType;
+import org.voltdb.catalog.PlanFragment;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Statement;
+
+import edu.brown.BaseTestCase;
+import edu.brown.benchmark.seats.procedures.NewReservation;
+import edu.brown.catalog.CatalogUtil;
+import edu.brown.catalog.special.CountedStatement;
+import edu.brown.hstore.conf.HStoreConf;
+import edu.brown.utils.CollectionUtil;
+import edu.brown.utils.ProjectType;
+
+public class TestPrefetchQueryAdvisor extends BaseTestCase {
+
+    private static final int WINDOW = 10;
+    private static final int PROBE = 4;
+
+    private HStoreConf hstore_conf;
+    private Statement catalog_stmt;
+    private int fragmentId;
+    private final List<CatalogType> marked = new ArrayList<CatalogType>();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp(ProjectType.SEATS);
+        assertNotNull(catalogContext.paramMappings);
+
+        this.hstore_conf = HStoreConf.singleton();
+        this.hstore_conf.site.exec_prefetch_infer = true;
+        this.hstore_conf.site.exec_prefetch_adaptive = true;
+        this.hstore_conf.site.exec_prefetch_adaptive_window = WINDOW;
+        this.hstore_conf.site.exec_prefetch_disable_threshold = 0.25;
+        this.hstore_conf.site.exec_prefetch_enable_threshold = 0.5;
+        this.hstore_conf.site.exec_prefetch_probe_interval = PROBE;
+
+        // Clear out all of the prefetchable flags that were set when the
+        // catalog was built so that the advisor has to infer them
+        for (Procedure proc : catalogContext.procedures) {
+            for (Statement stmt : proc.getStatements()) {
+                if (stmt.getPrefetchable()) {
+                    stmt.setPrefetchable(false);
+                    this.marked.add(stmt);
+                }
+            } // FOR
+            if (proc.getPrefetchable()) {
+                proc.setPrefetchable(false);
+                this.marked.add(proc);
+            }
+        } // FOR
+
+        Procedure catalog_proc = this.getProcedure(NewReservation.class);
+        this.catalog_stmt = this.getStatement(catalog_proc, "GetCustomer");
+        this.catalog_stmt.setPrefetchable(true);
+        PlanFragment catalog_frag = CollectionUtil.first(this.catalog_stmt.getMs_fragments());
+        this.fragmentId = catalog_frag.getId();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        // Put the catalog back the way we found it
+        for (Procedure proc : catalogContext.procedures) {
+            for (Statement stmt : proc.getStatements()) {
+                stmt.setPrefetchable(false);
+            } // FOR
+            proc.setPrefetchable(false);
+        } // FOR
+        for (CatalogType catalog_obj : this.marked) {
+            if (catalog_obj instanceof Statement) ((Statement)catalog_obj).setPrefetchable(true);
+            else ((Procedure)catalog_obj).setPrefetchable(true);
+        } // FOR
+        this.hstore_conf.site.exec_prefetch_infer = false;
+        super.tearDown();
+    }
+
+    private PrefetchQueryAdvisor createAdvisor() {
+        return new PrefetchQueryAdvisor(catalogContext, this.hstore_conf);
+    }
+
+    /**
+     * testInference
+     */
+    public void testInference() throws Exception {
+        PrefetchQueryAdvisor advisor = this.createAdvisor();
+        assertTrue(advisor.getInferredCount() > 0);
+        List<Statement> inferred = new ArrayList<Statement>();
+        for (Statement stmt : CatalogUtil.getAllStatements(catalogContext.database)) {
+            if (advisor.isInferred(stmt)) inferred.add(stmt);
+        } // FOR
+        assertEquals(advisor.getInferredCount(), inferred.size());
+        assertFalse(advisor.isInferred(this.catalog_stmt));
+        for (Statement stmt : inferred) {
+            assertTrue(stmt.fullName(), stmt.getReadonly());
+            assertTrue(stmt.fullName(), stmt.getPrefetchable());
+            assertTrue(stmt.fullName(), ((Procedure)stmt.getParent()).getPrefetchable());
+            assertTrue(stmt.fullName(), advisor.hasParameterMappings(stmt, 0));
+            assertTrue(stmt.fullName(), advisor.isEnabled(stmt));
+        } // FOR
+
+        // We should never infer a query that modifies the database
+        for (Statement stmt : CatalogUtil.getAllStatements(catalogContext.database)) {
+            if (stmt.getReadonly() == false) {
+                assertFalse(stmt.fullName(), advisor.isInferred(stmt));
+            }
+        } // FOR
+    }
+
+    /**
+     * testAdaptive
+     */
+    public void testAdaptive() throws Exception {
+        PrefetchQueryAdvisor advisor = this.createAdvisor();
+        CountedStatement counted_stmt = new CountedStatement(this.catalog_stmt, 0);
+        assertTrue(advisor.isEnabled(this.catalog_stmt));
+        assertTrue(advisor.shouldPrefetch(counted_stmt));
+
+        // A full window of wasted prefetches should turn it off
+        for (int i = 0; i < WINDOW; i++) {
+            advisor.record(this.fragmentId, (i == 0));
+        } // FOR
+        assertFalse(advisor.isEnabled(this.catalog_stmt));
+        assertEquals(1, advisor.getHitCount(this.catalog_stmt));
+        assertEquals(WINDOW-1, advisor.getWasteCount(this.catalog_stmt));
+        assertEquals(1, advisor.getToggleCount(this.catalog_stmt));
+
+        // But we will still let one out of every PROBE txns through
+        int allowed = 0;
+        for (int i = 0; i < PROBE * 5; i++) {
+            if (advisor.shouldPrefetch(counted_stmt)) allowed++;
+        } // FOR
+        assertEquals(5, allowed);
+
+        // A full window of hits should turn it back on
+        for (int i = 0; i < WINDOW; i++) {
+            advisor.record(this.fragmentId, true);
+        } // FOR
+        assertTrue(advisor.isEnabled(this.catalog_stmt));
+        assertEquals(2, advisor.getToggleCount(this.catalog_stmt));
+        assertTrue(advisor.shouldPrefetch(counted_stmt));
+    }
+
+    /**
+     * testNonAdaptive
+     */
+    public void testNonAdaptive() throws Exception {
+        this.hstore_conf.site.exec_prefetch_adaptive = false;
+        try {
+            PrefetchQueryAdvisor advisor = this.createAdvisor();
+            CountedStatement counted_stmt = new CountedStatement(this.catalog_stmt, 0);
+            for (int i = 0; i < WINDOW; i++) {
+                advisor.record(this.fragmentId, false);
+            } // FOR
+            assertEquals(WINDOW, advisor.getWasteCount(this.catalog_stmt));
+            for (int i = 0; i < PROBE; i++) {
+                assertTrue(advisor.shouldPrefetch(counted_stmt));
+            } // FOR
+        } finally {
+            this.hstore_conf.site.exec_prefetch_adaptive = true;
+        }
+    }
+}
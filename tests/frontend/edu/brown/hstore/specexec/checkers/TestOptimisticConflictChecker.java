@@ -12,6 +12,9 @@ import org.voltdb.VoltTable;
 import org.voltdb.benchmark.tpcc.procedures.neworder;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.Table;
+import org.voltdb.exceptions.EEException;
+import org.voltdb.jni.MockExecutionEngine;
+import org.voltdb.utils.NotImplementedException;
 
 import edu.brown.BaseTestCase;
 import edu.brown.catalog.CatalogUtil;
@@ -19,6 +22,7 @@ import edu.brown.hstore.HStoreSite;
 import edu.brown.hstore.MockHStoreSite;
 import edu.brown.hstore.TestReadWriteTracking;
 import edu.brown.hstore.conf.HStoreConf;
+import edu.brown.hstore.specexec.ReadWriteSummary;
 import edu.brown.hstore.txns.AbstractTransaction;
 import edu.brown.hstore.txns.LocalTransaction;
 import edu.brown.utils.CollectionUtil;
@@ -33,10 +37,14 @@ public class TestOptimisticConflictChecker extends BaseTestCase {
     private static final int NUM_PARTITONS = 2;
     private static final int BASE_PARTITION = 0;
     private static long NEXT_TXN_ID = 1000;
+    private static final int SUMMARY_BITS = 64;
 
     private HStoreSite hstore_site;
     private OptimisticConflictChecker checker;
+    private OptimisticConflictChecker summaryChecker;
     private Map<AbstractTransaction, VoltTable[]> readWriteSets = new HashMap<AbstractTransaction, VoltTable[]>();
+    private Map<AbstractTransaction, ReadWriteSummary> summaries = new HashMap<AbstractTransaction, ReadWriteSummary>();
+    private int exactLookups = 0;
     
     @Override
     protected void setUp() throws Exception {
@@ -49,6 +57,17 @@ public class TestOptimisticConflictChecker extends BaseTestCase {
                 return readWriteSets.get(ts);
             }
         };
+        this.summaryChecker = new OptimisticConflictChecker(catalogContext, null) {
+            @Override
+            protected ReadWriteSummary getReadWriteSummary(AbstractTransaction ts) {
+                return summaries.get(ts);
+            }
+            @Override
+            protected VoltTable[] getReadWriteSets(AbstractTransaction ts) {
+                exactLookups++;
+                return readWriteSets.get(ts);
+            }
+        };
         this.hstore_site = new MockHStoreSite(0, catalogContext, HStoreConf.singleton());
     }
     
@@ -66,6 +85,15 @@ public class TestOptimisticConflictChecker extends BaseTestCase {
             this.readWriteSets.put(ts, vts);
         }
 
+        ReadWriteSummary summary = this.summaries.get(ts);
+        if (summary == null) {
+            summary = new ReadWriteSummary(SUMMARY_BITS);
+            this.summaries.put(ts, summary);
+        }
+        for (int tupleId : tupleIds) {
+            summary.markTuple(isRead ? ReadWriteSummary.READ : ReadWriteSummary.WRITE, catalog_tbl.getName(), tupleId);
+        } // FOR
+
         VoltTable vt = null;
         if (isRead) {
             vt = vts[OptimisticConflictChecker.READ];
@@ -87,10 +115,123 @@ public class TestOptimisticConflictChecker extends BaseTestCase {
         this.updateTracking(ts, tbl, false, tupleIds);
     }
     
+    private LocalTransaction makeTransaction(Procedure proc) {
+        LocalTransaction ts = new LocalTransaction(this.hstore_site);
+        ts.testInit(NEXT_TXN_ID++,
+                    BASE_PARTITION,
+                    catalogContext.getPartitionSetSingleton(BASE_PARTITION),
+                    proc,
+                    new Object[0]);
+        return (ts);
+    }
+    
     // --------------------------------------------------------------------------------------------
     // TEST CASES
     // --------------------------------------------------------------------------------------------
     
+    /**
+     * testSummaryConflicts
+     */
+    @Test
+    public void testSummaryConflicts() throws Exception {
+        Procedure proc = this.getProcedure(neworder.class);
+        Table tbl = CollectionUtil.first(CatalogUtil.getReferencedTables(proc));
+        
+        // Small tuple ids are exact, so we shouldn't need the full tracking sets
+        LocalTransaction ts0 = this.makeTransaction(proc);
+        LocalTransaction ts1 = this.makeTransaction(proc);
+        this.addReads(ts0, tbl, 1, 2, 3);
+        this.addWrites(ts1, tbl, 4, 5);
+        assertFalse(this.summaryChecker.hasConflictAfter(ts0, ts1, BASE_PARTITION));
+        this.addWrites(ts1, tbl, 3);
+        assertTrue(this.summaryChecker.hasConflictAfter(ts0, ts1, BASE_PARTITION));
+        assertEquals(0, this.exactLookups);
+        
+        // Large tuple ids that map to different bits are still a definite miss
+        LocalTransaction ts2 = this.makeTransaction(proc);
+        LocalTransaction ts3 = this.makeTransaction(proc);
+        this.addWrites(ts2, tbl, 1000);
+        this.addWrites(ts3, tbl, 1001);
+        assertFalse(this.summaryChecker.hasConflictAfter(ts2, ts3, BASE_PARTITION));
+        assertEquals(0, this.exactLookups);
+        
+        // But if they map to the same bit, then we have to check the real tuples
+        this.addWrites(ts3, tbl, 1000 + SUMMARY_BITS);
+        assertFalse(this.summaryChecker.hasConflictAfter(ts2, ts3, BASE_PARTITION));
+        assertEquals(2, this.exactLookups);
+        this.addWrites(ts3, tbl, 1000);
+        assertTrue(this.summaryChecker.hasConflictAfter(ts2, ts3, BASE_PARTITION));
+        
+        // Both checkers should always agree
+        assertEquals(this.checker.hasConflictAfter(ts0, ts1, BASE_PARTITION),
+                     this.summaryChecker.hasConflictAfter(ts0, ts1, BASE_PARTITION));
+        assertEquals(this.checker.hasConflictAfter(ts2, ts3, BASE_PARTITION),
+                     this.summaryChecker.hasConflictAfter(ts2, ts3, BASE_PARTITION));
+    }
+    
+    /**
+     * testExecutionEngineTracking
+     */
+    @Test
+    public void testExecutionEngineTracking() throws Exception {
+        Procedure proc = this.getProcedure(neworder.class);
+        Table tbl = CollectionUtil.first(CatalogUtil.getReferencedTables(proc));
+        MockExecutionEngine ee = new MockExecutionEngine();
+        OptimisticConflictChecker eeChecker = new OptimisticConflictChecker(catalogContext, ee);
+        
+        LocalTransaction ts0 = this.makeTransaction(proc);
+        LocalTransaction ts1 = this.makeTransaction(proc);
+        ee.trackingEnable(ts0.getTransactionId());
+        ee.trackingEnable(ts1.getTransactionId());
+        ee.trackingMarkTuple(ts0.getTransactionId(), ReadWriteSummary.READ, tbl.getName(), 1);
+        ts0.markTableRead(BASE_PARTITION, tbl);
+        ee.trackingMarkTuple(ts1.getTransactionId(), ReadWriteSummary.WRITE, tbl.getName(), 2);
+        ts1.markTableWritten(BASE_PARTITION, tbl);
+        assertNotNull(ee.trackingSummary(ts0.getTransactionId()));
+        assertFalse(eeChecker.hasConflictAfter(ts0, ts1, BASE_PARTITION));
+        
+        ee.trackingMarkTuple(ts1.getTransactionId(), ReadWriteSummary.WRITE, tbl.getName(), 1);
+        assertTrue(eeChecker.hasConflictAfter(ts0, ts1, BASE_PARTITION));
+        
+        ee.trackingFinish(ts0.getTransactionId());
+        assertNull(ee.trackingSummary(ts0.getTransactionId()));
+        assertNull(ee.trackingReadSet(ts0.getTransactionId()));
+    }
+    
+    /**
+     * testUnsupportedTracking
+     */
+    @Test
+    public void testUnsupportedTracking() throws Exception {
+        // If the EE can't give us the tracking sets, then we should
+        // fall back to the table-level conflicts instead of blowing up
+        MockExecutionEngine ee = new MockExecutionEngine() {
+            @Override
+            public ReadWriteSummary trackingSummary(Long txnId) throws EEException {
+                throw new NotImplementedException("Tracking summaries are not supported");
+            }
+            @Override
+            public VoltTable trackingReadSet(Long txnId) throws EEException {
+                throw new NotImplementedException("Tracking sets are not supported");
+            }
+            @Override
+            public VoltTable trackingWriteSet(Long txnId) throws EEException {
+                throw new NotImplementedException("Tracking sets are not supported");
+            }
+        };
+        OptimisticConflictChecker eeChecker = new OptimisticConflictChecker(catalogContext, ee);
+        TableConflictChecker tableChecker = new TableConflictChecker(catalogContext);
+        
+        Procedure proc = this.getProcedure(neworder.class);
+        Table tbl = CollectionUtil.first(CatalogUtil.getReferencedTables(proc));
+        LocalTransaction ts0 = this.makeTransaction(proc);
+        LocalTransaction ts1 = this.makeTransaction(proc);
+        ts0.markTableRead(BASE_PARTITION, tbl);
+        ts1.markTableWritten(BASE_PARTITION, tbl);
+        assertEquals(tableChecker.hasConflictAfter(ts0, ts1, BASE_PARTITION),
+                     eeChecker.hasConflictAfter(ts0, ts1, BASE_PARTITION));
+    }
+    
     /**
      * testReadWriteConflicts
      */
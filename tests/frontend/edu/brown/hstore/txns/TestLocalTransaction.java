@@ -155,14 +155,14 @@ public class TestLocalTransaction extends BaseTestCase {
             for (PlanFragment catalog_frag : catalog_stmt.getFragments()) {
 //                System.err.println(catalog_frag.fullName());
                 
-                tableIds = catalogContext.getReadTableIds(Long.valueOf(catalog_frag.getId()));
+                tableIds = catalogContext.getReadTableIds(catalog_frag.getId());
                 if (tableIds != null) {
                     ts.markTableIdsRead(BASE_PARTITION, tableIds);
 //                    System.err.printf("*** %s -- READ:%s\n",
 //                                      catalog_frag, Arrays.toString(tableIds));
                 }
                 
-                tableIds = catalogContext.getWriteTableIds(Long.valueOf(catalog_frag.getId()));
+                tableIds = catalogContext.getWriteTableIds(catalog_frag.getId());
                 if (tableIds != null) {
                     ts.markTableIdsWritten(BASE_PARTITION, tableIds);
 //                    System.err.printf("*** %s -- WRITE:%s\n",
@@ -0,0 +1,151 @@
+package edu.brown.hstore.util;
+
+import junit.framework.TestCase;
+import edu.brown.utils.PartitionSet;
+
+public class TestPartitionAdmissionController extends TestCase {
+
+    private static final int NUM_PARTITIONS = 4;
+    private static final int TARGET = 20;
+    private static final int INTERVAL = 100;
+    private static final int HOT_PARTITION = 1;
+    private static final int COLD_PARTITION = 2;
+
+    PartitionAdmissionController controller;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.controller = new PartitionAdmissionController(NUM_PARTITIONS, TARGET, INTERVAL);
+    }
+
+    /**
+     * Make the hot partition's delay stay above the target for a whole interval
+     */
+    private long overload(long now) {
+        for (int i = 0; i <= INTERVAL; i += 10) {
+            this.controller.update(HOT_PARTITION, TARGET * 2, now + i);
+            this.controller.update(COLD_PARTITION, TARGET / 2, now + i);
+        } // FOR
+        return (now + INTERVAL);
+    }
+
+    /**
+     * testBelowTarget
+     */
+    public void testBelowTarget() throws Exception {
+        long now = 1000;
+        for (int i = 0; i < 100; i++) {
+            this.controller.update(HOT_PARTITION, TARGET - 1, now + i);
+            assertTrue(this.controller.admit(HOT_PARTITION, now + i));
+        } // FOR
+        assertFalse(this.controller.isShedding(HOT_PARTITION));
+        assertEquals(0, this.controller.getShedCount(HOT_PARTITION));
+        assertEquals(100, this.controller.getAdmittedCount(HOT_PARTITION));
+    }
+
+    /**
+     * testShortBurst
+     */
+    public void testShortBurst() throws Exception {
+        // Being above the target for less than an interval is ok
+        long now = 1000;
+        this.controller.update(HOT_PARTITION, TARGET * 10, now);
+        this.controller.update(HOT_PARTITION, TARGET * 10, now + INTERVAL / 2);
+        assertFalse(this.controller.isShedding(HOT_PARTITION));
+        this.controller.update(HOT_PARTITION, TARGET - 1, now + INTERVAL);
+        this.controller.update(HOT_PARTITION, TARGET * 10, now + INTERVAL + 1);
+        assertFalse(this.controller.isShedding(HOT_PARTITION));
+        assertTrue(this.controller.admit(HOT_PARTITION, now + INTERVAL + 1));
+    }
+
+    /**
+     * testShedding
+     */
+    public void testShedding() throws Exception {
+        long now = this.overload(1000);
+        assertTrue(this.controller.isShedding(HOT_PARTITION));
+        assertFalse(this.controller.isShedding(COLD_PARTITION));
+
+        // We should shed one txn per interval at first, and then more and more often
+        int shed = 0;
+        long lastShed = -1;
+        long firstGap = -1;
+        long lastGap = -1;
+        for (long time = now; time < now + INTERVAL * 10; time++) {
+            if (this.controller.admit(HOT_PARTITION, time) == false) {
+                if (lastShed != -1) {
+                    lastGap = time - lastShed;
+                    if (firstGap == -1) firstGap = lastGap;
+                }
+                lastShed = time;
+                shed++;
+            }
+            assertTrue(this.controller.admit(COLD_PARTITION, time));
+        } // FOR
+        assertTrue(shed > 10);
+        assertTrue(lastGap < firstGap);
+        assertEquals(shed, this.controller.getShedCount(HOT_PARTITION));
+        assertEquals(0, this.controller.getShedCount(COLD_PARTITION));
+
+        // Once a txn gets through under the target, we stop shedding
+        now += INTERVAL * 10;
+        this.controller.update(HOT_PARTITION, TARGET - 1, now);
+        assertFalse(this.controller.isShedding(HOT_PARTITION));
+        for (long time = now; time < now + INTERVAL * 10; time++) {
+            assertTrue(this.controller.admit(HOT_PARTITION, time));
+        } // FOR
+        assertEquals(TARGET - 1, this.controller.getLastDelay(HOT_PARTITION));
+    }
+
+    /**
+     * testResumeShedding
+     */
+    public void testResumeShedding() throws Exception {
+        long now = this.overload(1000);
+        int shed = 0;
+        for (long time = now; time < now + INTERVAL * 10; time++) {
+            if (this.controller.admit(HOT_PARTITION, time) == false) shed++;
+        } // FOR
+        assertTrue(shed > 2);
+        now += INTERVAL * 10;
+        this.controller.update(HOT_PARTITION, TARGET - 1, now);
+        assertFalse(this.controller.isShedding(HOT_PARTITION));
+
+        // If we are overloaded again soon after, then we should not go back
+        // to waiting a whole interval before the first shed
+        now = this.overload(now + 1);
+        assertTrue(this.controller.isShedding(HOT_PARTITION));
+        long firstShed = -1;
+        for (long time = now; time < now + INTERVAL && firstShed == -1; time++) {
+            if (this.controller.admit(HOT_PARTITION, time) == false) firstShed = time;
+        } // FOR
+        assertTrue(firstShed != -1);
+        assertTrue(firstShed - now < INTERVAL);
+    }
+
+    /**
+     * testMultiPartitionAdmit
+     */
+    public void testMultiPartitionAdmit() throws Exception {
+        PartitionSet partitions = new PartitionSet(COLD_PARTITION, HOT_PARTITION);
+        long now = this.overload(1000);
+
+        // A txn that locks the hot partition gets shed even though
+        // the other partition that it locks is keeping up
+        int shed = 0;
+        for (long time = now; time < now + INTERVAL * 10; time++) {
+            if (this.controller.admit(partitions, time) == false) shed++;
+        } // FOR
+        assertTrue(shed > 10);
+        assertEquals(shed, this.controller.getShedCount(HOT_PARTITION));
+        assertEquals(0, this.controller.getShedCount(COLD_PARTITION));
+        assertEquals(INTERVAL * 10 - shed, this.controller.getAdmittedCount(COLD_PARTITION));
+        assertEquals(INTERVAL * 10 - shed, this.controller.getAdmittedCount(HOT_PARTITION));
+
+        // But txns that only lock the cold partition are never shed
+        for (long time = now; time < now + INTERVAL * 10; time++) {
+            assertTrue(this.controller.admit(new PartitionSet(COLD_PARTITION), time));
+        } // FOR
+    }
+}
@@ -0,0 +1,148 @@
+package edu.brown.hstore.util;
+
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.ParameterSet;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.utils.EstTimeUpdater;
+
+import edu.brown.BaseTestCase;
+import edu.brown.benchmark.tm1.procedures.GetSubscriberData;
+import edu.brown.benchmark.tm1.procedures.UpdateLocation;
+import edu.brown.hstore.Hstoreservice.Status;
+import edu.brown.utils.ProjectType;
+
+/**
+ * TestResultCache
+ */
+public class TestResultCache extends BaseTestCase {
+
+    private static final int NUM_PARTITIONS = 4;
+    private static final int TTL = 100;
+    private static final int MAX_ENTRIES = 10;
+    private static final int BASE_PARTITION = 1;
+
+    ResultCache cache;
+    Procedure catalog_proc;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp(ProjectType.TM1);
+        this.cache = new ResultCache(NUM_PARTITIONS, TTL, MAX_ENTRIES);
+        this.catalog_proc = this.getProcedure(GetSubscriberData.class);
+        EstTimeUpdater.update(System.currentTimeMillis());
+    }
+
+    private ClientResponseImpl makeResponse(long value) {
+        VoltTable vt = new VoltTable(new VoltTable.ColumnInfo("S_ID", VoltType.BIGINT));
+        vt.addRow(value);
+        return (new ClientResponseImpl(1234, 99, BASE_PARTITION, Status.OK, new VoltTable[]{ vt }, ""));
+    }
+
+    /**
+     * testIsCacheable
+     */
+    public void testIsCacheable() throws Exception {
+        assertTrue(ResultCache.isCacheable(this.catalog_proc));
+        assertFalse(ResultCache.isCacheable(this.getProcedure(UpdateLocation.class)));
+    }
+
+    /**
+     * testCreateKey
+     */
+    public void testCreateKey() throws Exception {
+        ResultCache.Key key0 = this.cache.createKey(this.catalog_proc, new ParameterSet(1234l));
+        ResultCache.Key key1 = this.cache.createKey(this.catalog_proc, new ParameterSet(1234l));
+        ResultCache.Key key2 = this.cache.createKey(this.catalog_proc, new ParameterSet(5678l));
+        assertEquals(key0, key1);
+        assertEquals(key0.hashCode(), key1.hashCode());
+        assertFalse(key0.equals(key2));
+
+        // Array parameters are compared by their contents
+        ResultCache.Key key3 = this.cache.createKey(this.catalog_proc, new ParameterSet(new long[]{ 1l, 2l }));
+        ResultCache.Key key4 = this.cache.createKey(this.catalog_proc, new ParameterSet(new long[]{ 1l, 2l }));
+        ResultCache.Key key5 = this.cache.createKey(this.catalog_proc, new ParameterSet(new long[]{ 1l, 3l }));
+        assertEquals(key3, key4);
+        assertEquals(key3.hashCode(), key4.hashCode());
+        assertFalse(key3.equals(key5));
+
+        // Changing the parameter array afterwards does not change the Key
+        Object values[] = { 1234l };
+        ResultCache.Key key6 = this.cache.createKey(this.catalog_proc, new ParameterSet(values));
+        values[0] = 5678l;
+        assertEquals(key0, key6);
+    }
+
+    /**
+     * testGet
+     */
+    public void testGet() throws Exception {
+        ResultCache.Key key = this.cache.createKey(this.catalog_proc, new ParameterSet(1234l));
+        assertNull(this.cache.get(BASE_PARTITION, key, 1));
+        this.cache.put(BASE_PARTITION, key, this.makeResponse(5555));
+        assertEquals(1, this.cache.size(BASE_PARTITION));
+
+        // Every hit should get its own copy of the results
+        for (int i = 0; i < 2; i++) {
+            ClientResponseImpl cresponse = this.cache.get(BASE_PARTITION, key, 100 + i);
+            assertNotNull(cresponse);
+            assertEquals(Status.OK, cresponse.getStatus());
+            assertEquals(100 + i, cresponse.getClientHandle());
+            assertEquals(1234, cresponse.getTransactionId());
+            VoltTable vt = cresponse.getResults()[0];
+            assertTrue(vt.advanceRow());
+            assertEquals(5555, vt.getLong(0));
+        } // FOR
+
+        // Other partitions don't have it
+        assertNull(this.cache.get(BASE_PARTITION + 1, key, 1));
+        assertEquals(2, this.cache.getHitCount());
+        assertEquals(2, this.cache.getMissCount());
+    }
+
+    /**
+     * testInvalidate
+     */
+    public void testInvalidate() throws Exception {
+        ResultCache.Key key = this.cache.createKey(this.catalog_proc, new ParameterSet(1234l));
+        this.cache.put(BASE_PARTITION, key, this.makeResponse(5555));
+        this.cache.put(BASE_PARTITION + 1, key, this.makeResponse(5555));
+
+        // A write at one partition only invalidates that partition's results
+        this.cache.invalidate(BASE_PARTITION);
+        assertEquals(0, this.cache.size(BASE_PARTITION));
+        assertNull(this.cache.get(BASE_PARTITION, key, 1));
+        assertNotNull(this.cache.get(BASE_PARTITION + 1, key, 1));
+    }
+
+    /**
+     * testExpiration
+     */
+    public void testExpiration() throws Exception {
+        ResultCache.Key key = this.cache.createKey(this.catalog_proc, new ParameterSet(1234l));
+        this.cache.put(BASE_PARTITION, key, this.makeResponse(5555));
+        assertNotNull(this.cache.get(BASE_PARTITION, key, 1));
+
+        EstTimeUpdater.update(System.currentTimeMillis() + TTL * 2);
+        assertNull(this.cache.get(BASE_PARTITION, key, 1));
+    }
+
+    /**
+     * testMaxEntries
+     */
+    public void testMaxEntries() throws Exception {
+        for (int i = 0; i < MAX_ENTRIES * 2; i++) {
+            ResultCache.Key key = this.cache.createKey(this.catalog_proc, new ParameterSet((long)i));
+            this.cache.put(BASE_PARTITION, key, this.makeResponse(i));
+        } // FOR
+        assertEquals(MAX_ENTRIES, this.cache.size(BASE_PARTITION));
+
+        // Once the old entries are stale, they will make room for new ones
+        EstTimeUpdater.update(System.currentTimeMillis() + TTL * 2);
+        ResultCache.Key key = this.cache.createKey(this.catalog_proc, new ParameterSet(-1l));
+        this.cache.put(BASE_PARTITION, key, this.makeResponse(-1));
+        assertEquals(1, this.cache.size(BASE_PARTITION));
+        assertNotNull(this.cache.get(BASE_PARTITION, key, 1));
+    }
+}
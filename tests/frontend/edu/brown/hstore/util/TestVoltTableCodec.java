@@ -0,0 +1,133 @@
+package edu.brown.hstore.util;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.FastSerializer;
+import org.voltdb.types.TimestampType;
+import org.voltdb.utils.VoltTableUtil;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * TestVoltTableCodec
+ */
+public class TestVoltTableCodec extends TestCase {
+
+    private static final int NUM_ROWS = 2000;
+    private static final String CATEGORIES[] = { "alpha", "bravo", "charlie", null };
+
+    private final Random rand = new Random(0);
+    private final FastSerializer fs = new FastSerializer();
+    private VoltTable vt;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.vt = new VoltTable(
+            new VoltTable.ColumnInfo("ID", VoltType.BIGINT),
+            new VoltTable.ColumnInfo("W_ID", VoltType.INTEGER),
+            new VoltTable.ColumnInfo("CATEGORY", VoltType.STRING),
+            new VoltTable.ColumnInfo("NAME", VoltType.STRING),
+            new VoltTable.ColumnInfo("PRICE", VoltType.FLOAT),
+            new VoltTable.ColumnInfo("FLAG", VoltType.TINYINT),
+            new VoltTable.ColumnInfo("CREATED", VoltType.TIMESTAMP),
+            new VoltTable.ColumnInfo("AMOUNT", VoltType.DECIMAL)
+        );
+        for (int i = 0; i < NUM_ROWS; i++) {
+            this.vt.addRow(i,
+                           i / 100,
+                           CATEGORIES[i % CATEGORIES.length],
+                           "name-" + this.rand.nextInt(),
+                           this.rand.nextDouble(),
+                           (byte)(i % 2),
+                           new TimestampType(1000000l),
+                           new BigDecimal(i % 7));
+        } // FOR
+    }
+
+    private void checkTable(VoltTable expected, VoltTable actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getColumnCount(), actual.getColumnCount());
+        assertEquals(expected.getRowCount(), actual.getRowCount());
+        for (int col = 0; col < expected.getColumnCount(); col++) {
+            assertEquals(expected.getColumnName(col), actual.getColumnName(col));
+            assertEquals(expected.getColumnType(col), actual.getColumnType(col));
+        } // FOR
+        try {
+            assertTrue(Arrays.equals(FastSerializer.serialize(expected), FastSerializer.serialize(actual)));
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        assertTrue(expected.hasSameContents(actual));
+    }
+
+    /**
+     * testEncodeDecode
+     */
+    public void testEncodeDecode() throws Exception {
+        byte encoded[] = VoltTableCodec.encode(this.vt);
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        assertTrue(VoltTableCodec.isEncoded(buffer));
+        assertTrue(encoded.length < this.vt.getUnderlyingBufferSize());
+
+        VoltTable clone = VoltTableCodec.decode(buffer);
+        this.checkTable(this.vt, clone);
+
+        // Make sure that we can still use the decoded table like normal
+        clone.resetRowPosition();
+        int ctr = 0;
+        while (clone.advanceRow()) {
+            assertEquals(ctr, clone.getLong(0));
+            assertEquals(CATEGORIES[ctr % CATEGORIES.length], clone.getString(2));
+            ctr++;
+        } // WHILE
+        assertEquals(NUM_ROWS, ctr);
+    }
+
+    /**
+     * testEmptyTable
+     */
+    public void testEmptyTable() throws Exception {
+        VoltTable empty = new VoltTable(VoltTableUtil.extractColumnInfo(this.vt));
+        VoltTable clone = VoltTableCodec.decode(ByteBuffer.wrap(VoltTableCodec.encode(empty)));
+        this.checkTable(empty, clone);
+    }
+
+    /**
+     * testSerializeThreshold
+     */
+    public void testSerializeThreshold() throws Exception {
+        // Disabled
+        ByteString bs = VoltTableCodec.serialize(this.vt, -1, this.fs);
+        assertFalse(VoltTableCodec.isEncoded(bs.asReadOnlyByteBuffer()));
+        this.checkTable(this.vt, FastDeserializer.deserialize(bs.asReadOnlyByteBuffer(), VoltTable.class));
+        this.checkTable(this.vt, VoltTableCodec.deserialize(bs.asReadOnlyByteBuffer()));
+
+        // Too small
+        bs = VoltTableCodec.serialize(this.vt, Integer.MAX_VALUE, this.fs);
+        assertFalse(VoltTableCodec.isEncoded(bs.asReadOnlyByteBuffer()));
+
+        // Big enough
+        bs = VoltTableCodec.serialize(this.vt, 0, this.fs);
+        assertTrue(VoltTableCodec.isEncoded(bs.asReadOnlyByteBuffer()));
+        this.checkTable(this.vt, VoltTableCodec.deserialize(bs.asReadOnlyByteBuffer()));
+
+        // Random data does not compress but we still get to drop the row headers
+        VoltTable random = new VoltTable(new VoltTable.ColumnInfo("VAL", VoltType.BIGINT));
+        for (int i = 0; i < NUM_ROWS; i++) {
+            random.addRow(this.rand.nextLong());
+        } // FOR
+        bs = VoltTableCodec.serialize(random, 0, this.fs);
+        assertTrue(bs.size() < random.getUnderlyingBufferSize());
+        this.checkTable(random, VoltTableCodec.deserialize(bs.asReadOnlyByteBuffer()));
+    }
+}
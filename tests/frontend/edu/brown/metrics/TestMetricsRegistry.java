@@ -0,0 +1,150 @@
+package edu.brown.metrics;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import edu.brown.utils.PartitionSet;
+
+public class TestMetricsRegistry extends TestCase {
+
+    private static final int NUM_PARTITIONS = 4;
+
+    private final PartitionSet partitions = new PartitionSet(1, 2);
+    private MetricsRegistry registry;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.registry = new MetricsRegistry("test_", "site=\"0\"", NUM_PARTITIONS, this.partitions, 10);
+    }
+
+    /**
+     * testStripedCounter
+     */
+    public void testStripedCounter() throws Exception {
+        StripedCounter counter = this.registry.counter("counter_total", "Counter");
+        for (int p = 0; p < NUM_PARTITIONS; p++) {
+            for (int i = 0; i <= p; i++) {
+                assertEquals(i + 1, counter.inc(p));
+            } // FOR
+        } // FOR
+        counter.add(3, 100);
+        for (int p = 0; p < 3; p++) {
+            assertEquals(p + 1, counter.get(p));
+        } // FOR
+        assertEquals(104, counter.get(3));
+        assertEquals(1 + 2 + 3 + 104, counter.get());
+    }
+
+    /**
+     * testLatencyHistogramBuckets
+     */
+    public void testLatencyHistogramBuckets() throws Exception {
+        Random rand = new Random(0);
+        for (int i = 0; i < 100000; i++) {
+            long value = (i < 1000 ? i : Math.abs(rand.nextLong()) >>> rand.nextInt(63));
+            int bucket = LatencyHistogram.getBucket(value);
+            long lower = LatencyHistogram.getBucketLowerBound(bucket);
+            long upper = LatencyHistogram.getBucketUpperBound(bucket);
+            assertTrue(value + " < " + lower, value >= lower);
+            assertTrue(value + " > " + upper, value <= upper);
+            // The bucket should never be wider than 1/SUB_BUCKETS of its values
+            assertTrue(value + " -> " + lower + "-" + upper,
+                       (upper - lower) <= Math.max(0, lower / LatencyHistogram.SUB_BUCKETS));
+        } // FOR
+        int last = LatencyHistogram.getBucket(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.getBucketUpperBound(last));
+    }
+
+    /**
+     * testLatencyHistogramQuantiles
+     */
+    public void testLatencyHistogramQuantiles() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtQuantile(0.5));
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i * 1000l);
+        } // FOR
+        assertEquals(10000, histogram.getCount());
+        assertEquals(10000000l, histogram.getMax());
+        double tolerance = 1.0 / LatencyHistogram.SUB_BUCKETS;
+        for (double q : new double[]{ 0.5, 0.9, 0.99 }) {
+            double expected = q * 10000000l;
+            double actual = histogram.getValueAtQuantile(q);
+            assertTrue(q + " -> " + actual, actual >= expected);
+            assertTrue(q + " -> " + actual, actual <= expected * (1 + tolerance));
+        } // FOR
+        assertEquals(histogram.getMax(), histogram.getValueAtQuantile(1.0));
+        histogram.clear();
+        assertEquals(0, histogram.getCount());
+    }
+
+    /**
+     * testSampledTimer
+     */
+    public void testSampledTimer() throws Exception {
+        SampledTimer timer = this.registry.timer("timer_seconds", "Timer");
+        assertEquals(10, timer.getSampleRate());
+        int sampled = 0;
+        for (int i = 0; i < 100; i++) {
+            long start = timer.start(1);
+            if (start != SampledTimer.NULL_MARKER) sampled++;
+            timer.stop(1, start);
+        } // FOR
+        assertEquals(10, sampled);
+        assertEquals(100, timer.getInvocations(1));
+        assertEquals(0, timer.getInvocations(2));
+        assertEquals(sampled, timer.getHistogram().getCount());
+    }
+
+    /**
+     * testExport
+     */
+    public void testExport() throws Exception {
+        StripedCounter counter = this.registry.counter("counter_total", "Counter");
+        counter.inc(1);
+        counter.inc(0); // Not a local partition
+        this.registry.timer("timer_seconds", "Timer");
+        this.registry.gauge("queue_depth", "Gauge", new MetricsRegistry.Gauge() {
+            @Override
+            public long getValue(int partition) {
+                return (partition * 10);
+            }
+        });
+        this.registry.siteGauge("site_value", "Site", new MetricsRegistry.Gauge() {
+            @Override
+            public long getValue(int partition) {
+                assertEquals(-1, partition);
+                return (99);
+            }
+        });
+        this.registry.siteGauge("broken", "Broken", new MetricsRegistry.Gauge() {
+            @Override
+            public long getValue(int partition) {
+                throw new RuntimeException("Fake");
+            }
+        });
+        assertEquals(5, this.registry.size());
+        assertNotNull(this.registry.get("counter_total"));
+
+        String output = this.registry.export();
+        assertTrue(output, output.contains("# TYPE test_counter_total counter\n"));
+        assertTrue(output, output.contains("test_counter_total{site=\"0\",partition=\"1\"} 1\n"));
+        assertTrue(output, output.contains("test_counter_total{site=\"0\",partition=\"2\"} 0\n"));
+        assertFalse(output, output.contains("partition=\"0\""));
+        assertTrue(output, output.contains("# TYPE test_timer_seconds summary\n"));
+        assertTrue(output, output.contains("test_timer_seconds{site=\"0\",quantile=\"0.99\"} 0.0\n"));
+        assertTrue(output, output.contains("test_timer_seconds_count{site=\"0\"} 0\n"));
+        assertTrue(output, output.contains("test_queue_depth{site=\"0\",partition=\"2\"} 20\n"));
+        assertTrue(output, output.contains("test_site_value{site=\"0\"} 99\n"));
+        assertTrue(output, output.contains("# TYPE test_broken gauge\n"));
+
+        // Duplicate names are not allowed
+        try {
+            this.registry.counter("counter_total", "Again");
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package edu.brown.protorpc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.protobuf.Descriptors.MethodDescriptor;
+
+import edu.brown.hstore.Hstoreservice.HStoreService;
+import edu.brown.hstore.Hstoreservice.HeartbeatRequest;
+import edu.brown.hstore.Hstoreservice.Status;
+import edu.brown.hstore.Hstoreservice.TransactionFinishRequest;
+import edu.brown.hstore.Hstoreservice.TransactionPrepareRequest;
+import edu.brown.net.MockByteChannel;
+import edu.brown.net.NonBlockingConnection;
+
+public class StripedProtoRpcChannelTest {
+    private static final int NUM_CONNECTIONS = 4;
+
+    MockEventLoop eventLoop;
+    ProtoRpcChannel control[];
+    ProtoRpcChannel bulk[];
+    StripedProtoRpcChannel channel;
+
+    MethodDescriptor workMethod;
+    MethodDescriptor prepareMethod;
+    MethodDescriptor heartbeatMethod;
+    MethodDescriptor finishMethod;
+
+    private ProtoRpcChannel makeChannel() {
+        return new ProtoRpcChannel(eventLoop, new ProtoRpcChannel.ConnectFactory() {
+            @Override
+            public NonBlockingConnection startNewConnection() {
+                return new NonBlockingConnection(null, new MockByteChannel());
+            }
+        });
+    }
+
+    @Before
+    public void setUp() {
+        eventLoop = new MockEventLoop();
+        control = new ProtoRpcChannel[NUM_CONNECTIONS];
+        bulk = new ProtoRpcChannel[NUM_CONNECTIONS];
+        for (int i = 0; i < NUM_CONNECTIONS; i++) {
+            control[i] = makeChannel();
+            bulk[i] = makeChannel();
+        }
+        channel = new StripedProtoRpcChannel(HStoreService.getDescriptor(), control, bulk, Arrays.asList("TransactionWork", "SendData"));
+
+        workMethod = HStoreService.getDescriptor().findMethodByName("TransactionWork");
+        prepareMethod = HStoreService.getDescriptor().findMethodByName("TransactionPrepare");
+        heartbeatMethod = HStoreService.getDescriptor().findMethodByName("Heartbeat");
+        finishMethod = HStoreService.getDescriptor().findMethodByName("TransactionFinish");
+    }
+
+    @Test
+    public void testLanes() {
+        assertEquals(StripedProtoRpcChannel.Lane.BULK, channel.getLane(workMethod));
+        assertEquals(StripedProtoRpcChannel.Lane.CONTROL, channel.getLane(prepareMethod));
+        assertEquals(StripedProtoRpcChannel.Lane.CONTROL, channel.getLane(heartbeatMethod));
+
+        TransactionPrepareRequest request = TransactionPrepareRequest.newBuilder().setTransactionId(1234).build();
+        assertTrue(Arrays.asList(control).contains(channel.getChannel(prepareMethod, request)));
+        assertTrue(Arrays.asList(bulk).contains(channel.getChannel(workMethod, request)));
+    }
+
+    @Test
+    public void testTransactionStripes() {
+        for (long txnId = 0; txnId < 100; txnId++) {
+            TransactionPrepareRequest request = TransactionPrepareRequest.newBuilder().setTransactionId(txnId).build();
+            // The same txn always has to go over the same connection
+            ProtoRpcChannel first = channel.getChannel(prepareMethod, request);
+            assertSame(first, channel.getChannel(prepareMethod, request));
+            assertSame(control[(int)(txnId % NUM_CONNECTIONS)], first);
+        }
+        TransactionPrepareRequest negative = TransactionPrepareRequest.newBuilder().setTransactionId(-1).build();
+        assertTrue(Arrays.asList(control).contains(channel.getChannel(prepareMethod, negative)));
+    }
+
+    @Test
+    public void testRoundRobin() {
+        HeartbeatRequest request = HeartbeatRequest.newBuilder().setSenderSite(0).setLastTransactionId(99).build();
+        Set<ProtoRpcChannel> seen = new HashSet<ProtoRpcChannel>();
+        ProtoRpcChannel last = null;
+        for (int i = 0; i < NUM_CONNECTIONS; i++) {
+            ProtoRpcChannel next = channel.getChannel(heartbeatMethod, request);
+            assertNotSame(last, next);
+            seen.add(next);
+            last = next;
+        }
+        assertEquals(NUM_CONNECTIONS, seen.size());
+    }
+
+    @Test
+    public void testSingleLane() {
+        StripedProtoRpcChannel single = new StripedProtoRpcChannel(HStoreService.getDescriptor(), control, null, null);
+        assertEquals(StripedProtoRpcChannel.Lane.CONTROL, single.getLane(workMethod));
+        assertEquals(NUM_CONNECTIONS, single.getConnectionCount(StripedProtoRpcChannel.Lane.BULK));
+        TransactionPrepareRequest request = TransactionPrepareRequest.newBuilder().setTransactionId(5).build();
+        assertSame(control[1], single.getChannel(workMethod, request));
+    }
+
+    @Test
+    public void testPerInstanceBulkMethods() {
+        // Each channel has its own set of bulk methods
+        StripedProtoRpcChannel other = new StripedProtoRpcChannel(HStoreService.getDescriptor(), control, bulk, Arrays.asList("TransactionPrepare"));
+        assertEquals(StripedProtoRpcChannel.Lane.CONTROL, other.getLane(workMethod));
+        assertEquals(StripedProtoRpcChannel.Lane.BULK, other.getLane(prepareMethod));
+        assertEquals(StripedProtoRpcChannel.Lane.BULK, channel.getLane(workMethod));
+        assertEquals(StripedProtoRpcChannel.Lane.CONTROL, channel.getLane(prepareMethod));
+
+        TransactionPrepareRequest request = TransactionPrepareRequest.newBuilder().setTransactionId(6).build();
+        assertSame(bulk[2], other.getChannel(prepareMethod, request));
+        assertSame(control[2], channel.getChannel(prepareMethod, request));
+    }
+
+    @Test
+    public void testTransactionOrdering() {
+        long txnId = 1001;
+        TransactionPrepareRequest prepare = TransactionPrepareRequest.newBuilder().setTransactionId(txnId).build();
+        TransactionFinishRequest finish = TransactionFinishRequest.newBuilder().setTransactionId(txnId).setStatus(Status.OK).build();
+        ProtoRpcChannel stripe = bulk[(int)(txnId % NUM_CONNECTIONS)];
+
+        // Nothing is waiting behind bulk data yet, so the txn uses the control lane
+        assertSame(control[(int)(txnId % NUM_CONNECTIONS)], channel.getChannel(prepareMethod, prepare));
+
+        // Once it sends bulk data, its control messages follow that data on the
+        // same connection so that the finish can't get there first
+        assertSame(stripe, channel.getChannel(workMethod, prepare));
+        assertEquals(1, channel.getBulkTransactionCount());
+        assertSame(stripe, channel.getChannel(prepareMethod, prepare));
+        assertSame(stripe, channel.getChannel(finishMethod, finish));
+        assertEquals(0, channel.getBulkTransactionCount());
+
+        // Other txns are not affected
+        TransactionPrepareRequest other = TransactionPrepareRequest.newBuilder().setTransactionId(txnId + 1).build();
+        assertTrue(Arrays.asList(control).contains(channel.getChannel(prepareMethod, other)));
+
+        // And a txn that never sent any bulk data finishes on the control lane
+        TransactionFinishRequest otherFinish = TransactionFinishRequest.newBuilder().setTransactionId(txnId + 1).setStatus(Status.OK).build();
+        assertTrue(Arrays.asList(control).contains(channel.getChannel(finishMethod, otherFinish)));
+        assertEquals(0, channel.getBulkTransactionCount());
+
+        // There is nothing to keep in order with a single lane
+        StripedProtoRpcChannel single = new StripedProtoRpcChannel(HStoreService.getDescriptor(), control, null, null);
+        single.getChannel(workMethod, prepare);
+        assertEquals(0, single.getBulkTransactionCount());
+        assertFalse(Arrays.asList(bulk).contains(single.getChannel(finishMethod, finish)));
+    }
+}
@@ -0,0 +1,282 @@
+package edu.brown.workload;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.voltdb.VoltType;
+import org.voltdb.catalog.CatalogType;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Statement;
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.FastSerializer;
+import org.voltdb.utils.CatalogUtil;
+import org.voltdb.utils.VoltTypeUtil;
+
+import edu.brown.BaseTestCase;
+import edu.brown.utils.ClassUtil;
+import edu.brown.utils.FileUtil;
+import edu.brown.utils.ProjectType;
+import edu.brown.workload.filters.ProcedureLimitFilter;
+import edu.brown.workload.filters.ProcedureNameFilter;
+
+public class TestBinaryWorkload extends BaseTestCase {
+
+    private static final int NUM_TXNS = 1000;
+    private static final int BLOCK_SIZE = 8192;
+    private static final String TARGET_PROCEDURE = "neworder";
+    private static final String OTHER_PROCEDURES[] = { "delivery", "ostatByCustomerId", "slev" };
+
+    private final Random rand = new Random(0);
+    private Workload workload;
+    private File binary_file;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp(ProjectType.TPCC);
+        Workload.ENABLE_SHUTDOWN_HOOKS = false;
+
+        List<Procedure> procs = new ArrayList<Procedure>();
+        procs.add(this.getProcedure(TARGET_PROCEDURE));
+        for (String proc_name : OTHER_PROCEDURES) {
+            procs.add(this.getProcedure(proc_name));
+        } // FOR
+
+        this.workload = new Workload(catalog);
+        long timestamp = 1000;
+        for (int txn_id = 0; txn_id < NUM_TXNS; txn_id++) {
+            Procedure catalog_proc = procs.get(rand.nextInt(procs.size()));
+            TransactionTrace txn_trace = new TransactionTrace(txn_id, catalog_proc,
+                    this.makeParams(CatalogUtil.getSortedCatalogItems(catalog_proc.getParameters(), "index"), "type"));
+            txn_trace.setTimestamps(timestamp++, null);
+            int batch_id = 0;
+            for (Statement catalog_stmt : catalog_proc.getStatements()) {
+                QueryTrace query_trace = new QueryTrace(catalog_stmt,
+                        this.makeParams(CatalogUtil.getSortedCatalogItems(catalog_stmt.getParameters(), "index"), "javatype"),
+                        batch_id++ / 2);
+                query_trace.setTimestamps(timestamp, timestamp + 1);
+                query_trace.setOutput(new Object[][]{ { new Long(txn_id), "ABC" + txn_id } });
+                txn_trace.addQuery(query_trace);
+            } // FOR
+            if (txn_id % 10 == 0) txn_trace.abort();
+            txn_trace.stop();
+            this.workload.addTransaction(catalog_proc, txn_trace);
+        } // FOR
+        assertEquals(NUM_TXNS, this.workload.getTransactionCount());
+
+        this.binary_file = FileUtil.getTempFile("trace", true);
+        BinaryWorkloadWriter writer = new BinaryWorkloadWriter(this.binary_file, BLOCK_SIZE);
+        for (TransactionTrace txn_trace : this.workload) {
+            writer.write(txn_trace);
+        } // FOR
+        writer.close();
+    }
+
+    private <T extends CatalogType> Object[] makeParams(List<T> catalog_params, String type_name) {
+        Object params[] = new Object[catalog_params.size()];
+        int array_size = rand.nextInt(10);
+        for (int i = 0; i < params.length; i++) {
+            VoltType type = VoltType.get(((Integer)catalog_params.get(i).getField(type_name)).byteValue());
+            Object is_array = catalog_params.get(i).getField("isarray");
+            if (is_array != null && (Boolean)is_array) {
+                Object inner[] = new Object[array_size];
+                for (int j = 0; j < inner.length; j++) {
+                    inner[j] = VoltTypeUtil.getRandomValue(type, rand);
+                } // FOR
+                params[i] = VoltTypeUtil.getPrimitiveArray(type, inner);
+            } else {
+                params[i] = VoltTypeUtil.getRandomValue(type, rand);
+            }
+        } // FOR
+        return (params);
+    }
+
+    private void compare(Object expected[], Object actual[]) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i] == null) {
+                assertNull(actual[i]);
+            } else if (ClassUtil.isArray(expected[i])) {
+                assertEquals(expected[i].getClass(), actual[i].getClass());
+                this.compare((Object[])expected[i], (Object[])actual[i]);
+            } else {
+                assertEquals(expected[i].getClass(), actual[i].getClass());
+                assertEquals(expected[i].toString(), actual[i].toString());
+            }
+        } // FOR
+    }
+
+    private void compare(AbstractTraceElement<?> expected, AbstractTraceElement<?> actual) {
+        assertEquals(expected.getCatalogItemName(), actual.getCatalogItemName());
+        assertEquals(expected.getStartTimestamp(), actual.getStartTimestamp());
+        assertEquals(expected.getStopTimestamp(), actual.getStopTimestamp());
+        assertEquals(expected.isAborted(), actual.isAborted());
+        assertEquals(expected.getWeight(), actual.getWeight());
+        this.compare(expected.getParams(), actual.getParams());
+        assertEquals(expected.hasOutput(), actual.hasOutput());
+        if (expected.hasOutput()) {
+            assertEquals(expected.getOutput().length, actual.getOutput().length);
+            for (int i = 0; i < expected.getOutput().length; i++) {
+                VoltType expected_types[] = expected.getOutputTypes(i);
+                VoltType actual_types[] = actual.getOutputTypes(i);
+                assertEquals(expected_types.length, actual_types.length);
+                for (int j = 0; j < expected_types.length; j++) {
+                    assertEquals(expected_types[j], actual_types[j]);
+                } // FOR
+                for (int j = 0; j < expected.getOutput(i).length; j++) {
+                    this.compare(expected.getOutput(i)[j], actual.getOutput(i)[j]);
+                } // FOR
+            } // FOR
+        }
+    }
+
+    /**
+     * testLoad
+     */
+    public void testLoad() throws Exception {
+        assert(BinaryWorkloadFormat.isBinaryWorkload(this.binary_file));
+        BinaryWorkloadReader reader = new BinaryWorkloadReader(this.binary_file);
+        assert(reader.getBlocks().size() > 1) : reader.getBlocks();
+        assertEquals(NUM_TXNS, reader.getTransactionCount());
+        reader.close();
+
+        Workload clone = new Workload(catalog);
+        clone.load(this.binary_file, catalog_db);
+        assertEquals(this.workload.getTransactionCount(), clone.getTransactionCount());
+        assertEquals(this.workload.getQueryCount(), clone.getQueryCount());
+
+        for (TransactionTrace expected : this.workload) {
+            TransactionTrace actual = clone.getTransaction(expected.getTransactionId());
+            assertNotNull(expected.toString(), actual);
+            this.compare(expected, actual);
+            assertEquals(expected.getBatchCount(), actual.getBatchCount());
+            assertEquals(expected.getQueryCount(), actual.getQueryCount());
+            for (int i = 0; i < expected.getQueryCount(); i++) {
+                QueryTrace expected_query = expected.getQuery(i);
+                QueryTrace actual_query = actual.getQuery(i);
+                assertEquals(expected_query.getBatchId(), actual_query.getBatchId());
+                assertEquals(expected_query.getCatalogItem(catalog_db), actual_query.getCatalogItem(catalog_db));
+                this.compare(expected_query, actual_query);
+            } // FOR
+        } // FOR
+    }
+
+    /**
+     * testProcedureNameFilter
+     */
+    public void testProcedureNameFilter() throws Exception {
+        int expected = 0;
+        for (TransactionTrace txn_trace : this.workload) {
+            if (txn_trace.getCatalogItemName().equals(TARGET_PROCEDURE)) expected++;
+        } // FOR
+        assert(expected > 0);
+
+        Workload clone = new Workload(catalog);
+        clone.load(this.binary_file, catalog_db, new ProcedureNameFilter(false).include(TARGET_PROCEDURE));
+        assertEquals(expected, clone.getTransactionCount());
+        for (TransactionTrace txn_trace : clone) {
+            assertEquals(TARGET_PROCEDURE, txn_trace.getCatalogItemName());
+        } // FOR
+
+        // Make sure that we stop once we've seen enough
+        int limit = expected / 2;
+        clone = new Workload(catalog);
+        clone.load(this.binary_file, catalog_db, new ProcedureNameFilter(false).include(TARGET_PROCEDURE, limit));
+        assertEquals(limit, clone.getTransactionCount());
+    }
+
+    /**
+     * testProcedureLimitFilter
+     */
+    public void testProcedureLimitFilter() throws Exception {
+        // The limit and offset depend on the order that the filter sees the txns,
+        // so we should always get the same txns that were written to the file
+        long offset = NUM_TXNS / 4;
+        long limit = NUM_TXNS / 2;
+        List<Long> expected = new ArrayList<Long>();
+        for (TransactionTrace txn_trace : this.workload) {
+            expected.add(txn_trace.getTransactionId());
+        } // FOR
+        expected = expected.subList((int)offset, (int)(offset + limit));
+
+        for (int i = 0; i < 5; i++) {
+            Workload clone = new Workload(catalog);
+            clone.load(this.binary_file, catalog_db, new ProcedureLimitFilter(limit, offset, false));
+            List<Long> actual = new ArrayList<Long>();
+            for (TransactionTrace txn_trace : clone) {
+                actual.add(txn_trace.getTransactionId());
+            } // FOR
+            Collections.sort(actual);
+            assertEquals("Attempt #" + i, expected, actual);
+        } // FOR
+    }
+
+    private Object roundTrip(Object value) throws Exception {
+        FastSerializer fs = new FastSerializer();
+        BinaryWorkloadFormat.writeValue(fs, value);
+        return (BinaryWorkloadFormat.readValue(new FastDeserializer(fs.getBytes())));
+    }
+
+    /**
+     * testValueRoundTrip
+     */
+    public void testValueRoundTrip() throws Exception {
+        // A plain Object has nothing to serialize, but it should still come back
+        Object obj = this.roundTrip(new Object());
+        assertNotNull(obj);
+        assertEquals(Object.class, obj.getClass());
+
+        long longs[] = { 1l, -1l, Long.MAX_VALUE };
+        Object clone = this.roundTrip(longs);
+        assertEquals(long[].class, clone.getClass());
+        assertTrue(Arrays.equals(longs, (long[])clone));
+
+        // Arrays of arrays should keep their component type
+        long longs2d[][] = { { 1l, 2l }, { }, { 3l } };
+        clone = this.roundTrip(longs2d);
+        assertEquals(long[][].class, clone.getClass());
+        assertTrue(Arrays.deepEquals(longs2d, (long[][])clone));
+
+        String strings3d[][][] = { { { "a", null }, { "b" } }, { } };
+        clone = this.roundTrip(strings3d);
+        assertEquals(String[][][].class, clone.getClass());
+        assertTrue(Arrays.deepEquals(strings3d, (String[][][])clone));
+
+        Object mixed[] = { new Object(), new int[]{ 4, 5 }, "c" };
+        clone = this.roundTrip(mixed);
+        assertEquals(Object[].class, clone.getClass());
+        Object mixed_clone[] = (Object[])clone;
+        assertEquals(mixed.length, mixed_clone.length);
+        assertEquals(Object.class, mixed_clone[0].getClass());
+        assertTrue(Arrays.equals((int[])mixed[1], (int[])mixed_clone[1]));
+        assertEquals(mixed[2], mixed_clone[2]);
+    }
+
+    /**
+     * testConvert
+     */
+    public void testConvert() throws Exception {
+        File json_file = FileUtil.getTempFile("trace", true);
+        this.workload.save(json_file, catalog_db);
+
+        File output_file = FileUtil.getTempFile("trace", true);
+        int num_txns = BinaryWorkloadWriter.convert(json_file, output_file, catalog_db);
+        assertEquals(NUM_TXNS, num_txns);
+        assert(output_file.length() < json_file.length());
+
+        Workload json_workload = new Workload(catalog);
+        json_workload.load(json_file, catalog_db);
+        Workload binary_workload = new Workload(catalog);
+        binary_workload.load(output_file, catalog_db);
+        assertEquals(json_workload.getTransactionCount(), binary_workload.getTransactionCount());
+        assertEquals(json_workload.getQueryCount(), binary_workload.getQueryCount());
+        for (TransactionTrace expected : json_workload) {
+            TransactionTrace actual = binary_workload.getTransaction(expected.getTransactionId());
+            assertNotNull(expected.toString(), actual);
+            this.compare(expected, actual);
+        } // FOR
+    }
+}
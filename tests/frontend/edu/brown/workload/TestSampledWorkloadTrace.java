@@ -0,0 +1,125 @@
+package edu.brown.workload;
+
+import java.io.File;
+import java.util.List;
+
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Statement;
+import org.voltdb.sysprocs.Statistics;
+
+import edu.brown.BaseTestCase;
+import edu.brown.utils.FileUtil;
+import edu.brown.utils.ProjectType;
+
+public class TestSampledWorkloadTrace extends BaseTestCase {
+
+    private static final String TARGET_PROCEDURE = "neworder";
+    private static final String IGNORED_PROCEDURE = "slev";
+    private static final int RING_SIZE = 16;
+
+    private Procedure catalog_proc;
+    private File output_path;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp(ProjectType.TPCC);
+        this.catalog_proc = this.getProcedure(TARGET_PROCEDURE);
+        this.output_path = new File(FileUtil.getTempDirectory(), "sampled-" + System.nanoTime());
+    }
+
+    private SampledWorkloadTrace makeTrace(double rate, long max_file_size) {
+        SampledWorkloadTrace sampled = new SampledWorkloadTrace(rate, RING_SIZE, max_file_size, 1000);
+        sampled.setCatalog(catalog);
+        sampled.setOutputPath(this.output_path);
+        return (sampled);
+    }
+
+    private void execute(SampledWorkloadTrace sampled, long txn_id) {
+        Object handle = sampled.startTransaction(txn_id, this.catalog_proc, new Object[]{ txn_id });
+        if (handle == null) return;
+        int batch_id = 0;
+        for (Statement catalog_stmt : this.catalog_proc.getStatements()) {
+            Object query_handle = sampled.startQuery(handle, catalog_stmt, new Object[]{ txn_id }, batch_id++);
+            sampled.stopQuery(query_handle, null);
+        } // FOR
+        sampled.stopTransaction(handle);
+    }
+
+    /**
+     * testSampleRates
+     */
+    public void testSampleRates() throws Exception {
+        SampledWorkloadTrace sampled = this.makeTrace(0.25, 1024);
+        sampled.setSampleRates(TARGET_PROCEDURE + ":1.0, " + IGNORED_PROCEDURE + ":0");
+        assertEquals(1.0, sampled.getSampleRate(this.catalog_proc));
+        assertEquals(0.0, sampled.getSampleRate(this.getProcedure(IGNORED_PROCEDURE)));
+        assertEquals(0.25, sampled.getSampleRate(this.getProcedure("delivery")));
+        assertEquals(0.0, sampled.getSampleRate(this.getProcedure(Statistics.class)));
+
+        sampled.addIgnoredProcedure("delivery");
+        assertEquals(0.0, sampled.getSampleRate(this.getProcedure("delivery")));
+        assertNull(sampled.startTransaction(1, this.getProcedure("delivery"), new Object[0]));
+        assertNotNull(sampled.startTransaction(2, this.catalog_proc, new Object[0]));
+
+        // Only roughly a quarter of the other txns should get sampled
+        Procedure other = this.getProcedure("ostatByCustomerId");
+        int num_txns = 10000;
+        int ctr = 0;
+        for (int i = 0; i < num_txns; i++) {
+            if (sampled.startTransaction(i, other, new Object[0]) != null) ctr++;
+        } // FOR
+        assertTrue(Integer.toString(ctr), ctr > num_txns * 0.2 && ctr < num_txns * 0.3);
+    }
+
+    /**
+     * testDropWhenFull
+     */
+    public void testDropWhenFull() throws Exception {
+        SampledWorkloadTrace sampled = this.makeTrace(1.0, 1024 * 1024);
+        int num_txns = RING_SIZE * 3;
+        for (long txn_id = 0; txn_id < num_txns; txn_id++) {
+            this.execute(sampled, txn_id);
+        } // FOR
+        assertEquals(RING_SIZE, sampled.getSampledCount());
+        assertEquals(num_txns - RING_SIZE, sampled.getDroppedCount());
+
+        // Once it's drained we should be able to add more
+        assertEquals(RING_SIZE, sampled.flush());
+        this.execute(sampled, num_txns);
+        assertEquals(RING_SIZE + 1, sampled.getSampledCount());
+        sampled.shutdown();
+        assertEquals(RING_SIZE + 1, sampled.getWrittenCount());
+    }
+
+    /**
+     * testRotate
+     */
+    public void testRotate() throws Exception {
+        // Make the files small enough so that we rotate after every flush
+        SampledWorkloadTrace sampled = this.makeTrace(1.0, 1);
+        int num_flushes = 3;
+        long txn_id = 0;
+        for (int i = 0; i < num_flushes; i++) {
+            for (int j = 0; j < RING_SIZE; j++) {
+                this.execute(sampled, txn_id++);
+            } // FOR
+            assertEquals(RING_SIZE, sampled.flush());
+        } // FOR
+        sampled.shutdown();
+        assertEquals(0, sampled.getDroppedCount());
+
+        List<File> files = sampled.getOutputFiles();
+        assertEquals(num_flushes, files.size());
+        Workload workload = new Workload(catalog);
+        for (File f : files) {
+            assert(BinaryWorkloadFormat.isBinaryWorkload(f)) : f;
+            workload.load(f, catalog_db);
+        } // FOR
+        assertEquals(txn_id, workload.getTransactionCount());
+        for (TransactionTrace txn_trace : workload) {
+            assertEquals(TARGET_PROCEDURE, txn_trace.getCatalogItemName());
+            assertEquals(this.catalog_proc.getStatements().size(), txn_trace.getQueryCount());
+            assertNotNull(txn_trace.getStopTimestamp());
+        } // FOR
+    }
+}
@@ -0,0 +1,127 @@
+package org.voltdb;
+
+import java.util.Arrays;
+
+import org.voltdb.catalog.Catalog;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.PlanFragment;
+import org.voltdb.catalog.Procedure;
+import org.voltdb.catalog.Statement;
+import org.voltdb.catalog.Table;
+
+import edu.brown.BaseTestCase;
+import edu.brown.catalog.CatalogUtil;
+import edu.brown.catalog.PlanFragmentIdGenerator;
+import edu.brown.utils.CollectionUtil;
+import edu.brown.utils.ProjectType;
+
+public class TestCatalogContext extends BaseTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp(ProjectType.TPCC);
+    }
+
+    /**
+     * testGetProcedure
+     */
+    public void testGetProcedure() throws Exception {
+        for (Procedure catalog_proc : catalog_db.getProcedures()) {
+            assertEquals(catalog_proc, catalogContext.getProcedureById(catalog_proc.getId()));
+            assertEquals(catalog_proc, catalogContext.getProcedureByName(catalog_proc.getName()));
+            assertEquals(catalog_proc, catalogContext.getProcedureByName(catalog_proc.getName().toUpperCase()));
+            assertEquals(catalog_proc, catalogContext.getProcedureByName(catalog_proc.getName().toLowerCase()));
+        } // FOR
+        assertNull(catalogContext.getProcedureByName("DoesNotExist"));
+        assertNull(catalogContext.getProcedureById(-1));
+    }
+
+    /**
+     * testGetStatementById
+     */
+    public void testGetStatementById() throws Exception {
+        for (Procedure catalog_proc : catalog_db.getProcedures()) {
+            for (Statement catalog_stmt : catalog_proc.getStatements()) {
+                assertEquals(catalog_stmt, catalogContext.getStatementById(catalog_stmt.getId()));
+            } // FOR
+        } // FOR
+        assertNull(catalogContext.getStatementById(-1));
+        assertNull(catalogContext.getStatementById(Integer.MAX_VALUE));
+    }
+
+    /**
+     * testGetPlanFragmentById
+     */
+    public void testGetPlanFragmentById() throws Exception {
+        for (Procedure catalog_proc : catalog_db.getProcedures()) {
+            for (Statement catalog_stmt : catalog_proc.getStatements()) {
+                for (PlanFragment catalog_frag : catalog_stmt.getFragments()) {
+                    assertEquals(catalog_frag, catalogContext.getPlanFragmentById(catalog_frag.getId()));
+                    assertEquals(CatalogUtil.getPlanFragment(catalog_db, catalog_frag.getId()),
+                                 catalogContext.getPlanFragmentById(catalog_frag.getId()));
+                } // FOR
+                for (PlanFragment catalog_frag : catalog_stmt.getMs_fragments()) {
+                    assertEquals(catalog_frag, catalogContext.getPlanFragmentById(catalog_frag.getId()));
+                } // FOR
+            } // FOR
+        } // FOR
+
+        // Make sure that we don't get back a fragment whose index matches but flags don't
+        Statement catalog_stmt = this.getStatement(this.getProcedure("neworder"), "getItemInfo");
+        PlanFragment catalog_frag = CollectionUtil.first(catalog_stmt.getFragments());
+        int bogusId = catalog_frag.getId() ^ (PlanFragmentIdGenerator.MAX_INDEX + 1);
+        assertNull(catalogContext.getPlanFragmentById(bogusId));
+        assertNull(catalogContext.getReadTableIds(bogusId));
+        assertNull(catalogContext.getWriteTableIds(bogusId));
+    }
+
+    /**
+     * testPlanFragmentIndexCollision
+     */
+    public void testPlanFragmentIndexCollision() throws Exception {
+        // Add a fragment whose index is already taken by another one
+        Catalog clone = catalog.deepCopy();
+        Database clone_db = CatalogUtil.getDatabase(clone);
+        Statement catalog_stmt = this.getStatement(clone_db.getProcedures().get("neworder"), "getItemInfo");
+        PlanFragment catalog_frag = CollectionUtil.first(catalog_stmt.getFragments());
+        PlanFragment other = catalog_stmt.getFragments().add("collision");
+        other.setId(catalog_frag.getId() | (1 << 20));
+        other.setReadonly(catalog_frag.getReadonly());
+        other.setPlannodetree(catalog_frag.getPlannodetree());
+        assertEquals(PlanFragmentIdGenerator.getPlanFragmentIndex(catalog_frag.getId()),
+                     PlanFragmentIdGenerator.getPlanFragmentIndex(other.getId()));
+        
+        CatalogContext cc = new CatalogContext(clone);
+        assertEquals(catalog_frag, cc.getPlanFragmentById(catalog_frag.getId()));
+        assertEquals(other, cc.getPlanFragmentById(other.getId()));
+        assertTrue(Arrays.equals(cc.getReadTableIds(catalog_frag.getId()), cc.getReadTableIds(other.getId())));
+        assertNotNull(cc.getReadTableIds(other.getId()));
+        assertNull(cc.getWriteTableIds(other.getId()));
+    }
+    
+    /**
+     * testGetTableByName
+     */
+    public void testGetTableByName() throws Exception {
+        for (Table catalog_tbl : catalog_db.getTables()) {
+            assertEquals(catalog_tbl, catalogContext.getTableByName(catalog_tbl.getName()));
+            assertEquals(catalog_tbl, catalogContext.getTableByName(catalog_tbl.getName().toLowerCase()));
+        } // FOR
+        assertNull(catalogContext.getTableByName("DoesNotExist"));
+    }
+
+    /**
+     * testGetTableById
+     */
+    public void testGetTableById() throws Exception {
+        for (Table catalog_tbl : catalog_db.getTables()) {
+            assertEquals(catalog_tbl, catalogContext.getTableById(catalog_tbl.getRelativeIndex()));
+        } // FOR
+        try {
+            catalogContext.getTableById(0);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // Expected
+        }
+    }
+}
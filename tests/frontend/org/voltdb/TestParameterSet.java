@@ -53,6 +53,7 @@ package org.voltdb;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import org.voltdb.ParameterSet;
 import org.voltdb.messaging.FastDeserializer;
@@ -138,4 +139,108 @@ public class TestParameterSet extends TestCase {
         assertTrue("Array longer than Short.MAX_VALUE didn't fail to serialize",
                    arrayLengthTester(new Object[]{new BigDecimal[Short.MAX_VALUE + 1]}));
     }
+
+    private static byte[] serialize(ParameterSet ps) throws IOException {
+        FastSerializer fs = new FastSerializer();
+        ps.writeExternal(fs);
+        byte ret[] = new byte[fs.getPosition()];
+        fs.copyTo(0, ret, 0, ret.length);
+        return (ret);
+    }
+    
+    public void testCachedSerialization() throws IOException {
+        params.setParameters(new Object[]{ 1l, "foo", 3.5d });
+        assertFalse(params.isSerialized());
+        byte expected[] = serialize(params);
+        // We only keep the bytes once they get written out a second time
+        assertFalse(params.isSerialized());
+        assertTrue(Arrays.equals(expected, serialize(params)));
+        assertTrue(params.isSerialized());
+        
+        // Writing it out again should give us the same bytes, even 
+        // if the serializer already has something in it
+        FastSerializer fs = new FastSerializer(true, true);
+        fs.writeInt(1234);
+        params.writeExternal(fs);
+        byte actual[] = new byte[fs.getPosition() - 4];
+        fs.copyTo(4, actual, 0, actual.length);
+        assertTrue(Arrays.equals(expected, actual));
+        
+        // Changing the parameters has to throw away the cached bytes
+        params.setParameters(new Object[]{ 2l, "bar" });
+        assertFalse(params.isSerialized());
+        ParameterSet out = new ParameterSet();
+        out.readExternal(new FastDeserializer(FastSerializer.serialize(params)));
+        assertEquals(2, out.size());
+        assertEquals(2l, out.toArray()[0]);
+        assertEquals("bar", out.toArray()[1]);
+        
+        params.clear();
+        assertFalse(params.isSerialized());
+    }
+    
+    public void testReusedParameters() throws IOException {
+        params.setParameters(new Object[]{ 1l, "foo", 3.5d });
+        serialize(params);
+        byte expected[] = serialize(params);
+        assertTrue(params.isSerialized());
+        
+        // The same values in a new array (e.g., the next batch) keep the bytes
+        params.setParameters(new Object[]{ new Long(1l), new String("foo"), 3.5d });
+        assertTrue(params.isSerialized());
+        assertTrue(Arrays.equals(expected, serialize(params)));
+        
+        // But different values do not
+        params.setParameters(new Object[]{ 1l, "foo", 4.5d });
+        assertFalse(params.isSerialized());
+        serialize(params);
+        byte changed[] = serialize(params);
+        assertTrue(params.isSerialized());
+        assertFalse(Arrays.equals(expected, changed));
+        
+        // Neither do arrays or the same array, because they could have been modified
+        Object values[] = new Object[]{ 1l, new int[]{ 1, 2 } };
+        params.setParameters(values);
+        serialize(params);
+        serialize(params);
+        assertTrue(params.isSerialized());
+        params.setParameters(new Object[]{ 1l, values[1] });
+        assertFalse(params.isSerialized());
+        serialize(params);
+        serialize(params);
+        ((int[])values[1])[0] = 5;
+        params.setParameters(values);
+        assertFalse(params.isSerialized());
+        ParameterSet out = new ParameterSet();
+        out.readExternal(new FastDeserializer(FastSerializer.serialize(params)));
+        assertEquals(5, ((int[])out.toArray()[1])[0]);
+    }
+    
+    public void testSerializedParameters() throws IOException {
+        params.setParameters(new Object[]{ 1l, "foo", null, new int[]{ 1, 2, 3 } });
+        byte serialized[] = serialize(params);
+        
+        ParameterSet out = new ParameterSet().setSerializedParameters(ByteBuffer.wrap(serialized));
+        assertTrue(out.isSerialized());
+        assertEquals(4, out.size());
+        assertTrue(Arrays.equals(serialized, serialize(out)));
+        
+        Object actual[] = out.toArray();
+        assertEquals(4, actual.length);
+        assertEquals(1l, actual[0]);
+        assertEquals("foo", actual[1]);
+        assertNull(actual[2]);
+        assertTrue(Arrays.equals(new int[]{ 1, 2, 3 }, (int[])actual[3]));
+        
+        ParameterSet copy = new ParameterSet().setParameters(out);
+        assertTrue(copy.isSerialized());
+        assertTrue(Arrays.equals(serialized, serialize(copy)));
+    }
+    
+    public void testEmpty() throws IOException {
+        ParameterSet out = new ParameterSet();
+        out.readExternal(new FastDeserializer(FastSerializer.serialize(ParameterSet.EMPTY)));
+        assertEquals(0, out.size());
+        assertEquals(0, ParameterSet.EMPTY.size());
+    }
 }
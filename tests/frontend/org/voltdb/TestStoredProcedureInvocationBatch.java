@@ -0,0 +1,98 @@
+package org.voltdb;
+
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+import org.voltdb.messaging.FastDeserializer;
+import org.voltdb.messaging.FastSerializer;
+
+import edu.brown.hstore.Hstoreservice.Status;
+
+public class TestStoredProcedureInvocationBatch extends TestCase {
+
+    private static final String PROC_NAMES[] = { "GetNewDestination", "GetAccessData", "UpdateLocation" };
+    private static final long BASE_CLIENT_HANDLE = 1000l;
+
+    private StoredProcedureInvocation invocations[];
+    private StoredProcedureInvocationBatch batch;
+    
+    @Override
+    protected void setUp() throws Exception {
+        this.invocations = new StoredProcedureInvocation[PROC_NAMES.length];
+        for (int i = 0; i < this.invocations.length; i++) {
+            this.invocations[i] = new StoredProcedureInvocation(BASE_CLIENT_HANDLE + i, PROC_NAMES[i], (long)i, "param" + i);
+            this.invocations[i].setBasePartition(i);
+        } // FOR
+        this.batch = new StoredProcedureInvocationBatch(this.invocations);
+    }
+    
+    /**
+     * testIsBatch
+     */
+    public void testIsBatch() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(FastSerializer.serialize(this.batch));
+        assertTrue(StoredProcedureInvocationBatch.isBatch(buffer));
+        
+        buffer = ByteBuffer.wrap(FastSerializer.serialize(this.invocations[0]));
+        assertFalse(StoredProcedureInvocationBatch.isBatch(buffer));
+    }
+    
+    /**
+     * testSplit
+     */
+    public void testSplit() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(FastSerializer.serialize(this.batch));
+        assertEquals(this.invocations.length, StoredProcedureInvocationBatch.getInvocationCount(buffer));
+        ByteBuffer split[] = StoredProcedureInvocationBatch.split(buffer);
+        assertEquals(this.invocations.length, split.length);
+        for (int i = 0; i < split.length; i++) {
+            assertEquals(PROC_NAMES[i], StoredProcedureInvocation.getProcedureName(split[i]));
+            assertEquals(BASE_CLIENT_HANDLE + i, StoredProcedureInvocation.getClientHandle(split[i]));
+            assertEquals(i, StoredProcedureInvocation.getBasePartition(split[i]));
+            
+            StoredProcedureInvocation clone = new FastDeserializer(split[i]).readObject(StoredProcedureInvocation.class);
+            assertEquals(PROC_NAMES[i], clone.getProcName());
+            assertEquals(BASE_CLIENT_HANDLE + i, clone.getClientHandle());
+            clone.buildParameterSet();
+            assertEquals(2, clone.getParams().toArray().length);
+        } // FOR
+    }
+    
+    /**
+     * testSerialization
+     */
+    public void testSerialization() throws Exception {
+        byte bytes[] = FastSerializer.serialize(this.batch);
+        StoredProcedureInvocationBatch clone = new FastDeserializer(bytes).readObject(StoredProcedureInvocationBatch.class);
+        assertEquals(this.batch.size(), clone.size());
+        for (int i = 0; i < clone.size(); i++) {
+            assertEquals(PROC_NAMES[i], clone.getInvocations()[i].getProcName());
+            assertEquals(BASE_CLIENT_HANDLE + i, clone.getInvocations()[i].getClientHandle());
+        } // FOR
+    }
+    
+    /**
+     * testResponseBatch
+     */
+    public void testResponseBatch() throws Exception {
+        ClientResponseImpl responses[] = new ClientResponseImpl[this.invocations.length];
+        for (int i = 0; i < responses.length; i++) {
+            responses[i] = new ClientResponseImpl(i, BASE_CLIENT_HANDLE + i, i, Status.OK,
+                                                  new VoltTable[0], PROC_NAMES[i]);
+        } // FOR
+        FastSerializer fs = new FastSerializer();
+        ClientResponseImpl.writeBatch(fs, responses);
+        ByteBuffer buffer = fs.getBBContainer().b;
+        assertTrue(ClientResponseImpl.isBatch(buffer));
+        
+        ByteBuffer split[] = ClientResponseImpl.splitBatch(buffer);
+        assertEquals(responses.length, split.length);
+        for (int i = 0; i < split.length; i++) {
+            assertFalse(ClientResponseImpl.isBatch(split[i]));
+            ClientResponseImpl clone = new FastDeserializer(split[i]).readObject(ClientResponseImpl.class);
+            assertEquals(BASE_CLIENT_HANDLE + i, clone.getClientHandle());
+            assertEquals(PROC_NAMES[i], clone.getStatusString());
+        } // FOR
+    }
+}
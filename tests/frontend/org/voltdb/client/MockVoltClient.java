@@ -329,4 +329,18 @@ public class MockVoltClient implements Client {
         // TODO Auto-generated method stub
         return false;
     }
+
+    @Override
+    public boolean callProcedures(ProcedureCallback callbacks[], String procNames[], Object parameters[][]) throws IOException, NoConnectionsException {
+        for (int i = 0; i < procNames.length; i++) {
+            ClientResponse response = null;
+            try {
+                response = this.callProcedure(procNames[i], parameters[i]);
+            } catch (ProcCallException ex) {
+                response = ex.getClientResponse();
+            }
+            if (callbacks[i] != null) callbacks[i].clientCallback(response);
+        } // FOR
+        return true;
+    }
 }
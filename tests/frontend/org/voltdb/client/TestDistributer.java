@@ -59,6 +59,7 @@ public class TestDistributer extends TestCase {
 
         @Override
         public void handleMessage(ByteBuffer message, Connection c) {
+            if (respond == false) return;
             try {
                 FastDeserializer fds = new FastDeserializer(message);
                 StoredProcedureInvocation spi = fds.readObject(StoredProcedureInvocation.class);
@@ -105,6 +106,7 @@ public class TestDistributer extends TestCase {
 
         }
         AtomicInteger roundTrips = new AtomicInteger();
+        volatile boolean respond = true;
 
         @Override
         public Runnable offBackPressure() {
@@ -355,6 +357,80 @@ public class TestDistributer extends TestCase {
         }
     }
 
+    /**
+     * testCallbackThreads
+     */
+    public void testCallbackThreads() throws Exception {
+        MockVolt volt0 = new MockVolt(20000);
+        volt0.start();
+        try {
+            Distributer dist = new Distributer(128, null, false, false, null, 100, 2);
+            dist.createConnection(null, "localhost", 20000, "", "");
+            assertTrue(volt0.handler != null);
+
+            final int num_invocations = 10;
+            final AtomicInteger callbacks = new AtomicInteger(0);
+            final AtomicBoolean networkThread = new AtomicBoolean(false);
+            for (int i = 0; i < num_invocations; i++) {
+                StoredProcedureInvocation spi = new StoredProcedureInvocation(i, "i1", new Integer(1));
+                dist.queue(spi, new ProcedureCallback() {
+                    @Override
+                    public void clientCallback(ClientResponse clientResponse) {
+                        if (Thread.currentThread().getName().startsWith("client-callback") == false) {
+                            networkThread.set(true);
+                        }
+                        callbacks.incrementAndGet();
+                    }
+                }, 128, true);
+            } // FOR
+            dist.drain();
+            
+            assertEquals(num_invocations, volt0.handler.roundTrips.get());
+            assertEquals(num_invocations, callbacks.get());
+            assertFalse(networkThread.get());
+            dist.shutdown();
+        } finally {
+            volt0.shutdown();
+            volt0.join();
+        }
+    }
+
+    /**
+     * testConnectionLost
+     */
+    public void testConnectionLost() throws Exception {
+        MockVolt volt0 = new MockVolt(20000);
+        volt0.start();
+        Distributer dist = new Distributer(128, null, false, false, null);
+        final AtomicInteger lost = new AtomicInteger(0);
+        final int num_invocations = 10;
+        try {
+            dist.createConnection(null, "localhost", 20000, "", "");
+            assertTrue(volt0.handler != null);
+            volt0.handler.respond = false;
+            for (int i = 0; i < num_invocations; i++) {
+                StoredProcedureInvocation spi = new StoredProcedureInvocation(i, "i1", new Integer(1));
+                dist.queue(spi, new ProcedureCallback() {
+                    @Override
+                    public void clientCallback(ClientResponse clientResponse) {
+                        if (clientResponse.getStatus() == Status.ABORT_CONNECTION_LOST) {
+                            lost.incrementAndGet();
+                        }
+                    }
+                }, 128, true);
+            } // FOR
+        } finally {
+            volt0.shutdown();
+            volt0.join();
+        }
+        
+        // The pending callbacks get invoked when the connection goes away,
+        // so drain() should not wait for them
+        dist.drain();
+        assertEquals(num_invocations, lost.get());
+        dist.shutdown();
+    }
+
     public void testClient() {
        MockVolt volt = null;
 
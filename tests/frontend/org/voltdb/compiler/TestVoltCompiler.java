@@ -40,6 +40,7 @@ import org.voltdb.benchmark.tpcc.TPCCProjectBuilder;
 import org.voltdb.catalog.*;
 import org.voltdb.regressionsuites.TestSQLTypesSuite;
 import org.voltdb.types.ConstraintType;
+import org.voltdb.types.IndexType;
 import org.voltdb.utils.BuildDirectoryUtils;
 import org.voltdb.utils.JarReader;
 
@@ -998,4 +999,44 @@ public class TestVoltCompiler extends BaseTestCase {
         assertEquals(expected, actual_procs);
         assertEquals(expected, actual_stmts);
     }
+
+    public void testRadixTreeIndex() {
+        final File schemaFile = VoltProjectBuilder.writeStringToTempFile(
+            "create table T(ID INTEGER NOT NULL, VAL INTEGER, CONSTRAINT PK_T_RADIX PRIMARY KEY (ID));\n" +
+            "create index IDX_T_VAL_RADIX on T (VAL);\n" +
+            "create index IDX_T_VAL_TREE on T (VAL, ID);\n");
+        String simpleXML =
+            "<?xml version=\"1.0\"?>\n" +
+            "<project>" +
+            "<database name='database'>" +
+            "<schemas>" +
+            "<schema path='" + schemaFile.getAbsolutePath() + "'/>" +
+            "</schemas>" +
+            "<procedures>" +
+            "<procedure class='proc0'><sql>select * from T where VAL > ?</sql></procedure>" +
+            "</procedures>" +
+            "</database>" +
+            "</project>";
+
+        final File projectFile = VoltProjectBuilder.writeStringToTempFile(simpleXML);
+        final VoltCompiler compiler = new VoltCompiler();
+        final Catalog catalog = compiler.compileCatalog(projectFile.getPath(), cluster_config);
+        assertNotNull(catalog);
+
+        Table catalog_tbl = CatalogUtil.getDatabase(catalog).getTables().get("T");
+        assertNotNull(catalog_tbl);
+        Index catalog_idx = catalog_tbl.getIndexes().get("IDX_T_VAL_RADIX");
+        assertNotNull(catalog_idx);
+        assertEquals(IndexType.RADIX_TREE.getValue(), catalog_idx.getType());
+        assertFalse(catalog_idx.getUnique());
+        catalog_idx = catalog_tbl.getIndexes().get("IDX_T_VAL_TREE");
+        assertNotNull(catalog_idx);
+        assertEquals(IndexType.BALANCED_TREE.getValue(), catalog_idx.getType());
+
+        Constraint catalog_const = catalog_tbl.getConstraints().get("PK_T_RADIX");
+        assertNotNull(catalog_const);
+        assertEquals(IndexType.RADIX_TREE.getValue(), catalog_const.getIndex().getType());
+        assertTrue(catalog_const.getIndex().getUnique());
+        assertTrue(IndexType.RADIX_TREE.isOrdered());
+    }
 }
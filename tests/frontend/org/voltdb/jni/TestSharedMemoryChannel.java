@@ -0,0 +1,137 @@
+package org.voltdb.jni;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+public class TestSharedMemoryChannel extends TestCase {
+
+    private static final int CAPACITY = 4096;
+
+    private File file;
+    private SharedMemoryChannel java;
+    private SharedMemoryChannel ee;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.file = File.createTempFile("voltdbipc-test-", ".shm");
+        this.java = new SharedMemoryChannel(this.file, CAPACITY);
+        this.ee = new SharedMemoryChannel(this.file, CAPACITY, false);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.ee.close();
+        this.java.close();
+        assertFalse(this.file.exists());
+        super.tearDown();
+    }
+
+    /**
+     * testCapacity
+     */
+    public void testCapacity() throws Exception {
+        assertEquals(CAPACITY, this.java.getCapacity());
+        assertEquals(CAPACITY, this.ee.getCapacity());
+        assertEquals(2 * (SharedMemoryChannel.RING_HEADER_SIZE + CAPACITY), this.file.length());
+
+        File other = File.createTempFile("voltdbipc-test-", ".shm");
+        SharedMemoryChannel channel = new SharedMemoryChannel(other, CAPACITY + 1);
+        try {
+            assertEquals(CAPACITY * 2, channel.getCapacity());
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * testSingleBytes
+     */
+    public void testSingleBytes() throws Exception {
+        for (int i = 0; i < CAPACITY * 3; i++) {
+            this.java.write(i);
+            assertEquals(i & 0xFF, this.ee.read());
+            this.ee.write(255 - (i & 0xFF));
+            assertEquals(255 - (i & 0xFF), this.java.read());
+        } // FOR
+    }
+
+    /**
+     * testStreaming
+     * Push more data through each ring than it can hold at once so that
+     * both sides have to wait on each other and wrap around.
+     */
+    public void testStreaming() throws Exception {
+        final int total = CAPACITY * 25 + 17;
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+        // The EE side echoes back everything that it gets
+        Thread echo = new Thread() {
+            public void run() {
+                ByteBuffer buffer = ByteBuffer.allocate(1000);
+                int remaining = total;
+                try {
+                    while (remaining > 0) {
+                        buffer.clear();
+                        buffer.limit(Math.min(buffer.capacity(), remaining));
+                        int read = ee.read(buffer);
+                        assert(read > 0);
+                        remaining -= read;
+                        buffer.flip();
+                        while (buffer.hasRemaining()) {
+                            ee.write(buffer);
+                        } // WHILE
+                    } // WHILE
+                } catch (Throwable ex) {
+                    error.set(ex);
+                }
+            }
+        };
+        echo.start();
+
+        ByteBuffer out = ByteBuffer.allocate(total);
+        for (int i = 0; i < total; i++) {
+            out.put((byte)(i % 251));
+        } // FOR
+        out.flip();
+
+        // Write out the data in chunks that don't line up with the ring
+        ByteBuffer in = ByteBuffer.allocate(total);
+        while (out.hasRemaining() || in.hasRemaining()) {
+            if (out.hasRemaining()) {
+                ByteBuffer chunk = out.duplicate();
+                chunk.limit(Math.min(out.limit(), out.position() + 3001));
+                out.position(out.position() + this.java.write(chunk));
+            }
+            if (in.position() < total - out.remaining()) {
+                ByteBuffer chunk = in.duplicate();
+                chunk.limit(total - out.remaining());
+                in.position(in.position() + this.java.read(chunk));
+            }
+        } // WHILE
+        echo.join();
+        assertNull(error.get());
+
+        in.flip();
+        for (int i = 0; i < total; i++) {
+            assertEquals(Integer.toString(i), (byte)(i % 251), in.get(i));
+        } // FOR
+    }
+
+    /**
+     * testClose
+     */
+    public void testClose() throws Exception {
+        this.ee.write(42);
+        this.ee.close();
+        assertFalse(this.ee.isOpen());
+
+        // We should still get what they wrote before they closed
+        assertEquals(42, this.java.read());
+        assertEquals(-1, this.java.read());
+        assertEquals(-1, this.java.read(ByteBuffer.allocate(10)));
+    }
+}
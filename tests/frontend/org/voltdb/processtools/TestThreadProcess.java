@@ -0,0 +1,190 @@
+package org.voltdb.processtools;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+
+import org.voltdb.processtools.ProcessSetManager.OutputLine;
+import org.voltdb.processtools.ProcessSetManager.StreamType;
+
+import edu.brown.utils.EventObservable;
+import edu.brown.utils.EventObserver;
+
+import junit.framework.TestCase;
+
+public class TestThreadProcess extends TestCase {
+
+    /**
+     * Simple process that echos back every line that it gets
+     * until somebody tells it to quit
+     */
+    private static class EchoProcess extends ThreadProcess {
+        public EchoProcess(String name) {
+            super(name);
+        }
+        @Override
+        protected int execute(InputStream in, PrintStream out, PrintStream err) throws Exception {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+            String line = null;
+            while ((line = reader.readLine()) != null) {
+                if (line.equals("QUIT")) return (0);
+                if (line.equals("FAIL")) throw new RuntimeException("Failed!");
+                out.println("ECHO " + line);
+            } // WHILE
+            return (1);
+        }
+    }
+
+    private ProcessSetManager psm;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.psm = new ProcessSetManager(null, false, 0, new EventObserver<String>() {
+            @Override
+            public void update(EventObservable<String> o, String arg) {
+                // Ignore
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.psm.prepareShutdown(false);
+        super.tearDown();
+    }
+
+    /**
+     * testEcho
+     */
+    public void testEcho() throws Exception {
+        EchoProcess p = new EchoProcess("echo");
+        this.psm.startProcess("echo", p.start());
+
+        for (int i = 0; i < 10; i++) {
+            this.psm.writeToProcess("echo", "MSG" + i);
+            OutputLine line = this.psm.nextBlocking();
+            assertNotNull(line);
+            assertEquals("echo", line.processName);
+            assertEquals(StreamType.STDOUT, line.stream);
+            assertEquals("ECHO MSG" + i, line.value);
+        } // FOR
+
+        this.psm.writeToProcess("echo", "QUIT");
+        assertEquals(0, p.waitFor());
+        assertEquals(0, p.exitValue());
+    }
+
+    /**
+     * testMultipleWriters
+     */
+    public void testMultipleWriters() throws Exception {
+        final int num_threads = 10;
+        ThreadProcess p = new ThreadProcess("writers") {
+            @Override
+            protected int execute(InputStream in, final PrintStream out, PrintStream err) throws Exception {
+                Thread threads[] = new Thread[num_threads];
+                for (int i = 0; i < num_threads; i++) {
+                    final int id = i;
+                    threads[i] = new Thread() {
+                        public void run() {
+                            out.println("THREAD " + id);
+                        }
+                    };
+                    threads[i].start();
+                } // FOR
+                for (Thread t : threads) t.join();
+                return (0);
+            }
+        };
+        this.psm.startProcess("writers", p.start());
+        assertEquals(0, p.waitFor());
+
+        // Make sure that we got a complete line from every thread even
+        // though they are all dead now
+        boolean seen[] = new boolean[num_threads];
+        for (int i = 0; i < num_threads; i++) {
+            OutputLine line = this.psm.nextBlocking();
+            assertNotNull(line);
+            assertTrue(line.value, line.value.startsWith("THREAD "));
+            int id = Integer.parseInt(line.value.substring(7));
+            assertFalse(seen[id]);
+            seen[id] = true;
+        } // FOR
+    }
+
+    /**
+     * testError
+     */
+    public void testError() throws Exception {
+        EchoProcess p = new EchoProcess("error");
+        this.psm.startProcess("error", p.start());
+        this.psm.writeToProcess("error", "FAIL");
+        assertEquals(1, p.waitFor());
+
+        OutputLine line = this.psm.nextBlocking();
+        assertNotNull(line);
+        assertEquals(StreamType.STDERR, line.stream);
+    }
+
+    /**
+     * testJoin
+     */
+    public void testJoin() throws Exception {
+        final CountDownLatch stop = new CountDownLatch(1);
+        ThreadProcess p = new ThreadProcess("join") {
+            @Override
+            protected int execute(InputStream in, PrintStream out, PrintStream err) throws Exception {
+                // Leave behind a non-daemon thread that runs until we are terminated
+                Thread t = new Thread() {
+                    public void run() {
+                        try {
+                            stop.await();
+                        } catch (InterruptedException ex) {
+                            // Ignore
+                        }
+                    }
+                };
+                t.setDaemon(false);
+                t.start();
+                return (0);
+            }
+            @Override
+            protected void terminate() {
+                stop.countDown();
+            }
+        };
+        this.psm.startProcess("join", p.start());
+        assertEquals(0, p.waitFor());
+
+        // The process is done, but its thread is still running
+        Collection<Thread> alive = p.join(100);
+        assertEquals(1, alive.size());
+
+        // Once we tell it to stop, then join() will wait for that thread
+        stop.countDown();
+        alive = p.join(10000);
+        assertTrue(alive.toString(), alive.isEmpty());
+    }
+
+    /**
+     * testKill
+     */
+    public void testKill() throws Exception {
+        EchoProcess p = new EchoProcess("kill");
+        this.psm.startProcess("kill", p.start());
+        try {
+            p.exitValue();
+            fail("Process should still be running");
+        } catch (IllegalThreadStateException ex) {
+            // Expected
+        }
+
+        // Killing it will close its stdin
+        int retval = this.psm.killProcess("kill");
+        assertEquals(1, retval);
+    }
+}
@@ -24,19 +24,26 @@
 package org.voltdb.regressionsuites;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
 
 import junit.framework.Test;
 
 import org.voltdb.BackendTarget;
+import org.voltdb.CatalogContext;
 import org.voltdb.SysProcSelector;
 import org.voltdb.VoltTable;
 import org.voltdb.VoltType;
 import org.voltdb.benchmark.tpcc.TPCCProjectBuilder;
+import org.voltdb.catalog.Table;
 import org.voltdb.client.Client;
+import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ProcCallException;
 import org.voltdb.utils.VoltTableUtil;
 
 import edu.brown.hstore.Hstoreservice.Status;
+import edu.brown.utils.PartitionEstimator;
 
 public class TestSystemProcedureSuite extends RegressionSuite {
 
@@ -261,6 +268,110 @@ public class TestSystemProcedureSuite extends RegressionSuite {
     }
 
 
+    private VoltTable makeWarehouseTable() {
+        return new VoltTable(
+                new VoltTable.ColumnInfo("W_ID", org.voltdb.VoltType.SMALLINT),
+                new VoltTable.ColumnInfo("W_NAME", org.voltdb.VoltType.get((byte)9)),
+                new VoltTable.ColumnInfo("W_STREET_1", org.voltdb.VoltType.get((byte)9)),
+                new VoltTable.ColumnInfo("W_STREET_2", org.voltdb.VoltType.get((byte)9)),
+                new VoltTable.ColumnInfo("W_CITY", org.voltdb.VoltType.get((byte)9)),
+                new VoltTable.ColumnInfo("W_STATE", org.voltdb.VoltType.get((byte)9)),
+                new VoltTable.ColumnInfo("W_ZIP", org.voltdb.VoltType.get((byte)9)),
+                new VoltTable.ColumnInfo("W_TAX",org.voltdb.VoltType.get((byte)8)),
+                new VoltTable.ColumnInfo("W_YTD", org.voltdb.VoltType.get((byte)8))
+        );
+    }
+
+    private Object[] makeWarehouseRow(int w_id) {
+        return new Object[] {new Short((short) w_id),
+                             "name_" + w_id,
+                             "street1_" + w_id,
+                             "street2_" + w_id,
+                             "city_" + w_id,
+                             "ma",
+                             "zip_"  + w_id,
+                             new Double(w_id),
+                             new Double(w_id)};
+    }
+
+    /**
+     * Load tuples with @LoadPartitionTable while the index builds are deferred
+     * and make sure that every txn after each load sees complete indexes.
+     */
+    public void testLoadPartitionTable() throws Exception {
+        Client client = getClient();
+        CatalogContext catalogContext = this.getCatalogContext();
+        Table catalog_tbl = catalogContext.getTableByName("WAREHOUSE");
+        PartitionEstimator p_estimator = new PartitionEstimator(catalogContext);
+
+        // Split the warehouses up by their partition
+        int num_warehouses = 20;
+        Map<Integer, VoltTable> partitionTables = new TreeMap<Integer, VoltTable>();
+        Map<Integer, Integer> warehousePartitions = new HashMap<Integer, Integer>();
+        for (int w_id = 1; w_id <= num_warehouses; w_id++) {
+            VoltTable row = this.makeWarehouseTable();
+            row.addRow(this.makeWarehouseRow(w_id));
+            row.advanceRow();
+            int partition = p_estimator.getTableRowPartition(catalog_tbl, row);
+            warehousePartitions.put(w_id, partition);
+
+            VoltTable vt = partitionTables.get(partition);
+            if (vt == null) {
+                vt = this.makeWarehouseTable();
+                partitionTables.put(partition, vt);
+            }
+            vt.addRow(this.makeWarehouseRow(w_id));
+        } // FOR
+        for (Integer partition : partitionTables.keySet()) {
+            ClientResponse cr = client.callProcedure("@LoadPartitionTable", partition, "WAREHOUSE",
+                                                     partitionTables.get(partition), 0);
+            assertEquals(Status.OK, cr.getStatus());
+            VoltTable results[] = cr.getResults();
+            assertTrue(results[0].advanceRow());
+            assertEquals(partitionTables.get(partition).getRowCount(), results[0].getLong("TUPLES_LOADED"));
+        } // FOR
+
+        // Every warehouse must be found through the primary key index
+        // before the client says that it is finished loading
+        for (int w_id = 1; w_id <= num_warehouses; w_id++) {
+            ClientResponse cr = client.callProcedure("GetWarehouse", w_id);
+            assertEquals(Status.OK, cr.getStatus());
+            assertEquals("W_ID=" + w_id, 1, cr.getResults()[0].getRowCount());
+        } // FOR
+
+        // Deleting a loaded tuple has to remove it from the indexes
+        int w_id = 1;
+        ClientResponse cr = client.callProcedure("DeleteWarehouse", w_id);
+        assertEquals(Status.OK, cr.getStatus());
+        cr = client.callProcedure("GetWarehouse", w_id);
+        assertEquals(0, cr.getResults()[0].getRowCount());
+
+        // Loading it again after the delete has to put it in the index exactly once
+        int partition = warehousePartitions.get(w_id);
+        VoltTable vt = this.makeWarehouseTable();
+        vt.addRow(this.makeWarehouseRow(w_id));
+        cr = client.callProcedure("@LoadPartitionTable", partition, "WAREHOUSE", vt, 1);
+        assertEquals(Status.OK, cr.getStatus());
+        cr = client.callProcedure("GetWarehouse", w_id);
+        assertEquals(1, cr.getResults()[0].getRowCount());
+        cr = client.callProcedure("DeleteWarehouse", w_id);
+        assertEquals(Status.OK, cr.getStatus());
+        cr = client.callProcedure("GetWarehouse", w_id);
+        assertEquals(0, cr.getResults()[0].getRowCount());
+
+        // Loading into the wrong partition is rejected
+        vt = this.makeWarehouseTable();
+        vt.addRow(this.makeWarehouseRow(w_id));
+        try {
+            client.callProcedure("@LoadPartitionTable", (partition + 1) % catalogContext.numberOfPartitions,
+                                 "WAREHOUSE", vt, 0);
+            fail();
+        } catch (ProcCallException ex) {
+            // Expected
+        }
+    }
+
+
     /**
      * Build a list of the tests to be run. Use the regression suite
      * helpers to allow multiple backends.
@@ -279,6 +390,8 @@ public class TestSystemProcedureSuite extends RegressionSuite {
         project.addDefaultSchema();
         project.addDefaultPartitioning();
         project.addStmtProcedure("InsertNewOrder", "INSERT INTO NEW_ORDER VALUES (?, ?, ?);", "NEW_ORDER.NO_W_ID: 2");
+        project.addStmtProcedure("GetWarehouse", "SELECT W_ID FROM WAREHOUSE WHERE W_ID = ?;", "WAREHOUSE.W_ID: 0");
+        project.addStmtProcedure("DeleteWarehouse", "DELETE FROM WAREHOUSE WHERE W_ID = ?;", "WAREHOUSE.W_ID: 0");
 
         config = new LocalSingleProcessServer("sysproc-twosites.jar", 2,
                                               BackendTarget.NATIVE_EE_JNI);